@@ -0,0 +1,43 @@
+package us.kbase.benchmark.auth2.cryptutils;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import us.kbase.auth2.cryptutils.PasswordCrypt;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class PasswordCryptBenchmark {
+
+	@Param({"10000", "20000"})
+	private int iterations;
+
+	private PasswordCrypt crypt;
+	private final char[] password = "a very secure password".toCharArray();
+	private final byte[] salt = "saltsaltsaltsalt".getBytes();
+
+	@Setup
+	public void setUp() throws Exception {
+		crypt = new PasswordCrypt(iterations);
+	}
+
+	@Benchmark
+	public byte[] getEncryptedPassword() {
+		return crypt.getEncryptedPassword(password, salt);
+	}
+}
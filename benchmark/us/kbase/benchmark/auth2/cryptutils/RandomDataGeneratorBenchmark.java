@@ -0,0 +1,55 @@
+package us.kbase.benchmark.auth2.cryptutils;
+
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import us.kbase.auth2.cryptutils.PerThreadRandomDataGenerator;
+import us.kbase.auth2.cryptutils.RandomDataGenerator;
+import us.kbase.auth2.cryptutils.SHA1RandomDataGenerator;
+
+/* Compares the shared generator with the per thread generator when many threads create tokens
+ * concurrently, as when many users log in at once.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Fork(1)
+@Threads(8)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class RandomDataGeneratorBenchmark {
+
+	@Param({"shared", "perthread"})
+	private String generator;
+
+	private RandomDataGenerator gen;
+
+	@Setup
+	public void setUp() throws Exception {
+		gen = "shared".equals(generator) ?
+				new SHA1RandomDataGenerator() : new PerThreadRandomDataGenerator();
+	}
+
+	@Benchmark
+	public String getToken() {
+		return gen.getToken();
+	}
+
+	@Benchmark
+	public UUID randomUUID() {
+		return gen.randomUUID();
+	}
+}
@@ -0,0 +1,151 @@
+package us.kbase.benchmark.auth2.lib;
+
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+import static org.mockito.Mockito.withSettings;
+
+import java.time.Instant;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.slf4j.LoggerFactory;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import us.kbase.auth2.cryptutils.PasswordCrypt;
+import us.kbase.auth2.lib.Authentication;
+import us.kbase.auth2.lib.DisplayName;
+import us.kbase.auth2.lib.LocalLoginResult;
+import us.kbase.auth2.lib.Password;
+import us.kbase.auth2.lib.PasswordHashAndSalt;
+import us.kbase.auth2.lib.Role;
+import us.kbase.auth2.lib.TokenCreationContext;
+import us.kbase.auth2.lib.UserName;
+import us.kbase.auth2.lib.config.AuthConfig;
+import us.kbase.auth2.lib.config.AuthConfigSet;
+import us.kbase.auth2.lib.config.CollectingExternalConfig;
+import us.kbase.auth2.lib.config.CollectingExternalConfig.CollectingExternalConfigMapper;
+import us.kbase.auth2.lib.storage.AuthStorage;
+import us.kbase.auth2.lib.token.IncomingHashedToken;
+import us.kbase.auth2.lib.token.IncomingToken;
+import us.kbase.auth2.lib.token.NewToken;
+import us.kbase.auth2.lib.token.StoredToken;
+import us.kbase.auth2.lib.token.TokenName;
+import us.kbase.auth2.lib.token.TokenType;
+import us.kbase.auth2.lib.user.AuthUser;
+import us.kbase.auth2.lib.user.LocalUser;
+import us.kbase.auth2.service.AuthExternalConfig;
+
+/* Benchmarks the Authentication methods on the hot request paths over a mocked storage system,
+ * so that the results measure the Authentication code rather than MongoDB.
+ *
+ * The storage mock is stub only, so it doesn't record invocations, which would otherwise grow
+ * without bound over a benchmark run.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class AuthenticationBenchmark {
+
+	private static final String TOKEN = "benchmarktokenbenchmarktoken";
+	private static final char[] PASSWORD = "a very secure password".toCharArray();
+	private static final int DISPLAY_NAME_COUNT = 50;
+
+	private Authentication auth;
+	private IncomingToken token;
+	private UserName userName;
+	private Set<UserName> userNames;
+	private TokenName tokenName;
+	private TokenCreationContext context;
+
+	@Setup
+	public void setUp() throws Exception {
+		((Logger) LoggerFactory.getLogger(Logger.ROOT_LOGGER_NAME)).setLevel(Level.OFF);
+		token = new IncomingToken(TOKEN);
+		userName = new UserName("benchuser");
+		tokenName = new TokenName("bench");
+		context = TokenCreationContext.getBuilder().build();
+		final AuthStorage storage = mock(AuthStorage.class, withSettings().stubOnly());
+		when(storage.getConfig(any(CollectingExternalConfigMapper.class))).thenReturn(
+				new AuthConfigSet<>(new AuthConfig(true, null,
+						AuthConfig.DEFAULT_TOKEN_LIFETIMES_MS),
+						new CollectingExternalConfig(Collections.emptyMap())));
+
+		final StoredToken st = StoredToken.getBuilder(
+				TokenType.LOGIN, UUID.randomUUID(), userName)
+				.withLifeTime(Instant.now(), Instant.now().plusSeconds(100000000))
+				.build();
+		when(storage.getToken(any(IncomingHashedToken.class))).thenReturn(st);
+
+		final LocalUser user = LocalUser.getLocalUserBuilder(
+				userName, new DisplayName("Bench User"), Instant.now())
+				.withRole(Role.DEV_TOKEN).build();
+		when(storage.getUser(userName)).thenReturn(user);
+		when(storage.getLocalUser(userName)).thenReturn(user);
+
+		final PasswordCrypt crypt = new PasswordCrypt();
+		final byte[] salt = "saltsaltsaltsalt".getBytes();
+		final byte[] hash = crypt.getEncryptedPassword(PASSWORD, salt);
+		// the credentials are cleared after use, so return a copy for each login
+		when(storage.getPasswordHashAndSalt(userName)).thenAnswer(i -> new PasswordHashAndSalt(
+				hash.clone(), salt.clone(), crypt.getAlgorithm(), crypt.getIterations()));
+
+		userNames = new HashSet<>();
+		final Map<UserName, DisplayName> displayNames = new HashMap<>();
+		for (int i = 0; i < DISPLAY_NAME_COUNT; i++) {
+			final UserName un = new UserName("user" + i);
+			userNames.add(un);
+			displayNames.put(un, new DisplayName("User Number " + i));
+		}
+		// the returned map is modified, so return a copy
+		when(storage.getUserDisplayNames(userNames)).thenAnswer(
+				i -> new HashMap<>(displayNames));
+
+		auth = new Authentication(storage, Collections.emptySet(),
+				AuthExternalConfig.SET_DEFAULT, false, crypt);
+	}
+
+	@Benchmark
+	public StoredToken getToken() throws Exception {
+		return auth.getToken(token);
+	}
+
+	@Benchmark
+	public AuthUser getUser() throws Exception {
+		return auth.getUser(token);
+	}
+
+	@Benchmark
+	public Map<UserName, DisplayName> getUserDisplayNames() throws Exception {
+		return auth.getUserDisplayNames(token, userNames);
+	}
+
+	@Benchmark
+	public NewToken createToken() throws Exception {
+		return auth.createToken(token, tokenName, TokenType.AGENT, context);
+	}
+
+	@Benchmark
+	public LocalLoginResult localLogin() throws Exception {
+		return auth.localLogin(userName, new Password(PASSWORD.clone()), context);
+	}
+}
@@ -0,0 +1,38 @@
+package us.kbase.benchmark.auth2.lib;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import us.kbase.auth2.lib.DisplayName;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class DisplayNameBenchmark {
+
+	private DisplayName name;
+
+	@Setup
+	public void setUp() throws Exception {
+		name = new DisplayName("Dr. Mary  Jane-Watson  Parker   III");
+	}
+
+	@Benchmark
+	public List<String> getCanonicalDisplayName() {
+		return name.getCanonicalDisplayName();
+	}
+}
@@ -0,0 +1,52 @@
+package us.kbase.benchmark.auth2.lib;
+
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import us.kbase.auth2.lib.Role;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class RoleBenchmark {
+
+	private Set<Role> none = Collections.emptySet();
+	private Set<Role> devToken = EnumSet.of(Role.DEV_TOKEN);
+	private Set<Role> admin = EnumSet.of(Role.ADMIN);
+	private int adminMask = Role.getEffectiveMask(admin);
+
+	@Benchmark
+	public boolean isSatisfiedByNoRoles() {
+		return Role.DEV_TOKEN.isSatisfiedBy(none);
+	}
+
+	@Benchmark
+	public boolean isSatisfiedByRole() {
+		return Role.DEV_TOKEN.isSatisfiedBy(devToken);
+	}
+
+	@Benchmark
+	public boolean isSatisfiedByIncludingRole() {
+		return Role.DEV_TOKEN.isSatisfiedBy(admin);
+	}
+
+	@Benchmark
+	public boolean isSatisfiedByEffectiveMask() {
+		return Role.DEV_TOKEN.isSatisfiedBy(adminMask);
+	}
+}
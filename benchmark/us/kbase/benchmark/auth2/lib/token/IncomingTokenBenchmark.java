@@ -0,0 +1,32 @@
+package us.kbase.benchmark.auth2.lib.token;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import us.kbase.auth2.lib.token.IncomingToken;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class IncomingTokenBenchmark {
+
+	// the same length as the tokens generated by the service
+	private String token = "ABCDEFGHIJKLMNOPQRSTUVWXYZ234567";
+
+	@Benchmark
+	public String hash() {
+		return IncomingToken.hash(token);
+	}
+}
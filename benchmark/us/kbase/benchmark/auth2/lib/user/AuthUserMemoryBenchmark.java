@@ -0,0 +1,189 @@
+package us.kbase.benchmark.auth2.lib.user;
+
+import java.time.Instant;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.function.IntFunction;
+import java.util.stream.Collectors;
+
+import com.google.common.base.Optional;
+
+import us.kbase.auth2.lib.DisplayName;
+import us.kbase.auth2.lib.EmailAddress;
+import us.kbase.auth2.lib.PolicyID;
+import us.kbase.auth2.lib.Role;
+import us.kbase.auth2.lib.UserDisabledState;
+import us.kbase.auth2.lib.UserName;
+import us.kbase.auth2.lib.identity.RemoteIdentity;
+import us.kbase.auth2.lib.identity.RemoteIdentityDetails;
+import us.kbase.auth2.lib.identity.RemoteIdentityID;
+import us.kbase.auth2.lib.user.AuthUser;
+
+/* Measures the heap retained per user when many users are held in memory, as in a user cache.
+ *
+ * Compares the current AuthUser to a copy of the AuthUser layout prior to 0.2.6, which held
+ * its own hash and tree based collections and did not share role sets or intern user names,
+ * custom roles, or policy IDs. Each user is built from freshly allocated strings, as when users
+ * are read from MongoDB.
+ *
+ * JMH doesn't measure retained memory, so this is a standalone program rather than a JMH
+ * benchmark. The first argument is the number of users to build, 200,000 by default.
+ */
+public class AuthUserMemoryBenchmark {
+
+	private static final int DEFAULT_USERS = 200_000;
+	private static final Instant NOW = Instant.now();
+
+	public static void main(final String[] args) throws Exception {
+		final int users = args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_USERS;
+		// warm up the class loading and interners so they're not counted
+		measure(1000, AuthUserMemoryBenchmark::buildLegacyUser);
+		measure(1000, AuthUserMemoryBenchmark::buildUser);
+
+		final double legacy = measure(users, AuthUserMemoryBenchmark::buildLegacyUser);
+		final double compact = measure(users, AuthUserMemoryBenchmark::buildUser);
+		System.out.println(String.format("Users: %s", users));
+		System.out.println(String.format("Legacy layout: %.1f bytes per user", legacy));
+		System.out.println(String.format("Compact layout: %.1f bytes per user", compact));
+		System.out.println(String.format("Reduction: %.1f%%", 100 * (legacy - compact) / legacy));
+	}
+
+	private static double measure(final int count, final IntFunction<Object> builder) {
+		final Object[] users = new Object[count];
+		final long before = usedHeap();
+		for (int i = 0; i < count; i++) {
+			users[i] = builder.apply(i);
+		}
+		final long after = usedHeap();
+		// keep the users reachable until the heap is measured
+		if (users[count - 1] == null) {
+			throw new IllegalStateException("no user");
+		}
+		return (after - before) / (double) count;
+	}
+
+	private static long usedHeap() {
+		final Runtime rt = Runtime.getRuntime();
+		long used = Long.MAX_VALUE;
+		// the heap usage settles after a few collections
+		for (int i = 0; i < 5; i++) {
+			System.gc();
+			try {
+				Thread.sleep(100);
+			} catch (InterruptedException e) {
+				throw new RuntimeException(e);
+			}
+			used = Math.min(used, rt.totalMemory() - rt.freeMemory());
+		}
+		return used;
+	}
+
+	/* A user as stored in MongoDB. Each string is newly allocated, as when the user is decoded
+	 * from a database document.
+	 */
+	private static class UserData {
+
+		private final UserName userName;
+		private final DisplayName displayName;
+		private final EmailAddress email;
+		private final Set<RemoteIdentity> identities = new HashSet<>();
+		private final Set<Role> roles = new HashSet<>();
+		private final Set<String> customRoles = new HashSet<>();
+		private final Map<PolicyID, Instant> policyIDs = new TreeMap<>();
+
+		private UserData(final int i) {
+			try {
+				userName = new UserName(new String("user" + i));
+				displayName = new DisplayName(new String("User Number " + i));
+				email = new EmailAddress(new String("user" + i + "@example.com"));
+				identities.add(getIdentity(i, 0));
+				if (i % 5 == 0) {
+					identities.add(getIdentity(i, 1));
+				}
+				if (i % 10 == 0) {
+					roles.add(Role.DEV_TOKEN);
+				}
+				if (i % 100 == 0) {
+					roles.add(Role.ADMIN);
+				}
+				if (i % 3 == 0) {
+					customRoles.add(new String("crole" + i % 5));
+				}
+				policyIDs.put(new PolicyID(new String("pid1")), NOW);
+				if (i % 2 == 0) {
+					policyIDs.put(new PolicyID(new String("pid2")), NOW);
+				}
+			} catch (Exception e) {
+				throw new RuntimeException(e);
+			}
+		}
+
+		private static RemoteIdentity getIdentity(final int i, final int id) {
+			return new RemoteIdentity(
+					new RemoteIdentityID(new String("Globus"), new String("id" + i + "_" + id)),
+					new RemoteIdentityDetails(new String("user" + i), new String("User " + i),
+							new String("user" + i + "@example.com")));
+		}
+	}
+
+	private static AuthUser buildUser(final int i) {
+		final UserData d = new UserData(i);
+		final AuthUser.Builder b = AuthUser.getBuilder(d.userName, d.displayName, NOW)
+				.withEmailAddress(d.email)
+				.withLastLogin(NOW);
+		for (final RemoteIdentity ri: d.identities) {
+			b.withIdentity(ri);
+		}
+		for (final Role r: d.roles) {
+			b.withRole(r);
+		}
+		for (final String cr: d.customRoles) {
+			b.withCustomRole(cr);
+		}
+		for (final Entry<PolicyID, Instant> pid: d.policyIDs.entrySet()) {
+			b.withPolicyID(pid.getKey(), pid.getValue());
+		}
+		return b.build();
+	}
+
+	private static LegacyUser buildLegacyUser(final int i) {
+		return new LegacyUser(new UserData(i));
+	}
+
+	// the fields and collections of the AuthUser class prior to 0.2.6
+	@SuppressWarnings("unused")
+	private static class LegacyUser {
+
+		private final DisplayName displayName;
+		private final EmailAddress email;
+		private final UserName userName;
+		private final Set<Role> roles;
+		private final Set<Role> canGrantRoles;
+		private final Set<String> customRoles;
+		private final Set<RemoteIdentity> identities;
+		private final Map<PolicyID, Instant> policyIDs;
+		private final Instant created;
+		private final Optional<Instant> lastLogin;
+		private final UserDisabledState disabledState;
+
+		private LegacyUser(final UserData d) {
+			this.userName = d.userName;
+			this.displayName = d.displayName;
+			this.email = d.email;
+			this.identities = Collections.unmodifiableSet(new HashSet<>(d.identities));
+			this.roles = Collections.unmodifiableSet(new TreeSet<>(d.roles));
+			this.customRoles = Collections.unmodifiableSet(new TreeSet<>(d.customRoles));
+			this.policyIDs = Collections.unmodifiableMap(new TreeMap<>(d.policyIDs));
+			this.canGrantRoles = Collections.unmodifiableSet(roles.stream()
+					.flatMap(r -> r.canGrant().stream()).collect(Collectors.toSet()));
+			this.created = NOW;
+			this.lastLogin = Optional.of(NOW);
+			this.disabledState = new UserDisabledState();
+		}
+	}
+}
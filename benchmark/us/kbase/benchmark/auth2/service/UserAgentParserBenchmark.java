@@ -0,0 +1,58 @@
+package us.kbase.benchmark.auth2.service;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.slf4j.LoggerFactory;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import us.kbase.auth2.lib.TokenCreationContext;
+import us.kbase.auth2.service.UserAgentParser;
+
+/* Compares parsing a user agent that is in the parser cache with parsing one that isn't. The
+ * uncached benchmark uses a parser with the cache disabled.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Fork(1)
+@Threads(4)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class UserAgentParserBenchmark {
+
+	private static final String USER_AGENT = "Mozilla/5.0 (Macintosh; Intel Mac OS X 10_12_5) " +
+			"AppleWebKit/537.36 (KHTML, like Gecko) Chrome/59.0.3071.115 Safari/537.36";
+
+	private UserAgentParser cached;
+	private UserAgentParser uncached;
+
+	@Setup
+	public void setUp() {
+		((Logger) LoggerFactory.getLogger(Logger.ROOT_LOGGER_NAME)).setLevel(Level.OFF);
+		cached = new UserAgentParser(UserAgentParser.DEFAULT_CACHE_SIZE,
+				UserAgentParser.DEFAULT_ANALYZER_POOL_SIZE, false);
+		uncached = new UserAgentParser(0, UserAgentParser.DEFAULT_ANALYZER_POOL_SIZE, false);
+	}
+
+	@Benchmark
+	public TokenCreationContext.Builder parseCached() {
+		return cached.getTokenContextFromUserAgent(USER_AGENT);
+	}
+
+	@Benchmark
+	public TokenCreationContext.Builder parseUncached() {
+		return uncached.getTokenContextFromUserAgent(USER_AGENT);
+	}
+}
@@ -3,8 +3,12 @@ package us.kbase.auth2.cli;
 import static us.kbase.auth2.lib.Utils.nonNull;
 
 import java.io.Console;
+import java.io.IOException;
 import java.io.PrintStream;
+import java.nio.file.Files;
 import java.nio.file.Paths;
+import java.util.Map;
+import java.util.function.Function;
 
 import org.slf4j.LoggerFactory;
 
@@ -20,9 +24,13 @@ import us.kbase.auth2.lib.Password;
 import us.kbase.auth2.lib.exceptions.IllegalPasswordException;
 import us.kbase.auth2.lib.storage.exceptions.AuthStorageException;
 import us.kbase.auth2.lib.storage.exceptions.StorageInitException;
+import us.kbase.auth2.lib.token.StoredToken;
+import us.kbase.auth2.lib.user.AuthUser;
 import us.kbase.auth2.service.AuthBuilder;
 import us.kbase.auth2.service.AuthExternalConfig;
 import us.kbase.auth2.service.AuthStartupConfig;
+import us.kbase.auth2.service.common.ExportFormat;
+import us.kbase.auth2.service.common.NDJSONWriter;
 import us.kbase.auth2.service.exceptions.AuthConfigurationException;
 
 /** The Client Line Interface for the authentication instance. Used for bootstrapping the instance.
@@ -133,11 +141,49 @@ public class AuthCLI {
 		int ret = 0;
 		if (a.setroot) {
 			ret = setRootPassword(a, auth);
+		} else if (a.exportUsers != null || a.exportTokens != null) {
+			if (a.exportUsers != null) {
+				ret = export(a, a.exportUsers, "users",
+						w -> auth.getExporter().exportUsers(w),
+						(AuthUser u) -> ExportFormat.toMap(u));
+			}
+			if (ret == 0 && a.exportTokens != null) {
+				ret = export(a, a.exportTokens, "tokens",
+						w -> auth.getExporter().exportTokens(w),
+						(StoredToken t) -> ExportFormat.toMap(t));
+			}
 		} else {
 			usage(jc);
 		}
 		return ret;
 	}
+	
+	private interface Export<T> {
+		void export(NDJSONWriter<T> writer) throws AuthStorageException, IOException;
+	}
+	
+	private <T> int export(
+			final Args a,
+			final String file,
+			final String name,
+			final Export<T> export,
+			final Function<T, Map<String, Object>> converter) {
+		try (final NDJSONWriter<T> w = new NDJSONWriter<>(
+				Files.newOutputStream(Paths.get(file)), a.gzip, converter)) {
+			try {
+				export.export(w);
+			} catch (AuthStorageException | RuntimeException e) {
+				w.fail(e.getMessage());
+				throw e;
+			}
+			w.finish();
+			out.println(String.format("Exported %s %s to %s", w.getCount(), name, file));
+			return 0;
+		} catch (AuthStorageException | IOException e) {
+			printError(e, a);
+			return 1;
+		}
+	}
 
 	private int setRootPassword(final Args a, final Authentication auth) {
 		int ret = 0;
@@ -209,5 +255,17 @@ public class AuthCLI {
 				"other specified operations will be executed. If the root account is disabled " +
 				"it will be enabled with the enabling user set to the root user name.")
 		private boolean setroot;
+		
+		@Parameter(names = {"--export-users"},
+				description = "Export all users as NDJSON to the given file.")
+		private String exportUsers;
+		
+		@Parameter(names = {"--export-tokens"},
+				description = "Export all token metadata as NDJSON to the given file.")
+		private String exportTokens;
+		
+		@Parameter(names = {"--gzip"},
+				description = "Gzip compress the export files.")
+		private boolean gzip;
 	}
 }
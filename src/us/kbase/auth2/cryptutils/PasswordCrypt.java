@@ -3,44 +3,114 @@ package us.kbase.auth2.cryptutils;
 import java.security.NoSuchAlgorithmException;
 import java.security.spec.InvalidKeySpecException;
 import java.security.spec.KeySpec;
+import java.util.Arrays;
 
 import javax.crypto.SecretKeyFactory;
 import javax.crypto.spec.PBEKeySpec;
 
 /** Generates and checks salted passwords.
- * 
- * PBKDF2WithHmacSHA256 with 20000 iterations is used for encrypting passwords.
+ *
+ * PBKDF2WithHmacSHA256 is used for encrypting passwords. The number of iterations is
+ * configurable and defaults to 20000. Since the hashing algorithm and number of iterations are
+ * stored along with each password hash, passwords hashed with different parameters than the
+ * current parameters can still be verified, and {@link #isCurrent(String, int)} can be used to
+ * determine whether a hash should be upgraded.
+ *
  * SHA1PRNG is used with the SecureRandom class for generating salts.
- * 
+ *
  * The code is slightly modified from
  * https://www.javacodegeeks.com/2012/05/secure-password-storage-donts-dos-and.html
- * 
+ *
  * @author gaprice@lbl.gov
  *
  */
 public class PasswordCrypt {
-	
-	// PBKDF2 with SHA-256 as the hashing algorithm.
-	private static final String CRYPTALG = "PBKDF2WithHmacSHA256";
-	// sha256 will make 256 byte keys, surprisingly
-	private static final int DERIVED_KEY_LENGTH = 256;
+
+	/** The default hashing algorithm, PBKDF2 with SHA-256. This is also the algorithm that was
+	 * used for all password hashes stored before the algorithm was recorded with the hash.
+	 */
+	public static final String DEFAULT_ALGORITHM = "PBKDF2WithHmacSHA256";
+
 	/* The NIST recommends at least 1,000 iterations:
 	 * http://csrc.nist.gov/publications/nistpubs/800-132/nist-sp800-132.pdf
 	 * iOS 4.x reportedly uses 10,000:
 	 * http://blog.crackpassword.com/2010/09/smartphone-forensics-cracking-blackberry-backup-passwords/
 	 */
-	private static final int ITERATIONS = 20000;
-	
-	/** Create a new password crypt instance.
+	/** The default number of hash iterations. This is also the number of iterations that was
+	 * used for all password hashes stored before the number of iterations was recorded with the
+	 * hash.
+	 */
+	public static final int DEFAULT_ITERATIONS = 20000;
+
+	/** The minimum number of iterations allowed when hashing new passwords, including iteration
+	 * counts determined by {@link #calibrate(long)}.
+	 */
+	public static final int MINIMUM_ITERATIONS = 10000;
+
+	// sha256 will make 256 byte keys, surprisingly
+	private static final int DERIVED_KEY_LENGTH = 256;
+
+	// calibration settings
+	private static final int CALIBRATION_ITERATIONS = 10000;
+	private static final int CALIBRATION_WARMUP = 5;
+	private static final int CALIBRATION_RUNS = 11; // odd so there's a true median
+	private static final int CALIBRATION_ROUND_TO = 1000;
+	private static final char[] CALIBRATION_PWD = "calibrationpassword".toCharArray();
+	private static final byte[] CALIBRATION_SALT = {1, 2, 3, 4, 5, 6, 7, 8};
+
+	private final int iterations;
+
+	/** Create a new password crypt instance with the default number of iterations.
 	 * @throws NoSuchAlgorithmException if one of the required cryptography algorithms is not
 	 * available.
 	 */
 	public PasswordCrypt() throws NoSuchAlgorithmException {
+		this(DEFAULT_ITERATIONS);
+	}
+
+	/** Create a new password crypt instance.
+	 * @param iterations the number of iterations to use when hashing new passwords. Must be at
+	 * least {@link #MINIMUM_ITERATIONS}.
+	 * @throws NoSuchAlgorithmException if one of the required cryptography algorithms is not
+	 * available.
+	 */
+	public PasswordCrypt(final int iterations) throws NoSuchAlgorithmException {
+		if (iterations < MINIMUM_ITERATIONS) {
+			throw new IllegalArgumentException("iterations must be at least " +
+					MINIMUM_ITERATIONS);
+		}
 		// not clear if this is thread safe. Doesn't explicitly say so.
-		SecretKeyFactory.getInstance(CRYPTALG); // fail early
+		SecretKeyFactory.getInstance(DEFAULT_ALGORITHM); // fail early
+		this.iterations = iterations;
 	}
-	
-	/** Checks a password matches an encrypted password.
+
+	/** Get the algorithm used to hash new passwords.
+	 * @return the algorithm.
+	 */
+	public String getAlgorithm() {
+		return DEFAULT_ALGORITHM;
+	}
+
+	/** Get the number of iterations used to hash new passwords.
+	 * @return the number of iterations.
+	 */
+	public int getIterations() {
+		return iterations;
+	}
+
+	/** Check whether a password hash was created with the algorithm and number of iterations
+	 * this instance uses for new passwords.
+	 * @param algorithm the algorithm used to create the hash.
+	 * @param iterations the number of iterations used to create the hash.
+	 * @return true if the hash parameters match the parameters of this instance, false if the
+	 * hash should be upgraded.
+	 */
+	public boolean isCurrent(final String algorithm, final int iterations) {
+		return getAlgorithm().equals(algorithm) && this.iterations == iterations;
+	}
+
+	/** Checks a password matches an encrypted password. The password is encrypted with the
+	 * default algorithm and the number of iterations configured for this instance.
 	 * @param attemptedPassword the password.
 	 * @param encryptedPassword the password encrypted by this module.
 	 * @param salt the salt used to encrypt the password.
@@ -50,9 +120,28 @@ public class PasswordCrypt {
 			final char[] attemptedPassword,
 			final byte[] encryptedPassword,
 			final byte[] salt) {
-		// Encrypt the clear-text password using the same salt that was used to
+		return authenticate(attemptedPassword, encryptedPassword, salt,
+				getAlgorithm(), iterations);
+	}
+
+	/** Checks a password matches an encrypted password.
+	 * @param attemptedPassword the password.
+	 * @param encryptedPassword the password encrypted by this module.
+	 * @param salt the salt used to encrypt the password.
+	 * @param algorithm the algorithm used to encrypt the password.
+	 * @param iterations the number of iterations used to encrypt the password.
+	 * @return true if the password matches the encrypted password, false otherwise.
+	 */
+	public boolean authenticate(
+			final char[] attemptedPassword,
+			final byte[] encryptedPassword,
+			final byte[] salt,
+			final String algorithm,
+			final int iterations) {
+		// Encrypt the clear-text password using the same salt and parameters that were used to
 		// encrypt the original password
-		byte[] encryptedAttemptedPassword = getEncryptedPassword(attemptedPassword, salt);
+		byte[] encryptedAttemptedPassword = getEncryptedPassword(
+				attemptedPassword, salt, algorithm, iterations);
 
 		// Authentication succeeds if encrypted password that the user entered
 		// is equal to the stored hash
@@ -82,12 +171,29 @@ public class PasswordCrypt {
 		return eq;
 	}
 
+	/** Encrypt a password with the default algorithm and the number of iterations configured
+	 * for this instance.
+	 * @param password the password to encrypt.
+	 * @param salt the salt with which to encrypt the password.
+	 * @return the encrypted password.
+	 */
+	public byte[] getEncryptedPassword(final char[] password, final byte[] salt) {
+		return getEncryptedPassword(password, salt, getAlgorithm(), iterations);
+	}
+
 	/** Encrypt a password.
 	 * @param password the password to encrypt.
 	 * @param salt the salt with which to encrypt the password.
+	 * @param algorithm the algorithm with which to encrypt the password. Must be a PBKDF2
+	 * algorithm supported by {@link SecretKeyFactory}.
+	 * @param iterations the number of iterations to use when encrypting the password.
 	 * @return the encrypted password.
 	 */
-	public byte[] getEncryptedPassword(char[] password, byte[] salt) {
+	public byte[] getEncryptedPassword(
+			final char[] password,
+			final byte[] salt,
+			final String algorithm,
+			final int iterations) {
 		if (password == null || salt == null) {
 			throw new NullPointerException("password and salt cannot be null");
 		}
@@ -97,14 +203,57 @@ public class PasswordCrypt {
 		if (salt.length < 1) {
 			throw new IllegalArgumentException("salt must be at least 1 byte");
 		}
-		final KeySpec spec = new PBEKeySpec(password, salt, ITERATIONS, DERIVED_KEY_LENGTH);
+		if (algorithm == null || !algorithm.startsWith("PBKDF2")) {
+			throw new IllegalArgumentException("Unsupported algorithm: " + algorithm);
+		}
+		if (iterations < 1) {
+			throw new IllegalArgumentException("iterations must be at least 1");
+		}
+		final KeySpec spec = new PBEKeySpec(password, salt, iterations, DERIVED_KEY_LENGTH);
 		try {
-			return SecretKeyFactory.getInstance(CRYPTALG).generateSecret(spec).getEncoded();
+			return SecretKeyFactory.getInstance(algorithm).generateSecret(spec).getEncoded();
 		} catch (InvalidKeySpecException e) {
 			throw new RuntimeException("This should never happen", e);
 		} catch (NoSuchAlgorithmException e) {
-			throw new RuntimeException(
-					"checked alg existed at startup, now it doesn't. That's annoying", e);
+			if (DEFAULT_ALGORITHM.equals(algorithm)) {
+				throw new RuntimeException(
+						"checked alg existed at startup, now it doesn't. That's annoying", e);
+			}
+			throw new IllegalArgumentException("Unsupported algorithm: " + algorithm, e);
+		}
+	}
+
+	/** Determine the number of iterations of the default algorithm required for verifying a
+	 * password to take approximately the given amount of time on the current hardware.
+	 *
+	 * The number of iterations is determined by timing a fixed number of iterations several
+	 * times, taking the median, and scaling linearly. The result is rounded to the nearest
+	 * thousand and is never less than {@link #MINIMUM_ITERATIONS}.
+	 *
+	 * Note that the result will be affected by other load on the machine at the time of the
+	 * call.
+	 * @param targetMillis the target time, in milliseconds, for verifying a password.
+	 * @return the number of iterations.
+	 * @throws NoSuchAlgorithmException if the default algorithm is not available.
+	 */
+	public static int calibrate(final long targetMillis) throws NoSuchAlgorithmException {
+		if (targetMillis < 1) {
+			throw new IllegalArgumentException("targetMillis must be at least 1");
+		}
+		final PasswordCrypt pc = new PasswordCrypt(CALIBRATION_ITERATIONS);
+		for (int i = 0; i < CALIBRATION_WARMUP; i++) {
+			pc.getEncryptedPassword(CALIBRATION_PWD, CALIBRATION_SALT);
+		}
+		final long[] times = new long[CALIBRATION_RUNS];
+		for (int i = 0; i < CALIBRATION_RUNS; i++) {
+			final long start = System.nanoTime();
+			pc.getEncryptedPassword(CALIBRATION_PWD, CALIBRATION_SALT);
+			times[i] = System.nanoTime() - start;
 		}
+		Arrays.sort(times);
+		final long median = Math.max(1, times[CALIBRATION_RUNS / 2]);
+		final double iters = (double) CALIBRATION_ITERATIONS * targetMillis * 1000000 / median;
+		final long rounded = Math.round(iters / CALIBRATION_ROUND_TO) * CALIBRATION_ROUND_TO;
+		return (int) Math.max(MINIMUM_ITERATIONS, Math.min(Integer.MAX_VALUE, rounded));
 	}
 }
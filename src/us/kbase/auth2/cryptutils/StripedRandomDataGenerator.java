@@ -0,0 +1,173 @@
+package us.kbase.auth2.cryptutils;
+
+import java.nio.ByteBuffer;
+import java.security.NoSuchAlgorithmException;
+import java.security.SecureRandom;
+import java.util.UUID;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.apache.commons.codec.binary.Base32;
+
+/** Generates salts, tokens, temporary passwords, and UUIDs randomly using a fixed set of
+ * SHA1PRNG instances, or stripes.
+ *
+ * {@link SHA1RandomDataGenerator} shares one SecureRandom instance between all threads and
+ * generates UUIDs with the JVM-wide SecureRandom behind UUID.randomUUID(). Both are
+ * synchronized, so threads generating tokens concurrently contend for the same locks. This
+ * implementation picks a stripe based on a hash of the current thread's ID, so concurrent
+ * threads usually use different generators and locks.
+ *
+ * The number of generators is fixed rather than one per thread, since with a thread per
+ * request (e.g. virtual threads) a per-thread generator would be built and seeded for nearly
+ * every request. Each stripe is seeded from a shared seed source when the generator is created
+ * and reseeded after it has produced a configurable number of bytes.
+ * @author gaprice@lbl.gov
+ *
+ */
+public class StripedRandomDataGenerator implements RandomDataGenerator {
+
+	private static final char[] PWD_ALLOWED_CHARS =
+			"abcdefghijkmnpqrstuvwxyzABCDEFGHJKLMNPQRSTUVWXYZ23456789+!@$%&*"
+			.toCharArray();
+
+	private static final String ALGORITHM = "SHA1PRNG";
+	private static final int SEED_SIZE = 32;
+
+	/** The default number of bytes a stripe produces before it is reseeded. */
+	public static final long DEFAULT_RESEED_INTERVAL_BYTES = 1024 * 1024;
+
+	/** The default number of stripes, 4 times the number of processors. */
+	public static final int DEFAULT_STRIPES = 4 * Runtime.getRuntime().availableProcessors();
+
+	// only used for seeding, so contention is rare. SecureRandom is thread safe.
+	private final SecureRandom seedSource;
+	private final long reseedIntervalBytes;
+	private final Stripe[] stripes;
+
+	/** Create a random data generator with {@link #DEFAULT_STRIPES} stripes that reseeds each
+	 * stripe after {@link #DEFAULT_RESEED_INTERVAL_BYTES} bytes.
+	 * @throws NoSuchAlgorithmException if a required algorithm is missing.
+	 */
+	public StripedRandomDataGenerator() throws NoSuchAlgorithmException {
+		this(DEFAULT_STRIPES, DEFAULT_RESEED_INTERVAL_BYTES);
+	}
+
+	/** Create a random data generator.
+	 * @param stripes the number of generators. Threads whose IDs hash to the same stripe
+	 * contend for its lock.
+	 * @param reseedIntervalBytes the number of bytes a stripe produces before it is reseeded.
+	 * @throws NoSuchAlgorithmException if a required algorithm is missing.
+	 */
+	public StripedRandomDataGenerator(final int stripes, final long reseedIntervalBytes)
+			throws NoSuchAlgorithmException {
+		if (stripes < 1) {
+			throw new IllegalArgumentException("stripes must be at least 1");
+		}
+		if (reseedIntervalBytes < 1) {
+			throw new IllegalArgumentException("reseedIntervalBytes must be at least 1");
+		}
+		this.reseedIntervalBytes = reseedIntervalBytes;
+		// the platform default is non-blocking (e.g. NativePRNG reading /dev/urandom)
+		seedSource = new SecureRandom();
+		this.stripes = new Stripe[stripes];
+		for (int i = 0; i < stripes; i++) {
+			this.stripes[i] = new Stripe(SecureRandom.getInstance(ALGORITHM));
+		}
+	}
+
+	private class Stripe {
+
+		// a lock rather than a monitor, since a virtual thread blocked in a synchronized block
+		// pins its carrier thread
+		private final ReentrantLock lock = new ReentrantLock();
+		// sha1 is ok for generating random bits:
+		// http://nvlpubs.nist.gov/nistpubs/SpecialPublications/NIST.SP.800-131Ar1.pdf
+		private final SecureRandom random;
+		private long bytesSinceSeed = 0; // guarded by lock
+
+		private Stripe(final SecureRandom random) {
+			this.random = random;
+			// seeding before first use replaces SHA1PRNG's self seeding
+			random.setSeed(getSeed());
+		}
+
+		// must hold the lock
+		private SecureRandom get(final int bytes) {
+			bytesSinceSeed += bytes;
+			if (bytesSinceSeed > reseedIntervalBytes) {
+				// for SHA1PRNG, setSeed supplements rather than replaces the existing seed
+				random.setSeed(getSeed());
+				bytesSinceSeed = bytes;
+			}
+			return random;
+		}
+	}
+
+	private byte[] getSeed() {
+		final byte[] seed = new byte[SEED_SIZE];
+		seedSource.nextBytes(seed);
+		return seed;
+	}
+
+	private Stripe getStripe() {
+		// thread IDs are sequential, so spread them over the stripes with a multiplicative hash
+		final long h = Thread.currentThread().getId() * 0x9E3779B97F4A7C15L;
+		return stripes[(int) ((h >>> 32) % stripes.length)];
+	}
+
+	private byte[] nextBytes(final int count) {
+		final byte[] b = new byte[count];
+		final Stripe s = getStripe();
+		s.lock.lock();
+		try {
+			s.get(count).nextBytes(b);
+		} finally {
+			s.lock.unlock();
+		}
+		return b;
+	}
+
+	@Override
+	public String getToken() {
+		return new Base32().encodeAsString(nextBytes(20)); //160 bits so 32 b32 chars
+	}
+
+	@Override
+	public char[] getTemporaryPassword(final int length) {
+		if (length < 8) {
+			throw new IllegalArgumentException("length must be > 7");
+		}
+		final char[] pwd = new char[length];
+		final Stripe s = getStripe();
+		s.lock.lock();
+		try {
+			// nextDouble() calls next(26) and next(27), each of which draws 4 bytes
+			final SecureRandom r = s.get(length * 8);
+			for (int i = 0; i < length; i++) {
+				final int index = (int) (r.nextDouble() * PWD_ALLOWED_CHARS.length);
+				pwd[i] = PWD_ALLOWED_CHARS[index];
+			}
+		} finally {
+			s.lock.unlock();
+		}
+		return pwd;
+	}
+
+	@Override
+	public byte[] generateSalt() {
+		// Generate a 8 byte (64 bit) salt as recommended by RSA PKCS5
+		return nextBytes(8);
+	}
+
+	@Override
+	public UUID randomUUID() {
+		// same as UUID.randomUUID(), but with the striped generators
+		final byte[] b = nextBytes(16);
+		b[6] &= 0x0f; // clear version
+		b[6] |= 0x40; // set to version 4
+		b[8] &= 0x3f; // clear variant
+		b[8] |= 0x80; // set to IETF variant
+		final ByteBuffer bb = ByteBuffer.wrap(b);
+		return new UUID(bb.getLong(), bb.getLong());
+	}
+}
@@ -6,6 +6,7 @@ import java.net.MalformedURLException;
 import java.net.URL;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
@@ -22,6 +23,7 @@ import us.kbase.auth2.lib.identity.IdentityProviderConfig.IdentityProviderConfig
 import us.kbase.auth2.service.AuthStartupConfig;
 import us.kbase.auth2.service.SLF4JAutoLogger;
 import us.kbase.auth2.service.exceptions.AuthConfigurationException;
+import us.kbase.auth2.service.logging.AsyncLogWriter.OverflowPolicy;
 import us.kbase.common.service.JsonServerSyslog;
 import us.kbase.common.service.JsonServerSyslog.RpcInfo;
 
@@ -55,8 +57,18 @@ public class KBaseAuthConfig implements AuthStartupConfig {
 	private static final String KEY_SUFFIX_ID_PROVS_LINK_REDIRECT =
 			"-link-redirect-url";
 	private static final String KEY_SUFFIX_ID_PROVS_CUSTOM = "-custom-";
+	private static final String KEY_SUFFIX_ID_PROVS_CONNECT_TIMEOUT = "-connect-timeout-ms";
+	private static final String KEY_SUFFIX_ID_PROVS_READ_TIMEOUT = "-read-timeout-ms";
 	private static final String TRUE = "true";
+	private static final String FALSE = "false";
 	private static final String KEY_TEST_MODE_ENABLED = "test-mode-enabled";
+	private static final String KEY_PWD_HASH_ITERATIONS = "password-hash-iterations";
+	private static final String KEY_PWD_HASH_CALIBRATE = "password-hash-calibrate-target-ms";
+	private static final String KEY_UA_PARSER_BACKGROUND = "user-agent-parser-background-build";
+	private static final String KEY_ASYNC_LOGGING = "async-logging";
+	private static final String KEY_ASYNC_LOGGING_OVERFLOW = "async-logging-overflow-policy";
+	private static final String KEY_TEMPLATE_RELOAD = "template-reload";
+	private static final String KEY_VIRTUAL_THREADS = "virtual-threads";
 	
 	private final SLF4JAutoLogger logger;
 	private final String mongoHost;
@@ -67,6 +79,13 @@ public class KBaseAuthConfig implements AuthStartupConfig {
 	private final Set<IdentityProviderConfig> providers;
 	private final boolean isTestModeEnabled;
 	private final Path templateDir;
+	private final Optional<Integer> pwdHashIterations;
+	private final Optional<Integer> pwdHashCalibrationTarget;
+	private final boolean isUAParserBuiltInBackground;
+	private final boolean isAsyncLoggingEnabled;
+	private final OverflowPolicy asyncLoggingOverflowPolicy;
+	private final boolean isTemplateReloadEnabled;
+	private final boolean isVirtualThreadsEnabled;
 
 	public KBaseAuthConfig() throws AuthConfigurationException {
 		this(getConfigPathFromEnv(), false);
@@ -87,7 +106,12 @@ public class KBaseAuthConfig implements AuthStartupConfig {
 		}
 		try {
 			isTestModeEnabled = TRUE.equals(getString(KEY_TEST_MODE_ENABLED, cfg));
+			isUAParserBuiltInBackground = !FALSE.equals(getString(KEY_UA_PARSER_BACKGROUND, cfg));
+			isAsyncLoggingEnabled = !FALSE.equals(getString(KEY_ASYNC_LOGGING, cfg));
+			asyncLoggingOverflowPolicy = getOverflowPolicy(KEY_ASYNC_LOGGING_OVERFLOW, cfg);
 			templateDir = Paths.get(getString(KEY_TEMPLATE_DIR, cfg, true));
+			isTemplateReloadEnabled = TRUE.equals(getString(KEY_TEMPLATE_RELOAD, cfg));
+			isVirtualThreadsEnabled = TRUE.equals(getString(KEY_VIRTUAL_THREADS, cfg));
 			mongoHost = getString(KEY_MONGO_HOST, cfg, true);
 			mongoDB = getString(KEY_MONGO_DB, cfg, true);
 			mongoUser = Optional.fromNullable(getString(KEY_MONGO_USER, cfg));
@@ -104,6 +128,14 @@ public class KBaseAuthConfig implements AuthStartupConfig {
 			mongop = null; //GC
 			cookieName = getString(KEY_COOKIE_NAME, cfg, true);
 			providers = getProviders(cfg);
+			pwdHashIterations = getInt(KEY_PWD_HASH_ITERATIONS, cfg);
+			pwdHashCalibrationTarget = getInt(KEY_PWD_HASH_CALIBRATE, cfg);
+			if (pwdHashIterations.isPresent() && pwdHashCalibrationTarget.isPresent()) {
+				throw new AuthConfigurationException(String.format(
+						"At most one of %s and %s may be provided in config file %s section %s",
+						KEY_PWD_HASH_ITERATIONS, KEY_PWD_HASH_CALIBRATE,
+						cfg.get(TEMP_KEY_CFG_FILE), CFG_LOC));
+			}
 		} catch (AuthConfigurationException e) {
 			if (!nullLogger) {
 				LoggerFactory.getLogger(getClass()).error(
@@ -135,15 +167,19 @@ public class KBaseAuthConfig implements AuthStartupConfig {
 			final URL loginRedirect = getURL(pre + KEY_SUFFIX_ID_PROVS_LOGIN_REDIRECT, cfg);
 			final URL linkRedirect = getURL(pre + KEY_SUFFIX_ID_PROVS_LINK_REDIRECT, cfg);
 			final Map<String, String> custom = getCustom(pre + KEY_SUFFIX_ID_PROVS_CUSTOM, cfg);
+			final int connectTimeout = getInt(pre + KEY_SUFFIX_ID_PROVS_CONNECT_TIMEOUT, cfg)
+					.or(IdentityProviderConfig.DEFAULT_CONNECT_TIMEOUT_MS);
+			final int readTimeout = getInt(pre + KEY_SUFFIX_ID_PROVS_READ_TIMEOUT, cfg)
+					.or(IdentityProviderConfig.DEFAULT_READ_TIMEOUT_MS);
 			try {
 				ips.add(new IdentityProviderConfig(factory, login, api, cliid, clisec,
-						loginRedirect, linkRedirect, custom));
+						loginRedirect, linkRedirect, custom, connectTimeout, readTimeout));
 			} catch (IdentityProviderConfigurationException e) {
 				//TODO TEST ^ is ok in a url, but not in a URI
 				throw new AuthConfigurationException(String.format(
 						"Error building configuration for provider %s in " +
 						"section %s of config file %s: %s",
-						p, CFG_LOC, cfg.get(TEMP_KEY_CFG_FILE)));
+						p, CFG_LOC, cfg.get(TEMP_KEY_CFG_FILE), e.getMessage()), e);
 			}
 		}
 		return Collections.unmodifiableSet(ips);
@@ -183,6 +219,16 @@ public class KBaseAuthConfig implements AuthStartupConfig {
 		public String getCallID() {
 			return null;
 		}
+
+		@Override
+		public String getMethod() {
+			return null;
+		}
+
+		@Override
+		public String getIPAddress() {
+			return null;
+		}
 	}
 
 	private static class JsonServerSysLogAutoLogger implements SLF4JAutoLogger {
@@ -210,6 +256,55 @@ public class KBaseAuthConfig implements AuthStartupConfig {
 		public String getCallID() {
 			return JsonServerSyslog.getCurrentRpcInfo().getId();
 		}
+
+		@Override
+		public String getMethod() {
+			return JsonServerSyslog.getCurrentRpcInfo().getMethod();
+		}
+
+		@Override
+		public String getIPAddress() {
+			return JsonServerSyslog.getCurrentRpcInfo().getIp();
+		}
+	}
+	
+	private Optional<Integer> getInt(final String paramName, final Map<String, String> config)
+			throws AuthConfigurationException {
+		final String i = getString(paramName, config);
+		if (i == null) {
+			return Optional.absent();
+		}
+		try {
+			final int ret = Integer.parseInt(i);
+			if (ret < 1) {
+				throw new NumberFormatException();
+			}
+			return Optional.of(ret);
+		} catch (NumberFormatException e) {
+			throw new AuthConfigurationException(String.format(
+					"Parameter %s in configuration file %s, section %s, " +
+					"must be a positive integer",
+					paramName, config.get(TEMP_KEY_CFG_FILE), CFG_LOC));
+		}
+	}
+	
+	private OverflowPolicy getOverflowPolicy(
+			final String paramName,
+			final Map<String, String> config)
+			throws AuthConfigurationException {
+		final String p = getString(paramName, config);
+		if (p == null) {
+			return OverflowPolicy.DROP;
+		}
+		for (final OverflowPolicy op: OverflowPolicy.values()) {
+			if (op.name().equalsIgnoreCase(p)) {
+				return op;
+			}
+		}
+		throw new AuthConfigurationException(String.format(
+				"Parameter %s in configuration file %s, section %s, must be one of %s",
+				paramName, config.get(TEMP_KEY_CFG_FILE), CFG_LOC,
+				Arrays.asList(OverflowPolicy.values())));
 	}
 	
 	// returns null if no string
@@ -313,4 +408,39 @@ public class KBaseAuthConfig implements AuthStartupConfig {
 	public Path getPathToTemplateDirectory() {
 		return templateDir;
 	}
+	
+	@Override
+	public Optional<Integer> getPasswordHashIterations() {
+		return pwdHashIterations;
+	}
+	
+	@Override
+	public Optional<Integer> getPasswordHashCalibrationTargetMillis() {
+		return pwdHashCalibrationTarget;
+	}
+	
+	@Override
+	public boolean isUserAgentParserBuiltInBackground() {
+		return isUAParserBuiltInBackground;
+	}
+	
+	@Override
+	public boolean isAsyncLoggingEnabled() {
+		return isAsyncLoggingEnabled;
+	}
+	
+	@Override
+	public OverflowPolicy getAsyncLoggingOverflowPolicy() {
+		return asyncLoggingOverflowPolicy;
+	}
+	
+	@Override
+	public boolean isTemplateReloadEnabled() {
+		return isTemplateReloadEnabled;
+	}
+	
+	@Override
+	public boolean isVirtualThreadsEnabled() {
+		return isVirtualThreadsEnabled;
+	}
 }
@@ -20,22 +20,24 @@ import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Set;
+import java.util.SortedMap;
 import java.util.TreeMap;
 import java.util.TreeSet;
 import java.util.UUID;
+import java.util.concurrent.locks.ReentrantLock;
 import java.util.function.Function;
 import java.util.regex.Pattern;
 import java.util.stream.Collectors;
 
 import org.apache.commons.lang3.ArrayUtils;
-import org.slf4j.LoggerFactory;
+import org.slf4j.helpers.MessageFormatter;
 
 import com.google.common.base.Optional;
 import com.google.common.collect.ImmutableMap;
 
 import us.kbase.auth2.cryptutils.PasswordCrypt;
 import us.kbase.auth2.cryptutils.RandomDataGenerator;
-import us.kbase.auth2.cryptutils.SHA1RandomDataGenerator;
+import us.kbase.auth2.cryptutils.StripedRandomDataGenerator;
 import us.kbase.auth2.lib.exceptions.ErrorType;
 import us.kbase.auth2.lib.exceptions.ExternalConfigMappingException;
 import us.kbase.auth2.lib.exceptions.IdentityLinkedException;
@@ -43,6 +45,9 @@ import us.kbase.auth2.lib.exceptions.IdentityRetrievalException;
 import us.kbase.auth2.lib.exceptions.IllegalParameterException;
 import us.kbase.auth2.lib.exceptions.IllegalPasswordException;
 import us.kbase.auth2.lib.TemporarySessionData.Operation;
+import us.kbase.auth2.lib.audit.AuditEvent;
+import us.kbase.auth2.lib.audit.AuditLogger;
+import us.kbase.auth2.lib.audit.SLF4JAuditLogger;
 import us.kbase.auth2.lib.config.AuthConfig;
 import us.kbase.auth2.lib.config.AuthConfigSet;
 import us.kbase.auth2.lib.config.AuthConfigSetWithUpdateTime;
@@ -57,6 +62,7 @@ import us.kbase.auth2.lib.config.AuthConfig.TokenLifetimeType;
 import us.kbase.auth2.lib.config.CollectingExternalConfig.CollectingExternalConfigMapper;
 import us.kbase.auth2.lib.config.ConfigAction.Action;
 import us.kbase.auth2.lib.config.ConfigItem;
+import us.kbase.auth2.lib.exceptions.AuthException;
 import us.kbase.auth2.lib.exceptions.AuthenticationException;
 import us.kbase.auth2.lib.exceptions.DisabledUserException;
 import us.kbase.auth2.lib.exceptions.InvalidTokenException;
@@ -64,6 +70,7 @@ import us.kbase.auth2.lib.exceptions.LinkFailedException;
 import us.kbase.auth2.lib.exceptions.MissingParameterException;
 import us.kbase.auth2.lib.exceptions.NoSuchIdentityException;
 import us.kbase.auth2.lib.exceptions.NoSuchIdentityProviderException;
+import us.kbase.auth2.lib.exceptions.NoSuchJobException;
 import us.kbase.auth2.lib.exceptions.NoSuchLocalUserException;
 import us.kbase.auth2.lib.exceptions.NoSuchRoleException;
 import us.kbase.auth2.lib.exceptions.NoSuchTokenException;
@@ -74,16 +81,22 @@ import us.kbase.auth2.lib.exceptions.IdentityProviderErrorException;
 import us.kbase.auth2.lib.exceptions.UnLinkFailedException;
 import us.kbase.auth2.lib.exceptions.UnauthorizedException;
 import us.kbase.auth2.lib.exceptions.UserExistsException;
+import us.kbase.auth2.lib.identity.GuardedIdentityProvider;
 import us.kbase.auth2.lib.identity.IdentityProvider;
 import us.kbase.auth2.lib.identity.RemoteIdentity;
 import us.kbase.auth2.lib.identity.RemoteIdentityID;
+import us.kbase.auth2.lib.job.Job;
+import us.kbase.auth2.lib.job.JobType;
 import us.kbase.auth2.lib.storage.AuthStorage;
 import us.kbase.auth2.lib.storage.exceptions.AuthStorageException;
 import us.kbase.auth2.lib.storage.exceptions.StorageInitException;
 import us.kbase.auth2.lib.token.NewToken;
 import us.kbase.auth2.lib.token.StoredToken;
 import us.kbase.auth2.lib.token.TemporaryToken;
+import us.kbase.auth2.lib.token.TokenBoundResult;
+import us.kbase.auth2.lib.token.TokenListSpec;
 import us.kbase.auth2.lib.token.TokenName;
+import us.kbase.auth2.lib.token.TokenPage;
 import us.kbase.auth2.lib.token.TokenSet;
 import us.kbase.auth2.lib.token.TokenType;
 import us.kbase.auth2.lib.user.AuthUser;
@@ -137,6 +150,7 @@ public class Authentication {
 	private static final int LINK_TOKEN_LIFETIME_MS = 10 * 60 * 1000;
 	private static final int LOGIN_TOKEN_LIFETIME_MS = 30 * 60 * 1000;
 	private static final int MAX_RETURNED_USERS = 10000;
+	private static final int MAX_RETURNED_JOBS = 100;
 	private static final int TEMP_PWD_LENGTH = 10;
 	private static final int TEST_MODE_DATA_LIFETIME_MS = 60 * 60 * 1000; // 1 hr
 	
@@ -163,6 +177,7 @@ public class Authentication {
 			String.CASE_INSENSITIVE_ORDER);
 	private final RandomDataGenerator randGen;
 	private final PasswordCrypt pwdcrypt;
+	private final AuditLogger auditLogger;
 	private final ConfigManager cfg;
 	private final Clock clock;
 	private final ExternalConfig defaultExternalConfig;
@@ -179,6 +194,7 @@ public class Authentication {
 	 * @param defaultExternalConfig the external configuration default settings. Any settings
 	 * that do not already exist in the storage system will be persisted. Pre-existing settings
 	 * are not overwritten.
+	 * @param testMode true to enable test mode.
 	 * @throws StorageInitException if the storage system cannot be accessed.
 	 */
 	public Authentication(
@@ -191,13 +207,83 @@ public class Authentication {
 				identityProviderSet,
 				defaultExternalConfig,
 				testMode,
+				getDefaultPasswordCrypt());
+	}
+	
+	/** Create a new Authentication instance with a custom password hasher.
+	 * 
+	 * Local user passwords hashed with a different algorithm or number of iterations than those
+	 * used by the password hasher are rehashed on the next successful login.
+	 * @param storage the storage system to use for information persistence.
+	 * @param identityProviderSet the set of identity providers that are supported for standard
+	 * accounts. E.g. Google, Globus, etc.
+	 * @param defaultExternalConfig the external configuration default settings. Any settings
+	 * that do not already exist in the storage system will be persisted. Pre-existing settings
+	 * are not overwritten.
+	 * @param testMode true to enable test mode.
+	 * @param passwordCrypt the password hasher to use for local user passwords.
+	 * @throws StorageInitException if the storage system cannot be accessed.
+	 */
+	public Authentication(
+			final AuthStorage storage,
+			final Set<IdentityProvider> identityProviderSet,
+			final ExternalConfig defaultExternalConfig,
+			final boolean testMode,
+			final PasswordCrypt passwordCrypt)
+			throws StorageInitException {
+		this(storage,
+				identityProviderSet,
+				defaultExternalConfig,
+				testMode,
+				passwordCrypt,
+				new SLF4JAuditLogger());
+	}
+	
+	/** Create a new Authentication instance with a custom password hasher and audit logger.
+	 * 
+	 * Audit events, for example a user creating a token or an admin disabling an account, are
+	 * sent to the audit logger rather than written directly to the {@link Authentication} SLF4J
+	 * logger.
+	 * @param storage the storage system to use for information persistence.
+	 * @param identityProviderSet the set of identity providers that are supported for standard
+	 * accounts. E.g. Google, Globus, etc.
+	 * @param defaultExternalConfig the external configuration default settings. Any settings
+	 * that do not already exist in the storage system will be persisted. Pre-existing settings
+	 * are not overwritten.
+	 * @param testMode true to enable test mode.
+	 * @param passwordCrypt the password hasher to use for local user passwords.
+	 * @param auditLogger the logger for audit events.
+	 * @throws StorageInitException if the storage system cannot be accessed.
+	 */
+	public Authentication(
+			final AuthStorage storage,
+			final Set<IdentityProvider> identityProviderSet,
+			final ExternalConfig defaultExternalConfig,
+			final boolean testMode,
+			final PasswordCrypt passwordCrypt,
+			final AuditLogger auditLogger)
+			throws StorageInitException {
+		this(storage,
+				identityProviderSet,
+				defaultExternalConfig,
+				testMode,
+				passwordCrypt,
+				auditLogger,
 				getDefaultRandomGenerator(),
 				Clock.systemDefaultZone()); // don't care about time zone, not using it
 	}
 
 	private static RandomDataGenerator getDefaultRandomGenerator() {
 		try {
-			return new SHA1RandomDataGenerator();
+			return new StripedRandomDataGenerator();
+		} catch (NoSuchAlgorithmException e) {
+			throw new RuntimeException("This should be impossible", e);
+		}
+	}
+	
+	private static PasswordCrypt getDefaultPasswordCrypt() {
+		try {
+			return new PasswordCrypt();
 		} catch (NoSuchAlgorithmException e) {
 			throw new RuntimeException("This should be impossible", e);
 		}
@@ -212,14 +298,27 @@ public class Authentication {
 			final RandomDataGenerator randGen,
 			final Clock clock)
 			throws StorageInitException {
+		this(storage, identityProviderSet, defaultExternalConfig, testMode,
+				getDefaultPasswordCrypt(), new SLF4JAuditLogger(), randGen, clock);
+	}
+	
+	private Authentication(
+			final AuthStorage storage,
+			final Set<IdentityProvider> identityProviderSet,
+			final ExternalConfig defaultExternalConfig,
+			final boolean testMode,
+			final PasswordCrypt passwordCrypt,
+			final AuditLogger auditLogger,
+			final RandomDataGenerator randGen,
+			final Clock clock)
+			throws StorageInitException {
 		this.testMode = testMode;
 		this.clock = clock;
 		this.randGen = randGen;
-		try {
-			pwdcrypt = new PasswordCrypt();
-		} catch (NoSuchAlgorithmException e) {
-			throw new RuntimeException("This should be impossible", e);
-		}
+		nonNull(passwordCrypt, "passwordCrypt");
+		this.pwdcrypt = passwordCrypt;
+		nonNull(auditLogger, "auditLogger");
+		this.auditLogger = auditLogger;
 		nonNull(storage, "storage");
 		nonNull(identityProviderSet, "identityProviderSet");
 		noNulls(identityProviderSet, "Null identity provider in set");
@@ -232,7 +331,8 @@ public class Authentication {
 				throw new IllegalArgumentException("Duplicate provider name: " +
 						idp.getProviderName());
 			}
-			idProviderSet.put(idp.getProviderName(), idp);
+			// fail fast rather than tying up request threads if the provider is down
+			idProviderSet.put(idp.getProviderName(), new GuardedIdentityProvider(idp));
 		}
 		final AuthConfigUpdate<ExternalConfig> acu = buildDefaultConfig();
 		try {
@@ -260,12 +360,15 @@ public class Authentication {
 	}
 	
 	/* Caches the configuration to avoid pulling the configuration from the storage system
-	 * on every request. Synchronized to prevent multiple storage accesses for one update.
+	 * on every request. Reads of an unexpired configuration don't lock. Updates are serialized
+	 * with a lock to prevent multiple storage accesses for one update - a lock rather than a
+	 * monitor, since a virtual thread blocked on storage I/O in a synchronized block pins its
+	 * carrier thread.
 	 */
 	private class ConfigManager {
 	
-		private AuthConfigSet<CollectingExternalConfig> cfg;
-		private Instant nextConfigUpdate;
+		private final ReentrantLock updateLock = new ReentrantLock();
+		private volatile CachedConfig cache;
 		
 		public ConfigManager(final AuthStorage storage)
 				throws AuthStorageException {
@@ -273,43 +376,85 @@ public class Authentication {
 		}
 		
 		// for testing purposes.
-		public synchronized Instant getNextUpdateTime() {
-			return nextConfigUpdate;
+		public Instant getNextUpdateTime() {
+			return cache.nextUpdate;
 		}
 		
 		// for testing purposes.
-		public synchronized void setNextUpdateTime(final Instant time) {
-			nextConfigUpdate = time;
+		public void setNextUpdateTime(final Instant time) {
+			updateLock.lock();
+			try {
+				cache = new CachedConfig(cache.cfg, time);
+			} finally {
+				updateLock.unlock();
+			}
 		}
 		
-		public synchronized AuthConfigSet<CollectingExternalConfig> getConfig()
+		public AuthConfigSet<CollectingExternalConfig> getConfig()
 				throws AuthStorageException {
-			if (Instant.now().isAfter(nextConfigUpdate)) {
-				updateConfig();
+			final CachedConfig c = cache;
+			if (!Instant.now().isAfter(c.nextUpdate)) {
+				return c.cfg;
+			}
+			updateLock.lock();
+			try {
+				// another thread may have updated the config while this thread was waiting
+				if (Instant.now().isAfter(cache.nextUpdate)) {
+					updateConfig();
+				}
+				return cache.cfg;
+			} finally {
+				updateLock.unlock();
 			}
-			return cfg;
 		}
 		
 		public AuthConfig getAppConfig() throws AuthStorageException {
 			return getConfig().getCfg();
 		}
 	
-		public synchronized void updateConfig() throws AuthStorageException {
+		public void updateConfig() throws AuthStorageException {
+			updateLock.lock();
 			try {
-				cfg = storage.getConfig(new CollectingExternalConfigMapper());
-			} catch (ExternalConfigMappingException e) {
-				throw new RuntimeException("This should be impossible", e);
+				final AuthConfigSet<CollectingExternalConfig> cfg;
+				try {
+					cfg = storage.getConfig(new CollectingExternalConfigMapper());
+				} catch (ExternalConfigMappingException e) {
+					throw new RuntimeException("This should be impossible", e);
+				}
+				cache = new CachedConfig(cfg, Instant.now().plusMillis(cfgUpdateIntervalMillis));
+			} finally {
+				updateLock.unlock();
 			}
-			nextConfigUpdate = Instant.now().plusMillis(cfgUpdateIntervalMillis);
+		}
+	}
+	
+	private static class CachedConfig {
+		
+		private final AuthConfigSet<CollectingExternalConfig> cfg;
+		private final Instant nextUpdate;
+		
+		private CachedConfig(
+				final AuthConfigSet<CollectingExternalConfig> cfg,
+				final Instant nextUpdate) {
+			this.cfg = cfg;
+			this.nextUpdate = nextUpdate;
 		}
 	}
 	
 	private void logInfo(final String format, final Object... params) {
-		LoggerFactory.getLogger(getClass()).info(format, params);
+		auditLogger.log(AuditEvent.getBuilder(AuditEvent.Level.INFO, format, params).build());
 	}
 	
 	private void logErr(final String format, final Object... params) {
-		LoggerFactory.getLogger(getClass()).error(format, params);
+		auditLogger.log(AuditEvent.getBuilder(AuditEvent.Level.ERROR, format, params).build());
+	}
+	
+	private void logInfo(final OpReqs reqs, final String format, final Object... params) {
+		auditLogger.log(reqs.toEvent(AuditEvent.Level.INFO, format, params));
+	}
+	
+	private void logErr(final OpReqs reqs, final String format, final Object... params) {
+		auditLogger.log(reqs.toEvent(AuditEvent.Level.ERROR, format, params));
 	}
 	
 	private static class OpReqs {
@@ -317,8 +462,13 @@ public class Authentication {
 		public final String format;
 		public final Object[] args;
 		
-		// at least one is required for the operation, empty = no roles required
-		public final Set<Role> requiredRoles = new TreeSet<>();
+		// the token presented for the operation, set when the token is retrieved from storage
+		public StoredToken token = null;
+		
+		/* bitmask of the roles, at least one of which is required for the operation.
+		 * 0 = no roles required
+		 */
+		public int requiredRoles = 0;
 		
 		// empty = any token type ok
 		public final Set<TokenType> allowedTokenTypes = new TreeSet<>();
@@ -330,7 +480,7 @@ public class Authentication {
 		
 		public OpReqs roles(final Role... roles) {
 			for (final Role r: roles) {
-				requiredRoles.add(r);
+				requiredRoles |= r.getMask();
 			}
 			return this;
 		}
@@ -341,6 +491,19 @@ public class Authentication {
 			}
 			return this;
 		}
+		
+		public AuditEvent toEvent(
+				final AuditEvent.Level level,
+				final String format,
+				final Object... params) {
+			final AuditEvent.Builder b = AuditEvent.getBuilder(level, format, params)
+					.withNullableOperation(MessageFormatter.arrayFormat(this.format, args)
+							.getMessage());
+			if (token != null) {
+				b.withNullableUser(token.getUserName()).withNullableTokenID(token.getId());
+			}
+			return b.build();
+		}
 	}
 
 	/** Create a root account, or update the root account password if one does not already exist.
@@ -378,14 +541,14 @@ public class Authentication {
 			final LocalUser root = LocalUser.getLocalUserBuilder(
 					UserName.ROOT, dn, clock.instant()).build();
 			try {
-				storage.createLocalUser(root, new PasswordHashAndSalt(passwordHash, salt));
+				storage.createLocalUser(root, toCreds(passwordHash, salt));
 				// only way to avoid a race condition. Checking existence before creating user
 				// means if user is added between check and update update will fail
 				logInfo("created root user");
 			} catch (UserExistsException uee) {
 				try {
 					storage.changePassword(
-							UserName.ROOT, new PasswordHashAndSalt(passwordHash, salt), false);
+							UserName.ROOT, toCreds(passwordHash, salt), false);
 					logInfo("changed root user password");
 					if (storage.getUser(UserName.ROOT).isDisabled()) {
 						storage.enableAccount(UserName.ROOT, UserName.ROOT);
@@ -426,11 +589,11 @@ public class Authentication {
 		nonNull(userName, "userName");
 		nonNull(displayName, "displayName");
 		nonNull(email, "email");
-		final AuthUser admin = getUser(adminToken,
-				new OpReqs("create local user {}", userName.getName())
-						.types(TokenType.LOGIN).roles(Role.ROOT, Role.CREATE_ADMIN, Role.ADMIN));
+		final OpReqs reqs = new OpReqs("create local user {}", userName.getName())
+				.types(TokenType.LOGIN).roles(Role.ROOT, Role.CREATE_ADMIN, Role.ADMIN);
+		final AuthUser admin = getUser(adminToken, reqs);
 		if (userName.isRoot()) {
-			logErr("User {} attempted to create ROOT user and was thwarted",
+			logErr(reqs, "User {} attempted to create ROOT user and was thwarted",
 					admin.getUserName().getName());
 			throw new UnauthorizedException("Cannot create ROOT user");
 		}
@@ -446,8 +609,8 @@ public class Authentication {
 			final LocalUser lu = LocalUser.getLocalUserBuilder(
 					userName, displayName, clock.instant())
 					.withEmailAddress(email).withForceReset(true).build();
-			storage.createLocalUser(lu, new PasswordHashAndSalt(passwordHash, salt));
-			logInfo("Local user {} created by admin {}",
+			storage.createLocalUser(lu, toCreds(passwordHash, salt));
+			logInfo(reqs, "Local user {} created by admin {}",
 					userName.getName(), admin.getUserName().getName());
 		} catch (NoSuchRoleException e) {
 			throw new RuntimeException("didn't supply any roles", e);
@@ -487,8 +650,8 @@ public class Authentication {
 			throws AuthStorageException, PasswordMismatchException, DisabledUserException,
 				UnauthorizedException {
 		nonNull(tokenCtx, "tokenCtx");
-		final LocalUser u = getLocalUser(userName, password);
-		if (u.isPwdResetRequired()) {
+		final LocalUser u = getLocalUser(userName, password, true);
+		if (u.isPwdResetRequired() || isBeforePwdResetCutoff(u)) {
 			logInfo("Local user {} log in attempt. Password reset is required",
 					userName.getName());
 			return new LocalLoginResult(u.getUserName());
@@ -496,7 +659,26 @@ public class Authentication {
 		return new LocalLoginResult(login(u.getUserName(), tokenCtx));
 	}
 
-	private LocalUser getLocalUser(final UserName userName, final Password password)
+	/* The background job that requires all users to reset their password may not have reached
+	 * the user yet, so the cutoff is checked directly.
+	 */
+	private boolean isBeforePwdResetCutoff(final LocalUser user) throws AuthStorageException {
+		final Optional<Instant> cutoff = storage.getPasswordResetCutoff();
+		if (!cutoff.isPresent()) {
+			return false;
+		}
+		final Optional<Instant> lastReset = user.getLastPwdReset();
+		return !lastReset.isPresent() || lastReset.get().isBefore(cutoff.get());
+	}
+	
+	/* if upgradeHash is true and the user's password hash was created with different hashing
+	 * parameters than the current parameters, the hash is recreated with the current parameters
+	 * once the user is known to be able to log in.
+	 */
+	private LocalUser getLocalUser(
+			final UserName userName,
+			final Password password,
+			final boolean upgradeHash)
 			throws AuthStorageException, PasswordMismatchException, DisabledUserException,
 				UnauthorizedException {
 		nonNull(password, "password");
@@ -508,11 +690,10 @@ public class Authentication {
 			nonNull(userName, "userName");
 			try {
 				creds = storage.getPasswordHashAndSalt(userName);
-				if (!pwdcrypt.authenticate(pwd_copy, creds.getPasswordHash(), creds.getSalt())) {
+				if (!pwdcrypt.authenticate(pwd_copy, creds.getPasswordHash(), creds.getSalt(),
+						creds.getAlgorithm(), creds.getIterations())) {
 					throw new PasswordMismatchException(userName.getName());
 				}
-				Password.clearPasswordArray(pwd_copy);
-				creds.clear();
 				u = storage.getLocalUser(userName);
 			} catch (NoSuchLocalUserException e) {
 				throw new PasswordMismatchException(userName.getName());
@@ -524,6 +705,9 @@ public class Authentication {
 			if (u.isDisabled()) {
 				throw new DisabledUserException(userName.getName());
 			}
+			if (upgradeHash && !pwdcrypt.isCurrent(creds.getAlgorithm(), creds.getIterations())) {
+				upgradePasswordHash(userName, pwd_copy, creds);
+			}
 		} finally {
 			Password.clearPasswordArray(pwd_copy);
 			if (creds != null) {
@@ -532,6 +716,29 @@ public class Authentication {
 		}
 		return u;
 	}
+	
+	private void upgradePasswordHash(
+			final UserName userName,
+			final char[] pwd,
+			final PasswordHashAndSalt oldCreds)
+			throws AuthStorageException {
+		final byte[] salt = randGen.generateSalt();
+		final byte[] passwordHash = pwdcrypt.getEncryptedPassword(pwd, salt);
+		try {
+			storage.updatePasswordHash(userName, oldCreds, toCreds(passwordHash, salt));
+			logInfo("Upgraded password hash for local user {} from {} with {} iterations to " +
+					"{} with {} iterations", userName.getName(), oldCreds.getAlgorithm(),
+					oldCreds.getIterations(), pwdcrypt.getAlgorithm(), pwdcrypt.getIterations());
+		} finally {
+			clear(passwordHash);
+			clear(salt);
+		}
+	}
+	
+	private PasswordHashAndSalt toCreds(final byte[] passwordHash, final byte[] salt) {
+		return new PasswordHashAndSalt(
+				passwordHash, salt, pwdcrypt.getAlgorithm(), pwdcrypt.getIterations());
+	}
 
 	/** Change a local user's password.
 	 * 
@@ -562,13 +769,13 @@ public class Authentication {
 				throw new IllegalPasswordException("Old and new passwords are identical.");
 			}
 			pwdnew.checkValidity();
-			getLocalUser(userName, password); //checks pwd validity and nulls
+			getLocalUser(userName, password, false); //checks pwd validity and nulls
 			salt = randGen.generateSalt();
 			final char [] pwd_copy = pwdnew.getPassword();
 			pwdnew.clear();
 			passwordHash = pwdcrypt.getEncryptedPassword(pwd_copy, salt);
 			Password.clearPasswordArray(pwd_copy);
-			storage.changePassword(userName, new PasswordHashAndSalt(passwordHash, salt), false);
+			storage.changePassword(userName, toCreds(passwordHash, salt), false);
 			logInfo("Password change for local user " + userName.getName());
 		} catch (NoSuchUserException e) {
 			// we know user already exists and is local so this can't happen
@@ -602,8 +809,8 @@ public class Authentication {
 			throws InvalidTokenException, UnauthorizedException, AuthStorageException,
 			NoSuchUserException {
 		nonNull(userName, "userName");
-		final AuthUser admin = checkCanResetPassword(
-				token, userName, "reset password for user {}", userName.getName());
+		final OpReqs reqs = new OpReqs("reset password for user {}", userName.getName());
+		final AuthUser admin = checkCanResetPassword(token, userName, reqs);
 		Password pwd = null;
 		byte[] salt = null;
 		byte[] passwordHash = null;
@@ -613,8 +820,8 @@ public class Authentication {
 			salt = randGen.generateSalt();
 			passwordHash = pwdcrypt.getEncryptedPassword(temporaryPassword, salt);
 			Password.clearPasswordArray(temporaryPassword);
-			storage.changePassword(userName, new PasswordHashAndSalt(passwordHash, salt), true);
-			logInfo("Admin {} changed user {}'s password", admin.getUserName().getName(),
+			storage.changePassword(userName, toCreds(passwordHash, salt), true);
+			logInfo(reqs, "Admin {} changed user {}'s password", admin.getUserName().getName(),
 					userName.getName());
 		} catch (Throwable t) {
 			if (pwd != null) {
@@ -634,23 +841,22 @@ public class Authentication {
 	private AuthUser checkCanResetPassword(
 			final IncomingToken token,
 			final UserName userName,
-			final String format,
-			final Object... args)
+			final OpReqs reqs)
 			throws InvalidTokenException, UnauthorizedException, AuthStorageException,
 				NoSuchUserException {
 		// this method is gross. rethink. ideally based on the grantable roles somehow.
-		final AuthUser admin = getUser(token, new OpReqs(format, args)
+		final AuthUser admin = getUser(token, reqs
 				.types(TokenType.LOGIN).roles(Role.ROOT, Role.CREATE_ADMIN, Role.ADMIN)); 
 		final AuthUser user;
 		try {
 			user = storage.getUser(userName);
 		} catch (NoSuchUserException e) {
-			logErr("Admin {} tried to get non-existant user {}", admin.getUserName().getName(),
-					userName.getName());
+			logErr(reqs, "Admin {} tried to get non-existant user {}",
+					admin.getUserName().getName(), userName.getName());
 			throw e;
 		}
 		if (!user.isLocal()) {
-			logErr("Admin {} tried to get standard user {} as a local user",
+			logErr(reqs, "Admin {} tried to get standard user {} as a local user",
 					admin.getUserName().getName(), userName.getName());
 			throw new NoSuchUserException(String.format(
 					"%s is not a local user and has no password", userName.getName()));
@@ -665,12 +871,13 @@ public class Authentication {
 			return admin; //ok, duh. It's root.
 		}
 		if (user.isRoot()) { // already know admin isn't root, so bail out.
-			logErr("Admin {} tried to reset the ROOT password", admin.getUserName().getName());
+			logErr(reqs, "Admin {} tried to reset the ROOT password",
+					admin.getUserName().getName());
 			throw new UnauthorizedException("Only root can reset root password");
 		}
 		// only root and the owner of an account with the CREATE_ADMIN role can change the pwd
-		if (Role.CREATE_ADMIN.isSatisfiedBy(user.getRoles())) {
-			logErr("Admin {} tried to reset admin with create power {}'s password",
+		if (Role.CREATE_ADMIN.isSatisfiedBy(user.getEffectiveRoleMask())) {
+			logErr(reqs, "Admin {} tried to reset admin with create power {}'s password",
 					admin.getUserName().getName(), user.getUserName().getName());
 			throw new UnauthorizedException(
 					"Cannot reset password of user with create administrator role");
@@ -678,9 +885,9 @@ public class Authentication {
 		/* at this point we know user is a standard admin and admin is not root. That means
 		 * that admin has to have CREATE_ADMIN to proceed. 
 		 */
-		if (!Role.CREATE_ADMIN.isSatisfiedBy(admin.getRoles())) {
-			logErr("Admin {} tried to reset admin {}'s password", admin.getUserName().getName(),
-					user.getUserName().getName());
+		if (!Role.CREATE_ADMIN.isSatisfiedBy(admin.getEffectiveRoleMask())) {
+			logErr(reqs, "Admin {} tried to reset admin {}'s password",
+					admin.getUserName().getName(), user.getUserName().getName());
 			throw new UnauthorizedException(
 					"Cannot reset password of user with administrator role");
 		}
@@ -701,28 +908,36 @@ public class Authentication {
 			throws InvalidTokenException, UnauthorizedException, AuthStorageException,
 			NoSuchUserException {
 		nonNull(userName, "userName");
-		final AuthUser admin = checkCanResetPassword(token, userName,
-				"force password reset for user {}", userName.getName());
+		final OpReqs reqs = new OpReqs("force password reset for user {}", userName.getName());
+		final AuthUser admin = checkCanResetPassword(token, userName, reqs);
 		storage.forcePasswordReset(userName);
-		logInfo("Admin {} required user {} to reset their password on the next login",
+		logInfo(reqs, "Admin {} required user {} to reset their password on the next login",
 				admin.getUserName().getName(), userName.getName());
 		
 	}
 
-	/** Force all local users to reset their password on their next login.
+	/** Force all local users to reset their password on their next login. The requirement takes
+	 * effect immediately; the users' records are updated by a background job.
 	 * @param token a token for a user with the administrator role.
+	 * @return the job that will update the users.
 	 * @throws InvalidTokenException if the token is invalid.
 	 * @throws UnauthorizedException if the user account associated with the token does not
 	 * have the administrator role or the token is not a login token.
 	 * @throws AuthStorageException if an error occurred accessing the storage system.
 	 */
-	public void forceResetAllPasswords(final IncomingToken token)
+	public Job forceResetAllPasswords(final IncomingToken token)
 			throws InvalidTokenException, UnauthorizedException, AuthStorageException {
-		final AuthUser admin = getUser(token, new OpReqs("force password reset for all users")
-				.types(TokenType.LOGIN).roles(Role.ROOT, Role.CREATE_ADMIN));
-		storage.forcePasswordReset();
-		logInfo("Admin {} required all users to reset their password on the next login",
-				admin.getUserName().getName());
+		final OpReqs reqs = new OpReqs("force password reset for all users")
+				.types(TokenType.LOGIN).roles(Role.ROOT, Role.CREATE_ADMIN);
+		final AuthUser admin = getUser(token, reqs);
+		final Instant now = clock.instant();
+		storage.setPasswordResetCutoff(now);
+		final Job job = submitJob(Job.getBuilder(randGen.randomUUID(),
+				JobType.FORCE_PASSWORD_RESET, admin.getUserName(), now));
+		logInfo(reqs,
+				"Admin {} required all users to reset their password on the next login in job {}",
+				admin.getUserName().getName(), job.getId());
+		return job;
 	}
 	
 	private NewToken login(final UserName userName, final TokenCreationContext tokenCtx)
@@ -736,7 +951,9 @@ public class Authentication {
 				randGen.getToken());
 		storage.storeToken(nt.getStoredToken(), nt.getTokenHash());
 		setLastLogin(userName);
-		logInfo("Logged in user {} with token {}",
+		final OpReqs reqs = new OpReqs("login");
+		reqs.token = nt.getStoredToken();
+		logInfo(reqs, "Logged in user {} with token {}",
 				userName.getName(), nt.getStoredToken().getId());
 		return nt;
 	}
@@ -760,39 +977,49 @@ public class Authentication {
 		return randGen.getToken();
 	}
 
-	/** Get the tokens associated with a user account associated with a possessed token.
+	/** Get a page of the tokens associated with a user account associated with a possessed
+	 * token. The tokens are sorted by creation date from newest to oldest.
 	 * @param token a user token for the account in question.
+	 * @param spec the specification for the page of tokens.
 	 * @return the tokens.
 	 * @throws InvalidTokenException if the token is invalid.
 	 * @throws AuthStorageException if an error occurred accessing the storage system.
 	 * @throws UnauthorizedException if the token is not a login token.
 	 */
-	public TokenSet getTokens(final IncomingToken token)
+	public TokenSet getTokens(final IncomingToken token, final TokenListSpec spec)
 			throws AuthStorageException, InvalidTokenException, UnauthorizedException {
-		final StoredToken ht = getToken(token, new OpReqs("get tokens").types(TokenType.LOGIN));
-		final TokenSet tokenSet = new TokenSet(ht, storage.getTokens(ht.getUserName()));
-		logInfo("User {} accessed their tokens", ht.getUserName().getName());
+		nonNull(spec, "spec");
+		final OpReqs reqs = new OpReqs("get tokens").types(TokenType.LOGIN);
+		final StoredToken ht = getToken(token, reqs);
+		final TokenSet tokenSet = new TokenSet(ht, storage.getTokens(ht.getUserName(), spec));
+		logInfo(reqs, "User {} accessed their tokens", ht.getUserName().getName());
 		return tokenSet;
 	}
 
-	/** Get the tokens associated with an arbitrary user account.
+	/** Get a page of the tokens associated with an arbitrary user account. The tokens are sorted
+	 * by creation date from newest to oldest.
 	 * 
 	 * @param token a token for a user with the administrator role.
 	 * @param userName the user name of the account.
+	 * @param spec the specification for the page of tokens.
 	 * @return the tokens associated with the given account.
 	 * @throws InvalidTokenException if the token is invalid.
 	 * @throws UnauthorizedException if the user account associated with the token does not
 	 * have the administrator role or the token is not a login token.
 	 * @throws AuthStorageException if an error occurred accessing the storage system.
 	 */
-	public Set<StoredToken> getTokens(final IncomingToken token, final UserName userName)
+	public TokenPage getTokens(
+			final IncomingToken token,
+			final UserName userName,
+			final TokenListSpec spec)
 			throws InvalidTokenException, UnauthorizedException, AuthStorageException {
 		nonNull(userName, "userName");
-		final AuthUser admin = getUser(token,
-				new OpReqs("get tokens for user {}", userName.getName())
-				.types(TokenType.LOGIN).roles(Role.ADMIN));
-		final Set<StoredToken> tokens = storage.getTokens(userName);
-		logInfo("Admin {} accessed user {}'s tokens",
+		nonNull(spec, "spec");
+		final OpReqs reqs = new OpReqs("get tokens for user {}", userName.getName())
+				.types(TokenType.LOGIN).roles(Role.ADMIN);
+		final AuthUser admin = getUser(token, reqs);
+		final TokenPage tokens = storage.getTokens(userName, spec);
+		logInfo(reqs, "Admin {} accessed user {}'s tokens",
 				admin.getUserName().getName(), userName.getName());
 		return tokens;
 	}
@@ -805,19 +1032,19 @@ public class Authentication {
 	 */
 	public StoredToken getToken(final IncomingToken token)
 			throws AuthStorageException, InvalidTokenException {
-		final StoredToken st = getTokenSuppressUnauthorized(token, "get token");
-		logInfo("User {} accessed {} token {}", st.getUserName().getName(), st.getTokenType(),
+		final OpReqs reqs = new OpReqs("get token");
+		final StoredToken st = getTokenSuppressUnauthorized(token, reqs);
+		logInfo(reqs, "User {} accessed {} token {}", st.getUserName().getName(), st.getTokenType(),
 				st.getId());
 		return st;
 	}
 
 	private StoredToken getTokenSuppressUnauthorized(
 			final IncomingToken token,
-			final String format,
-			final Object... args)
+			final OpReqs reqs)
 			throws InvalidTokenException, AuthStorageException {
 		try {
-			return getToken(token, new OpReqs(format, args));
+			return getToken(token, reqs);
 		} catch (UnauthorizedException e) {
 			throw new RuntimeException("Didn't require any particular token", e);
 		}
@@ -830,6 +1057,10 @@ public class Authentication {
 		try {
 			final Set<TokenType> allowedTypes = reqs.allowedTokenTypes;
 			final StoredToken st = storage.getToken(token.getHashedToken());
+			if (isRevoked(st)) {
+				throw new InvalidTokenException();
+			}
+			reqs.token = st;
 			if (!allowedTypes.isEmpty() && !allowedTypes.contains(st.getTokenType())) {
 				logDisallowedTokenType(st, reqs);
 				throw new UnauthorizedException(st.getTokenType().getDescription() +
@@ -841,6 +1072,14 @@ public class Authentication {
 		}
 	}
 
+	/* The background job that revokes all tokens may not have deleted the token yet, so the
+	 * cutoff is checked directly.
+	 */
+	private boolean isRevoked(final StoredToken token) throws AuthStorageException {
+		final Optional<Instant> cutoff = storage.getTokenRevocationCutoff();
+		return cutoff.isPresent() && !token.getCreationDate().isAfter(cutoff.get());
+	}
+
 	private void logDisallowedTokenType(final StoredToken st, final OpReqs reqs) {
 		
 		final List<String> types = reqs.allowedTokenTypes.stream().map(r -> r.getID())
@@ -848,7 +1087,7 @@ public class Authentication {
 		final String typesStr = String.join(", ", types);
 		final Object[] args = ArrayUtils.addAll(new Object[] {st.getUserName().getName(),
 						st.getTokenType().getDescription(), typesStr}, reqs.args);
-		logErr("User {} with token type {} attempted an operation that requires a " +
+		logErr(reqs, "User {} with token type {} attempted an operation that requires a " +
 				"token type of one of [{}]: " + reqs.format, args);
 	}
 
@@ -877,12 +1116,13 @@ public class Authentication {
 			throw new IllegalArgumentException("Cannot create a login token without logging in");
 		}
 		// check for disabled user for all token type targets as well
-		final AuthUser au = getUser(token,
-				new OpReqs("create {} token", tokenType.getDescription()).types(TokenType.LOGIN));
+		final OpReqs reqs = new OpReqs("create {} token", tokenType.getDescription())
+				.types(TokenType.LOGIN);
+		final AuthUser au = getUser(token, reqs);
 		if (!TokenType.AGENT.equals(tokenType)) {
 			final Role reqRole = TokenType.SERV.equals(tokenType) ?
 					Role.SERV_TOKEN : Role.DEV_TOKEN;
-			if (!reqRole.isSatisfiedBy(au.getRoles())) {
+			if (!reqRole.isSatisfiedBy(au.getEffectiveRoleMask())) {
 				throw new UnauthorizedException(String.format(
 						"User %s is not authorized to create the %s token type.",
 						au.getUserName().getName(), tokenType.getDescription()));
@@ -897,7 +1137,7 @@ public class Authentication {
 				.withTokenName(tokenName).build(),
 				randGen.getToken());
 		storage.storeToken(nt.getStoredToken(), nt.getTokenHash());
-		logInfo("User {} created {} token {}", au.getUserName().getName(), tokenType, id);
+		logInfo(reqs, "User {} created {} token {}", au.getUserName().getName(), tokenType, id);
 		return nt;
 	}
 	
@@ -910,18 +1150,30 @@ public class Authentication {
 	 */
 	public AuthUser getUser(final IncomingToken token)
 			throws InvalidTokenException, AuthStorageException, DisabledUserException {
-		final AuthUser u = getUserSuppressUnauthorized(token, "get self user");
-		logInfo("User {} accessed their user data", u.getUserName().getName());
-		return u;
+		return getUserWithTokenExpiry(token).getResult();
+	}
+	
+	/** Get a user from an incoming token, along with the expiration date of the token.
+	 * @param token the token.
+	 * @return the user and the token expiration date.
+	 * @throws InvalidTokenException if the token is invalid.
+	 * @throws AuthStorageException if an error occurred accessing the storage system.
+	 * @throws DisabledUserException if the user is disabled.
+	 */
+	public TokenBoundResult<AuthUser> getUserWithTokenExpiry(final IncomingToken token)
+			throws InvalidTokenException, AuthStorageException, DisabledUserException {
+		final OpReqs reqs = new OpReqs("get self user");
+		final AuthUser u = getUserSuppressUnauthorized(token, reqs);
+		logInfo(reqs, "User {} accessed their user data", u.getUserName().getName());
+		return new TokenBoundResult<>(u, reqs.token.getExpirationDate());
 	}
 
 	private AuthUser getUserSuppressUnauthorized(
 			final IncomingToken token,
-			final String format,
-			final Object... args)
+			final OpReqs reqs)
 			throws AuthStorageException, InvalidTokenException, DisabledUserException {
 		try {
-			return getUser(token, new OpReqs(format, args));
+			return getUser(token, reqs);
 		} catch (DisabledUserException e) {
 			// this catch block is here because a disabled user exception is a subclass of
 			// unauthorized exception. We want to throw DUE but not UE.
@@ -938,14 +1190,9 @@ public class Authentication {
 			throws AuthStorageException, InvalidTokenException, UnauthorizedException {
 		final StoredToken ht = getToken(token, reqs);
 		final AuthUser u = getUser(ht.getUserName());
-		if (reqs.requiredRoles.size() > 0) {
-			final Set<Role> has = u.getRoles().stream().flatMap(r -> r.included().stream())
-					.collect(Collectors.toSet());
-			has.retainAll(reqs.requiredRoles); // intersection
-			if (has.isEmpty()) {
-				logUnauthorized(u.getUserName(), reqs);
-				throw new UnauthorizedException();
-			}
+		if (reqs.requiredRoles != 0 && (u.getEffectiveRoleMask() & reqs.requiredRoles) == 0) {
+			logUnauthorized(u.getUserName(), reqs);
+			throw new UnauthorizedException();
 		}
 		return u;
 	}
@@ -969,13 +1216,13 @@ public class Authentication {
 	}
 	
 	private void logUnauthorized(final UserName name, final OpReqs reqs) {
-		final List<String> roles = reqs.requiredRoles.stream()
+		final List<String> roles = Role.fromMask(reqs.requiredRoles).stream()
 				.map(r -> r.getID()).collect(Collectors.toList());
 		final String rolesStr = String.join(", ", roles);
 		final Object[] args = ArrayUtils.addAll(
 				new Object[] {name.getName(), rolesStr}, reqs.args);
-		logErr("User {} does not have one of the required roles [{}] for operation " + reqs.format,
-				args);
+		logErr(reqs, "User {} does not have one of the required roles [{}] for operation " +
+				reqs.format, args);
 		
 	}
 
@@ -995,15 +1242,16 @@ public class Authentication {
 			throws AuthStorageException, InvalidTokenException,
 				NoSuchUserException, DisabledUserException {
 		nonNull(user, "userName");
-		final AuthUser requestingUser = getUserSuppressUnauthorized(token, "get viewable user");
+		final OpReqs reqs = new OpReqs("get viewable user");
+		final AuthUser requestingUser = getUserSuppressUnauthorized(token, reqs);
 		final AuthUser otherUser = storage.getUser(user);
 		if (otherUser.isDisabled()) {
 			// if requesting user was disabled a DisabledUserEx would already have been thrown
 			throw new NoSuchUserException(otherUser.getUserName().getName());
 		}
 		final boolean sameUser = requestingUser.getUserName().equals(otherUser.getUserName());
-		logInfo("User {} accessed user {}'s user data", requestingUser.getUserName().getName(),
-				otherUser.getUserName().getName());
+		logInfo(reqs, "User {} accessed user {}'s user data",
+				requestingUser.getUserName().getName(), otherUser.getUserName().getName());
 		return new ViewableUser(otherUser, sameUser);
 	}
 
@@ -1024,11 +1272,11 @@ public class Authentication {
 			throws AuthStorageException, NoSuchUserException,
 			InvalidTokenException, UnauthorizedException {
 		nonNull(userName, "userName");
-		final AuthUser admin = getUser(adminToken,
-				new OpReqs("get user {} as admin", userName.getName())
-				.types(TokenType.LOGIN).roles(Role.ROOT, Role.CREATE_ADMIN, Role.ADMIN));
+		final OpReqs reqs = new OpReqs("get user {} as admin", userName.getName())
+				.types(TokenType.LOGIN).roles(Role.ROOT, Role.CREATE_ADMIN, Role.ADMIN);
+		final AuthUser admin = getUser(adminToken, reqs);
 		final AuthUser user = storage.getUser(userName);
-		logInfo("Admin {} accessed user {}'s user data", admin.getUserName().getName(),
+		logInfo(reqs, "Admin {} accessed user {}'s user data", admin.getUserName().getName(),
 				userName.getName());
 		return user;
 	}
@@ -1047,12 +1295,32 @@ public class Authentication {
 			final IncomingToken token,
 			final Set<UserName> userNames)
 			throws InvalidTokenException, AuthStorageException, IllegalParameterException {
+		return getUserDisplayNamesWithTokenExpiry(token, userNames).getResult();
+	}
+	
+	/** Look up display names for a set of user names, along with the expiration date of the
+	 * token. A maximum of 10000 users may be looked up at once. Never returns the root user name
+	 * or disabled users.
+	 * @param token a token for the user requesting the lookup.
+	 * @param userNames the user names to look up.
+	 * @return the display names for each user name and the token expiration date. Any
+	 * non-existent user names will be missing.
+	 * @throws InvalidTokenException if the token is invalid.
+	 * @throws AuthStorageException if an error occurred accessing the storage system.
+	 * @throws IllegalParameterException if the number of requested user names is greater than the
+	 * limit.
+	 */
+	public TokenBoundResult<Map<UserName, DisplayName>> getUserDisplayNamesWithTokenExpiry(
+			final IncomingToken token,
+			final Set<UserName> userNames)
+			throws InvalidTokenException, AuthStorageException, IllegalParameterException {
 		nonNull(userNames, "userNames");
 		noNulls(userNames, "Null name in userNames");
 		// just check the token is valid
-		getTokenSuppressUnauthorized(token, "get user display names");
+		final StoredToken st = getTokenSuppressUnauthorized(
+				token, new OpReqs("get user display names"));
 		if (userNames.isEmpty()) {
-			return new HashMap<>();
+			return new TokenBoundResult<>(new HashMap<>(), st.getExpirationDate());
 		}
 		if (userNames.size() > MAX_RETURNED_USERS) {
 			throw new IllegalParameterException(
@@ -1061,7 +1329,7 @@ public class Authentication {
 		
 		final Map<UserName, DisplayName> displayNames = storage.getUserDisplayNames(userNames);
 		displayNames.remove(UserName.ROOT);
-		return displayNames;
+		return new TokenBoundResult<>(displayNames, st.getExpirationDate());
 	}
 	
 	/** Look up display names based on a search specification. A maximum of 10000 users will be
@@ -1185,10 +1453,10 @@ public class Authentication {
 			throws AuthStorageException,
 			NoSuchTokenException, InvalidTokenException, UnauthorizedException {
 		nonNull(tokenID, "tokenID");
-		final StoredToken ht = getToken(token, new OpReqs("revoke token {}", tokenID)
-				.types(TokenType.LOGIN));
+		final OpReqs reqs = new OpReqs("revoke token {}", tokenID).types(TokenType.LOGIN);
+		final StoredToken ht = getToken(token, reqs);
 		storage.deleteToken(ht.getUserName(), tokenID);
-		logInfo("User {} revoked token {}", ht.getUserName().getName(), ht.getId());
+		logInfo(reqs, "User {} revoked token {}", ht.getUserName().getName(), ht.getId());
 	}
 
 	/* maybe combine this with the above method...? The username is a good check that you're
@@ -1213,11 +1481,11 @@ public class Authentication {
 				NoSuchTokenException {
 		nonNull(userName, "userName");
 		nonNull(tokenID, "tokenID");
-		final AuthUser admin = getUser(token,
-				new OpReqs("revoke token {} for user {}", tokenID, userName.getName())
-				.types(TokenType.LOGIN).roles(Role.ADMIN));
+		final OpReqs reqs = new OpReqs("revoke token {} for user {}", tokenID, userName.getName())
+				.types(TokenType.LOGIN).roles(Role.ADMIN);
+		final AuthUser admin = getUser(token, reqs);
 		storage.deleteToken(userName, tokenID);
-		logInfo("Admin {} revoked user {}'s token {}", admin.getUserName().getName(),
+		logInfo(reqs, "Admin {} revoked user {}'s token {}", admin.getUserName().getName(),
 				userName.getName(), tokenID);
 		
 	}
@@ -1235,7 +1503,9 @@ public class Authentication {
 		try {
 			t = storage.getToken(token.getHashedToken());
 			storage.deleteToken(t.getUserName(), t.getId());
-			logInfo("User {} revoked token {}", t.getUserName().getName(), t.getId());
+			final OpReqs reqs = new OpReqs("revoke current token");
+			reqs.token = t;
+			logInfo(reqs, "User {} revoked token {}", t.getUserName().getName(), t.getId());
 			return Optional.of(t);
 		} catch (NoSuchTokenException e) {
 			// no problem, continue
@@ -1262,7 +1532,9 @@ public class Authentication {
 			t = storage.getToken(token.getHashedToken());
 			final long deleted = storage.deleteTemporarySessionData(t.getUserName());
 			storage.deleteToken(t.getUserName(), t.getId());
-			logInfo("User {} revoked token {} and {} temporary session instances",
+			final OpReqs reqs = new OpReqs("logout");
+			reqs.token = t;
+			logInfo(reqs, "User {} revoked token {} and {} temporary session instances",
 					t.getUserName().getName(), t.getId(), deleted);
 			return Optional.of(t);
 		} catch (NoSuchTokenException e) {
@@ -1279,25 +1551,34 @@ public class Authentication {
 	 */
 	public void revokeTokens(final IncomingToken token)
 			throws AuthStorageException, InvalidTokenException, UnauthorizedException {
-		final StoredToken ht = getToken(token, new OpReqs("revoke owned tokens")
-				.types(TokenType.LOGIN));
+		final OpReqs reqs = new OpReqs("revoke owned tokens").types(TokenType.LOGIN);
+		final StoredToken ht = getToken(token, reqs);
 		storage.deleteTokens(ht.getUserName());
-		logInfo("User {} revoked all their tokens", ht.getUserName().getName());
+		logInfo(reqs, "User {} revoked all their tokens", ht.getUserName().getName());
 	}
 	
-	/** Revokes all tokens across all users, including the current user.
+	/** Revokes all tokens across all users, including the current user. The tokens are invalid
+	 * immediately and are deleted by a background job. Tokens created after the job is submitted
+	 * are not revoked.
 	 * @param token a token for a user with the administrator role.
+	 * @return the job that will delete the tokens.
 	 * @throws InvalidTokenException if the token is invalid.
 	 * @throws UnauthorizedException if the user account associated with the token does not have
 	 * the administrator role or the token is not a login token.
 	 * @throws AuthStorageException if an error occurred accessing the storage system.
 	 */
-	public void revokeAllTokens(final IncomingToken token)
+	public Job revokeAllTokens(final IncomingToken token)
 			throws InvalidTokenException, UnauthorizedException, AuthStorageException {
-		final AuthUser admin = getUser(token, new OpReqs("revoke all tokens")
-				.types(TokenType.LOGIN).roles(Role.ADMIN));
-		storage.deleteTokens();
-		logInfo("Admin {} revoked all tokens system wide", admin.getUserName().getName());
+		final OpReqs reqs = new OpReqs("revoke all tokens")
+				.types(TokenType.LOGIN).roles(Role.ADMIN);
+		final AuthUser admin = getUser(token, reqs);
+		final Instant now = clock.instant();
+		storage.setTokenRevocationCutoff(now);
+		final Job job = submitJob(Job.getBuilder(randGen.randomUUID(),
+				JobType.REVOKE_ALL_TOKENS, admin.getUserName(), now));
+		logInfo(reqs, "Admin {} revoked all tokens system wide in job {}",
+				admin.getUserName().getName(), job.getId());
+		return job;
 	}
 	
 
@@ -1312,11 +1593,11 @@ public class Authentication {
 	public void revokeAllTokens(final IncomingToken token, final UserName userName)
 			throws InvalidTokenException, UnauthorizedException, AuthStorageException {
 		nonNull(userName, "userName");
-		final AuthUser admin = getUser(token,
-				new OpReqs("revoke all tokens for user {}", userName.getName())
-				.types(TokenType.LOGIN).roles(Role.ADMIN));
+		final OpReqs reqs = new OpReqs("revoke all tokens for user {}", userName.getName())
+				.types(TokenType.LOGIN).roles(Role.ADMIN);
+		final AuthUser admin = getUser(token, reqs);
 		storage.deleteTokens(userName);
-		logInfo("Admin {} revoked all tokens for user {}",
+		logInfo(reqs, "Admin {} revoked all tokens for user {}",
 				admin.getUserName().getName(), userName.getName());
 	}
 	
@@ -1381,8 +1662,9 @@ public class Authentication {
 		if (userName.isRoot()) {
 			throw new UnauthorizedException("Cannot change ROOT roles");
 		}
-		final AuthUser actinguser = getUser(userToken,
-				new OpReqs("update roles for user {}", userName.getName()).types(TokenType.LOGIN));
+		final OpReqs reqs = new OpReqs("update roles for user {}", userName.getName())
+				.types(TokenType.LOGIN);
+		final AuthUser actinguser = getUser(userToken, reqs);
 		
 		final Set<Role> add = new HashSet<>(addRoles);
 		add.removeAll(actinguser.getGrantableRoles());
@@ -1396,20 +1678,21 @@ public class Authentication {
 			throwUnauthorizedToManageRoles(actinguser, "remove", sub);
 		}
 		storage.updateRoles(userName, addRoles, removeRoles);
-		logRoleUpdate(actinguser.getUserName(), userName, addRoles, removeRoles);
+		logRoleUpdate(reqs, actinguser.getUserName(), userName, addRoles, removeRoles);
 	}
 
 	private void logRoleUpdate(
+			final OpReqs reqs,
 			final UserName actingUser,
 			final UserName user,
 			final Set<Role> addRoles,
 			final Set<Role> removeRoles) {
 		if (!addRoles.isEmpty()) {
-			logInfo("User {} added roles to user {}: {}", actingUser.getName(),
+			logInfo(reqs, "User {} added roles to user {}: {}", actingUser.getName(),
 					user.getName(), rolesToString(addRoles, r -> r.getID()));
 		}
 		if (!removeRoles.isEmpty()) {
-			logInfo("User {} removed roles from user {}: {}", actingUser.getName(),
+			logInfo(reqs, "User {} removed roles from user {}: {}", actingUser.getName(),
 					user.getName(), rolesToString(removeRoles, r -> r.getID()));
 		}
 	}
@@ -1444,35 +1727,42 @@ public class Authentication {
 			final CustomRole role)
 			throws AuthStorageException, InvalidTokenException, UnauthorizedException {
 		nonNull(role, "role");
-		final AuthUser admin = getUser(token, new OpReqs("set custom role {}", role.getID())
-				.types(TokenType.LOGIN).roles(Role.ADMIN));
+		final OpReqs reqs = new OpReqs("set custom role {}", role.getID())
+				.types(TokenType.LOGIN).roles(Role.ADMIN);
+		final AuthUser admin = getUser(token, reqs);
 		storage.setCustomRole(role);
-		logInfo("Admin {} set custom role {}", admin.getUserName().getName(), role.getID());
+		logInfo(reqs, "Admin {} set custom role {}", admin.getUserName().getName(), role.getID());
 	}
 	
-	/** Delete a custom role. Deletes the role from all users.
+	/** Delete a custom role. The role is removed from all users and then deleted by a background
+	 * job. Deleting a role that does not exist has no effect.
 	 * @param token a token for a user account with the administrator privilege.
 	 * @param roleId the id of the role.
+	 * @return the job that will delete the role.
 	 * @throws InvalidTokenException if the token is invalid.
 	 * @throws AuthStorageException if an error occurred accessing the storage system.
 	 * @throws UnauthorizedException if the user account associated with the token does not have
 	 * the administrator role or the token is not a login token.
-	 * @throws NoSuchRoleException if there is no role by the given ID.
 	 * @throws MissingParameterException if the role ID is missing.
 	 * @throws IllegalParameterException if the role ID is illegal.
 	 */
-	public void deleteCustomRole(
+	public Job deleteCustomRole(
 			final IncomingToken token,
 			final String roleId)
 			throws InvalidTokenException, UnauthorizedException, AuthStorageException,
-			NoSuchRoleException, MissingParameterException, IllegalParameterException {
+			MissingParameterException, IllegalParameterException {
 		if (roleId == null || roleId.trim().isEmpty()) {
 			throw new MissingParameterException("roleId cannot be null or empty");
 		}
-		final AuthUser admin = getUser(token, new OpReqs("delete custom role {}", roleId)
-				.types(TokenType.LOGIN).roles(Role.ADMIN));
-		storage.deleteCustomRole(roleId);
-		logInfo("Admin {} deleted custom role {}", admin.getUserName().getName(), roleId);
+		final OpReqs reqs = new OpReqs("delete custom role {}", roleId)
+				.types(TokenType.LOGIN).roles(Role.ADMIN);
+		final AuthUser admin = getUser(token, reqs);
+		final Job job = submitJob(Job.getBuilder(randGen.randomUUID(),
+				JobType.DELETE_CUSTOM_ROLE, admin.getUserName(), clock.instant())
+				.withTarget(roleId));
+		logInfo(reqs, "Admin {} deleted custom role {} in job {}", admin.getUserName().getName(),
+				roleId, job.getId());
+		return job;
 	}
 
 	/* may need to restrict to a subset of users in the future */
@@ -1488,17 +1778,18 @@ public class Authentication {
 	public Set<CustomRole> getCustomRoles(final IncomingToken token, final boolean forceAdmin)
 			throws AuthStorageException, InvalidTokenException, UnauthorizedException {
 		final UserName name;
+		final OpReqs reqs;
 		if (forceAdmin) {
-			name = getUser(token, new OpReqs("get custom roles as admin")
-					.types(TokenType.LOGIN).roles(Role.ROOT, Role.CREATE_ADMIN, Role.ADMIN))
-					.getUserName();
+			reqs = new OpReqs("get custom roles as admin")
+					.types(TokenType.LOGIN).roles(Role.ROOT, Role.CREATE_ADMIN, Role.ADMIN);
+			name = getUser(token, reqs).getUserName();
 		} else {
 			// check for valid token
-			name = getToken(token, new OpReqs("get custom roles").types(TokenType.LOGIN))
-					.getUserName();
+			reqs = new OpReqs("get custom roles").types(TokenType.LOGIN);
+			name = getToken(token, reqs).getUserName();
 		}
 		final Set<CustomRole> customRoles = storage.getCustomRoles();
-		logInfo("User {} accessed all custom roles", name.getName());
+		logInfo(reqs, "User {} accessed all custom roles", name.getName());
 		return customRoles;
 	}
 
@@ -1540,24 +1831,25 @@ public class Authentication {
 		 * to set roles for users that users can't change. However, there's no reason not to allow
 		 * users to remove standard roles, which are privileges, not tags 
 		 */
-		final AuthUser admin = getUser(userToken,
-				new OpReqs("update custom roles for user {}", userName.getName())
-				.types(TokenType.LOGIN).roles(Role.ADMIN));
+		final OpReqs reqs = new OpReqs("update custom roles for user {}", userName.getName())
+				.types(TokenType.LOGIN).roles(Role.ADMIN);
+		final AuthUser admin = getUser(userToken, reqs);
 		storage.updateCustomRoles(userName, addRoles, removeRoles);
-		logCustomRoleUpdate(admin.getUserName(), userName, addRoles, removeRoles);
+		logCustomRoleUpdate(reqs, admin.getUserName(), userName, addRoles, removeRoles);
 	}
 	
 	private void logCustomRoleUpdate(
+			final OpReqs reqs,
 			final UserName actingUser,
 			final UserName user,
 			final Set<String> addRoles,
 			final Set<String> removeRoles) {
 		if (!addRoles.isEmpty()) {
-			logInfo("Admin {} added custom roles to user {}: {}", actingUser.getName(),
+			logInfo(reqs, "Admin {} added custom roles to user {}: {}", actingUser.getName(),
 					user.getName(), customRolesToString(addRoles));
 		}
 		if (!removeRoles.isEmpty()) {
-			logInfo("Admin {} removed custom roles from user {}: {}", actingUser.getName(),
+			logInfo(reqs, "Admin {} removed custom roles from user {}: {}", actingUser.getName(),
 					user.getName(), customRolesToString(removeRoles));
 		}
 	}
@@ -1566,6 +1858,105 @@ public class Authentication {
 		return String.join(", ", roles.stream().sorted().collect(Collectors.toList()));
 	}
 
+	/** Update the roles and custom roles of multiple users. The same changes are applied to
+	 * every user. The token is validated and the custom roles are looked up once for all the
+	 * users, and the users are updated in a single storage operation.
+	 *
+	 * The roles that may be granted or removed are the same as for
+	 * {@link #updateRoles(IncomingToken, UserName, Set, Set)}, and altering custom roles requires
+	 * the administrator role, as for {@link #updateCustomRoles(IncomingToken, UserName, Set, Set)}.
+	 * @param userToken the token of the user adding or removing roles.
+	 * @param userNames the user names of the user accounts for which roles are to be altered.
+	 * @param addRoles the roles to add to the user accounts.
+	 * @param removeRoles the roles to remove from the user accounts.
+	 * @param addCustomRoles the custom roles to add to the user accounts.
+	 * @param removeCustomRoles the custom roles to remove from the user accounts.
+	 * @return the outcome for each user. The value is absent if the user was updated, or an
+	 * exception describing why the user was not updated otherwise.
+	 * @throws AuthStorageException if an error occurred accessing the storage system.
+	 * @throws UnauthorizedException if the user account associated with the token is not
+	 * authorized to make the changes requested or the token is not a login token.
+	 * @throws InvalidTokenException if the token is invalid.
+	 * @throws NoSuchRoleException if one of the custom roles does not exist in the database.
+	 * @throws IllegalParameterException if a role is to be both removed and added or there are
+	 * too many users.
+	 */
+	public Map<UserName, Optional<AuthException>> updateRoles(
+			final IncomingToken userToken,
+			final Set<UserName> userNames,
+			final Set<Role> addRoles,
+			final Set<Role> removeRoles,
+			final Set<String> addCustomRoles,
+			final Set<String> removeCustomRoles)
+			throws AuthStorageException, UnauthorizedException, InvalidTokenException,
+				NoSuchRoleException, IllegalParameterException {
+		nonNull(userNames, "userNames");
+		nonNull(addRoles, "addRoles");
+		nonNull(removeRoles, "removeRoles");
+		nonNull(addCustomRoles, "addCustomRoles");
+		nonNull(removeCustomRoles, "removeCustomRoles");
+		noNulls(userNames, "Null name in userNames");
+		noNulls(addRoles, "Null role in addRoles");
+		noNulls(removeRoles, "Null role in removeRoles");
+		noNulls(addCustomRoles, "Null role in addCustomRoles");
+		noNulls(removeCustomRoles, "Null role in removeCustomRoles");
+		if (userNames.size() > MAX_RETURNED_USERS) {
+			throw new IllegalParameterException(
+					"User count exceeds maximum of " + MAX_RETURNED_USERS);
+		}
+		final Set<Role> intersect = new HashSet<>(addRoles);
+		intersect.retainAll(removeRoles);
+		if (!intersect.isEmpty()) {
+			throw new IllegalParameterException(
+					"One or more roles is to be both removed and added: " +
+							rolesToString(intersect, r -> r.getDescription()));
+		}
+		final Set<String> cintersect = new HashSet<>(addCustomRoles);
+		cintersect.retainAll(removeCustomRoles);
+		if (!cintersect.isEmpty()) {
+			throw new IllegalParameterException(
+					"One or more custom roles is to be both removed and added: " +
+					customRolesToString(cintersect));
+		}
+		final OpReqs reqs = new OpReqs("update roles for {} users", userNames.size())
+				.types(TokenType.LOGIN);
+		if (!addCustomRoles.isEmpty() || !removeCustomRoles.isEmpty()) {
+			reqs.roles(Role.ADMIN);
+		}
+		final AuthUser actinguser = getUser(userToken, reqs);
+
+		final Set<Role> add = new HashSet<>(addRoles);
+		add.removeAll(actinguser.getGrantableRoles());
+		final Set<Role> sub = new HashSet<>(removeRoles);
+		sub.removeAll(actinguser.getGrantableRoles());
+		if (!add.isEmpty()) {
+			throwUnauthorizedToManageRoles(actinguser, "grant", add);
+		}
+		if (!sub.isEmpty() && !Collections.singleton(actinguser.getUserName()).containsAll(
+				userNames)) {
+			throwUnauthorizedToManageRoles(actinguser, "remove", sub);
+		}
+		final Map<UserName, Optional<AuthException>> ret = new HashMap<>();
+		final Set<UserName> update = new HashSet<>(userNames);
+		if (update.remove(UserName.ROOT)) {
+			ret.put(UserName.ROOT, Optional.of(
+					new UnauthorizedException("Cannot change ROOT roles")));
+		}
+		final Set<UserName> missing = storage.updateRoles(
+				update, addRoles, removeRoles, addCustomRoles, removeCustomRoles);
+		for (final UserName u: update) {
+			if (missing.contains(u)) {
+				ret.put(u, Optional.of(new NoSuchUserException(u.getName())));
+			} else {
+				ret.put(u, Optional.absent());
+				logRoleUpdate(reqs, actinguser.getUserName(), u, addRoles, removeRoles);
+				logCustomRoleUpdate(reqs, actinguser.getUserName(), u, addCustomRoles,
+						removeCustomRoles);
+			}
+		}
+		return ret;
+	}
+
 	/** Get an ordered list of the supported and enabled identity providers.
 	 * @return the identity provider names.
 	 * @throws AuthStorageException if an error occurred accessing the storage system.
@@ -1587,6 +1978,19 @@ public class Authentication {
 		return provs;
 	}
 	
+	/** Get the status of the circuit breaker and concurrency limit for each identity provider,
+	 * whether the provider is enabled or not.
+	 * @return a mapping of identity provider name to status. The map is case insensitive.
+	 */
+	public SortedMap<String, GuardedIdentityProvider.Status> getIdentityProviderStatus() {
+		final SortedMap<String, GuardedIdentityProvider.Status> ret =
+				new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+		for (final Entry<String, IdentityProvider> e: idProviderSet.entrySet()) {
+			ret.put(e.getKey(), ((GuardedIdentityProvider) e.getValue()).getStatus());
+		}
+		return ret;
+	}
+	
 	// looks up the provider, case insensitive 
 	private IdentityProvider getIdentityProvider(final String provider)
 			throws NoSuchIdentityProviderException, AuthStorageException {
@@ -2244,22 +2648,123 @@ public class Authentication {
 	}
 	
 	/** Remove a policy ID from all users. Primarily used to remove policy IDs that may have been
-	 * added in error.
+	 * added in error. The policy ID is removed by a background job.
 	 * @param token the user's token.
 	 * @param policyID the policyID to remove.
+	 * @return the job that will remove the policy ID.
 	 * @throws InvalidTokenException if the token is invalid.
 	 * @throws UnauthorizedException if the user is not authorized to remove policy IDs or the
 	 * token is not a login token.
 	 * @throws AuthStorageException if an error occurred accessing the storage system.
 	 */
-	public void removePolicyID(final IncomingToken token, final PolicyID policyID)
+	public Job removePolicyID(final IncomingToken token, final PolicyID policyID)
 			throws InvalidTokenException, UnauthorizedException, AuthStorageException {
 		nonNull(policyID, "policyID");
-		final AuthUser admin = getUser(token, new OpReqs("remove policy ID {}", policyID.getName())
-				.types(TokenType.LOGIN).roles(Role.ADMIN));
-		storage.removePolicyID(policyID);
-		logInfo("Admin {} removed policy ID {} from the system", admin.getUserName().getName(),
-				policyID.getName());
+		final OpReqs reqs = new OpReqs("remove policy ID {}", policyID.getName())
+				.types(TokenType.LOGIN).roles(Role.ADMIN);
+		final AuthUser admin = getUser(token, reqs);
+		final Job job = submitJob(Job.getBuilder(randGen.randomUUID(),
+				JobType.REMOVE_POLICY_ID, admin.getUserName(), clock.instant())
+				.withTarget(policyID.getName()));
+		logInfo(reqs, "Admin {} removed policy ID {} from the system in job {}",
+				admin.getUserName().getName(), policyID.getName(), job.getId());
+		return job;
+	}
+	
+	private Job submitJob(final Job.Builder job) throws AuthStorageException {
+		final Job j = job.build();
+		storage.createJob(j);
+		return j;
+	}
+	
+	/** Get a background job.
+	 * @param token a token for a user with the administrator, create administrator, or root
+	 * role.
+	 * @param id the ID of the job.
+	 * @return the job.
+	 * @throws InvalidTokenException if the token is invalid.
+	 * @throws UnauthorizedException if the user account associated with the token does not have
+	 * an appropriate role or the token is not a login token.
+	 * @throws NoSuchJobException if there is no job with the given ID.
+	 * @throws AuthStorageException if an error occurred accessing the storage system.
+	 */
+	public Job getJob(final IncomingToken token, final UUID id)
+			throws InvalidTokenException, UnauthorizedException, NoSuchJobException,
+			AuthStorageException {
+		nonNull(id, "id");
+		getUser(token, new OpReqs("get job {}", id).types(TokenType.LOGIN)
+				.roles(Role.ROOT, Role.CREATE_ADMIN, Role.ADMIN));
+		return storage.getJob(id);
+	}
+	
+	/** Get the most recently submitted background jobs, newest first.
+	 * @param token a token for a user with the administrator, create administrator, or root
+	 * role.
+	 * @return the jobs.
+	 * @throws InvalidTokenException if the token is invalid.
+	 * @throws UnauthorizedException if the user account associated with the token does not have
+	 * an appropriate role or the token is not a login token.
+	 * @throws AuthStorageException if an error occurred accessing the storage system.
+	 */
+	public List<Job> getJobs(final IncomingToken token)
+			throws InvalidTokenException, UnauthorizedException, AuthStorageException {
+		getUser(token, new OpReqs("get jobs").types(TokenType.LOGIN)
+				.roles(Role.ROOT, Role.CREATE_ADMIN, Role.ADMIN));
+		return storage.getJobs(MAX_RETURNED_JOBS);
+	}
+	
+	/** Cancel a queued or running background job. A running job stops after the current batch.
+	 * Records already processed by the job are not restored.
+	 * @param token a token for a user with the administrator, create administrator, or root
+	 * role.
+	 * @param id the ID of the job.
+	 * @return the job.
+	 * @throws InvalidTokenException if the token is invalid.
+	 * @throws UnauthorizedException if the user account associated with the token does not have
+	 * an appropriate role or the token is not a login token.
+	 * @throws NoSuchJobException if there is no job with the given ID.
+	 * @throws AuthStorageException if an error occurred accessing the storage system.
+	 */
+	public Job cancelJob(final IncomingToken token, final UUID id)
+			throws InvalidTokenException, UnauthorizedException, NoSuchJobException,
+			AuthStorageException {
+		nonNull(id, "id");
+		final OpReqs reqs = new OpReqs("cancel job {}", id)
+				.types(TokenType.LOGIN).roles(Role.ROOT, Role.CREATE_ADMIN, Role.ADMIN);
+		final AuthUser admin = getUser(token, reqs);
+		if (storage.cancelJob(id)) {
+			logInfo(reqs, "Admin {} canceled job {}", admin.getUserName().getName(), id);
+		}
+		return storage.getJob(id);
+	}
+	
+	/** Get an exporter for the users and token metadata in the system. The token is checked when
+	 * this method is called, so any authorization errors occur before the export starts.
+	 * @param token a token for a user with the administrator, create administrator, or root
+	 * role.
+	 * @return the exporter.
+	 * @throws InvalidTokenException if the token is invalid.
+	 * @throws UnauthorizedException if the user account associated with the token does not have
+	 * an appropriate role or the token is not a login token.
+	 * @throws AuthStorageException if an error occurred accessing the storage system.
+	 */
+	public Exporter getExporter(final IncomingToken token)
+			throws InvalidTokenException, UnauthorizedException, AuthStorageException {
+		final OpReqs reqs = new OpReqs("export data").types(TokenType.LOGIN)
+				.roles(Role.ROOT, Role.CREATE_ADMIN, Role.ADMIN);
+		getUser(token, reqs);
+		return new Exporter(storage, auditLogger, Optional.of(reqs.token));
+	}
+	
+	/** Get an exporter for the users and token metadata in the system without checking
+	 * authorization.
+	 * 
+	 * This method should not be exposed in public APIs.
+	 * 
+	 * @return the exporter.
+	 */
+	public Exporter getExporter() {
+		return new Exporter(storage, auditLogger, Optional.absent());
 	}
 	
 	/** Start the account linking process.
@@ -2278,7 +2783,8 @@ public class Authentication {
 		if (lifetimeSec < 60) {
 			throw new IllegalArgumentException("lifetimeSec must be at least 60");
 		}
-		final AuthUser user = getUser(token, new OpReqs("start link").types(TokenType.LOGIN));
+		final OpReqs reqs = new OpReqs("start link").types(TokenType.LOGIN);
+		final AuthUser user = getUser(token, reqs);
 		if (user.isLocal()) {
 			// the ui shouldn't allow local users to link accounts, so ok to throw this
 			throw new LinkFailedException("Cannot link identities to local account " +
@@ -2288,7 +2794,7 @@ public class Authentication {
 				randGen.randomUUID(), clock.instant(), lifetimeSec * 1000L)
 				.link(user.getUserName());
 		final TemporaryToken tt = storeTemporarySessionData(data);
-		logInfo("Created temporary link token {} associated with user {}",
+		logInfo(reqs, "Created temporary link token {} associated with user {}",
 				tt.getId(), user.getUserName().getName());
 		return tt;
 	}
@@ -2421,7 +2927,7 @@ public class Authentication {
 			throws AuthStorageException, LinkFailedException {
 		try {
 			final boolean linked = storage.link(userName, remoteIdentity);
-			logSingleLinkResult(userName, remoteIdentity, linked);
+			logSingleLinkResult(new OpReqs("complete link"), userName, remoteIdentity, linked);
 			return new LinkToken();
 		} catch (NoSuchUserException e) {
 			throw new AuthStorageException(
@@ -2443,16 +2949,17 @@ public class Authentication {
 	}
 
 	private void logSingleLinkResult(
+			final OpReqs reqs,
 			final UserName userName,
 			final RemoteIdentity remoteIdentity,
 			final boolean linked) {
 		final RemoteIdentityID id = remoteIdentity.getRemoteID();
 		if (linked) {
-			logInfo("Linked identity {} {} {} {} to user {}", id.getID(), id.getProviderName(),
-					id.getProviderIdentityId(), remoteIdentity.getDetails().getUsername(),
-					userName.getName());
+			logInfo(reqs, "Linked identity {} {} {} {} to user {}",
+					id.getID(), id.getProviderName(), id.getProviderIdentityId(),
+					remoteIdentity.getDetails().getUsername(), userName.getName());
 		} else {
-			logInfo("Identity {} {} {} {} is already linked to user {}", id.getID(),
+			logInfo(reqs, "Identity {} {} {} {} is already linked to user {}", id.getID(),
 					id.getProviderName(), id.getProviderIdentityId(),
 					remoteIdentity.getDetails().getUsername(), userName.getName());
 		}
@@ -2491,28 +2998,32 @@ public class Authentication {
 			final IncomingToken linkToken)
 			throws InvalidTokenException, AuthStorageException, LinkFailedException,
 				DisabledUserException, UnauthorizedException, IdentityProviderErrorException {
-		final AuthUser u = getUser(token, new OpReqs("get link state").types(TokenType.LOGIN));
+		final OpReqs reqs = new OpReqs("get link state").types(TokenType.LOGIN);
+		final AuthUser u = getUser(token, reqs);
 		if (u.isLocal()) {
 			throw new LinkFailedException("Cannot link identities to local account " +
 					u.getUserName().getName());
 		}
 		final TemporarySessionData tids = getTemporaryIdentities(
 				Optional.of(u.getUserName()), Operation.LINKIDENTS, linkToken);
-		checkIdentityAccess(u.getUserName(), tids);
+		checkIdentityAccess(reqs, u.getUserName(), tids);
 		final LinkIdentities linkIdentities = getLinkIdentities(u, tids);
-		logInfo("User {} accessed temporary link token {} with {} identities",
+		logInfo(reqs, "User {} accessed temporary link token {} with {} identities",
 				u.getUserName().getName(), tids.getId(), tids.getIdentities().get().size());
 		return linkIdentities;
 	}
 	
 	// assumes tids is a LINKIDENT operation and therefore has a user
-	private void checkIdentityAccess(final UserName name, final TemporarySessionData tids)
+	private void checkIdentityAccess(
+			final OpReqs reqs,
+			final UserName name,
+			final TemporarySessionData tids)
 			throws UnauthorizedException {
 		if (Optional.of(name).equals(tids.getUser())) {
 			return; // all good
 		} else {
-			logErr("During the account linking process user {} attempted to access temporary " +
-					"token {} which is owned by user {}.",
+			logErr(reqs, "During the account linking process user {} attempted to access " +
+					"temporary token {} which is owned by user {}.",
 					name.getName(), tids.getId(), tids.getUser().get().getName());
 			throw new UnauthorizedException(String.format(
 					"User %s may not access this identity set", name.getName()));
@@ -2565,8 +3076,8 @@ public class Authentication {
 				InvalidTokenException, IdentityLinkedException, UnauthorizedException,
 				MissingParameterException, IdentityProviderErrorException {
 		// checks user isn't disabled
-		final AuthUser au = getUser(
-				token, new OpReqs("link identity {}", identityID).types(TokenType.LOGIN));
+		final OpReqs reqs = new OpReqs("link identity {}", identityID).types(TokenType.LOGIN);
+		final AuthUser au = getUser(token, reqs);
 		if (au.isLocal()) {
 			throw new LinkFailedException("Cannot link identities to local account " +
 					au.getUserName().getName());
@@ -2574,7 +3085,7 @@ public class Authentication {
 		final TemporarySessionData tids = getTemporaryIdentities(
 				Optional.of(au.getUserName()), Operation.LINKIDENTS, linkToken);
 		storage.deleteTemporarySessionData(linkToken.getHashedToken());
-		checkIdentityAccess(au.getUserName(), tids);
+		checkIdentityAccess(reqs, au.getUserName(), tids);
 		final Set<RemoteIdentity> ids = tids.getIdentities().get();
 		final Optional<RemoteIdentity> ri = getIdentity(identityID, ids);
 		if (!ri.isPresent()) {
@@ -2583,7 +3094,7 @@ public class Authentication {
 					identityID));
 		}
 		final boolean linked = link(au.getUserName(), ri.get());
-		logSingleLinkResult(au.getUserName(), ri.get(), linked);
+		logSingleLinkResult(reqs, au.getUserName(), ri.get(), linked);
 	}
 	
 	/** Complete the OAuth2 account linking process by linking all available identities to the
@@ -2606,8 +3117,8 @@ public class Authentication {
 			throws InvalidTokenException, AuthStorageException, DisabledUserException,
 			UnauthorizedException, LinkFailedException, IdentityProviderErrorException {
 		// checks user isn't disabled
-		final AuthUser au = getUser(
-				token, new OpReqs("link all identities").types(TokenType.LOGIN));
+		final OpReqs reqs = new OpReqs("link all identities").types(TokenType.LOGIN);
+		final AuthUser au = getUser(token, reqs);
 		if (au.isLocal()) {
 			throw new LinkFailedException("Cannot link identities to local account " +
 					au.getUserName().getName());
@@ -2615,15 +3126,16 @@ public class Authentication {
 		final TemporarySessionData tids = getTemporaryIdentities(
 				Optional.of(au.getUserName()), Operation.LINKIDENTS, linkToken);
 		storage.deleteTemporarySessionData(linkToken.getHashedToken());
-		checkIdentityAccess(au.getUserName(), tids);
+		checkIdentityAccess(reqs, au.getUserName(), tids);
 		final Set<RemoteIdentity> identities = new HashSet<>(tids.getIdentities().get());
 		filterLinkCandidates(identities);
 		final int linked = link(au.getUserName(), identities);
 		if (linked > 0) {
-			logInfo("Linked all {} available identities to user {}",
+			logInfo(reqs, "Linked all {} available identities to user {}",
 					linked, au.getUserName().getName());
 		} else {
-			logInfo("User {} had no available identities to link", au.getUserName().getName());
+			logInfo(reqs, "User {} had no available identities to link",
+					au.getUserName().getName());
 		}
 	}
 	
@@ -2685,8 +3197,8 @@ public class Authentication {
 				DisabledUserException, UnauthorizedException, NoSuchIdentityException,
 				MissingParameterException {
 		checkString(identityID, "identityID");
-		final AuthUser au = getUser(
-				token, new OpReqs("unlink identity {}", identityID).types(TokenType.LOGIN));
+		final OpReqs reqs = new OpReqs("unlink identity {}", identityID).types(TokenType.LOGIN);
+		final AuthUser au = getUser(token, reqs);
 		if (au.isLocal()) {
 			throw new UnLinkFailedException(String.format(
 					"Local user %s doesn't have remote identities", au.getUserName().getName()));
@@ -2695,7 +3207,8 @@ public class Authentication {
 			// throws no such id exception if not already linked
 			storage.unlink(au.getUserName(), identityID);
 			// could get the identity from the AuthUser and log more info, but meh for now
-			logInfo("Unlinked identity {} from user {}", identityID, au.getUserName().getName());
+			logInfo(reqs, "Unlinked identity {} from user {}",
+					identityID, au.getUserName().getName());
 		} catch (NoSuchUserException e) {
 			throw new AuthStorageException("User magically disappeared from database: " +
 					au.getUserName().getName());
@@ -2731,13 +3244,14 @@ public class Authentication {
 			throws InvalidTokenException, AuthStorageException, UnauthorizedException {
 		nonNull(update, "update");
 		// should check the token before returning even if there's no update
-		final StoredToken ht = getToken(token, new OpReqs("update user").types(TokenType.LOGIN));
+		final OpReqs reqs = new OpReqs("update user").types(TokenType.LOGIN);
+		final StoredToken ht = getToken(token, reqs);
 		if (!update.hasUpdates()) {
 			return; //noop
 		}
 		try {
 			storage.updateUser(ht.getUserName(), update);
-			logUserUpdate(ht.getUserName(), update);
+			logUserUpdate(reqs, ht.getUserName(), update);
 		} catch (NoSuchUserException e) {
 			throw new RuntimeException("There seems to be an error in the " +
 					"storage system. Token was valid, but no user", e);
@@ -2745,7 +3259,10 @@ public class Authentication {
 	}
 
 	// assumes there's at least 1 update
-	private void logUserUpdate(final UserName userName, final UserUpdate update) {
+	private void logUserUpdate(
+			final OpReqs reqs,
+			final UserName userName,
+			final UserUpdate update) {
 		final StringBuilder sb = new StringBuilder();
 		final List<String> args = new LinkedList<>();
 		sb.append("Updated user details for user {}.");
@@ -2758,7 +3275,7 @@ public class Authentication {
 			sb.append(" Email: {}");
 			args.add(update.getEmail().get().getAddress());
 		}
-		logInfo(sb.toString(), args.toArray());
+		logInfo(reqs, sb.toString(), args.toArray());
 		
 	}
 
@@ -2784,8 +3301,9 @@ public class Authentication {
 			IllegalParameterException, NoSuchUserException, MissingParameterException {
 		nonNull(userName, "userName");
 		checkString(reason, "reason", 1000);
-		final AuthUser admin = getUser(token, new OpReqs("disable account {}", userName.getName())
-				.types(TokenType.LOGIN).roles(Role.ROOT, Role.CREATE_ADMIN, Role.ADMIN));
+		final OpReqs reqs = new OpReqs("disable account {}", userName.getName())
+				.types(TokenType.LOGIN).roles(Role.ROOT, Role.CREATE_ADMIN, Role.ADMIN);
+		final AuthUser admin = getUser(token, reqs);
 		if (userName.isRoot() && !admin.isRoot()) {
 			throw new UnauthorizedException(String.format(
 					"User %s cannot disable the root account", admin.getUserName().getName()));
@@ -2799,7 +3317,8 @@ public class Authentication {
 		 * as well as a backup
 		 */
 		storage.deleteTokens(userName);
-		logInfo("Admin {} disabled account {}", admin.getUserName().getName(), userName.getName());
+		logInfo(reqs, "Admin {} disabled account {}",
+				admin.getUserName().getName(), userName.getName());
 	}
 	
 	/** Enable an account.
@@ -2817,15 +3336,17 @@ public class Authentication {
 			throws UnauthorizedException, InvalidTokenException, AuthStorageException,
 				NoSuchUserException {
 		nonNull(userName, "userName");
-		final AuthUser admin = getUser(token, new OpReqs("enable account {}", userName.getName())
-				.types(TokenType.LOGIN).roles(Role.ROOT, Role.CREATE_ADMIN, Role.ADMIN));
+		final OpReqs reqs = new OpReqs("enable account {}", userName.getName())
+				.types(TokenType.LOGIN).roles(Role.ROOT, Role.CREATE_ADMIN, Role.ADMIN);
+		final AuthUser admin = getUser(token, reqs);
 		if (userName.isRoot()) {
 			throw new UnauthorizedException(String.format(
 					"User %s cannot enable the root user via this method",
 					admin.getUserName().getName()));
 		}
 		storage.enableAccount(userName, admin.getUserName());
-		logInfo("Admin {} enabled account {}", admin.getUserName().getName(), userName.getName());
+		logInfo(reqs, "Admin {} enabled account {}",
+				admin.getUserName().getName(), userName.getName());
 	}
 	
 	/** Update the server configuration.
@@ -2845,8 +3366,9 @@ public class Authentication {
 			throws InvalidTokenException, UnauthorizedException,
 			AuthStorageException, NoSuchIdentityProviderException {
 		nonNull(update, "update");
-		final AuthUser admin = getUser(token, new OpReqs("update configuration")
-				.types(TokenType.LOGIN).roles(Role.ADMIN));
+		final OpReqs reqs = new OpReqs("update configuration")
+				.types(TokenType.LOGIN).roles(Role.ADMIN);
+		final AuthUser admin = getUser(token, reqs);
 		for (final String provider: update.getProviders().keySet()) {
 			// since idProviderSet is case insensitive
 			final IdentityProvider idp = idProviderSet.get(provider);
@@ -2856,36 +3378,39 @@ public class Authentication {
 		}
 		storage.updateConfig(update, true);
 		cfg.updateConfig();
-		logConfigurationUpdate(admin.getUserName(), update);
+		logConfigurationUpdate(reqs, admin.getUserName(), update);
 	}
 	
 	private <T extends ExternalConfig> void logConfigurationUpdate(
+			final OpReqs reqs,
 			final UserName userName,
 			final AuthConfigUpdate<T> update) {
 		final String name = userName.getName();
 		
 		if (update.getLoginAllowed().isPresent()) {
-			logInfo("Admin {} set non-admin login allowed to {}",
+			logInfo(reqs, "Admin {} set non-admin login allowed to {}",
 					name, update.getLoginAllowed().get());
 		}
 		
 		final List<TokenLifetimeType> lifesorted = update.getTokenLifetimeMS().keySet().stream()
 				.sorted().collect(Collectors.toList());
 		for (final TokenLifetimeType lifetype: lifesorted) {
-			logInfo("Admin {} set lifetime for token type {} to {}",
+			logInfo(reqs, "Admin {} set lifetime for token type {} to {}",
 					name, lifetype, update.getTokenLifetimeMS().get(lifetype));
 		}
 		
 		final List<String> providersSorted = update.getProviders().keySet().stream().sorted()
 				.collect(Collectors.toList());
 		for (final String provider: providersSorted) {
-			logConfigurationUpdateForProvider(name, provider, update.getProviders().get(provider));
+			logConfigurationUpdateForProvider(
+					reqs, name, provider, update.getProviders().get(provider));
 		}
 		
-		logConfigurationUpdateExternal(name, update.getExternalConfig());
+		logConfigurationUpdateExternal(reqs, name, update.getExternalConfig());
 	}
 
 	private <T extends ExternalConfig> void logConfigurationUpdateExternal(
+			final OpReqs reqs,
 			final String name,
 			final Optional<T> externalConfig) {
 		if (!externalConfig.isPresent()) {
@@ -2897,14 +3422,16 @@ public class Authentication {
 			final ConfigItem<String, Action> item = ext.get(key);
 			final Action action = item.getAction();
 			if (action.isRemove()) {
-				logInfo("Admin {} removed external config key {}", name, key);
+				logInfo(reqs, "Admin {} removed external config key {}", name, key);
 			} else if (action.isSet()) {
-				logInfo("Admin {} set external config key {} to {}", name, key, item.getItem());
+				logInfo(reqs, "Admin {} set external config key {} to {}",
+						name, key, item.getItem());
 			}
 		}
 	}
 
 	private void logConfigurationUpdateForProvider(
+			final OpReqs reqs,
 			final String adminName,
 			final String provider,
 			final ProviderUpdate update) {
@@ -2928,7 +3455,7 @@ public class Authentication {
 			sb.append(" Force link choice: {}");
 			args.add(update.getForceLinkChoice().get());
 		}
-		logInfo(sb.toString(), args.toArray());
+		logInfo(reqs, sb.toString(), args.toArray());
 	}
 
 	/** Reset the service configuration to the initial configuration supplied at startup.
@@ -2940,11 +3467,13 @@ public class Authentication {
 	 */
 	public void resetConfigToDefault(final IncomingToken token)
 			throws InvalidTokenException, UnauthorizedException, AuthStorageException {
-		final AuthUser admin = getUser(token, new OpReqs("reset configuration")
-				.types(TokenType.LOGIN).roles(Role.ADMIN));
+		final OpReqs reqs = new OpReqs("reset configuration")
+				.types(TokenType.LOGIN).roles(Role.ADMIN);
+		final AuthUser admin = getUser(token, reqs);
 		storage.updateConfig(buildDefaultConfig(), true);
 		cfg.updateConfig();
-		logInfo("Admin {} reset the configuration to defaults", admin.getUserName().getName());
+		logInfo(reqs, "Admin {} reset the configuration to defaults",
+				admin.getUserName().getName());
 	}
 
 	private AuthConfigUpdate<ExternalConfig> buildDefaultConfig() {
@@ -2981,14 +3510,15 @@ public class Authentication {
 			throws InvalidTokenException, UnauthorizedException,
 			AuthStorageException, ExternalConfigMappingException {
 		nonNull(mapper, "mapper");
-		final AuthUser admin = getUser(token, new OpReqs("get configuration")
-				.types(TokenType.LOGIN).roles(Role.ADMIN));
+		final OpReqs reqs = new OpReqs("get configuration")
+				.types(TokenType.LOGIN).roles(Role.ADMIN);
+		final AuthUser admin = getUser(token, reqs);
 		final AuthConfigSet<CollectingExternalConfig> acs = cfg.getConfig();
 		final AuthConfigSetWithUpdateTime<T> config = new AuthConfigSetWithUpdateTime<T>(
 				acs.getCfg().filterProviders(idProviderSet.keySet()),
 				mapper.fromMap(acs.getExtcfg().getMap()),
 				cfgUpdateIntervalMillis);
-		logInfo("Admin {} accessed the configuration", admin.getUserName().getName());
+		logInfo(reqs, "Admin {} accessed the configuration", admin.getUserName().getName());
 		return config;
 	}
 	
@@ -0,0 +1,136 @@
+package us.kbase.auth2.lib;
+
+import static us.kbase.auth2.lib.Utils.nonNull;
+
+import java.io.IOException;
+
+import org.apache.commons.lang3.ArrayUtils;
+import org.apache.commons.lang3.StringUtils;
+
+import com.google.common.base.Optional;
+
+import us.kbase.auth2.lib.audit.AuditEvent;
+import us.kbase.auth2.lib.audit.AuditLogger;
+import us.kbase.auth2.lib.storage.AuthStorage;
+import us.kbase.auth2.lib.storage.exceptions.AuthStorageException;
+import us.kbase.auth2.lib.token.StoredToken;
+import us.kbase.auth2.lib.user.AuthUser;
+
+/** Exports the users and token metadata in the authentication system, e.g. for analytics or
+ * backups.
+ *
+ * Each export reads the data through a single database cursor and passes the records to a
+ * handler one at a time, so the memory used is independent of the amount of data exported.
+ * The number of records exported, or the failure of an export, is written to the audit log.
+ *
+ * Instances are obtained from {@link Authentication#getExporter(
+ * us.kbase.auth2.lib.token.IncomingToken)} or {@link Authentication#getExporter()}.
+ * @author gaprice@lbl.gov
+ *
+ */
+public class Exporter {
+	
+	/** Handles records as they are exported.
+	 * @author gaprice@lbl.gov
+	 *
+	 * @param <T> the type of the record.
+	 */
+	public interface Handler<T> {
+		
+		/** Handle an exported record.
+		 * @param record the record.
+		 * @throws IOException if an IO error occurs while handling the record.
+		 */
+		void export(T record) throws IOException;
+	}
+	
+	private final AuthStorage storage;
+	private final AuditLogger auditLogger;
+	private final Optional<StoredToken> token;
+	
+	Exporter(
+			final AuthStorage storage,
+			final AuditLogger auditLogger,
+			final Optional<StoredToken> token) {
+		this.storage = storage;
+		this.auditLogger = auditLogger;
+		this.token = token;
+	}
+	
+	/** Export all the users in the system in user name order, including local users and the root
+	 * user. Password hashes and test mode users are not exported.
+	 * @param handler the handler for the users.
+	 * @throws AuthStorageException if an error occurred accessing the storage system.
+	 * @throws IOException if the handler throws an IO exception.
+	 */
+	public void exportUsers(final Handler<AuthUser> handler)
+			throws AuthStorageException, IOException {
+		nonNull(handler, "handler");
+		export("users", handler, h -> storage.exportUsers(h));
+	}
+	
+	/** Export the metadata for all the tokens in the system. Token hashes and test mode tokens are
+	 * not exported.
+	 * @param handler the handler for the tokens.
+	 * @throws AuthStorageException if an error occurred accessing the storage system.
+	 * @throws IOException if the handler throws an IO exception.
+	 */
+	public void exportTokens(final Handler<StoredToken> handler)
+			throws AuthStorageException, IOException {
+		nonNull(handler, "handler");
+		export("tokens", handler, h -> storage.exportTokens(h));
+	}
+	
+	private interface StorageExport<T> {
+		void export(Handler<T> handler) throws AuthStorageException, IOException;
+	}
+	
+	private static class CountingHandler<T> implements Handler<T> {
+		
+		private final Handler<T> handler;
+		private long count = 0;
+		
+		private CountingHandler(final Handler<T> handler) {
+			this.handler = handler;
+		}
+		
+		@Override
+		public void export(final T record) throws IOException {
+			handler.export(record);
+			count++;
+		}
+	}
+	
+	private <T> void export(
+			final String data,
+			final Handler<T> handler,
+			final StorageExport<T> export)
+			throws AuthStorageException, IOException {
+		final CountingHandler<T> counter = new CountingHandler<>(handler);
+		try {
+			export.export(counter);
+		} catch (AuthStorageException | IOException | RuntimeException e) {
+			log(AuditEvent.Level.ERROR, data, "failed to export {} after {} records: {}",
+					data, counter.count, e.getMessage());
+			throw e;
+		}
+		log(AuditEvent.Level.INFO, data, "exported {} {}", counter.count, data);
+	}
+	
+	private void log(
+			final AuditEvent.Level level,
+			final String data,
+			final String format,
+			final Object... params) {
+		final AuditEvent.Builder b;
+		if (token.isPresent()) {
+			b = AuditEvent.getBuilder(level, "Admin {} " + format, ArrayUtils.addAll(
+					new Object[] {token.get().getUserName().getName()}, params))
+					.withNullableUser(token.get().getUserName())
+					.withNullableTokenID(token.get().getId());
+		} else {
+			b = AuditEvent.getBuilder(level, StringUtils.capitalize(format), params);
+		}
+		auditLogger.log(b.withNullableOperation("export " + data).build());
+	}
+}
@@ -1,8 +1,12 @@
 package us.kbase.auth2.lib;
 
-/** Wrapper around credentials for a user, consisting of a hashed password and a salt used to
- * hash that password.
- * 
+import static us.kbase.auth2.lib.Utils.checkStringNoCheckedException;
+
+import us.kbase.auth2.cryptutils.PasswordCrypt;
+
+/** Wrapper around credentials for a user, consisting of a hashed password, a salt used to
+ * hash that password, and the algorithm and number of iterations used to create the hash.
+ *
  * Note that the password and salt are not copied in the constructor and therefore changes to the
  * input arrays will be reflected in the class. For this reason equals() and hashCode() are not
  * implemented.
@@ -10,15 +14,34 @@ package us.kbase.auth2.lib;
  *
  */
 public class PasswordHashAndSalt {
-	
+
 	final byte[] passwordHash;
 	final byte[] salt;
-	
+	final String algorithm;
+	final int iterations;
+
+	/** Create user credentials with the default hash algorithm and number of iterations, as
+	 * defined in {@link PasswordCrypt}. Note this class can be mutated by manipulating the input
+	 * arrays.
+	 * @param passwordHash the hash of the a user's password.
+	 * @param salt the salt used when hashing the password.
+	 */
+	public PasswordHashAndSalt(final byte[] passwordHash, final byte[] salt) {
+		this(passwordHash, salt, PasswordCrypt.DEFAULT_ALGORITHM,
+				PasswordCrypt.DEFAULT_ITERATIONS);
+	}
+
 	/** Create user credentials. Note this class can be mutated by manipulating the input arrays.
 	 * @param passwordHash the hash of the a user's password.
 	 * @param salt the salt used when hashing the password.
+	 * @param algorithm the algorithm used to hash the password.
+	 * @param iterations the number of iterations used when hashing the password.
 	 */
-	public PasswordHashAndSalt(byte[] passwordHash, byte[] salt) {
+	public PasswordHashAndSalt(
+			final byte[] passwordHash,
+			final byte[] salt,
+			final String algorithm,
+			final int iterations) {
 		// what's the right # here? Have to rely on user to some extent
 		if (passwordHash == null || passwordHash.length < 10) {
 			throw new IllegalArgumentException("passwordHash missing or too small");
@@ -26,8 +49,14 @@ public class PasswordHashAndSalt {
 		if (salt == null || salt.length < 2) {
 			throw new IllegalArgumentException("salt missing or too small");
 		}
+		checkStringNoCheckedException(algorithm, "algorithm");
+		if (iterations < 1) {
+			throw new IllegalArgumentException("iterations must be at least 1");
+		}
 		this.passwordHash = passwordHash;
 		this.salt = salt;
+		this.algorithm = algorithm;
+		this.iterations = iterations;
 	}
 
 	/** Get the password hash. Note that mutating the returned array will mutate this class.
@@ -43,7 +72,21 @@ public class PasswordHashAndSalt {
 	public byte[] getSalt() {
 		return salt;
 	}
-	
+
+	/** Get the algorithm used to hash the password.
+	 * @return the algorithm.
+	 */
+	public String getAlgorithm() {
+		return algorithm;
+	}
+
+	/** Get the number of iterations used when hashing the password.
+	 * @return the number of iterations.
+	 */
+	public int getIterations() {
+		return iterations;
+	}
+
 	/** Zero the contents of the hash and salt arrays. */
 	public void clear() {
 		Utils.clear(passwordHash);
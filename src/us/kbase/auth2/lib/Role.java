@@ -2,6 +2,7 @@ package us.kbase.auth2.lib;
 
 import java.util.Arrays;
 import java.util.Collections;
+import java.util.EnumSet;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.Set;
@@ -27,9 +28,12 @@ public enum Role {
 	SERV_TOKEN		("ServToken", "Create server tokens");
 	
 	private static final Map<String, Role> ROLE_MAP = new HashMap<>();
+	// bitmasks of the roles included in each role, indexed by ordinal
+	private static final int[] INCLUDED_MASKS = new int[Role.values().length];
 	static {
 		for (final Role r: Role.values()) {
 			ROLE_MAP.put(r.getID(), r);
+			INCLUDED_MASKS[r.ordinal()] = getMask(r.included());
 		}
 	}
 	
@@ -54,6 +58,54 @@ public enum Role {
 	public String getDescription() {
 		return description;
 	}
+	
+	/** Get the bitmask for the role. Each role has a distinct bit, and a set of roles is
+	 * represented by the bitwise OR of the roles' masks.
+	 * @return the role bitmask.
+	 */
+	public int getMask() {
+		return 1 << ordinal();
+	}
+	
+	/** Get the bitmask for a set of roles.
+	 * @param roles the roles.
+	 * @return the bitwise OR of the masks of the roles.
+	 */
+	public static int getMask(final Set<Role> roles) {
+		int mask = 0;
+		for (final Role r: roles) {
+			mask |= r.getMask();
+		}
+		return mask;
+	}
+	
+	/** Get the roles in a bitmask.
+	 * @param mask the bitmask.
+	 * @return the roles in the bitmask.
+	 */
+	public static Set<Role> fromMask(final int mask) {
+		final Set<Role> roles = EnumSet.noneOf(Role.class);
+		for (final Role r: Role.values()) {
+			if ((mask & r.getMask()) != 0) {
+				roles.add(r);
+			}
+		}
+		return roles;
+	}
+	
+	/** Get the bitmask of the roles effectively possessed by a user with a set of roles, which
+	 * consists of the roles and all the roles they include.
+	 * @param possessed the roles possessed by the user.
+	 * @return the effective role bitmask.
+	 * @see #included()
+	 */
+	public static int getEffectiveMask(final Set<Role> possessed) {
+		int mask = 0;
+		for (final Role r: possessed) {
+			mask |= INCLUDED_MASKS[r.ordinal()];
+		}
+		return mask;
+	}
 
 	/** Check if a role ID is a valid role ID.
 	 * @param id the role ID.
@@ -126,9 +178,15 @@ public enum Role {
 	 * @return true if this role is included in one of the roles in the set.
 	 */
 	public boolean isSatisfiedBy(final Set<Role> possessed) {
-		final Set<Role> included = possessed.stream().flatMap(r -> r.included().stream())
-				.collect(Collectors.toSet());
-		return included.contains(this);
-		
+		return isSatisfiedBy(getEffectiveMask(possessed));
+	}
+	
+	/** Returns true if this role is in an effective role bitmask.
+	 * @param effectiveMask the effective role bitmask, as returned by
+	 * {@link #getEffectiveMask(Set)}.
+	 * @return true if this role is included in one of the roles represented by the bitmask.
+	 */
+	public boolean isSatisfiedBy(final int effectiveMask) {
+		return (effectiveMask & getMask()) != 0;
 	}
 }
@@ -0,0 +1,242 @@
+package us.kbase.auth2.lib.audit;
+
+import static us.kbase.auth2.lib.Utils.checkStringNoCheckedException;
+import static us.kbase.auth2.lib.Utils.nonNull;
+
+import java.util.Arrays;
+import java.util.UUID;
+
+import org.slf4j.helpers.MessageFormatter;
+
+import com.google.common.base.Optional;
+
+import us.kbase.auth2.lib.UserName;
+
+/** An audit event produced by the {@link us.kbase.auth2.lib.Authentication} class, for example
+ * a user creating a token or an admin disabling an account.
+ *
+ * The event message is stored as an SLF4J format string and its arguments, and is only
+ * formatted when the event is written. The arguments must therefore be immutable.
+ *
+ * If the event was produced by an operation authenticated with a token, the event includes the
+ * operation, the name of the user that owns the token, and the token ID.
+ * @author gaprice@lbl.gov
+ *
+ */
+public class AuditEvent {
+	
+	/** The level of an audit event. */
+	public static enum Level {
+		/** An informational event, for example a successful operation. */
+		INFO,
+		/** An error event, for example an unauthorized operation. */
+		ERROR;
+	}
+	
+	private final Level level;
+	private final String format;
+	private final Object[] args;
+	private final Optional<String> operation;
+	private final Optional<UserName> user;
+	private final Optional<UUID> tokenID;
+	
+	private AuditEvent(
+			final Level level,
+			final String format,
+			final Object[] args,
+			final Optional<String> operation,
+			final Optional<UserName> user,
+			final Optional<UUID> tokenID) {
+		this.level = level;
+		this.format = format;
+		this.args = args;
+		this.operation = operation;
+		this.user = user;
+		this.tokenID = tokenID;
+	}
+	
+	/** Get the level of the event.
+	 * @return the level.
+	 */
+	public Level getLevel() {
+		return level;
+	}
+	
+	/** Get the SLF4J format string for the event message.
+	 * @return the format string.
+	 */
+	public String getFormat() {
+		return format;
+	}
+	
+	/** Get the arguments for the event message format string.
+	 * @return the arguments.
+	 */
+	public Object[] getArguments() {
+		return Arrays.copyOf(args, args.length);
+	}
+	
+	/** Get the event message, formatted with its arguments.
+	 * @return the message.
+	 */
+	public String getMessage() {
+		return MessageFormatter.arrayFormat(format, args).getMessage();
+	}
+	
+	/** Get the operation that produced the event, if known.
+	 * @return the operation.
+	 */
+	public Optional<String> getOperation() {
+		return operation;
+	}
+	
+	/** Get the name of the user that requested the operation, if known.
+	 * @return the user name.
+	 */
+	public Optional<UserName> getUser() {
+		return user;
+	}
+	
+	/** Get the ID of the token with which the operation was authenticated, if any.
+	 * @return the token ID.
+	 */
+	public Optional<UUID> getTokenID() {
+		return tokenID;
+	}
+	
+	@Override
+	public int hashCode() {
+		final int prime = 31;
+		int result = 1;
+		result = prime * result + Arrays.hashCode(args);
+		result = prime * result + ((format == null) ? 0 : format.hashCode());
+		result = prime * result + ((level == null) ? 0 : level.hashCode());
+		result = prime * result + ((operation == null) ? 0 : operation.hashCode());
+		result = prime * result + ((tokenID == null) ? 0 : tokenID.hashCode());
+		result = prime * result + ((user == null) ? 0 : user.hashCode());
+		return result;
+	}
+	
+	@Override
+	public boolean equals(Object obj) {
+		if (this == obj) {
+			return true;
+		}
+		if (obj == null) {
+			return false;
+		}
+		if (getClass() != obj.getClass()) {
+			return false;
+		}
+		AuditEvent other = (AuditEvent) obj;
+		if (!Arrays.equals(args, other.args)) {
+			return false;
+		}
+		if (format == null) {
+			if (other.format != null) {
+				return false;
+			}
+		} else if (!format.equals(other.format)) {
+			return false;
+		}
+		if (level != other.level) {
+			return false;
+		}
+		if (operation == null) {
+			if (other.operation != null) {
+				return false;
+			}
+		} else if (!operation.equals(other.operation)) {
+			return false;
+		}
+		if (tokenID == null) {
+			if (other.tokenID != null) {
+				return false;
+			}
+		} else if (!tokenID.equals(other.tokenID)) {
+			return false;
+		}
+		if (user == null) {
+			if (other.user != null) {
+				return false;
+			}
+		} else if (!user.equals(other.user)) {
+			return false;
+		}
+		return true;
+	}
+	
+	/** Get a builder for an audit event.
+	 * @param level the level of the event.
+	 * @param format the SLF4J format string for the event message.
+	 * @param args the arguments for the format string. The arguments must be immutable.
+	 * @return a new builder.
+	 */
+	public static Builder getBuilder(
+			final Level level,
+			final String format,
+			final Object... args) {
+		return new Builder(level, format, args);
+	}
+	
+	/** A builder for an audit event.
+	 * @author gaprice@lbl.gov
+	 *
+	 */
+	public static class Builder {
+		
+		private final Level level;
+		private final String format;
+		private final Object[] args;
+		private Optional<String> operation = Optional.absent();
+		private Optional<UserName> user = Optional.absent();
+		private Optional<UUID> tokenID = Optional.absent();
+		
+		private Builder(final Level level, final String format, final Object[] args) {
+			nonNull(level, "level");
+			nonNull(format, "format");
+			nonNull(args, "args");
+			this.level = level;
+			this.format = format;
+			this.args = Arrays.copyOf(args, args.length);
+		}
+		
+		/** Set the operation that produced the event.
+		 * @param operation the operation, or null if unknown.
+		 * @return this builder.
+		 */
+		public Builder withNullableOperation(final String operation) {
+			if (operation != null) {
+				checkStringNoCheckedException(operation, "operation");
+			}
+			this.operation = Optional.fromNullable(operation);
+			return this;
+		}
+		
+		/** Set the name of the user that requested the operation.
+		 * @param user the user name, or null if unknown.
+		 * @return this builder.
+		 */
+		public Builder withNullableUser(final UserName user) {
+			this.user = Optional.fromNullable(user);
+			return this;
+		}
+		
+		/** Set the ID of the token with which the operation was authenticated.
+		 * @param tokenID the token ID, or null if the operation was not authenticated with a
+		 * token.
+		 * @return this builder.
+		 */
+		public Builder withNullableTokenID(final UUID tokenID) {
+			this.tokenID = Optional.fromNullable(tokenID);
+			return this;
+		}
+		
+		/** Build the event.
+		 * @return the new event.
+		 */
+		public AuditEvent build() {
+			return new AuditEvent(level, format, args, operation, user, tokenID);
+		}
+	}
+}
@@ -0,0 +1,17 @@
+package us.kbase.auth2.lib.audit;
+
+/** A logger for the audit events produced by the {@link us.kbase.auth2.lib.Authentication}
+ * class.
+ *
+ * Implementations may write events in a background thread, and so must not block the caller
+ * for longer than necessary.
+ * @author gaprice@lbl.gov
+ *
+ */
+public interface AuditLogger {
+	
+	/** Log an audit event.
+	 * @param event the event.
+	 */
+	void log(AuditEvent event);
+}
@@ -0,0 +1,56 @@
+package us.kbase.auth2.lib.audit;
+
+import static us.kbase.auth2.lib.Utils.nonNull;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.slf4j.MDC;
+
+import us.kbase.auth2.lib.Authentication;
+
+/** An audit logger that writes audit events to the {@link Authentication} SLF4J logger in the
+ * calling thread.
+ *
+ * The operation, user name, and token ID of the event, if present, are added to the SLF4J
+ * mapped diagnostic context under the keys {@link #MDC_OPERATION}, {@link #MDC_USER}, and
+ * {@link #MDC_TOKEN_ID} while the event is written.
+ * @author gaprice@lbl.gov
+ *
+ */
+public class SLF4JAuditLogger implements AuditLogger {
+	
+	/** The mapped diagnostic context key for the operation. */
+	public static final String MDC_OPERATION = "operation";
+	
+	/** The mapped diagnostic context key for the user name. */
+	public static final String MDC_USER = "user";
+	
+	/** The mapped diagnostic context key for the token ID. */
+	public static final String MDC_TOKEN_ID = "tokenid";
+	
+	@Override
+	public void log(final AuditEvent event) {
+		nonNull(event, "event");
+		final Logger logger = LoggerFactory.getLogger(Authentication.class);
+		if (event.getOperation().isPresent()) {
+			MDC.put(MDC_OPERATION, event.getOperation().get());
+		}
+		if (event.getUser().isPresent()) {
+			MDC.put(MDC_USER, event.getUser().get().getName());
+		}
+		if (event.getTokenID().isPresent()) {
+			MDC.put(MDC_TOKEN_ID, event.getTokenID().get().toString());
+		}
+		try {
+			if (AuditEvent.Level.ERROR.equals(event.getLevel())) {
+				logger.error(event.getFormat(), event.getArguments());
+			} else {
+				logger.info(event.getFormat(), event.getArguments());
+			}
+		} finally {
+			MDC.remove(MDC_OPERATION);
+			MDC.remove(MDC_USER);
+			MDC.remove(MDC_TOKEN_ID);
+		}
+	}
+}
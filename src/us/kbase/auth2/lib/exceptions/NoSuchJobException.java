@@ -0,0 +1,13 @@
+package us.kbase.auth2.lib.exceptions;
+
+/** Thrown when the requested job does not exist.
+ * @author gaprice@lbl.gov
+ *
+ */
+@SuppressWarnings("serial")
+public class NoSuchJobException extends NoDataException {
+
+	public NoSuchJobException(final String message) {
+		super(ErrorType.NO_SUCH_JOB, message);
+	}
+}
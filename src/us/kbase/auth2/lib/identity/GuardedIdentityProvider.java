@@ -0,0 +1,299 @@
+package us.kbase.auth2.lib.identity;
+
+import static us.kbase.auth2.lib.Utils.nonNull;
+
+import java.io.IOException;
+import java.net.URL;
+import java.time.Clock;
+import java.time.Instant;
+import java.util.Set;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.LongAdder;
+
+import us.kbase.auth2.lib.exceptions.IdentityRetrievalException;
+
+/** Wraps an identity provider with a circuit breaker and a concurrency limit (a bulkhead), so
+ * that an identity provider that is down or slow cannot tie up all the request threads in the
+ * service.
+ *
+ * The circuit starts closed. A request to the provider fails if it throws a runtime exception or
+ * throws an {@link IdentityRetrievalException} caused by an {@link IOException}, e.g. a timeout
+ * or a refused connection. Other {@link IdentityRetrievalException}s mean the provider responded
+ * and are not counted as failures. After a number of consecutive failures, the circuit opens and
+ * requests fail immediately. Once the open duration has passed the circuit is half open, and a
+ * single trial request is sent to the provider. If it succeeds the circuit closes, otherwise it
+ * opens again.
+ *
+ * Independently of the circuit state, requests fail immediately if the maximum number of
+ * concurrent requests to the provider are in progress.
+ *
+ * Only {@link #getIdentities(String, boolean)} is guarded, as the other methods do not contact
+ * the provider.
+ *
+ * This class is thread safe.
+ * @author gaprice@lbl.gov
+ *
+ */
+public class GuardedIdentityProvider implements IdentityProvider {
+
+	/** The default number of consecutive failures that opens the circuit. */
+	public static final int DEFAULT_FAILURE_THRESHOLD = 5;
+	/** The default time, in milliseconds, the circuit stays open before a trial request. */
+	public static final int DEFAULT_OPEN_DURATION_MS = 30000;
+	/** The default maximum number of concurrent requests to the provider. */
+	public static final int DEFAULT_MAX_CONCURRENT = 20;
+
+	/** The state of a circuit breaker. */
+	public static enum CircuitState {
+		/** Requests are sent to the provider. */
+		CLOSED,
+		/** Requests fail immediately. */
+		OPEN,
+		/** A single trial request may be sent to the provider. */
+		HALF_OPEN;
+	}
+
+	private final IdentityProvider provider;
+	private final int failureThreshold;
+	private final int openDurationMS;
+	private final int maxConcurrent;
+	private final Clock clock;
+	private final Semaphore bulkhead;
+	private final LongAdder rejectedCircuitOpen = new LongAdder();
+	private final LongAdder rejectedBulkheadFull = new LongAdder();
+
+	// all guarded by this
+	private CircuitState state = CircuitState.CLOSED;
+	private int consecutiveFailures = 0;
+	private Instant openedAt = null;
+	private boolean trialInProgress = false;
+
+	/** Wrap an identity provider with the default settings.
+	 * @param provider the provider to wrap.
+	 */
+	public GuardedIdentityProvider(final IdentityProvider provider) {
+		this(provider, DEFAULT_FAILURE_THRESHOLD, DEFAULT_OPEN_DURATION_MS,
+				DEFAULT_MAX_CONCURRENT, Clock.systemDefaultZone()); // don't care about time zone
+	}
+
+	/** Wrap an identity provider.
+	 * @param provider the provider to wrap.
+	 * @param failureThreshold the number of consecutive failures that opens the circuit.
+	 * @param openDurationMS the time the circuit stays open before a trial request is allowed.
+	 * @param maxConcurrent the maximum number of concurrent requests to the provider.
+	 * @param clock the clock used to determine when the open duration has passed.
+	 */
+	public GuardedIdentityProvider(
+			final IdentityProvider provider,
+			final int failureThreshold,
+			final int openDurationMS,
+			final int maxConcurrent,
+			final Clock clock) {
+		nonNull(provider, "provider");
+		nonNull(clock, "clock");
+		if (failureThreshold < 1) {
+			throw new IllegalArgumentException("failureThreshold must be at least 1");
+		}
+		if (openDurationMS < 1) {
+			throw new IllegalArgumentException("openDurationMS must be at least 1");
+		}
+		if (maxConcurrent < 1) {
+			throw new IllegalArgumentException("maxConcurrent must be at least 1");
+		}
+		this.provider = provider;
+		this.failureThreshold = failureThreshold;
+		this.openDurationMS = openDurationMS;
+		this.maxConcurrent = maxConcurrent;
+		this.clock = clock;
+		this.bulkhead = new Semaphore(maxConcurrent);
+	}
+
+	@Override
+	public String getProviderName() {
+		return provider.getProviderName();
+	}
+
+	@Override
+	public URL getLoginURL(final String state, final boolean link) {
+		return provider.getLoginURL(state, link);
+	}
+
+	@Override
+	public Set<RemoteIdentity> getIdentities(final String authcode, final boolean link)
+			throws IdentityRetrievalException {
+		final boolean trial = acquireCircuit();
+		if (!bulkhead.tryAcquire()) {
+			rejectedBulkheadFull.increment();
+			if (trial) {
+				endTrial();
+			}
+			throw new IdentityRetrievalException(String.format(
+					"Too many concurrent requests to the %s identity provider",
+					getProviderName()));
+		}
+		try {
+			final Set<RemoteIdentity> ret = provider.getIdentities(authcode, link);
+			recordSuccess(trial);
+			return ret;
+		} catch (IdentityRetrievalException e) {
+			if (isCausedByIOException(e)) {
+				recordFailure(trial);
+			} else {
+				recordSuccess(trial);
+			}
+			throw e;
+		} catch (RuntimeException e) {
+			recordFailure(trial);
+			throw e;
+		} finally {
+			bulkhead.release();
+		}
+	}
+
+	private boolean isCausedByIOException(final Throwable e) {
+		Throwable t = e.getCause();
+		while (t != null) {
+			if (t instanceof IOException) {
+				return true;
+			}
+			t = t.getCause();
+		}
+		return false;
+	}
+
+	// returns true if this is the trial request for a half open circuit
+	private synchronized boolean acquireCircuit() throws IdentityRetrievalException {
+		if (state == CircuitState.OPEN) {
+			if (clock.instant().isBefore(openedAt.plusMillis(openDurationMS))) {
+				throw rejectOpen();
+			}
+			state = CircuitState.HALF_OPEN;
+		}
+		if (state == CircuitState.HALF_OPEN) {
+			if (trialInProgress) {
+				throw rejectOpen();
+			}
+			trialInProgress = true;
+			return true;
+		}
+		return false;
+	}
+
+	private IdentityRetrievalException rejectOpen() {
+		rejectedCircuitOpen.increment();
+		return new IdentityRetrievalException(String.format(
+				"The %s identity provider is temporarily unavailable", getProviderName()));
+	}
+
+	private synchronized void endTrial() {
+		trialInProgress = false;
+	}
+
+	private synchronized void recordSuccess(final boolean trial) {
+		if (trial) {
+			trialInProgress = false;
+		}
+		consecutiveFailures = 0;
+		state = CircuitState.CLOSED;
+	}
+
+	private synchronized void recordFailure(final boolean trial) {
+		if (trial) {
+			trialInProgress = false;
+		}
+		consecutiveFailures++;
+		if (trial || (state == CircuitState.CLOSED && consecutiveFailures >= failureThreshold)) {
+			state = CircuitState.OPEN;
+			openedAt = clock.instant();
+		}
+	}
+
+	/** Get the current status of the circuit breaker and bulkhead.
+	 * @return the status.
+	 */
+	public Status getStatus() {
+		final CircuitState s;
+		final int failures;
+		synchronized (this) {
+			// the state only changes on a request, so report the logical state
+			s = state == CircuitState.OPEN &&
+					!clock.instant().isBefore(openedAt.plusMillis(openDurationMS)) ?
+							CircuitState.HALF_OPEN : state;
+			failures = consecutiveFailures;
+		}
+		return new Status(s, failures, maxConcurrent - bulkhead.availablePermits(),
+				maxConcurrent, rejectedCircuitOpen.sum(), rejectedBulkheadFull.sum());
+	}
+
+	/** The status of the circuit breaker and bulkhead for an identity provider.
+	 * @author gaprice@lbl.gov
+	 *
+	 */
+	public static class Status {
+
+		private final CircuitState state;
+		private final int consecutiveFailures;
+		private final int inFlight;
+		private final int maxConcurrent;
+		private final long rejectedCircuitOpen;
+		private final long rejectedBulkheadFull;
+
+		private Status(
+				final CircuitState state,
+				final int consecutiveFailures,
+				final int inFlight,
+				final int maxConcurrent,
+				final long rejectedCircuitOpen,
+				final long rejectedBulkheadFull) {
+			this.state = state;
+			this.consecutiveFailures = consecutiveFailures;
+			this.inFlight = inFlight;
+			this.maxConcurrent = maxConcurrent;
+			this.rejectedCircuitOpen = rejectedCircuitOpen;
+			this.rejectedBulkheadFull = rejectedBulkheadFull;
+		}
+
+		/** Get the state of the circuit.
+		 * @return the state.
+		 */
+		public CircuitState getState() {
+			return state;
+		}
+
+		/** Get the number of consecutive failed requests to the provider.
+		 * @return the number of failures.
+		 */
+		public int getConsecutiveFailures() {
+			return consecutiveFailures;
+		}
+
+		/** Get the number of requests to the provider in progress.
+		 * @return the number of requests.
+		 */
+		public int getInFlight() {
+			return inFlight;
+		}
+
+		/** Get the maximum number of concurrent requests to the provider.
+		 * @return the maximum number of requests.
+		 */
+		public int getMaxConcurrent() {
+			return maxConcurrent;
+		}
+
+		/** Get the number of requests rejected because the circuit was open.
+		 * @return the number of requests.
+		 */
+		public long getRejectedCircuitOpen() {
+			return rejectedCircuitOpen;
+		}
+
+		/** Get the number of requests rejected because the maximum number of concurrent requests
+		 * were in progress.
+		 * @return the number of requests.
+		 */
+		public long getRejectedBulkheadFull() {
+			return rejectedBulkheadFull;
+		}
+	}
+}
@@ -16,6 +16,12 @@ import java.util.Map;
  */
 public class IdentityProviderConfig {
 	
+	/** The default timeout, in milliseconds, for connecting to the identity provider. */
+	public static final int DEFAULT_CONNECT_TIMEOUT_MS = 10000;
+	
+	/** The default timeout, in milliseconds, for reading from the identity provider. */
+	public static final int DEFAULT_READ_TIMEOUT_MS = 30000;
+	
 	private final String identityProviderFactoryClass;
 	private final String clientID;
 	private final String clientSecret;
@@ -24,8 +30,10 @@ public class IdentityProviderConfig {
 	private final URL loginRedirectURL;
 	private final URL linkRedirectURL;
 	private final Map<String, String> customConfig;
+	private final int connectTimeoutMillis;
+	private final int readTimeoutMillis;
 	
-	// a builder would be nice, but there's only 1 optional item...
+	// a builder would be nice, but there's only 3 optional items...
 	
 	/** Create a configuration for an identity provider.
 	 * @param identityProviderFactoryClass the class name of the identity provider factory for this
@@ -52,6 +60,42 @@ public class IdentityProviderConfig {
 			final URL linkRedirectURL,
 			final Map<String, String> customConfig)
 			throws IdentityProviderConfigurationException {
+		this(identityProviderFactoryClass, loginURL, apiURL, clientID, clientSecret,
+				loginRedirectURL, linkRedirectURL, customConfig, DEFAULT_CONNECT_TIMEOUT_MS,
+				DEFAULT_READ_TIMEOUT_MS);
+	}
+	
+	/** Create a configuration for an identity provider.
+	 * @param identityProviderFactoryClass the class name of the identity provider factory for this
+	 * configuration.
+	 * @param loginURL the login url for the identity provider; where users should be redirected.
+	 * @param apiURL the api url for the identity provider; where server to server requests should
+	 * be directed.
+	 * @param clientID the client ID for the identity provider.
+	 * @param clientSecret the client secret for the identity provider.
+	 * @param loginRedirectURL the url to which the provider should redirect in the process of a
+	 * login.
+	 * @param linkRedirectURL the url to which the provider should redirect in the process of
+	 * linking accounts.
+	 * @param customConfig any custom configuration to be provided to the identity provider.
+	 * @param connectTimeoutMillis the timeout, in milliseconds, for connecting to the identity
+	 * provider.
+	 * @param readTimeoutMillis the timeout, in milliseconds, for reading a response from the
+	 * identity provider.
+	 * @throws IdentityProviderConfigurationException if any of the inputs were unacceptable.
+	 */
+	public IdentityProviderConfig(
+			final String identityProviderFactoryClass,
+			final URL loginURL,
+			final URL apiURL,
+			final String clientID,
+			final String clientSecret,
+			final URL loginRedirectURL,
+			final URL linkRedirectURL,
+			final Map<String, String> customConfig,
+			final int connectTimeoutMillis,
+			final int readTimeoutMillis)
+			throws IdentityProviderConfigurationException {
 		nonNull(customConfig, "customConfig");
 		notNullOrEmpty(identityProviderFactoryClass, "Identity provider name");
 		notNullOrEmpty(clientID, "Client ID for " + identityProviderFactoryClass +
@@ -66,11 +110,24 @@ public class IdentityProviderConfig {
 		this.loginRedirectURL = loginRedirectURL;
 		this.linkRedirectURL = linkRedirectURL;
 		this.customConfig = Collections.unmodifiableMap(new HashMap<>(customConfig));
+		this.connectTimeoutMillis = connectTimeoutMillis;
+		this.readTimeoutMillis = readTimeoutMillis;
 
 		checkValidURI(this.loginURL, "Login URL");
 		checkValidURI(this.apiURL, "API URL");
 		checkValidURI(this.loginRedirectURL, "Login redirect URL");
 		checkValidURI(this.linkRedirectURL, "Link redirect URL");
+		checkPositive(connectTimeoutMillis, "Connect timeout");
+		checkPositive(readTimeoutMillis, "Read timeout");
+	}
+	
+	private void checkPositive(final int timeout, final String name)
+			throws IdentityProviderConfigurationException {
+		if (timeout < 1) {
+			throw new IdentityProviderConfigurationException(String.format(
+					"%s for %s identity provider must be at least 1 ms",
+					name, identityProviderFactoryClass));
+		}
 	}
 
 	private void checkValidURI(final URL url, final String name)
@@ -153,6 +210,20 @@ public class IdentityProviderConfig {
 		return customConfig;
 	}
 	
+	/** Get the timeout for connecting to the identity provider.
+	 * @return the connect timeout in milliseconds.
+	 */
+	public int getConnectTimeoutMillis() {
+		return connectTimeoutMillis;
+	}
+	
+	/** Get the timeout for reading a response from the identity provider.
+	 * @return the read timeout in milliseconds.
+	 */
+	public int getReadTimeoutMillis() {
+		return readTimeoutMillis;
+	}
+	
 	/** Thrown when the creating an identity provider configuration fails due to bad input.
 	 * @author gaprice@lbl.gov
 	 *
@@ -0,0 +1,341 @@
+package us.kbase.auth2.lib.job;
+
+import static us.kbase.auth2.lib.Utils.checkStringNoCheckedException;
+import static us.kbase.auth2.lib.Utils.nonNull;
+
+import java.time.Instant;
+import java.util.UUID;
+
+import com.google.common.base.Optional;
+
+import us.kbase.auth2.lib.UserName;
+
+/** A background job that runs a system wide administrative operation in batches.
+ * 
+ * The progress of the job is recorded in the storage system after each batch along with a
+ * checkpoint, so that the job can be resumed from the checkpoint if the server running the job
+ * stops.
+ * @author gaprice@lbl.gov
+ *
+ */
+public class Job {
+	
+	private final UUID id;
+	private final JobType type;
+	private final Optional<String> target;
+	private final UserName admin;
+	private final Instant created;
+	private final JobState state;
+	private final Instant updated;
+	private final long processed;
+	private final long modified;
+	private final Optional<String> checkpoint;
+	private final Optional<String> error;
+	
+	private Job(
+			final UUID id,
+			final JobType type,
+			final Optional<String> target,
+			final UserName admin,
+			final Instant created,
+			final JobState state,
+			final Instant updated,
+			final long processed,
+			final long modified,
+			final Optional<String> checkpoint,
+			final Optional<String> error) {
+		this.id = id;
+		this.type = type;
+		this.target = target;
+		this.admin = admin;
+		this.created = created;
+		this.state = state;
+		this.updated = updated;
+		this.processed = processed;
+		this.modified = modified;
+		this.checkpoint = checkpoint;
+		this.error = error;
+	}
+
+	/** Get the job's ID.
+	 * @return the ID.
+	 */
+	public UUID getId() {
+		return id;
+	}
+
+	/** Get the type of the job.
+	 * @return the job type.
+	 */
+	public JobType getType() {
+		return type;
+	}
+
+	/** Get the target of the job - for example the policy ID to remove - if any.
+	 * @return the target of the job.
+	 */
+	public Optional<String> getTarget() {
+		return target;
+	}
+
+	/** Get the name of the administrator that submitted the job.
+	 * @return the administrator's user name.
+	 */
+	public UserName getAdmin() {
+		return admin;
+	}
+
+	/** Get the date the job was submitted.
+	 * @return the submission date.
+	 */
+	public Instant getCreated() {
+		return created;
+	}
+
+	/** Get the state of the job.
+	 * @return the job state.
+	 */
+	public JobState getState() {
+		return state;
+	}
+
+	/** Get the date the job was last updated.
+	 * @return the update date.
+	 */
+	public Instant getUpdated() {
+		return updated;
+	}
+
+	/** Get the number of records the job has processed.
+	 * @return the number of records.
+	 */
+	public long getProcessed() {
+		return processed;
+	}
+
+	/** Get the number of records the job has changed. This may be less than the number
+	 * processed if some records were already in the target state.
+	 * @return the number of records.
+	 */
+	public long getModified() {
+		return modified;
+	}
+	
+	/** Get the checkpoint from which the job will resume, if any.
+	 * @return the checkpoint.
+	 */
+	public Optional<String> getCheckpoint() {
+		return checkpoint;
+	}
+
+	/** Get the reason the job failed, if it failed.
+	 * @return the error.
+	 */
+	public Optional<String> getError() {
+		return error;
+	}
+
+	@Override
+	public int hashCode() {
+		final int prime = 31;
+		int result = 1;
+		result = prime * result + ((admin == null) ? 0 : admin.hashCode());
+		result = prime * result + ((checkpoint == null) ? 0 : checkpoint.hashCode());
+		result = prime * result + ((created == null) ? 0 : created.hashCode());
+		result = prime * result + ((error == null) ? 0 : error.hashCode());
+		result = prime * result + ((id == null) ? 0 : id.hashCode());
+		result = prime * result + (int) (modified ^ (modified >>> 32));
+		result = prime * result + (int) (processed ^ (processed >>> 32));
+		result = prime * result + ((state == null) ? 0 : state.hashCode());
+		result = prime * result + ((target == null) ? 0 : target.hashCode());
+		result = prime * result + ((type == null) ? 0 : type.hashCode());
+		result = prime * result + ((updated == null) ? 0 : updated.hashCode());
+		return result;
+	}
+
+	@Override
+	public boolean equals(Object obj) {
+		if (this == obj) {
+			return true;
+		}
+		if (obj == null) {
+			return false;
+		}
+		if (getClass() != obj.getClass()) {
+			return false;
+		}
+		Job other = (Job) obj;
+		if (admin == null) {
+			if (other.admin != null) {
+				return false;
+			}
+		} else if (!admin.equals(other.admin)) {
+			return false;
+		}
+		if (checkpoint == null) {
+			if (other.checkpoint != null) {
+				return false;
+			}
+		} else if (!checkpoint.equals(other.checkpoint)) {
+			return false;
+		}
+		if (created == null) {
+			if (other.created != null) {
+				return false;
+			}
+		} else if (!created.equals(other.created)) {
+			return false;
+		}
+		if (error == null) {
+			if (other.error != null) {
+				return false;
+			}
+		} else if (!error.equals(other.error)) {
+			return false;
+		}
+		if (id == null) {
+			if (other.id != null) {
+				return false;
+			}
+		} else if (!id.equals(other.id)) {
+			return false;
+		}
+		if (modified != other.modified) {
+			return false;
+		}
+		if (processed != other.processed) {
+			return false;
+		}
+		if (state != other.state) {
+			return false;
+		}
+		if (target == null) {
+			if (other.target != null) {
+				return false;
+			}
+		} else if (!target.equals(other.target)) {
+			return false;
+		}
+		if (type != other.type) {
+			return false;
+		}
+		if (updated == null) {
+			if (other.updated != null) {
+				return false;
+			}
+		} else if (!updated.equals(other.updated)) {
+			return false;
+		}
+		return true;
+	}
+	
+	/** Get a builder for a job. The job is in the {@link JobState#QUEUED} state and has not
+	 * processed any records unless otherwise specified.
+	 * @param id the job's ID.
+	 * @param type the type of the job.
+	 * @param admin the name of the administrator that submitted the job.
+	 * @param created the date the job was submitted.
+	 * @return a new builder.
+	 */
+	public static Builder getBuilder(
+			final UUID id,
+			final JobType type,
+			final UserName admin,
+			final Instant created) {
+		return new Builder(id, type, admin, created);
+	}
+	
+	/** A builder for a {@link Job}.
+	 * @author gaprice@lbl.gov
+	 *
+	 */
+	public static class Builder {
+		
+		private final UUID id;
+		private final JobType type;
+		private Optional<String> target = Optional.absent();
+		private final UserName admin;
+		private final Instant created;
+		private JobState state = JobState.QUEUED;
+		private Instant updated;
+		private long processed = 0;
+		private long modified = 0;
+		private Optional<String> checkpoint = Optional.absent();
+		private Optional<String> error = Optional.absent();
+		
+		private Builder(
+				final UUID id,
+				final JobType type,
+				final UserName admin,
+				final Instant created) {
+			nonNull(id, "id");
+			nonNull(type, "type");
+			nonNull(admin, "admin");
+			nonNull(created, "created");
+			this.id = id;
+			this.type = type;
+			this.admin = admin;
+			this.created = created;
+			this.updated = created;
+		}
+		
+		/** Set the target of the job.
+		 * @param target the target.
+		 * @return this builder.
+		 */
+		public Builder withTarget(final String target) {
+			checkStringNoCheckedException(target, "target");
+			this.target = Optional.of(target);
+			return this;
+		}
+		
+		/** Set the state of the job.
+		 * @param state the job state.
+		 * @param updated the date the job state or progress was last updated.
+		 * @return this builder.
+		 */
+		public Builder withState(final JobState state, final Instant updated) {
+			nonNull(state, "state");
+			nonNull(updated, "updated");
+			this.state = state;
+			this.updated = updated;
+			return this;
+		}
+		
+		/** Set the progress of the job.
+		 * @param processed the number of records processed.
+		 * @param modified the number of records changed.
+		 * @param checkpoint the checkpoint from which the job will resume, or null if the job
+		 * has not processed any records.
+		 * @return this builder.
+		 */
+		public Builder withProgress(
+				final long processed,
+				final long modified,
+				final String checkpoint) {
+			JobBatch.checkCounts(processed, modified);
+			this.processed = processed;
+			this.modified = modified;
+			this.checkpoint = Optional.fromNullable(checkpoint);
+			return this;
+		}
+		
+		/** Set the reason the job failed.
+		 * @param error the error.
+		 * @return this builder.
+		 */
+		public Builder withError(final String error) {
+			checkStringNoCheckedException(error, "error");
+			this.error = Optional.of(error);
+			return this;
+		}
+		
+		/** Build the job.
+		 * @return the job.
+		 */
+		public Job build() {
+			return new Job(id, type, target, admin, created, state, updated, processed,
+					modified, checkpoint, error);
+		}
+	}
+}
@@ -0,0 +1,122 @@
+package us.kbase.auth2.lib.job;
+
+import static us.kbase.auth2.lib.Utils.nonNull;
+
+import com.google.common.base.Optional;
+
+/** The result of processing one batch of a background job.
+ * @author gaprice@lbl.gov
+ *
+ */
+public class JobBatch {
+	
+	private final long processed;
+	private final long modified;
+	private final Optional<String> checkpoint;
+	private final boolean complete;
+	
+	/** Create a batch result.
+	 * @param processed the number of records processed in the batch, e.g. the number of records
+	 * that matched the job's selection criteria.
+	 * @param modified the number of records that were changed in the batch. This may be less
+	 * than the number processed if some records were already in the target state.
+	 * @param checkpoint an opaque, storage system specific string from which the next batch
+	 * should resume, or absent if no records were processed.
+	 * @param complete true if there are no more records to process.
+	 */
+	public JobBatch(
+			final long processed,
+			final long modified,
+			final Optional<String> checkpoint,
+			final boolean complete) {
+		nonNull(checkpoint, "checkpoint");
+		checkCounts(processed, modified);
+		this.processed = processed;
+		this.modified = modified;
+		this.checkpoint = checkpoint;
+		this.complete = complete;
+	}
+
+	/** Get the number of records processed in the batch.
+	 * @return the number of records.
+	 */
+	public long getProcessed() {
+		return processed;
+	}
+	
+	/** Get the number of records changed in the batch.
+	 * @return the number of records.
+	 */
+	public long getModified() {
+		return modified;
+	}
+
+	/** Get the checkpoint from which the next batch should resume.
+	 * @return the checkpoint, or absent if no records were processed.
+	 */
+	public Optional<String> getCheckpoint() {
+		return checkpoint;
+	}
+
+	/** Returns whether there are no more records to process.
+	 * @return true if the job is complete.
+	 */
+	public boolean isComplete() {
+		return complete;
+	}
+
+	/** Check that a count of processed and modified records is valid.
+	 * @param processed the number of records processed.
+	 * @param modified the number of records modified.
+	 */
+	static void checkCounts(final long processed, final long modified) {
+		if (processed < 0) {
+			throw new IllegalArgumentException("processed must be at least 0");
+		}
+		if (modified < 0 || modified > processed) {
+			throw new IllegalArgumentException("modified must be between 0 and processed");
+		}
+	}
+	
+	@Override
+	public int hashCode() {
+		final int prime = 31;
+		int result = 1;
+		result = prime * result + ((checkpoint == null) ? 0 : checkpoint.hashCode());
+		result = prime * result + (complete ? 1231 : 1237);
+		result = prime * result + (int) (modified ^ (modified >>> 32));
+		result = prime * result + (int) (processed ^ (processed >>> 32));
+		return result;
+	}
+
+	@Override
+	public boolean equals(Object obj) {
+		if (this == obj) {
+			return true;
+		}
+		if (obj == null) {
+			return false;
+		}
+		if (getClass() != obj.getClass()) {
+			return false;
+		}
+		JobBatch other = (JobBatch) obj;
+		if (checkpoint == null) {
+			if (other.checkpoint != null) {
+				return false;
+			}
+		} else if (!checkpoint.equals(other.checkpoint)) {
+			return false;
+		}
+		if (complete != other.complete) {
+			return false;
+		}
+		if (modified != other.modified) {
+			return false;
+		}
+		if (processed != other.processed) {
+			return false;
+		}
+		return true;
+	}
+}
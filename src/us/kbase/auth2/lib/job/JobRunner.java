@@ -0,0 +1,242 @@
+package us.kbase.auth2.lib.job;
+
+import static us.kbase.auth2.lib.Utils.nonNull;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.util.UUID;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.LoggerFactory;
+
+import com.google.common.base.Optional;
+
+import us.kbase.auth2.lib.PolicyID;
+import us.kbase.auth2.lib.exceptions.IllegalParameterException;
+import us.kbase.auth2.lib.exceptions.MissingParameterException;
+import us.kbase.auth2.lib.storage.AuthStorage;
+import us.kbase.auth2.lib.storage.exceptions.AuthStorageException;
+
+/** Runs background jobs submitted to the storage system.
+ * 
+ * The runner polls the storage system for queued jobs and runs them one at a time on a single
+ * background thread. Each job is processed in batches, with a pause between batches to limit
+ * the load on the storage system. After each batch the job's progress and checkpoint are saved
+ * and the runner's lease on the job is extended.
+ * 
+ * If the runner stops while running a job, the job is resumed from its last checkpoint by the
+ * next runner to claim it once the lease expires. Closing the runner releases the lease
+ * immediately. Since a batch may be run more than once in this case, job operations must be
+ * idempotent.
+ * 
+ * Multiple runners, for example in multiple servers, may share the same storage system. A job
+ * is only run by one runner at a time.
+ * @author gaprice@lbl.gov
+ *
+ */
+public class JobRunner implements AutoCloseable {
+	
+	/** The default number of records processed per batch. */
+	public static final int DEFAULT_BATCH_SIZE = 1000;
+	/** The default pause between batches in milliseconds. */
+	public static final long DEFAULT_BATCH_DELAY_MS = 200;
+	
+	private static final long POLL_INTERVAL_MS = 10 * 1000;
+	private static final long LEASE_MS = 5 * 60 * 1000;
+	private static final long CLOSE_TIMEOUT_MS = 30 * 1000;
+	private static final String THREAD_NAME = "auth2-job-runner";
+	
+	private final AuthStorage storage;
+	private final int batchSize;
+	private final long batchDelayMS;
+	private final Clock clock = Clock.systemDefaultZone(); // don't care about time zone
+	// identifies this runner when claiming and updating jobs
+	private final String owner = UUID.randomUUID().toString();
+	private final ScheduledExecutorService executor;
+	private volatile boolean closed = false;
+	
+	/** Create a job runner with the default batch size and pause between batches.
+	 * @param storage the storage system from which jobs will be read and against which they
+	 * will be run.
+	 */
+	public JobRunner(final AuthStorage storage) {
+		this(storage, DEFAULT_BATCH_SIZE, DEFAULT_BATCH_DELAY_MS);
+	}
+	
+	/** Create a job runner.
+	 * @param storage the storage system from which jobs will be read and against which they
+	 * will be run.
+	 * @param batchSize the maximum number of records to process in each batch.
+	 * @param batchDelayMS the pause between batches in milliseconds.
+	 */
+	public JobRunner(final AuthStorage storage, final int batchSize, final long batchDelayMS) {
+		nonNull(storage, "storage");
+		if (batchSize < 1) {
+			throw new IllegalArgumentException("batchSize must be at least 1");
+		}
+		if (batchDelayMS < 0) {
+			throw new IllegalArgumentException("batchDelayMS must be at least 0");
+		}
+		this.storage = storage;
+		this.batchSize = batchSize;
+		this.batchDelayMS = batchDelayMS;
+		executor = Executors.newSingleThreadScheduledExecutor(r -> {
+			final Thread t = new Thread(r, THREAD_NAME);
+			t.setDaemon(true);
+			return t;
+		});
+	}
+	
+	/** Start polling the storage system for jobs in the background. */
+	public void start() {
+		executor.scheduleWithFixedDelay(
+				() -> runJobsSafely(), 0, POLL_INTERVAL_MS, TimeUnit.MILLISECONDS);
+	}
+	
+	/** Check the storage system for jobs immediately, rather than waiting for the next poll.
+	 * Has no effect if the runner is closed.
+	 */
+	public void wakeUp() {
+		if (!closed) {
+			executor.execute(() -> runJobsSafely());
+		}
+	}
+	
+	private void runJobsSafely() {
+		try {
+			runJobs();
+		} catch (AuthStorageException | RuntimeException e) {
+			// the job's lease will expire and it'll be resumed from the last checkpoint
+			LoggerFactory.getLogger(getClass()).error(
+					"Error running background jobs: " + e.getMessage(), e);
+		}
+	}
+	
+	/** Run jobs in the current thread until there are no more jobs to run or the runner is
+	 * closed.
+	 * @throws AuthStorageException if an error occurs accessing the storage system.
+	 */
+	public void runJobs() throws AuthStorageException {
+		while (!closed) {
+			final Optional<Job> job = storage.claimJob(owner, leaseExpiry());
+			if (!job.isPresent()) {
+				return;
+			}
+			run(job.get());
+		}
+	}
+	
+	private Instant leaseExpiry() {
+		return clock.instant().plusMillis(LEASE_MS);
+	}
+
+	private void run(final Job job) throws AuthStorageException {
+		final UUID id = job.getId();
+		logInfo("Running job {} submitted by {}: {}{}", id, job.getAdmin().getName(),
+				job.getType().getDescription(),
+				job.getTarget().isPresent() ? " " + job.getTarget().get() : "");
+		long processed = job.getProcessed();
+		long modified = job.getModified();
+		Optional<String> checkpoint = job.getCheckpoint();
+		try {
+			while (true) {
+				final JobBatch batch = runBatch(job, checkpoint);
+				processed += batch.getProcessed();
+				modified += batch.getModified();
+				checkpoint = batch.getCheckpoint();
+				if (batch.isComplete()) {
+					if (storage.finishJob(id, owner, JobState.COMPLETE, processed, modified,
+							Optional.absent())) {
+						logInfo("Job {} complete, processed {} records, modified {}",
+								id, processed, modified);
+					} else {
+						logInfo("Job {} was canceled", id);
+					}
+					return;
+				}
+				if (closed) {
+					release(job, processed, modified, checkpoint);
+					return;
+				}
+				if (!storage.updateJob(id, owner, processed, modified, checkpoint,
+						leaseExpiry())) {
+					logInfo("Job {} was canceled after processing {} records", id, processed);
+					return;
+				}
+				try {
+					Thread.sleep(batchDelayMS);
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+					release(job, processed, modified, checkpoint);
+					return;
+				}
+			}
+		} catch (IllegalParameterException | MissingParameterException | RuntimeException e) {
+			// these errors will happen again if the job is retried, so fail the job
+			LoggerFactory.getLogger(getClass()).error(String.format(
+					"Job %s failed: %s", id, e.getMessage()), e);
+			final String err = e.getMessage() == null ? e.getClass().getName() : e.getMessage();
+			storage.finishJob(id, owner, JobState.FAILED, processed, modified,
+					Optional.of(err));
+		}
+	}
+	
+	// lets another runner, or this server after a restart, resume the job immediately
+	private void release(
+			final Job job,
+			final long processed,
+			final long modified,
+			final Optional<String> checkpoint)
+			throws AuthStorageException {
+		storage.updateJob(job.getId(), owner, processed, modified, checkpoint, clock.instant());
+		logInfo("Stopped job {} after processing {} records", job.getId(), processed);
+	}
+	
+	private JobBatch runBatch(final Job job, final Optional<String> checkpoint)
+			throws AuthStorageException, IllegalParameterException, MissingParameterException {
+		switch (job.getType()) {
+			case REVOKE_ALL_TOKENS:
+				// don't revoke tokens created after the job was submitted
+				return storage.deleteTokens(job.getCreated(), checkpoint, batchSize);
+			case FORCE_PASSWORD_RESET:
+				// don't require users that reset their password after the job was submitted to
+				// reset it again
+				return storage.forcePasswordReset(job.getCreated(), checkpoint, batchSize);
+			case REMOVE_POLICY_ID:
+				return storage.removePolicyID(
+						new PolicyID(getTarget(job)), checkpoint, batchSize);
+			case DELETE_CUSTOM_ROLE:
+				return storage.deleteCustomRole(getTarget(job), checkpoint, batchSize);
+			default:
+				// can't test this
+				throw new RuntimeException("Unknown job type: " + job.getType());
+		}
+	}
+	
+	private String getTarget(final Job job) {
+		if (!job.getTarget().isPresent()) {
+			throw new IllegalStateException("Job has no target");
+		}
+		return job.getTarget().get();
+	}
+	
+	private void logInfo(final String format, final Object... params) {
+		LoggerFactory.getLogger(getClass()).info(format, params);
+	}
+
+	/** Stop running jobs. A job that is running is stopped after the current batch and can
+	 * be resumed by another runner immediately.
+	 */
+	@Override
+	public void close() {
+		closed = true;
+		executor.shutdown();
+		try {
+			executor.awaitTermination(CLOSE_TIMEOUT_MS, TimeUnit.MILLISECONDS);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+}
@@ -0,0 +1,61 @@
+package us.kbase.auth2.lib.job;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/** The state of a background job.
+ * @author gaprice@lbl.gov
+ *
+ */
+public enum JobState {
+	
+	/** The job has been submitted but has not started. */
+	QUEUED		("queued"),
+	/** The job is running, or was running when the server running it stopped. */
+	RUNNING		("running"),
+	/** The job completed successfully. */
+	COMPLETE	("complete"),
+	/** The job was canceled by an administrator. */
+	CANCELED	("canceled"),
+	/** The job failed. */
+	FAILED		("failed");
+	
+	private static final Map<String, JobState> STATE_MAP = new HashMap<>();
+	static {
+		for (final JobState js: JobState.values()) {
+			STATE_MAP.put(js.getID(), js);
+		}
+	}
+	
+	private final String id;
+	
+	private JobState(final String id) {
+		this.id = id;
+	}
+	
+	/** Get the ID of this job state.
+	 * @return the ID.
+	 */
+	public String getID() {
+		return id;
+	}
+	
+	/** Returns whether the job is finished and will not run again.
+	 * @return true if the job is complete, canceled, or failed.
+	 */
+	public boolean isFinished() {
+		return !this.equals(QUEUED) && !this.equals(RUNNING);
+	}
+	
+	/** Get a job state based on a supplied ID.
+	 * @param state the id of the job state as a string.
+	 * @return a job state.
+	 * @throws IllegalArgumentException if there is no job state matching the ID.
+	 */
+	public static JobState getState(final String state) {
+		if (!STATE_MAP.containsKey(state)) {
+			throw new IllegalArgumentException("Invalid job state: " + state);
+		}
+		return STATE_MAP.get(state);
+	}
+}
@@ -0,0 +1,62 @@
+package us.kbase.auth2.lib.job;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/** The type of a background job. Each type of job is a system wide administrative operation
+ * that may touch every user or token in the storage system.
+ * @author gaprice@lbl.gov
+ *
+ */
+public enum JobType {
+	
+	/** Revoke all tokens for all users. */
+	REVOKE_ALL_TOKENS		("RevokeAllTokens", "Revoke all tokens"),
+	/** Force all local users to reset their password on their next login. */
+	FORCE_PASSWORD_RESET	("ForcePwdReset", "Force password reset for all local users"),
+	/** Remove a policy ID from all users. */
+	REMOVE_POLICY_ID		("RemovePolicyID", "Remove policy ID"),
+	/** Remove a custom role from all users and delete the role. */
+	DELETE_CUSTOM_ROLE		("DeleteCustomRole", "Delete custom role");
+	
+	private static final Map<String, JobType> TYPE_MAP = new HashMap<>();
+	static {
+		for (final JobType jt: JobType.values()) {
+			TYPE_MAP.put(jt.getID(), jt);
+		}
+	}
+	
+	private final String id;
+	private final String description;
+	
+	private JobType(final String id, final String description) {
+		this.id = id;
+		this.description = description;
+	}
+	
+	/** Get the ID of this job type.
+	 * @return the ID.
+	 */
+	public String getID() {
+		return id;
+	}
+	
+	/** Get the description of this job type.
+	 * @return the description.
+	 */
+	public String getDescription() {
+		return description;
+	}
+	
+	/** Get a job type based on a supplied ID.
+	 * @param type the id of the job type as a string.
+	 * @return a job type.
+	 * @throws IllegalArgumentException if there is no job type matching the ID.
+	 */
+	public static JobType getType(final String type) {
+		if (!TYPE_MAP.containsKey(type)) {
+			throw new IllegalArgumentException("Invalid job type: " + type);
+		}
+		return TYPE_MAP.get(type);
+	}
+}
@@ -1,6 +1,8 @@
 package us.kbase.auth2.lib.storage;
 
+import java.io.IOException;
 import java.time.Instant;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.UUID;
@@ -9,6 +11,7 @@ import com.google.common.base.Optional;
 
 import us.kbase.auth2.lib.CustomRole;
 import us.kbase.auth2.lib.DisplayName;
+import us.kbase.auth2.lib.Exporter;
 import us.kbase.auth2.lib.PasswordHashAndSalt;
 import us.kbase.auth2.lib.PolicyID;
 import us.kbase.auth2.lib.Role;
@@ -26,6 +29,7 @@ import us.kbase.auth2.lib.exceptions.IllegalParameterException;
 import us.kbase.auth2.lib.exceptions.LinkFailedException;
 import us.kbase.auth2.lib.exceptions.MissingParameterException;
 import us.kbase.auth2.lib.exceptions.NoSuchIdentityException;
+import us.kbase.auth2.lib.exceptions.NoSuchJobException;
 import us.kbase.auth2.lib.exceptions.NoSuchLocalUserException;
 import us.kbase.auth2.lib.exceptions.NoSuchRoleException;
 import us.kbase.auth2.lib.exceptions.NoSuchTokenException;
@@ -33,9 +37,14 @@ import us.kbase.auth2.lib.exceptions.NoSuchUserException;
 import us.kbase.auth2.lib.exceptions.UnLinkFailedException;
 import us.kbase.auth2.lib.exceptions.UserExistsException;
 import us.kbase.auth2.lib.identity.RemoteIdentity;
+import us.kbase.auth2.lib.job.Job;
+import us.kbase.auth2.lib.job.JobBatch;
+import us.kbase.auth2.lib.job.JobState;
 import us.kbase.auth2.lib.storage.exceptions.AuthStorageException;
 import us.kbase.auth2.lib.token.IncomingHashedToken;
 import us.kbase.auth2.lib.token.StoredToken;
+import us.kbase.auth2.lib.token.TokenListSpec;
+import us.kbase.auth2.lib.token.TokenPage;
 import us.kbase.auth2.lib.user.AuthUser;
 import us.kbase.auth2.lib.user.LocalUser;
 import us.kbase.auth2.lib.user.NewUser;
@@ -82,20 +91,34 @@ public interface AuthStorage {
 	 */
 	void changePassword(UserName name, PasswordHashAndSalt creds, boolean forceReset)
 			throws NoSuchUserException, AuthStorageException;
-	
-	/** Force a local user to reset their password on the next login.
+
+	/** Replace a local user's password hash with a hash of the same password created with
+	 * different hashing parameters. Unlike
+	 * {@link #changePassword(UserName, PasswordHashAndSalt, boolean)}, the password reset state
+	 * and date are not altered.
+	 *
+	 * If the user does not exist, is not a local user, or the stored password hash does not
+	 * match the old hash (e.g. because the password was changed concurrently) no changes are
+	 * made.
 	 * @param name the name of the user.
-	 * @throws NoSuchUserException if the user doesn't exist or is not a local user.
+	 * @param oldCreds the credentials that are expected to be currently stored for the user.
+	 * @param newCreds the new credentials.
 	 * @throws AuthStorageException if a problem connecting with the storage
 	 * system occurs.
 	 */
-	void forcePasswordReset(UserName name) throws NoSuchUserException, AuthStorageException;
-	
-	/** Force all local users to reset their passwords on the next login.
+	void updatePasswordHash(
+			UserName name,
+			PasswordHashAndSalt oldCreds,
+			PasswordHashAndSalt newCreds)
+			throws AuthStorageException;
+
+	/** Force a local user to reset their password on the next login.
+	 * @param name the name of the user.
+	 * @throws NoSuchUserException if the user doesn't exist or is not a local user.
 	 * @throws AuthStorageException if a problem connecting with the storage
 	 * system occurs.
 	 */
-	void forcePasswordReset() throws AuthStorageException;
+	void forcePasswordReset(UserName name) throws NoSuchUserException, AuthStorageException;
 	
 	/** Create a non-local account.
 	 * @param newUser the user to create.
@@ -264,13 +287,6 @@ public interface AuthStorage {
 	void addPolicyIDs(UserName userName, Set<PolicyID> policyIDs)
 			throws NoSuchUserException, AuthStorageException;
 	
-	/** Remove a policy ID from all users in the database.
-	 * @param policyID the policy ID to remove.
-	 * @throws AuthStorageException if a problem connecting with the storage
-	 * system occurs.
-	 */
-	void removePolicyID(PolicyID policyID) throws AuthStorageException;
-	
 	/** Store a token in the database. No checking is done on the validity
 	 * of the token - passing in tokens with bad data is a programming error.
 	 * @param token the token to store.
@@ -324,6 +340,16 @@ public interface AuthStorage {
 	 * system occurs.
 	 */
 	Set<StoredToken> getTokens(UserName userName) throws AuthStorageException;
+	
+	/** Get a page of the tokens for a user, sorted by creation date from newest to oldest, with
+	 * ties broken by the token ID.
+	 * @param userName the user for which to retrieve tokens.
+	 * @param spec the specification for the page of tokens.
+	 * @return the page of tokens.
+	 * @throws AuthStorageException if a problem connecting with the storage
+	 * system occurs.
+	 */
+	TokenPage getTokens(UserName userName, TokenListSpec spec) throws AuthStorageException;
 
 	/** Deletes a token from the database.
 	 * @param userName the user that owns the token.
@@ -341,12 +367,6 @@ public interface AuthStorage {
 	 * system occurs.
 	 */
 	void deleteTokens(UserName userName) throws AuthStorageException;
-	
-	/** Delete all tokens in the database.
-	 * @throws AuthStorageException if a problem connecting with the storage
-	 * system occurs.
-	 */
-	void deleteTokens() throws AuthStorageException;
 
 	/** Update roles for a user.
 	 * If a role is in addRoles and removeRoles it will be removed.
@@ -376,17 +396,6 @@ public interface AuthStorage {
 	 */
 	void testModeSetCustomRole(CustomRole role, Instant expires) throws AuthStorageException;
 	
-	/** Deletes a custom role from the database and removes it from all users.
-	 * @param roleId the ID of the role.
-	 * @throws NoSuchRoleException if there is no such role.
-	 * @throws AuthStorageException if a problem connecting with the storage
-	 * system occurs.
-	 * @throws IllegalParameterException if the roleId is illegal.
-	 * @throws MissingParameterException if the roleId is null or the empty string.
-	 */
-	void deleteCustomRole(String roleId) throws NoSuchRoleException, AuthStorageException,
-			MissingParameterException, IllegalParameterException;
-
 	/** Get all the custom roles in the database.
 	 * @return the custom roles.
 	 * @throws AuthStorageException if a problem connecting with the storage
@@ -428,6 +437,30 @@ public interface AuthStorage {
 	void updateCustomRoles(UserName userName, Set<String> addRoles, Set<String> removeRoles)
 			throws NoSuchUserException, AuthStorageException, NoSuchRoleException;
 
+	/** Update roles and custom roles for multiple users in one operation.
+	 * The same role changes are applied to every user.
+	 * Removing non-existent roles has no effect.
+	 * @param userNames the users to modify.
+	 * @param addRoles the roles to add to the users.
+	 * @param removeRoles the roles to remove from the users.
+	 * @param addCustomRoles the custom roles to add to the users.
+	 * @param removeCustomRoles the custom roles to remove from the users.
+	 * @return the users that do not exist and therefore were not modified.
+	 * @throws NoSuchRoleException if one or more of the input custom roles do not exist in the
+	 * database. No users are modified in this case.
+	 * @throws IllegalArgumentException if a role or custom role is in both the add and remove
+	 * sets.
+	 * @throws AuthStorageException if a problem connecting with the storage
+	 * system occurs.
+	 */
+	Set<UserName> updateRoles(
+			Set<UserName> userNames,
+			Set<Role> addRoles,
+			Set<Role> removeRoles,
+			Set<String> addCustomRoles,
+			Set<String> removeCustomRoles)
+			throws NoSuchRoleException, AuthStorageException;
+
 	/** Set the roles on a test user. Overwrites the user's current roles. Pass in empty sets to
 	 * remove all roles.
 	 * @param userName the user to modify.
@@ -544,4 +577,199 @@ public interface AuthStorage {
 			ExternalConfigMapper<T> mapper)
 			throws AuthStorageException, ExternalConfigMappingException;
 
+	/** Set the token revocation cutoff. Tokens created at or before the cutoff are invalid. If a
+	 * later cutoff is already stored, the stored cutoff is not changed.
+	 * @param cutoff the revocation cutoff.
+	 * @throws AuthStorageException if a problem connecting with the storage
+	 * system occurs.
+	 */
+	void setTokenRevocationCutoff(Instant cutoff) throws AuthStorageException;
+
+	/** Get the token revocation cutoff. Tokens created at or before the cutoff are invalid.
+	 * @return the revocation cutoff, or absent if all tokens have never been revoked.
+	 * @throws AuthStorageException if a problem connecting with the storage
+	 * system occurs.
+	 */
+	Optional<Instant> getTokenRevocationCutoff() throws AuthStorageException;
+
+	/** Set the password reset cutoff. Local users that have not reset their password since the
+	 * cutoff must reset their password on the next login. If a later cutoff is already stored,
+	 * the stored cutoff is not changed.
+	 * @param cutoff the password reset cutoff.
+	 * @throws AuthStorageException if a problem connecting with the storage
+	 * system occurs.
+	 */
+	void setPasswordResetCutoff(Instant cutoff) throws AuthStorageException;
+
+	/** Get the password reset cutoff. Local users that have not reset their password since the
+	 * cutoff must reset their password on the next login.
+	 * @return the password reset cutoff, or absent if all users have never been required to
+	 * reset their password.
+	 * @throws AuthStorageException if a problem connecting with the storage
+	 * system occurs.
+	 */
+	Optional<Instant> getPasswordResetCutoff() throws AuthStorageException;
+
+	/** Store a background job in the database.
+	 * @param job the job to store.
+	 * @throws IllegalArgumentException if a job with the same ID already exists in the database.
+	 * @throws AuthStorageException if a problem connecting with the storage
+	 * system occurs.
+	 */
+	void createJob(Job job) throws AuthStorageException;
+	
+	/** Get a background job from the database.
+	 * @param id the ID of the job.
+	 * @return the job.
+	 * @throws NoSuchJobException if the job does not exist.
+	 * @throws AuthStorageException if a problem connecting with the storage
+	 * system occurs.
+	 */
+	Job getJob(UUID id) throws NoSuchJobException, AuthStorageException;
+	
+	/** Get the most recently submitted background jobs from the database, newest first.
+	 * @param limit the maximum number of jobs to return.
+	 * @return the jobs.
+	 * @throws AuthStorageException if a problem connecting with the storage
+	 * system occurs.
+	 */
+	List<Job> getJobs(int limit) throws AuthStorageException;
+	
+	/** Claim the oldest job that is queued, or that is running but whose lease has expired, and
+	 * set its state to {@link JobState#RUNNING}. A job's lease expires when the process running
+	 * the job stops updating it, for example because the server was shut down.
+	 * @param owner an identifier for the process that will run the job.
+	 * @param leaseExpires the time at which the lease on the job expires if it is not updated.
+	 * @return the job, or absent if there are no jobs to run.
+	 * @throws AuthStorageException if a problem connecting with the storage
+	 * system occurs.
+	 */
+	Optional<Job> claimJob(String owner, Instant leaseExpires) throws AuthStorageException;
+	
+	/** Record the progress of a running job and extend its lease. The job is only updated if
+	 * it is running and is owned by the owner.
+	 * @param id the ID of the job.
+	 * @param owner the identifier for the process running the job.
+	 * @param processed the total number of records the job has processed.
+	 * @param modified the total number of records the job has changed.
+	 * @param checkpoint the checkpoint from which the job should resume, if any.
+	 * @param leaseExpires the time at which the lease on the job expires if it is not updated.
+	 * @return true if the job was updated, false if the job has been canceled or is owned by
+	 * another process.
+	 * @throws AuthStorageException if a problem connecting with the storage
+	 * system occurs.
+	 */
+	boolean updateJob(
+			UUID id,
+			String owner,
+			long processed,
+			long modified,
+			Optional<String> checkpoint,
+			Instant leaseExpires)
+			throws AuthStorageException;
+	
+	/** Set the final state of a running job. The job is only updated if it is running and is
+	 * owned by the owner.
+	 * @param id the ID of the job.
+	 * @param owner the identifier for the process running the job.
+	 * @param state the final state of the job.
+	 * @param processed the total number of records the job processed.
+	 * @param modified the total number of records the job changed.
+	 * @param error the reason the job failed, if any.
+	 * @return true if the job was updated, false if the job has been canceled or is owned by
+	 * another process.
+	 * @throws IllegalArgumentException if the state is not a final state.
+	 * @throws AuthStorageException if a problem connecting with the storage
+	 * system occurs.
+	 */
+	boolean finishJob(
+			UUID id,
+			String owner,
+			JobState state,
+			long processed,
+			long modified,
+			Optional<String> error)
+			throws AuthStorageException;
+	
+	/** Cancel a queued or running job. The process running the job will stop after the
+	 * current batch completes.
+	 * @param id the ID of the job.
+	 * @return true if the job was canceled, false if the job was already finished.
+	 * @throws NoSuchJobException if the job does not exist.
+	 * @throws AuthStorageException if a problem connecting with the storage
+	 * system occurs.
+	 */
+	boolean cancelJob(UUID id) throws NoSuchJobException, AuthStorageException;
+	
+	/* The job batch methods below process records in a fixed order, so the checkpoint returned
+	 * in each batch can be used to resume processing after the last record processed.
+	 */
+	
+	/** Delete a batch of tokens.
+	 * @param createdBefore only tokens created at or before this time are deleted.
+	 * @param after the checkpoint from the previous batch, if any.
+	 * @param limit the maximum number of tokens to delete.
+	 * @return the result of the batch.
+	 * @throws AuthStorageException if a problem connecting with the storage
+	 * system occurs.
+	 */
+	JobBatch deleteTokens(Instant createdBefore, Optional<String> after, int limit)
+			throws AuthStorageException;
+	
+	/** Force a batch of local users to reset their password on the next login.
+	 * @param resetBefore only users that have not reset their password since this time are
+	 * updated.
+	 * @param after the checkpoint from the previous batch, if any.
+	 * @param limit the maximum number of users to update.
+	 * @return the result of the batch.
+	 * @throws AuthStorageException if a problem connecting with the storage
+	 * system occurs.
+	 */
+	JobBatch forcePasswordReset(Instant resetBefore, Optional<String> after, int limit)
+			throws AuthStorageException;
+	
+	/** Remove a policy ID from a batch of users.
+	 * @param policyID the policy ID to remove.
+	 * @param after the checkpoint from the previous batch, if any.
+	 * @param limit the maximum number of users to update.
+	 * @return the result of the batch.
+	 * @throws AuthStorageException if a problem connecting with the storage
+	 * system occurs.
+	 */
+	JobBatch removePolicyID(PolicyID policyID, Optional<String> after, int limit)
+			throws AuthStorageException;
+	
+	/** Remove a custom role from a batch of users. Once no more users possess the role, the role
+	 * is deleted. If the role does not exist the batch is complete.
+	 * @param roleId the ID of the role.
+	 * @param after the checkpoint from the previous batch, if any.
+	 * @param limit the maximum number of users to update.
+	 * @return the result of the batch.
+	 * @throws AuthStorageException if a problem connecting with the storage
+	 * system occurs.
+	 * @throws IllegalParameterException if the roleId is illegal.
+	 * @throws MissingParameterException if the roleId is null or the empty string.
+	 */
+	JobBatch deleteCustomRole(String roleId, Optional<String> after, int limit)
+			throws AuthStorageException, MissingParameterException, IllegalParameterException;
+	
+	/** Pass all the users in the database, in user name order, to a handler. The users are read
+	 * through a single cursor. Test mode users are not included.
+	 * @param handler the handler for the users.
+	 * @throws AuthStorageException if a problem connecting with the storage
+	 * system occurs.
+	 * @throws IOException if the handler throws an IO exception.
+	 */
+	void exportUsers(Exporter.Handler<AuthUser> handler) throws AuthStorageException, IOException;
+	
+	/** Pass all the tokens in the database to a handler. The tokens are read through a single
+	 * cursor. Test mode tokens are not included.
+	 * @param handler the handler for the tokens.
+	 * @throws AuthStorageException if a problem connecting with the storage
+	 * system occurs.
+	 * @throws IOException if the handler throws an IO exception.
+	 */
+	void exportTokens(Exporter.Handler<StoredToken> handler)
+			throws AuthStorageException, IOException;
+
 }
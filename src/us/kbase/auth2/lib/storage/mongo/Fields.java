@@ -55,6 +55,14 @@ public class Fields {
 	public static final String USER_PWD_HSH = "pwdhsh";
 	/** The salt used for hashing the password. For local accounts only. */
 	public static final String USER_SALT = "salt";
+	/** The algorithm used for hashing the password. For local accounts only. If absent, the
+	 * default algorithm was used.
+	 */
+	public static final String USER_PWD_ALGORITHM = "pwdalg";
+	/** The number of iterations used for hashing the password. For local accounts only. If
+	 * absent, the default number of iterations was used.
+	 */
+	public static final String USER_PWD_ITERATIONS = "pwditer";
 	/** Whether the a password reset is required for the user on the next login.
 	 * For local accounts only.
 	 */
@@ -172,6 +180,38 @@ public class Fields {
 	 */
 	public static final String ROLES_EXPIRES = "expires";
 	
+	/* ****************
+	 * job fields
+	 * ****************
+	 */
+	
+	/** The ID of the job. */
+	public static final String JOB_ID = "id";
+	/** The type of the job. */
+	public static final String JOB_TYPE = "type";
+	/** The target of the job, for example a policy ID. */
+	public static final String JOB_TARGET = "target";
+	/** The administrator that submitted the job. */
+	public static final String JOB_ADMIN = "admin";
+	/** The date the job was submitted. */
+	public static final String JOB_CREATED = "create";
+	/** The state of the job. */
+	public static final String JOB_STATE = "state";
+	/** The date the job was last updated. */
+	public static final String JOB_UPDATED = "upd";
+	/** The number of records the job has processed. */
+	public static final String JOB_PROCESSED = "processed";
+	/** The number of records the job has changed. */
+	public static final String JOB_MODIFIED = "modified";
+	/** The checkpoint from which the job will resume. */
+	public static final String JOB_CHECKPOINT = "checkpoint";
+	/** The reason the job failed. */
+	public static final String JOB_ERROR = "err";
+	/** The identifier of the process running the job. */
+	public static final String JOB_OWNER = "owner";
+	/** The date the lease of the process running the job expires. */
+	public static final String JOB_LEASE = "lease";
+	
 	/* ***********************
 	 * database schema fields
 	 * ***********************
@@ -189,6 +229,8 @@ public class Fields {
 	public static final String DB_SCHEMA_UPDATE = "inupdate";
 	/** The version of the database schema. */
 	public static final String DB_SCHEMA_VERSION = "schemaver";
+	/** A fingerprint of the index specifications that were last applied to the database. */
+	public static final String DB_SCHEMA_INDEX_FINGERPRINT = "idxfinger";
 
 	/* *********************
 	 * configuration fields
@@ -221,4 +263,8 @@ public class Fields {
 	public static final String CONFIG_APP_TOKEN_LIFE_DEV = "tokenlifedev";
 	/** The lifetime of a server token. */
 	public static final String CONFIG_APP_TOKEN_LIFE_SERV = "tokenlifeserv";
+	/** The time at or before which all tokens were revoked. */
+	public static final String CONFIG_APP_TOKEN_REVOCATION_CUTOFF = "tokenrevokecutoff";
+	/** The time since which all local users must have reset their password. */
+	public static final String CONFIG_APP_PWD_RESET_CUTOFF = "pwdresetcutoff";
 }
@@ -4,8 +4,12 @@ import static us.kbase.auth2.lib.Utils.checkStringNoCheckedException;
 import static us.kbase.auth2.lib.Utils.nonNull;
 import static us.kbase.auth2.lib.Utils.noNulls;
 
+import java.io.IOException;
 import java.net.InetAddress;
 import java.net.UnknownHostException;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.time.Clock;
 import java.time.Instant;
 import java.util.Arrays;
@@ -20,6 +24,7 @@ import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Set;
+import java.util.TreeSet;
 import java.util.UUID;
 import java.util.concurrent.TimeUnit;
 import java.util.regex.Matcher;
@@ -37,9 +42,12 @@ import com.mongodb.bulk.BulkWriteResult;
 import com.mongodb.client.FindIterable;
 import com.mongodb.client.MongoCollection;
 import com.mongodb.client.MongoDatabase;
+import com.mongodb.client.model.BulkWriteOptions;
 import com.mongodb.client.model.Filters;
 import com.mongodb.client.model.FindOneAndDeleteOptions;
+import com.mongodb.client.model.FindOneAndUpdateOptions;
 import com.mongodb.client.model.IndexOptions;
+import com.mongodb.client.model.ReturnDocument;
 import com.mongodb.client.model.UpdateOneModel;
 import com.mongodb.client.model.UpdateOptions;
 import com.mongodb.client.result.DeleteResult;
@@ -48,6 +56,7 @@ import com.mongodb.client.result.UpdateResult;
 import us.kbase.auth2.lib.CustomRole;
 import us.kbase.auth2.lib.DisplayName;
 import us.kbase.auth2.lib.EmailAddress;
+import us.kbase.auth2.lib.Exporter;
 import us.kbase.auth2.lib.PasswordHashAndSalt;
 import us.kbase.auth2.lib.PolicyID;
 import us.kbase.auth2.lib.Role;
@@ -78,6 +87,7 @@ import us.kbase.auth2.lib.exceptions.IllegalParameterException;
 import us.kbase.auth2.lib.exceptions.LinkFailedException;
 import us.kbase.auth2.lib.exceptions.MissingParameterException;
 import us.kbase.auth2.lib.exceptions.NoSuchIdentityException;
+import us.kbase.auth2.lib.exceptions.NoSuchJobException;
 import us.kbase.auth2.lib.exceptions.NoSuchLocalUserException;
 import us.kbase.auth2.lib.exceptions.NoSuchRoleException;
 import us.kbase.auth2.lib.exceptions.NoSuchTokenException;
@@ -87,12 +97,19 @@ import us.kbase.auth2.lib.exceptions.UserExistsException;
 import us.kbase.auth2.lib.identity.RemoteIdentity;
 import us.kbase.auth2.lib.identity.RemoteIdentityDetails;
 import us.kbase.auth2.lib.identity.RemoteIdentityID;
+import us.kbase.auth2.lib.job.Job;
+import us.kbase.auth2.lib.job.JobBatch;
+import us.kbase.auth2.lib.job.JobState;
+import us.kbase.auth2.lib.job.JobType;
 import us.kbase.auth2.lib.storage.AuthStorage;
 import us.kbase.auth2.lib.storage.exceptions.AuthStorageException;
 import us.kbase.auth2.lib.storage.exceptions.StorageInitException;
 import us.kbase.auth2.lib.token.IncomingHashedToken;
 import us.kbase.auth2.lib.token.StoredToken;
+import us.kbase.auth2.lib.token.TokenCursor;
+import us.kbase.auth2.lib.token.TokenListSpec;
 import us.kbase.auth2.lib.token.TokenName;
+import us.kbase.auth2.lib.token.TokenPage;
 import us.kbase.auth2.lib.token.TokenType;
 import us.kbase.auth2.lib.user.AuthUser;
 import us.kbase.auth2.lib.user.LocalUser;
@@ -132,6 +149,7 @@ public class MongoStorage implements AuthStorage {
 	private static final String COL_TOKEN = "tokens";
 	private static final String COL_TEMP_DATA = "tempdata";
 	private static final String COL_CUST_ROLES = "cust_roles";
+	private static final String COL_JOBS = "jobs";
 	
 	// test collection names;
 	private static final String COL_TEST_TOKEN = "test_tokens";
@@ -172,6 +190,9 @@ public class MongoStorage implements AuthStorage {
 		users.put(Arrays.asList(Fields.USER_ROLES), IDX_SPARSE);
 		//find users by custom roles
 		users.put(Arrays.asList(Fields.USER_CUSTOM_ROLES), IDX_SPARSE);
+		//find users by policy ID
+		users.put(Arrays.asList(Fields.USER_POLICY_IDS + Fields.FIELD_SEP + Fields.POLICY_ID),
+				IDX_SPARSE);
 		INDEXES.put(COL_USERS, users);
 		
 		//custom roles indexes
@@ -181,7 +202,9 @@ public class MongoStorage implements AuthStorage {
 		
 		//token indexes
 		final Map<List<String>, IndexOptions> token = new HashMap<>();
-		token.put(Arrays.asList(Fields.TOKEN_USER_NAME), null);
+		//find and list tokens by user, sorted by creation date
+		token.put(Arrays.asList(Fields.TOKEN_USER_NAME, Fields.TOKEN_CREATION, Fields.TOKEN_ID),
+				null);
 		token.put(Arrays.asList(Fields.TOKEN_TOKEN), IDX_UNIQ);
 		token.put(Arrays.asList(Fields.TOKEN_ID), IDX_UNIQ);
 		token.put(Arrays.asList(Fields.TOKEN_EXPIRY),
@@ -228,6 +251,15 @@ public class MongoStorage implements AuthStorage {
 		extcfg.put(Arrays.asList(Fields.CONFIG_KEY), IDX_UNIQ);
 		INDEXES.put(COL_CONFIG_EXTERNAL, extcfg);
 		
+		// job indexes
+		final Map<List<String>, IndexOptions> jobs = new HashMap<>();
+		jobs.put(Arrays.asList(Fields.JOB_ID), IDX_UNIQ);
+		// find jobs to run
+		jobs.put(Arrays.asList(Fields.JOB_STATE), null);
+		// list the most recent jobs
+		jobs.put(Arrays.asList(Fields.JOB_CREATED), null);
+		INDEXES.put(COL_JOBS, jobs);
+		
 		// *** test collection indexes ***
 		
 		//user indexes
@@ -265,6 +297,35 @@ public class MongoStorage implements AuthStorage {
 		INDEXES.put(COL_TEST_CUST_ROLES, testRoles);
 	}
 	
+	/* a hash of the index specifications above. If the fingerprint stored in the config document
+	 * matches, the indexes have already been created and index creation is skipped at startup.
+	 * Note that this means indexes that are dropped manually will not be recreated unless the
+	 * fingerprint is removed from the config document.
+	 */
+	private static final String INDEX_FINGERPRINT = getIndexFingerprint();
+	
+	private static String getIndexFingerprint() {
+		final StringBuilder sb = new StringBuilder();
+		for (final String col: new TreeSet<>(INDEXES.keySet())) {
+			final Set<String> specs = new TreeSet<>();
+			for (final Entry<List<String>, IndexOptions> idx: INDEXES.get(col).entrySet()) {
+				final IndexOptions o = idx.getValue();
+				specs.add(String.join(",", idx.getKey()) + (o == null ? "" : String.format(
+						":u=%s:s=%s:e=%s", o.isUnique(), o.isSparse(),
+						o.getExpireAfter(TimeUnit.SECONDS))));
+			}
+			sb.append(col).append(specs).append(";");
+		}
+		final MessageDigest digest;
+		try {
+			digest = MessageDigest.getInstance("SHA-256");
+		} catch (NoSuchAlgorithmException e) {
+			throw new RuntimeException("This should be impossible", e);
+		}
+		return Base64.getEncoder().encodeToString(
+				digest.digest(sb.toString().getBytes(StandardCharsets.UTF_8)));
+	}
+	
 	private final MongoDatabase db;
 	private final Clock clock;
 	
@@ -283,8 +344,40 @@ public class MongoStorage implements AuthStorage {
 		this.clock = clock;
 		
 		//TODO MISC port over schemamanager from UJS (will need changes for schema key & mdb ver)
-		ensureIndexes(); // MUST come before checkConfig();
+		final boolean indexesCurrent = isIndexFingerprintCurrent();
+		if (!indexesCurrent) {
+			ensureIndexes(); // MUST come before checkConfig();
+		}
 		checkConfig();
+		if (!indexesCurrent) {
+			setIndexFingerprint();
+		}
+	}
+	
+	private boolean isIndexFingerprintCurrent() throws StorageInitException {
+		try {
+			final Document cfg = db.getCollection(COL_CONFIG)
+					.find(Filters.eq(Fields.DB_SCHEMA_KEY, Fields.DB_SCHEMA_VALUE))
+					.projection(new Document(Fields.DB_SCHEMA_INDEX_FINGERPRINT, 1))
+					.first();
+			return cfg != null &&
+					INDEX_FINGERPRINT.equals(cfg.getString(Fields.DB_SCHEMA_INDEX_FINGERPRINT));
+		} catch (MongoException me) {
+			throw new StorageInitException(
+					"There was a problem communicating with the database: " + me.getMessage(), me);
+		}
+	}
+	
+	private void setIndexFingerprint() throws StorageInitException {
+		try {
+			db.getCollection(COL_CONFIG).updateOne(
+					Filters.eq(Fields.DB_SCHEMA_KEY, Fields.DB_SCHEMA_VALUE),
+					new Document("$set", new Document(
+							Fields.DB_SCHEMA_INDEX_FINGERPRINT, INDEX_FINGERPRINT)));
+		} catch (MongoException me) {
+			throw new StorageInitException(
+					"There was a problem communicating with the database: " + me.getMessage(), me);
+		}
 	}
 	
 	private void checkConfig() throws StorageInitException  {
@@ -388,7 +481,9 @@ public class MongoStorage implements AuthStorage {
 				.append(Fields.USER_RESET_PWD_LAST, reset.isPresent() ?
 						Date.from(reset.get()) : null)
 				.append(Fields.USER_PWD_HSH, encpwdhsh)
-				.append(Fields.USER_SALT, encsalt);
+				.append(Fields.USER_SALT, encsalt)
+				.append(Fields.USER_PWD_ALGORITHM, creds.getAlgorithm())
+				.append(Fields.USER_PWD_ITERATIONS, creds.getIterations());
 		try {
 			db.getCollection(COL_USERS).insertOne(u);
 		} catch (MongoWriteException mwe) {
@@ -438,13 +533,21 @@ public class MongoStorage implements AuthStorage {
 				new Document(Fields.USER_NAME, userName.getName())
 						.append(Fields.USER_LOCAL, true),
 				new Document(Fields.USER_SALT, 1)
-						.append(Fields.USER_PWD_HSH, 1));
+						.append(Fields.USER_PWD_HSH, 1)
+						.append(Fields.USER_PWD_ALGORITHM, 1)
+						.append(Fields.USER_PWD_ITERATIONS, 1));
 		if (d == null) {
 			throw new NoSuchLocalUserException(userName.getName());
 		}
+		final byte[] pwdhsh = Base64.getDecoder().decode(d.getString(Fields.USER_PWD_HSH));
+		final byte[] salt = Base64.getDecoder().decode(d.getString(Fields.USER_SALT));
+		final String alg = d.getString(Fields.USER_PWD_ALGORITHM);
+		if (alg == null) {
+			// hashed before the hash parameters were recorded
+			return new PasswordHashAndSalt(pwdhsh, salt);
+		}
 		return new PasswordHashAndSalt(
-				Base64.getDecoder().decode(d.getString(Fields.USER_PWD_HSH)),
-				Base64.getDecoder().decode(d.getString(Fields.USER_SALT)));
+				pwdhsh, salt, alg, d.getInteger(Fields.USER_PWD_ITERATIONS));
 	}
 	
 	private void addRoles(final AuthUser.AbstractBuilder<?> b, final Document user) {
@@ -573,27 +676,45 @@ public class MongoStorage implements AuthStorage {
 		final Document set = new Document(Fields.USER_RESET_PWD, forceReset)
 				.append(Fields.USER_RESET_PWD_LAST, Date.from(clock.instant()))
 				.append(Fields.USER_PWD_HSH, pwdhsh)
-				.append(Fields.USER_SALT, encsalt);
+				.append(Fields.USER_SALT, encsalt)
+				.append(Fields.USER_PWD_ALGORITHM, creds.getAlgorithm())
+				.append(Fields.USER_PWD_ITERATIONS, creds.getIterations());
 		updateUser(name, set);
 	}
 	
 	@Override
-	public void forcePasswordReset(final UserName name)
-			throws NoSuchUserException, AuthStorageException {
-		getUserDoc(COL_USERS, name, true); //check user is local. Could do this in one step but meh
-		updateUser(name, new Document(Fields.USER_RESET_PWD, true));
-	}
-	
-	@Override
-	public void forcePasswordReset() throws AuthStorageException {
+	public void updatePasswordHash(
+			final UserName name,
+			final PasswordHashAndSalt oldCreds,
+			final PasswordHashAndSalt newCreds)
+			throws AuthStorageException {
+		nonNull(name, "name");
+		nonNull(oldCreds, "oldCreds");
+		nonNull(newCreds, "newCreds");
+		final Document query = new Document(Fields.USER_NAME, name.getName())
+				.append(Fields.USER_LOCAL, true)
+				.append(Fields.USER_PWD_HSH,
+						Base64.getEncoder().encodeToString(oldCreds.getPasswordHash()));
+		final Document set = new Document(Fields.USER_PWD_HSH,
+						Base64.getEncoder().encodeToString(newCreds.getPasswordHash()))
+				.append(Fields.USER_SALT, Base64.getEncoder().encodeToString(newCreds.getSalt()))
+				.append(Fields.USER_PWD_ALGORITHM, newCreds.getAlgorithm())
+				.append(Fields.USER_PWD_ITERATIONS, newCreds.getIterations());
 		try {
-			db.getCollection(COL_USERS).updateMany(new Document(Fields.USER_LOCAL, true),
-					new Document("$set", new Document(Fields.USER_RESET_PWD, true)));
+			// if the hash has changed since it was read the update is silently skipped
+			db.getCollection(COL_USERS).updateOne(query, new Document("$set", set));
 		} catch (MongoException e) {
 			throw new AuthStorageException("Connection to database failed: " + e.getMessage(), e);
 		}
 	}
 	
+	@Override
+	public void forcePasswordReset(final UserName name)
+			throws NoSuchUserException, AuthStorageException {
+		getUserDoc(COL_USERS, name, true); //check user is local. Could do this in one step but meh
+		updateUser(name, new Document(Fields.USER_RESET_PWD, true));
+	}
+	
 	@Override
 	public void createUser(final NewUser newUser)
 			throws UserExistsException, AuthStorageException, IdentityLinkedException,
@@ -917,6 +1038,51 @@ public class MongoStorage implements AuthStorage {
 		return ret;
 	}
 	
+	@Override
+	public TokenPage getTokens(final UserName userName, final TokenListSpec spec)
+			throws AuthStorageException {
+		nonNull(userName, "userName");
+		nonNull(spec, "spec");
+		final Document query = new Document(Fields.TOKEN_USER_NAME, userName.getName());
+		if (spec.getType().isPresent()) {
+			query.append(Fields.TOKEN_TYPE, spec.getType().get().getID());
+		}
+		if (spec.getName().isPresent()) {
+			query.append(Fields.TOKEN_NAME, spec.getName().get().getName());
+		}
+		if (spec.getCursor().isPresent()) {
+			final TokenCursor cursor = spec.getCursor().get();
+			final Date created = Date.from(cursor.getCreated());
+			/* the top level bound restricts the scan of the (user, created, id) index, and the $or
+			 * skips the tokens created at the same time as the cursor token that sort before it.
+			 */
+			query.append(Fields.TOKEN_CREATION, new Document("$lte", created))
+					.append("$or", Arrays.asList(
+							new Document(Fields.TOKEN_CREATION, new Document("$lt", created)),
+							new Document(Fields.TOKEN_ID,
+									new Document("$lt", cursor.getID().toString()))));
+		}
+		final List<StoredToken> tokens = new LinkedList<>();
+		try {
+			// get one more than the limit to find out if there's another page
+			final FindIterable<Document> ts = db.getCollection(COL_TOKEN).find(query)
+					.projection(new Document(Fields.TOKEN_TOKEN, 0))
+					.sort(new Document(Fields.TOKEN_CREATION, -1).append(Fields.TOKEN_ID, -1))
+					.limit(spec.getLimit() + 1);
+			for (final Document d: ts) {
+				tokens.add(getToken(d));
+			}
+		} catch (MongoException e) {
+			throw new AuthStorageException("Connection to database failed: " + e.getMessage(), e);
+		}
+		if (tokens.size() > spec.getLimit()) {
+			tokens.remove(tokens.size() - 1);
+			return new TokenPage(tokens,
+					Optional.of(TokenCursor.after(tokens.get(tokens.size() - 1))));
+		}
+		return new TokenPage(tokens, Optional.absent());
+	}
+	
 	@Override
 	public AuthUser getUser(final UserName userName)
 			throws AuthStorageException, NoSuchUserException {
@@ -945,6 +1111,13 @@ public class MongoStorage implements AuthStorage {
 
 	private AuthUser toUser(final Document user, final boolean testUser)
 			throws AuthStorageException {
+		final AuthUser.Builder b = toUserBuilder(user);
+		addCustomRoles(b, user, testUser);
+		return b.build();
+	}
+	
+	// everything but the custom roles, which require a lookup in the roles collection
+	private AuthUser.Builder toUserBuilder(final Document user) throws AuthStorageException {
 		@SuppressWarnings("unchecked")
 		final List<Document> ids = (List<Document>) user.get(Fields.USER_IDENTITIES);
 		
@@ -958,10 +1131,9 @@ public class MongoStorage implements AuthStorage {
 			b.withIdentity(ri);
 		}
 		addRoles(b, user);
-		addCustomRoles(b, user, testUser);
 		addPolicyIDs(b, user);
 		addLastLogin(b, user);
-		return b.build();
+		return b;
 	}
 	
 	private Optional<Instant> getOptionalDate(final Document d, final String field) {
@@ -1111,11 +1283,6 @@ public class MongoStorage implements AuthStorage {
 			throw new AuthStorageException("Connection to database failed", e);
 		}
 	}
-	
-	@Override
-	public void deleteTokens() throws AuthStorageException {
-		deleteTokens(new Document());
-	}
 
 	@Override
 	public void updateRoles(
@@ -1249,28 +1416,6 @@ public class MongoStorage implements AuthStorage {
 		}
 	}
 	
-	@Override
-	public void deleteCustomRole(final String roleId)
-			throws NoSuchRoleException, AuthStorageException,
-			MissingParameterException, IllegalParameterException {
-		CustomRole.checkValidRoleID(roleId);
-		try {
-			final Document role = db.getCollection(COL_CUST_ROLES).findOneAndDelete(
-					new Document(Fields.ROLES_ID, roleId));
-			if (role == null) {
-				throw new NoSuchRoleException(roleId);
-			}
-			/* note that in the getCustomRoles() method the user's roles are checked against the
-			 * db and removed if they don't exist, which protects against race conditions and
-			 * mongo / server downs.
-			 */
-			db.getCollection(COL_USERS).updateMany(new Document(), new Document("$pull",
-					new Document(Fields.USER_CUSTOM_ROLES, role.getObjectId(Fields.MONGO_ID))));
-		} catch (MongoException e) {
-			throw new AuthStorageException("Connection to database failed: " + e.getMessage(), e);
-		}
-	}
-	
 	@Override
 	public Set<CustomRole> getCustomRoles() throws AuthStorageException {
 		return toCustomRoles(getCustomRoles(COL_CUST_ROLES, new Document()));
@@ -1377,7 +1522,100 @@ public class MongoStorage implements AuthStorage {
 				.collect(Collectors.toSet());
 		setRoles(userName, addRoleIDs, removeRoleIDs, Fields.USER_CUSTOM_ROLES);
 	}
-	
+
+	@Override
+	public Set<UserName> updateRoles(
+			final Set<UserName> userNames,
+			final Set<Role> addRoles,
+			final Set<Role> removeRoles,
+			final Set<String> addCustomRoles,
+			final Set<String> removeCustomRoles)
+			throws NoSuchRoleException, AuthStorageException {
+		nonNull(userNames, "userNames");
+		nonNull(addRoles, "addRoles");
+		nonNull(removeRoles, "removeRoles");
+		nonNull(addCustomRoles, "addCustomRoles");
+		nonNull(removeCustomRoles, "removeCustomRoles");
+		Utils.noNulls(userNames, "Null name in userNames");
+		Utils.noNulls(addRoles, "Null role in addRoles");
+		Utils.noNulls(removeRoles, "Null role in removeRoles");
+		Utils.noNulls(addCustomRoles, "Null role in addCustomRoles");
+		Utils.noNulls(removeCustomRoles, "Null role in removeCustomRoles");
+		if (addRoles.contains(Role.ROOT) || removeRoles.contains(Role.ROOT)) {
+			// see the single user version of this method
+			throw new IllegalArgumentException("Cannot change root role");
+		}
+		// the updates are unordered, so the result of adding and removing a role is undefined
+		if (!Collections.disjoint(addRoles, removeRoles) ||
+				!Collections.disjoint(addCustomRoles, removeCustomRoles)) {
+			throw new IllegalArgumentException(
+					"One or more roles is to be both removed and added");
+		}
+		final Set<String> allCustomRoles = new HashSet<>(addCustomRoles);
+		allCustomRoles.addAll(removeCustomRoles);
+		// resolve the custom roles once for all users
+		final Map<String, ObjectId> roleIDs = getCustomRoleIds(COL_CUST_ROLES, allCustomRoles);
+		final Document add = new Document();
+		final Document remove = new Document();
+		addRoleChanges(add, remove, Fields.USER_ROLES,
+				addRoles.stream().map(r -> r.getID()).collect(Collectors.toSet()),
+				removeRoles.stream().map(r -> r.getID()).collect(Collectors.toSet()));
+		addRoleChanges(add, remove, Fields.USER_CUSTOM_ROLES,
+				addCustomRoles.stream().map(r -> roleIDs.get(r)).collect(Collectors.toSet()),
+				removeCustomRoles.stream().map(r -> roleIDs.get(r)).collect(Collectors.toSet()));
+
+		final Set<UserName> missing = new HashSet<>(userNames);
+		if (userNames.isEmpty()) {
+			return missing;
+		}
+		try {
+			/* the bulk write result only includes the total number of matched documents, so
+			 * find the users that exist first. Users are never deleted, so there's no race.
+			 */
+			final List<String> names = userNames.stream().map(u -> u.getName())
+					.collect(Collectors.toList());
+			final Set<UserName> extant = new HashSet<>();
+			for (final Document d: db.getCollection(COL_USERS).find(
+					new Document(Fields.USER_NAME, new Document("$in", names)))
+					.projection(new Document(Fields.USER_NAME, 1))) {
+				extant.add(getUserName(d.getString(Fields.USER_NAME)));
+			}
+			missing.removeAll(extant);
+			final List<UpdateOneModel<Document>> updates = new LinkedList<>();
+			for (final UserName u: extant) {
+				final Document query = new Document(Fields.USER_NAME, u.getName());
+				// can't add and remove items from the same array in one update
+				if (!add.isEmpty()) {
+					updates.add(new UpdateOneModel<>(query, new Document("$addToSet", add)));
+				}
+				if (!remove.isEmpty()) {
+					updates.add(new UpdateOneModel<>(query, new Document("$pull", remove)));
+				}
+			}
+			if (!updates.isEmpty()) {
+				db.getCollection(COL_USERS).bulkWrite(
+						updates, new BulkWriteOptions().ordered(false));
+			}
+		} catch (MongoException e) {
+			throw new AuthStorageException("Connection to database failed: " + e.getMessage(), e);
+		}
+		return missing;
+	}
+
+	private void addRoleChanges(
+			final Document add,
+			final Document remove,
+			final String field,
+			final Set<Object> addRoles,
+			final Set<Object> removeRoles) {
+		if (!addRoles.isEmpty()) {
+			add.append(field, new Document("$each", addRoles));
+		}
+		if (!removeRoles.isEmpty()) {
+			remove.append(field, new Document("$in", removeRoles));
+		}
+	}
+
 	private Map<String, ObjectId> getCustomRoleIds(
 			final String collection,
 			final Set<String> roles)
@@ -1889,19 +2127,6 @@ public class MongoStorage implements AuthStorage {
 		}
 	}
 
-	@Override
-	public void removePolicyID(final PolicyID policyID) throws AuthStorageException {
-		nonNull(policyID, "policyID");
-		try {
-			db.getCollection(COL_USERS).updateMany(new Document(), new Document("$pull",
-					new Document(Fields.USER_POLICY_IDS, new Document(Fields.POLICY_ID,
-							policyID.getName()))));
-			// don't care if nothing happened, just means no one had the policy
-		} catch (MongoException e) {
-			throw new AuthStorageException("Connection to database failed: " + e.getMessage(), e);
-		}
-	}
-
 	private <T> void updateConfig(
 			final String collection,
 			final String key,
@@ -2083,4 +2308,448 @@ public class MongoStorage implements AuthStorage {
 			throw new AuthStorageException("Connection to database failed: " + e.getMessage(), e);
 		}
 	}
+	
+	// cutoffs only ever move forward, so concurrent updates from multiple servers are safe
+	private void setCutoff(final String key, final Instant cutoff) throws AuthStorageException {
+		nonNull(cutoff, "cutoff");
+		try {
+			db.getCollection(COL_CONFIG_APPLICATION).updateOne(
+					new Document(Fields.CONFIG_KEY, key),
+					new Document("$max", new Document(Fields.CONFIG_VALUE, Date.from(cutoff))),
+					new UpdateOptions().upsert(true));
+		} catch (MongoException e) {
+			throw new AuthStorageException("Connection to database failed: " + e.getMessage(), e);
+		}
+	}
+	
+	private Optional<Instant> getCutoff(final String key) throws AuthStorageException {
+		try {
+			final Document d = db.getCollection(COL_CONFIG_APPLICATION)
+					.find(new Document(Fields.CONFIG_KEY, key)).first();
+			return d == null ? Optional.absent() : getOptionalDate(d, Fields.CONFIG_VALUE);
+		} catch (MongoException e) {
+			throw new AuthStorageException("Connection to database failed: " + e.getMessage(), e);
+		}
+	}
+	
+	@Override
+	public void setTokenRevocationCutoff(final Instant cutoff) throws AuthStorageException {
+		setCutoff(Fields.CONFIG_APP_TOKEN_REVOCATION_CUTOFF, cutoff);
+	}
+	
+	@Override
+	public Optional<Instant> getTokenRevocationCutoff() throws AuthStorageException {
+		return getCutoff(Fields.CONFIG_APP_TOKEN_REVOCATION_CUTOFF);
+	}
+	
+	@Override
+	public void setPasswordResetCutoff(final Instant cutoff) throws AuthStorageException {
+		setCutoff(Fields.CONFIG_APP_PWD_RESET_CUTOFF, cutoff);
+	}
+	
+	@Override
+	public Optional<Instant> getPasswordResetCutoff() throws AuthStorageException {
+		return getCutoff(Fields.CONFIG_APP_PWD_RESET_CUTOFF);
+	}
+
+	@Override
+	public void createJob(final Job job) throws AuthStorageException {
+		nonNull(job, "job");
+		final Document jd = new Document(Fields.JOB_ID, job.getId().toString())
+				.append(Fields.JOB_TYPE, job.getType().getID())
+				.append(Fields.JOB_TARGET, job.getTarget().orNull())
+				.append(Fields.JOB_ADMIN, job.getAdmin().getName())
+				.append(Fields.JOB_CREATED, Date.from(job.getCreated()))
+				.append(Fields.JOB_STATE, job.getState().getID())
+				.append(Fields.JOB_UPDATED, Date.from(job.getUpdated()))
+				.append(Fields.JOB_PROCESSED, job.getProcessed())
+				.append(Fields.JOB_MODIFIED, job.getModified())
+				.append(Fields.JOB_CHECKPOINT, job.getCheckpoint().orNull())
+				.append(Fields.JOB_ERROR, job.getError().orNull());
+		try {
+			db.getCollection(COL_JOBS).insertOne(jd);
+		} catch (MongoWriteException mwe) {
+			if (DuplicateKeyExceptionChecker.isDuplicate(mwe)) {
+				throw new IllegalArgumentException(String.format(
+						"Job ID %s already exists in the database", job.getId()));
+			}
+			throw new AuthStorageException("Database write failed", mwe);
+		} catch (MongoException e) {
+			throw new AuthStorageException("Connection to database failed: " + e.getMessage(), e);
+		}
+	}
+	
+	@Override
+	public Job getJob(final UUID id) throws NoSuchJobException, AuthStorageException {
+		nonNull(id, "id");
+		final Document job;
+		try {
+			job = db.getCollection(COL_JOBS).find(new Document(Fields.JOB_ID, id.toString()))
+					.first();
+		} catch (MongoException e) {
+			throw new AuthStorageException("Connection to database failed: " + e.getMessage(), e);
+		}
+		if (job == null) {
+			throw new NoSuchJobException(id.toString());
+		}
+		return toJob(job);
+	}
+	
+	@Override
+	public List<Job> getJobs(final int limit) throws AuthStorageException {
+		checkBatchLimit(limit);
+		final List<Job> ret = new LinkedList<>();
+		try {
+			for (final Document d: db.getCollection(COL_JOBS).find()
+					.sort(new Document(Fields.JOB_CREATED, -1)).limit(limit)) {
+				ret.add(toJob(d));
+			}
+		} catch (MongoException e) {
+			throw new AuthStorageException("Connection to database failed: " + e.getMessage(), e);
+		}
+		return ret;
+	}
+	
+	private Job toJob(final Document job) throws AuthStorageException {
+		try {
+			final Job.Builder b = Job.getBuilder(
+					UUID.fromString(job.getString(Fields.JOB_ID)),
+					JobType.getType(job.getString(Fields.JOB_TYPE)),
+					getUserName(job.getString(Fields.JOB_ADMIN)),
+					job.getDate(Fields.JOB_CREATED).toInstant())
+					.withState(JobState.getState(job.getString(Fields.JOB_STATE)),
+							job.getDate(Fields.JOB_UPDATED).toInstant())
+					.withProgress(job.getLong(Fields.JOB_PROCESSED),
+							job.getLong(Fields.JOB_MODIFIED),
+							job.getString(Fields.JOB_CHECKPOINT));
+			if (job.getString(Fields.JOB_TARGET) != null) {
+				b.withTarget(job.getString(Fields.JOB_TARGET));
+			}
+			if (job.getString(Fields.JOB_ERROR) != null) {
+				b.withError(job.getString(Fields.JOB_ERROR));
+			}
+			return b.build();
+		} catch (IllegalArgumentException e) {
+			throw new AuthStorageException("Illegal value stored in db: " + e.getMessage(), e);
+		}
+	}
+	
+	@Override
+	public Optional<Job> claimJob(final String owner, final Instant leaseExpires)
+			throws AuthStorageException {
+		checkStringNoCheckedException(owner, "owner");
+		nonNull(leaseExpires, "leaseExpires");
+		final Date now = Date.from(clock.instant());
+		// queued jobs have no lease, and running jobs with an expired lease have been abandoned
+		final Document query = new Document("$or", Arrays.asList(
+				new Document(Fields.JOB_STATE, JobState.QUEUED.getID()),
+				new Document(Fields.JOB_STATE, JobState.RUNNING.getID())
+						.append(Fields.JOB_LEASE, new Document("$lt", now))));
+		final Document update = new Document("$set",
+				new Document(Fields.JOB_STATE, JobState.RUNNING.getID())
+						.append(Fields.JOB_OWNER, owner)
+						.append(Fields.JOB_LEASE, Date.from(leaseExpires))
+						.append(Fields.JOB_UPDATED, now));
+		final Document job;
+		try {
+			job = db.getCollection(COL_JOBS).findOneAndUpdate(query, update,
+					new FindOneAndUpdateOptions().sort(new Document(Fields.JOB_CREATED, 1))
+							.returnDocument(ReturnDocument.AFTER));
+		} catch (MongoException e) {
+			throw new AuthStorageException("Connection to database failed: " + e.getMessage(), e);
+		}
+		return job == null ? Optional.absent() : Optional.of(toJob(job));
+	}
+	
+	@Override
+	public boolean updateJob(
+			final UUID id,
+			final String owner,
+			final long processed,
+			final long modified,
+			final Optional<String> checkpoint,
+			final Instant leaseExpires)
+			throws AuthStorageException {
+		nonNull(checkpoint, "checkpoint");
+		nonNull(leaseExpires, "leaseExpires");
+		return updateRunningJob(id, owner, processed, modified, new Document(
+				"$set", new Document(Fields.JOB_CHECKPOINT, checkpoint.orNull())
+						.append(Fields.JOB_LEASE, Date.from(leaseExpires))));
+	}
+	
+	@Override
+	public boolean finishJob(
+			final UUID id,
+			final String owner,
+			final JobState state,
+			final long processed,
+			final long modified,
+			final Optional<String> error)
+			throws AuthStorageException {
+		nonNull(state, "state");
+		nonNull(error, "error");
+		if (!state.isFinished()) {
+			throw new IllegalArgumentException("Job state must be a final state");
+		}
+		return updateRunningJob(id, owner, processed, modified, new Document(
+				"$set", new Document(Fields.JOB_STATE, state.getID())
+						.append(Fields.JOB_ERROR, error.orNull()))
+				.append("$unset", new Document(Fields.JOB_OWNER, "")
+						.append(Fields.JOB_LEASE, "")));
+	}
+	
+	private boolean updateRunningJob(
+			final UUID id,
+			final String owner,
+			final long processed,
+			final long modified,
+			final Document update)
+			throws AuthStorageException {
+		nonNull(id, "id");
+		checkStringNoCheckedException(owner, "owner");
+		if (processed < 0) {
+			throw new IllegalArgumentException("processed must be at least 0");
+		}
+		if (modified < 0 || modified > processed) {
+			throw new IllegalArgumentException("modified must be between 0 and processed");
+		}
+		((Document) update.get("$set")).append(Fields.JOB_PROCESSED, processed)
+				.append(Fields.JOB_MODIFIED, modified)
+				.append(Fields.JOB_UPDATED, Date.from(clock.instant()));
+		// if the job was canceled or claimed by another process, don't touch it
+		final Document query = new Document(Fields.JOB_ID, id.toString())
+				.append(Fields.JOB_STATE, JobState.RUNNING.getID())
+				.append(Fields.JOB_OWNER, owner);
+		try {
+			return db.getCollection(COL_JOBS).updateOne(query, update).getMatchedCount() == 1;
+		} catch (MongoException e) {
+			throw new AuthStorageException("Connection to database failed: " + e.getMessage(), e);
+		}
+	}
+	
+	@Override
+	public boolean cancelJob(final UUID id) throws NoSuchJobException, AuthStorageException {
+		nonNull(id, "id");
+		final Document query = new Document(Fields.JOB_ID, id.toString())
+				.append(Fields.JOB_STATE, new Document("$in", Arrays.asList(
+						JobState.QUEUED.getID(), JobState.RUNNING.getID())));
+		final Document update = new Document("$set",
+				new Document(Fields.JOB_STATE, JobState.CANCELED.getID())
+						.append(Fields.JOB_UPDATED, Date.from(clock.instant())))
+				.append("$unset", new Document(Fields.JOB_OWNER, "")
+						.append(Fields.JOB_LEASE, ""));
+		try {
+			final MongoCollection<Document> col = db.getCollection(COL_JOBS);
+			if (col.updateOne(query, update).getMatchedCount() == 1) {
+				return true;
+			}
+			if (col.count(new Document(Fields.JOB_ID, id.toString())) == 0) {
+				throw new NoSuchJobException(id.toString());
+			}
+			return false;
+		} catch (MongoException e) {
+			throw new AuthStorageException("Connection to database failed: " + e.getMessage(), e);
+		}
+	}
+	
+	private void checkBatchLimit(final int limit) {
+		if (limit < 1) {
+			throw new IllegalArgumentException("limit must be at least 1");
+		}
+	}
+	
+	/* Gets the ids of the next batch of documents matching the filter in _id order, starting
+	 * after the checkpoint. The _id is used as the checkpoint since it is unique, immutable, and
+	 * indexed.
+	 */
+	private List<ObjectId> getBatchIDs(
+			final String collection,
+			final Document filter,
+			final Optional<String> after,
+			final int limit) {
+		final Document query = new Document(filter);
+		if (after.isPresent()) {
+			query.append(Fields.MONGO_ID, new Document("$gt", new ObjectId(after.get())));
+		}
+		final List<ObjectId> ids = new LinkedList<>();
+		for (final Document d: db.getCollection(collection).find(query)
+				.projection(new Document(Fields.MONGO_ID, 1))
+				.sort(new Document(Fields.MONGO_ID, 1)).limit(limit)) {
+			ids.add(d.getObjectId(Fields.MONGO_ID));
+		}
+		return ids;
+	}
+	
+	private JobBatch toJobBatch(
+			final List<ObjectId> ids,
+			final long processed,
+			final long modified,
+			final Optional<String> after,
+			final int limit) {
+		final Optional<String> checkpoint = ids.isEmpty() ? after :
+				Optional.of(ids.get(ids.size() - 1).toHexString());
+		return new JobBatch(processed, modified, checkpoint, ids.size() < limit);
+	}
+	
+	/* Updates the documents in a batch. The filter is repeated in the update so documents that
+	 * no longer match, e.g. because the user's policy ID was removed since the batch IDs were
+	 * read, are not counted or rewritten.
+	 */
+	private JobBatch updateBatch(
+			final String collection,
+			final Document filter,
+			final Document update,
+			final Optional<String> after,
+			final int limit) {
+		final List<ObjectId> ids = getBatchIDs(collection, filter, after, limit);
+		if (ids.isEmpty()) {
+			return toJobBatch(ids, 0, 0, after, limit);
+		}
+		final UpdateResult res = db.getCollection(collection).updateMany(
+				new Document(filter).append(Fields.MONGO_ID, new Document("$in", ids)), update);
+		return toJobBatch(ids, res.getMatchedCount(), res.getModifiedCount(), after, limit);
+	}
+	
+	@Override
+	public JobBatch deleteTokens(
+			final Instant createdBefore,
+			final Optional<String> after,
+			final int limit)
+			throws AuthStorageException {
+		nonNull(createdBefore, "createdBefore");
+		nonNull(after, "after");
+		checkBatchLimit(limit);
+		try {
+			final List<ObjectId> ids = getBatchIDs(COL_TOKEN, new Document(Fields.TOKEN_CREATION,
+					new Document("$lte", Date.from(createdBefore))), after, limit);
+			final long deleted = ids.isEmpty() ? 0 : db.getCollection(COL_TOKEN).deleteMany(
+					new Document(Fields.MONGO_ID, new Document("$in", ids))).getDeletedCount();
+			// tokens may have expired and been deleted since the ids were read
+			return toJobBatch(ids, ids.size(), deleted, after, limit);
+		} catch (MongoException e) {
+			throw new AuthStorageException("Connection to database failed: " + e.getMessage(), e);
+		}
+	}
+	
+	@Override
+	public JobBatch forcePasswordReset(
+			final Instant resetBefore,
+			final Optional<String> after,
+			final int limit)
+			throws AuthStorageException {
+		nonNull(resetBefore, "resetBefore");
+		nonNull(after, "after");
+		checkBatchLimit(limit);
+		try {
+			/* users that reset their password after the job was submitted are skipped. Users
+			 * that are already required to reset their password are matched but not modified.
+			 * $not also matches users that have never reset their password.
+			 */
+			return updateBatch(COL_USERS, new Document(Fields.USER_LOCAL, true)
+					.append(Fields.USER_RESET_PWD_LAST, new Document("$not",
+							new Document("$gte", Date.from(resetBefore)))),
+					new Document("$set", new Document(Fields.USER_RESET_PWD, true)),
+					after, limit);
+		} catch (MongoException e) {
+			throw new AuthStorageException("Connection to database failed: " + e.getMessage(), e);
+		}
+	}
+	
+	@Override
+	public JobBatch removePolicyID(
+			final PolicyID policyID,
+			final Optional<String> after,
+			final int limit)
+			throws AuthStorageException {
+		nonNull(policyID, "policyID");
+		nonNull(after, "after");
+		checkBatchLimit(limit);
+		try {
+			return updateBatch(COL_USERS, new Document(
+					Fields.USER_POLICY_IDS + Fields.FIELD_SEP + Fields.POLICY_ID,
+					policyID.getName()),
+					new Document("$pull", new Document(Fields.USER_POLICY_IDS,
+							new Document(Fields.POLICY_ID, policyID.getName()))),
+					after, limit);
+		} catch (MongoException e) {
+			throw new AuthStorageException("Connection to database failed: " + e.getMessage(), e);
+		}
+	}
+	
+	@Override
+	public JobBatch deleteCustomRole(
+			final String roleId,
+			final Optional<String> after,
+			final int limit)
+			throws AuthStorageException, MissingParameterException, IllegalParameterException {
+		CustomRole.checkValidRoleID(roleId);
+		nonNull(after, "after");
+		checkBatchLimit(limit);
+		try {
+			final Document role = db.getCollection(COL_CUST_ROLES)
+					.find(new Document(Fields.ROLES_ID, roleId)).first();
+			if (role == null) {
+				return new JobBatch(0, 0, after, true);
+			}
+			final ObjectId oid = role.getObjectId(Fields.MONGO_ID);
+			final JobBatch batch = updateBatch(COL_USERS,
+					new Document(Fields.USER_CUSTOM_ROLES, oid),
+					new Document("$pull", new Document(Fields.USER_CUSTOM_ROLES, oid)),
+					after, limit);
+			if (batch.isComplete()) {
+				/* a user may have been granted the role behind the checkpoint while the job was
+				 * running, but custom roles that don't exist are ignored when reading users.
+				 */
+				db.getCollection(COL_CUST_ROLES).deleteOne(new Document(Fields.MONGO_ID, oid));
+			}
+			return batch;
+		} catch (MongoException e) {
+			throw new AuthStorageException("Connection to database failed: " + e.getMessage(), e);
+		}
+	}
+	
+	@Override
+	public void exportUsers(final Exporter.Handler<AuthUser> handler)
+			throws AuthStorageException, IOException {
+		nonNull(handler, "handler");
+		// there are few custom roles, so look them up once rather than once per user
+		final Map<ObjectId, String> roles = new HashMap<>();
+		for (final Document role: getCustomRoles(COL_CUST_ROLES, new Document())) {
+			roles.put(role.getObjectId(Fields.MONGO_ID), role.getString(Fields.ROLES_ID));
+		}
+		try {
+			for (final Document user: db.getCollection(COL_USERS).find()
+					.projection(new Document(Fields.USER_PWD_HSH, 0).append(Fields.USER_SALT, 0))
+					.sort(new Document(Fields.USER_NAME, 1))) {
+				final AuthUser.Builder b = toUserBuilder(user);
+				@SuppressWarnings("unchecked")
+				final List<ObjectId> custroles = (List<ObjectId>) user.get(
+						Fields.USER_CUSTOM_ROLES);
+				for (final ObjectId role: custroles) {
+					// roles that have been deleted are ignored, as in getCustomRoles()
+					if (roles.containsKey(role)) {
+						b.withCustomRole(roles.get(role));
+					}
+				}
+				handler.export(b.build());
+			}
+		} catch (MongoException e) {
+			throw new AuthStorageException("Connection to database failed: " + e.getMessage(), e);
+		}
+	}
+	
+	@Override
+	public void exportTokens(final Exporter.Handler<StoredToken> handler)
+			throws AuthStorageException, IOException {
+		nonNull(handler, "handler");
+		try {
+			for (final Document token: db.getCollection(COL_TOKEN).find()
+					.projection(new Document(Fields.TOKEN_TOKEN, 0))
+					.sort(new Document(Fields.MONGO_ID, 1))) {
+				handler.export(getToken(token));
+			}
+		} catch (MongoException e) {
+			throw new AuthStorageException("Connection to database failed: " + e.getMessage(), e);
+		}
+	}
 }
@@ -0,0 +1,84 @@
+package us.kbase.auth2.lib.token;
+
+import static us.kbase.auth2.lib.Utils.nonNull;
+
+import java.time.Instant;
+
+/** The result of an operation authenticated with a token, along with the expiration date of the
+ * token. The result is only valid for as long as the token is valid, and so should not be cached
+ * past the expiration date.
+ * @author gaprice@lbl.gov
+ *
+ * @param <T> the type of the result.
+ */
+public class TokenBoundResult<T> {
+	
+	private final T result;
+	private final Instant tokenExpirationDate;
+	
+	/** Create a result.
+	 * @param result the result of the operation.
+	 * @param tokenExpirationDate the expiration date of the token used to authenticate the
+	 * operation.
+	 */
+	public TokenBoundResult(final T result, final Instant tokenExpirationDate) {
+		nonNull(result, "result");
+		nonNull(tokenExpirationDate, "tokenExpirationDate");
+		this.result = result;
+		this.tokenExpirationDate = tokenExpirationDate;
+	}
+	
+	/** Get the result of the operation.
+	 * @return the result.
+	 */
+	public T getResult() {
+		return result;
+	}
+	
+	/** Get the expiration date of the token used to authenticate the operation.
+	 * @return the expiration date.
+	 */
+	public Instant getTokenExpirationDate() {
+		return tokenExpirationDate;
+	}
+	
+	@Override
+	public int hashCode() {
+		final int prime = 31;
+		int result = 1;
+		result = prime * result + ((this.result == null) ? 0 : this.result.hashCode());
+		result = prime * result +
+				((tokenExpirationDate == null) ? 0 : tokenExpirationDate.hashCode());
+		return result;
+	}
+	
+	@Override
+	public boolean equals(Object obj) {
+		if (this == obj) {
+			return true;
+		}
+		if (obj == null) {
+			return false;
+		}
+		if (getClass() != obj.getClass()) {
+			return false;
+		}
+		@SuppressWarnings("unchecked")
+		TokenBoundResult<T> other = (TokenBoundResult<T>) obj;
+		if (result == null) {
+			if (other.result != null) {
+				return false;
+			}
+		} else if (!result.equals(other.result)) {
+			return false;
+		}
+		if (tokenExpirationDate == null) {
+			if (other.tokenExpirationDate != null) {
+				return false;
+			}
+		} else if (!tokenExpirationDate.equals(other.tokenExpirationDate)) {
+			return false;
+		}
+		return true;
+	}
+}
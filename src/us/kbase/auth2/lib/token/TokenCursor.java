@@ -0,0 +1,141 @@
+package us.kbase.auth2.lib.token;
+
+import static us.kbase.auth2.lib.Utils.nonNull;
+
+import java.nio.ByteBuffer;
+import java.time.Instant;
+import java.util.Base64;
+import java.util.UUID;
+
+import us.kbase.auth2.lib.exceptions.IllegalParameterException;
+
+/** A position in a list of tokens sorted by creation date, from newest to oldest. The position
+ * is the creation date and ID of the last token returned in the previous page of tokens, and the
+ * next page starts with the token immediately after that token.
+ *
+ * The cursor is encoded as an opaque URL-safe string for transport to clients.
+ * @author gaprice@lbl.gov
+ *
+ */
+public class TokenCursor {
+	
+	private static final int ENCODED_BYTES = 3 * Long.BYTES;
+	
+	private final Instant created;
+	private final UUID id;
+	
+	/** Create a cursor.
+	 * @param created the creation date of the last token in the previous page.
+	 * @param id the ID of the last token in the previous page.
+	 */
+	public TokenCursor(final Instant created, final UUID id) {
+		nonNull(created, "created");
+		nonNull(id, "id");
+		this.created = created;
+		this.id = id;
+	}
+	
+	/** Create a cursor pointing to the position after a token.
+	 * @param token the token.
+	 * @return the new cursor.
+	 */
+	public static TokenCursor after(final StoredToken token) {
+		nonNull(token, "token");
+		return new TokenCursor(token.getCreationDate(), token.getId());
+	}
+	
+	/** Get the creation date of the last token in the previous page.
+	 * @return the creation date.
+	 */
+	public Instant getCreated() {
+		return created;
+	}
+	
+	/** Get the ID of the last token in the previous page.
+	 * @return the token ID.
+	 */
+	public UUID getID() {
+		return id;
+	}
+	
+	/** Get the encoded form of the cursor.
+	 * @return the encoded cursor.
+	 */
+	public String encode() {
+		final ByteBuffer b = ByteBuffer.allocate(ENCODED_BYTES);
+		b.putLong(created.toEpochMilli());
+		b.putLong(id.getMostSignificantBits());
+		b.putLong(id.getLeastSignificantBits());
+		return Base64.getUrlEncoder().withoutPadding().encodeToString(b.array());
+	}
+	
+	/** Decode a cursor created by {@link #encode()}.
+	 * @param cursor the encoded cursor.
+	 * @return the cursor.
+	 * @throws IllegalParameterException if the cursor is not a valid encoded cursor.
+	 */
+	public static TokenCursor decode(final String cursor) throws IllegalParameterException {
+		nonNull(cursor, "cursor");
+		final byte[] bytes;
+		try {
+			bytes = Base64.getUrlDecoder().decode(cursor.trim());
+		} catch (IllegalArgumentException e) {
+			throw new IllegalParameterException("Invalid cursor: " + cursor);
+		}
+		if (bytes.length != ENCODED_BYTES) {
+			throw new IllegalParameterException("Invalid cursor: " + cursor);
+		}
+		final ByteBuffer b = ByteBuffer.wrap(bytes);
+		final Instant created = Instant.ofEpochMilli(b.getLong());
+		return new TokenCursor(created, new UUID(b.getLong(), b.getLong()));
+	}
+	
+	@Override
+	public int hashCode() {
+		final int prime = 31;
+		int result = 1;
+		result = prime * result + ((created == null) ? 0 : created.hashCode());
+		result = prime * result + ((id == null) ? 0 : id.hashCode());
+		return result;
+	}
+	
+	@Override
+	public boolean equals(Object obj) {
+		if (this == obj) {
+			return true;
+		}
+		if (obj == null) {
+			return false;
+		}
+		if (getClass() != obj.getClass()) {
+			return false;
+		}
+		TokenCursor other = (TokenCursor) obj;
+		if (created == null) {
+			if (other.created != null) {
+				return false;
+			}
+		} else if (!created.equals(other.created)) {
+			return false;
+		}
+		if (id == null) {
+			if (other.id != null) {
+				return false;
+			}
+		} else if (!id.equals(other.id)) {
+			return false;
+		}
+		return true;
+	}
+	
+	@Override
+	public String toString() {
+		StringBuilder builder = new StringBuilder();
+		builder.append("TokenCursor [created=");
+		builder.append(created);
+		builder.append(", id=");
+		builder.append(id);
+		builder.append("]");
+		return builder.toString();
+	}
+}
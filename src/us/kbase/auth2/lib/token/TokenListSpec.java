@@ -0,0 +1,187 @@
+package us.kbase.auth2.lib.token;
+
+import static us.kbase.auth2.lib.Utils.nonNull;
+
+import com.google.common.base.Optional;
+
+import us.kbase.auth2.lib.exceptions.IllegalParameterException;
+
+/** A specification for listing a page of a user's tokens. Tokens are listed by creation date,
+ * from newest to oldest.
+ * @author gaprice@lbl.gov
+ *
+ */
+public class TokenListSpec {
+	
+	/** The default maximum number of tokens to return. */
+	public static final int DEFAULT_LIMIT = 100;
+	
+	/** The largest allowed maximum number of tokens to return. */
+	public static final int MAX_LIMIT = 1000;
+	
+	private final Optional<TokenType> type;
+	private final Optional<TokenName> name;
+	private final int limit;
+	private final Optional<TokenCursor> cursor;
+	
+	private TokenListSpec(
+			final Optional<TokenType> type,
+			final Optional<TokenName> name,
+			final int limit,
+			final Optional<TokenCursor> cursor) {
+		this.type = type;
+		this.name = name;
+		this.limit = limit;
+		this.cursor = cursor;
+	}
+	
+	/** Get the token type to which the list is restricted, if any.
+	 * @return the token type.
+	 */
+	public Optional<TokenType> getType() {
+		return type;
+	}
+	
+	/** Get the token name to which the list is restricted, if any.
+	 * @return the token name.
+	 */
+	public Optional<TokenName> getName() {
+		return name;
+	}
+	
+	/** Get the maximum number of tokens to return.
+	 * @return the limit.
+	 */
+	public int getLimit() {
+		return limit;
+	}
+	
+	/** Get the position in the token list after which the page starts. If absent, the page starts
+	 * with the newest token.
+	 * @return the cursor.
+	 */
+	public Optional<TokenCursor> getCursor() {
+		return cursor;
+	}
+	
+	@Override
+	public int hashCode() {
+		final int prime = 31;
+		int result = 1;
+		result = prime * result + ((cursor == null) ? 0 : cursor.hashCode());
+		result = prime * result + limit;
+		result = prime * result + ((name == null) ? 0 : name.hashCode());
+		result = prime * result + ((type == null) ? 0 : type.hashCode());
+		return result;
+	}
+	
+	@Override
+	public boolean equals(Object obj) {
+		if (this == obj) {
+			return true;
+		}
+		if (obj == null) {
+			return false;
+		}
+		if (getClass() != obj.getClass()) {
+			return false;
+		}
+		TokenListSpec other = (TokenListSpec) obj;
+		if (cursor == null) {
+			if (other.cursor != null) {
+				return false;
+			}
+		} else if (!cursor.equals(other.cursor)) {
+			return false;
+		}
+		if (limit != other.limit) {
+			return false;
+		}
+		if (name == null) {
+			if (other.name != null) {
+				return false;
+			}
+		} else if (!name.equals(other.name)) {
+			return false;
+		}
+		if (type == null) {
+			if (other.type != null) {
+				return false;
+			}
+		} else if (!type.equals(other.type)) {
+			return false;
+		}
+		return true;
+	}
+	
+	/** Get a builder for a token list specification.
+	 * @return a new builder.
+	 */
+	public static Builder getBuilder() {
+		return new Builder();
+	}
+	
+	/** A builder for a token list specification.
+	 * @author gaprice@lbl.gov
+	 *
+	 */
+	public static class Builder {
+		
+		private Optional<TokenType> type = Optional.absent();
+		private Optional<TokenName> name = Optional.absent();
+		private int limit = DEFAULT_LIMIT;
+		private Optional<TokenCursor> cursor = Optional.absent();
+		
+		private Builder() {}
+		
+		/** Restrict the list to tokens of a particular type.
+		 * @param type the token type, or null to list all types.
+		 * @return this builder.
+		 */
+		public Builder withNullableType(final TokenType type) {
+			this.type = Optional.fromNullable(type);
+			return this;
+		}
+		
+		/** Restrict the list to tokens with a particular name.
+		 * @param name the token name, or null to list tokens with any or no name.
+		 * @return this builder.
+		 */
+		public Builder withNullableName(final TokenName name) {
+			this.name = Optional.fromNullable(name);
+			return this;
+		}
+		
+		/** Set the maximum number of tokens to return. The default is
+		 * {@link TokenListSpec#DEFAULT_LIMIT}.
+		 * @param limit the limit, between 1 and {@link TokenListSpec#MAX_LIMIT} inclusive.
+		 * @return this builder.
+		 * @throws IllegalParameterException if the limit is out of range.
+		 */
+		public Builder withLimit(final int limit) throws IllegalParameterException {
+			if (limit < 1 || limit > MAX_LIMIT) {
+				throw new IllegalParameterException(String.format(
+						"limit must be between 1 and %s", MAX_LIMIT));
+			}
+			this.limit = limit;
+			return this;
+		}
+		
+		/** Start the list after the position denoted by a cursor.
+		 * @param cursor the cursor, usually from the previous page of the list.
+		 * @return this builder.
+		 */
+		public Builder withCursor(final TokenCursor cursor) {
+			nonNull(cursor, "cursor");
+			this.cursor = Optional.of(cursor);
+			return this;
+		}
+		
+		/** Build the specification.
+		 * @return the new specification.
+		 */
+		public TokenListSpec build() {
+			return new TokenListSpec(type, name, limit, cursor);
+		}
+	}
+}
@@ -0,0 +1,85 @@
+package us.kbase.auth2.lib.token;
+
+import static us.kbase.auth2.lib.Utils.nonNull;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import com.google.common.base.Optional;
+
+/** A page of a user's tokens, sorted by creation date from newest to oldest.
+ * @author gaprice@lbl.gov
+ *
+ */
+public class TokenPage {
+	
+	private final List<StoredToken> tokens;
+	private final Optional<TokenCursor> nextCursor;
+	
+	/** Create a page of tokens.
+	 * @param tokens the tokens in the page, in order.
+	 * @param nextCursor the cursor for the next page, or absent if this is the last page.
+	 */
+	public TokenPage(final List<StoredToken> tokens, final Optional<TokenCursor> nextCursor) {
+		nonNull(tokens, "tokens");
+		nonNull(nextCursor, "nextCursor");
+		for (final StoredToken t: tokens) {
+			nonNull(t, "One of the tokens in the incoming list is null");
+		}
+		this.tokens = Collections.unmodifiableList(new ArrayList<>(tokens));
+		this.nextCursor = nextCursor;
+	}
+	
+	/** Get the tokens in the page.
+	 * @return the tokens.
+	 */
+	public List<StoredToken> getTokens() {
+		return tokens;
+	}
+	
+	/** Get the cursor for the next page of tokens.
+	 * @return the cursor, or absent if this is the last page.
+	 */
+	public Optional<TokenCursor> getNextCursor() {
+		return nextCursor;
+	}
+	
+	@Override
+	public int hashCode() {
+		final int prime = 31;
+		int result = 1;
+		result = prime * result + ((nextCursor == null) ? 0 : nextCursor.hashCode());
+		result = prime * result + ((tokens == null) ? 0 : tokens.hashCode());
+		return result;
+	}
+	
+	@Override
+	public boolean equals(Object obj) {
+		if (this == obj) {
+			return true;
+		}
+		if (obj == null) {
+			return false;
+		}
+		if (getClass() != obj.getClass()) {
+			return false;
+		}
+		TokenPage other = (TokenPage) obj;
+		if (nextCursor == null) {
+			if (other.nextCursor != null) {
+				return false;
+			}
+		} else if (!nextCursor.equals(other.nextCursor)) {
+			return false;
+		}
+		if (tokens == null) {
+			if (other.tokens != null) {
+				return false;
+			}
+		} else if (!tokens.equals(other.tokens)) {
+			return false;
+		}
+		return true;
+	}
+}
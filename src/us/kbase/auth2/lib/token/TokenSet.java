@@ -3,58 +3,44 @@ package us.kbase.auth2.lib.token;
 import static us.kbase.auth2.lib.Utils.nonNull;
 
 import java.util.Collections;
-import java.util.Comparator;
-import java.util.HashSet;
-import java.util.Iterator;
-import java.util.Set;
-import java.util.TreeSet;
+import java.util.LinkedList;
+import java.util.List;
 
-/** A set of tokens, including one current token for a user.
+import com.google.common.base.Optional;
+
+/** A page of tokens for a user, along with the user's current token.
  * @author gaprice@lbl.gov
  *
  */
 public class TokenSet {
 	
-	private static class TokenComparator implements Comparator<StoredToken> {
-
-		@Override
-		public int compare(final StoredToken t1, final StoredToken t2) {
-			return t1.getId().toString().compareTo(t2.getId().toString());
-		}
-		
-	}
-
 	private final StoredToken currentToken;
-	private final Set<StoredToken> tokens;
+	private final List<StoredToken> tokens;
+	private final Optional<TokenCursor> nextCursor;
 	
 	/** Create a new token set.
 	 * @param current the current token for the user associated with this token set.
-	 * @param tokens other tokens. If the current token matches one of the tokens in this set,
-	 * the token is removed from the set.
+	 * @param page a page of the user's tokens. If the current token matches one of the tokens in
+	 * the page, the token is removed from the set.
 	 */
 	public TokenSet(
 			final StoredToken current,
-			final Set<StoredToken> tokens) {
+			final TokenPage page) {
 		nonNull(current, "current");
-		nonNull(tokens, "tokens");
+		nonNull(page, "page");
 		this.currentToken = current;
-		// in case incoming set is unmodifiable
-		final Set<StoredToken> putative = new HashSet<>(tokens);
-		final Iterator<StoredToken> i = putative.iterator();
-		while (i.hasNext()) {
-			final StoredToken ht = i.next();
-			nonNull(ht, "One of the tokens in the incoming set is null");
+		final List<StoredToken> putative = new LinkedList<>();
+		for (final StoredToken ht: page.getTokens()) {
 			if (!ht.getUserName().equals(current.getUserName())) {
 				throw new IllegalArgumentException(
 						"Mixing tokens from different users is not allowed");
 			}
-			if (ht.getId().equals(current.getId())) {
-				i.remove();
+			if (!ht.getId().equals(current.getId())) {
+				putative.add(ht);
 			}
 		}
-		final Set<StoredToken> nt = new TreeSet<>(new TokenComparator());
-		nt.addAll(putative);
-		this.tokens = Collections.unmodifiableSet(nt);
+		this.tokens = Collections.unmodifiableList(putative);
+		this.nextCursor = page.getNextCursor();
 	}
 
 	/** Get the current token.
@@ -64,18 +50,27 @@ public class TokenSet {
 		return currentToken;
 	}
 
-	/** Get all tokens other than the current token.
-	 * @return all other tokens.
+	/** Get the tokens in the page other than the current token, sorted by creation date from
+	 * newest to oldest.
+	 * @return the other tokens.
 	 */
-	public Set<StoredToken> getTokens() {
+	public List<StoredToken> getTokens() {
 		return tokens;
 	}
+	
+	/** Get the cursor for the next page of tokens.
+	 * @return the cursor, or absent if this is the last page.
+	 */
+	public Optional<TokenCursor> getNextCursor() {
+		return nextCursor;
+	}
 
 	@Override
 	public int hashCode() {
 		final int prime = 31;
 		int result = 1;
 		result = prime * result + ((currentToken == null) ? 0 : currentToken.hashCode());
+		result = prime * result + ((nextCursor == null) ? 0 : nextCursor.hashCode());
 		result = prime * result + ((tokens == null) ? 0 : tokens.hashCode());
 		return result;
 	}
@@ -99,6 +94,13 @@ public class TokenSet {
 		} else if (!currentToken.equals(other.currentToken)) {
 			return false;
 		}
+		if (nextCursor == null) {
+			if (other.nextCursor != null) {
+				return false;
+			}
+		} else if (!nextCursor.equals(other.nextCursor)) {
+			return false;
+		}
 		if (tokens == null) {
 			if (other.tokens != null) {
 				return false;
@@ -4,15 +4,20 @@ import static us.kbase.auth2.lib.Utils.nonNull;
 
 import java.time.Instant;
 import java.util.Collections;
+import java.util.EnumSet;
 import java.util.HashSet;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Set;
 import java.util.TreeMap;
 import java.util.TreeSet;
-import java.util.stream.Collectors;
 
 import com.google.common.base.Optional;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.ImmutableSortedMap;
+import com.google.common.collect.ImmutableSortedSet;
+import com.google.common.collect.Interner;
+import com.google.common.collect.Interners;
 
 import us.kbase.auth2.lib.DisplayName;
 import us.kbase.auth2.lib.EmailAddress;
@@ -28,21 +33,61 @@ import us.kbase.auth2.lib.identity.RemoteIdentity;
  * locally and are not associated with 3rd party identity providers. Standard users' accounts
  * are always associated with at least one 3rd party identity.
  * 
+ * Users are stored compactly so that many users can be held in memory at once. Role sets are
+ * shared between all users with the same roles, identities and policy IDs are held in array
+ * backed immutable collections, and user names, custom roles, and policy IDs are interned so that
+ * users with the same values share the same instances. The roles the user effectively possesses
+ * are precomputed as a bitmask for authorization checks.
+ * 
  * @author gaprice@lbl.gov
  *
  */
 public class AuthUser {
+	
+	/* All the possible role sets and the sets of roles they can grant, indexed by the
+	 * bitmask of the roles. There are few roles, so every user shares one of these sets rather than
+	 * holding its own.
+	 */
+	private static final Set<Role>[] ROLE_SETS = getRoleSets(false);
+	private static final Set<Role>[] GRANTABLE_ROLE_SETS = getRoleSets(true);
+	
+	// weak interners allow pooled instances to be garbage collected when no user refers to them
+	private static final Interner<UserName> USER_NAMES = Interners.newWeakInterner();
+	private static final Interner<String> CUSTOM_ROLES = Interners.newWeakInterner();
+	private static final Interner<Set<String>> CUSTOM_ROLE_SETS = Interners.newWeakInterner();
+	private static final Interner<PolicyID> POLICY_IDS = Interners.newWeakInterner();
+	
+	private static final UserDisabledState NEVER_DISABLED = new UserDisabledState();
+	
+	@SuppressWarnings("unchecked")
+	private static Set<Role>[] getRoleSets(final boolean grantable) {
+		final Set<Role>[] sets = new Set[1 << Role.values().length];
+		for (int mask = 0; mask < sets.length; mask++) {
+			final Set<Role> roles = Role.fromMask(mask);
+			if (grantable) {
+				final Set<Role> canGrant = EnumSet.noneOf(Role.class);
+				for (final Role r: roles) {
+					canGrant.addAll(r.canGrant());
+				}
+				sets[mask] = Collections.unmodifiableSet(canGrant);
+			} else {
+				sets[mask] = Collections.unmodifiableSet(roles);
+			}
+		}
+		return sets;
+	}
 
 	private final DisplayName displayName;
 	private final EmailAddress email;
 	private final UserName userName;
 	private final Set<Role> roles;
 	private final Set<Role> canGrantRoles;
+	private final int effectiveRoleMask;
 	private final Set<String> customRoles;
 	private final Set<RemoteIdentity> identities;
 	private final Map<PolicyID, Instant> policyIDs;
 	private final Instant created;
-	private final Optional<Instant> lastLogin;
+	private final Instant lastLogin; // null if the user has never logged in
 	private final UserDisabledState disabledState;
 	
 	AuthUser(
@@ -56,18 +101,20 @@ public class AuthUser {
 			final Map<PolicyID, Instant> policyIDs,
 			final Optional<Instant> lastLogin,
 			final UserDisabledState disabledState) {
-		this.userName = userName;
+		this.userName = USER_NAMES.intern(userName);
 		this.email = email;
 		this.displayName = displayName;
-		this.identities = Collections.unmodifiableSet(identities);
-		this.roles = Collections.unmodifiableSet(roles);
-		this.customRoles = Collections.unmodifiableSet(customRoles);
-		this.policyIDs = Collections.unmodifiableMap(policyIDs);
-		this.canGrantRoles = Collections.unmodifiableSet(getRoles().stream()
-				.flatMap(r -> r.canGrant().stream()).collect(Collectors.toSet()));
+		this.identities = ImmutableSet.copyOf(identities);
+		final int roleMask = Role.getMask(roles);
+		this.roles = ROLE_SETS[roleMask];
+		this.canGrantRoles = GRANTABLE_ROLE_SETS[roleMask];
+		this.effectiveRoleMask = Role.getEffectiveMask(roles);
+		this.customRoles = CUSTOM_ROLE_SETS.intern(ImmutableSortedSet.copyOf(customRoles));
+		this.policyIDs = ImmutableSortedMap.copyOf(policyIDs);
 		this.created = created;
-		this.lastLogin = lastLogin;
-		this.disabledState = disabledState;
+		this.lastLogin = lastLogin.orNull();
+		this.disabledState = NEVER_DISABLED.equals(disabledState) ?
+				NEVER_DISABLED : disabledState;
 	}
 	
 	/** Returns whether this user is the root user.
@@ -126,6 +173,17 @@ public class AuthUser {
 	public boolean hasRole(final Role role) {
 		return roles.contains(role);
 	}
+	
+	/** Returns the bitmask of the roles this user effectively possesses - the user's roles and
+	 * all the roles they include. The mask is computed when the user is built, so checking
+	 * whether the user is authorized for an operation requires no allocation.
+	 * @return the effective role bitmask.
+	 * @see Role#getEffectiveMask(Set)
+	 * @see Role#isSatisfiedBy(int)
+	 */
+	public int getEffectiveRoleMask() {
+		return effectiveRoleMask;
+	}
 
 	/** Get the user's custom roles.
 	 * @return the users's custom roles.
@@ -159,7 +217,7 @@ public class AuthUser {
 	 * @return the last login date, or null if the user has never logged in.
 	 */
 	public Optional<Instant> getLastLogin() {
-		return lastLogin;
+		return Optional.fromNullable(lastLogin);
 	}
 	
 	/** Returns true if the account for this user is disabled.
@@ -410,11 +468,11 @@ public class AuthUser {
 		final DisplayName displayName;
 		final Instant created;
 		EmailAddress email = EmailAddress.UNKNOWN;
-		final Set<Role> roles = new TreeSet<>();
+		final Set<Role> roles = EnumSet.noneOf(Role.class);
 		final Set<String> customRoles = new TreeSet<>();
 		final Map<PolicyID, Instant> policyIDs = new TreeMap<>();
 		Optional<Instant> lastLogin = Optional.absent();
-		UserDisabledState disabledState = new UserDisabledState();
+		UserDisabledState disabledState = NEVER_DISABLED;
 		
 		AbstractBuilder(
 				final UserName userName,
@@ -468,7 +526,7 @@ public class AuthUser {
 		 */
 		public T withCustomRole(final String customRole) {
 			nonNull(customRole, "customRole");
-			customRoles.add(customRole);
+			customRoles.add(CUSTOM_ROLES.intern(customRole));
 			return getThis();
 		}
 		
@@ -480,7 +538,7 @@ public class AuthUser {
 		public T withPolicyID(final PolicyID policyID, final Instant agreedOn) {
 			nonNull(policyID, "policyID");
 			nonNull(agreedOn, "agreedOn");
-			policyIDs.put(policyID, agreedOn);
+			policyIDs.put(POLICY_IDS.intern(policyID), agreedOn);
 			return getThis();
 		}
 		
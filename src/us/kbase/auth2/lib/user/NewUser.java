@@ -3,8 +3,7 @@ package us.kbase.auth2.lib.user;
 import static us.kbase.auth2.lib.Utils.nonNull;
 
 import java.time.Instant;
-import java.util.Arrays;
-import java.util.HashSet;
+import java.util.Collections;
 import java.util.Map;
 import java.util.Set;
 
@@ -36,7 +35,7 @@ public class NewUser extends AuthUser {
 			final Map<PolicyID, Instant> policyIDs,
 			final Optional<Instant> lastLogin,
 			final UserDisabledState disabledState) {
-		super(userName, displayName, created, new HashSet<>(Arrays.asList(remoteIdentity)), email,
+		super(userName, displayName, created, Collections.singleton(remoteIdentity), email,
 				roles, customRoles, policyIDs, lastLogin, disabledState);
 	}
 
@@ -11,16 +11,16 @@ import java.util.ArrayList;
 import java.util.Base64;
 import java.util.Collections;
 import java.util.HashSet;
+import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 import java.util.stream.Collectors;
 
 import javax.ws.rs.ProcessingException;
-import javax.ws.rs.client.Client;
-import javax.ws.rs.client.ClientBuilder;
 import javax.ws.rs.client.Entity;
-import javax.ws.rs.client.WebTarget;
 import javax.ws.rs.core.MediaType;
 import javax.ws.rs.core.MultivaluedHashMap;
 import javax.ws.rs.core.MultivaluedMap;
@@ -29,6 +29,7 @@ import javax.ws.rs.core.UriBuilder;
 
 import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.common.collect.ImmutableMap;
 
 import us.kbase.auth2.lib.exceptions.IdentityRetrievalException;
 import us.kbase.auth2.lib.identity.IdentityProvider;
@@ -66,13 +67,12 @@ public class GlobusIdentityProviderFactory implements IdentityProviderFactory {
 		private static final String TOKEN_PATH = "/v2/oauth2/token";
 		private static final String INTROSPECT_PATH = TOKEN_PATH + "/introspect";
 		private static final String IDENTITIES_PATH = "/v2/api/identities";
-		
-		//thread safe
-		private static final Client CLI = ClientBuilder.newClient();
+		private static final int IDENTITIES_CHUNK_SIZE = 10;
 		
 		private static final ObjectMapper MAPPER = new ObjectMapper();
 		
 		private final IdentityProviderConfig cfg;
+		private final ProviderClient client;
 		private final boolean ignoreSecondaries;
 		
 		/** Create a new identity provider for the Globus service.
@@ -87,6 +87,7 @@ public class GlobusIdentityProviderFactory implements IdentityProviderFactory {
 						idc.getIdentityProviderFactoryClassName());
 			}
 			this.cfg = idc;
+			client = new ProviderClient(NAME, idc);
 			ignoreSecondaries = "true".equals(idc.getCustomConfiguation()
 					.get(IGNORE_SECONDARY_IDENTITIES));
 		}
@@ -164,24 +165,25 @@ public class GlobusIdentityProviderFactory implements IdentityProviderFactory {
 			if (secondaryIDs.isEmpty()) {
 				return new HashSet<>();
 			}
-			final URI idtarget = UriBuilder.fromUri(toURI(cfg.getApiURL()))
-					.path(IDENTITIES_PATH)
-					.queryParam("ids", String.join(",", secondaryIDs))
-					.build();
-			
-			final Map<String, Object> ids; 
+			// fetch the identities in chunks in parallel so latency doesn't grow with the
+			// number of linked identities
+			final List<String> sorted = sort(secondaryIDs);
+			final List<CompletableFuture<Set<RemoteIdentity>>> chunks = new LinkedList<>();
+			for (int i = 0; i < sorted.size(); i += IDENTITIES_CHUNK_SIZE) {
+				chunks.add(getSecondaryIdentitiesAsync(accessToken,
+						sorted.subList(i, Math.min(i + IDENTITIES_CHUNK_SIZE, sorted.size()))));
+			}
+			final Set<RemoteIdentity> idents = new HashSet<>();
 			try {
-				ids = globusGetRequest(accessToken, idtarget);
+				for (final CompletableFuture<Set<RemoteIdentity>> chunk: chunks) {
+					idents.addAll(join(chunk));
+				}
 			} catch (IdentityRetrievalException e) {
 				//hacky. switch to internal exception later
 				final String[] msg = e.getMessage().split(":", 2);
 				throw new IdentityRetrievalException("Secondary identity retrieval failed: " +
-						msg[msg.length - 1].trim());
+						msg[msg.length - 1].trim(), e);
 			}
-			@SuppressWarnings("unchecked")
-			final List<Map<String, String>> sids =
-					(List<Map<String, String>>) ids.get("identities");
-			final Set<RemoteIdentity> idents = makeIdentities(sids);
 			final Set<String> got = idents.stream()
 					.map(i -> i.getRemoteID().getProviderIdentityId()).collect(Collectors.toSet());
 			if (!secondaryIDs.equals(got)) {
@@ -193,6 +195,44 @@ public class GlobusIdentityProviderFactory implements IdentityProviderFactory {
 			return idents;
 		}
 	
+		private CompletableFuture<Set<RemoteIdentity>> getSecondaryIdentitiesAsync(
+				final String accessToken,
+				final List<String> secondaryIDs) {
+			final URI idtarget = UriBuilder.fromUri(toURI(cfg.getApiURL()))
+					.path(IDENTITIES_PATH)
+					.queryParam("ids", String.join(",", secondaryIDs))
+					.build();
+			return client.getAsync(idtarget, MediaType.APPLICATION_JSON_TYPE,
+					ImmutableMap.of("Authorization", "Bearer " + accessToken))
+					.thenApply(r -> {
+						try {
+							final Map<String, Object> ids = processResponse(r, 200);
+							@SuppressWarnings("unchecked")
+							final List<Map<String, String>> sids =
+									(List<Map<String, String>>) ids.get("identities");
+							return makeIdentities(sids);
+						} catch (IdentityRetrievalException e) {
+							throw new CompletionException(e);
+						} finally {
+							r.close();
+						}
+					});
+		}
+		
+		private <T> T join(final CompletableFuture<T> future)
+				throws IdentityRetrievalException {
+			try {
+				return future.join();
+			} catch (CompletionException e) {
+				if (e.getCause() instanceof IdentityRetrievalException) {
+					throw (IdentityRetrievalException) e.getCause();
+				} else if (e.getCause() instanceof RuntimeException) {
+					throw (RuntimeException) e.getCause();
+				}
+				throw e;
+			}
+		}
+	
 		private List<String> sort(final Set<String> s) {
 			final List<String> l = new ArrayList<>(s);
 			Collections.sort(l);
@@ -222,7 +262,7 @@ public class GlobusIdentityProviderFactory implements IdentityProviderFactory {
 				//hacky. switch to internal exception later
 				final String[] msg = e.getMessage().split(":", 2);
 				throw new IdentityRetrievalException("Primary identity retrieval failed: " +
-						msg[msg.length - 1].trim());
+						msg[msg.length - 1].trim(), e);
 			}
 			// per Globus spec, check that the audience for the requests includes
 			// our client
@@ -291,7 +331,7 @@ public class GlobusIdentityProviderFactory implements IdentityProviderFactory {
 				//hacky. switch to internal exception later
 				final String[] msg = e.getMessage().split(":", 2);
 				throw new IdentityRetrievalException("Authtoken retrieval failed: " +
-						msg[msg.length - 1].trim());
+						msg[msg.length - 1].trim(), e);
 			}
 			final String token = (String) m.get("access_token");
 			if (token == null || token.trim().isEmpty()) {
@@ -306,12 +346,10 @@ public class GlobusIdentityProviderFactory implements IdentityProviderFactory {
 				throws IdentityRetrievalException {
 			final String bauth = "Basic " + Base64.getEncoder().encodeToString(
 					(cfg.getClientID() + ":" + cfg.getClientSecret()).getBytes());
-			final WebTarget wt = CLI.target(target);
 			Response r = null;
 			try {
-				r = wt.request(MediaType.APPLICATION_JSON_TYPE)
-						.header("Authorization", bauth)
-						.post(Entity.form(formParameters));
+				r = client.post(target, MediaType.APPLICATION_JSON_TYPE,
+						ImmutableMap.of("Authorization", bauth), Entity.form(formParameters));
 				return processResponse(r, 200);
 			} finally {
 				if (r != null) {
@@ -321,24 +359,6 @@ public class GlobusIdentityProviderFactory implements IdentityProviderFactory {
 		}
 		
 	
-		private Map<String, Object> globusGetRequest(
-				final String accessToken,
-				final URI idtarget)
-				throws IdentityRetrievalException {
-			final WebTarget wt = CLI.target(idtarget);
-			Response r = null;
-			try {
-				r = wt.request(MediaType.APPLICATION_JSON_TYPE)
-						.header("Authorization", "Bearer " + accessToken)
-						.get();
-				return processResponse(r, 200);
-			} finally {
-				if (r != null) {
-					r.close();
-				}
-			}
-		}
-		
 		private Map<String, Object> processResponse(final Response r, final int expectedCode)
 				throws IdentityRetrievalException {
 			if (r.getStatus() == expectedCode) {
@@ -8,16 +8,13 @@ import java.net.URI;
 import java.net.URISyntaxException;
 import java.net.URL;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashSet;
-import java.util.List;
 import java.util.Map;
 import java.util.Set;
 
 import javax.ws.rs.ProcessingException;
-import javax.ws.rs.client.Client;
-import javax.ws.rs.client.ClientBuilder;
 import javax.ws.rs.client.Entity;
-import javax.ws.rs.client.WebTarget;
 import javax.ws.rs.core.MediaType;
 import javax.ws.rs.core.MultivaluedHashMap;
 import javax.ws.rs.core.MultivaluedMap;
@@ -53,28 +50,25 @@ public class GoogleIdentityProviderFactory implements IdentityProviderFactory {
 	public static class GoogleIdentityProvider implements IdentityProvider {
 	
 		/* Get creds: https://console.developers.google.com/apis
-		 * Google+ API must be enabled
 		 * Docs:
 		 * https://developers.google.com/identity/protocols/OAuth2
 		 * https://developers.google.com/identity/protocols/OAuth2WebServer
-		 * https://developers.google.com/+/web/api/rest/oauth#login-scopes
-		 * https://developers.google.com/+/web/api/rest/latest/people/get
-		 * https://developers.google.com/+/web/api/rest/latest/people
+		 * https://developers.google.com/identity/protocols/OpenIDConnect
 		 */
 		
 		private static final String NAME = "Google";
-		private static final String SCOPE =
-				"https://www.googleapis.com/auth/plus.me profile email";
+		private static final String SCOPE = "openid profile email";
 		private static final String LOGIN_PATH = "/o/oauth2/v2/auth";
 		private static final String TOKEN_PATH = "/oauth2/v4/token";
-		private static final String IDENTITY_PATH = "/plus/v1/people/me";
-		
-		//thread safe
-		private static final Client CLI = ClientBuilder.newClient();
+		private static final String KEYS_PATH = "/oauth2/v3/certs";
+		private static final Set<String> ISSUERS = Collections.unmodifiableSet(new HashSet<>(
+				Arrays.asList("accounts.google.com", "https://accounts.google.com")));
 		
 		private static final ObjectMapper MAPPER = new ObjectMapper();
 		
 		private final IdentityProviderConfig cfg;
+		private final ProviderClient client;
+		private final IDTokenVerifier idTokenVerifier;
 		
 		/** Create an identity provider for Google.
 		 * @param idc the configuration for this provider.
@@ -88,6 +82,10 @@ public class GoogleIdentityProviderFactory implements IdentityProviderFactory {
 						idc.getIdentityProviderFactoryClassName());
 			}
 			this.cfg = idc;
+			client = new ProviderClient(NAME, idc);
+			final URI keys = UriBuilder.fromUri(toURI(cfg.getApiURL())).path(KEYS_PATH).build();
+			idTokenVerifier = new IDTokenVerifier(NAME, new JWKSCache(client, keys), ISSUERS,
+					cfg.getClientID());
 		}
 	
 		@Override
@@ -135,77 +133,35 @@ public class GoogleIdentityProviderFactory implements IdentityProviderFactory {
 			if (authcode == null || authcode.trim().isEmpty()) {
 				throw new IllegalArgumentException("authcode cannot be null or empty");
 			}
-			final String accessToken = getAccessToken(authcode, link);
-			final RemoteIdentity ri = getIdentity(accessToken);
+			// the identity is taken from the ID token in the token response, which is verified
+			// locally, rather than making another request to Google
+			final String idToken = getIDToken(authcode, link);
+			final RemoteIdentity ri = getIdentity(idToken);
 			return new HashSet<>(Arrays.asList(ri));
 		}
 	
-		private RemoteIdentity getIdentity(final String accessToken)
+		private RemoteIdentity getIdentity(final String idToken)
 				throws IdentityRetrievalException {
-			final URI target = UriBuilder.fromUri(toURI(cfg.getApiURL()))
-					.path(IDENTITY_PATH).build();
-			final Map<String, Object> id = googleGetRequest(accessToken, target);
-			// could do a whooole lot of type checking here. We'll just assume Google aren't
-			// buttholes that change their API willy nilly
-			@SuppressWarnings("unchecked")
-			final List<Map<String, String>> emails = (List<Map<String, String>>) id.get("emails");
-			if (emails == null || emails.isEmpty()) {
+			final Map<String, Object> claims = idTokenVerifier.verify(idToken);
+			final Object email = claims.get("email");
+			if (!(email instanceof String) || ((String) email).trim().isEmpty()) {
 				throw new IdentityRetrievalException("No username included in response from " +
 						NAME);
 			}
-			// we'll also just grab the first email and assume that if it's null or empty something
-			// is very wrong @ Google
-			final String email = emails.get(0).get("value");
-			if (email == null || email.trim().isEmpty()) {
-				throw new IdentityRetrievalException("No username included in response from " +
+			if (!(claims.get("sub") instanceof String)) {
+				throw new IdentityRetrievalException("No user ID included in response from " +
 						NAME);
 			}
+			final Object name = claims.get("name");
 			return new RemoteIdentity(
-					new RemoteIdentityID(NAME, (String) id.get("id")),
+					new RemoteIdentityID(NAME, (String) claims.get("sub")),
 					new RemoteIdentityDetails(
-							email, // use email for user id
-							(String) id.get("displayName"),
-							email));
-		}
-	
-		private Map<String, Object> googleGetRequest(
-				final String accessToken,
-				final URI target)
-				throws IdentityRetrievalException {
-			final WebTarget wt = CLI.target(target);
-			Response r = null;
-			try {
-				r = wt.request(MediaType.APPLICATION_JSON_TYPE)
-						.header("Authorization", "Bearer " + accessToken)
-						.get();
-				return processResponse(r, 200, new ErrorHandler() {
-					
-					@Override
-					public void handleError(final Response r, final Map<String, Object> response)
-							throws IdentityRetrievalException {
-						// ignoring type checking again, assuming that Google aren't jerks
-						@SuppressWarnings("unchecked")
-						final Map<String, Object> m = (Map<String, Object>) response.get("error");
-						// there's more details in the 'errors' key but ignore that for now
-						// could log later
-						if (m == null || !m.containsKey("message")) {
-							throw new IdentityRetrievalException(String.format(
-									"Got unexpected HTTP code with null error in the response " +
-									"body from %s service: %s.", NAME, r.getStatus()));
-						}
-						throw new IdentityRetrievalException(String.format(
-								"%s service returned an error. HTTP code: %s. Error: %s",
-								NAME, r.getStatus(), m.get("message")));
-					}
-				});
-			} finally {
-				if (r != null) {
-					r.close();
-				}
-			}
+							(String) email, // use email for user id
+							name instanceof String ? (String) name : null,
+							(String) email));
 		}
 	
-		private String getAccessToken(final String authcode, final boolean link)
+		private String getIDToken(final String authcode, final boolean link)
 				throws IdentityRetrievalException {
 			final MultivaluedMap<String, String> formParameters =
 					new MultivaluedHashMap<>();
@@ -227,11 +183,11 @@ public class GoogleIdentityProviderFactory implements IdentityProviderFactory {
 				//hacky. switch to internal exception later
 				final String[] msg = e.getMessage().split(":", 2);
 				throw new IdentityRetrievalException("Authtoken retrieval failed: " +
-						msg[msg.length - 1].trim());
+						msg[msg.length - 1].trim(), e);
 			}
-			final String token = (String) m.get("access_token");
+			final String token = (String) m.get("id_token");
 			if (token == null || token.trim().isEmpty()) {
-				throw new IdentityRetrievalException("No access token was returned by " + NAME);
+				throw new IdentityRetrievalException("No ID token was returned by " + NAME);
 			}
 			return token;
 		}
@@ -240,11 +196,10 @@ public class GoogleIdentityProviderFactory implements IdentityProviderFactory {
 				final MultivaluedMap<String, String> formParameters,
 				final URI target)
 				throws IdentityRetrievalException {
-			final WebTarget wt = CLI.target(target);
 			Response r = null;
 			try {
-				r = wt.request(MediaType.APPLICATION_JSON_TYPE)
-						.post(Entity.form(formParameters));
+				r = client.post(target, MediaType.APPLICATION_JSON_TYPE,
+						Collections.emptyMap(), Entity.form(formParameters));
 				return processResponse(r, 200, new ErrorHandler() {
 					
 					@Override
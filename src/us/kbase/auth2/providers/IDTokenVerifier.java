@@ -0,0 +1,184 @@
+package us.kbase.auth2.providers;
+
+import static us.kbase.auth2.lib.Utils.checkStringNoCheckedException;
+import static us.kbase.auth2.lib.Utils.nonNull;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.Signature;
+import java.time.Clock;
+import java.util.Base64;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import us.kbase.auth2.lib.exceptions.IdentityRetrievalException;
+
+/** Verifies OpenID Connect ID tokens signed with RS256, as returned in the token response from
+ * an OpenID Connect identity provider.
+ *
+ * The signature is verified against the provider's public keys, and the issuer, audience, and
+ * expiration time claims are checked. See
+ * http://openid.net/specs/openid-connect-core-1_0.html#IDTokenValidation
+ *
+ * This class is thread safe.
+ * @author gaprice@lbl.gov
+ *
+ */
+public class IDTokenVerifier {
+
+	/** The allowed clock skew, in seconds, between the service and the identity provider when
+	 * checking the token expiration time.
+	 */
+	public static final int ALLOWED_CLOCK_SKEW_SEC = 60;
+
+	private static final String ALGORITHM = "RS256";
+	private static final ObjectMapper MAPPER = new ObjectMapper();
+
+	private final String providerName;
+	private final JWKSCache keys;
+	private final Set<String> issuers;
+	private final String audience;
+	private final Clock clock;
+
+	/** Create a verifier.
+	 * @param providerName the name of the identity provider, used in error messages.
+	 * @param keys the identity provider's public keys.
+	 * @param issuers the allowed issuers of tokens.
+	 * @param audience the required audience of tokens, generally the client ID.
+	 */
+	public IDTokenVerifier(
+			final String providerName,
+			final JWKSCache keys,
+			final Set<String> issuers,
+			final String audience) {
+		this(providerName, keys, issuers, audience, Clock.systemDefaultZone());
+	}
+
+	/** Create a verifier with a specified clock. Generally only used for testing.
+	 * @param providerName the name of the identity provider, used in error messages.
+	 * @param keys the identity provider's public keys.
+	 * @param issuers the allowed issuers of tokens.
+	 * @param audience the required audience of tokens, generally the client ID.
+	 * @param clock the clock used to check token expiration times.
+	 */
+	public IDTokenVerifier(
+			final String providerName,
+			final JWKSCache keys,
+			final Set<String> issuers,
+			final String audience,
+			final Clock clock) {
+		checkStringNoCheckedException(providerName, "providerName");
+		nonNull(keys, "keys");
+		nonNull(issuers, "issuers");
+		checkStringNoCheckedException(audience, "audience");
+		nonNull(clock, "clock");
+		if (issuers.isEmpty()) {
+			throw new IllegalArgumentException("At least one issuer is required");
+		}
+		this.providerName = providerName;
+		this.keys = keys;
+		this.issuers = Collections.unmodifiableSet(new HashSet<>(issuers));
+		this.audience = audience;
+		this.clock = clock;
+	}
+
+	/** Verify an ID token.
+	 * @param idToken the token.
+	 * @return the claims in the token.
+	 * @throws IdentityRetrievalException if the token is malformed, the signature is invalid,
+	 * the token was not issued by an allowed issuer for the audience, or the token has expired.
+	 */
+	public Map<String, Object> verify(final String idToken) throws IdentityRetrievalException {
+		nonNull(idToken, "idToken");
+		final String[] parts = idToken.split("\\.", -1);
+		if (parts.length != 3) {
+			throw malformed();
+		}
+		final Map<String, Object> header = decode(parts[0]);
+		final Map<String, Object> claims = decode(parts[1]);
+		final byte[] signature;
+		try {
+			signature = Base64.getUrlDecoder().decode(parts[2]);
+		} catch (IllegalArgumentException e) {
+			throw malformed();
+		}
+		if (!ALGORITHM.equals(header.get("alg"))) {
+			throw new IdentityRetrievalException(String.format(
+					"Unsupported ID token signing algorithm from %s service: %s",
+					providerName, header.get("alg")));
+		}
+		if (!(header.get("kid") instanceof String)) {
+			throw malformed();
+		}
+		checkSignature(parts[0] + "." + parts[1], signature, (String) header.get("kid"));
+		checkClaims(claims);
+		return claims;
+	}
+
+	private void checkSignature(final String content, final byte[] signature, final String kid)
+			throws IdentityRetrievalException {
+		final boolean valid;
+		try {
+			final Signature s = Signature.getInstance("SHA256withRSA");
+			s.initVerify(keys.getKey(kid));
+			s.update(content.getBytes(StandardCharsets.US_ASCII));
+			valid = s.verify(signature);
+		} catch (GeneralSecurityException e) {
+			throw new IdentityRetrievalException(String.format(
+					"Unable to verify ID token signature from %s service: %s",
+					providerName, e.getMessage()), e);
+		}
+		if (!valid) {
+			throw new IdentityRetrievalException(String.format(
+					"Invalid ID token signature from %s service", providerName));
+		}
+	}
+
+	private void checkClaims(final Map<String, Object> claims)
+			throws IdentityRetrievalException {
+		if (!issuers.contains(claims.get("iss"))) {
+			throw new IdentityRetrievalException(String.format(
+					"ID token from %s service has an unexpected issuer: %s",
+					providerName, claims.get("iss")));
+		}
+		final Object aud = claims.get("aud");
+		// the audience may be a single string or a list
+		if (!audience.equals(aud) && !(aud instanceof List && ((List<?>) aud).contains(audience))) {
+			throw new IdentityRetrievalException(String.format(
+					"ID token from %s service was not issued to this client", providerName));
+		}
+		if (!(claims.get("exp") instanceof Number)) {
+			throw malformed();
+		}
+		final long exp = ((Number) claims.get("exp")).longValue();
+		if (clock.instant().getEpochSecond() > exp + ALLOWED_CLOCK_SKEW_SEC) {
+			throw new IdentityRetrievalException(String.format(
+					"ID token from %s service has expired", providerName));
+		}
+	}
+
+	private Map<String, Object> decode(final String part) throws IdentityRetrievalException {
+		try {
+			final Map<String, Object> m = MAPPER.readValue(Base64.getUrlDecoder().decode(part),
+					new TypeReference<Map<String, Object>>() {});
+			if (m == null) {
+				throw malformed();
+			}
+			return m;
+		} catch (IllegalArgumentException | IOException e) {
+			throw malformed();
+		}
+	}
+
+	private IdentityRetrievalException malformed() {
+		return new IdentityRetrievalException(String.format(
+				"Malformed ID token from %s service", providerName));
+	}
+}
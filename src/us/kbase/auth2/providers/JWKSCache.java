@@ -0,0 +1,232 @@
+package us.kbase.auth2.providers;
+
+import static us.kbase.auth2.lib.Utils.nonNull;
+
+import java.math.BigInteger;
+import java.net.URI;
+import java.security.GeneralSecurityException;
+import java.security.KeyFactory;
+import java.security.PublicKey;
+import java.security.spec.RSAPublicKeySpec;
+import java.time.Clock;
+import java.time.Instant;
+import java.util.Base64;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import javax.ws.rs.ProcessingException;
+import javax.ws.rs.core.HttpHeaders;
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.Response;
+
+import us.kbase.auth2.lib.exceptions.IdentityRetrievalException;
+
+/** A cache of the RSA public keys in a JSON Web Key Set (JWKS) published by an identity
+ * provider, used to verify the signatures of tokens issued by the provider.
+ *
+ * The key set is fetched when first needed and kept until it expires, as specified by the
+ * max-age directive of the Cache-Control header in the key set response. If a key ID is requested
+ * that is not in the cached key set, the key set is fetched again, since the provider may have
+ * rotated its keys. To prevent tokens with bogus key IDs from causing a request to the provider
+ * for every token, the key set is fetched for an unknown key ID no more than once per
+ * {@link #MIN_REFETCH_INTERVAL_SEC} seconds.
+ *
+ * This class is thread safe.
+ * @author gaprice@lbl.gov
+ *
+ */
+public class JWKSCache {
+
+	/** The time, in seconds, to cache a key set when the response does not specify a max-age. */
+	public static final int DEFAULT_MAX_AGE_SEC = 300;
+
+	/** The minimum time, in seconds, between key set fetches triggered by an unknown key ID. */
+	public static final int MIN_REFETCH_INTERVAL_SEC = 30;
+
+	private static final Pattern MAX_AGE = Pattern.compile("(?:^|[,\\s])max-age\\s*=\\s*(\\d+)");
+
+	private static class KeySet {
+
+		private final Map<String, PublicKey> keys;
+		private final Instant fetched;
+		private final Instant expires;
+
+		private KeySet(
+				final Map<String, PublicKey> keys,
+				final Instant fetched,
+				final Instant expires) {
+			this.keys = keys;
+			this.fetched = fetched;
+			this.expires = expires;
+		}
+	}
+
+	private final ProviderClient client;
+	private final URI jwksURI;
+	private final Clock clock;
+	// a lock rather than a monitor, since the key set is fetched while holding it and a virtual
+	// thread blocked in a synchronized block pins its carrier thread
+	private final ReentrantLock refreshLock = new ReentrantLock();
+
+	private volatile KeySet keySet = null;
+
+	/** Create a key set cache.
+	 * @param client the client to use to fetch the key set. The provider name of the client is
+	 * used in error messages.
+	 * @param jwksURI the location of the key set.
+	 */
+	public JWKSCache(final ProviderClient client, final URI jwksURI) {
+		this(client, jwksURI, Clock.systemDefaultZone()); // don't care about time zone
+	}
+
+	/** Create a key set cache with a specified clock. Generally only used for testing.
+	 * @param client the client to use to fetch the key set. The provider name of the client is
+	 * used in error messages.
+	 * @param jwksURI the location of the key set.
+	 * @param clock the clock used to determine when the cached key set expires.
+	 */
+	public JWKSCache(final ProviderClient client, final URI jwksURI, final Clock clock) {
+		nonNull(client, "client");
+		nonNull(jwksURI, "jwksURI");
+		nonNull(clock, "clock");
+		this.client = client;
+		this.jwksURI = jwksURI;
+		this.clock = clock;
+	}
+
+	/** Get a public key from the key set.
+	 * @param keyID the ID of the key.
+	 * @return the key.
+	 * @throws IdentityRetrievalException if the key set could not be fetched or the key is not in
+	 * the key set.
+	 */
+	public PublicKey getKey(final String keyID) throws IdentityRetrievalException {
+		nonNull(keyID, "keyID");
+		final KeySet ks = keySet;
+		if (ks != null && clock.instant().isBefore(ks.expires) && ks.keys.containsKey(keyID)) {
+			return ks.keys.get(keyID);
+		}
+		return refresh(keyID);
+	}
+
+	private PublicKey refresh(final String keyID) throws IdentityRetrievalException {
+		final KeySet ks;
+		refreshLock.lock();
+		try {
+			ks = refreshKeySet(keyID);
+		} finally {
+			refreshLock.unlock();
+		}
+		final PublicKey key = ks.keys.get(keyID);
+		if (key == null) {
+			throw new IdentityRetrievalException(String.format(
+					"Unknown signing key ID from %s service: %s",
+					client.getProviderName(), keyID));
+		}
+		return key;
+	}
+
+	// must be called while holding the refresh lock
+	private KeySet refreshKeySet(final String keyID) throws IdentityRetrievalException {
+		final Instant now = clock.instant();
+		final KeySet ks = keySet; // may have been refreshed by another thread while waiting
+		final boolean expired = ks == null || !now.isBefore(ks.expires);
+		if (expired || (!ks.keys.containsKey(keyID) &&
+				!now.isBefore(ks.fetched.plusSeconds(MIN_REFETCH_INTERVAL_SEC)))) {
+			keySet = fetch(now);
+			return keySet;
+		}
+		return ks;
+	}
+
+	private KeySet fetch(final Instant now) throws IdentityRetrievalException {
+		Response r = null;
+		try {
+			r = client.get(jwksURI, MediaType.APPLICATION_JSON_TYPE, Collections.emptyMap());
+			if (r.getStatus() != 200) {
+				throw new IdentityRetrievalException(String.format(
+						"Got unexpected HTTP code retrieving signing keys from %s service: %s.",
+						client.getProviderName(), r.getStatus()));
+			}
+			final Map<String, Object> jwks;
+			try {
+				@SuppressWarnings("unchecked")
+				final Map<String, Object> m = r.readEntity(Map.class);
+				jwks = m;
+			} catch (ProcessingException e) { // not json
+				throw parseError();
+			}
+			return new KeySet(parseKeys(jwks), now,
+					now.plusSeconds(getMaxAge(r.getHeaderString(HttpHeaders.CACHE_CONTROL))));
+		} finally {
+			if (r != null) {
+				r.close();
+			}
+		}
+	}
+
+	private IdentityRetrievalException parseError() {
+		return new IdentityRetrievalException(String.format(
+				"Unable to parse signing keys from %s service.", client.getProviderName()));
+	}
+
+	private Map<String, PublicKey> parseKeys(final Map<String, Object> jwks)
+			throws IdentityRetrievalException {
+		if (jwks == null || !(jwks.get("keys") instanceof List)) {
+			throw parseError();
+		}
+		final Map<String, PublicKey> ret = new HashMap<>();
+		for (final Object o: (List<?>) jwks.get("keys")) {
+			if (!(o instanceof Map)) {
+				throw parseError();
+			}
+			final Map<?, ?> jwk = (Map<?, ?>) o;
+			// ignore keys that can't be used to verify RSA signatures
+			if (!"RSA".equals(jwk.get("kty")) || !(jwk.get("kid") instanceof String) ||
+					(jwk.get("use") != null && !"sig".equals(jwk.get("use")))) {
+				continue;
+			}
+			ret.put((String) jwk.get("kid"), toRSAKey(jwk.get("n"), jwk.get("e")));
+		}
+		return Collections.unmodifiableMap(ret);
+	}
+
+	private PublicKey toRSAKey(final Object modulus, final Object exponent)
+			throws IdentityRetrievalException {
+		if (!(modulus instanceof String) || !(exponent instanceof String)) {
+			throw parseError();
+		}
+		try {
+			final Base64.Decoder dec = Base64.getUrlDecoder();
+			return KeyFactory.getInstance("RSA").generatePublic(new RSAPublicKeySpec(
+					new BigInteger(1, dec.decode((String) modulus)),
+					new BigInteger(1, dec.decode((String) exponent))));
+		} catch (IllegalArgumentException | GeneralSecurityException e) {
+			throw parseError();
+		}
+	}
+
+	private long getMaxAge(final String cacheControl) {
+		if (cacheControl == null) {
+			return DEFAULT_MAX_AGE_SEC;
+		}
+		final String cc = cacheControl.toLowerCase();
+		if (cc.contains("no-cache") || cc.contains("no-store")) {
+			return 0;
+		}
+		final Matcher m = MAX_AGE.matcher(cc);
+		if (!m.find()) {
+			return DEFAULT_MAX_AGE_SEC;
+		}
+		try {
+			return Long.parseLong(m.group(1));
+		} catch (NumberFormatException e) { // too many digits
+			return DEFAULT_MAX_AGE_SEC;
+		}
+	}
+}
@@ -8,16 +8,14 @@ import java.net.URI;
 import java.net.URISyntaxException;
 import java.net.URL;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
 
 import javax.ws.rs.ProcessingException;
-import javax.ws.rs.client.Client;
-import javax.ws.rs.client.ClientBuilder;
 import javax.ws.rs.client.Entity;
-import javax.ws.rs.client.WebTarget;
 import javax.ws.rs.core.MediaType;
 import javax.ws.rs.core.MultivaluedHashMap;
 import javax.ws.rs.core.MultivaluedMap;
@@ -26,6 +24,7 @@ import javax.ws.rs.core.UriBuilder;
 
 import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.common.collect.ImmutableMap;
 
 import us.kbase.auth2.lib.exceptions.IdentityRetrievalException;
 import us.kbase.auth2.lib.identity.IdentityProvider;
@@ -64,12 +63,10 @@ public class OrcIDIdentityProviderFactory implements IdentityProviderFactory {
 		private static final String TOKEN_PATH = "/oauth/token";
 		private static final String RECORD_PATH = "/v2.1";
 		
-		//thread safe
-		private static final Client CLI = ClientBuilder.newClient();
-		
 		private static final ObjectMapper MAPPER = new ObjectMapper();
 		
 		private final IdentityProviderConfig cfg;
+		private final ProviderClient client;
 		
 		/** Create an identity provider for OrcID.
 		 * @param idc the configuration for this provider.
@@ -83,6 +80,7 @@ public class OrcIDIdentityProviderFactory implements IdentityProviderFactory {
 						idc.getIdentityProviderFactoryClassName());
 			}
 			this.cfg = idc;
+			client = new ProviderClient(NAME, idc);
 		}
 	
 		@Override
@@ -164,12 +162,10 @@ public class OrcIDIdentityProviderFactory implements IdentityProviderFactory {
 				final String accessToken,
 				final URI target)
 				throws IdentityRetrievalException {
-			final WebTarget wt = CLI.target(target);
 			Response r = null;
 			try {
-				r = wt.request(MediaType.APPLICATION_JSON_TYPE)
-						.header("Authorization", "Bearer " + accessToken)
-						.get();
+				r = client.get(target, MediaType.APPLICATION_JSON_TYPE,
+						ImmutableMap.of("Authorization", "Bearer " + accessToken));
 				return processResponse(r, 200, new ErrorHandler() {
 					
 					@Override
@@ -236,7 +232,7 @@ public class OrcIDIdentityProviderFactory implements IdentityProviderFactory {
 				//hacky. switch to internal exception later
 				final String[] msg = e.getMessage().split(":", 2);
 				throw new IdentityRetrievalException("Authtoken retrieval failed: " +
-						msg[msg.length - 1].trim());
+						msg[msg.length - 1].trim(), e);
 			}
 			return new OrcIDAccessTokenResponse(
 					(String) m.get("access_token"),
@@ -248,11 +244,10 @@ public class OrcIDIdentityProviderFactory implements IdentityProviderFactory {
 				final MultivaluedMap<String, String> formParameters,
 				final URI target)
 				throws IdentityRetrievalException {
-			final WebTarget wt = CLI.target(target);
 			Response r = null;
 			try {
-				r = wt.request(MediaType.APPLICATION_JSON_TYPE)
-						.post(Entity.form(formParameters));
+				r = client.post(target, MediaType.APPLICATION_JSON_TYPE,
+						Collections.emptyMap(), Entity.form(formParameters));
 				return processResponse(r, 200, new ErrorHandler() {
 					
 					@Override
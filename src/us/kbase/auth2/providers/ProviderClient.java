@@ -0,0 +1,204 @@
+package us.kbase.auth2.providers;
+
+import static us.kbase.auth2.lib.Utils.checkStringNoCheckedException;
+import static us.kbase.auth2.lib.Utils.nonNull;
+
+import java.net.SocketTimeoutException;
+import java.net.URI;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Function;
+
+import javax.ws.rs.ProcessingException;
+import javax.ws.rs.client.Client;
+import javax.ws.rs.client.ClientBuilder;
+import javax.ws.rs.client.Entity;
+import javax.ws.rs.client.Invocation;
+import javax.ws.rs.client.InvocationCallback;
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.Response;
+
+import org.glassfish.jersey.client.ClientProperties;
+
+import us.kbase.auth2.lib.exceptions.IdentityRetrievalException;
+import us.kbase.auth2.lib.identity.IdentityProviderConfig;
+import us.kbase.auth2.providers.ProviderMetrics.Outcome;
+
+/** An HTTP client for making requests to an identity provider.
+ *
+ * All instances share a single underlying client, and therefore a single pool of keep alive
+ * connections. Each instance applies the connect and read timeouts from its identity provider
+ * configuration to every request and records the latency and outcome of every request in the
+ * shared {@link ProviderMetrics}.
+ *
+ * Callers must close the responses returned from this class so that connections are returned to
+ * the pool.
+ * @author gaprice@lbl.gov
+ *
+ */
+public class ProviderClient {
+
+	//thread safe
+	private static final Client CLI = ClientBuilder.newClient();
+
+	private static final ProviderMetrics METRICS = new ProviderMetrics();
+
+	private final String providerName;
+	private final int connectTimeoutMillis;
+	private final int readTimeoutMillis;
+
+	/** Create a client.
+	 * @param providerName the name of the identity provider, used in error messages and metrics.
+	 * @param cfg the configuration of the identity provider.
+	 */
+	public ProviderClient(final String providerName, final IdentityProviderConfig cfg) {
+		checkStringNoCheckedException(providerName, "providerName");
+		nonNull(cfg, "cfg");
+		this.providerName = providerName;
+		this.connectTimeoutMillis = cfg.getConnectTimeoutMillis();
+		this.readTimeoutMillis = cfg.getReadTimeoutMillis();
+	}
+
+	/** Get the metrics for requests made by all clients.
+	 * @return the metrics.
+	 */
+	public static ProviderMetrics getMetrics() {
+		return METRICS;
+	}
+
+	/** Get the name of the identity provider for this client.
+	 * @return the provider name.
+	 */
+	public String getProviderName() {
+		return providerName;
+	}
+
+	/** Make a GET request.
+	 * @param target the target of the request.
+	 * @param accept the media type to accept.
+	 * @param headers any headers to add to the request.
+	 * @return the response.
+	 * @throws IdentityRetrievalException if the request could not be completed, including if the
+	 * request timed out.
+	 */
+	public Response get(
+			final URI target,
+			final MediaType accept,
+			final Map<String, String> headers)
+			throws IdentityRetrievalException {
+		return execute(target, accept, headers, b -> b.get());
+	}
+
+	/** Make a POST request.
+	 * @param target the target of the request.
+	 * @param accept the media type to accept.
+	 * @param headers any headers to add to the request.
+	 * @param entity the request body.
+	 * @return the response.
+	 * @throws IdentityRetrievalException if the request could not be completed, including if the
+	 * request timed out.
+	 */
+	public Response post(
+			final URI target,
+			final MediaType accept,
+			final Map<String, String> headers,
+			final Entity<?> entity)
+			throws IdentityRetrievalException {
+		nonNull(entity, "entity");
+		return execute(target, accept, headers, b -> b.post(entity));
+	}
+
+	/** Make a GET request without blocking the calling thread.
+	 * @param target the target of the request.
+	 * @param accept the media type to accept.
+	 * @param headers any headers to add to the request.
+	 * @return a future that completes with the response, or completes exceptionally with an
+	 * {@link IdentityRetrievalException} if the request could not be completed, including if the
+	 * request timed out.
+	 */
+	public CompletableFuture<Response> getAsync(
+			final URI target,
+			final MediaType accept,
+			final Map<String, String> headers) {
+		final Invocation.Builder b = builder(target, accept, headers);
+		final CompletableFuture<Response> ret = new CompletableFuture<>();
+		final long start = System.nanoTime();
+		b.async().get(new InvocationCallback<Response>() {
+
+			@Override
+			public void completed(final Response r) {
+				ret.complete(recordResponse(r, start));
+			}
+
+			@Override
+			public void failed(final Throwable t) {
+				ret.completeExceptionally(recordFailure(t, start));
+			}
+		});
+		return ret;
+	}
+
+	private Invocation.Builder builder(
+			final URI target,
+			final MediaType accept,
+			final Map<String, String> headers) {
+		nonNull(target, "target");
+		nonNull(accept, "accept");
+		nonNull(headers, "headers");
+		final Invocation.Builder b = CLI.target(target).request(accept)
+				.property(ClientProperties.CONNECT_TIMEOUT, connectTimeoutMillis)
+				.property(ClientProperties.READ_TIMEOUT, readTimeoutMillis);
+		for (final String header: headers.keySet()) {
+			b.header(header, headers.get(header));
+		}
+		return b;
+	}
+
+	private Response execute(
+			final URI target,
+			final MediaType accept,
+			final Map<String, String> headers,
+			final Function<Invocation.Builder, Response> request)
+			throws IdentityRetrievalException {
+		final Invocation.Builder b = builder(target, accept, headers);
+		final long start = System.nanoTime();
+		final Response r;
+		try {
+			r = request.apply(b);
+		} catch (ProcessingException e) {
+			throw recordFailure(e, start);
+		}
+		return recordResponse(r, start);
+	}
+
+	private Response recordResponse(final Response r, final long start) {
+		METRICS.record(providerName,
+				r.getStatusInfo().getFamily().equals(Response.Status.Family.SUCCESSFUL) ?
+						Outcome.SUCCESS : Outcome.HTTP_ERROR,
+				System.nanoTime() - start);
+		return r;
+	}
+
+	private IdentityRetrievalException recordFailure(final Throwable e, final long start) {
+		final boolean timeout = isTimeout(e);
+		METRICS.record(providerName, timeout ? Outcome.TIMEOUT : Outcome.CONNECTION_ERROR,
+				System.nanoTime() - start);
+		if (timeout) {
+			return new IdentityRetrievalException(String.format(
+					"Request to %s service timed out", providerName), e);
+		}
+		return new IdentityRetrievalException(String.format(
+				"Unable to contact %s service: %s", providerName, e.getMessage()), e);
+	}
+
+	private boolean isTimeout(final Throwable e) {
+		Throwable t = e;
+		while (t != null) {
+			if (t instanceof SocketTimeoutException) {
+				return true;
+			}
+			t = t.getCause();
+		}
+		return false;
+	}
+}
@@ -0,0 +1,149 @@
+package us.kbase.auth2.providers;
+
+import static us.kbase.auth2.lib.Utils.checkStringNoCheckedException;
+import static us.kbase.auth2.lib.Utils.nonNull;
+
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/** Metrics for requests from the auth service to identity providers. For each provider, the
+ * number of requests by outcome and a latency histogram are recorded.
+ *
+ * The metrics can be written in the Prometheus text exposition format.
+ *
+ * This class is thread safe.
+ * @author gaprice@lbl.gov
+ *
+ */
+public class ProviderMetrics {
+
+	/** The outcome of a request to an identity provider. */
+	public static enum Outcome {
+		/** A response with a 2XX status code was received. */
+		SUCCESS,
+		/** A response with a non 2XX status code was received. */
+		HTTP_ERROR,
+		/** The connection or read timed out. */
+		TIMEOUT,
+		/** The request failed for any other reason, e.g. the host couldn't be reached. */
+		CONNECTION_ERROR;
+	}
+
+	private static final String PREFIX = "auth_identity_provider_";
+
+	// the upper bounds, in seconds, of the latency histogram buckets
+	private static final double[] LATENCY_BUCKETS =
+			{0.05, 0.1, 0.25, 0.5, 1, 2.5, 5, 10, 30};
+
+	private static final long[] LATENCY_BUCKETS_NS = new long[LATENCY_BUCKETS.length];
+	static {
+		for (int i = 0; i < LATENCY_BUCKETS.length; i++) {
+			LATENCY_BUCKETS_NS[i] = (long) (LATENCY_BUCKETS[i] * 1000000000);
+		}
+	}
+
+	private static class Metrics {
+
+		private final LongAdder[] outcomes = new LongAdder[Outcome.values().length];
+		// not cumulative, the last bucket is +Inf
+		private final LongAdder[] buckets = new LongAdder[LATENCY_BUCKETS.length + 1];
+		private final LongAdder latencySumNS = new LongAdder();
+
+		private Metrics() {
+			for (int i = 0; i < outcomes.length; i++) {
+				outcomes[i] = new LongAdder();
+			}
+			for (int i = 0; i < buckets.length; i++) {
+				buckets[i] = new LongAdder();
+			}
+		}
+	}
+
+	// sorted so the output is stable
+	private final Map<String, Metrics> providers = new ConcurrentSkipListMap<>();
+
+	/** Record a completed request.
+	 * @param provider the name of the identity provider.
+	 * @param outcome the outcome of the request.
+	 * @param latencyNS the time taken for the request in nanoseconds.
+	 */
+	public void record(final String provider, final Outcome outcome, final long latencyNS) {
+		checkStringNoCheckedException(provider, "provider");
+		nonNull(outcome, "outcome");
+		final Metrics m = providers.computeIfAbsent(provider, k -> new Metrics());
+		m.outcomes[outcome.ordinal()].increment();
+		final long latency = Math.max(0, latencyNS);
+		m.latencySumNS.add(latency);
+		int bucket = 0;
+		while (bucket < LATENCY_BUCKETS_NS.length && latency > LATENCY_BUCKETS_NS[bucket]) {
+			bucket++;
+		}
+		m.buckets[bucket].increment();
+	}
+
+	/** Get the number of requests for an identity provider.
+	 * @param provider the name of the identity provider.
+	 * @return a map from outcome to the number of requests with that outcome.
+	 */
+	public SortedMap<Outcome, Long> getRequestCounts(final String provider) {
+		final SortedMap<Outcome, Long> ret = new TreeMap<>();
+		final Metrics m = providers.get(provider);
+		if (m != null) {
+			for (final Outcome o: Outcome.values()) {
+				ret.put(o, m.outcomes[o.ordinal()].sum());
+			}
+		}
+		return ret;
+	}
+
+	/** Write the metrics in the Prometheus text exposition format.
+	 * @return the metrics.
+	 */
+	public String toPrometheusText() {
+		final StringBuilder sb = new StringBuilder();
+		final String reqs = PREFIX + "requests_total";
+		header(sb, reqs, "counter", "Requests to identity providers by provider and outcome.");
+		for (final Map.Entry<String, Metrics> e: providers.entrySet()) {
+			for (final Outcome o: Outcome.values()) {
+				sb.append(reqs).append("{provider=\"").append(escape(e.getKey()))
+						.append("\",outcome=\"").append(o.name().toLowerCase()).append("\"} ")
+						.append(e.getValue().outcomes[o.ordinal()].sum()).append("\n");
+			}
+		}
+		final String dur = PREFIX + "request_duration_seconds";
+		header(sb, dur, "histogram", "Identity provider request latency by provider.");
+		for (final Map.Entry<String, Metrics> e: providers.entrySet()) {
+			final String prov = escape(e.getKey());
+			final Metrics m = e.getValue();
+			long cumulative = 0;
+			for (int i = 0; i < m.buckets.length; i++) {
+				cumulative += m.buckets[i].sum();
+				final String le = i < LATENCY_BUCKETS.length ?
+						Double.toString(LATENCY_BUCKETS[i]) : "+Inf";
+				sb.append(dur).append("_bucket{provider=\"").append(prov).append("\",le=\"")
+						.append(le).append("\"} ").append(cumulative).append("\n");
+			}
+			sb.append(dur).append("_sum{provider=\"").append(prov).append("\"} ")
+					.append(m.latencySumNS.sum() / 1000000000.0).append("\n");
+			sb.append(dur).append("_count{provider=\"").append(prov).append("\"} ")
+					.append(cumulative).append("\n");
+		}
+		return sb.toString();
+	}
+
+	private void header(
+			final StringBuilder sb,
+			final String name,
+			final String type,
+			final String help) {
+		sb.append("# HELP ").append(name).append(" ").append(help).append("\n");
+		sb.append("# TYPE ").append(name).append(" ").append(type).append("\n");
+	}
+
+	private static String escape(final String labelValue) {
+		return labelValue.replace("\\", "\\\\").replace("\"", "\\\"").replace("\n", "\\n");
+	}
+}
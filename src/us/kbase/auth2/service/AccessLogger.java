@@ -0,0 +1,193 @@
+package us.kbase.auth2.service;
+
+import static us.kbase.auth2.lib.Utils.nonNull;
+
+import java.util.Collections;
+import java.util.List;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import us.kbase.auth2.lib.audit.AuditEvent;
+import us.kbase.auth2.lib.audit.AuditLogger;
+import us.kbase.auth2.lib.audit.SLF4JAuditLogger;
+import us.kbase.auth2.service.logging.AsyncLogWriter;
+import us.kbase.auth2.service.logging.AsyncLogWriter.OverflowPolicy;
+
+/** Writes the access log and the audit log for the auth service, either synchronously in the
+ * request thread or asynchronously in a background thread.
+ *
+ * Each request is logged as a single {@link AccessLogEvent} when the response is sent. Audit
+ * events from the {@link us.kbase.auth2.lib.Authentication} instance are written to the same
+ * buffer, and so are written in the order they occurred relative to the access events. Audit
+ * events are never dropped: regardless of the overflow policy, the request thread waits for space
+ * in a full buffer, and audit events logged after the logger is closed are written in the request
+ * thread. In asynchronous mode, the call information (the method, call ID, and IP address) is set
+ * on the writer thread before each event is written so that log lines carry the call information
+ * of the request that generated them rather than that of the writer thread.
+ *
+ * Access log lines are written to the {@link LoggingFilter} logger. Audit log lines are written
+ * by a {@link SLF4JAuditLogger}.
+ * @author gaprice@lbl.gov
+ *
+ */
+public class AccessLogger implements AuditLogger, AutoCloseable {
+
+	//TODO CONFIG make the buffer size configurable if needed
+	private static final int BUFFER_SIZE = 8192;
+	private static final int BATCH_SIZE = 256;
+
+	/** An access log event, representing a single request. */
+	public static class AccessLogEvent {
+
+		private final String callID;
+		private final String ipAddress;
+		private final String method;
+		private final String uri;
+		private final int status;
+		private final String userAgent;
+		private final long latencyNS;
+		private final String ipHeaders;
+
+		/** Create an access log event.
+		 * @param callID the call ID, or null if unknown.
+		 * @param ipAddress the IP address of the client, or null if unknown.
+		 * @param method the HTTP method.
+		 * @param uri the URI of the request.
+		 * @param status the status code of the response.
+		 * @param userAgent the user agent, or null if not provided.
+		 * @param latencyNS the time taken to handle the request in nanoseconds, or a negative
+		 * number if unknown.
+		 * @param ipHeaders a description of the IP address headers provided with the request, or
+		 * null if the headers are not to be logged.
+		 */
+		public AccessLogEvent(
+				final String callID,
+				final String ipAddress,
+				final String method,
+				final String uri,
+				final int status,
+				final String userAgent,
+				final long latencyNS,
+				final String ipHeaders) {
+			nonNull(method, "method");
+			nonNull(uri, "uri");
+			this.callID = callID;
+			this.ipAddress = ipAddress;
+			this.method = method;
+			this.uri = uri;
+			this.status = status;
+			this.userAgent = userAgent;
+			this.latencyNS = latencyNS;
+			this.ipHeaders = ipHeaders;
+		}
+	}
+
+	/* An event in the log buffer, either an access event or an audit event. Audit events don't
+	 * include the call information, so it is recorded from the request thread.
+	 */
+	private static class LogEntry {
+
+		private final AccessLogEvent access;
+		private final AuditEvent audit;
+		private final String method;
+		private final String callID;
+		private final String ipAddress;
+
+		private LogEntry(final AccessLogEvent access) {
+			this.access = access;
+			this.audit = null;
+			this.method = access.method;
+			this.callID = access.callID;
+			this.ipAddress = access.ipAddress;
+		}
+
+		private LogEntry(final AuditEvent audit, final SLF4JAutoLogger autoLogger) {
+			this.access = null;
+			this.audit = audit;
+			this.method = autoLogger.getMethod();
+			this.callID = autoLogger.getCallID();
+			this.ipAddress = autoLogger.getIPAddress();
+		}
+	}
+
+	private final SLF4JAutoLogger autoLogger;
+	private final SLF4JAuditLogger auditLogger = new SLF4JAuditLogger();
+	private final AsyncLogWriter<LogEntry> asyncWriter;
+
+	/** Create an access logger.
+	 * @param autoLogger the logger that intercepts SLF4J log events and adds call information.
+	 * @param async true to write log events in a background thread.
+	 * @param overflowPolicy the action to take if access log events are produced faster than the
+	 * background thread can write them and the buffer fills. Audit events always wait for space
+	 * in the buffer. Ignored if async is false.
+	 */
+	public AccessLogger(
+			final SLF4JAutoLogger autoLogger,
+			final boolean async,
+			final OverflowPolicy overflowPolicy) {
+		nonNull(autoLogger, "autoLogger");
+		nonNull(overflowPolicy, "overflowPolicy");
+		this.autoLogger = autoLogger;
+		if (async) {
+			asyncWriter = new AsyncLogWriter<>(BUFFER_SIZE, BATCH_SIZE, overflowPolicy,
+					events -> write(events, true), "AccessLogWriter");
+		} else {
+			asyncWriter = null;
+		}
+	}
+
+	/** Log an access event.
+	 * @param event the event.
+	 */
+	public void log(final AccessLogEvent event) {
+		nonNull(event, "event");
+		if (asyncWriter == null) {
+			// call info has already been set for this thread
+			write(Collections.singletonList(new LogEntry(event)), false);
+		} else {
+			asyncWriter.log(new LogEntry(event));
+		}
+	}
+
+	/** Log an audit event. This method must be called in the thread handling the request that
+	 * produced the event so that the call information for the event is correct.
+	 * @param event the event.
+	 */
+	@Override
+	public void log(final AuditEvent event) {
+		nonNull(event, "event");
+		if (asyncWriter == null ||
+				!asyncWriter.log(new LogEntry(event, autoLogger), OverflowPolicy.BLOCK)) {
+			// the writer is closed if the event wasn't added, and call info is set for this thread
+			auditLogger.log(event);
+		}
+	}
+
+	private void write(final List<LogEntry> entries, final boolean setCallInfo) {
+		final Logger logger = LoggerFactory.getLogger(LoggingFilter.class);
+		for (final LogEntry le: entries) {
+			if (setCallInfo) {
+				autoLogger.setCallInfo(le.method, le.callID, le.ipAddress);
+			}
+			if (le.audit != null) {
+				auditLogger.log(le.audit);
+			} else {
+				final AccessLogEvent e = le.access;
+				if (e.ipHeaders != null) {
+					logger.info(e.ipHeaders);
+				}
+				logger.info("{} {} {} {}ms {}", e.method, e.uri, e.status,
+						e.latencyNS < 0 ? "-" : e.latencyNS / 1000000, e.userAgent);
+			}
+		}
+	}
+
+	/** Write any remaining log events and stop the background thread, if any. */
+	@Override
+	public void close() {
+		if (asyncWriter != null) {
+			asyncWriter.close();
+		}
+	}
+}
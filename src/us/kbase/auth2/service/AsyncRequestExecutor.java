@@ -0,0 +1,169 @@
+package us.kbase.auth2.service;
+
+import static us.kbase.auth2.lib.Utils.nonNull;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.ws.rs.ServiceUnavailableException;
+import javax.ws.rs.container.AsyncResponse;
+
+/** Completes suspended requests on a bounded pool of worker threads, so that a request waiting on
+ * the storage system does not hold a servlet container thread.
+ *
+ * Requests wait in a bounded queue when all the worker threads are busy. If the queue is full,
+ * or the request is not completed within the timeout, the request fails with a 503 response.
+ *
+ * Alternatively, each request may be processed on a new virtual thread (see
+ * {@link VirtualThreads}). In that case there is no queue, and up to the number of threads plus
+ * the queue size requests may be in progress at once before requests fail with a 503 response.
+ *
+ * The call information (the method, call ID, and IP address) set by the {@link LoggingFilter} is
+ * set on the worker thread before the request is processed so that log lines and errors carry the
+ * call information of the request.
+ * @author gaprice@lbl.gov
+ *
+ */
+public class AsyncRequestExecutor implements AutoCloseable {
+
+	/** The default number of worker threads. */
+	public static final int DEFAULT_THREADS = 100;
+	/** The default maximum number of requests waiting for a worker thread. */
+	public static final int DEFAULT_QUEUE_SIZE = 10000;
+	/** The default time, in seconds, after which an incomplete request fails. */
+	public static final int DEFAULT_TIMEOUT_SEC = 60;
+
+	private static final String THREAD_NAME_PREFIX = "AsyncRequest-";
+
+	private final ExecutorService executor;
+	// only used for virtual threads, the thread pool executor is bounded by its queue
+	private final Semaphore permits;
+	private final SLF4JAutoLogger logger;
+	private final int timeoutSec;
+
+	/** Create an executor with the default settings.
+	 * @param logger the logger for the service.
+	 */
+	public AsyncRequestExecutor(final SLF4JAutoLogger logger) {
+		this(logger, DEFAULT_THREADS, DEFAULT_QUEUE_SIZE, DEFAULT_TIMEOUT_SEC, false);
+	}
+
+	/** Create an executor with the default settings.
+	 * @param logger the logger for the service.
+	 * @param virtualThreads true to process each request on a new virtual thread rather than
+	 * on a worker thread pool.
+	 */
+	public AsyncRequestExecutor(final SLF4JAutoLogger logger, final boolean virtualThreads) {
+		this(logger, DEFAULT_THREADS, DEFAULT_QUEUE_SIZE, DEFAULT_TIMEOUT_SEC, virtualThreads);
+	}
+
+	/** Create an executor.
+	 * @param logger the logger for the service.
+	 * @param threads the number of worker threads.
+	 * @param queueSize the maximum number of requests waiting for a worker thread.
+	 * @param timeoutSec the time, in seconds, after which an incomplete request fails.
+	 * @param virtualThreads true to process each request on a new virtual thread rather than
+	 * on a worker thread pool.
+	 * @throws UnsupportedOperationException if virtual threads are requested but are not
+	 * available.
+	 */
+	public AsyncRequestExecutor(
+			final SLF4JAutoLogger logger,
+			final int threads,
+			final int queueSize,
+			final int timeoutSec,
+			final boolean virtualThreads) {
+		nonNull(logger, "logger");
+		if (threads < 1) {
+			throw new IllegalArgumentException("threads must be at least 1");
+		}
+		if (queueSize < 1) {
+			throw new IllegalArgumentException("queueSize must be at least 1");
+		}
+		if (timeoutSec < 1) {
+			throw new IllegalArgumentException("timeoutSec must be at least 1");
+		}
+		this.logger = logger;
+		this.timeoutSec = timeoutSec;
+		if (virtualThreads) {
+			executor = VirtualThreads.newThreadPerTaskExecutor(THREAD_NAME_PREFIX);
+			permits = new Semaphore(threads + queueSize);
+		} else {
+			final AtomicInteger count = new AtomicInteger();
+			final ThreadPoolExecutor tpe = new ThreadPoolExecutor(
+					threads, threads, 60, TimeUnit.SECONDS, new ArrayBlockingQueue<>(queueSize),
+					r -> {
+						final Thread t = new Thread(
+								r, THREAD_NAME_PREFIX + count.incrementAndGet());
+						t.setDaemon(true);
+						return t;
+					});
+			tpe.allowCoreThreadTimeOut(true);
+			executor = tpe;
+			permits = null;
+		}
+	}
+
+	/** Process a suspended request on a worker thread and resume the request with the result.
+	 * If the processing throws an exception the request is resumed with the exception, which
+	 * is then handled by the service exception handler as for a synchronous request.
+	 * @param request the servlet request.
+	 * @param response the suspended response.
+	 * @param processor the request processor.
+	 */
+	public void execute(
+			final HttpServletRequest request,
+			final AsyncResponse response,
+			final Callable<?> processor) {
+		nonNull(request, "request");
+		nonNull(response, "response");
+		nonNull(processor, "processor");
+		// the Jersey servlet container stores request properties as servlet request attributes
+		final String method = request.getMethod();
+		final String callID = (String) request.getAttribute(LoggingFilter.PROP_CALL_ID);
+		final String ip = (String) request.getAttribute(LoggingFilter.PROP_IP);
+		response.setTimeout(timeoutSec, TimeUnit.SECONDS);
+		response.setTimeoutHandler(r -> r.resume(new ServiceUnavailableException(
+				"The request timed out")));
+		if (permits != null && !permits.tryAcquire()) {
+			response.resume(busy());
+			return;
+		}
+		try {
+			executor.execute(() -> {
+				logger.setCallInfo(method, callID, ip);
+				try {
+					response.resume(processor.call());
+				} catch (Throwable t) {
+					response.resume(t);
+				} finally {
+					if (permits != null) {
+						permits.release();
+					}
+				}
+			});
+		} catch (RejectedExecutionException e) {
+			if (permits != null) {
+				permits.release();
+			}
+			response.resume(busy());
+		}
+	}
+
+	private ServiceUnavailableException busy() {
+		return new ServiceUnavailableException("The server is too busy to handle the request");
+	}
+
+	/** Stop accepting requests. Requests already accepted are still processed. */
+	@Override
+	public void close() {
+		executor.shutdown();
+	}
+}
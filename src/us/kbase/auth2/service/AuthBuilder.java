@@ -2,9 +2,13 @@ package us.kbase.auth2.service;
 
 import static us.kbase.auth2.lib.Utils.nonNull;
 
+import java.security.NoSuchAlgorithmException;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 
 import org.slf4j.LoggerFactory;
@@ -15,11 +19,15 @@ import com.mongodb.MongoException;
 import com.mongodb.ServerAddress;
 import com.mongodb.client.MongoDatabase;
 
+import us.kbase.auth2.cryptutils.PasswordCrypt;
 import us.kbase.auth2.lib.Authentication;
+import us.kbase.auth2.lib.audit.AuditLogger;
+import us.kbase.auth2.lib.audit.SLF4JAuditLogger;
 import us.kbase.auth2.lib.config.ExternalConfig;
 import us.kbase.auth2.lib.identity.IdentityProvider;
 import us.kbase.auth2.lib.identity.IdentityProviderConfig;
 import us.kbase.auth2.lib.identity.IdentityProviderFactory;
+import us.kbase.auth2.lib.job.JobRunner;
 import us.kbase.auth2.lib.storage.AuthStorage;
 import us.kbase.auth2.lib.storage.exceptions.StorageInitException;
 import us.kbase.auth2.lib.storage.mongo.MongoStorage;
@@ -33,27 +41,43 @@ public class AuthBuilder {
 	
 	private MongoClient mc;
 	private Authentication auth;
+	private JobRunner jobRunner;
+	// phase name -> time in ms, in the order the phases occurred
+	private final Map<String, Long> timings = new LinkedHashMap<>();
+	private long phaseStart = System.nanoTime();
 	
 	public AuthBuilder(
 			final AuthStartupConfig cfg,
 			final ExternalConfig defaultExternalConfig)
 			throws StorageInitException, AuthConfigurationException {
+		this(cfg, defaultExternalConfig, new SLF4JAuditLogger());
+	}
+	
+	public AuthBuilder(
+			final AuthStartupConfig cfg,
+			final ExternalConfig defaultExternalConfig,
+			final AuditLogger auditLogger)
+			throws StorageInitException, AuthConfigurationException {
 		nonNull(cfg, "cfg");
 		nonNull(defaultExternalConfig, "defaultExternalConfig");
+		nonNull(auditLogger, "auditLogger");
 		mc = buildMongo(cfg);
-		auth = buildAuth(cfg, mc, defaultExternalConfig);
+		endPhase("mongo client");
+		auth = buildAuth(cfg, mc, defaultExternalConfig, auditLogger);
 	}
 	
 	public AuthBuilder(
 			final AuthStartupConfig cfg,
 			final ExternalConfig defaultExternalConfig,
-			final MongoClient mc)
+			final MongoClient mc,
+			final AuditLogger auditLogger)
 			throws StorageInitException, AuthConfigurationException {
 		nonNull(cfg, "cfg");
 		nonNull(defaultExternalConfig, "defaultExternalConfig");
 		nonNull(mc, "mc");
+		nonNull(auditLogger, "auditLogger");
 		this.mc = mc;
-		auth = buildAuth(cfg, mc, defaultExternalConfig);
+		auth = buildAuth(cfg, mc, defaultExternalConfig, auditLogger);
 	}
 	
 	private MongoClient buildMongo(final AuthStartupConfig c) throws StorageInitException {
@@ -77,7 +101,8 @@ public class AuthBuilder {
 	private Authentication buildAuth(
 			final AuthStartupConfig c,
 			final MongoClient mc,
-			final ExternalConfig defaultExternalConfig)
+			final ExternalConfig defaultExternalConfig,
+			final AuditLogger auditLogger)
 			throws StorageInitException, AuthConfigurationException {
 		final MongoDatabase db;
 		try {
@@ -90,6 +115,8 @@ public class AuthBuilder {
 		}
 		//TODO TEST authenticate to db, write actual test with authentication
 		final AuthStorage s = new MongoStorage(db);
+		jobRunner = new JobRunner(s);
+		endPhase("storage");
 		
 		final Set<IdentityProvider> providers = new HashSet<>();
 		for (final IdentityProviderConfig idc: c.getIdentityProviderConfigs()) {
@@ -97,7 +124,43 @@ public class AuthBuilder {
 					idc.getIdentityProviderFactoryClassName(), IdentityProviderFactory.class);
 			providers.add(fac.configure(idc));
 		}
-		return new Authentication(s, providers, defaultExternalConfig, c.isTestModeEnabled());
+		endPhase("identity providers");
+		final PasswordCrypt pwdcrypt = buildPasswordCrypt(c);
+		endPhase("password hashing");
+		final Authentication auth = new Authentication(s, providers, defaultExternalConfig,
+				c.isTestModeEnabled(), pwdcrypt, auditLogger);
+		endPhase("authentication");
+		return auth;
+	}
+	
+	private void endPhase(final String phase) {
+		final long now = System.nanoTime();
+		timings.put(phase, (now - phaseStart) / 1000000);
+		phaseStart = now;
+	}
+	
+	private PasswordCrypt buildPasswordCrypt(final AuthStartupConfig c)
+			throws AuthConfigurationException {
+		try {
+			final int iterations;
+			if (c.getPasswordHashCalibrationTargetMillis().isPresent()) {
+				final int target = c.getPasswordHashCalibrationTargetMillis().get();
+				iterations = PasswordCrypt.calibrate(target);
+				LoggerFactory.getLogger(getClass()).info(
+						"Calibrated password hash iterations to {} for a target of {} ms",
+						iterations, target);
+			} else if (c.getPasswordHashIterations().isPresent()) {
+				iterations = c.getPasswordHashIterations().get();
+			} else {
+				iterations = PasswordCrypt.DEFAULT_ITERATIONS;
+			}
+			return new PasswordCrypt(iterations);
+		} catch (IllegalArgumentException e) {
+			throw new AuthConfigurationException(
+					"Illegal password hash configuration: " + e.getMessage(), e);
+		} catch (NoSuchAlgorithmException e) {
+			throw new RuntimeException("This should be impossible", e);
+		}
 	}
 	
 	public MongoClient getMongoClient() {
@@ -108,4 +171,19 @@ public class AuthBuilder {
 		return auth;
 	}
 	
+	/** Get the runner for background jobs submitted to the storage system. The runner is not
+	 * started.
+	 * @return the job runner.
+	 */
+	public JobRunner getJobRunner() {
+		return jobRunner;
+	}
+	
+	/** Get the time taken by each phase of building the authentication instance.
+	 * @return a map of phase name to time in milliseconds, in the order the phases occurred.
+	 */
+	public Map<String, Long> getStartupTimings() {
+		return Collections.unmodifiableMap(timings);
+	}
+	
 }
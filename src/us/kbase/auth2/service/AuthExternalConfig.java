@@ -16,6 +16,7 @@ import us.kbase.auth2.lib.config.ExternalConfig;
 import us.kbase.auth2.lib.config.ExternalConfigMapper;
 import us.kbase.auth2.lib.exceptions.ExternalConfigMappingException;
 import us.kbase.auth2.lib.exceptions.IllegalParameterException;
+import us.kbase.auth2.service.ratelimit.RateLimits;
 
 public class AuthExternalConfig<T extends ConfigAction> implements ExternalConfig {
 
@@ -29,15 +30,17 @@ public class AuthExternalConfig<T extends ConfigAction> implements ExternalConfi
 	private static final String COMPLETE_LINK_REDIRECT = "completeLinkRedirect";
 	private static final String IGNORE_IP_HEADERS = "ignoreIPHeaders";
 	private static final String INCLUDE_STACK_TRACE_IN_RESPONSE = "includeStackTraceInResponse";
+	private static final String RATE_LIMITS = "rateLimits";
 
 	private static final ConfigItem<URL, Action> MT_URL = ConfigItem.remove();
 	private static final ConfigItem<Boolean, Action> SET_FALSE = ConfigItem.set(false);
+	private static final ConfigItem<RateLimits, Action> MT_LIMITS = ConfigItem.remove();
 
 	public static final AuthExternalConfig<Action> SET_DEFAULT;
 	static {
 		try {
 			SET_DEFAULT = new AuthExternalConfig<>(
-					MT_URL, MT_URL, MT_URL, MT_URL, SET_FALSE, SET_FALSE);
+					MT_URL, MT_URL, MT_URL, MT_URL, SET_FALSE, SET_FALSE, MT_LIMITS);
 		} catch (IllegalParameterException e) {
 			throw new RuntimeException("this should be impossible", e);
 		}
@@ -52,6 +55,7 @@ public class AuthExternalConfig<T extends ConfigAction> implements ExternalConfi
 	private final ConfigItem<URL, T> completeLinkRedirect;
 	private final ConfigItem<Boolean, T> ignoreIPHeaders;
 	private final ConfigItem<Boolean, T> includeStackTraceInResponse;
+	private final ConfigItem<RateLimits, T> rateLimits;
 	
 	public AuthExternalConfig(
 			final ConfigItem<URL, T> allowedPostLoginRedirectPrefix,
@@ -59,7 +63,8 @@ public class AuthExternalConfig<T extends ConfigAction> implements ExternalConfi
 			final ConfigItem<URL, T> postLinkRedirect,
 			final ConfigItem<URL, T> completeLinkRedirect,
 			final ConfigItem<Boolean, T> ignoreIPHeaders,
-			final ConfigItem<Boolean, T> includeStackTraceInResponse)
+			final ConfigItem<Boolean, T> includeStackTraceInResponse,
+			final ConfigItem<RateLimits, T> rateLimits)
 			throws IllegalParameterException {
 		// nulls indicate no value or no change depending on context
 		nonNull(allowedPostLoginRedirectPrefix, ALLOWED_POST_LOGIN_REDIRECT_PREFIX);
@@ -78,6 +83,8 @@ public class AuthExternalConfig<T extends ConfigAction> implements ExternalConfi
 		this.ignoreIPHeaders = ignoreIPHeaders;
 		nonNull(includeStackTraceInResponse, INCLUDE_STACK_TRACE_IN_RESPONSE);
 		this.includeStackTraceInResponse = includeStackTraceInResponse;
+		nonNull(rateLimits, RATE_LIMITS);
+		this.rateLimits = rateLimits;
 	}
 
 	private void checkURI(final ConfigItem<URL, T> url)
@@ -131,6 +138,17 @@ public class AuthExternalConfig<T extends ConfigAction> implements ExternalConfi
 		return SET_DEFAULT.isIncludeStackTraceInResponse().getItem();
 	}
 
+	public ConfigItem<RateLimits, T> getRateLimits() {
+		return rateLimits;
+	}
+	
+	public RateLimits getRateLimitsOrDefault() {
+		if (rateLimits.getAction().isState() && rateLimits.hasItem()) {
+			return rateLimits.getItem();
+		}
+		return RateLimits.NONE;
+	}
+
 	@Override
 	public Map<String, ConfigItem<String, Action>> toMap() {
 		final Map<String, ConfigItem<String, Action>> ret = new HashMap<>();
@@ -140,9 +158,24 @@ public class AuthExternalConfig<T extends ConfigAction> implements ExternalConfi
 		processURL(ret, COMPLETE_LINK_REDIRECT, completeLinkRedirect);
 		processBool(ret, IGNORE_IP_HEADERS, ignoreIPHeaders);
 		processBool(ret, INCLUDE_STACK_TRACE_IN_RESPONSE, includeStackTraceInResponse);
+		processRateLimits(ret, RATE_LIMITS, rateLimits);
 		return ret;
 	}
 	
+	private void processRateLimits(
+			final Map<String, ConfigItem<String, Action>> ret,
+			final String key,
+			final ConfigItem<RateLimits, T> limits) {
+		// no limits is stored as the absence of limits
+		if (limits.getAction().isRemove() ||
+				(limits.getAction().isSet() && limits.getItem().isEmpty())) {
+			ret.put(key, ConfigItem.remove());
+		} else if (limits.getAction().isSet()) {
+			ret.put(key, ConfigItem.set(limits.getItem().toSpec()));
+		}
+		// otherwise do nothing
+	}
+
 
 	private void processBool(
 			final Map<String, ConfigItem<String, Action>> ret,
@@ -187,9 +220,10 @@ public class AuthExternalConfig<T extends ConfigAction> implements ExternalConfi
 					getBoolean(config, IGNORE_IP_HEADERS);
 			final ConfigItem<Boolean, State> includeStack =
 					getBoolean(config, INCLUDE_STACK_TRACE_IN_RESPONSE);
+			final ConfigItem<RateLimits, State> limits = getRateLimits(config, RATE_LIMITS);
 			try {
 				return new AuthExternalConfig<State>(allowedPostLogin, completeLogin,
-						postLink, completeLink, ignoreIPs, includeStack);
+						postLink, completeLink, ignoreIPs, includeStack, limits);
 			} catch (IllegalParameterException e) {
 				throw new ExternalConfigMappingException(
 						"Error in incoming config: " + e.getMessage(), e);
@@ -217,6 +251,22 @@ public class AuthExternalConfig<T extends ConfigAction> implements ExternalConfi
 			return allowed;
 		}
 
+		private ConfigItem<RateLimits, State> getRateLimits(
+				final Map<String, ConfigItem<String, State>> config,
+				final String key)
+				throws ExternalConfigMappingException {
+			final ConfigItem<String, State> value = config.get(key);
+			if (value == null || !value.hasItem()) {
+				return ConfigItem.emptyState();
+			}
+			try {
+				return ConfigItem.state(RateLimits.parse(value.getItem()));
+			} catch (IllegalParameterException e) {
+				throw new ExternalConfigMappingException(
+						"Bad rate limits: " + e.getMessage(), e);
+			}
+		}
+
 		private ConfigItem<Boolean, State> getBoolean(
 				final Map<String, ConfigItem<String, State>> config,
 				final String key)
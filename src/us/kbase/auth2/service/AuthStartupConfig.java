@@ -6,6 +6,7 @@ import java.util.Set;
 import com.google.common.base.Optional;
 
 import us.kbase.auth2.lib.identity.IdentityProviderConfig;
+import us.kbase.auth2.service.logging.AsyncLogWriter.OverflowPolicy;
 
 public interface AuthStartupConfig {
 
@@ -20,5 +21,17 @@ public interface AuthStartupConfig {
 	Optional<char[]> getMongoPwd();
 	String getTokenCookieName();
 	Path getPathToTemplateDirectory();
+	// if true, templates are recompiled when the template directory changes. For development only
+	boolean isTemplateReloadEnabled();
 	boolean isTestModeEnabled();
+	// note at most one of iterations & calibration target
+	Optional<Integer> getPasswordHashIterations();
+	Optional<Integer> getPasswordHashCalibrationTargetMillis();
+	// if true, user agents are not parsed until the parser is built
+	boolean isUserAgentParserBuiltInBackground();
+	boolean isAsyncLoggingEnabled();
+	// only relevant if async logging is enabled
+	OverflowPolicy getAsyncLoggingOverflowPolicy();
+	// if true, requests processed asynchronously run on virtual threads. Requires Java 21+
+	boolean isVirtualThreadsEnabled();
 }
@@ -2,6 +2,13 @@ package us.kbase.auth2.service;
 
 import static us.kbase.auth2.lib.Utils.checkStringNoCheckedException;
 
+import java.io.IOException;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.concurrent.locks.ReentrantLock;
+
 import org.glassfish.hk2.utilities.binding.AbstractBinder;
 import org.glassfish.jersey.server.ResourceConfig;
 import org.glassfish.jersey.server.mvc.mustache.MustacheMvcFeature;
@@ -14,11 +21,16 @@ import ch.qos.logback.classic.Level;
 import ch.qos.logback.classic.Logger;
 import us.kbase.auth2.lib.Authentication;
 import us.kbase.auth2.lib.config.ExternalConfig;
+import us.kbase.auth2.lib.job.JobRunner;
 import us.kbase.auth2.lib.storage.exceptions.StorageInitException;
 import us.kbase.auth2.service.LoggingFilter;
 import us.kbase.auth2.service.common.ServiceCommon;
 import us.kbase.auth2.service.exceptions.AuthConfigurationException;
 import us.kbase.auth2.service.exceptions.ExceptionHandler;
+import us.kbase.auth2.service.metrics.MetricsFilter;
+import us.kbase.auth2.service.metrics.MetricsRegistry;
+import us.kbase.auth2.service.ratelimit.RateLimitFilter;
+import us.kbase.auth2.service.ratelimit.TokenBucketRateLimiter;
 import us.kbase.auth2.service.template.TemplateProcessor;
 import us.kbase.auth2.service.template.mustache.MustacheProcessor;
 
@@ -29,6 +41,12 @@ public class AuthenticationService extends ResourceConfig {
 	
 	private static String cfgClass = null;
 	private static MongoClient mc;
+	private static AccessLogger accessLogger;
+	private static AsyncRequestExecutor asyncExecutor;
+	// one per storage system
+	private static final List<JobRunner> jobRunners = new LinkedList<>();
+	// guards the static state above
+	private static final ReentrantLock STATIC_STATE_LOCK = new ReentrantLock();
 	@SuppressWarnings("unused")
 	private final SLF4JAutoLogger logger; //keep a reference to prevent GC
 	
@@ -72,37 +90,100 @@ public class AuthenticationService extends ResourceConfig {
 			final AuthStartupConfig c,
 			final ExternalConfig defaultExternalConfig)
 			throws StorageInitException, AuthConfigurationException {
+		final long start = System.nanoTime();
+		// start early so a background build overlaps with the rest of startup
+		final UserAgentParser uaParser = new UserAgentParser(
+				UserAgentParser.DEFAULT_CACHE_SIZE, UserAgentParser.DEFAULT_ANALYZER_POOL_SIZE,
+				c.isUserAgentParserBuiltInBackground());
+		final long uaParserTime = (System.nanoTime() - start) / 1000000;
 		final AuthBuilder ab;
-		synchronized(this) {
+		STATIC_STATE_LOCK.lock();
+		try {
+			if (accessLogger == null) {
+				accessLogger = new AccessLogger(c.getLogger(), c.isAsyncLoggingEnabled(),
+						c.getAsyncLoggingOverflowPolicy());
+			}
+			// audit events are written via the access logger's buffer
 			if (mc == null) {
-				ab = new AuthBuilder(c, defaultExternalConfig);
+				ab = new AuthBuilder(c, defaultExternalConfig, accessLogger);
 				mc = ab.getMongoClient();
 			} else {
-				ab = new AuthBuilder(c, defaultExternalConfig, mc);
+				ab = new AuthBuilder(c, defaultExternalConfig, mc, accessLogger);
 			}
+			jobRunners.add(ab.getJobRunner());
+			if (asyncExecutor == null) {
+				try {
+					asyncExecutor = new AsyncRequestExecutor(
+							c.getLogger(), c.isVirtualThreadsEnabled());
+				} catch (UnsupportedOperationException e) {
+					throw new AuthConfigurationException(e.getMessage(), e);
+				}
+			}
+		} finally {
+			STATIC_STATE_LOCK.unlock();
 		}
 		packages("us.kbase.auth2.service.api", "us.kbase.auth2.service.ui");
 		register(JacksonJaxbJsonProvider.class);
 		register(MustacheMvcFeature.class);
 		property(MustacheMvcFeature.TEMPLATE_BASE_PATH, c.getPathToTemplateDirectory().toString());
+		// cache the compiled UI templates rather than reading and compiling them per request
+		property(MustacheMvcFeature.CACHE_TEMPLATES, !c.isTemplateReloadEnabled());
+		final MustacheProcessor templates;
+		try {
+			templates = new MustacheProcessor(c.getPathToTemplateDirectory().toAbsolutePath(),
+					c.isTemplateReloadEnabled());
+		} catch (IOException e) {
+			throw new AuthConfigurationException(String.format(
+					"Couldn't load templates from %s: %s",
+					c.getPathToTemplateDirectory(), e.getMessage()), e);
+		}
 		register(LoggingFilter.class);
+		register(MetricsFilter.class);
+		register(RateLimitFilter.class);
 		register(ExceptionHandler.class);
 		final Authentication auth = ab.getAuth();
+		final JobRunner jobRunner = ab.getJobRunner();
+		jobRunner.start();
 		register(new AbstractBinder() {
 			@Override
 			protected void configure() {
 				bind(auth).to(Authentication.class);
-				bind(new MustacheProcessor(c.getPathToTemplateDirectory().toAbsolutePath()))
-					.to(TemplateProcessor.class);
+				bind(jobRunner).to(JobRunner.class);
+				bind(templates).to(TemplateProcessor.class);
 				bind(c.getLogger()).to(SLF4JAutoLogger.class);
 				bind(new AuthAPIStaticConfig(c.getTokenCookieName()))
 						.to(AuthAPIStaticConfig.class);
-				bind(new UserAgentParser()).to(UserAgentParser.class);
+				bind(uaParser).to(UserAgentParser.class);
+				bind(new MetricsRegistry()).to(MetricsRegistry.class);
+				bind(new TokenBucketRateLimiter()).to(TokenBucketRateLimiter.class);
+				bind(accessLogger).to(AccessLogger.class);
+				bind(asyncExecutor).to(AsyncRequestExecutor.class);
 			}
 		});
+		logStartupTimings(uaParserTime, ab.getStartupTimings(), start);
+	}
+	
+	private void logStartupTimings(
+			final long uaParserTime,
+			final Map<String, Long> timings,
+			final long start) {
+		final StringBuilder sb = new StringBuilder("user agent parser=" + uaParserTime + ", ");
+		long phaseTotal = uaParserTime;
+		for (final Entry<String, Long> phase: timings.entrySet()) {
+			sb.append(phase.getKey()).append("=").append(phase.getValue()).append(", ");
+			phaseTotal += phase.getValue();
+		}
+		final long total = (System.nanoTime() - start) / 1000000;
+		sb.append("application=").append(total - phaseTotal).append(", total=").append(total);
+		LoggerFactory.getLogger(getClass()).info("Startup phase timings in ms: " + sb);
 	}
 	
 	static void shutdown() {
+		for (final JobRunner jr: jobRunners) {
+			jr.close();
+		}
+		asyncExecutor.close();
+		accessLogger.close();
 		mc.close();
 	}
 }
@@ -20,11 +20,13 @@ import us.kbase.auth2.lib.Authentication;
 import us.kbase.auth2.lib.config.ConfigAction.State;
 import us.kbase.auth2.lib.exceptions.ExternalConfigMappingException;
 import us.kbase.auth2.lib.storage.exceptions.AuthStorageException;
+import us.kbase.auth2.service.AccessLogger.AccessLogEvent;
 import us.kbase.auth2.service.AuthExternalConfig.AuthExternalConfigMapper;
+import us.kbase.auth2.service.logging.CallIDGenerator;
 
-/** The logger for the auth service. Sets up the logging info (e.g. the method, a random call ID,
- * and the IP address) for each request and logs the method, path, status code, and user agent on
- * a response.
+/** The logger for the auth service. Sets up the logging info (e.g. the method, a call ID,
+ * and the IP address) for each request and logs the method, path, status code, latency, and user
+ * agent on a response via the {@link AccessLogger}.
  * @author gaprice@lbl.gov
  *
  */
@@ -35,6 +37,13 @@ public class LoggingFilter implements ContainerRequestFilter,
 	private static final String X_REAL_IP = "X-Real-IP";
 	private static final String USER_AGENT = "User-Agent";
 	
+	private static final String PROP_START = "us.kbase.auth2.logging.start";
+	static final String PROP_CALL_ID = "us.kbase.auth2.logging.callid";
+	static final String PROP_IP = "us.kbase.auth2.logging.ip";
+	private static final String PROP_IP_HEADERS = "us.kbase.auth2.logging.ipheaders";
+	
+	private static final CallIDGenerator CALL_ID_GENERATOR = new CallIDGenerator();
+	
 	@Context
 	private HttpServletRequest servletRequest;
 	
@@ -42,6 +51,8 @@ public class LoggingFilter implements ContainerRequestFilter,
 	private SLF4JAutoLogger logger;
 	@Inject
 	private Authentication auth;
+	@Inject
+	private AccessLogger accessLogger;
 	
 	@Override
 	public void filter(final ContainerRequestContext reqcon)
@@ -56,14 +67,16 @@ public class LoggingFilter implements ContainerRequestFilter,
 					"An error occurred in the logger when attempting " +
 					"to get the server configuration", e); 
 		}
-		logger.setCallInfo(reqcon.getMethod(),
-				(String.format("%.16f", Math.random())).substring(2),
-				getIpAddress(reqcon, ignoreIPheaders));
-		
-		logHeaders(reqcon, ignoreIPheaders);
+		final String callID = CALL_ID_GENERATOR.next();
+		final String ip = getIpAddress(reqcon, ignoreIPheaders);
+		logger.setCallInfo(reqcon.getMethod(), callID, ip);
+		reqcon.setProperty(PROP_START, System.nanoTime());
+		reqcon.setProperty(PROP_CALL_ID, callID);
+		reqcon.setProperty(PROP_IP, ip);
+		reqcon.setProperty(PROP_IP_HEADERS, getIPHeaders(reqcon, ignoreIPheaders));
 	}
 	
-	private void logHeaders(
+	private String getIPHeaders(
 			final ContainerRequestContext request,
 			final boolean ignoreIPsInHeaders) {
 		if (!ignoreIPsInHeaders) {
@@ -78,14 +91,10 @@ public class LoggingFilter implements ContainerRequestFilter,
 			}
 			if (!nullOrEmpty(realIP) || !nullOrEmpty(xFF)) {
 				log.add("Remote IP: " + servletRequest.getRemoteAddr());
-				logInfo(String.join(", ", log));
+				return String.join(", ", log);
 			}
 		}
-	}
-	
-	private void logInfo(final String format, final Object... args) {
-		LoggerFactory.getLogger(getClass()).info(format, args);
-		
+		return null;
 	}
 
 	private String getIpAddress(
@@ -110,11 +119,17 @@ public class LoggingFilter implements ContainerRequestFilter,
 			final ContainerRequestContext reqcon,
 			final ContainerResponseContext rescon)
 			throws IOException {
-		logInfo("{} {} {} {}",
+		// if the request was not matched to a resource the request filter doesn't run
+		final Long start = (Long) reqcon.getProperty(PROP_START);
+		accessLogger.log(new AccessLogEvent(
+				(String) reqcon.getProperty(PROP_CALL_ID),
+				(String) reqcon.getProperty(PROP_IP),
 				reqcon.getMethod(),
-				reqcon.getUriInfo().getAbsolutePath(),
+				reqcon.getUriInfo().getAbsolutePath().toString(),
 				rescon.getStatus(),
-				reqcon.getHeaderString(USER_AGENT));
+				reqcon.getHeaderString(USER_AGENT),
+				start == null ? -1 : System.nanoTime() - start,
+				(String) reqcon.getProperty(PROP_IP_HEADERS)));
 	}
 
 }
@@ -1,40 +1,207 @@
 package us.kbase.auth2.service;
 
+import static us.kbase.auth2.lib.Utils.nonNull;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.function.Supplier;
+
+import org.slf4j.LoggerFactory;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+
 import nl.basjes.parse.useragent.UserAgent;
 import nl.basjes.parse.useragent.UserAgentAnalyzer;
 import us.kbase.auth2.lib.TokenCreationContext;
 import us.kbase.auth2.lib.TokenCreationContext.Builder;
 
+/** Parses user agent strings into the agent, operating system, and device fields of a token
+ * creation context.
+ *
+ * Parsing is slow and real traffic contains relatively few distinct user agent strings, so
+ * parse results are stored in a bounded, least recently used cache. Cache misses are parsed by
+ * a pool of analyzers, so multiple threads can parse at once.
+ *
+ * Building an analyzer takes several seconds, so the analyzers are built in a background thread
+ * by default. Until the first analyzer is available user agents are not parsed and the returned
+ * builders have no agent, operating system, or device information.
+ *
+ * This class is thread safe.
+ * @author gaprice@lbl.gov
+ *
+ */
 public class UserAgentParser {
-	
-	//TODO JAVADOC
-	//TODO TEST
-	
-	private final UserAgentAnalyzer uaa;
-	
+
+	/** The default maximum number of parsed user agents to cache. */
+	public static final int DEFAULT_CACHE_SIZE = 1000;
+
+	/** The default number of analyzers to use to parse user agents not in the cache. */
+	public static final int DEFAULT_ANALYZER_POOL_SIZE = 2;
+
+	private final BlockingQueue<UserAgentAnalyzer> analyzers;
+	private final Cache<String, ParsedAgent> cache;
+	private volatile boolean ready = false;
+
+	/** Create a parser with a cache of size {@link #DEFAULT_CACHE_SIZE} and
+	 * {@link #DEFAULT_ANALYZER_POOL_SIZE} analyzers, built in a background thread.
+	 */
 	public UserAgentParser() {
-		// this is slooow. Only want to do it once per service start.
-		uaa = UserAgentAnalyzer.newBuilder()
+		this(DEFAULT_CACHE_SIZE, DEFAULT_ANALYZER_POOL_SIZE, true);
+	}
+
+	/** Create a parser.
+	 * @param cacheSize the maximum number of parsed user agents to cache. 0 disables the cache.
+	 * @param analyzerPoolSize the number of analyzers to use to parse user agents not in the
+	 * cache. Each analyzer is expensive to build and uses a significant amount of memory.
+	 * @param buildInBackground true to build the analyzers in a background thread and return
+	 * immediately, false to build the analyzers before the constructor returns.
+	 */
+	public UserAgentParser(
+			final int cacheSize,
+			final int analyzerPoolSize,
+			final boolean buildInBackground) {
+		this(cacheSize, analyzerPoolSize, buildInBackground, () -> UserAgentAnalyzer.newBuilder()
 				.withField(UserAgent.DEVICE_NAME)
 				.withField(UserAgent.OPERATING_SYSTEM_NAME)
 				.withField(UserAgent.OPERATING_SYSTEM_VERSION)
 				.withField(UserAgent.AGENT_NAME)
 				.withField(UserAgent.AGENT_VERSION)
-				.build();
+				.build());
+	}
+
+	/** Create a parser with a specified source of analyzers. Generally only used for testing.
+	 * @param cacheSize the maximum number of parsed user agents to cache. 0 disables the cache.
+	 * @param analyzerPoolSize the number of analyzers to use to parse user agents not in the
+	 * cache.
+	 * @param buildInBackground true to build the analyzers in a background thread and return
+	 * immediately, false to build the analyzers before the constructor returns.
+	 * @param analyzerFactory builds a new analyzer each time it is called.
+	 */
+	public UserAgentParser(
+			final int cacheSize,
+			final int analyzerPoolSize,
+			final boolean buildInBackground,
+			final Supplier<UserAgentAnalyzer> analyzerFactory) {
+		if (cacheSize < 0) {
+			throw new IllegalArgumentException("cacheSize must be at least 0");
+		}
+		if (analyzerPoolSize < 1) {
+			throw new IllegalArgumentException("analyzerPoolSize must be at least 1");
+		}
+		nonNull(analyzerFactory, "analyzerFactory");
+		cache = CacheBuilder.newBuilder().maximumSize(cacheSize).build();
+		analyzers = new ArrayBlockingQueue<>(analyzerPoolSize);
+		if (buildInBackground) {
+			final Thread t = new Thread(() -> buildAnalyzers(analyzerPoolSize, analyzerFactory),
+					"UserAgentAnalyzerBuilder");
+			t.setDaemon(true);
+			t.start();
+		} else {
+			buildAnalyzers(analyzerPoolSize, analyzerFactory);
+		}
+	}
+
+	private void buildAnalyzers(final int count, final Supplier<UserAgentAnalyzer> factory) {
+		for (int i = 1; i <= count; i++) {
+			final long start = System.nanoTime();
+			try {
+				// this is slooow. Only want to do it once per service start.
+				analyzers.add(factory.get());
+			} catch (RuntimeException e) {
+				LoggerFactory.getLogger(getClass()).error(
+						"Failed to build user agent analyzer: " + e.getMessage(), e);
+				return;
+			}
+			ready = true;
+			LoggerFactory.getLogger(getClass()).info(
+					"Built user agent analyzer {} of {} in {} ms", i, count,
+					(System.nanoTime() - start) / 1000000);
+		}
+	}
+
+	/** Check whether at least one analyzer has been built and user agents are being parsed.
+	 * @return true if user agents are being parsed.
+	 */
+	public boolean isReady() {
+		return ready;
 	}
-	
-	public synchronized Builder getTokenContextFromUserAgent(final String userAgent) {
+
+	// the parse results. Immutable, since the builders handed out are not.
+	private static class ParsedAgent {
+
+		private static final ParsedAgent EMPTY = new ParsedAgent();
+
+		private final String agent;
+		private final String agentVersion;
+		private final String os;
+		private final String osVersion;
+		private final String device;
+
+		private ParsedAgent(final UserAgent ua) {
+			agent = filter(ua.getValue(UserAgent.AGENT_NAME));
+			agentVersion = filter(ua.getValue(UserAgent.AGENT_VERSION));
+			os = filter(ua.getValue(UserAgent.OPERATING_SYSTEM_NAME));
+			osVersion = filter(ua.getValue(UserAgent.OPERATING_SYSTEM_VERSION));
+			device = filter(ua.getValue(UserAgent.DEVICE_NAME));
+		}
+
+		private ParsedAgent() {
+			agent = null;
+			agentVersion = null;
+			os = null;
+			osVersion = null;
+			device = null;
+		}
+	}
+
+	/** Parse a user agent string into a token creation context builder with the agent,
+	 * operating system, and device fields set where they could be determined. If no analyzers
+	 * have been built yet, none of the fields are set.
+	 * @param userAgent the user agent string. May be null.
+	 * @return a new token creation context builder.
+	 */
+	public Builder getTokenContextFromUserAgent(final String userAgent) {
 		//TODO LOG if any fields = Hacker log HackerAttackVector and HackerToolkit fields
-		final UserAgent ua = uaa.parse(userAgent);
+		final ParsedAgent pa = getParsedAgent(userAgent);
 		return TokenCreationContext.getBuilder()
-				.withNullableAgent(filter(ua.getValue(UserAgent.AGENT_NAME)),
-						filter(ua.getValue(UserAgent.AGENT_VERSION)))
-				.withNullableOS(filter(ua.getValue(UserAgent.OPERATING_SYSTEM_NAME)),
-						filter(ua.getValue(UserAgent.OPERATING_SYSTEM_VERSION)))
-				.withNullableDevice(filter(ua.getValue(UserAgent.DEVICE_NAME)));
-	}
-	
-	private String filter(final String value) {
+				.withNullableAgent(pa.agent, pa.agentVersion)
+				.withNullableOS(pa.os, pa.osVersion)
+				.withNullableDevice(pa.device);
+	}
+
+	private ParsedAgent getParsedAgent(final String userAgent) {
+		if (!ready) { // degrade rather than block requests while the analyzers are built
+			return ParsedAgent.EMPTY;
+		}
+		if (userAgent == null) { // cache doesn't accept null keys, and this should be rare
+			return parse(userAgent);
+		}
+		// no need to prevent concurrent parses of the same user agent, results are identical
+		ParsedAgent pa = cache.getIfPresent(userAgent);
+		if (pa == null) {
+			pa = parse(userAgent);
+			cache.put(userAgent, pa);
+		}
+		return pa;
+	}
+
+	private ParsedAgent parse(final String userAgent) {
+		final UserAgentAnalyzer uaa;
+		try {
+			uaa = analyzers.take();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new RuntimeException("Interrupted while waiting for a user agent analyzer", e);
+		}
+		try {
+			return new ParsedAgent(uaa.parse(userAgent));
+		} finally {
+			analyzers.add(uaa);
+		}
+	}
+
+	private static String filter(final String value) {
 		// some values spit out by UAA are just ??, which is not helpful
 		if (value.replace("\\s", "").replace("?", "").isEmpty()) {
 			return null;
@@ -46,7 +213,8 @@ public class UserAgentParser {
 	}
 
 	public static void main(String[] args) {
-		final UserAgentParser tcb = new UserAgentParser();
+		final UserAgentParser tcb = new UserAgentParser(
+				DEFAULT_CACHE_SIZE, DEFAULT_ANALYZER_POOL_SIZE, false);
 		tcb.getTokenContextFromUserAgent("here's some shit you can't parse mfer");
 	}
 
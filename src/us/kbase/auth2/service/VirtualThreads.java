@@ -0,0 +1,61 @@
+package us.kbase.auth2.service;
+
+import static us.kbase.auth2.lib.Utils.checkStringNoCheckedException;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+
+/** Creates executors that run each task on a new virtual thread.
+ *
+ * Virtual threads are only available in Java 21 and later. The service is compiled for Java 8,
+ * so the virtual thread API is accessed reflectively.
+ * @author gaprice@lbl.gov
+ *
+ */
+public class VirtualThreads {
+
+	private VirtualThreads() {}
+
+	/** Check whether virtual threads are available in the running JVM.
+	 * @return true if virtual threads are available.
+	 */
+	public static boolean isAvailable() {
+		try {
+			Thread.class.getMethod("ofVirtual");
+			return true;
+		} catch (NoSuchMethodException e) {
+			return false;
+		}
+	}
+
+	/** Create an executor that starts a new virtual thread for each task.
+	 * @param namePrefix the prefix for the names of the threads. The threads are numbered
+	 * starting with 1.
+	 * @return the executor.
+	 * @throws UnsupportedOperationException if virtual threads are not available.
+	 */
+	public static ExecutorService newThreadPerTaskExecutor(final String namePrefix) {
+		checkStringNoCheckedException(namePrefix, "namePrefix");
+		if (!isAvailable()) {
+			throw new UnsupportedOperationException(
+					"Virtual threads require Java 21 or later. The running Java version is " +
+					System.getProperty("java.version"));
+		}
+		try {
+			// Thread.ofVirtual().name(namePrefix, 1).factory()
+			final Object builder = Thread.class.getMethod("ofVirtual").invoke(null);
+			final Class<?> builderClass = Class.forName("java.lang.Thread$Builder");
+			builderClass.getMethod("name", String.class, long.class)
+					.invoke(builder, namePrefix, 1L);
+			final ThreadFactory factory = (ThreadFactory) builderClass.getMethod("factory")
+					.invoke(builder);
+			final Method m = Executors.class.getMethod(
+					"newThreadPerTaskExecutor", ThreadFactory.class);
+			return (ExecutorService) m.invoke(null, factory);
+		} catch (ReflectiveOperationException e) {
+			throw new RuntimeException("Unable to create a virtual thread executor", e);
+		}
+	}
+}
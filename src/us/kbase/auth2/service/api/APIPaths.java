@@ -48,6 +48,9 @@ public class APIPaths {
 	/** The me endpoint location. */
 	public static final String API_V2_ME = API_V2 + SEP + ME;
 	
+	/** The metrics endpoint location. This is the conventional Prometheus scrape location. */
+	public static final String METRICS = "/metrics";
+	
 	/* test mode endpoints. */
 
 	/** The testmode root endpoint. */
@@ -8,12 +8,16 @@ import java.util.LinkedList;
 import java.util.Map;
 
 import javax.inject.Inject;
+import javax.servlet.http.HttpServletRequest;
 import javax.ws.rs.GET;
 import javax.ws.rs.HeaderParam;
 import javax.ws.rs.Path;
 import javax.ws.rs.PathParam;
 import javax.ws.rs.Produces;
 import javax.ws.rs.QueryParam;
+import javax.ws.rs.container.AsyncResponse;
+import javax.ws.rs.container.Suspended;
+import javax.ws.rs.core.Context;
 import javax.ws.rs.core.MediaType;
 
 import us.kbase.auth2.lib.Authentication;
@@ -31,6 +35,7 @@ import us.kbase.auth2.lib.exceptions.UnauthorizedException;
 import us.kbase.auth2.lib.storage.exceptions.AuthStorageException;
 import us.kbase.auth2.lib.token.IncomingToken;
 import us.kbase.auth2.lib.token.StoredToken;
+import us.kbase.auth2.service.AsyncRequestExecutor;
 
 @Path(APIPaths.LEGACY_GLOBUS)
 public class LegacyGlobus {
@@ -40,6 +45,9 @@ public class LegacyGlobus {
 	@Inject
 	private Authentication auth;
 	
+	@Inject
+	private AsyncRequestExecutor executor;
+	
 	interface TokenProvider {
 		StoredToken getToken(final Authentication auth, final IncomingToken token)
 				throws InvalidTokenException, AuthStorageException, TestModeException;
@@ -51,13 +59,15 @@ public class LegacyGlobus {
 	@GET
 	@Path(APIPaths.LEGACY_GLOBUS_TOKEN)
 	@Produces(MediaType.APPLICATION_JSON)
-	public Map<String, Object> introspectToken(
+	public void introspectToken(
 			@HeaderParam("x-globus-goauthtoken") final String xtoken,
 			@HeaderParam("globus-goauthtoken") final String token,
-			@QueryParam("grant_type") final String grantType)
-			throws AuthStorageException, AuthException {
+			@QueryParam("grant_type") final String grantType,
+			@Context final HttpServletRequest req,
+			@Suspended final AsyncResponse response) {
 
-		return getToken((a, t) -> a.getToken(t), auth, xtoken, token, grantType);
+		executor.execute(req, response, () -> getToken(
+				(a, t) -> a.getToken(t), auth, xtoken, token, grantType));
 	}
 
 	static Map<String, Object> getToken(
@@ -4,11 +4,14 @@ import java.util.HashMap;
 import java.util.Map;
 
 import javax.inject.Inject;
+import javax.servlet.http.HttpServletRequest;
 import javax.ws.rs.Consumes;
 import javax.ws.rs.GET;
 import javax.ws.rs.POST;
 import javax.ws.rs.Path;
 import javax.ws.rs.Produces;
+import javax.ws.rs.container.AsyncResponse;
+import javax.ws.rs.container.Suspended;
 import javax.ws.rs.core.Context;
 import javax.ws.rs.core.HttpHeaders;
 import javax.ws.rs.core.MediaType;
@@ -25,6 +28,7 @@ import us.kbase.auth2.lib.storage.exceptions.AuthStorageException;
 import us.kbase.auth2.lib.token.IncomingToken;
 import us.kbase.auth2.lib.token.StoredToken;
 import us.kbase.auth2.lib.user.AuthUser;
+import us.kbase.auth2.service.AsyncRequestExecutor;
 
 @Path(APIPaths.LEGACY_KBASE)
 public class LegacyKBase {
@@ -34,9 +38,12 @@ public class LegacyKBase {
 	
 	private Authentication auth;
 	
+	private AsyncRequestExecutor executor;
+	
 	@Inject
-	public LegacyKBase(final Authentication auth) {
+	public LegacyKBase(final Authentication auth, final AsyncRequestExecutor executor) {
 		this.auth = auth;
+		this.executor = executor;
 	}
 	
 	@GET
@@ -61,14 +68,15 @@ public class LegacyKBase {
 	@POST
 	@Consumes(MediaType.APPLICATION_FORM_URLENCODED)
 	@Produces(MediaType.APPLICATION_JSON)
-	public Map<String, Object> kbaseLogin(
+	public void kbaseLogin(
 			@Context final HttpHeaders headers,
-			final MultivaluedMap<String, String> form)
-			throws AuthStorageException, MissingParameterException, InvalidTokenException,
-				DisabledUserException, TestModeException, NoSuchUserException {
+			@Context final HttpServletRequest req,
+			@Suspended final AsyncResponse response,
+			final MultivaluedMap<String, String> form) {
 		//TODO CODE get rid of NoSuchUser exception by catching and wrapping in runtime. Can't happen here
 		final MediaType mediaType = headers.getMediaType();
-		return kbaseLogin(auth, (a, t) -> a.getToken(t), (a, t) -> a.getUser(t), form, mediaType);
+		executor.execute(req, response, () -> kbaseLogin(
+				auth, (a, t) -> a.getToken(t), (a, t) -> a.getUser(t), form, mediaType));
 	}
 
 	static Map<String, Object> kbaseLogin(
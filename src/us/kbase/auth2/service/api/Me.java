@@ -1,5 +1,8 @@
 package us.kbase.auth2.service.api;
 
+import static us.kbase.auth2.service.common.HTTPCaching.getEntityTag;
+import static us.kbase.auth2.service.common.HTTPCaching.getMaxAge;
+import static us.kbase.auth2.service.common.HTTPCaching.getResponse;
 import static us.kbase.auth2.service.common.ServiceCommon.getToken;
 import static us.kbase.auth2.service.common.ServiceCommon.updateUser;
 
@@ -17,7 +20,9 @@ import javax.ws.rs.HeaderParam;
 import javax.ws.rs.PUT;
 import javax.ws.rs.Path;
 import javax.ws.rs.Produces;
+import javax.ws.rs.core.HttpHeaders;
 import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.Response;
 
 import com.fasterxml.jackson.annotation.JsonCreator;
 import com.fasterxml.jackson.annotation.JsonProperty;
@@ -35,6 +40,7 @@ import us.kbase.auth2.lib.exceptions.NoTokenProvidedException;
 import us.kbase.auth2.lib.exceptions.UnauthorizedException;
 import us.kbase.auth2.lib.identity.RemoteIdentity;
 import us.kbase.auth2.lib.storage.exceptions.AuthStorageException;
+import us.kbase.auth2.lib.token.TokenBoundResult;
 import us.kbase.auth2.lib.user.AuthUser;
 import us.kbase.auth2.service.common.Fields;
 import us.kbase.auth2.service.common.IncomingJSON;
@@ -49,10 +55,15 @@ public class Me {
 	
 	@GET
 	@Produces(MediaType.APPLICATION_JSON)
-	public Map<String, Object> me(@HeaderParam(APIConstants.HEADER_TOKEN) final String token)
+	public Response me(
+			@HeaderParam(APIConstants.HEADER_TOKEN) final String token,
+			@HeaderParam(HttpHeaders.IF_NONE_MATCH) final String ifNoneMatch)
 			throws NoTokenProvidedException, InvalidTokenException, AuthStorageException,
 				DisabledUserException {
-		return toUserMap(auth.getUser(getToken(token)));
+		final TokenBoundResult<AuthUser> res = auth.getUserWithTokenExpiry(getToken(token));
+		final Map<String, Object> user = toUserMap(res.getResult());
+		return getResponse(ifNoneMatch, getEntityTag(user),
+				getMaxAge(auth.getSuggestedTokenCacheTime(), res.getTokenExpirationDate()), user);
 	}
 
 	static Map<String, Object> toUserMap(final AuthUser u) {
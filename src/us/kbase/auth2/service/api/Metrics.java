@@ -0,0 +1,33 @@
+package us.kbase.auth2.service.api;
+
+import javax.inject.Inject;
+import javax.ws.rs.GET;
+import javax.ws.rs.Path;
+import javax.ws.rs.core.Response;
+
+import us.kbase.auth2.lib.Authentication;
+import us.kbase.auth2.providers.ProviderClient;
+import us.kbase.auth2.service.metrics.MetricsRegistry;
+
+@Path(APIPaths.METRICS)
+public class Metrics {
+
+	//TODO JAVADOC or swagger
+	
+	private final MetricsRegistry metrics;
+	private final Authentication auth;
+	
+	@Inject
+	public Metrics(final MetricsRegistry metrics, final Authentication auth) {
+		this.metrics = metrics;
+		this.auth = auth;
+	}
+	
+	@GET
+	public Response getMetrics() {
+		return Response.ok(metrics.toPrometheusText() +
+				ProviderClient.getMetrics().toPrometheusText() +
+				MetricsRegistry.toPrometheusText(auth.getIdentityProviderStatus()))
+				.type(MetricsRegistry.PROMETHEUS_CONTENT_TYPE).build();
+	}
+}
@@ -1,5 +1,8 @@
 package us.kbase.auth2.service.api;
 
+import static us.kbase.auth2.service.common.HTTPCaching.getEntityTag;
+import static us.kbase.auth2.service.common.HTTPCaching.getMaxAge;
+import static us.kbase.auth2.service.common.HTTPCaching.getResponse;
 import static us.kbase.auth2.service.common.ServiceCommon.getToken;
 import static us.kbase.auth2.service.common.ServiceCommon.getTokenContext;
 import static us.kbase.auth2.service.common.ServiceCommon.isIgnoreIPsInHeaders;
@@ -15,8 +18,13 @@ import javax.ws.rs.HeaderParam;
 import javax.ws.rs.POST;
 import javax.ws.rs.Path;
 import javax.ws.rs.Produces;
+import javax.ws.rs.container.AsyncResponse;
+import javax.ws.rs.container.Suspended;
 import javax.ws.rs.core.Context;
+import javax.ws.rs.core.EntityTag;
+import javax.ws.rs.core.HttpHeaders;
 import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.Response;
 
 import com.fasterxml.jackson.annotation.JsonCreator;
 import com.fasterxml.jackson.annotation.JsonProperty;
@@ -32,6 +40,7 @@ import us.kbase.auth2.lib.storage.exceptions.AuthStorageException;
 import us.kbase.auth2.lib.token.StoredToken;
 import us.kbase.auth2.lib.token.TokenName;
 import us.kbase.auth2.lib.token.TokenType;
+import us.kbase.auth2.service.AsyncRequestExecutor;
 import us.kbase.auth2.service.UserAgentParser;
 import us.kbase.auth2.service.common.Fields;
 import us.kbase.auth2.service.common.IncomingJSON;
@@ -45,18 +54,36 @@ public class Token {
 	
 	private UserAgentParser userAgentParser;
 	
+	private AsyncRequestExecutor executor;
+	
 	@Inject
-	public Token(final Authentication auth, final UserAgentParser userAgentParser) {
+	public Token(
+			final Authentication auth,
+			final UserAgentParser userAgentParser,
+			final AsyncRequestExecutor executor) {
 		this.auth = auth;
 		this.userAgentParser = userAgentParser;
+		this.executor = executor;
 	}
 	
 	@GET
 	@Produces(MediaType.APPLICATION_JSON)
-	public APIToken viewToken(@HeaderParam(APIConstants.HEADER_TOKEN) final String token)
+	public void viewToken(
+			@HeaderParam(APIConstants.HEADER_TOKEN) final String token,
+			@HeaderParam(HttpHeaders.IF_NONE_MATCH) final String ifNoneMatch,
+			@Context final HttpServletRequest req,
+			@Suspended final AsyncResponse response) {
+		executor.execute(req, response, () -> viewToken(token, ifNoneMatch));
+	}
+	
+	private Response viewToken(final String token, final String ifNoneMatch)
 			throws NoTokenProvidedException, InvalidTokenException, AuthStorageException {
 		final StoredToken ht = auth.getToken(getToken(token));
-		return new APIToken(ht, auth.getSuggestedTokenCacheTime());
+		final long cachefor = auth.getSuggestedTokenCacheTime();
+		// the token contents never change, so the ID and cache time identify the response
+		final EntityTag etag = getEntityTag(ht.getId(), cachefor);
+		return getResponse(ifNoneMatch, etag, getMaxAge(cachefor, ht.getExpirationDate()),
+				new APIToken(ht, cachefor));
 	}
 	
 	private static class CreateToken extends IncomingJSON {
@@ -1,5 +1,8 @@
 package us.kbase.auth2.service.api;
 
+import static us.kbase.auth2.service.common.HTTPCaching.getEntityTag;
+import static us.kbase.auth2.service.common.HTTPCaching.getMaxAge;
+import static us.kbase.auth2.service.common.HTTPCaching.getResponse;
 import static us.kbase.auth2.service.common.ServiceCommon.getToken;
 import static us.kbase.auth2.service.common.ServiceCommon.nullOrEmpty;
 
@@ -9,13 +12,19 @@ import java.util.Set;
 import java.util.stream.Collectors;
 
 import javax.inject.Inject;
+import javax.servlet.http.HttpServletRequest;
 import javax.ws.rs.GET;
 import javax.ws.rs.HeaderParam;
 import javax.ws.rs.Path;
 import javax.ws.rs.PathParam;
 import javax.ws.rs.Produces;
 import javax.ws.rs.QueryParam;
+import javax.ws.rs.container.AsyncResponse;
+import javax.ws.rs.container.Suspended;
+import javax.ws.rs.core.Context;
+import javax.ws.rs.core.HttpHeaders;
 import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.Response;
 
 import us.kbase.auth2.lib.Authentication;
 import us.kbase.auth2.lib.DisplayName;
@@ -28,6 +37,8 @@ import us.kbase.auth2.lib.exceptions.MissingParameterException;
 import us.kbase.auth2.lib.exceptions.NoTokenProvidedException;
 import us.kbase.auth2.lib.exceptions.UnauthorizedException;
 import us.kbase.auth2.lib.storage.exceptions.AuthStorageException;
+import us.kbase.auth2.lib.token.TokenBoundResult;
+import us.kbase.auth2.service.AsyncRequestExecutor;
 import us.kbase.auth2.service.common.Fields;
 
 @Path(APIPaths.API_V2_USERS)
@@ -37,21 +48,34 @@ public class Users {
 
 	@Inject
 	private Authentication auth;
+	
+	@Inject
+	private AsyncRequestExecutor executor;
 
 	/* It's completely stupid, but to pass a list in a query param in Jersey you have to do
 	 * ?user=foo&user=bar&user=baz etc.
 	 */
 	@GET
 	@Produces(MediaType.APPLICATION_JSON)
-	public Map<String, String> getUsers(
+	public void getUsers(
 			@HeaderParam(APIConstants.HEADER_TOKEN) final String token,
-			@QueryParam(Fields.LIST) final String users)
+			@QueryParam(Fields.LIST) final String users,
+			@HeaderParam(HttpHeaders.IF_NONE_MATCH) final String ifNoneMatch,
+			@Context final HttpServletRequest req,
+			@Suspended final AsyncResponse response) {
+		executor.execute(req, response, () -> getUsers(token, users, ifNoneMatch));
+	}
+	
+	private Response getUsers(final String token, final String users, final String ifNoneMatch)
 			throws IllegalParameterException, NoTokenProvidedException,
 			InvalidTokenException, AuthStorageException {
 		final Set<UserName> uns = processUserListString(users);
-		final Map<UserName, DisplayName> dns = auth.getUserDisplayNames(getToken(token), uns);
-		return dns.entrySet().stream().collect(
+		final TokenBoundResult<Map<UserName, DisplayName>> dns =
+				auth.getUserDisplayNamesWithTokenExpiry(getToken(token), uns);
+		final Map<String, String> ret = dns.getResult().entrySet().stream().collect(
 				Collectors.toMap(e -> e.getKey().getName(), e -> e.getValue().getName()));
+		return getResponse(ifNoneMatch, getEntityTag(ret),
+				getMaxAge(auth.getSuggestedTokenCacheTime(), dns.getTokenExpirationDate()), ret);
 	}
 
 	static Set<UserName> processUserListString(final String users)
@@ -0,0 +1,116 @@
+package us.kbase.auth2.service.common;
+
+import static us.kbase.auth2.lib.Utils.nonNull;
+
+import java.time.Instant;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.stream.Collectors;
+
+import com.google.common.base.Optional;
+
+import us.kbase.auth2.lib.PolicyID;
+import us.kbase.auth2.lib.TokenCreationContext;
+import us.kbase.auth2.lib.identity.RemoteIdentity;
+import us.kbase.auth2.lib.token.StoredToken;
+import us.kbase.auth2.lib.user.AuthUser;
+
+/** Converts users and tokens to the JSON structures used for exports.
+ *
+ * The structures are stable: every key is always present, with absent values set to null, keys
+ * are in a fixed order, and lists are sorted. Dates are in epoch milliseconds.
+ * @author gaprice@lbl.gov
+ *
+ */
+public class ExportFormat {
+	
+	private ExportFormat() {}
+	
+	/** Convert a user to an export structure.
+	 * @param user the user.
+	 * @return the export structure.
+	 */
+	public static Map<String, Object> toMap(final AuthUser user) {
+		nonNull(user, "user");
+		final Map<String, Object> ret = new LinkedHashMap<>();
+		ret.put(Fields.USER, user.getUserName().getName());
+		ret.put(Fields.DISPLAY, user.getDisplayName().getName());
+		ret.put(Fields.EMAIL, user.getEmail().getAddress());
+		ret.put(Fields.LOCAL, user.isLocal());
+		ret.put(Fields.CREATED, user.getCreated().toEpochMilli());
+		ret.put(Fields.LAST_LOGIN, toEpochMilli(user.getLastLogin()));
+		ret.put(Fields.DISABLED, user.isDisabled());
+		ret.put(Fields.DISABLED_REASON, user.getReasonForDisabled().orNull());
+		ret.put(Fields.ENABLE_TOGGLED_BY, user.getAdminThatToggledEnabledState().isPresent() ?
+				user.getAdminThatToggledEnabledState().get().getName() : null);
+		ret.put(Fields.ENABLE_TOGGLE_DATE, toEpochMilli(user.getEnableToggleDate()));
+		ret.put(Fields.ROLES, user.getRoles().stream().map(r -> r.getID()).sorted()
+				.collect(Collectors.toList()));
+		ret.put(Fields.CUSTOM_ROLES, user.getCustomRoles().stream().sorted()
+				.collect(Collectors.toList()));
+		final List<Map<String, Object>> policyIDs = user.getPolicyIDs().entrySet().stream()
+				.sorted((e1, e2) -> e1.getKey().getName().compareTo(e2.getKey().getName()))
+				.map(e -> toMap(e.getKey(), e.getValue()))
+				.collect(Collectors.toList());
+		ret.put(Fields.POLICY_IDS, policyIDs);
+		final List<Map<String, Object>> idents = user.getIdentities().stream()
+				.sorted(Comparator.comparing((RemoteIdentity ri) ->
+						ri.getRemoteID().getProviderName())
+						.thenComparing(ri -> ri.getRemoteID().getProviderIdentityId()))
+				.map(ri -> toMap(ri))
+				.collect(Collectors.toList());
+		ret.put(Fields.IDENTITIES, idents);
+		return ret;
+	}
+	
+	private static Map<String, Object> toMap(final PolicyID id, final Instant agreedOn) {
+		final Map<String, Object> ret = new LinkedHashMap<>();
+		ret.put(Fields.ID, id.getName());
+		ret.put(Fields.AGREED_ON, agreedOn.toEpochMilli());
+		return ret;
+	}
+	
+	private static Map<String, Object> toMap(final RemoteIdentity ri) {
+		final Map<String, Object> ret = new LinkedHashMap<>();
+		ret.put(Fields.ID, ri.getRemoteID().getID());
+		ret.put(Fields.PROVIDER, ri.getRemoteID().getProviderName());
+		ret.put(Fields.PROV_ID, ri.getRemoteID().getProviderIdentityId());
+		ret.put(Fields.PROV_USER, ri.getDetails().getUsername());
+		ret.put(Fields.PROV_FULL, ri.getDetails().getFullname());
+		ret.put(Fields.PROV_EMAIL, ri.getDetails().getEmail());
+		return ret;
+	}
+	
+	/** Convert a token to an export structure. The structure never contains the token itself.
+	 * @param token the token.
+	 * @return the export structure.
+	 */
+	public static Map<String, Object> toMap(final StoredToken token) {
+		nonNull(token, "token");
+		final TokenCreationContext ctx = token.getContext();
+		final Map<String, Object> ret = new LinkedHashMap<>();
+		ret.put(Fields.ID, token.getId().toString());
+		ret.put(Fields.TOKEN_TYPE, token.getTokenType().getID());
+		ret.put(Fields.USER, token.getUserName().getName());
+		ret.put(Fields.TOKEN_NAME, token.getTokenName().isPresent() ?
+				token.getTokenName().get().getName() : null);
+		ret.put(Fields.CREATED, token.getCreationDate().toEpochMilli());
+		ret.put(Fields.TOKEN_EXPIRES, token.getExpirationDate().toEpochMilli());
+		ret.put(Fields.TOKEN_IP, ctx.getIpAddress().isPresent() ?
+				ctx.getIpAddress().get().getHostAddress() : null);
+		ret.put(Fields.TOKEN_AGENT, ctx.getAgent().orNull());
+		ret.put(Fields.TOKEN_AGENT_VER, ctx.getAgentVersion().orNull());
+		ret.put(Fields.TOKEN_OS, ctx.getOS().orNull());
+		ret.put(Fields.TOKEN_OS_VER, ctx.getOSVersion().orNull());
+		ret.put(Fields.TOKEN_DEVICE, ctx.getDevice().orNull());
+		ret.put(Fields.CUSTOM_CONTEXT, new TreeMap<>(ctx.getCustomContext()));
+		return ret;
+	}
+	
+	private static Long toEpochMilli(final Optional<Instant> date) {
+		return date.isPresent() ? date.get().toEpochMilli() : null;
+	}
+}
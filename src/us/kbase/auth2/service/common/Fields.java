@@ -121,6 +121,24 @@ public class Fields {
 	 * names from conflicting with other items in the form.
 	 */
 	public static final String CUSTOM_ROLE_FORM_PREFIX = "crole_";
+	/** A set of roles to add. */
+	public static final String ADD_ROLES = "addroles";
+	/** A set of roles to remove. */
+	public static final String REMOVE_ROLES = "removeroles";
+	/** A set of custom roles to add. */
+	public static final String ADD_CUSTOM_ROLES = "addcustomroles";
+	/** A set of custom roles to remove. */
+	public static final String REMOVE_CUSTOM_ROLES = "removecustomroles";
+	
+	/* bulk updates */
+	
+	/** Whether an item was updated. */
+	public static final String UPDATED = "updated";
+	
+	/* jobs */
+	
+	/** A list of background jobs. */
+	public static final String JOBS = "jobs";
 	
 	/* search */
 	
@@ -151,6 +169,8 @@ public class Fields {
 	public static final String PROV_EMAIL = "provemail";
 	/** The full (e.g. display) name for a user at the remote identity provider. */
 	public static final String PROV_FULL = "provfullname";
+	/** The ID for a user at the remote identity provider. */
+	public static final String PROV_ID = "provid";
 	/** A set of identities. */
 	public static final String IDENTITIES = "idents";
 	/** A provider OAuth2 access code. */
@@ -176,6 +196,40 @@ public class Fields {
 	public static final String CUSTOM_CONTEXT = "customcontext";
 	/** The user's current token. */
 	public static final String CURRENT = "current";
+	/** When a token expires. */
+	public static final String TOKEN_EXPIRES = "expires";
+	/** The IP address from which a token was created. */
+	public static final String TOKEN_IP = "ip";
+	/** The user agent that created a token. */
+	public static final String TOKEN_AGENT = "agent";
+	/** The version of the user agent that created a token. */
+	public static final String TOKEN_AGENT_VER = "agentver";
+	/** The operating system of the device that created a token. */
+	public static final String TOKEN_OS = "os";
+	/** The version of the operating system of the device that created a token. */
+	public static final String TOKEN_OS_VER = "osver";
+	/** The device that created a token. */
+	public static final String TOKEN_DEVICE = "device";
+	
+	/* paging */
+	
+	/** The maximum number of items to return. */
+	public static final String LIMIT = "limit";
+	/** A cursor denoting the position in a list after which a page of items starts. */
+	public static final String CURSOR = "cursor";
+	/** The cursor for the next page of items, or null if there are no more items. */
+	public static final String NEXT_CURSOR = "nextcursor";
+	
+	/* export */
+	
+	/** Whether an export should be gzip compressed. */
+	public static final String GZIP = "gzip";
+	/** The status of an export, given in the final line of the export. */
+	public static final String EXPORT_STATUS = "exportstatus";
+	/** The number of records exported. */
+	public static final String EXPORT_COUNT = "exportcount";
+	/** The reason an export failed. */
+	public static final String EXPORT_ERROR = "exporterror";
 	
 	/* urls */
 	
@@ -189,6 +243,8 @@ public class Fields {
 	public static final String URL_REVOKE_ALL = "revokeallurl";
 	/** A url for accessing a token or token configuration. */
 	public static final String URL_TOKEN = "tokenurl";
+	/** A url for the next page of items. */
+	public static final String URL_NEXT = "nexturl";
 	/** A url for accessing a policy. */
 	public static final String URL_POLICY = "policyurl";
 	/** A url for performing a search. */
@@ -227,11 +283,21 @@ public class Fields {
 	public static final String URL_USER_UPDATE = "userupdateurl";
 	/** A url for unlinking a remote identity from an account. */
 	public static final String URL_UNLINK = "unlinkurl";
+	/** A URL for viewing background jobs. */
+	public static final String URL_JOBS = "jobsurl";
+	/** A URL prefix for a background job. */
+	public static final String URL_JOB = "joburl";
 	
 	/* errors */
 	
 	/** An error. */
 	public static final String ERROR = "error";
+	/** The application error code for an error. */
+	public static final String ERROR_CODE = "appcode";
+	/** The application error for an error. */
+	public static final String ERROR_APP = "apperror";
+	/** The message for an error. */
+	public static final String ERROR_MESSAGE = "message";
 	
 	/* ***** config ***** */
 	
@@ -243,6 +309,16 @@ public class Fields {
 	public static final String CFG_PROV_FORCE_LOGIN_CHOICE = "forceloginchoice";
 	/** Whether the user should always have to select a link choice, even if there's only one. */
 	public static final String CFG_PROV_FORCE_LINK_CHOICE = "forcelinkchoice";
+	/** The state of the provider's circuit breaker. */
+	public static final String CFG_PROV_CIRCUIT_STATE = "circuitstate";
+	/** The number of consecutive failed requests to the provider. */
+	public static final String CFG_PROV_FAILURES = "failures";
+	/** The number of requests to the provider in progress. */
+	public static final String CFG_PROV_IN_FLIGHT = "inflight";
+	/** The maximum number of concurrent requests to the provider. */
+	public static final String CFG_PROV_MAX_CONCURRENT = "maxconcurrent";
+	/** The number of requests rejected without contacting the provider. */
+	public static final String CFG_PROV_REJECTED = "rejected";
 
 	/* tokens */
 	
@@ -271,6 +347,8 @@ public class Fields {
 	public static final String CFG_POST_LINK_REDIRECT = "postlinkredirect";
 	/** A url to redirect to when completing the link process and user interaction is required. */
 	public static final String CFG_COMPLETE_LINK_REDIRECT = "completelinkredirect";
+	/** Per endpoint rate limits. */
+	public static final String CFG_RATE_LIMITS = "ratelimits";
 	/** Whether to allow non-admin logins. */
 	public static final String CFG_ALLOW_LOGIN = "allowlogin";
 	/** How often the configuration is synched from one service instance to another. */
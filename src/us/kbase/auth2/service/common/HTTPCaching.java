@@ -0,0 +1,160 @@
+package us.kbase.auth2.service.common;
+
+import static us.kbase.auth2.lib.Utils.nonNull;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import javax.ws.rs.core.CacheControl;
+import javax.ws.rs.core.EntityTag;
+import javax.ws.rs.core.HttpHeaders;
+import javax.ws.rs.core.Response;
+
+/** Utility methods for adding HTTP caching headers to responses and responding to conditional
+ * requests.
+ *
+ * Responses are marked as private, since they are specific to the token in the request, and
+ * vary on the Authorization header. Entity tags are weak, as they are calculated from the
+ * response data rather than the serialized response body, so that a conditional request that
+ * matches the entity tag does not require serializing the response.
+ * @author gaprice@lbl.gov
+ *
+ */
+public class HTTPCaching {
+
+	private static final Pattern ETAG = Pattern.compile("(?:W/)?\"([^\"]*)\"");
+
+	private HTTPCaching() {}
+
+	/** Calculate a weak entity tag from a set of values. Maps, lists, and sets may be nested,
+	 * and the tag does not depend on the iteration order of maps and sets. Other values are
+	 * included via their string representations.
+	 * @param values the values from which to calculate the tag.
+	 * @return the entity tag.
+	 */
+	public static EntityTag getEntityTag(final Object... values) {
+		nonNull(values, "values");
+		final StringBuilder sb = new StringBuilder();
+		for (final Object o: values) {
+			appendCanonical(sb, o);
+		}
+		final MessageDigest digest;
+		try {
+			digest = MessageDigest.getInstance("SHA-256");
+		} catch (NoSuchAlgorithmException e) {
+			throw new RuntimeException("This should be impossible", e);
+		}
+		final byte[] hash = digest.digest(sb.toString().getBytes(StandardCharsets.UTF_8));
+		final StringBuilder tag = new StringBuilder();
+		// 128 bits is plenty to distinguish versions of a response
+		for (int i = 0; i < 16; i++) {
+			tag.append(String.format("%02x", hash[i]));
+		}
+		return new EntityTag(tag.toString(), true);
+	}
+
+	private static void appendCanonical(final StringBuilder sb, final Object o) {
+		if (o instanceof Map) {
+			final Map<String, Object> sorted = new TreeMap<>();
+			for (final Map.Entry<?, ?> e: ((Map<?, ?>) o).entrySet()) {
+				sorted.put(String.valueOf(e.getKey()), e.getValue());
+			}
+			sb.append("{");
+			for (final Map.Entry<String, Object> e: sorted.entrySet()) {
+				appendCanonical(sb, e.getKey());
+				appendCanonical(sb, e.getValue());
+			}
+			sb.append("}");
+		} else if (o instanceof Set) {
+			final Set<String> sorted = new TreeSet<>();
+			for (final Object item: (Set<?>) o) {
+				final StringBuilder isb = new StringBuilder();
+				appendCanonical(isb, item);
+				sorted.add(isb.toString());
+			}
+			sb.append("(");
+			sorted.forEach(sb::append);
+			sb.append(")");
+		} else if (o instanceof List) {
+			sb.append("[");
+			((List<?>) o).forEach(item -> appendCanonical(sb, item));
+			sb.append("]");
+		} else if (o == null) {
+			sb.append("n");
+		} else {
+			// length prefix so that adjacent values can't run together
+			final String s = o.toString();
+			sb.append(s.length()).append(":").append(s);
+		}
+	}
+
+	/** Check whether an If-None-Match request header matches an entity tag, using the weak
+	 * comparison function.
+	 * @param ifNoneMatch the value of the If-None-Match header. May be null.
+	 * @param etag the entity tag of the current response.
+	 * @return true if the header matches the entity tag.
+	 */
+	public static boolean matches(final String ifNoneMatch, final EntityTag etag) {
+		nonNull(etag, "etag");
+		if (ifNoneMatch == null) {
+			return false;
+		}
+		if (ifNoneMatch.trim().equals("*")) {
+			return true;
+		}
+		final Matcher m = ETAG.matcher(ifNoneMatch);
+		while (m.find()) {
+			if (m.group(1).equals(etag.getValue())) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/** Get the time a response may be cached, which is the suggested cache time bounded by the
+	 * time until the token used to retrieve the response expires.
+	 * @param cacheTimeMS the suggested cache time in milliseconds.
+	 * @param tokenExpirationDate the expiration date of the token.
+	 * @return the time in milliseconds that the response may be cached. Negative if the token
+	 * has expired.
+	 */
+	public static long getMaxAge(final long cacheTimeMS, final Instant tokenExpirationDate) {
+		nonNull(tokenExpirationDate, "tokenExpirationDate");
+		final long untilExpiry = tokenExpirationDate.toEpochMilli() -
+				Instant.now().toEpochMilli();
+		return Math.min(cacheTimeMS, untilExpiry);
+	}
+
+	/** Build a response with caching headers. If the If-None-Match header matches the entity tag,
+	 * the response is a 304 Not Modified response without a body.
+	 * @param ifNoneMatch the value of the If-None-Match header from the request. May be null.
+	 * @param etag the entity tag of the response.
+	 * @param maxAgeMS the time in milliseconds that the response may be cached. Negative values
+	 * are treated as 0.
+	 * @param entity the response body.
+	 * @return the response.
+	 */
+	public static Response getResponse(
+			final String ifNoneMatch,
+			final EntityTag etag,
+			final long maxAgeMS,
+			final Object entity) {
+		nonNull(entity, "entity");
+		final CacheControl cc = new CacheControl();
+		cc.setPrivate(true);
+		cc.setNoTransform(false);
+		cc.setMaxAge((int) Math.min(Integer.MAX_VALUE, Math.max(0, maxAgeMS) / 1000));
+		final Response.ResponseBuilder rb = matches(ifNoneMatch, etag) ?
+				Response.notModified(etag) : Response.ok(entity).tag(etag);
+		return rb.cacheControl(cc).header(HttpHeaders.VARY, HttpHeaders.AUTHORIZATION).build();
+	}
+}
@@ -0,0 +1,122 @@
+package us.kbase.auth2.service.common;
+
+import static us.kbase.auth2.lib.Utils.nonNull;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.zip.GZIPOutputStream;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import us.kbase.auth2.lib.Exporter;
+
+/** Writes exported records to a stream as newline delimited JSON (NDJSON), optionally gzip
+ * compressed.
+ *
+ * Each record is serialized and written as soon as it is received, so the memory used is
+ * independent of the number of records.
+ *
+ * A complete export ends with a status record written by {@link #finish()} or
+ * {@link #fail(String)}, e.g. <code>{"exportstatus": "complete", "exportcount": 42}</code>. An
+ * export without a status record was truncated.
+ * @author gaprice@lbl.gov
+ *
+ * @param <T> the type of the records.
+ */
+public class NDJSONWriter<T> implements Exporter.Handler<T>, Closeable {
+	
+	private static final ObjectMapper MAPPER = new ObjectMapper();
+	private static final int BUFFER_SIZE = 64 * 1024;
+	
+	private final OutputStream out;
+	private final Function<T, Map<String, Object>> converter;
+	private long count = 0;
+	private boolean finished = false;
+	
+	/** Create a writer.
+	 * @param out the stream to which the records will be written. The stream is closed when the
+	 * writer is closed.
+	 * @param gzip true to gzip compress the output.
+	 * @param converter converts records to JSON structures, e.g.
+	 * {@link ExportFormat#toMap(us.kbase.auth2.lib.user.AuthUser)}.
+	 * @throws IOException if an IO error occurs writing the gzip header.
+	 */
+	public NDJSONWriter(
+			final OutputStream out,
+			final boolean gzip,
+			final Function<T, Map<String, Object>> converter)
+			throws IOException {
+		nonNull(out, "out");
+		nonNull(converter, "converter");
+		this.out = new BufferedOutputStream(gzip ? new GZIPOutputStream(out, BUFFER_SIZE) : out,
+				BUFFER_SIZE);
+		this.converter = converter;
+	}
+	
+	@Override
+	public void export(final T record) throws IOException {
+		nonNull(record, "record");
+		checkFinished();
+		write(converter.apply(record));
+		count++;
+	}
+	
+	private void checkFinished() {
+		if (finished) {
+			throw new IllegalStateException("The export is finished");
+		}
+	}
+	
+	private void write(final Map<String, Object> record) throws IOException {
+		out.write(MAPPER.writeValueAsBytes(record));
+		out.write('\n');
+	}
+	
+	/** Get the number of records written.
+	 * @return the number of records.
+	 */
+	public long getCount() {
+		return count;
+	}
+	
+	/** Write the status record for a successful export. No more records may be written.
+	 * @throws IOException if an IO error occurs.
+	 */
+	public void finish() throws IOException {
+		writeStatus("complete", null);
+	}
+	
+	/** Write the status record for a failed export. No more records may be written.
+	 * @param error the reason the export failed.
+	 * @throws IOException if an IO error occurs.
+	 */
+	public void fail(final String error) throws IOException {
+		writeStatus("failed", error == null ? "Unknown error" : error);
+	}
+	
+	private void writeStatus(final String status, final String error) throws IOException {
+		checkFinished();
+		finished = true;
+		final Map<String, Object> ret = new LinkedHashMap<>();
+		ret.put(Fields.EXPORT_STATUS, status);
+		ret.put(Fields.EXPORT_COUNT, count);
+		if (error != null) {
+			ret.put(Fields.EXPORT_ERROR, error);
+		}
+		write(ret);
+	}
+	
+	/** Flush any buffered records, finish the gzip stream if the output is compressed, and close
+	 * the underlying stream. If neither {@link #finish()} nor {@link #fail(String)} has been
+	 * called, the output has no status record and is therefore marked as truncated.
+	 */
+	@Override
+	public void close() throws IOException {
+		out.close();
+	}
+}
@@ -155,20 +155,7 @@ public class ServiceCommon {
 			final TokenCreationContext.Builder builder,
 			final HttpServletRequest request,
 			final boolean ignoreIPsInHeaders) {
-		final String xFF = request.getHeader(X_FORWARDED_FOR);
-		final String realIP = request.getHeader(X_REAL_IP);
-		final String ip;
-		if (!ignoreIPsInHeaders) {
-			if (xFF != null && !xFF.trim().isEmpty()) {
-				ip = xFF.split(",")[0].trim();
-			} else if (realIP != null && !realIP.trim().isEmpty()) {
-				ip = realIP.trim();
-			} else {
-				ip = request.getRemoteAddr();
-			}
-		} else {
-			ip = request.getRemoteAddr();
-		}
+		final String ip = getIpAddress(request, ignoreIPsInHeaders);
 		// empty string is translated to loopback which is an error
 		if (!ip.trim().isEmpty()) { // if null there's a bug in HttpServletRequest
 			try {
@@ -179,6 +166,28 @@ public class ServiceCommon {
 		}
 	}
 	
+	/** Get the IP address of the client making a request.
+	 * @param request the request.
+	 * @param ignoreIPsInHeaders true to ignore the X-Forwarded-For and X-Real-IP headers and use
+	 * the remote address of the request.
+	 * @return the IP address of the client.
+	 */
+	public static String getIpAddress(
+			final HttpServletRequest request,
+			final boolean ignoreIPsInHeaders) {
+		nonNull(request, "request");
+		if (!ignoreIPsInHeaders) {
+			final String xFF = request.getHeader(X_FORWARDED_FOR);
+			final String realIP = request.getHeader(X_REAL_IP);
+			if (xFF != null && !xFF.trim().isEmpty()) {
+				return xFF.split(",")[0].trim();
+			} else if (realIP != null && !realIP.trim().isEmpty()) {
+				return realIP.trim();
+			}
+		}
+		return request.getRemoteAddr();
+	}
+	
 	/** A helper method to determine whether to ignore the x-forwarded-for and x-real-ip
 	 * headers based on the authentication configuration.
 	 * @param auth the authentication instance to query.
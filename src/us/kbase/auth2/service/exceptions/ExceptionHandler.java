@@ -40,6 +40,8 @@ public class ExceptionHandler implements ExceptionMapper<Throwable> {
 	//TODO TEST unit tests, probably makes sense to do logging & exceptions in the same test file
 	//TODO JAVADOC
 	
+	private static final String HEADER_RETRY_AFTER = "Retry-After";
+	
 	@Context
 	private HttpHeaders headers;
 	@Inject
@@ -85,7 +87,12 @@ public class ExceptionHandler implements ExceptionMapper<Throwable> {
 		} else {
 			ret = template.process(Fields.ERROR, em);
 		}
-		return Response.status(em.getHttpcode()).entity(ret).type(mt).build();
+		final Response.ResponseBuilder resp = Response.status(em.getHttpcode())
+				.entity(ret).type(mt);
+		if (ex instanceof TooManyRequestsException) {
+			resp.header(HEADER_RETRY_AFTER, ((TooManyRequestsException) ex).getRetryAfterSec());
+		}
+		return resp.build();
 	}
 	
 	private final static Set<MediaType> MEDIA_SUPPORTED = new HashSet<>(Arrays.asList(
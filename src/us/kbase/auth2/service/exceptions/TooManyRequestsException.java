@@ -0,0 +1,52 @@
+package us.kbase.auth2.service.exceptions;
+
+import javax.ws.rs.WebApplicationException;
+import javax.ws.rs.core.Response;
+import javax.ws.rs.core.Response.Status.Family;
+import javax.ws.rs.core.Response.StatusType;
+
+/** Thrown when a client has exceeded a rate limit. Results in a 429 response with a Retry-After
+ * header.
+ * @author gaprice@lbl.gov
+ *
+ */
+@SuppressWarnings("serial")
+public class TooManyRequestsException extends WebApplicationException {
+
+	/** The 429 Too Many Requests status, which is not included in JAX-RS 2.0. */
+	public static final StatusType TOO_MANY_REQUESTS = new StatusType() {
+
+		@Override
+		public int getStatusCode() {
+			return 429;
+		}
+
+		@Override
+		public Family getFamily() {
+			return Family.CLIENT_ERROR;
+		}
+
+		@Override
+		public String getReasonPhrase() {
+			return "Too Many Requests";
+		}
+	};
+
+	private final long retryAfterSec;
+
+	/** Create the exception.
+	 * @param message the exception message.
+	 * @param retryAfterSec the number of seconds after which the client may retry the request.
+	 */
+	public TooManyRequestsException(final String message, final long retryAfterSec) {
+		super(message, Response.status(TOO_MANY_REQUESTS).build());
+		this.retryAfterSec = retryAfterSec;
+	}
+
+	/** Get the number of seconds after which the client may retry the request.
+	 * @return the number of seconds.
+	 */
+	public long getRetryAfterSec() {
+		return retryAfterSec;
+	}
+}
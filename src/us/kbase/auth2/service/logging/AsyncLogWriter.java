@@ -0,0 +1,198 @@
+package us.kbase.auth2.service.logging;
+
+import static us.kbase.auth2.lib.Utils.checkStringNoCheckedException;
+import static us.kbase.auth2.lib.Utils.nonNull;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+import org.slf4j.LoggerFactory;
+
+/** Writes log events in a background thread. Events are added to a {@link RingBuffer} by the
+ * logging threads and are drained in batches by a single writer thread, so logging threads never
+ * wait on log output unless the buffer is full and the overflow policy is
+ * {@link OverflowPolicy#BLOCK}.
+ * @author gaprice@lbl.gov
+ *
+ * @param <T> the type of the log events.
+ */
+public class AsyncLogWriter<T> implements AutoCloseable {
+
+	/** The action to take when an event is logged and the buffer is full. */
+	public static enum OverflowPolicy {
+		/** Discard the event. The number of discarded events is periodically logged. */
+		DROP,
+		/** Wait until there is space in the buffer. */
+		BLOCK;
+	}
+
+	/** Writes batches of log events. Only called from the writer thread, or from the thread
+	 * calling {@link AsyncLogWriter#close()} once the writer thread has stopped.
+	 * @param <T> the type of the log events.
+	 */
+	public interface BatchWriter<T> {
+
+		/** Write a batch of log events.
+		 * @param events the events, in the order they were added to the buffer.
+		 */
+		void write(List<T> events);
+	}
+
+	private static final long IDLE_PARK_NS = TimeUnit.MILLISECONDS.toNanos(10);
+	private static final long BLOCKED_PARK_NS = TimeUnit.MICROSECONDS.toNanos(100);
+	private static final long CLOSE_TIMEOUT_MS = 10000;
+
+	private final RingBuffer<T> buffer;
+	private final int batchSize;
+	private final OverflowPolicy overflowPolicy;
+	private final BatchWriter<T> writer;
+	private final Thread writerThread;
+	private final LongAdder dropped = new LongAdder();
+	private final LongAdder written = new LongAdder();
+	private volatile boolean closed = false;
+
+	/** Create and start a log writer.
+	 * @param capacity the capacity of the buffer. Must be a power of 2 and at least 2.
+	 * @param batchSize the maximum number of events to pass to the batch writer at once.
+	 * @param overflowPolicy the action to take when an event is logged and the buffer is full.
+	 * @param writer the batch writer.
+	 * @param threadName the name of the writer thread.
+	 */
+	public AsyncLogWriter(
+			final int capacity,
+			final int batchSize,
+			final OverflowPolicy overflowPolicy,
+			final BatchWriter<T> writer,
+			final String threadName) {
+		if (batchSize < 1) {
+			throw new IllegalArgumentException("batchSize must be at least 1");
+		}
+		nonNull(overflowPolicy, "overflowPolicy");
+		nonNull(writer, "writer");
+		checkStringNoCheckedException(threadName, "threadName");
+		this.buffer = new RingBuffer<>(capacity);
+		this.batchSize = batchSize;
+		this.overflowPolicy = overflowPolicy;
+		this.writer = writer;
+		writerThread = new Thread(() -> run(), threadName);
+		writerThread.setDaemon(true);
+		writerThread.start();
+	}
+
+	/** Log an event, taking the action specified by the writer's overflow policy if the buffer
+	 * is full. If the writer has been closed the event is dropped.
+	 * @param event the event.
+	 */
+	public void log(final T event) {
+		log(event, overflowPolicy);
+	}
+
+	/** Log an event, taking the action specified by the given overflow policy rather than the
+	 * writer's policy if the buffer is full. This allows events that must not be lost to be
+	 * logged with {@link OverflowPolicy#BLOCK} semantics while other events are dropped. If the
+	 * writer has been closed the event is dropped.
+	 * @param event the event.
+	 * @param overflowPolicy the action to take if the buffer is full.
+	 * @return true if the event was added to the buffer, false if it was dropped.
+	 */
+	public boolean log(final T event, final OverflowPolicy overflowPolicy) {
+		nonNull(event, "event");
+		nonNull(overflowPolicy, "overflowPolicy");
+		if (closed) {
+			dropped.increment();
+			return false;
+		}
+		while (!buffer.offer(event)) {
+			if (closed || overflowPolicy.equals(OverflowPolicy.DROP)) {
+				dropped.increment();
+				return false;
+			}
+			LockSupport.unpark(writerThread);
+			LockSupport.parkNanos(BLOCKED_PARK_NS);
+		}
+		// an event added while the writer is closing is written by close()
+		if (buffer.size() > buffer.getCapacity() / 2) {
+			LockSupport.unpark(writerThread);
+		}
+		return true;
+	}
+
+	/** Get the number of events that have been dropped because the buffer was full or the writer
+	 * was closed.
+	 * @return the number of dropped events.
+	 */
+	public long getDroppedCount() {
+		return dropped.sum();
+	}
+
+	/** Get the number of events that have been passed to the batch writer.
+	 * @return the number of written events.
+	 */
+	public long getWrittenCount() {
+		return written.sum();
+	}
+
+	private void run() {
+		final List<T> batch = new ArrayList<>(batchSize);
+		long reportedDrops = 0;
+		while (true) {
+			// read closed before draining so no events added before close() are missed
+			final boolean exit = closed;
+			batch.clear();
+			buffer.drainTo(batch, batchSize);
+			if (!batch.isEmpty()) {
+				write(batch);
+			}
+			final long drops = dropped.sum();
+			if (drops != reportedDrops) {
+				LoggerFactory.getLogger(getClass()).error(
+						"Dropped {} log events due to a full log buffer", drops - reportedDrops);
+				reportedDrops = drops;
+			}
+			if (batch.isEmpty()) {
+				if (exit) {
+					return;
+				}
+				LockSupport.parkNanos(IDLE_PARK_NS);
+			}
+		}
+	}
+
+	private void write(final List<T> batch) {
+		try {
+			writer.write(batch);
+		} catch (RuntimeException e) {
+			LoggerFactory.getLogger(getClass()).error(
+					"Failed to write log events: " + e.getMessage(), e);
+		}
+		written.add(batch.size());
+	}
+
+	/** Stop accepting events, write any events remaining in the buffer, and stop the writer
+	 * thread. Waits up to 10 seconds for the writer thread to finish.
+	 */
+	@Override
+	public void close() {
+		closed = true;
+		LockSupport.unpark(writerThread);
+		try {
+			writerThread.join(CLOSE_TIMEOUT_MS);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+		if (!writerThread.isAlive()) {
+			/* events may have been added by threads that were in log() when the writer was
+			 * closed after the writer thread's final drain. This thread is now the only
+			 * consumer, so write them here.
+			 */
+			final List<T> rest = new ArrayList<>();
+			buffer.drainTo(rest, buffer.getCapacity());
+			if (!rest.isEmpty()) {
+				write(rest);
+			}
+		}
+	}
+}
@@ -0,0 +1,44 @@
+package us.kbase.auth2.service.logging;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+/** Generates 16 digit call IDs for correlating log events from the same call.
+ *
+ * IDs are generated from a counter starting at a random position, which is much cheaper than
+ * generating a random number for each call. IDs are not secret and should not be used for
+ * anything other than correlating log events.
+ * @author gaprice@lbl.gov
+ *
+ */
+public class CallIDGenerator {
+
+	private static final int DIGITS = 16;
+	private static final long MAX = 10_000_000_000_000_000L; // 10^16
+	private static final String ZEROS = "0000000000000000";
+
+	private final AtomicLong counter;
+
+	/** Create a generator starting at a random position. */
+	public CallIDGenerator() {
+		this(ThreadLocalRandom.current().nextLong(MAX));
+	}
+
+	/** Create a generator.
+	 * @param start the first ID to generate. Must be between 0 and 10^16 - 1 inclusive.
+	 */
+	public CallIDGenerator(final long start) {
+		if (start < 0 || start >= MAX) {
+			throw new IllegalArgumentException("start must be between 0 and " + (MAX - 1));
+		}
+		counter = new AtomicLong(start);
+	}
+
+	/** Get the next call ID. After 10^16 calls the IDs wrap around to 0.
+	 * @return the call ID.
+	 */
+	public String next() {
+		final String id = Long.toString(Math.floorMod(counter.getAndIncrement(), MAX));
+		return ZEROS.substring(0, DIGITS - id.length()) + id;
+	}
+}
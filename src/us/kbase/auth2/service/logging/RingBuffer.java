@@ -0,0 +1,123 @@
+package us.kbase.auth2.service.logging;
+
+import static us.kbase.auth2.lib.Utils.nonNull;
+
+import java.util.Collection;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/** A bounded, lock free, multiple producer multiple consumer ring buffer.
+ *
+ * Each slot in the buffer carries a sequence number that indicates whether the slot is ready to
+ * be written or read for a given position, so producers and consumers only contend on a
+ * compare and set of the enqueue or dequeue position respectively. See
+ * http://www.1024cores.net/home/lock-free-algorithms/queues/bounded-mpmc-queue
+ * @author gaprice@lbl.gov
+ *
+ * @param <T> the type of the items in the buffer.
+ */
+public class RingBuffer<T> {
+
+	private final AtomicReferenceArray<T> items;
+	private final AtomicLongArray sequences;
+	private final int mask;
+	private final AtomicLong enqueuePos = new AtomicLong();
+	private final AtomicLong dequeuePos = new AtomicLong();
+
+	/** Create a ring buffer.
+	 * @param capacity the capacity of the buffer. Must be a power of 2 and at least 2.
+	 */
+	public RingBuffer(final int capacity) {
+		if (capacity < 2 || Integer.bitCount(capacity) != 1) {
+			throw new IllegalArgumentException("capacity must be a power of 2 and at least 2");
+		}
+		items = new AtomicReferenceArray<>(capacity);
+		sequences = new AtomicLongArray(capacity);
+		for (int i = 0; i < capacity; i++) {
+			sequences.set(i, i);
+		}
+		mask = capacity - 1;
+	}
+
+	/** Get the capacity of the buffer.
+	 * @return the capacity.
+	 */
+	public int getCapacity() {
+		return mask + 1;
+	}
+
+	/** Add an item to the buffer.
+	 * @param item the item.
+	 * @return true if the item was added, false if the buffer is full.
+	 */
+	public boolean offer(final T item) {
+		nonNull(item, "item");
+		long pos = enqueuePos.get();
+		while (true) {
+			final int index = (int) (pos & mask);
+			final long diff = sequences.get(index) - pos;
+			if (diff == 0) {
+				if (enqueuePos.compareAndSet(pos, pos + 1)) {
+					items.set(index, item);
+					sequences.set(index, pos + 1);
+					return true;
+				}
+				pos = enqueuePos.get();
+			} else if (diff < 0) {
+				return false; // full
+			} else {
+				pos = enqueuePos.get(); // another producer got this slot
+			}
+		}
+	}
+
+	/** Remove an item from the buffer.
+	 * @return the item, or null if the buffer is empty.
+	 */
+	public T poll() {
+		long pos = dequeuePos.get();
+		while (true) {
+			final int index = (int) (pos & mask);
+			final long diff = sequences.get(index) - (pos + 1);
+			if (diff == 0) {
+				if (dequeuePos.compareAndSet(pos, pos + 1)) {
+					final T item = items.get(index);
+					items.set(index, null);
+					sequences.set(index, pos + mask + 1);
+					return item;
+				}
+				pos = dequeuePos.get();
+			} else if (diff < 0) {
+				return null; // empty
+			} else {
+				pos = dequeuePos.get(); // another consumer got this slot
+			}
+		}
+	}
+
+	/** Remove items from the buffer and add them to a collection.
+	 * @param target the collection to which the items will be added.
+	 * @param maxItems the maximum number of items to remove.
+	 * @return the number of items removed.
+	 */
+	public int drainTo(final Collection<? super T> target, final int maxItems) {
+		nonNull(target, "target");
+		int count = 0;
+		T item;
+		while (count < maxItems && (item = poll()) != null) {
+			target.add(item);
+			count++;
+		}
+		return count;
+	}
+
+	/** Get the approximate number of items in the buffer. The result may be inaccurate if
+	 * items are being concurrently added or removed.
+	 * @return the number of items in the buffer.
+	 */
+	public int size() {
+		final long size = enqueuePos.get() - dequeuePos.get();
+		return (int) Math.max(0, Math.min(size, getCapacity()));
+	}
+}
@@ -0,0 +1,70 @@
+package us.kbase.auth2.service.metrics;
+
+import java.io.IOException;
+import java.lang.reflect.Method;
+
+import javax.inject.Inject;
+import javax.ws.rs.container.ContainerRequestContext;
+import javax.ws.rs.container.ContainerRequestFilter;
+import javax.ws.rs.container.ContainerResponseContext;
+import javax.ws.rs.container.ContainerResponseFilter;
+import javax.ws.rs.container.ResourceInfo;
+import javax.ws.rs.core.Context;
+
+/** Records request metrics for each resource method in a {@link MetricsRegistry}.
+ *
+ * Requests that do not match a resource method are not recorded.
+ * @author gaprice@lbl.gov
+ *
+ */
+public class MetricsFilter implements ContainerRequestFilter, ContainerResponseFilter {
+
+	private static final String SERVICE_PACKAGE = "us.kbase.auth2.service.";
+	private static final String PROP_START = "us.kbase.auth2.metrics.start";
+	private static final String PROP_RESOURCE = "us.kbase.auth2.metrics.resource";
+
+	@Context
+	private ResourceInfo resourceInfo;
+
+	@Inject
+	private MetricsRegistry metrics;
+
+	@Override
+	public void filter(final ContainerRequestContext reqcon) throws IOException {
+		final Method method = resourceInfo.getResourceMethod();
+		if (method == null) {
+			return;
+		}
+		final String resource = getResourceName(resourceInfo.getResourceClass(), method);
+		reqcon.setProperty(PROP_START, System.nanoTime());
+		reqcon.setProperty(PROP_RESOURCE, resource);
+		metrics.requestStarted(resource);
+	}
+
+	/** Get the name used to record metrics for a resource method.
+	 * @param resourceClass the resource class.
+	 * @param method the resource method.
+	 * @return the name of the resource method, e.g. api.Token.viewToken.
+	 */
+	public static String getResourceName(final Class<?> resourceClass, final Method method) {
+		String cls = resourceClass.getName();
+		if (cls.startsWith(SERVICE_PACKAGE)) {
+			cls = cls.substring(SERVICE_PACKAGE.length());
+		}
+		return cls + "." + method.getName();
+	}
+
+	@Override
+	public void filter(
+			final ContainerRequestContext reqcon,
+			final ContainerResponseContext rescon)
+			throws IOException {
+		final Object start = reqcon.getProperty(PROP_START);
+		if (start == null) { // the request filter didn't run or the request was unmatched
+			return;
+		}
+		metrics.requestCompleted((String) reqcon.getProperty(PROP_RESOURCE), rescon.getStatus(),
+				System.nanoTime() - (Long) start);
+	}
+
+}
@@ -0,0 +1,234 @@
+package us.kbase.auth2.service.metrics;
+
+import static us.kbase.auth2.lib.Utils.checkStringNoCheckedException;
+
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+
+import us.kbase.auth2.lib.identity.GuardedIdentityProvider.CircuitState;
+import us.kbase.auth2.lib.identity.GuardedIdentityProvider.Status;
+
+/** A registry of request metrics for the service endpoints. For each resource method, the
+ * registry records the number of requests by status code class, a latency histogram, and the
+ * number of requests currently in flight.
+ *
+ * The metrics can be written in the Prometheus text exposition format.
+ *
+ * This class is thread safe.
+ * @author gaprice@lbl.gov
+ *
+ */
+public class MetricsRegistry {
+
+	/** The content type of the Prometheus text exposition format. */
+	public static final String PROMETHEUS_CONTENT_TYPE = "text/plain; version=0.0.4; charset=utf-8";
+
+	private static final String PREFIX = "auth_http_";
+
+	// the upper bounds, in seconds, of the latency histogram buckets
+	private static final double[] LATENCY_BUCKETS =
+			{0.005, 0.01, 0.025, 0.05, 0.1, 0.25, 0.5, 1, 2.5, 5, 10};
+
+	private static final long[] LATENCY_BUCKETS_NS = new long[LATENCY_BUCKETS.length];
+	static {
+		for (int i = 0; i < LATENCY_BUCKETS.length; i++) {
+			LATENCY_BUCKETS_NS[i] = (long) (LATENCY_BUCKETS[i] * 1000000000);
+		}
+	}
+
+	private static final String[] STATUS_CLASSES = {"1xx", "2xx", "3xx", "4xx", "5xx"};
+
+	private static class ResourceMetrics {
+
+		private final LongAdder[] statusCounts = new LongAdder[STATUS_CLASSES.length];
+		// not cumulative, the last bucket is +Inf
+		private final LongAdder[] buckets = new LongAdder[LATENCY_BUCKETS.length + 1];
+		private final LongAdder latencySumNS = new LongAdder();
+		private final AtomicLong inFlight = new AtomicLong();
+
+		private ResourceMetrics() {
+			for (int i = 0; i < statusCounts.length; i++) {
+				statusCounts[i] = new LongAdder();
+			}
+			for (int i = 0; i < buckets.length; i++) {
+				buckets[i] = new LongAdder();
+			}
+		}
+	}
+
+	// sorted so the output is stable
+	private final Map<String, ResourceMetrics> resources = new ConcurrentSkipListMap<>();
+
+	private ResourceMetrics get(final String resource) {
+		checkStringNoCheckedException(resource, "resource");
+		return resources.computeIfAbsent(resource, k -> new ResourceMetrics());
+	}
+
+	/** Record the start of a request.
+	 * @param resource the name of the resource method handling the request.
+	 */
+	public void requestStarted(final String resource) {
+		get(resource).inFlight.incrementAndGet();
+	}
+
+	/** Record the end of a request that was previously recorded via
+	 * {@link #requestStarted(String)}.
+	 * @param resource the name of the resource method that handled the request.
+	 * @param status the HTTP status code of the response.
+	 * @param latencyNS the time taken to process the request in nanoseconds.
+	 */
+	public void requestCompleted(final String resource, final int status, final long latencyNS) {
+		final ResourceMetrics m = get(resource);
+		m.inFlight.decrementAndGet();
+		final int statusClass = status / 100 - 1;
+		if (statusClass >= 0 && statusClass < STATUS_CLASSES.length) {
+			m.statusCounts[statusClass].increment();
+		}
+		final long latency = Math.max(0, latencyNS);
+		m.latencySumNS.add(latency);
+		int bucket = 0;
+		while (bucket < LATENCY_BUCKETS_NS.length && latency > LATENCY_BUCKETS_NS[bucket]) {
+			bucket++;
+		}
+		m.buckets[bucket].increment();
+	}
+
+	/** Get the number of requests currently in flight for a resource method.
+	 * @param resource the name of the resource method.
+	 * @return the number of requests in flight.
+	 */
+	public long getInFlight(final String resource) {
+		final ResourceMetrics m = resources.get(resource);
+		return m == null ? 0 : m.inFlight.get();
+	}
+
+	/** Get the number of completed requests for a resource method.
+	 * @param resource the name of the resource method.
+	 * @return a map from status code class (e.g. 2xx) to the number of completed requests.
+	 */
+	public SortedMap<String, Long> getRequestCounts(final String resource) {
+		final SortedMap<String, Long> ret = new TreeMap<>();
+		final ResourceMetrics m = resources.get(resource);
+		if (m != null) {
+			for (int i = 0; i < STATUS_CLASSES.length; i++) {
+				ret.put(STATUS_CLASSES[i], m.statusCounts[i].sum());
+			}
+		}
+		return ret;
+	}
+
+	/** Write the metrics in the Prometheus text exposition format.
+	 * @return the metrics.
+	 */
+	public String toPrometheusText() {
+		final StringBuilder sb = new StringBuilder();
+		final String reqs = PREFIX + "requests_total";
+		header(sb, reqs, "counter",
+				"Completed HTTP requests by resource method and status code class.");
+		for (final Map.Entry<String, ResourceMetrics> e: resources.entrySet()) {
+			for (int i = 0; i < STATUS_CLASSES.length; i++) {
+				sb.append(reqs).append("{resource=\"").append(escape(e.getKey()))
+						.append("\",status=\"").append(STATUS_CLASSES[i]).append("\"} ")
+						.append(e.getValue().statusCounts[i].sum()).append("\n");
+			}
+		}
+		final String dur = PREFIX + "request_duration_seconds";
+		header(sb, dur, "histogram", "HTTP request latency by resource method.");
+		for (final Map.Entry<String, ResourceMetrics> e: resources.entrySet()) {
+			final String res = escape(e.getKey());
+			final ResourceMetrics m = e.getValue();
+			long cumulative = 0;
+			for (int i = 0; i < m.buckets.length; i++) {
+				cumulative += m.buckets[i].sum();
+				final String le = i < LATENCY_BUCKETS.length ?
+						Double.toString(LATENCY_BUCKETS[i]) : "+Inf";
+				sb.append(dur).append("_bucket{resource=\"").append(res).append("\",le=\"")
+						.append(le).append("\"} ").append(cumulative).append("\n");
+			}
+			sb.append(dur).append("_sum{resource=\"").append(res).append("\"} ")
+					.append(m.latencySumNS.sum() / 1000000000.0).append("\n");
+			sb.append(dur).append("_count{resource=\"").append(res).append("\"} ")
+					.append(cumulative).append("\n");
+		}
+		final String inflight = PREFIX + "requests_in_flight";
+		header(sb, inflight, "gauge", "HTTP requests currently in flight by resource method.");
+		for (final Map.Entry<String, ResourceMetrics> e: resources.entrySet()) {
+			sb.append(inflight).append("{resource=\"").append(escape(e.getKey())).append("\"} ")
+					.append(e.getValue().inFlight.get()).append("\n");
+		}
+		return sb.toString();
+	}
+
+	/** Write the status of the identity provider circuit breakers and concurrency limits in the
+	 * Prometheus text exposition format.
+	 * @param status the status of each identity provider.
+	 * @return the metrics.
+	 */
+	public static String toPrometheusText(final Map<String, Status> status) {
+		final StringBuilder sb = new StringBuilder();
+		final String prefix = "auth_identity_provider_";
+		final String state = prefix + "circuit_state";
+		header(sb, state, "gauge", "Identity provider circuit breaker state. 1 for the " +
+				"current state, 0 otherwise.");
+		for (final Map.Entry<String, Status> e: status.entrySet()) {
+			for (final CircuitState cs: CircuitState.values()) {
+				sb.append(state).append("{provider=\"").append(escape(e.getKey()))
+						.append("\",state=\"").append(cs.name().toLowerCase()).append("\"} ")
+						.append(cs.equals(e.getValue().getState()) ? 1 : 0).append("\n");
+			}
+		}
+		gauge(sb, status, prefix + "consecutive_failures",
+				"Consecutive failed requests by identity provider.",
+				s -> (long) s.getConsecutiveFailures());
+		gauge(sb, status, prefix + "requests_in_flight",
+				"Identity provider requests currently in flight by provider.",
+				s -> (long) s.getInFlight());
+		gauge(sb, status, prefix + "max_concurrent_requests",
+				"The maximum number of concurrent requests by identity provider.",
+				s -> (long) s.getMaxConcurrent());
+		final String rejected = prefix + "rejected_requests_total";
+		header(sb, rejected, "counter", "Identity provider requests rejected without " +
+				"contacting the provider by provider and reason.");
+		for (final Map.Entry<String, Status> e: status.entrySet()) {
+			final String prov = escape(e.getKey());
+			sb.append(rejected).append("{provider=\"").append(prov)
+					.append("\",reason=\"circuit_open\"} ")
+					.append(e.getValue().getRejectedCircuitOpen()).append("\n");
+			sb.append(rejected).append("{provider=\"").append(prov)
+					.append("\",reason=\"concurrency_limit\"} ")
+					.append(e.getValue().getRejectedBulkheadFull()).append("\n");
+		}
+		return sb.toString();
+	}
+
+	private static void gauge(
+			final StringBuilder sb,
+			final Map<String, Status> status,
+			final String name,
+			final String help,
+			final Function<Status, Long> value) {
+		header(sb, name, "gauge", help);
+		for (final Map.Entry<String, Status> e: status.entrySet()) {
+			sb.append(name).append("{provider=\"").append(escape(e.getKey())).append("\"} ")
+					.append(value.apply(e.getValue())).append("\n");
+		}
+	}
+
+	private static void header(
+			final StringBuilder sb,
+			final String name,
+			final String type,
+			final String help) {
+		sb.append("# HELP ").append(name).append(" ").append(help).append("\n");
+		sb.append("# TYPE ").append(name).append(" ").append(type).append("\n");
+	}
+
+	private static String escape(final String labelValue) {
+		return labelValue.replace("\\", "\\\\").replace("\"", "\\\"").replace("\n", "\\n");
+	}
+}
@@ -0,0 +1,76 @@
+package us.kbase.auth2.service.ratelimit;
+
+/** A rate limit, expressed as a maximum number of requests per period.
+ * @author gaprice@lbl.gov
+ *
+ */
+public class RateLimit {
+
+	private final int requests;
+	private final int periodSec;
+
+	/** Create a rate limit.
+	 * @param requests the maximum number of requests allowed in the period. This is also the
+	 * maximum burst size.
+	 * @param periodSec the period in seconds.
+	 */
+	public RateLimit(final int requests, final int periodSec) {
+		if (requests < 1) {
+			throw new IllegalArgumentException("requests must be at least 1");
+		}
+		if (periodSec < 1) {
+			throw new IllegalArgumentException("periodSec must be at least 1");
+		}
+		this.requests = requests;
+		this.periodSec = periodSec;
+	}
+
+	/** Get the maximum number of requests allowed in the period.
+	 * @return the number of requests.
+	 */
+	public int getRequests() {
+		return requests;
+	}
+
+	/** Get the period in seconds.
+	 * @return the period.
+	 */
+	public int getPeriodSec() {
+		return periodSec;
+	}
+
+	@Override
+	public int hashCode() {
+		final int prime = 31;
+		int result = 1;
+		result = prime * result + periodSec;
+		result = prime * result + requests;
+		return result;
+	}
+
+	@Override
+	public boolean equals(Object obj) {
+		if (this == obj) {
+			return true;
+		}
+		if (obj == null) {
+			return false;
+		}
+		if (getClass() != obj.getClass()) {
+			return false;
+		}
+		RateLimit other = (RateLimit) obj;
+		if (periodSec != other.periodSec) {
+			return false;
+		}
+		if (requests != other.requests) {
+			return false;
+		}
+		return true;
+	}
+
+	@Override
+	public String toString() {
+		return requests + "/" + periodSec;
+	}
+}
@@ -0,0 +1,102 @@
+package us.kbase.auth2.service.ratelimit;
+
+import static us.kbase.auth2.service.common.ServiceCommon.nullOrEmpty;
+
+import java.io.IOException;
+import java.lang.reflect.Method;
+
+import javax.annotation.Priority;
+import javax.inject.Inject;
+import javax.servlet.http.HttpServletRequest;
+import javax.ws.rs.Priorities;
+import javax.ws.rs.container.ContainerRequestContext;
+import javax.ws.rs.container.ContainerRequestFilter;
+import javax.ws.rs.container.ResourceInfo;
+import javax.ws.rs.core.Context;
+
+import org.slf4j.LoggerFactory;
+
+import com.google.common.base.Optional;
+
+import us.kbase.auth2.lib.Authentication;
+import us.kbase.auth2.lib.config.ConfigAction.State;
+import us.kbase.auth2.lib.exceptions.ExternalConfigMappingException;
+import us.kbase.auth2.lib.storage.exceptions.AuthStorageException;
+import us.kbase.auth2.lib.token.IncomingToken;
+import us.kbase.auth2.service.AuthExternalConfig;
+import us.kbase.auth2.service.AuthExternalConfig.AuthExternalConfigMapper;
+import us.kbase.auth2.service.api.APIConstants;
+import us.kbase.auth2.service.common.ServiceCommon;
+import us.kbase.auth2.service.exceptions.TooManyRequestsException;
+import us.kbase.auth2.service.metrics.MetricsFilter;
+
+/** Applies the per endpoint rate limits in the external configuration to each request.
+ *
+ * Requests are limited separately per client IP address and, if the request includes a token in
+ * the Authorization header, per token. The IP address is determined in the same way as for
+ * logging, and so honors the ignore IP headers setting. A request that exceeds a limit results in
+ * a {@link TooManyRequestsException}.
+ *
+ * If the configuration cannot be retrieved, requests are not rate limited.
+ *
+ * Runs after the {@link us.kbase.auth2.service.LoggingFilter} so that rejected requests are
+ * logged with a call ID.
+ * @author gaprice@lbl.gov
+ *
+ */
+@Priority(Priorities.USER + 100)
+public class RateLimitFilter implements ContainerRequestFilter {
+
+	@Context
+	private ResourceInfo resourceInfo;
+
+	@Context
+	private HttpServletRequest servletRequest;
+
+	@Inject
+	private Authentication auth;
+
+	@Inject
+	private TokenBucketRateLimiter limiter;
+
+	@Override
+	public void filter(final ContainerRequestContext reqcon) throws IOException {
+		final Method method = resourceInfo.getResourceMethod();
+		if (method == null) {
+			return;
+		}
+		final AuthExternalConfig<State> ext;
+		try {
+			ext = auth.getExternalConfig(new AuthExternalConfigMapper());
+		} catch (AuthStorageException | ExternalConfigMappingException e) {
+			LoggerFactory.getLogger(getClass()).error(
+					"An error occurred in the rate limiter when attempting " +
+					"to get the server configuration", e);
+			return;
+		}
+		final String endpoint = MetricsFilter.getResourceName(
+				resourceInfo.getResourceClass(), method);
+		final Optional<RateLimit> limit = ext.getRateLimitsOrDefault().getLimit(endpoint);
+		if (!limit.isPresent()) {
+			return;
+		}
+		final String ip = ServiceCommon.getIpAddress(
+				servletRequest, ext.isIgnoreIPHeadersOrDefault());
+		acquire(endpoint, endpoint + " ip " + ip, limit.get());
+		final String token = reqcon.getHeaderString(APIConstants.HEADER_TOKEN);
+		if (!nullOrEmpty(token)) {
+			acquire(endpoint, endpoint + " token " + IncomingToken.hash(token.trim()),
+					limit.get());
+		}
+	}
+
+	private void acquire(final String endpoint, final String key, final RateLimit limit) {
+		final long waitMS = limiter.acquire(key, limit);
+		if (waitMS > 0) {
+			final long waitSec = (waitMS + 999) / 1000;
+			throw new TooManyRequestsException(String.format(
+					"Rate limit for %s exceeded, retry after %s seconds", endpoint, waitSec),
+					waitSec);
+		}
+	}
+}
@@ -0,0 +1,150 @@
+package us.kbase.auth2.service.ratelimit;
+
+import static us.kbase.auth2.lib.Utils.nonNull;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import com.google.common.base.Optional;
+
+import us.kbase.auth2.lib.exceptions.IllegalParameterException;
+
+/** A set of per endpoint rate limits.
+ *
+ * Endpoints are named as in the service metrics, e.g. api.Token.viewToken or
+ * api.LegacyKBase.kbaseLogin. Endpoints without a limit are not rate limited.
+ *
+ * The string form of the limits is a comma separated list of endpoint=requests/periodSec
+ * entries, e.g. api.LegacyKBase.kbaseLogin=20/60, api.Token.viewToken=300/60
+ * @author gaprice@lbl.gov
+ *
+ */
+public class RateLimits {
+
+	/** An empty set of limits. */
+	public static final RateLimits NONE = new RateLimits(Collections.emptyMap());
+
+	private static final Pattern ENTRY = Pattern.compile("([\\w.]+)\\s*=\\s*(\\d{1,9})/(\\d{1,9})");
+
+	private final SortedMap<String, RateLimit> limits;
+
+	/** Create a set of rate limits.
+	 * @param limits a map of endpoint name to the rate limit for that endpoint.
+	 */
+	public RateLimits(final Map<String, RateLimit> limits) {
+		nonNull(limits, "limits");
+		for (final Entry<String, RateLimit> e: limits.entrySet()) {
+			nonNull(e.getKey(), "endpoint name");
+			nonNull(e.getValue(), "rate limit for endpoint " + e.getKey());
+		}
+		this.limits = Collections.unmodifiableSortedMap(new TreeMap<>(limits));
+	}
+
+	/** Parse a set of rate limits from a string.
+	 * @param spec the string, a comma separated list of endpoint=requests/periodSec entries.
+	 * Whitespace and empty entries are ignored.
+	 * @return the rate limits.
+	 * @throws IllegalParameterException if the string is not a valid set of rate limits.
+	 */
+	public static RateLimits parse(final String spec) throws IllegalParameterException {
+		nonNull(spec, "spec");
+		final Map<String, RateLimit> ret = new TreeMap<>();
+		for (final String entry: spec.split(",")) {
+			if (entry.trim().isEmpty()) {
+				continue;
+			}
+			final Matcher m = ENTRY.matcher(entry.trim());
+			if (!m.matches()) {
+				throw new IllegalParameterException("Illegal rate limit: " + entry.trim());
+			}
+			if (ret.containsKey(m.group(1))) {
+				throw new IllegalParameterException("Duplicate rate limit for endpoint " +
+						m.group(1));
+			}
+			try {
+				ret.put(m.group(1), new RateLimit(
+						Integer.parseInt(m.group(2)), Integer.parseInt(m.group(3))));
+			} catch (IllegalArgumentException e) {
+				throw new IllegalParameterException(String.format("Illegal rate limit: %s: %s",
+						entry.trim(), e.getMessage()), e);
+			}
+		}
+		return new RateLimits(ret);
+	}
+
+	/** Get the rate limit for an endpoint.
+	 * @param endpoint the endpoint.
+	 * @return the rate limit, or absent if the endpoint is not rate limited.
+	 */
+	public Optional<RateLimit> getLimit(final String endpoint) {
+		return Optional.fromNullable(limits.get(endpoint));
+	}
+
+	/** Get all the rate limits.
+	 * @return a map of endpoint name to rate limit.
+	 */
+	public SortedMap<String, RateLimit> getLimits() {
+		return limits;
+	}
+
+	/** Check if there are no rate limits.
+	 * @return true if no endpoints are rate limited.
+	 */
+	public boolean isEmpty() {
+		return limits.isEmpty();
+	}
+
+	/** Get the string form of the rate limits, which can be read by {@link #parse(String)}.
+	 * @return the rate limits as a string.
+	 */
+	public String toSpec() {
+		final StringBuilder sb = new StringBuilder();
+		for (final Entry<String, RateLimit> e: limits.entrySet()) {
+			if (sb.length() > 0) {
+				sb.append(", ");
+			}
+			sb.append(e.getKey()).append("=").append(e.getValue());
+		}
+		return sb.toString();
+	}
+
+	@Override
+	public int hashCode() {
+		final int prime = 31;
+		int result = 1;
+		result = prime * result + ((limits == null) ? 0 : limits.hashCode());
+		return result;
+	}
+
+	@Override
+	public boolean equals(Object obj) {
+		if (this == obj) {
+			return true;
+		}
+		if (obj == null) {
+			return false;
+		}
+		if (getClass() != obj.getClass()) {
+			return false;
+		}
+		RateLimits other = (RateLimits) obj;
+		if (limits == null) {
+			if (other.limits != null) {
+				return false;
+			}
+		} else if (!limits.equals(other.limits)) {
+			return false;
+		}
+		return true;
+	}
+
+	@Override
+	public String toString() {
+		return "RateLimits [limits=" + limits + "]";
+	}
+}
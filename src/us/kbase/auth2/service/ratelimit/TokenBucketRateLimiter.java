@@ -0,0 +1,122 @@
+package us.kbase.auth2.service.ratelimit;
+
+import static us.kbase.auth2.lib.Utils.checkStringNoCheckedException;
+import static us.kbase.auth2.lib.Utils.nonNull;
+
+import java.time.Clock;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/** A rate limiter that keeps a token bucket per key, e.g. per client IP address and endpoint.
+ *
+ * A bucket holds up to the number of requests allowed by the rate limit and refills continuously
+ * over the rate limit period. Each bucket is stored as a single timestamp - the time at which the
+ * bucket would be full (the generic cell rate algorithm) - and is updated with compare and set,
+ * so requests never block on a lock. The buckets are kept in a {@link ConcurrentHashMap}, which
+ * stripes access across the map.
+ *
+ * Full buckets are equivalent to absent buckets, and are removed when the number of buckets
+ * exceeds a threshold.
+ *
+ * This class is thread safe.
+ * @author gaprice@lbl.gov
+ *
+ */
+public class TokenBucketRateLimiter {
+
+	/** The default number of buckets above which full buckets are removed. */
+	public static final int DEFAULT_MAX_BUCKETS = 100000;
+
+	private final ConcurrentMap<String, AtomicLong> buckets = new ConcurrentHashMap<>();
+	private final AtomicLong sweepAfter;
+	private final int maxBuckets;
+	private final Clock clock;
+
+	/** Create a rate limiter with the default settings. */
+	public TokenBucketRateLimiter() {
+		this(DEFAULT_MAX_BUCKETS, Clock.systemDefaultZone()); // don't care about time zone
+	}
+
+	/** Create a rate limiter.
+	 * @param maxBuckets the number of buckets above which full buckets are removed. The number
+	 * of buckets may exceed this number if the buckets are not full.
+	 * @param clock the clock used to refill the buckets.
+	 */
+	public TokenBucketRateLimiter(final int maxBuckets, final Clock clock) {
+		nonNull(clock, "clock");
+		if (maxBuckets < 1) {
+			throw new IllegalArgumentException("maxBuckets must be at least 1");
+		}
+		this.maxBuckets = maxBuckets;
+		this.clock = clock;
+		this.sweepAfter = new AtomicLong(maxBuckets);
+	}
+
+	/** Take a token from a bucket.
+	 * @param key the key for the bucket.
+	 * @param limit the rate limit for the bucket.
+	 * @return zero if a token was available and the request may proceed, or the number of
+	 * milliseconds until a token will be available.
+	 */
+	public long acquire(final String key, final RateLimit limit) {
+		checkStringNoCheckedException(key, "key");
+		nonNull(limit, "limit");
+		final long periodMS = limit.getPeriodSec() * 1000L;
+		final long intervalMS = Math.max(1, periodMS / limit.getRequests());
+		final long now = clock.millis();
+		AtomicLong bucket = buckets.get(key);
+		boolean created = false;
+		if (bucket == null) {
+			final AtomicLong existing = buckets.putIfAbsent(key, bucket = new AtomicLong(now));
+			if (existing != null) {
+				bucket = existing;
+			} else {
+				created = true;
+			}
+		}
+		final long waitMS = take(bucket, now, intervalMS, periodMS);
+		if (created) {
+			// after taking a token so the new bucket isn't full and won't be removed
+			maybeSweep(now);
+		}
+		return waitMS;
+	}
+
+	private long take(
+			final AtomicLong bucket,
+			final long now,
+			final long intervalMS,
+			final long periodMS) {
+		while (true) {
+			final long full = bucket.get();
+			final long newFull = Math.max(full, now) + intervalMS;
+			if (newFull - now > periodMS) {
+				return newFull - now - periodMS;
+			}
+			if (bucket.compareAndSet(full, newFull)) {
+				return 0;
+			}
+		}
+	}
+
+	private void maybeSweep(final long now) {
+		final long threshold = sweepAfter.get();
+		if (buckets.size() <= threshold || !sweepAfter.compareAndSet(threshold, Long.MAX_VALUE)) {
+			return; // under the threshold or another thread is sweeping
+		}
+		/* a request racing with the removal of its bucket may get a fresh bucket, which only
+		 * matters if the bucket was refilled just before the request, and so is harmless.
+		 */
+		buckets.values().removeIf(b -> b.get() <= now);
+		// don't sweep again until the map grows significantly, even if most buckets are in use
+		sweepAfter.set(Math.max(maxBuckets, buckets.size() * 2L));
+	}
+
+	/** Get the number of buckets, including full buckets that have not yet been removed.
+	 * @return the number of buckets.
+	 */
+	public int size() {
+		return buckets.size();
+	}
+}
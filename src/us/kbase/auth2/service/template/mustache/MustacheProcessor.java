@@ -1,12 +1,27 @@
 package us.kbase.auth2.service.template.mustache;
 
+import static java.nio.file.StandardWatchEventKinds.ENTRY_CREATE;
+import static java.nio.file.StandardWatchEventKinds.ENTRY_DELETE;
+import static java.nio.file.StandardWatchEventKinds.ENTRY_MODIFY;
 import static us.kbase.auth2.lib.Utils.nonNull;
 
+import java.io.IOException;
 import java.io.StringWriter;
+import java.io.UncheckedIOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
 import java.nio.file.Path;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.Map;
+
+import org.slf4j.LoggerFactory;
 
 import com.github.mustachejava.DefaultMustacheFactory;
+import com.github.mustachejava.Mustache;
 import com.github.mustachejava.MustacheFactory;
+import com.google.common.collect.ImmutableMap;
 
 import us.kbase.auth2.service.template.TemplateProcessor;
 
@@ -14,28 +29,126 @@ import us.kbase.auth2.service.template.TemplateProcessor;
  * seem to be any way to get my hands on the jersey mustache processor once
  * it's registered.
  */
-public class MustacheProcessor implements TemplateProcessor {
+/** A template processor for Mustache templates.
+ *
+ * All the templates in the template directory are compiled when the processor is created, so
+ * rendering a template involves no filesystem access or compilation. Optionally, the directory
+ * can be watched for changes, in which case all the templates are recompiled when any template
+ * changes. This is intended for template development and should not be enabled in production.
+ * @author gaprice@lbl.gov
+ *
+ */
+public class MustacheProcessor implements TemplateProcessor, AutoCloseable {
 
-	//TODO TEST unit tests
-	//TODO JAVADOC
-	
 	private static final String SUFFIX = ".mustache";
-	
-	private final MustacheFactory mf = new DefaultMustacheFactory();
+
+	// rendered templates are small, so don't keep large buffers around
+	private static final int MAX_RETAINED_BUFFER = 64 * 1024;
+
+	private static final ThreadLocal<StringWriter> BUFFER =
+			ThreadLocal.withInitial(() -> new StringWriter(4096));
+
 	private final Path templates;
-	
-	public MustacheProcessor(final Path templateDir) {
+	private volatile Map<String, Mustache> compiled;
+	private final WatchService watcher;
+
+	/** Create a template processor.
+	 * @param templateDir the directory containing the templates. Each file ending in .mustache in
+	 * the directory is compiled, and the template name is the file name without the extension.
+	 * @param watchForChanges true to recompile the templates when the contents of the template
+	 * directory change.
+	 * @throws IOException if the templates could not be read or the directory could not be
+	 * watched.
+	 */
+	public MustacheProcessor(final Path templateDir, final boolean watchForChanges)
+			throws IOException {
 		nonNull(templateDir, "templateDir");
 		templates = templateDir;
+		compiled = compile(templates);
+		if (watchForChanges) {
+			watcher = templates.getFileSystem().newWatchService();
+			templates.register(watcher, ENTRY_CREATE, ENTRY_DELETE, ENTRY_MODIFY);
+			final Thread t = new Thread(() -> watch(), "TemplateWatcher");
+			t.setDaemon(true);
+			t.start();
+		} else {
+			watcher = null;
+		}
+	}
+
+	private static Map<String, Mustache> compile(final Path templateDir) throws IOException {
+		// new factory every time, since the factory caches compiled templates by name
+		final MustacheFactory mf = new DefaultMustacheFactory(templateDir.toFile());
+		final ImmutableMap.Builder<String, Mustache> ret = ImmutableMap.builder();
+		try (final DirectoryStream<Path> ds = Files.newDirectoryStream(
+				templateDir, "*" + SUFFIX)) {
+			for (final Path p: ds) {
+				if (Files.isRegularFile(p)) {
+					final String file = p.getFileName().toString();
+					ret.put(file.substring(0, file.length() - SUFFIX.length()), mf.compile(file));
+				}
+			}
+		}
+		return ret.build();
 	}
-	
+
+	private void watch() {
+		while (true) {
+			final WatchKey key;
+			try {
+				key = watcher.take();
+			} catch (InterruptedException | ClosedWatchServiceException e) {
+				return;
+			}
+			// the events are irrelevant, since templates may include each other
+			key.pollEvents();
+			try {
+				compiled = compile(templates);
+				LoggerFactory.getLogger(getClass()).info("Reloaded templates from {}", templates);
+			} catch (IOException | RuntimeException e) {
+				// keep the old templates so a half saved file doesn't break the UI
+				LoggerFactory.getLogger(getClass()).error(
+						"Failed to reload templates: " + e.getMessage(), e);
+			}
+			if (!key.reset()) {
+				LoggerFactory.getLogger(getClass()).error(
+						"Template directory {} is no longer accessible, stopping reloads",
+						templates);
+				return;
+			}
+		}
+	}
+
 	// this is only suitable for small objects and templates
 	@Override
 	public String process(final String template, final Object model) {
-		final Path t = templates.resolve(template);
-		final StringWriter sw = new StringWriter();
-		mf.compile(t.toString() + SUFFIX).execute(sw, model);
-		return sw.toString();
+		final Mustache m = compiled.get(template);
+		if (m == null) {
+			throw new IllegalArgumentException("No such template: " + template);
+		}
+		final StringWriter sw = BUFFER.get();
+		try {
+			m.execute(sw, model);
+			return sw.toString();
+		} finally {
+			if (sw.getBuffer().capacity() > MAX_RETAINED_BUFFER) {
+				BUFFER.remove();
+			} else {
+				sw.getBuffer().setLength(0);
+			}
+		}
 	}
-	
+
+	/** Stop watching the template directory for changes, if applicable. */
+	@Override
+	public void close() {
+		if (watcher != null) {
+			try {
+				watcher.close();
+			} catch (IOException e) {
+				throw new UncheckedIOException(e);
+			}
+		}
+	}
+
 }
@@ -2,11 +2,14 @@ package us.kbase.auth2.service.ui;
 
 import static us.kbase.auth2.service.common.ServiceCommon.getToken;
 import static us.kbase.auth2.service.common.ServiceCommon.nullOrEmpty;
+import static us.kbase.auth2.service.ui.UIUtils.getNextPageURL;
 import static us.kbase.auth2.service.ui.UIUtils.getRolesFromForm;
 import static us.kbase.auth2.service.ui.UIUtils.getTokenFromCookie;
+import static us.kbase.auth2.service.ui.UIUtils.getTokenListSpec;
 import static us.kbase.auth2.service.ui.UIUtils.relativize;
 import static us.kbase.auth2.service.ui.UIUtils.removeLoginCookie;
 
+import java.io.IOException;
 import java.net.MalformedURLException;
 import java.net.URISyntaxException;
 import java.net.URL;
@@ -22,6 +25,7 @@ import java.util.Map.Entry;
 import java.util.stream.Collectors;
 import java.util.Set;
 import java.util.UUID;
+import java.util.function.Function;
 
 import javax.inject.Inject;
 import javax.ws.rs.Consumes;
@@ -32,11 +36,13 @@ import javax.ws.rs.POST;
 import javax.ws.rs.Path;
 import javax.ws.rs.PathParam;
 import javax.ws.rs.Produces;
+import javax.ws.rs.QueryParam;
 import javax.ws.rs.core.Context;
 import javax.ws.rs.core.HttpHeaders;
 import javax.ws.rs.core.MediaType;
 import javax.ws.rs.core.MultivaluedMap;
 import javax.ws.rs.core.Response;
+import javax.ws.rs.core.StreamingOutput;
 import javax.ws.rs.core.UriInfo;
 
 import org.glassfish.jersey.server.mvc.Template;
@@ -50,6 +56,7 @@ import us.kbase.auth2.lib.Authentication;
 import us.kbase.auth2.lib.CustomRole;
 import us.kbase.auth2.lib.DisplayName;
 import us.kbase.auth2.lib.EmailAddress;
+import us.kbase.auth2.lib.Exporter;
 import us.kbase.auth2.lib.Password;
 import us.kbase.auth2.lib.PolicyID;
 import us.kbase.auth2.lib.Role;
@@ -64,26 +71,35 @@ import us.kbase.auth2.lib.config.ConfigItem;
 import us.kbase.auth2.lib.config.ExternalConfig;
 import us.kbase.auth2.lib.config.AuthConfig.ProviderConfig;
 import us.kbase.auth2.lib.config.AuthConfig.TokenLifetimeType;
+import us.kbase.auth2.lib.exceptions.AuthException;
 import us.kbase.auth2.lib.exceptions.ExternalConfigMappingException;
 import us.kbase.auth2.lib.exceptions.IllegalParameterException;
 import us.kbase.auth2.lib.exceptions.InvalidTokenException;
 import us.kbase.auth2.lib.exceptions.MissingParameterException;
 import us.kbase.auth2.lib.exceptions.NoSuchIdentityProviderException;
+import us.kbase.auth2.lib.exceptions.NoSuchJobException;
 import us.kbase.auth2.lib.exceptions.NoSuchRoleException;
 import us.kbase.auth2.lib.exceptions.NoSuchTokenException;
 import us.kbase.auth2.lib.exceptions.NoSuchUserException;
 import us.kbase.auth2.lib.exceptions.NoTokenProvidedException;
 import us.kbase.auth2.lib.exceptions.UnauthorizedException;
 import us.kbase.auth2.lib.exceptions.UserExistsException;
+import us.kbase.auth2.lib.identity.GuardedIdentityProvider.Status;
+import us.kbase.auth2.lib.job.Job;
+import us.kbase.auth2.lib.job.JobRunner;
 import us.kbase.auth2.lib.storage.exceptions.AuthStorageException;
 import us.kbase.auth2.lib.token.IncomingToken;
 import us.kbase.auth2.lib.token.StoredToken;
+import us.kbase.auth2.lib.token.TokenPage;
 import us.kbase.auth2.lib.user.AuthUser;
 import us.kbase.auth2.service.AuthAPIStaticConfig;
 import us.kbase.auth2.service.AuthExternalConfig;
 import us.kbase.auth2.service.AuthExternalConfig.AuthExternalConfigMapper;
+import us.kbase.auth2.service.common.ExportFormat;
 import us.kbase.auth2.service.common.Fields;
 import us.kbase.auth2.service.common.IncomingJSON;
+import us.kbase.auth2.service.common.NDJSONWriter;
+import us.kbase.auth2.service.ratelimit.RateLimits;
 
 @Path(UIPaths.ADMIN_ROOT)
 public class Admin {
@@ -97,12 +113,17 @@ public class Admin {
 
 	private static final int DAY_IN_MS = 24 * 60 * MIN_IN_MS;
 	
+	private static final String NDJSON = "application/x-ndjson";
+	
 	@Inject
 	private Authentication auth;
 	
 	@Inject
 	private AuthAPIStaticConfig cfg;
 	
+	@Inject
+	private JobRunner jobRunner;
+	
 	@GET
 	@Template(name = "/admingeneral")
 	public Map<String, Object> admin(
@@ -116,6 +137,7 @@ public class Admin {
 		ret.put(Fields.URL_TOKEN, relativize(uriInfo, UIPaths.ADMIN_ROOT_TOKEN));
 		ret.put(Fields.URL_POLICY, relativize(uriInfo, UIPaths.ADMIN_ROOT_POLICY_ID));
 		ret.put(Fields.URL_SEARCH, relativize(uriInfo, UIPaths.ADMIN_ROOT_SEARCH));
+		ret.put(Fields.URL_JOBS, relativize(uriInfo, UIPaths.ADMIN_ROOT_JOBS));
 		ret.put(Fields.CUSTOM_ROLES, UIUtils.customRolesToList(
 				auth.getCustomRoles(getTokenFromCookie(headers, cfg.getTokenCookieName()), true)));
 		return ret;
@@ -123,19 +145,129 @@ public class Admin {
 	
 	@POST
 	@Path(UIPaths.ADMIN_FORCE_RESET_PWD)
-	public void forceResetAllPasswords(@Context final HttpHeaders headers)
+	@Produces(MediaType.APPLICATION_JSON)
+	public Response forceResetAllPasswords(@Context final HttpHeaders headers)
 			throws NoTokenProvidedException, InvalidTokenException, UnauthorizedException,
 			AuthStorageException {
-		auth.forceResetAllPasswords(getTokenFromCookie(headers, cfg.getTokenCookieName()));
+		return jobAccepted(auth.forceResetAllPasswords(
+				getTokenFromCookie(headers, cfg.getTokenCookieName()))).build();
 	}
 	
 	@POST
 	@Path(UIPaths.ADMIN_REVOKE_ALL)
+	@Produces(MediaType.APPLICATION_JSON)
 	public Response revokeAllTokens(@Context final HttpHeaders headers)
 			throws NoTokenProvidedException, InvalidTokenException, UnauthorizedException,
 			AuthStorageException {
-		auth.revokeAllTokens(getTokenFromCookie(headers, cfg.getTokenCookieName()));
-		return Response.ok().cookie(removeLoginCookie(cfg.getTokenCookieName())).build();
+		return jobAccepted(auth.revokeAllTokens(
+				getTokenFromCookie(headers, cfg.getTokenCookieName())))
+				.cookie(removeLoginCookie(cfg.getTokenCookieName())).build();
+	}
+	
+	private Response.ResponseBuilder jobAccepted(final Job job) {
+		jobRunner.wakeUp();
+		return Response.accepted(new UIJob(job));
+	}
+	
+	@GET
+	@Path(UIPaths.ADMIN_JOBS)
+	@Template(name = "/adminjobs")
+	@Produces(MediaType.TEXT_HTML)
+	public Map<String, Object> getJobs(
+			@Context final HttpHeaders headers,
+			@Context final UriInfo uriInfo)
+			throws InvalidTokenException, UnauthorizedException, NoTokenProvidedException,
+			AuthStorageException {
+		final List<UIJob> jobs = auth.getJobs(
+				getTokenFromCookie(headers, cfg.getTokenCookieName())).stream()
+				.map(j -> new UIJob(j)).collect(Collectors.toList());
+		return ImmutableMap.of(
+				Fields.JOBS, jobs,
+				Fields.URL_JOB, relativize(uriInfo, UIPaths.ADMIN_ROOT_JOBS + SEP));
+	}
+	
+	@GET
+	@Path(UIPaths.ADMIN_JOBS_ID)
+	@Produces(MediaType.APPLICATION_JSON)
+	public UIJob getJob(
+			@Context final HttpHeaders headers,
+			@PathParam(UIPaths.JOB_ID) final UUID jobID)
+			throws InvalidTokenException, UnauthorizedException, NoTokenProvidedException,
+			NoSuchJobException, AuthStorageException {
+		return new UIJob(auth.getJob(getTokenFromCookie(headers, cfg.getTokenCookieName()),
+				jobID));
+	}
+	
+	@POST
+	@Path(UIPaths.ADMIN_JOBS_CANCEL)
+	@Produces(MediaType.APPLICATION_JSON)
+	public UIJob cancelJob(
+			@Context final HttpHeaders headers,
+			@PathParam(UIPaths.JOB_ID) final UUID jobID)
+			throws InvalidTokenException, UnauthorizedException, NoTokenProvidedException,
+			NoSuchJobException, AuthStorageException {
+		return new UIJob(auth.cancelJob(getTokenFromCookie(headers, cfg.getTokenCookieName()),
+				jobID));
+	}
+	
+	@GET
+	@Path(UIPaths.ADMIN_EXPORT_USERS)
+	@Produces(NDJSON)
+	public Response exportUsers(
+			@Context final HttpHeaders headers,
+			@QueryParam(Fields.GZIP) final boolean gzip)
+			throws InvalidTokenException, UnauthorizedException, NoTokenProvidedException,
+			AuthStorageException {
+		final Exporter exp = auth.getExporter(
+				getTokenFromCookie(headers, cfg.getTokenCookieName()));
+		return export("users", gzip, (AuthUser u) -> ExportFormat.toMap(u),
+				w -> exp.exportUsers(w));
+	}
+	
+	@GET
+	@Path(UIPaths.ADMIN_EXPORT_TOKENS)
+	@Produces(NDJSON)
+	public Response exportTokens(
+			@Context final HttpHeaders headers,
+			@QueryParam(Fields.GZIP) final boolean gzip)
+			throws InvalidTokenException, UnauthorizedException, NoTokenProvidedException,
+			AuthStorageException {
+		final Exporter exp = auth.getExporter(
+				getTokenFromCookie(headers, cfg.getTokenCookieName()));
+		return export("tokens", gzip, (StoredToken t) -> ExportFormat.toMap(t),
+				w -> exp.exportTokens(w));
+	}
+	
+	private interface Export<T> {
+		void export(NDJSONWriter<T> writer) throws IOException, AuthStorageException;
+	}
+	
+	/* The response body is streamed, and so is sent chunked. The token has already been checked,
+	 * so a failure at this point cannot change the response status. Instead, a storage failure
+	 * is recorded in the final status record of the export. If writing to the client fails, the
+	 * status record is missing, which the client must treat as a truncated export.
+	 */
+	private <T> Response export(
+			final String name,
+			final boolean gzip,
+			final Function<T, Map<String, Object>> converter,
+			final Export<T> export) {
+		final StreamingOutput body = out -> {
+			try (final NDJSONWriter<T> w = new NDJSONWriter<>(out, gzip, converter)) {
+				try {
+					export.export(w);
+				} catch (AuthStorageException | RuntimeException e) {
+					w.fail(e.getMessage());
+					throw new IOException("Export failed: " + e.getMessage(), e);
+				}
+				w.finish();
+			}
+		};
+		final String file = name + ".ndjson" + (gzip ? ".gz" : "");
+		return Response.ok(body)
+				.type(gzip ? "application/gzip" : NDJSON)
+				.header("Content-Disposition", "attachment; filename=\"" + file + "\"")
+				.build();
 	}
 	
 	@POST
@@ -162,13 +294,15 @@ public class Admin {
 	
 	@POST
 	@Path(UIPaths.ADMIN_POLICY_ID)
-	public void removePolicyID(
+	@Produces(MediaType.APPLICATION_JSON)
+	public Response removePolicyID(
 			@Context final HttpHeaders headers,
 			@FormParam(Fields.POLICY_ID) final String policyID)
 			throws InvalidTokenException, UnauthorizedException, NoTokenProvidedException,
 				MissingParameterException, IllegalParameterException, AuthStorageException {
-		auth.removePolicyID(getTokenFromCookie(headers, cfg.getTokenCookieName()),
-				new PolicyID(policyID));
+		return jobAccepted(auth.removePolicyID(
+				getTokenFromCookie(headers, cfg.getTokenCookieName()), new PolicyID(policyID)))
+				.build();
 	}
 	
 	@POST
@@ -324,19 +458,25 @@ public class Admin {
 	public Map<String, Object> getUserTokens(
 			@Context final HttpHeaders headers,
 			@Context final UriInfo uriInfo,
-			@PathParam(UIPaths.USER) final String user)
+			@PathParam(UIPaths.USER) final String user,
+			@QueryParam(Fields.TOKEN_TYPE) final String type,
+			@QueryParam(Fields.TOKEN_NAME) final String name,
+			@QueryParam(Fields.LIMIT) final String limit,
+			@QueryParam(Fields.CURSOR) final String cursor)
 			throws InvalidTokenException, UnauthorizedException, NoTokenProvidedException,
 			MissingParameterException, IllegalParameterException, AuthStorageException {
 		
-		final Set<StoredToken> tokens = auth.getTokens(
-				getTokenFromCookie(headers, cfg.getTokenCookieName()), new UserName(user));
-		final List<UIToken> uitokens = tokens.stream()
+		final TokenPage tokens = auth.getTokens(
+				getTokenFromCookie(headers, cfg.getTokenCookieName()), new UserName(user),
+				getTokenListSpec(type, name, limit, cursor));
+		final List<UIToken> uitokens = tokens.getTokens().stream()
 				.map(t -> new UIToken(t)).collect(Collectors.toList());
 		final String urlPrefix = UIPaths.ADMIN_ROOT_USER + SEP + user + SEP +
 				UIPaths.ADMIN_TOKENS + SEP;
 		final Map<String, Object> ret = new HashMap<>();
 		ret.put(Fields.USER, user);
 		ret.put(Fields.TOKENS, uitokens);
+		ret.put(Fields.URL_NEXT, getNextPageURL(uriInfo, tokens.getNextCursor()));
 		ret.put(Fields.URL_REVOKE, relativize(uriInfo, urlPrefix +
 				UIPaths.ADMIN_USER_TOKENS_REVOKE + SEP));
 		ret.put(Fields.URL_REVOKE_ALL, relativize(uriInfo, urlPrefix + UIPaths.ADMIN_REVOKE_ALL));
@@ -493,6 +633,115 @@ public class Admin {
 		}
 	}
 
+	private static class BulkRoleUpdate extends IncomingJSON {
+
+		private final List<String> users;
+		private final List<String> addRoles;
+		private final List<String> removeRoles;
+		private final List<String> addCustomRoles;
+		private final List<String> removeCustomRoles;
+
+		@JsonCreator
+		public BulkRoleUpdate(
+				@JsonProperty(Fields.USERS) final List<String> users,
+				@JsonProperty(Fields.ADD_ROLES) final List<String> addRoles,
+				@JsonProperty(Fields.REMOVE_ROLES) final List<String> removeRoles,
+				@JsonProperty(Fields.ADD_CUSTOM_ROLES) final List<String> addCustomRoles,
+				@JsonProperty(Fields.REMOVE_CUSTOM_ROLES) final List<String> removeCustomRoles) {
+			this.users = users;
+			this.addRoles = addRoles;
+			this.removeRoles = removeRoles;
+			this.addCustomRoles = addCustomRoles;
+			this.removeCustomRoles = removeCustomRoles;
+		}
+
+		public Set<UserName> getUsers()
+				throws MissingParameterException, IllegalParameterException {
+			if (users == null || users.isEmpty()) {
+				throw new MissingParameterException(Fields.USERS);
+			}
+			final Set<UserName> ret = new HashSet<>();
+			for (final String u: users) {
+				ret.add(new UserName(u));
+			}
+			return ret;
+		}
+
+		public Set<Role> getAddRoles() throws IllegalParameterException {
+			return getRoles(addRoles);
+		}
+
+		public Set<Role> getRemoveRoles() throws IllegalParameterException {
+			return getRoles(removeRoles);
+		}
+
+		private Set<Role> getRoles(final List<String> roles) throws IllegalParameterException {
+			final Set<Role> ret = new HashSet<>();
+			for (final String r: getRoleIDs(roles)) {
+				if (!Role.isRole(r)) {
+					throw new IllegalParameterException("Invalid role id: " + r);
+				}
+				ret.add(Role.getRole(r));
+			}
+			return ret;
+		}
+
+		public Set<String> getAddCustomRoles() throws IllegalParameterException {
+			return getRoleIDs(addCustomRoles);
+		}
+
+		public Set<String> getRemoveCustomRoles() throws IllegalParameterException {
+			return getRoleIDs(removeCustomRoles);
+		}
+
+		private Set<String> getRoleIDs(final List<String> roles)
+				throws IllegalParameterException {
+			if (roles == null) {
+				return Collections.emptySet();
+			}
+			final Set<String> ret = new HashSet<>();
+			for (final String r: roles) {
+				if (nullOrEmpty(r)) {
+					throw new IllegalParameterException("Null or empty role id");
+				}
+				ret.add(r.trim());
+			}
+			return ret;
+		}
+	}
+
+	@POST
+	@Path(UIPaths.ADMIN_ROLES_BULK)
+	@Consumes(MediaType.APPLICATION_JSON)
+	@Produces(MediaType.APPLICATION_JSON)
+	public Map<String, Object> changeRolesBulk(
+			@HeaderParam(UIConstants.HEADER_TOKEN) final String token,
+			final BulkRoleUpdate update)
+			throws MissingParameterException, IllegalParameterException, InvalidTokenException,
+				UnauthorizedException, NoTokenProvidedException, NoSuchRoleException,
+				AuthStorageException {
+		if (update == null) {
+			throw new MissingParameterException("JSON body missing");
+		}
+		update.exceptOnAdditionalProperties();
+		final Map<UserName, Optional<AuthException>> res = auth.updateRoles(getToken(token),
+				update.getUsers(), update.getAddRoles(), update.getRemoveRoles(),
+				update.getAddCustomRoles(), update.getRemoveCustomRoles());
+		final Map<String, Object> users = new HashMap<>();
+		for (final Entry<UserName, Optional<AuthException>> e: res.entrySet()) {
+			final Map<String, Object> outcome = new HashMap<>();
+			outcome.put(Fields.UPDATED, !e.getValue().isPresent());
+			if (e.getValue().isPresent()) {
+				final AuthException err = e.getValue().get();
+				outcome.put(Fields.ERROR_CODE, err.getErr().getErrorCode());
+				outcome.put(Fields.ERROR_APP, err.getErr().getError());
+				outcome.put(Fields.ERROR_MESSAGE, err.getMessage());
+			}
+			users.put(e.getKey().getName(), outcome);
+		}
+		return ImmutableMap.of(Fields.USERS, users);
+	}
+
 	@GET
 	@Path(UIPaths.ADMIN_CUSTOM_ROLES)
 	@Template(name = "/admincustomroles")
@@ -526,13 +775,15 @@ public class Admin {
 	
 	@POST // should take DELETE as well
 	@Path(UIPaths.ADMIN_CUSTOM_ROLES_DELETE)
-	public void deleteCustomRole(
+	@Produces(MediaType.APPLICATION_JSON)
+	public Response deleteCustomRole(
 			@Context final HttpHeaders headers,
 			@FormParam(Fields.ID) final String roleId)
 			throws MissingParameterException, AuthStorageException,
 			InvalidTokenException, UnauthorizedException,
-			NoTokenProvidedException, NoSuchRoleException, IllegalParameterException {
-		auth.deleteCustomRole(getTokenFromCookie(headers, cfg.getTokenCookieName()), roleId);
+			NoTokenProvidedException, IllegalParameterException {
+		return jobAccepted(auth.deleteCustomRole(
+				getTokenFromCookie(headers, cfg.getTokenCookieName()), roleId)).build();
 	}
 	
 	@POST
@@ -565,6 +816,7 @@ public class Admin {
 		final Map<String, Object> ret = new HashMap<>();
 		final List<Map<String, Object>> prov = new ArrayList<>();
 		ret.put(Fields.PROVIDERS, prov);
+		final Map<String, Status> provstatus = auth.getIdentityProviderStatus();
 		for (final Entry<String, ProviderConfig> e:
 				cfgset.getCfg().getProviders().entrySet()) {
 			final Map<String, Object> p = new HashMap<>();
@@ -572,11 +824,22 @@ public class Admin {
 			p.put(Fields.CFG_PROV_ENABLED, e.getValue().isEnabled());
 			p.put(Fields.CFG_PROV_FORCE_LINK_CHOICE, e.getValue().isForceLinkChoice());
 			p.put(Fields.CFG_PROV_FORCE_LOGIN_CHOICE, e.getValue().isForceLoginChoice());
+			final Status st = provstatus.get(e.getKey());
+			if (st != null) {
+				p.put(Fields.CFG_PROV_CIRCUIT_STATE, st.getState().name().toLowerCase());
+				p.put(Fields.CFG_PROV_FAILURES, st.getConsecutiveFailures());
+				p.put(Fields.CFG_PROV_IN_FLIGHT, st.getInFlight());
+				p.put(Fields.CFG_PROV_MAX_CONCURRENT, st.getMaxConcurrent());
+				p.put(Fields.CFG_PROV_REJECTED,
+						st.getRejectedCircuitOpen() + st.getRejectedBulkheadFull());
+			}
 			prov.add(p);
 		}
 		ret.put(Fields.CFG_SHOW_STACK_TRACE,
 				cfgset.getExtcfg().isIncludeStackTraceInResponseOrDefault());
 		ret.put(Fields.CFG_IGNORE_IP_HEADERS, cfgset.getExtcfg().isIgnoreIPHeadersOrDefault());
+		final RateLimits limits = cfgset.getExtcfg().getRateLimitsOrDefault();
+		ret.put(Fields.CFG_RATE_LIMITS, limits.isEmpty() ? null : limits.toSpec());
 		final ConfigItem<URL, State> loginallowed =
 				cfgset.getExtcfg().getAllowedLoginRedirectPrefix();
 		ret.put(Fields.CFG_ALLOWED_LOGIN_REDIRECT,
@@ -624,7 +887,8 @@ public class Admin {
 			@FormParam(Fields.CFG_ALLOWED_LOGIN_REDIRECT) final String allowedloginredirect,
 			@FormParam(Fields.CFG_COMPLETE_LOGIN_REDIRECT) final String completeloginredirect,
 			@FormParam(Fields.CFG_POST_LINK_REDIRECT) final String postlinkredirect,
-			@FormParam(Fields.CFG_COMPLETE_LINK_REDIRECT) final String completelinkredirect)
+			@FormParam(Fields.CFG_COMPLETE_LINK_REDIRECT) final String completelinkredirect,
+			@FormParam(Fields.CFG_RATE_LIMITS) final String ratelimits)
 			throws IllegalParameterException, InvalidTokenException,
 				UnauthorizedException, NoTokenProvidedException, AuthStorageException {
 		final ConfigItem<URL, Action> postlogin = getURL(allowedloginredirect);
@@ -633,9 +897,11 @@ public class Admin {
 		final ConfigItem<URL, Action> completelink = getURL(completelinkredirect);
 		final ConfigItem<Boolean, Action> ignore = ConfigItem.set(!nullOrEmpty(ignoreip));
 		final ConfigItem<Boolean, Action> stack = ConfigItem.set(!nullOrEmpty(showstack));
+		final ConfigItem<RateLimits, Action> limits = nullOrEmpty(ratelimits) ?
+				ConfigItem.remove() : ConfigItem.set(RateLimits.parse(ratelimits));
 		
 		final AuthExternalConfig<Action> ext = new AuthExternalConfig<>(
-				postlogin, completelogin, postlink, completelink, ignore, stack);
+				postlogin, completelogin, postlink, completelink, ignore, stack, limits);
 		try {
 			auth.updateConfig(getTokenFromCookie(headers, cfg.getTokenCookieName()),
 					AuthConfigUpdate.getBuilder().withLoginAllowed(!nullOrEmpty(allowLogin))
@@ -657,6 +923,7 @@ public class Admin {
 		private final String completeLoginURL;
 		private final String postLinkURL;
 		private final String completeLinkURL;
+		private final String rateLimits;
 		
 		public final List<String> remove;
 		
@@ -669,6 +936,7 @@ public class Admin {
 				@JsonProperty(Fields.CFG_COMPLETE_LOGIN_REDIRECT) final String completeLoginURL,
 				@JsonProperty(Fields.CFG_POST_LINK_REDIRECT) final String postLinkURL,
 				@JsonProperty(Fields.CFG_COMPLETE_LINK_REDIRECT) final String completeLinkURL,
+				@JsonProperty(Fields.CFG_RATE_LIMITS) final String rateLimits,
 				@JsonProperty(Fields.CFG_REMOVE) final List<String> remove) {
 			this.allowLogin = allowLogin;
 			this.showStack = showStack;
@@ -677,6 +945,7 @@ public class Admin {
 			this.completeLoginURL = completeLoginURL;
 			this.postLinkURL = postLinkURL;
 			this.completeLinkURL = completeLinkURL;
+			this.rateLimits = rateLimits;
 			this.remove = remove == null ? Collections.emptyList() : remove;
 		}
 		
@@ -712,6 +981,17 @@ public class Admin {
 			return getURL(completeLinkURL, Fields.CFG_COMPLETE_LINK_REDIRECT);
 		}
 		
+		public ConfigItem<RateLimits, Action> getRateLimits() throws IllegalParameterException {
+			final ConfigItem<RateLimits, Action> act = getRemove(Fields.CFG_RATE_LIMITS);
+			if (act != null) {
+				return act;
+			}
+			if (nullOrEmpty(rateLimits)) {
+				return ConfigItem.noAction();
+			}
+			return ConfigItem.set(RateLimits.parse(rateLimits));
+		}
+		
 		private ConfigItem<URL, Action> getURL(final String s, final String field)
 				throws IllegalParameterException {
 			final ConfigItem<URL, Action> act = getRemove(field);
@@ -768,7 +1048,8 @@ public class Admin {
 				config.getPostLinkURL(),
 				config.getCompleteLinkURL(),
 				config.getIgnoreIP(),
-				config.getShowStack());
+				config.getShowStack(),
+				config.getRateLimits());
 		try {
 			auth.updateConfig(getToken(token),
 					AuthConfigUpdate.getBuilder().withNullableLoginAllowed(config.getAllowLogin())
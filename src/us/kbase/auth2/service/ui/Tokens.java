@@ -5,7 +5,9 @@ import static us.kbase.auth2.service.common.ServiceCommon.getToken;
 import static us.kbase.auth2.service.common.ServiceCommon.getTokenContext;
 import static us.kbase.auth2.service.common.ServiceCommon.isIgnoreIPsInHeaders;
 import static us.kbase.auth2.service.ui.UIUtils.removeLoginCookie;
+import static us.kbase.auth2.service.ui.UIUtils.getNextPageURL;
 import static us.kbase.auth2.service.ui.UIUtils.getTokenFromCookie;
+import static us.kbase.auth2.service.ui.UIUtils.getTokenListSpec;
 import static us.kbase.auth2.service.ui.UIUtils.relativize;
 
 import java.util.Collections;
@@ -26,6 +28,7 @@ import javax.ws.rs.POST;
 import javax.ws.rs.Path;
 import javax.ws.rs.PathParam;
 import javax.ws.rs.Produces;
+import javax.ws.rs.QueryParam;
 import javax.ws.rs.core.Context;
 import javax.ws.rs.core.HttpHeaders;
 import javax.ws.rs.core.MediaType;
@@ -48,6 +51,7 @@ import us.kbase.auth2.lib.exceptions.NoTokenProvidedException;
 import us.kbase.auth2.lib.exceptions.UnauthorizedException;
 import us.kbase.auth2.lib.storage.exceptions.AuthStorageException;
 import us.kbase.auth2.lib.token.IncomingToken;
+import us.kbase.auth2.lib.token.TokenListSpec;
 import us.kbase.auth2.lib.token.TokenName;
 import us.kbase.auth2.lib.token.TokenSet;
 import us.kbase.auth2.lib.token.TokenType;
@@ -76,20 +80,32 @@ public class Tokens {
 	@Template(name = "/tokens")
 	public Map<String, Object> getTokensHTML(
 			@Context final HttpHeaders headers,
-			@Context final UriInfo uriInfo)
+			@Context final UriInfo uriInfo,
+			@QueryParam(Fields.TOKEN_TYPE) final String type,
+			@QueryParam(Fields.TOKEN_NAME) final String name,
+			@QueryParam(Fields.LIMIT) final String limit,
+			@QueryParam(Fields.CURSOR) final String cursor)
 			throws AuthStorageException, InvalidTokenException,
-				NoTokenProvidedException, UnauthorizedException {
-		return getTokens(getTokenFromCookie(headers, cfg.getTokenCookieName()), uriInfo);
+				NoTokenProvidedException, UnauthorizedException, IllegalParameterException,
+				MissingParameterException {
+		return getTokens(getTokenFromCookie(headers, cfg.getTokenCookieName()), uriInfo,
+				getTokenListSpec(type, name, limit, cursor));
 	}
 	
 	@GET
 	@Produces(MediaType.APPLICATION_JSON)
 	public Map<String, Object> getTokensJSON(
 			@HeaderParam(UIConstants.HEADER_TOKEN) final String headerToken,
-			@Context final UriInfo uriInfo)
+			@Context final UriInfo uriInfo,
+			@QueryParam(Fields.TOKEN_TYPE) final String type,
+			@QueryParam(Fields.TOKEN_NAME) final String name,
+			@QueryParam(Fields.LIMIT) final String limit,
+			@QueryParam(Fields.CURSOR) final String cursor)
 			throws AuthStorageException, InvalidTokenException,
-				NoTokenProvidedException, UnauthorizedException {
-		return getTokens(getToken(headerToken), uriInfo);
+				NoTokenProvidedException, UnauthorizedException, IllegalParameterException,
+				MissingParameterException {
+		return getTokens(getToken(headerToken), uriInfo,
+				getTokenListSpec(type, name, limit, cursor));
 	}
 	
 	@POST
@@ -208,19 +224,25 @@ public class Tokens {
 				Fields.TOKEN_SERVICE.equals(tokenType) ? TokenType.SERV : TokenType.DEV, tcc));
 	}
 
-	private Map<String, Object> getTokens(final IncomingToken token, final UriInfo uriInfo)
+	private Map<String, Object> getTokens(
+			final IncomingToken token,
+			final UriInfo uriInfo,
+			final TokenListSpec spec)
 			throws AuthStorageException, NoTokenProvidedException,
 				InvalidTokenException, UnauthorizedException {
 		final AuthUser au = auth.getUser(token);
-		final TokenSet ts = auth.getTokens(token);
+		final TokenSet ts = auth.getTokens(token, spec);
 		final Map<String, Object> ret = new HashMap<>();
 		ret.put(Fields.CURRENT, new UIToken(ts.getCurrentToken()));
 		
 		final List<UIToken> ats = ts.getTokens().stream()
 				.map(t -> new UIToken(t)).collect(Collectors.toList());
 		ret.put(Fields.TOKENS, ats);
-		ret.put(Fields.TOKEN_DEV, Role.DEV_TOKEN.isSatisfiedBy(au.getRoles()));
-		ret.put(Fields.TOKEN_SERVICE, Role.SERV_TOKEN.isSatisfiedBy(au.getRoles()));
+		ret.put(Fields.NEXT_CURSOR, ts.getNextCursor().isPresent() ?
+				ts.getNextCursor().get().encode() : null);
+		ret.put(Fields.URL_NEXT, getNextPageURL(uriInfo, ts.getNextCursor()));
+		ret.put(Fields.TOKEN_DEV, Role.DEV_TOKEN.isSatisfiedBy(au.getEffectiveRoleMask()));
+		ret.put(Fields.TOKEN_SERVICE, Role.SERV_TOKEN.isSatisfiedBy(au.getEffectiveRoleMask()));
 		ret.put(Fields.USER, au.getUserName().getName());
 		ret.put(Fields.URL_CREATE, relativize(uriInfo, UIPaths.TOKENS_ROOT));
 		ret.put(Fields.URL_REVOKE, relativize(uriInfo, UIPaths.TOKENS_ROOT_REVOKE +
@@ -0,0 +1,84 @@
+package us.kbase.auth2.service.ui;
+
+import us.kbase.auth2.lib.job.Job;
+
+public class UIJob {
+	
+	//TODO JAVADOC or swagger
+	
+	private final String id;
+	private final String type;
+	private final String typeid;
+	private final String target;
+	private final String admin;
+	private final long created;
+	private final String state;
+	private final long updated;
+	private final long processed;
+	private final long modified;
+	private final String error;
+	private final boolean finished;
+	
+	public UIJob(final Job job) {
+		id = job.getId().toString();
+		type = job.getType().getDescription();
+		typeid = job.getType().getID();
+		target = job.getTarget().orNull();
+		admin = job.getAdmin().getName();
+		created = job.getCreated().toEpochMilli();
+		state = job.getState().getID();
+		updated = job.getUpdated().toEpochMilli();
+		processed = job.getProcessed();
+		modified = job.getModified();
+		error = job.getError().orNull();
+		finished = job.getState().isFinished();
+	}
+	
+	public String getId() {
+		return id;
+	}
+	
+	public String getType() {
+		return type;
+	}
+	
+	public String getTypeid() {
+		return typeid;
+	}
+	
+	public String getTarget() {
+		return target;
+	}
+	
+	public String getAdmin() {
+		return admin;
+	}
+	
+	public long getCreated() {
+		return created;
+	}
+	
+	public String getState() {
+		return state;
+	}
+	
+	public long getUpdated() {
+		return updated;
+	}
+	
+	public long getProcessed() {
+		return processed;
+	}
+	
+	public long getModified() {
+		return modified;
+	}
+	
+	public String getError() {
+		return error;
+	}
+	
+	public boolean isFinished() {
+		return finished;
+	}
+}
@@ -36,6 +36,9 @@ public class UIPaths {
 	public static final String TOKEN_ID = "tokenid";
 	private static final String TOKEN_ID_PARAM = "{" + TOKEN_ID + "}";
 	private static final String CUSTOM_ROLES = "customroles";
+	/** A portion of a path designating a job ID. */
+	public static final String JOB_ID = "jobid";
+	private static final String JOB_ID_PARAM = "{" + JOB_ID + "}";
 	
 	/* Root endpoint */
 
@@ -74,6 +77,10 @@ public class UIPaths {
 	 * the user's account name as a path parameter.
 	 */
 	public static final String ADMIN_USER_ROLES = ADMIN_USER_PARAM + SEP + ADMIN_ROLES;
+	/** A portion of a path designating the administration of multiple users' roles and custom
+	 * roles in one request.
+	 */
+	public static final String ADMIN_ROLES_BULK = ADMIN_ROLES + SEP + "bulk";
 	
 	/** A portion of a path designating setting that a user or users should be required to reset
 	 * their password on the next login. 
@@ -173,6 +180,26 @@ public class UIPaths {
 	/** The token configuration endpoint location. */
 	public static final String ADMIN_ROOT_CONFIG_TOKEN = ADMIN_ROOT + SEP + ADMIN_CONFIG_TOKEN;
 	
+	/** A portion of a path designating the administration of background jobs. */
+	public static final String ADMIN_JOBS = "jobs";
+	/** The background jobs endpoint location. */
+	public static final String ADMIN_ROOT_JOBS = ADMIN_ROOT + SEP + ADMIN_JOBS;
+	/** A portion of a path designating a particular background job, including the job ID as a
+	 * path parameter.
+	 */
+	public static final String ADMIN_JOBS_ID = ADMIN_JOBS + SEP + JOB_ID_PARAM;
+	/** A portion of a path designating the cancellation of a particular background job,
+	 * including the job ID as a path parameter.
+	 */
+	public static final String ADMIN_JOBS_CANCEL = ADMIN_JOBS_ID + SEP + CANCEL;
+	
+	/** A portion of a path designating the export of system data. */
+	public static final String ADMIN_EXPORT = "export";
+	/** A portion of a path designating the export of users. */
+	public static final String ADMIN_EXPORT_USERS = ADMIN_EXPORT + SEP + "users";
+	/** A portion of a path designating the export of token metadata. */
+	public static final String ADMIN_EXPORT_TOKENS = ADMIN_EXPORT + SEP + TOKENS;
+	
 	/* localaccount endpoint */
 	
 	/** The local account endpoint root location. */
@@ -6,9 +6,11 @@ import static us.kbase.auth2.service.ui.UIConstants.IN_PROCESS_LOGIN_COOKIE;
 import static us.kbase.auth2.lib.Utils.nonNull;
 import static us.kbase.auth2.lib.Utils.checkStringNoCheckedException;
 
+import java.io.UnsupportedEncodingException;
 import java.net.URI;
 import java.net.URISyntaxException;
 import java.net.URL;
+import java.net.URLEncoder;
 import java.nio.file.InvalidPathException;
 import java.nio.file.Path;
 import java.nio.file.Paths;
@@ -17,6 +19,7 @@ import java.util.HashSet;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
+import java.util.Map.Entry;
 import java.util.Set;
 
 import javax.ws.rs.core.Cookie;
@@ -36,12 +39,16 @@ import us.kbase.auth2.lib.config.ConfigAction.State;
 import us.kbase.auth2.lib.exceptions.AuthenticationException;
 import us.kbase.auth2.lib.exceptions.ErrorType;
 import us.kbase.auth2.lib.exceptions.ExternalConfigMappingException;
+import us.kbase.auth2.lib.exceptions.IllegalParameterException;
 import us.kbase.auth2.lib.exceptions.MissingParameterException;
 import us.kbase.auth2.lib.exceptions.NoTokenProvidedException;
 import us.kbase.auth2.lib.storage.exceptions.AuthStorageException;
 import us.kbase.auth2.lib.token.IncomingToken;
 import us.kbase.auth2.lib.token.NewToken;
 import us.kbase.auth2.lib.token.TemporaryToken;
+import us.kbase.auth2.lib.token.TokenCursor;
+import us.kbase.auth2.lib.token.TokenListSpec;
+import us.kbase.auth2.lib.token.TokenName;
 import us.kbase.auth2.lib.token.TokenType;
 import us.kbase.auth2.service.AuthExternalConfig;
 import us.kbase.auth2.service.AuthExternalConfig.AuthExternalConfigMapper;
@@ -262,6 +269,85 @@ public class UIUtils {
 		return ret;
 	}
 	
+	/** Get a specification for listing a page of tokens from query parameters.
+	 * @param type the ID of the type of tokens to list, or null or whitespace for any type.
+	 * @param name the name of the tokens to list, or null or whitespace for any name.
+	 * @param limit the maximum number of tokens to list, or null or whitespace for the default.
+	 * @param cursor the cursor from the previous page of tokens, or null or whitespace to start
+	 * with the newest token.
+	 * @return the specification.
+	 * @throws IllegalParameterException if any of the parameters are invalid.
+	 * @throws MissingParameterException if the token name is missing. This should never happen.
+	 */
+	public static TokenListSpec getTokenListSpec(
+			final String type,
+			final String name,
+			final String limit,
+			final String cursor)
+			throws IllegalParameterException, MissingParameterException {
+		final TokenListSpec.Builder b = TokenListSpec.getBuilder();
+		if (!nullOrEmpty(type)) {
+			try {
+				b.withNullableType(TokenType.getType(type.trim()));
+			} catch (IllegalArgumentException e) {
+				throw new IllegalParameterException(e.getMessage());
+			}
+		}
+		if (!nullOrEmpty(name)) {
+			b.withNullableName(new TokenName(name));
+		}
+		if (!nullOrEmpty(limit)) {
+			try {
+				b.withLimit(Integer.parseInt(limit.trim()));
+			} catch (NumberFormatException e) {
+				throw new IllegalParameterException("limit must be an integer");
+			}
+		}
+		if (!nullOrEmpty(cursor)) {
+			b.withCursor(TokenCursor.decode(cursor));
+		}
+		return b.build();
+	}
+	
+	/** Get a relative URL, consisting only of a query string, for the next page of a list. The
+	 * URL contains the query parameters of the current request with the cursor replaced.
+	 * @param current the current request URI.
+	 * @param cursor the cursor for the next page, or absent if there is no next page.
+	 * @return the URL, or null if there is no next page.
+	 */
+	public static String getNextPageURL(
+			final UriInfo current,
+			final Optional<TokenCursor> cursor) {
+		nonNull(current, "current");
+		nonNull(cursor, "cursor");
+		if (!cursor.isPresent()) {
+			return null;
+		}
+		final StringBuilder sb = new StringBuilder();
+		for (final Entry<String, List<String>> e: current.getQueryParameters().entrySet()) {
+			if (!Fields.CURSOR.equals(e.getKey())) {
+				for (final String v: e.getValue()) {
+					appendQueryParam(sb, e.getKey(), v);
+				}
+			}
+		}
+		appendQueryParam(sb, Fields.CURSOR, cursor.get().encode());
+		return sb.toString();
+	}
+	
+	private static void appendQueryParam(
+			final StringBuilder sb,
+			final String key,
+			final String value) {
+		sb.append(sb.length() == 0 ? "?" : "&");
+		try {
+			sb.append(URLEncoder.encode(key, "UTF-8")).append("=")
+					.append(URLEncoder.encode(value, "UTF-8"));
+		} catch (UnsupportedEncodingException e) {
+			throw new RuntimeException("UTF-8 is always supported", e);
+		}
+	}
+	
 	/** A selector for a configured URL from an Authentication instance.
 	 * @author gaprice@lbl.gov
 	 *
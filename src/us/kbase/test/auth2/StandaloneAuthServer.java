@@ -4,25 +4,42 @@ import org.eclipse.jetty.server.Server;
 import org.eclipse.jetty.server.ServerConnector;
 import org.eclipse.jetty.servlet.ServletContextHandler;
 import org.eclipse.jetty.servlet.ServletHolder;
+import org.eclipse.jetty.util.thread.ExecutorThreadPool;
 import org.glassfish.jersey.servlet.ServletContainer;
 
 import us.kbase.auth2.kbase.KBaseAuthConfig;
 //import us.kbase.auth2.kbase.KBaseAuthConfig;
 import us.kbase.auth2.service.AuthenticationService;
+import us.kbase.auth2.service.VirtualThreads;
 
 public class StandaloneAuthServer {
 
+	private final boolean virtualThreads;
 	private Integer port = null;
 	private Server server;
 	
 	public StandaloneAuthServer(final String configClass) throws Exception {
-		
+		this(configClass, false);
+	}
+	
+	// if virtualThreads is true, Jetty dispatches requests on virtual threads. Requires Java 21+
+	public StandaloneAuthServer(final String configClass, final boolean virtualThreads)
+			throws Exception {
 		AuthenticationService.setConfig(configClass);
+		this.virtualThreads = virtualThreads;
 	}
 	
 	// pass 0 for random port
 	public void start(final int port) throws Exception {
-		server = new Server(port);
+		if (virtualThreads) {
+			server = new Server(new ExecutorThreadPool(
+					VirtualThreads.newThreadPerTaskExecutor("jetty-")));
+			final ServerConnector connector = new ServerConnector(server);
+			connector.setPort(port);
+			server.addConnector(connector);
+		} else {
+			server = new Server(port);
+		}
 
 		final ServletContextHandler context = new ServletContextHandler();
 		context.setContextPath("/");
@@ -30,6 +47,7 @@ public class StandaloneAuthServer {
 
 		final ServletHolder jerseyServlet = context.addServlet(ServletContainer.class, "/*");
 		jerseyServlet.setInitOrder(1);
+		jerseyServlet.setAsyncSupported(true);
 		jerseyServlet.setInitParameter("javax.ws.rs.Application",
 				"us.kbase.auth2.service.AuthenticationService");
 		server.start();
@@ -65,7 +83,9 @@ public class StandaloneAuthServer {
 	
 	public static void main(String[] args) throws Exception {
 		// option 1: use a config file to start the server
-		new StandaloneAuthServer(KBaseAuthConfig.class.getName()).start(Integer.valueOf(args[0]));
+		// pass virtual as the second argument to dispatch requests on virtual threads
+		new StandaloneAuthServer(KBaseAuthConfig.class.getName(),
+				args.length > 1 && "virtual".equals(args[1])).start(Integer.valueOf(args[0]));
 		
 		// option 2: use the test configurator class
 //		TestConfigurator.setConfig("localhost:27017", "auth_test_db", "templates");
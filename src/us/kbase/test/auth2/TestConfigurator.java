@@ -14,6 +14,7 @@ import com.google.common.base.Optional;
 import us.kbase.auth2.lib.identity.IdentityProviderConfig;
 import us.kbase.auth2.service.AuthStartupConfig;
 import us.kbase.auth2.service.SLF4JAutoLogger;
+import us.kbase.auth2.service.logging.AsyncLogWriter.OverflowPolicy;
 import us.kbase.common.service.JsonServerSyslog;
 import us.kbase.common.service.JsonServerSyslog.RpcInfo;
 import us.kbase.common.service.JsonServerSyslog.SyslogOutput;
@@ -86,6 +87,16 @@ public class TestConfigurator implements AuthStartupConfig {
 		public String getCallID() {
 			return JsonServerSyslog.getCurrentRpcInfo().getId();
 		}
+
+		@Override
+		public String getMethod() {
+			return JsonServerSyslog.getCurrentRpcInfo().getMethod();
+		}
+
+		@Override
+		public String getIPAddress() {
+			return JsonServerSyslog.getCurrentRpcInfo().getIp();
+		}
 	}
 	
 	public TestConfigurator() {
@@ -138,4 +149,40 @@ public class TestConfigurator implements AuthStartupConfig {
 				System.getProperty("AUTH2_TEST_TEMPLATE_DIR") : templatesDir);
 	}
 
+	@Override
+	public Optional<Integer> getPasswordHashIterations() {
+		return Optional.absent();
+	}
+
+	@Override
+	public Optional<Integer> getPasswordHashCalibrationTargetMillis() {
+		return Optional.absent();
+	}
+
+	@Override
+	public boolean isUserAgentParserBuiltInBackground() {
+		// tests check the parsed user agent, so the parser must be ready at startup
+		return false;
+	}
+
+	@Override
+	public boolean isAsyncLoggingEnabled() {
+		return true;
+	}
+
+	@Override
+	public OverflowPolicy getAsyncLoggingOverflowPolicy() {
+		return OverflowPolicy.BLOCK;
+	}
+
+	@Override
+	public boolean isTemplateReloadEnabled() {
+		return false;
+	}
+
+	@Override
+	public boolean isVirtualThreadsEnabled() {
+		return false;
+	}
+
 }
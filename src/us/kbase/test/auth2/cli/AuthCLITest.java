@@ -8,16 +8,22 @@ import static org.mockito.Mockito.when;
 import static us.kbase.test.auth2.TestCommon.assertClear;
 
 import java.io.IOException;
+import java.io.InputStream;
 import java.io.OutputStream;
 import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.time.Instant;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.UUID;
+import java.util.zip.GZIPInputStream;
 
+import org.apache.commons.io.IOUtils;
 import org.bson.Document;
 import org.ini4j.Ini;
 import org.ini4j.Profile.Section;
@@ -29,8 +35,15 @@ import org.junit.Test;
 import us.kbase.auth2.cli.AuthCLI;
 import us.kbase.auth2.cli.AuthCLI.ConsoleWrapper;
 import us.kbase.auth2.cryptutils.PasswordCrypt;
+import us.kbase.auth2.lib.DisplayName;
 import us.kbase.auth2.lib.PasswordHashAndSalt;
 import us.kbase.auth2.lib.UserName;
+import us.kbase.auth2.lib.identity.RemoteIdentity;
+import us.kbase.auth2.lib.identity.RemoteIdentityDetails;
+import us.kbase.auth2.lib.identity.RemoteIdentityID;
+import us.kbase.auth2.lib.token.StoredToken;
+import us.kbase.auth2.lib.token.TokenType;
+import us.kbase.auth2.lib.user.NewUser;
 import us.kbase.test.auth2.MongoStorageTestManager;
 import us.kbase.test.auth2.TestCommon;
 
@@ -41,6 +54,13 @@ public class AuthCLITest {
 			"  Options:\n" +
 			"  * -d, --deploy\n" +
 			"       Path to the auth deploy.cfg file.\n" +
+			"    --export-tokens\n" +
+			"       Export all token metadata as NDJSON to the given file.\n" +
+			"    --export-users\n" +
+			"       Export all users as NDJSON to the given file.\n" +
+			"    --gzip\n" +
+			"       Gzip compress the export files.\n" +
+			"       Default: false\n" +
 			"    -h, --help\n" +
 			"       Display help.\n" +
 			"       Default: false\n" +
@@ -142,6 +162,68 @@ public class AuthCLITest {
 				pwdcopy, creds.getPasswordHash(), creds.getSalt()), is(true));
 	}
 
+	@Test
+	public void export() throws Exception {
+		/* just checks that the files are written. The detailed tests are in the export format,
+		 * writer, and storage tests.
+		 */
+		final RemoteIdentityID rid = new RemoteIdentityID("prov", "id");
+		manager.storage.createUser(NewUser.getBuilder(new UserName("foo"),
+				new DisplayName("bar"), Instant.ofEpochMilli(10000),
+				new RemoteIdentity(rid, new RemoteIdentityDetails("user", "full", "email")))
+				.build());
+		final UUID id = UUID.randomUUID();
+		manager.storage.storeToken(StoredToken.getBuilder(TokenType.LOGIN, id, new UserName("foo"))
+				.withLifeTime(Instant.ofEpochMilli(10000), Instant.ofEpochMilli(9000000000000L))
+				.build(), "somehash");
+		
+		final Path deploy = generateTempConfigFile();
+		final Path temp = TestCommon.getTempDir();
+		final Path users = Files.createTempFile(temp, "cli_test_users", ".ndjson");
+		final Path tokens = Files.createTempFile(temp, "cli_test_tokens", ".ndjson.gz");
+		users.toFile().deleteOnExit();
+		tokens.toFile().deleteOnExit();
+		
+		runCliPriorToPwdInput(new String[] {"-d", deploy.toString(),
+				"--export-users", users.toString()}, 0,
+				Arrays.asList("Exported 1 users to " + users), Collections.emptyList());
+		runCliPriorToPwdInput(new String[] {"-d", deploy.toString(),
+				"--export-tokens", tokens.toString(), "--gzip"}, 0,
+				Arrays.asList("Exported 1 tokens to " + tokens), Collections.emptyList());
+		
+		assertThat("incorrect users", Files.readAllLines(users), is(Arrays.asList(
+				"{\"user\":\"foo\",\"display\":\"bar\",\"email\":null,\"local\":false," +
+				"\"created\":10000,\"lastlogin\":null,\"disabled\":false," +
+				"\"disabledreason\":null,\"enabletoggledby\":null,\"enabletoggledate\":null," +
+				"\"roles\":[],\"customroles\":[],\"policyids\":[]," +
+				"\"idents\":[{\"id\":\"" + rid.getID() + "\",\"provider\":\"prov\"," +
+				"\"provid\":\"id\",\"provusername\":\"user\",\"provfullname\":\"full\"," +
+				"\"provemail\":\"email\"}]}",
+				"{\"exportstatus\":\"complete\",\"exportcount\":1}")));
+		
+		final List<String> tokenLines;
+		try (final InputStream is = new GZIPInputStream(Files.newInputStream(tokens))) {
+			tokenLines = Arrays.asList(
+					IOUtils.toString(is, StandardCharsets.UTF_8).split("\n"));
+		}
+		assertThat("incorrect tokens", tokenLines, is(Arrays.asList(
+				"{\"id\":\"" + id + "\",\"type\":\"Login\",\"user\":\"foo\",\"name\":null," +
+				"\"created\":10000,\"expires\":9000000000000,\"ip\":null,\"agent\":null," +
+				"\"agentver\":null,\"os\":null,\"osver\":null,\"device\":null," +
+				"\"customcontext\":{}}",
+				"{\"exportstatus\":\"complete\",\"exportcount\":1}")));
+	}
+	
+	@Test
+	public void exportFail() throws Exception {
+		final Path deploy = generateTempConfigFile();
+		final Path dir = TestCommon.getTempDir().resolve("imreallyhopingthisdirdoesntexist");
+		runCliPriorToPwdInput(new String[] {"-d", deploy.toString(),
+				"--export-users", dir.resolve("users.ndjson").toString()}, 1,
+				Collections.emptyList(),
+				Arrays.asList("Error: " + dir.resolve("users.ndjson")));
+	}
+	
 	private Path generateTempConfigFile() throws IOException {
 		final Ini ini = new Ini();
 		final Section sec = ini.add("authserv2");
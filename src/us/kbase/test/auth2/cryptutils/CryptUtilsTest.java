@@ -10,6 +10,7 @@ import java.util.List;
 import org.junit.Test;
 
 import us.kbase.auth2.cryptutils.PasswordCrypt;
+import us.kbase.test.auth2.TestCommon;
 
 public class CryptUtilsTest {
 
@@ -120,6 +121,114 @@ public class CryptUtilsTest {
 				pc.authenticate(pwd, enclong, salt), is(false));
 	}
 	
+	@Test
+	public void defaults() throws Exception {
+		final PasswordCrypt pc = new PasswordCrypt();
+		assertThat("incorrect algorithm", pc.getAlgorithm(), is("PBKDF2WithHmacSHA256"));
+		assertThat("incorrect iterations", pc.getIterations(), is(20000));
+		assertThat("incorrect current", pc.isCurrent("PBKDF2WithHmacSHA256", 20000), is(true));
+		assertThat("incorrect current", pc.isCurrent("PBKDF2WithHmacSHA256", 30000), is(false));
+		assertThat("incorrect current", pc.isCurrent("PBKDF2WithHmacSHA512", 20000), is(false));
+	}
+	
+	@Test
+	public void constructFail() throws Exception {
+		try {
+			new PasswordCrypt(9999);
+			fail("expected exception");
+		} catch (Exception got) {
+			TestCommon.assertExceptionCorrect(got,
+					new IllegalArgumentException("iterations must be at least 10000"));
+		}
+	}
+	
+	@Test
+	public void encryptAndAuthenticateWithIterations() throws Exception {
+		final PasswordCrypt pc = new PasswordCrypt(30000);
+		final char[] pwd = "foo".toCharArray();
+		final byte[] salt = bytesFromHex("4f", "56", "0a");
+		final byte[] expected = bytesFromHex("92", "DF", "3B", "9D", "EA", "6F", "DB", "50",
+				"F8", "02", "99", "C5", "FC", "78", "C3", "C7", "16", "17", "CC", "4F",
+				"78", "26", "F7", "D2", "E7", "56", "4F", "A3", "41", "91", "9D", "A1");
+		assertThat("incorrect iterations", pc.getIterations(), is(30000));
+		assertThat("incorrect current", pc.isCurrent("PBKDF2WithHmacSHA256", 30000), is(true));
+		final byte[] enc = pc.getEncryptedPassword(pwd, salt);
+		assertThat("incorrect encrpyted password", enc, is(expected));
+		assertThat("failed to authenticate", pc.authenticate(pwd, enc, salt), is(true));
+		assertThat("failed to authenticate", pc.authenticate(
+				pwd, enc, salt, "PBKDF2WithHmacSHA256", 30000), is(true));
+		assertThat("authentication succeeded when fail expected", pc.authenticate(
+				pwd, enc, salt, "PBKDF2WithHmacSHA256", 20000), is(false));
+	}
+	
+	@Test
+	public void authenticateWithOtherParams() throws Exception {
+		final PasswordCrypt pc = new PasswordCrypt();
+		final char[] pwd = "foo".toCharArray();
+		final byte[] salt = bytesFromHex("4f", "56", "0a");
+		final byte[] expected = bytesFromHex("D7", "23", "48", "CF", "8E", "60", "0D", "22",
+				"1D", "E9", "D6", "FD", "C5", "DE", "D3", "F9", "9B", "91", "9D", "F4",
+				"1E", "C5", "FA", "83", "06", "13", "92", "D7", "5D", "81", "B1", "C0");
+		final byte[] enc = pc.getEncryptedPassword(pwd, salt, "PBKDF2WithHmacSHA512", 10000);
+		assertThat("incorrect encrpyted password", enc, is(expected));
+		assertThat("failed to authenticate", pc.authenticate(
+				pwd, enc, salt, "PBKDF2WithHmacSHA512", 10000), is(true));
+		assertThat("authentication succeeded when fail expected",
+				pc.authenticate(pwd, enc, salt), is(false));
+	}
+	
+	@Test
+	public void encryptFailBadParams() throws Exception {
+		final PasswordCrypt pc = new PasswordCrypt();
+		final char[] pwd = "foo".toCharArray();
+		final byte[] salt = bytesFromHex("4f", "56", "0a");
+		failEncrypt(pc, pwd, salt, null, 10000,
+				new IllegalArgumentException("Unsupported algorithm: null"));
+		failEncrypt(pc, pwd, salt, "SHA1PRNG", 10000,
+				new IllegalArgumentException("Unsupported algorithm: SHA1PRNG"));
+		failEncrypt(pc, pwd, salt, "PBKDF2WithHmacFake", 10000,
+				new IllegalArgumentException("Unsupported algorithm: PBKDF2WithHmacFake"));
+		failEncrypt(pc, pwd, salt, "PBKDF2WithHmacSHA256", 0,
+				new IllegalArgumentException("iterations must be at least 1"));
+	}
+	
+	private void failEncrypt(
+			final PasswordCrypt pc,
+			final char[] pwd,
+			final byte[] salt,
+			final String algorithm,
+			final int iterations,
+			final Exception expected) {
+		try {
+			pc.getEncryptedPassword(pwd, salt, algorithm, iterations);
+			fail("expected exception");
+		} catch (Exception got) {
+			TestCommon.assertExceptionCorrect(got, expected);
+		}
+	}
+	
+	@Test
+	public void calibrate() throws Exception {
+		// can't test the exact result since it depends on the hardware
+		final int iterations = PasswordCrypt.calibrate(50);
+		assertThat("too few iterations", iterations >= 10000, is(true));
+		assertThat("not rounded", iterations % 1000, is(0));
+		
+		// a tiny target should always hit the minimum
+		assertThat("incorrect iterations", PasswordCrypt.calibrate(1), is(10000));
+	}
+	
+	@Test
+	public void calibrateFail() throws Exception {
+		try {
+			PasswordCrypt.calibrate(0);
+			fail("expected exception");
+		} catch (Exception got) {
+			TestCommon.assertExceptionCorrect(got,
+					new IllegalArgumentException("targetMillis must be at least 1"));
+		}
+	}
+	
 	private byte[] bytesFromHex(final String... hex) {
 		final byte[] b = new byte[hex.length];
 		for (int i = 0; i < hex.length; i++) {
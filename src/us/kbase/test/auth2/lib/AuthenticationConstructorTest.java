@@ -23,6 +23,7 @@ import org.junit.Test;
 
 import com.google.common.collect.ImmutableMap;
 
+import us.kbase.auth2.cryptutils.PasswordCrypt;
 import us.kbase.auth2.lib.Authentication;
 import us.kbase.auth2.lib.config.AuthConfig;
 import us.kbase.auth2.lib.config.AuthConfigSet;
@@ -130,6 +131,17 @@ public class AuthenticationConstructorTest {
 				new NullPointerException("defaultExternalConfig"));
 	}
 	
+	@Test
+	public void nullAuditLogger() throws Exception {
+		try {
+			new Authentication(mock(AuthStorage.class), Collections.emptySet(),
+					new TestExternalConfig<>(SET_FOO), false, new PasswordCrypt(), null);
+			fail("expected exception");
+		} catch (Exception got) {
+			TestCommon.assertExceptionCorrect(got, new NullPointerException("auditLogger"));
+		}
+	}
+	
 	private static class NullIdProv implements IdentityProvider {
 
 		private final String name;
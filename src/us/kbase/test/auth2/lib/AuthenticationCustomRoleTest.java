@@ -11,6 +11,7 @@ import static us.kbase.test.auth2.TestCommon.set;
 import static us.kbase.test.auth2.lib.AuthenticationTester.assertLogEventsCorrect;
 import static us.kbase.test.auth2.lib.AuthenticationTester.initTestMocks;
 
+import java.time.Clock;
 import java.time.Instant;
 import java.util.Arrays;
 import java.util.Collections;
@@ -24,6 +25,7 @@ import org.junit.Test;
 
 import ch.qos.logback.classic.Level;
 import ch.qos.logback.classic.spi.ILoggingEvent;
+import us.kbase.auth2.cryptutils.RandomDataGenerator;
 import us.kbase.auth2.lib.Authentication;
 import us.kbase.auth2.lib.CustomRole;
 import us.kbase.auth2.lib.DisplayName;
@@ -33,6 +35,8 @@ import us.kbase.auth2.lib.exceptions.IllegalParameterException;
 import us.kbase.auth2.lib.exceptions.MissingParameterException;
 import us.kbase.auth2.lib.exceptions.NoSuchRoleException;
 import us.kbase.auth2.lib.exceptions.NoSuchUserException;
+import us.kbase.auth2.lib.job.Job;
+import us.kbase.auth2.lib.job.JobType;
 import us.kbase.auth2.lib.storage.AuthStorage;
 import us.kbase.auth2.lib.token.IncomingToken;
 import us.kbase.auth2.lib.token.StoredToken;
@@ -139,6 +143,8 @@ public class AuthenticationCustomRoleTest {
 		final UserName adminName = new UserName("admin");
 		final TestMocks testauth = initTestMocks();
 		final AuthStorage storage = testauth.storageMock;
+		final RandomDataGenerator rand = testauth.randGenMock;
+		final Clock clock = testauth.clockMock;
 		final Authentication auth = testauth.auth;
 		
 		final IncomingToken token = new IncomingToken("foobar");
@@ -154,12 +160,20 @@ public class AuthenticationCustomRoleTest {
 		
 		when(storage.getUser(adminName)).thenReturn(u, (AuthUser) null);
 		
-		auth.deleteCustomRole(token, "someRole");
+		final UUID id = UUID.randomUUID();
+		when(rand.randomUUID()).thenReturn(id, (UUID) null);
+		when(clock.instant()).thenReturn(Instant.ofEpochMilli(30000), (Instant) null);
+		
+		final Job job = auth.deleteCustomRole(token, "someRole");
+		
+		final Job expected = Job.getBuilder(id, JobType.DELETE_CUSTOM_ROLE, adminName,
+				Instant.ofEpochMilli(30000)).withTarget("someRole").build();
+		assertThat("incorrect job", job, is(expected));
 		
 		assertLogEventsCorrect(logEvents, new LogEvent(Level.INFO,
-				"Admin admin deleted custom role someRole", Authentication.class));
+				"Admin admin deleted custom role someRole in job " + id, Authentication.class));
 		
-		verify(storage).deleteCustomRole("someRole");
+		verify(storage).createJob(expected);
 	}
 	
 	@Test
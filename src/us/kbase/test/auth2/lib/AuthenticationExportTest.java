@@ -0,0 +1,272 @@
+package us.kbase.test.auth2.lib;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import static us.kbase.test.auth2.TestCommon.set;
+import static us.kbase.test.auth2.lib.AuthenticationTester.assertLogEventsCorrect;
+import static us.kbase.test.auth2.lib.AuthenticationTester.initTestMocks;
+
+import java.io.IOException;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.UUID;
+
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import com.google.common.collect.ImmutableMap;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import us.kbase.auth2.lib.Authentication;
+import us.kbase.auth2.lib.DisplayName;
+import us.kbase.auth2.lib.Exporter;
+import us.kbase.auth2.lib.Role;
+import us.kbase.auth2.lib.UserName;
+import us.kbase.auth2.lib.audit.SLF4JAuditLogger;
+import us.kbase.auth2.lib.storage.AuthStorage;
+import us.kbase.auth2.lib.storage.exceptions.AuthStorageException;
+import us.kbase.auth2.lib.token.IncomingToken;
+import us.kbase.auth2.lib.token.StoredToken;
+import us.kbase.auth2.lib.token.TokenType;
+import us.kbase.auth2.lib.user.AuthUser;
+import us.kbase.test.auth2.TestCommon;
+import us.kbase.test.auth2.lib.AuthenticationTester.AbstractAuthOperation;
+import us.kbase.test.auth2.lib.AuthenticationTester.LogEvent;
+import us.kbase.test.auth2.lib.AuthenticationTester.TestMocks;
+
+public class AuthenticationExportTest {
+	
+	private static List<ILoggingEvent> logEvents;
+	
+	@BeforeClass
+	public static void beforeClass() {
+		logEvents = AuthenticationTester.setUpSLF4JTestLoggerAppender();
+	}
+	
+	@Before
+	public void before() {
+		logEvents.clear();
+	}
+	
+	// returns the token ID
+	private UUID setUpAdmin(
+			final AuthStorage storage,
+			final IncomingToken token,
+			final UserName adminName,
+			final Role role)
+			throws Exception {
+		final UUID id = UUID.randomUUID();
+		final StoredToken htoken = StoredToken.getBuilder(TokenType.LOGIN, id, adminName)
+				.withLifeTime(Instant.now(), Instant.now()).build();
+		
+		final AuthUser.Builder u = AuthUser.getBuilder(
+				adminName, new DisplayName("foobar"), Instant.now());
+		if (!Role.ROOT.equals(role)) {
+			u.withRole(role);
+		}
+		
+		when(storage.getToken(token.getHashedToken())).thenReturn(htoken, (StoredToken) null);
+		
+		when(storage.getUser(adminName)).thenReturn(u.build(), (AuthUser) null);
+		return id;
+	}
+	
+	@Test
+	public void export() throws Exception {
+		export(UserName.ROOT, Role.ROOT);
+		export(new UserName("admin"), Role.CREATE_ADMIN);
+		export(new UserName("admin"), Role.ADMIN);
+	}
+	
+	private void export(final UserName adminName, final Role role) throws Exception {
+		logEvents.clear();
+		final TestMocks testauth = initTestMocks();
+		final AuthStorage storage = testauth.storageMock;
+		final Authentication auth = testauth.auth;
+		
+		final IncomingToken token = new IncomingToken("foobar");
+		final UUID id = setUpAdmin(storage, token, adminName, role);
+		final AuthUser user = AuthUser.getBuilder(
+				new UserName("foo"), new DisplayName("bar"), Instant.ofEpochMilli(10000)).build();
+		final StoredToken t = StoredToken.getBuilder(
+				TokenType.DEV, UUID.randomUUID(), new UserName("foo"))
+				.withLifeTime(Instant.ofEpochMilli(10000), Instant.ofEpochMilli(20000)).build();
+		
+		doAnswer(inv -> {
+			final Exporter.Handler<AuthUser> h = inv.getArgument(0);
+			h.export(user);
+			h.export(user);
+			return null;
+		}).when(storage).exportUsers(any());
+		doAnswer(inv -> {
+			final Exporter.Handler<StoredToken> h = inv.getArgument(0);
+			h.export(t);
+			return null;
+		}).when(storage).exportTokens(any());
+		
+		final Exporter exp = auth.getExporter(token);
+		final List<AuthUser> users = new LinkedList<>();
+		final List<StoredToken> tokens = new LinkedList<>();
+		exp.exportUsers(u -> users.add(u));
+		exp.exportTokens(tk -> tokens.add(tk));
+		
+		assertThat("incorrect users", users, is(Arrays.asList(user, user)));
+		assertThat("incorrect tokens", tokens, is(Arrays.asList(t)));
+		
+		assertLogEventsCorrect(logEvents,
+				new LogEvent(Level.INFO, "Admin " + adminName.getName() + " exported 2 users",
+						Authentication.class),
+				new LogEvent(Level.INFO, "Admin " + adminName.getName() + " exported 1 tokens",
+						Authentication.class));
+		assertThat("incorrect audit fields", logEvents.get(0).getMDCPropertyMap(),
+				is(ImmutableMap.of(
+						SLF4JAuditLogger.MDC_OPERATION, "export users",
+						SLF4JAuditLogger.MDC_USER, adminName.getName(),
+						SLF4JAuditLogger.MDC_TOKEN_ID, id.toString())));
+		assertThat("incorrect audit fields", logEvents.get(1).getMDCPropertyMap(),
+				is(ImmutableMap.of(
+						SLF4JAuditLogger.MDC_OPERATION, "export tokens",
+						SLF4JAuditLogger.MDC_USER, adminName.getName(),
+						SLF4JAuditLogger.MDC_TOKEN_ID, id.toString())));
+	}
+	
+	@Test
+	public void exportNoToken() throws Exception {
+		final TestMocks testauth = initTestMocks();
+		final AuthStorage storage = testauth.storageMock;
+		final Authentication auth = testauth.auth;
+		
+		final Exporter exp = auth.getExporter();
+		final Exporter.Handler<AuthUser> uh = u -> {};
+		final Exporter.Handler<StoredToken> th = t -> {};
+		exp.exportUsers(uh);
+		exp.exportTokens(th);
+		
+		verify(storage).exportUsers(any());
+		verify(storage).exportTokens(any());
+		
+		assertLogEventsCorrect(logEvents,
+				new LogEvent(Level.INFO, "Exported 0 users", Authentication.class),
+				new LogEvent(Level.INFO, "Exported 0 tokens", Authentication.class));
+		assertThat("incorrect audit fields", logEvents.get(0).getMDCPropertyMap(),
+				is(ImmutableMap.of(SLF4JAuditLogger.MDC_OPERATION, "export users")));
+	}
+	
+	@Test
+	public void exportFail() throws Exception {
+		final TestMocks testauth = initTestMocks();
+		final AuthStorage storage = testauth.storageMock;
+		final Authentication auth = testauth.auth;
+		
+		final IncomingToken token = new IncomingToken("foobar");
+		final UUID id = setUpAdmin(storage, token, new UserName("admin"), Role.ADMIN);
+		final AuthUser user = AuthUser.getBuilder(
+				new UserName("foo"), new DisplayName("bar"), Instant.ofEpochMilli(10000)).build();
+		
+		doAnswer(inv -> {
+			final Exporter.Handler<AuthUser> h = inv.getArgument(0);
+			h.export(user);
+			throw new AuthStorageException("cursor died");
+		}).when(storage).exportUsers(any());
+		doThrow(new IOException("broken pipe")).when(storage).exportTokens(any());
+		
+		final Exporter exp = auth.getExporter(token);
+		try {
+			exp.exportUsers(u -> {});
+			fail("expected exception");
+		} catch (Exception got) {
+			TestCommon.assertExceptionCorrect(got, new AuthStorageException("cursor died"));
+		}
+		try {
+			exp.exportTokens(t -> {});
+			fail("expected exception");
+		} catch (Exception got) {
+			TestCommon.assertExceptionCorrect(got, new IOException("broken pipe"));
+		}
+		
+		assertLogEventsCorrect(logEvents,
+				new LogEvent(Level.ERROR,
+						"Admin admin failed to export users after 1 records: cursor died",
+						Authentication.class),
+				new LogEvent(Level.ERROR,
+						"Admin admin failed to export tokens after 0 records: broken pipe",
+						Authentication.class));
+		assertThat("incorrect audit fields", logEvents.get(0).getMDCPropertyMap(),
+				is(ImmutableMap.of(
+						SLF4JAuditLogger.MDC_OPERATION, "export users",
+						SLF4JAuditLogger.MDC_USER, "admin",
+						SLF4JAuditLogger.MDC_TOKEN_ID, id.toString())));
+	}
+	
+	@Test
+	public void getExporterExecuteStandardUserCheckingTests() throws Exception {
+		final IncomingToken token = new IncomingToken("foo");
+		AuthenticationTester.executeStandardUserCheckingTests(new AbstractAuthOperation() {
+			
+			@Override
+			public IncomingToken getIncomingToken() {
+				return token;
+			}
+			
+			@Override
+			public void execute(final Authentication auth) throws Exception {
+				auth.getExporter(token);
+			}
+			
+			@Override
+			public List<ILoggingEvent> getLogAccumulator() {
+				return logEvents;
+			}
+			
+			@Override
+			public String getOperationString() {
+				return "export data";
+			}
+		}, set(Role.DEV_TOKEN, Role.SERV_TOKEN));
+	}
+	
+	@Test
+	public void getExporterFailNull() throws Exception {
+		final Authentication auth = initTestMocks().auth;
+		try {
+			auth.getExporter(null);
+			fail("expected exception");
+		} catch (Exception got) {
+			TestCommon.assertExceptionCorrect(got, new NullPointerException("token"));
+		}
+	}
+	
+	@Test
+	public void exportFailNull() throws Exception {
+		final TestMocks testauth = initTestMocks();
+		final AuthStorage storage = testauth.storageMock;
+		final Exporter exp = testauth.auth.getExporter();
+		try {
+			exp.exportUsers(null);
+			fail("expected exception");
+		} catch (Exception got) {
+			TestCommon.assertExceptionCorrect(got, new NullPointerException("handler"));
+		}
+		try {
+			exp.exportTokens(null);
+			fail("expected exception");
+		} catch (Exception got) {
+			TestCommon.assertExceptionCorrect(got, new NullPointerException("handler"));
+		}
+		verify(storage, never()).exportUsers(any());
+		verify(storage, never()).exportTokens(any());
+		assertLogEventsCorrect(logEvents);
+	}
+}
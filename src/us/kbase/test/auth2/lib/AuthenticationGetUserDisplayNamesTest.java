@@ -40,6 +40,7 @@ import us.kbase.auth2.lib.exceptions.UnauthorizedException;
 import us.kbase.auth2.lib.storage.AuthStorage;
 import us.kbase.auth2.lib.token.IncomingToken;
 import us.kbase.auth2.lib.token.StoredToken;
+import us.kbase.auth2.lib.token.TokenBoundResult;
 import us.kbase.auth2.lib.token.TokenType;
 import us.kbase.auth2.lib.user.AuthUser;
 import us.kbase.test.auth2.TestCommon;
@@ -106,6 +107,53 @@ public class AuthenticationGetUserDisplayNamesTest {
 		assertThat("incorrect display names", disp, is(new HashMap<>()));
 	}
 	
+	@Test
+	public void getDisplayNamesSetWithTokenExpiry() throws Exception {
+		final TestMocks testauth = initTestMocks();
+		final AuthStorage storage = testauth.storageMock;
+		final Authentication auth = testauth.auth;
+		
+		final IncomingToken token = new IncomingToken("foobar");
+		
+		final Map<UserName, DisplayName> expected = new HashMap<>();
+		expected.put(new UserName("bar"), new DisplayName("dbar"));
+
+		when(storage.getToken(token.getHashedToken())).thenReturn(
+				StoredToken.getBuilder(TokenType.LOGIN, UUID.randomUUID(), new UserName("foo"))
+						.withLifeTime(Instant.ofEpochMilli(10000), Instant.ofEpochMilli(30000))
+						.build());
+		
+		when(storage.getUserDisplayNames(set(new UserName("bar")))).thenReturn(expected);
+		
+		final TokenBoundResult<Map<UserName, DisplayName>> disp =
+				auth.getUserDisplayNamesWithTokenExpiry(token, set(new UserName("bar")));
+		
+		assertThat("incorrect display names", disp.getResult(), is(expected));
+		assertThat("incorrect expiry", disp.getTokenExpirationDate(),
+				is(Instant.ofEpochMilli(30000)));
+	}
+	
+	@Test
+	public void getDisplayNamesEmptySetWithTokenExpiry() throws Exception {
+		final TestMocks testauth = initTestMocks();
+		final AuthStorage storage = testauth.storageMock;
+		final Authentication auth = testauth.auth;
+		
+		final IncomingToken token = new IncomingToken("foobar");
+		
+		when(storage.getToken(token.getHashedToken())).thenReturn(
+				StoredToken.getBuilder(TokenType.LOGIN, UUID.randomUUID(), new UserName("foo"))
+						.withLifeTime(Instant.ofEpochMilli(10000), Instant.ofEpochMilli(30000))
+						.build());
+		
+		final TokenBoundResult<Map<UserName, DisplayName>> disp =
+				auth.getUserDisplayNamesWithTokenExpiry(token, Collections.emptySet());
+		
+		assertThat("incorrect display names", disp.getResult(), is(new HashMap<>()));
+		assertThat("incorrect expiry", disp.getTokenExpirationDate(),
+				is(Instant.ofEpochMilli(30000)));
+	}
+	
 	@Test
 	public void getDisplayNamesSetFailNulls() throws Exception {
 		final Authentication auth = initTestMocks().auth;
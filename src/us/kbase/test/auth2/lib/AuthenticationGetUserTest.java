@@ -31,6 +31,7 @@ import us.kbase.auth2.lib.exceptions.NoSuchUserException;
 import us.kbase.auth2.lib.storage.AuthStorage;
 import us.kbase.auth2.lib.token.IncomingToken;
 import us.kbase.auth2.lib.token.StoredToken;
+import us.kbase.auth2.lib.token.TokenBoundResult;
 import us.kbase.auth2.lib.token.TokenType;
 import us.kbase.auth2.lib.user.AuthUser;
 import us.kbase.test.auth2.TestCommon;
@@ -95,6 +96,33 @@ public class AuthenticationGetUserTest {
 		}, set(), set());
 	}
 	
+	@Test
+	public void getUserWithTokenExpiry() throws Exception {
+		final TestMocks testauth = initTestMocks();
+		final AuthStorage storage = testauth.storageMock;
+		final Authentication auth = testauth.auth;
+		
+		final IncomingToken token = new IncomingToken("foobar");
+		final AuthUser user = AuthUser.getBuilder(
+				new UserName("whee"), new DisplayName("foo"), Instant.now()).build();
+
+		when(storage.getToken(token.getHashedToken())).thenReturn(
+				StoredToken.getBuilder(TokenType.AGENT, UUID.randomUUID(), user.getUserName())
+						.withLifeTime(Instant.ofEpochMilli(10000), Instant.ofEpochMilli(30000))
+						.build());
+		
+		when(storage.getUser(user.getUserName())).thenReturn(user);
+		
+		final TokenBoundResult<AuthUser> got = auth.getUserWithTokenExpiry(token);
+		
+		assertLogEventsCorrect(logEvents, new LogEvent(Level.INFO,
+				"User whee accessed their user data", Authentication.class));
+		
+		assertThat("incorrect user", got.getResult(), is(user));
+		assertThat("incorrect expiry", got.getTokenExpirationDate(),
+				is(Instant.ofEpochMilli(30000)));
+	}
+	
 	private void getUser(final AuthUser user) throws Exception {
 		final TestMocks testauth = initTestMocks();
 		final AuthStorage storage = testauth.storageMock;
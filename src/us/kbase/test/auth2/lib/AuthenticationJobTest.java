@@ -0,0 +1,300 @@
+package us.kbase.test.auth2.lib;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import static us.kbase.test.auth2.TestCommon.set;
+import static us.kbase.test.auth2.lib.AuthenticationTester.assertLogEventsCorrect;
+import static us.kbase.test.auth2.lib.AuthenticationTester.initTestMocks;
+
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.List;
+import java.util.UUID;
+
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import us.kbase.auth2.lib.Authentication;
+import us.kbase.auth2.lib.DisplayName;
+import us.kbase.auth2.lib.Role;
+import us.kbase.auth2.lib.UserName;
+import us.kbase.auth2.lib.exceptions.NoSuchJobException;
+import us.kbase.auth2.lib.job.Job;
+import us.kbase.auth2.lib.job.JobState;
+import us.kbase.auth2.lib.job.JobType;
+import us.kbase.auth2.lib.storage.AuthStorage;
+import us.kbase.auth2.lib.token.IncomingToken;
+import us.kbase.auth2.lib.token.StoredToken;
+import us.kbase.auth2.lib.token.TokenType;
+import us.kbase.auth2.lib.user.AuthUser;
+import us.kbase.test.auth2.TestCommon;
+import us.kbase.test.auth2.lib.AuthenticationTester.AbstractAuthOperation;
+import us.kbase.test.auth2.lib.AuthenticationTester.LogEvent;
+import us.kbase.test.auth2.lib.AuthenticationTester.TestMocks;
+
+public class AuthenticationJobTest {
+	
+	private static final UUID ID = UUID.randomUUID();
+	
+	private static List<ILoggingEvent> logEvents;
+	
+	@BeforeClass
+	public static void beforeClass() {
+		logEvents = AuthenticationTester.setUpSLF4JTestLoggerAppender();
+	}
+	
+	@Before
+	public void before() {
+		logEvents.clear();
+	}
+	
+	private static Job.Builder job(final UUID id, final JobState state) throws Exception {
+		return Job.getBuilder(id, JobType.REVOKE_ALL_TOKENS, new UserName("admin"),
+				Instant.ofEpochMilli(10000))
+				.withState(state, Instant.ofEpochMilli(20000));
+	}
+	
+	private void setUpAdmin(
+			final AuthStorage storage,
+			final IncomingToken token,
+			final UserName adminName,
+			final Role role)
+			throws Exception {
+		final StoredToken htoken = StoredToken.getBuilder(
+				TokenType.LOGIN, UUID.randomUUID(), adminName)
+				.withLifeTime(Instant.now(), Instant.now()).build();
+		
+		final AuthUser.Builder u = AuthUser.getBuilder(
+				adminName, new DisplayName("foobar"), Instant.now());
+		if (!Role.ROOT.equals(role)) {
+			u.withRole(role);
+		}
+		
+		when(storage.getToken(token.getHashedToken())).thenReturn(htoken, (StoredToken) null);
+		
+		when(storage.getUser(adminName)).thenReturn(u.build(), (AuthUser) null);
+	}
+	
+	@Test
+	public void getJob() throws Exception {
+		getJob(UserName.ROOT, Role.ROOT);
+		getJob(new UserName("admin"), Role.CREATE_ADMIN);
+		getJob(new UserName("admin"), Role.ADMIN);
+	}
+	
+	private void getJob(final UserName adminName, final Role role) throws Exception {
+		final TestMocks testauth = initTestMocks();
+		final AuthStorage storage = testauth.storageMock;
+		final Authentication auth = testauth.auth;
+		
+		final IncomingToken token = new IncomingToken("foobar");
+		setUpAdmin(storage, token, adminName, role);
+		
+		when(storage.getJob(ID)).thenReturn(job(ID, JobState.RUNNING).build());
+		
+		assertThat("incorrect job", auth.getJob(token, ID),
+				is(job(ID, JobState.RUNNING).build()));
+	}
+	
+	@Test
+	public void getJobExecuteStandardUserCheckingTests() throws Exception {
+		final IncomingToken token = new IncomingToken("foo");
+		AuthenticationTester.executeStandardUserCheckingTests(new AbstractAuthOperation() {
+			
+			@Override
+			public IncomingToken getIncomingToken() {
+				return token;
+			}
+			
+			@Override
+			public void execute(final Authentication auth) throws Exception {
+				auth.getJob(token, ID);
+			}
+			
+			@Override
+			public List<ILoggingEvent> getLogAccumulator() {
+				return logEvents;
+			}
+			
+			@Override
+			public String getOperationString() {
+				return "get job " + ID;
+			}
+		}, set(Role.DEV_TOKEN, Role.SERV_TOKEN));
+	}
+	
+	@Test
+	public void getJobFail() throws Exception {
+		final TestMocks testauth = initTestMocks();
+		final AuthStorage storage = testauth.storageMock;
+		final Authentication auth = testauth.auth;
+		
+		failGetJob(auth, null, ID, new NullPointerException("token"));
+		failGetJob(auth, new IncomingToken("foo"), null, new NullPointerException("id"));
+		
+		final IncomingToken token = new IncomingToken("foobar");
+		setUpAdmin(storage, token, new UserName("admin"), Role.ADMIN);
+		when(storage.getJob(ID)).thenThrow(new NoSuchJobException(ID.toString()));
+		
+		failGetJob(auth, token, ID, new NoSuchJobException(ID.toString()));
+	}
+	
+	private void failGetJob(
+			final Authentication auth,
+			final IncomingToken token,
+			final UUID id,
+			final Exception expected) {
+		try {
+			auth.getJob(token, id);
+			fail("expected exception");
+		} catch (Exception got) {
+			TestCommon.assertExceptionCorrect(got, expected);
+		}
+	}
+	
+	@Test
+	public void getJobs() throws Exception {
+		final TestMocks testauth = initTestMocks();
+		final AuthStorage storage = testauth.storageMock;
+		final Authentication auth = testauth.auth;
+		
+		final IncomingToken token = new IncomingToken("foobar");
+		setUpAdmin(storage, token, new UserName("admin"), Role.CREATE_ADMIN);
+		
+		final UUID id2 = UUID.randomUUID();
+		when(storage.getJobs(100)).thenReturn(Arrays.asList(
+				job(ID, JobState.RUNNING).build(), job(id2, JobState.COMPLETE).build()));
+		
+		assertThat("incorrect jobs", auth.getJobs(token), is(Arrays.asList(
+				job(ID, JobState.RUNNING).build(), job(id2, JobState.COMPLETE).build())));
+	}
+	
+	@Test
+	public void getJobsExecuteStandardUserCheckingTests() throws Exception {
+		final IncomingToken token = new IncomingToken("foo");
+		AuthenticationTester.executeStandardUserCheckingTests(new AbstractAuthOperation() {
+			
+			@Override
+			public IncomingToken getIncomingToken() {
+				return token;
+			}
+			
+			@Override
+			public void execute(final Authentication auth) throws Exception {
+				auth.getJobs(token);
+			}
+			
+			@Override
+			public List<ILoggingEvent> getLogAccumulator() {
+				return logEvents;
+			}
+			
+			@Override
+			public String getOperationString() {
+				return "get jobs";
+			}
+		}, set(Role.DEV_TOKEN, Role.SERV_TOKEN));
+	}
+	
+	@Test
+	public void cancelJob() throws Exception {
+		final TestMocks testauth = initTestMocks();
+		final AuthStorage storage = testauth.storageMock;
+		final Authentication auth = testauth.auth;
+		
+		final IncomingToken token = new IncomingToken("foobar");
+		setUpAdmin(storage, token, new UserName("admin"), Role.ADMIN);
+		
+		when(storage.cancelJob(ID)).thenReturn(true);
+		when(storage.getJob(ID)).thenReturn(job(ID, JobState.CANCELED).build());
+		
+		assertThat("incorrect job", auth.cancelJob(token, ID),
+				is(job(ID, JobState.CANCELED).build()));
+		
+		verify(storage).cancelJob(ID);
+		
+		assertLogEventsCorrect(logEvents, new LogEvent(Level.INFO,
+				"Admin admin canceled job " + ID, Authentication.class));
+	}
+	
+	@Test
+	public void cancelFinishedJob() throws Exception {
+		final TestMocks testauth = initTestMocks();
+		final AuthStorage storage = testauth.storageMock;
+		final Authentication auth = testauth.auth;
+		
+		final IncomingToken token = new IncomingToken("foobar");
+		setUpAdmin(storage, token, new UserName("admin"), Role.ADMIN);
+		
+		when(storage.cancelJob(ID)).thenReturn(false);
+		when(storage.getJob(ID)).thenReturn(job(ID, JobState.COMPLETE).build());
+		
+		assertThat("incorrect job", auth.cancelJob(token, ID),
+				is(job(ID, JobState.COMPLETE).build()));
+		
+		assertLogEventsCorrect(logEvents);
+	}
+	
+	@Test
+	public void cancelJobExecuteStandardUserCheckingTests() throws Exception {
+		final IncomingToken token = new IncomingToken("foo");
+		AuthenticationTester.executeStandardUserCheckingTests(new AbstractAuthOperation() {
+			
+			@Override
+			public IncomingToken getIncomingToken() {
+				return token;
+			}
+			
+			@Override
+			public void execute(final Authentication auth) throws Exception {
+				auth.cancelJob(token, ID);
+			}
+			
+			@Override
+			public List<ILoggingEvent> getLogAccumulator() {
+				return logEvents;
+			}
+			
+			@Override
+			public String getOperationString() {
+				return "cancel job " + ID;
+			}
+		}, set(Role.DEV_TOKEN, Role.SERV_TOKEN));
+	}
+	
+	@Test
+	public void cancelJobFail() throws Exception {
+		final TestMocks testauth = initTestMocks();
+		final AuthStorage storage = testauth.storageMock;
+		final Authentication auth = testauth.auth;
+		
+		failCancelJob(auth, null, ID, new NullPointerException("token"));
+		failCancelJob(auth, new IncomingToken("foo"), null, new NullPointerException("id"));
+		
+		final IncomingToken token = new IncomingToken("foobar");
+		setUpAdmin(storage, token, new UserName("admin"), Role.ADMIN);
+		when(storage.cancelJob(ID)).thenThrow(new NoSuchJobException(ID.toString()));
+		
+		failCancelJob(auth, token, ID, new NoSuchJobException(ID.toString()));
+	}
+	
+	private void failCancelJob(
+			final Authentication auth,
+			final IncomingToken token,
+			final UUID id,
+			final Exception expected) {
+		try {
+			auth.cancelJob(token, id);
+			fail("expected exception");
+		} catch (Exception got) {
+			TestCommon.assertExceptionCorrect(got, expected);
+		}
+	}
+}
@@ -21,6 +21,7 @@ import java.time.Instant;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.LinkedList;
 import java.util.List;
 import java.util.Set;
 import java.util.UUID;
@@ -58,6 +59,8 @@ import us.kbase.auth2.lib.exceptions.UnauthorizedException;
 import us.kbase.auth2.lib.identity.RemoteIdentity;
 import us.kbase.auth2.lib.identity.RemoteIdentityDetails;
 import us.kbase.auth2.lib.identity.RemoteIdentityID;
+import us.kbase.auth2.lib.job.Job;
+import us.kbase.auth2.lib.job.JobType;
 import us.kbase.auth2.lib.storage.AuthStorage;
 import us.kbase.auth2.lib.storage.exceptions.AuthStorageException;
 import us.kbase.auth2.lib.token.IncomingToken;
@@ -103,8 +106,23 @@ public class AuthenticationPasswordLoginTest {
 	public void loginAdmin() throws Exception {
 		login(false, set(Role.ADMIN));
 	}
-
+	
+	@Test
+	public void loginResetAtPasswordResetCutoff() throws Exception {
+		login(true, Collections.emptySet(), Optional.of(Instant.ofEpochMilli(3000)),
+				Optional.of(Instant.ofEpochMilli(3000)));
+	}
+	
 	private void login(final boolean loginAllowed, final Set<Role> roles) throws Exception {
+		login(loginAllowed, roles, Optional.absent(), Optional.absent());
+	}
+
+	private void login(
+			final boolean loginAllowed,
+			final Set<Role> roles,
+			final Optional<Instant> lastReset,
+			final Optional<Instant> resetCutoff)
+			throws Exception {
 		final TestMocks testauth = initTestMocks();
 		final AuthStorage storage = testauth.storageMock;
 		final Authentication auth = testauth.auth;
@@ -132,12 +150,17 @@ public class AuthenticationPasswordLoginTest {
 		for (final Role r: roles) {
 			b.withRole(r);
 		}
+		if (lastReset.isPresent()) {
+			b.withLastReset(lastReset.get());
+		}
 		
 		when(storage.getPasswordHashAndSalt(new UserName("foo"))).thenReturn(
 				new PasswordHashAndSalt(hash, salt));
 		
 		when(storage.getLocalUser(new UserName("foo"))).thenReturn(b.build());
 		
+		when(storage.getPasswordResetCutoff()).thenReturn(resetCutoff);
+		
 		when(storage.getConfig(isA(CollectingExternalConfigMapper.class))).thenReturn(
 				new AuthConfigSet<>(new AuthConfig(loginAllowed, null, null),
 						new CollectingExternalConfig(new HashMap<>())));
@@ -175,6 +198,33 @@ public class AuthenticationPasswordLoginTest {
 	
 	@Test
 	public void loginResetRequired() throws Exception {
+		loginResetRequired(LocalUser.getLocalUserBuilder(
+				new UserName("foo"), new DisplayName("bar"), Instant.now())
+				.withEmailAddress(new EmailAddress("f@g.com"))
+				.withForceReset(true).build(),
+				Optional.absent());
+	}
+	
+	@Test
+	public void loginResetRequiredByCutoffNeverReset() throws Exception {
+		// the background job forcing all users to reset their password hasn't reached the user
+		loginResetRequired(LocalUser.getLocalUserBuilder(
+				new UserName("foo"), new DisplayName("bar"), Instant.now())
+				.withEmailAddress(new EmailAddress("f@g.com")).build(),
+				Optional.of(Instant.ofEpochMilli(3000)));
+	}
+	
+	@Test
+	public void loginResetRequiredByCutoffResetBeforeCutoff() throws Exception {
+		loginResetRequired(LocalUser.getLocalUserBuilder(
+				new UserName("foo"), new DisplayName("bar"), Instant.now())
+				.withEmailAddress(new EmailAddress("f@g.com"))
+				.withLastReset(Instant.ofEpochMilli(2999)).build(),
+				Optional.of(Instant.ofEpochMilli(3000)));
+	}
+	
+	private void loginResetRequired(final LocalUser user, final Optional<Instant> resetCutoff)
+			throws Exception {
 		final TestMocks testauth = initTestMocks();
 		final AuthStorage storage = testauth.storageMock;
 		final Authentication auth = testauth.auth;
@@ -186,15 +236,12 @@ public class AuthenticationPasswordLoginTest {
 		final byte[] hash = AuthenticationTester.fromBase64(
 				"M0D2KmSM5CoOHojYgbbKQy1UrkLskxrQnWxcaRf3/hs=");
 		
-		final LocalUser exp = LocalUser.getLocalUserBuilder(
-				new UserName("foo"), new DisplayName("bar"), Instant.now())
-				.withEmailAddress(new EmailAddress("f@g.com"))
-				.withForceReset(true).build();
-		
 		when(storage.getPasswordHashAndSalt(new UserName("foo"))).thenReturn(
 				new PasswordHashAndSalt(hash, salt));
 		
-		when(storage.getLocalUser(new UserName("foo"))).thenReturn(exp);
+		when(storage.getLocalUser(new UserName("foo"))).thenReturn(user);
+		
+		when(storage.getPasswordResetCutoff()).thenReturn(resetCutoff);
 		
 		when(storage.getConfig(isA(CollectingExternalConfigMapper.class))).thenReturn(
 				new AuthConfigSet<>(new AuthConfig(true, null, null),
@@ -215,6 +262,78 @@ public class AuthenticationPasswordLoginTest {
 				Authentication.class));
 	}
 	
+	@Test
+	public void loginUpgradesPasswordHash() throws Exception {
+		final TestMocks testauth = initTestMocks();
+		final AuthStorage storage = testauth.storageMock;
+		final Authentication auth = testauth.auth;
+		final RandomDataGenerator rand = testauth.randGenMock;
+		
+		AuthenticationTester.setConfigUpdateInterval(auth, 0);
+		
+		final Password p = new Password("foobarbazbat".toCharArray());
+		final byte[] salt = new byte[] {1, 2, 3, 4, 5, 6, 7, 8};
+		final byte[] hash = AuthenticationTester.fromBase64(
+				"NAH0Y/CJQF53bb4bQOobQCoQDvyffm9UwZ4Y9RQGzzs=");
+		final byte[] saltnew = new byte[] {1, 1, 3, 4, 5, 6, 7, 8};
+		final byte[] hashnew = AuthenticationTester.fromBase64(
+				"XJYSa8F/qz6hMiDdiNjTktXGYcT9QmWercVknVX+tFo=");
+		
+		final LocalUser exp = LocalUser.getLocalUserBuilder(
+				new UserName("foo"), new DisplayName("bar"), Instant.now())
+				.withEmailAddress(new EmailAddress("f@g.com"))
+				.withForceReset(true).build();
+		
+		when(storage.getPasswordHashAndSalt(new UserName("foo"))).thenReturn(
+				new PasswordHashAndSalt(hash, salt, "PBKDF2WithHmacSHA256", 10000));
+		
+		when(storage.getLocalUser(new UserName("foo"))).thenReturn(exp);
+		
+		when(storage.getConfig(isA(CollectingExternalConfigMapper.class))).thenReturn(
+				new AuthConfigSet<>(new AuthConfig(true, null, null),
+						new CollectingExternalConfig(new HashMap<>())));
+		
+		when(rand.generateSalt()).thenReturn(saltnew);
+		
+		final List<Object> saved = new LinkedList<>();
+		// need to check at call time before bytes are cleared
+		doAnswer(inv -> {
+			final PasswordHashAndSalt old = inv.getArgument(1);
+			final PasswordHashAndSalt creds = inv.getArgument(2);
+			saved.add(creds.getPasswordHash());
+			saved.add(creds.getSalt());
+			assertThat("incorrect old hash", old.getPasswordHash(), is(AuthenticationTester
+					.fromBase64("NAH0Y/CJQF53bb4bQOobQCoQDvyffm9UwZ4Y9RQGzzs=")));
+			assertThat("incorrect hash", creds.getPasswordHash(), is(hashnew));
+			assertThat("incorrect salt", creds.getSalt(), is(saltnew));
+			assertThat("incorrect alg", creds.getAlgorithm(), is("PBKDF2WithHmacSHA256"));
+			assertThat("incorrect iterations", creds.getIterations(), is(20000));
+			return null;
+		}).when(storage).updatePasswordHash(eq(new UserName("foo")),
+				any(PasswordHashAndSalt.class), any(PasswordHashAndSalt.class));
+		
+		final LocalLoginResult t = auth.localLogin(new UserName("foo"), p,
+				TokenCreationContext.getBuilder().withNullableDevice("device").build());
+		
+		verify(storage).updatePasswordHash(eq(new UserName("foo")),
+				any(PasswordHashAndSalt.class), any(PasswordHashAndSalt.class));
+		
+		assertClear(p);
+		assertClear(hash);
+		assertClear(salt);
+		assertClear((byte[]) saved.get(0));
+		assertClear((byte[]) saved.get(1));
+		assertThat("incorrect pwd required", t.isPwdResetRequired(), is(true));
+		
+		assertLogEventsCorrect(logEvents,
+				new LogEvent(Level.INFO, "Upgraded password hash for local user foo from " +
+						"PBKDF2WithHmacSHA256 with 10000 iterations to PBKDF2WithHmacSHA256 " +
+						"with 20000 iterations", Authentication.class),
+				new LogEvent(Level.INFO,
+						"Local user foo log in attempt. Password reset is required",
+						Authentication.class));
+	}
+	
 	@Test
 	public void loginNulls() throws Exception {
 		final TestMocks testauth = initTestMocks();
@@ -1505,6 +1624,8 @@ public class AuthenticationPasswordLoginTest {
 	private void forceResetAllPasswords(final AuthUser admin) throws Exception {
 		final TestMocks testauth = initTestMocks();
 		final AuthStorage storage = testauth.storageMock;
+		final RandomDataGenerator rand = testauth.randGenMock;
+		final Clock clock = testauth.clockMock;
 		final Authentication auth = testauth.auth;
 		
 		final IncomingToken t = new IncomingToken("foobarbaz");
@@ -1515,12 +1636,22 @@ public class AuthenticationPasswordLoginTest {
 		when(storage.getToken(t.getHashedToken())).thenReturn(token, (StoredToken) null);
 		
 		when(storage.getUser(admin.getUserName())).thenReturn(admin, (AuthUser) null);
+		
+		final UUID id = UUID.randomUUID();
+		when(rand.randomUUID()).thenReturn(id, (UUID) null);
+		when(clock.instant()).thenReturn(Instant.ofEpochMilli(10000), (Instant) null);
+		
 		try {
-			auth.forceResetAllPasswords(t);
-			verify(storage).forcePasswordReset();
+			final Job job = auth.forceResetAllPasswords(t);
+			
+			final Job expected = Job.getBuilder(id, JobType.FORCE_PASSWORD_RESET,
+					admin.getUserName(), Instant.ofEpochMilli(10000)).build();
+			assertThat("incorrect job", job, is(expected));
+			verify(storage).setPasswordResetCutoff(Instant.ofEpochMilli(10000));
+			verify(storage).createJob(expected);
 			assertLogEventsCorrect(logEvents, new LogEvent(Level.INFO, String.format(
-					"Admin %s required all users to reset their password on the next login",
-					admin.getUserName().getName()), Authentication.class));
+					"Admin %s required all users to reset their password on the next login " +
+					"in job %s", admin.getUserName().getName(), id), Authentication.class));
 		} catch (Throwable th) {
 			if (admin.isDisabled()) {
 				verify(storage).deleteTokens(admin.getUserName());
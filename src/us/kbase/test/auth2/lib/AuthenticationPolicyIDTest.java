@@ -1,5 +1,7 @@
 package us.kbase.test.auth2.lib;
 
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
 import static org.junit.Assert.fail;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
@@ -7,6 +9,7 @@ import static us.kbase.test.auth2.TestCommon.set;
 import static us.kbase.test.auth2.lib.AuthenticationTester.assertLogEventsCorrect;
 import static us.kbase.test.auth2.lib.AuthenticationTester.initTestMocks;
 
+import java.time.Clock;
 import java.time.Instant;
 import java.util.List;
 import java.util.UUID;
@@ -17,11 +20,14 @@ import org.junit.Test;
 
 import ch.qos.logback.classic.Level;
 import ch.qos.logback.classic.spi.ILoggingEvent;
+import us.kbase.auth2.cryptutils.RandomDataGenerator;
 import us.kbase.auth2.lib.Authentication;
 import us.kbase.auth2.lib.DisplayName;
 import us.kbase.auth2.lib.PolicyID;
 import us.kbase.auth2.lib.Role;
 import us.kbase.auth2.lib.UserName;
+import us.kbase.auth2.lib.job.Job;
+import us.kbase.auth2.lib.job.JobType;
 import us.kbase.auth2.lib.storage.AuthStorage;
 import us.kbase.auth2.lib.token.IncomingToken;
 import us.kbase.auth2.lib.token.StoredToken;
@@ -56,6 +62,8 @@ public class AuthenticationPolicyIDTest {
 		final UserName adminName = new UserName("addy");
 		final TestMocks testauth = initTestMocks();
 		final AuthStorage storage = testauth.storageMock;
+		final RandomDataGenerator rand = testauth.randGenMock;
+		final Clock clock = testauth.clockMock;
 		final Authentication auth = testauth.auth;
 		
 		final IncomingToken token = new IncomingToken("foobar");
@@ -71,12 +79,21 @@ public class AuthenticationPolicyIDTest {
 		
 		when(storage.getUser(adminName)).thenReturn(u, (AuthUser) null);
 		
-		auth.removePolicyID(token, new PolicyID("foo"));
+		final UUID id = UUID.randomUUID();
+		when(rand.randomUUID()).thenReturn(id, (UUID) null);
+		when(clock.instant()).thenReturn(Instant.ofEpochMilli(40000), (Instant) null);
 		
-		verify(storage).removePolicyID(new PolicyID("foo"));
+		final Job job = auth.removePolicyID(token, new PolicyID("foo"));
+		
+		final Job expected = Job.getBuilder(id, JobType.REMOVE_POLICY_ID, adminName,
+				Instant.ofEpochMilli(40000)).withTarget("foo").build();
+		assertThat("incorrect job", job, is(expected));
+		
+		verify(storage).createJob(expected);
 		
 		assertLogEventsCorrect(logEvents, new LogEvent(Level.INFO,
-				"Admin addy removed policy ID foo from the system", Authentication.class));
+				"Admin addy removed policy ID foo from the system in job " + id,
+				Authentication.class));
 	}
 	
 	@Test
@@ -1,7 +1,10 @@
 package us.kbase.test.auth2.lib;
 
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
 import static org.junit.Assert.fail;
 import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
@@ -12,7 +15,9 @@ import static us.kbase.test.auth2.lib.AuthenticationTester.initTestMocks;
 import java.time.Instant;
 import java.util.Arrays;
 import java.util.Collections;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 import java.util.UUID;
 
@@ -20,6 +25,8 @@ import org.junit.Before;
 import org.junit.BeforeClass;
 import org.junit.Test;
 
+import com.google.common.base.Optional;
+
 import ch.qos.logback.classic.Level;
 import ch.qos.logback.classic.spi.ILoggingEvent;
 import us.kbase.auth2.lib.Authentication;
@@ -27,9 +34,11 @@ import us.kbase.auth2.lib.DisplayName;
 import us.kbase.auth2.lib.Role;
 import us.kbase.auth2.lib.UserDisabledState;
 import us.kbase.auth2.lib.UserName;
+import us.kbase.auth2.lib.exceptions.AuthException;
 import us.kbase.auth2.lib.exceptions.DisabledUserException;
 import us.kbase.auth2.lib.exceptions.ErrorType;
 import us.kbase.auth2.lib.exceptions.IllegalParameterException;
+import us.kbase.auth2.lib.exceptions.NoSuchRoleException;
 import us.kbase.auth2.lib.exceptions.NoSuchUserException;
 import us.kbase.auth2.lib.exceptions.UnauthorizedException;
 import us.kbase.auth2.lib.storage.AuthStorage;
@@ -515,4 +524,262 @@ public class AuthenticationRoleTest {
 			TestCommon.assertExceptionCorrect(got, e);
 		}
 	}
+
+	@Test
+	public void updateRolesBulkSuccess() throws Exception {
+		final TestMocks testauth = initTestMocks();
+		final AuthStorage storage = testauth.storageMock;
+		final Authentication auth = testauth.auth;
+		
+		final IncomingToken token = new IncomingToken("foobarbaz");
+		final StoredToken htoken = StoredToken.getBuilder(
+				TokenType.LOGIN, UUID.randomUUID(), new UserName("admin"))
+				.withLifeTime(Instant.now(), Instant.now()).build();
+		
+		final AuthUser u = AuthUser.getBuilder(
+				new UserName("admin"), new DisplayName("foobar"), Instant.now())
+				.withRole(Role.ADMIN).build();
+		
+		when(storage.getToken(token.getHashedToken())).thenReturn(htoken, (StoredToken) null);
+		
+		when(storage.getUser(new UserName("admin"))).thenReturn(u, (AuthUser) null);
+		
+		when(storage.updateRoles(set(new UserName("foo"), new UserName("bar")),
+				set(Role.DEV_TOKEN), set(Role.SERV_TOKEN), set("a"), set("b", "c")))
+				.thenReturn(set(new UserName("bar")));
+		
+		final Map<UserName, Optional<AuthException>> res = auth.updateRoles(token,
+				set(new UserName("foo"), new UserName("bar"), UserName.ROOT),
+				set(Role.DEV_TOKEN), set(Role.SERV_TOKEN), set("a"), set("b", "c"));
+		
+		assertThat("incorrect users", res.keySet(),
+				is(set(new UserName("foo"), new UserName("bar"), UserName.ROOT)));
+		assertThat("incorrect result", res.get(new UserName("foo")), is(Optional.absent()));
+		TestCommon.assertExceptionCorrect(res.get(new UserName("bar")).get(),
+				new NoSuchUserException("bar"));
+		TestCommon.assertExceptionCorrect(res.get(UserName.ROOT).get(),
+				new UnauthorizedException(ErrorType.UNAUTHORIZED, "Cannot change ROOT roles"));
+		
+		assertLogEventsCorrect(logEvents,
+				new LogEvent(Level.INFO, "User admin added roles to user foo: DevToken",
+						Authentication.class),
+				new LogEvent(Level.INFO, "User admin removed roles from user foo: ServToken",
+						Authentication.class),
+				new LogEvent(Level.INFO, "Admin admin added custom roles to user foo: a",
+						Authentication.class),
+				new LogEvent(Level.INFO, "Admin admin removed custom roles from user foo: b, c",
+						Authentication.class));
+	}
+	
+	@Test
+	public void updateRolesBulkSelfRemove() throws Exception {
+		final TestMocks testauth = initTestMocks();
+		final AuthStorage storage = testauth.storageMock;
+		final Authentication auth = testauth.auth;
+		
+		final IncomingToken token = new IncomingToken("foobarbaz");
+		final StoredToken htoken = StoredToken.getBuilder(
+				TokenType.LOGIN, UUID.randomUUID(), new UserName("whee"))
+				.withLifeTime(Instant.now(), Instant.now()).build();
+		
+		final AuthUser u = AuthUser.getBuilder(
+				new UserName("whee"), new DisplayName("foobar"), Instant.now())
+				.withRole(Role.DEV_TOKEN).build();
+		
+		when(storage.getToken(token.getHashedToken())).thenReturn(htoken, (StoredToken) null);
+		
+		when(storage.getUser(new UserName("whee"))).thenReturn(u, (AuthUser) null);
+		
+		when(storage.updateRoles(set(new UserName("whee")), set(), set(Role.DEV_TOKEN), set(),
+				set())).thenReturn(set());
+		
+		final Map<UserName, Optional<AuthException>> res = auth.updateRoles(token,
+				set(new UserName("whee")), set(), set(Role.DEV_TOKEN), set(), set());
+		
+		assertThat("incorrect result", res.keySet(), is(set(new UserName("whee"))));
+		assertThat("incorrect result", res.get(new UserName("whee")), is(Optional.absent()));
+		
+		assertLogEventsCorrect(logEvents, new LogEvent(Level.INFO,
+				"User whee removed roles from user whee: DevToken", Authentication.class));
+	}
+	
+	@Test
+	public void updateRolesBulkFailNulls() throws Exception {
+		final Authentication auth = initTestMocks().auth;
+		final IncomingToken t = new IncomingToken("foo");
+		final Set<UserName> u = set(new UserName("foo"));
+		final Set<Role> add = set(Role.ADMIN);
+		final Set<Role> rem = set(Role.DEV_TOKEN);
+		final Set<String> cadd = set("a");
+		final Set<String> crem = set("b");
+		
+		failUpdateRolesBulk(auth, null, u, add, rem, cadd, crem,
+				new NullPointerException("token"));
+		failUpdateRolesBulk(auth, t, null, add, rem, cadd, crem,
+				new NullPointerException("userNames"));
+		failUpdateRolesBulk(auth, t, set(new UserName("foo"), null), add, rem, cadd, crem,
+				new NullPointerException("Null name in userNames"));
+		failUpdateRolesBulk(auth, t, u, null, rem, cadd, crem,
+				new NullPointerException("addRoles"));
+		failUpdateRolesBulk(auth, t, u, set(Role.ADMIN, null), rem, cadd, crem,
+				new NullPointerException("Null role in addRoles"));
+		failUpdateRolesBulk(auth, t, u, add, null, cadd, crem,
+				new NullPointerException("removeRoles"));
+		failUpdateRolesBulk(auth, t, u, add, set(Role.DEV_TOKEN, null), cadd, crem,
+				new NullPointerException("Null role in removeRoles"));
+		failUpdateRolesBulk(auth, t, u, add, rem, null, crem,
+				new NullPointerException("addCustomRoles"));
+		failUpdateRolesBulk(auth, t, u, add, rem, set("a", null), crem,
+				new NullPointerException("Null role in addCustomRoles"));
+		failUpdateRolesBulk(auth, t, u, add, rem, cadd, null,
+				new NullPointerException("removeCustomRoles"));
+		failUpdateRolesBulk(auth, t, u, add, rem, cadd, set("b", null),
+				new NullPointerException("Null role in removeCustomRoles"));
+	}
+	
+	@Test
+	public void updateRolesBulkFailAddAndRemoveSameRole() throws Exception {
+		final Authentication auth = initTestMocks().auth;
+		failUpdateRolesBulk(auth, new IncomingToken("foo"), set(new UserName("bar")),
+				set(Role.ADMIN, Role.DEV_TOKEN), set(Role.SERV_TOKEN, Role.DEV_TOKEN), set(),
+				set(), new IllegalParameterException("One or more roles is to be both removed " +
+						"and added: Create developer tokens"));
+		failUpdateRolesBulk(auth, new IncomingToken("foo"), set(new UserName("bar")), set(),
+				set(), set("a", "b"), set("b", "c"), new IllegalParameterException(
+						"One or more custom roles is to be both removed and added: b"));
+	}
+	
+	@Test
+	public void updateRolesBulkFailTooManyUsers() throws Exception {
+		final Authentication auth = initTestMocks().auth;
+		final Set<UserName> users = new HashSet<>();
+		for (int i = 0; i < 10001; i++) {
+			users.add(new UserName("u" + i));
+		}
+		failUpdateRolesBulk(auth, new IncomingToken("foo"), users, set(Role.DEV_TOKEN), set(),
+				set(), set(), new IllegalParameterException(
+						"User count exceeds maximum of 10000"));
+	}
+	
+	@Test
+	public void updateRolesBulkExecuteStandardUserCheckingTests() throws Exception {
+		final IncomingToken token = new IncomingToken("foo");
+		AuthenticationTester.executeStandardUserCheckingTests(new AbstractAuthOperation() {
+			
+			@Override
+			public IncomingToken getIncomingToken() {
+				return token;
+			}
+			
+			@Override
+			public void execute(final Authentication auth) throws Exception {
+				auth.updateRoles(token, set(new UserName("bar"), new UserName("baz")),
+						set(), set(), set("a"), set("b"));
+			}
+
+			@Override
+			public List<ILoggingEvent> getLogAccumulator() {
+				return logEvents;
+			}
+			
+			@Override
+			public String getOperationString() {
+				return "update roles for 2 users";
+			}
+		}, set(Role.DEV_TOKEN, Role.SERV_TOKEN, Role.CREATE_ADMIN, Role.ROOT));
+	}
+	
+	@Test
+	public void updateRolesBulkFailUnauthorized() throws Exception {
+		failUpdateRolesBulk(new UserName("bleah"), Role.ADMIN,
+				set(new UserName("foo")), set(Role.CREATE_ADMIN), set(),
+				new UnauthorizedException(ErrorType.UNAUTHORIZED,
+						"User bleah is not authorized to grant role(s): " +
+								Role.CREATE_ADMIN.getDescription()));
+		failUpdateRolesBulk(new UserName("bleah"), Role.ADMIN,
+				set(new UserName("foo")), set(), set(Role.ADMIN),
+				new UnauthorizedException(ErrorType.UNAUTHORIZED,
+						"User bleah is not authorized to remove role(s): " +
+								Role.ADMIN.getDescription()));
+		// removing ungrantable roles is only allowed if the acting user is the only target
+		failUpdateRolesBulk(new UserName("bleah"), Role.DEV_TOKEN,
+				set(new UserName("bleah"), new UserName("foo")), set(), set(Role.DEV_TOKEN),
+				new UnauthorizedException(ErrorType.UNAUTHORIZED,
+						"User bleah is not authorized to remove role(s): " +
+								Role.DEV_TOKEN.getDescription()));
+	}
+	
+	@Test
+	public void updateRolesBulkFailNoSuchRole() throws Exception {
+		final TestMocks testauth = initTestMocks();
+		final AuthStorage storage = testauth.storageMock;
+		final Authentication auth = testauth.auth;
+		
+		final IncomingToken token = new IncomingToken("foobarbaz");
+		final StoredToken htoken = StoredToken.getBuilder(
+				TokenType.LOGIN, UUID.randomUUID(), new UserName("admin"))
+				.withLifeTime(Instant.now(), Instant.now()).build();
+		
+		final AuthUser u = AuthUser.getBuilder(
+				new UserName("admin"), new DisplayName("foobar"), Instant.now())
+				.withRole(Role.ADMIN).build();
+		
+		when(storage.getToken(token.getHashedToken())).thenReturn(htoken, (StoredToken) null);
+		
+		when(storage.getUser(new UserName("admin"))).thenReturn(u, (AuthUser) null);
+		
+		when(storage.updateRoles(set(new UserName("foo")), set(), set(), set("a"), set()))
+				.thenThrow(new NoSuchRoleException("a"));
+		
+		failUpdateRolesBulk(auth, token, set(new UserName("foo")), set(), set(), set("a"),
+				set(), new NoSuchRoleException("a"));
+	}
+	
+	private void failUpdateRolesBulk(
+			final UserName adminUser,
+			final Role withRole,
+			final Set<UserName> targetUsers,
+			final Set<Role> add,
+			final Set<Role> remove,
+			final Exception e)
+			throws Exception {
+		final TestMocks testauth = initTestMocks();
+		final AuthStorage storage = testauth.storageMock;
+		final Authentication auth = testauth.auth;
+		
+		final IncomingToken token = new IncomingToken("foobarbaz");
+		final StoredToken htoken = StoredToken.getBuilder(
+				TokenType.LOGIN, UUID.randomUUID(), adminUser)
+				.withLifeTime(Instant.now(), Instant.now()).build();
+		
+		final AuthUser u = AuthUser.getBuilder(
+				adminUser, new DisplayName("foobar"), Instant.now())
+				.withRole(withRole).build();
+		
+		when(storage.getToken(token.getHashedToken())).thenReturn(htoken, (StoredToken) null);
+		
+		when(storage.getUser(adminUser)).thenReturn(u, (AuthUser) null);
+		
+		failUpdateRolesBulk(auth, token, targetUsers, add, remove, set(), set(), e);
+		
+		verify(storage, never()).updateRoles(targetUsers, add, remove, set(), set());
+	}
+	
+	private void failUpdateRolesBulk(
+			final Authentication auth,
+			final IncomingToken userToken,
+			final Set<UserName> userNames,
+			final Set<Role> add,
+			final Set<Role> remove,
+			final Set<String> addCustom,
+			final Set<String> removeCustom,
+			final Exception e)
+			throws Exception {
+		try {
+			auth.updateRoles(userToken, userNames, add, remove, addCustom, removeCustom);
+			fail("expected exception");
+		} catch (Exception got) {
+			TestCommon.assertExceptionCorrect(got, e);
+		}
+	}
 }
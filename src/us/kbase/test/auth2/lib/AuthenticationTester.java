@@ -28,6 +28,7 @@ import org.mockito.invocation.InvocationOnMock;
 import org.mockito.stubbing.Answer;
 import org.slf4j.LoggerFactory;
 
+import com.google.common.base.Optional;
 import com.google.common.collect.ImmutableMap;
 
 import ch.qos.logback.classic.Level;
@@ -122,6 +123,9 @@ public class AuthenticationTester {
 		final Authentication instance = c.newInstance(storage, providers,
 				TEST_EXTERNAL_CONFIG, testMode, randGen, clock);
 		reset(storage);
+		// no system wide token revocation or password reset has occurred
+		when(storage.getTokenRevocationCutoff()).thenReturn(Optional.absent());
+		when(storage.getPasswordResetCutoff()).thenReturn(Optional.absent());
 		return new TestMocks(storage, randGen, instance, clock);
 	}
 	
@@ -231,6 +235,8 @@ public class AuthenticationTester {
 				new AppenderBase<ILoggingEvent>() {
 			@Override
 			protected void append(final ILoggingEvent event) {
+				// capture the mapped diagnostic context, which is cleared after the event is logged
+				event.prepareForDeferredProcessing();
 				logEvents.add(event);
 			}
 		};
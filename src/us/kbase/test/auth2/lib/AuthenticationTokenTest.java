@@ -16,10 +16,10 @@ import static us.kbase.test.auth2.lib.AuthenticationTester.assertLogEventsCorrec
 
 import java.time.Clock;
 import java.time.Instant;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.Set;
 import java.util.UUID;
 
 import org.junit.Before;
@@ -27,6 +27,7 @@ import org.junit.BeforeClass;
 import org.junit.Test;
 
 import com.google.common.base.Optional;
+import com.google.common.collect.ImmutableMap;
 
 import ch.qos.logback.classic.Level;
 import ch.qos.logback.classic.spi.ILoggingEvent;
@@ -37,19 +38,26 @@ import us.kbase.auth2.lib.EmailAddress;
 import us.kbase.auth2.lib.Role;
 import us.kbase.auth2.lib.TokenCreationContext;
 import us.kbase.auth2.lib.UserName;
+import us.kbase.auth2.lib.audit.SLF4JAuditLogger;
 import us.kbase.auth2.lib.config.AuthConfig;
 import us.kbase.auth2.lib.config.AuthConfigSet;
 import us.kbase.auth2.lib.config.CollectingExternalConfig;
 import us.kbase.auth2.lib.config.AuthConfig.TokenLifetimeType;
 import us.kbase.auth2.lib.config.CollectingExternalConfig.CollectingExternalConfigMapper;
 import us.kbase.auth2.lib.exceptions.ErrorType;
+import us.kbase.auth2.lib.exceptions.InvalidTokenException;
 import us.kbase.auth2.lib.exceptions.NoSuchTokenException;
 import us.kbase.auth2.lib.exceptions.UnauthorizedException;
+import us.kbase.auth2.lib.job.Job;
+import us.kbase.auth2.lib.job.JobType;
 import us.kbase.auth2.lib.storage.AuthStorage;
 import us.kbase.auth2.lib.token.IncomingToken;
 import us.kbase.auth2.lib.token.NewToken;
 import us.kbase.auth2.lib.token.StoredToken;
+import us.kbase.auth2.lib.token.TokenCursor;
+import us.kbase.auth2.lib.token.TokenListSpec;
 import us.kbase.auth2.lib.token.TokenName;
+import us.kbase.auth2.lib.token.TokenPage;
 import us.kbase.auth2.lib.token.TokenSet;
 import us.kbase.auth2.lib.token.TokenType;
 import us.kbase.auth2.lib.user.AuthUser;
@@ -113,6 +121,11 @@ public class AuthenticationTokenTest {
 		
 		assertLogEventsCorrect(logEvents, new LogEvent(Level.INFO, 
 				"User foo accessed DEV token " + id, Authentication.class));
+		assertThat("incorrect audit fields", logEvents.get(0).getMDCPropertyMap(),
+				is(ImmutableMap.of(
+						SLF4JAuditLogger.MDC_OPERATION, "get token",
+						SLF4JAuditLogger.MDC_USER, "foo",
+						SLF4JAuditLogger.MDC_TOKEN_ID, id.toString())));
 	}
 	
 	@Test
@@ -121,6 +134,52 @@ public class AuthenticationTokenTest {
 		failGetToken(auth, null, new NullPointerException("token"));
 	}
 	
+	@Test
+	public void getTokenCreatedAfterRevocationCutoff() throws Exception {
+		final TestMocks testauth = initTestMocks();
+		final AuthStorage storage = testauth.storageMock;
+		final Authentication auth = testauth.auth;
+		
+		final IncomingToken t = new IncomingToken("foobar");
+		final UUID id = UUID.randomUUID();
+		final StoredToken expected = StoredToken.getBuilder(
+				TokenType.LOGIN, id, new UserName("foo"))
+				.withLifeTime(Instant.ofEpochMilli(10001), Instant.ofEpochMilli(20000)).build();
+		
+		when(storage.getToken(t.getHashedToken())).thenReturn(expected);
+		when(storage.getTokenRevocationCutoff()).thenReturn(
+				Optional.of(Instant.ofEpochMilli(10000)));
+		
+		assertThat("incorrect token", auth.getToken(t), is(expected));
+	}
+	
+	@Test
+	public void getTokenFailCreatedAtRevocationCutoff() throws Exception {
+		failGetTokenRevoked(Instant.ofEpochMilli(10000));
+	}
+	
+	@Test
+	public void getTokenFailCreatedBeforeRevocationCutoff() throws Exception {
+		failGetTokenRevoked(Instant.ofEpochMilli(9999));
+	}
+	
+	private void failGetTokenRevoked(final Instant created) throws Exception {
+		final TestMocks testauth = initTestMocks();
+		final AuthStorage storage = testauth.storageMock;
+		final Authentication auth = testauth.auth;
+		
+		final IncomingToken t = new IncomingToken("foobar");
+		
+		// the background job revoking all tokens has not yet deleted the token
+		when(storage.getToken(t.getHashedToken())).thenReturn(StoredToken.getBuilder(
+				TokenType.LOGIN, UUID.randomUUID(), new UserName("foo"))
+				.withLifeTime(created, Instant.ofEpochMilli(20000)).build());
+		when(storage.getTokenRevocationCutoff()).thenReturn(
+				Optional.of(Instant.ofEpochMilli(10000)));
+		
+		failGetToken(auth, t, new InvalidTokenException());
+	}
+	
 	@Test
 	public void getTokenExecuteStandardTokenCheckingTests() throws Exception {
 		final IncomingToken token = new IncomingToken("foo");
@@ -176,10 +235,13 @@ public class AuthenticationTokenTest {
 		
 		when(storage.getToken(t.getHashedToken())).thenReturn(expected, (StoredToken) null);
 		
-		when(storage.getTokens(new UserName("foo"))).thenReturn(set(TOKEN1, TOKEN2));
+		final TokenListSpec spec = TokenListSpec.getBuilder().withLimit(2).build();
+		final TokenPage page = new TokenPage(Arrays.asList(TOKEN2, TOKEN1),
+				Optional.of(TokenCursor.after(TOKEN1)));
+		when(storage.getTokens(new UserName("foo"), spec)).thenReturn(page);
 		
-		final TokenSet ts = auth.getTokens(t);
-		assertThat("incorrect token set", ts, is(new TokenSet(expected, set(TOKEN2, TOKEN1))));
+		final TokenSet ts = auth.getTokens(t, spec);
+		assertThat("incorrect token set", ts, is(new TokenSet(expected, page)));
 		
 		assertLogEventsCorrect(logEvents,
 				new LogEvent(Level.INFO, "User foo accessed their tokens", Authentication.class));
@@ -188,7 +250,9 @@ public class AuthenticationTokenTest {
 	@Test
 	public void getTokensFailNull() throws Exception {
 		final Authentication auth = initTestMocks().auth;
-		failGetTokens(auth, null, new NullPointerException("token"));
+		final TokenListSpec spec = TokenListSpec.getBuilder().build();
+		failGetTokens(auth, null, spec, new NullPointerException("token"));
+		failGetTokens(auth, new IncomingToken("foo"), null, new NullPointerException("spec"));
 	}
 
 	@Test
@@ -203,7 +267,7 @@ public class AuthenticationTokenTest {
 			
 			@Override
 			public void execute(final Authentication auth) throws Exception {
-				auth.getTokens(token);
+				auth.getTokens(token, TokenListSpec.getBuilder().build());
 			}
 
 			@Override
@@ -221,9 +285,10 @@ public class AuthenticationTokenTest {
 	private void failGetTokens(
 			final Authentication auth,
 			final IncomingToken t,
+			final TokenListSpec spec,
 			final Exception e) {
 		try {
-			auth.getTokens(t);
+			auth.getTokens(t, spec);
 			fail("expected exception");
 		} catch (Exception got) {
 			TestCommon.assertExceptionCorrect(got, e);
@@ -252,7 +317,7 @@ public class AuthenticationTokenTest {
 			
 			@Override
 			public void execute(final Authentication auth) throws Exception {
-				auth.getTokens(token, new UserName("whee"));
+				auth.getTokens(token, new UserName("whee"), TokenListSpec.getBuilder().build());
 			}
 
 			@Override
@@ -272,9 +337,13 @@ public class AuthenticationTokenTest {
 		final TestMocks testauth = initTestMocks();
 		final Authentication auth = testauth.auth;
 		
-		failGetTokensUser(auth, null, new UserName("foo"), new NullPointerException("token"));
-		failGetTokensUser(auth, new IncomingToken("foo"), null,
+		final TokenListSpec spec = TokenListSpec.getBuilder().build();
+		failGetTokensUser(auth, null, new UserName("foo"), spec,
+				new NullPointerException("token"));
+		failGetTokensUser(auth, new IncomingToken("foo"), null, spec,
 				new NullPointerException("userName"));
+		failGetTokensUser(auth, new IncomingToken("foo"), new UserName("foo"), null,
+				new NullPointerException("spec"));
 	}
 	
 	private void getTokensUser(final AuthUser admin) throws Exception {
@@ -291,11 +360,14 @@ public class AuthenticationTokenTest {
 		
 		when(storage.getUser(admin.getUserName())).thenReturn(admin, (AuthUser) null);
 		
-		when(storage.getTokens(new UserName("foo"))).thenReturn(set(TOKEN1, TOKEN2));
+		final TokenListSpec spec = TokenListSpec.getBuilder()
+				.withNullableType(TokenType.DEV).build();
+		final TokenPage page = new TokenPage(Arrays.asList(TOKEN2), Optional.absent());
+		when(storage.getTokens(new UserName("foo"), spec)).thenReturn(page);
 		
 		try {
-			final Set<StoredToken> tokens = auth.getTokens(t, new UserName("foo"));
-			assertThat("incorrect tokens", tokens, is(set(TOKEN1, TOKEN2)));
+			final TokenPage tokens = auth.getTokens(t, new UserName("foo"), spec);
+			assertThat("incorrect tokens", tokens, is(page));
 			assertLogEventsCorrect(logEvents, new LogEvent(Level.INFO, String.format(
 					"Admin %s accessed user foo's tokens", admin.getUserName().getName()),
 					Authentication.class));
@@ -311,9 +383,10 @@ public class AuthenticationTokenTest {
 			final Authentication auth,
 			final IncomingToken token,
 			final UserName name,
+			final TokenListSpec spec,
 			final Exception e) {
 		try {
-			auth.getTokens(token, name);
+			auth.getTokens(token, name, spec);
 			fail("expected exception");
 		} catch (Exception got) {
 			TestCommon.assertExceptionCorrect(got, e);
@@ -636,6 +709,12 @@ public class AuthenticationTokenTest {
 			assertLogEventsCorrect(logEvents, new LogEvent(Level.INFO, String.format(
 					"Admin %s revoked user whee's token %s",
 					admin.getUserName().getName(), target), Authentication.class));
+			assertThat("incorrect audit fields", logEvents.get(0).getMDCPropertyMap(),
+					is(ImmutableMap.of(
+							SLF4JAuditLogger.MDC_OPERATION,
+									"revoke token " + target + " for user whee",
+							SLF4JAuditLogger.MDC_USER, admin.getUserName().getName(),
+							SLF4JAuditLogger.MDC_TOKEN_ID, ht.getId().toString())));
 		} catch (Throwable th) {
 			if (admin.isDisabled()) {
 				verify(storage).deleteTokens(admin.getUserName());
@@ -770,6 +849,8 @@ public class AuthenticationTokenTest {
 	private void revokeAllTokensAdminAll(final AuthUser admin) throws Exception {
 		final TestMocks testauth = initTestMocks();
 		final AuthStorage storage = testauth.storageMock;
+		final RandomDataGenerator rand = testauth.randGenMock;
+		final Clock clock = testauth.clockMock;
 		final Authentication auth = testauth.auth;
 		
 		final IncomingToken t = new IncomingToken("foobar");
@@ -781,14 +862,22 @@ public class AuthenticationTokenTest {
 		
 		when(storage.getUser(admin.getUserName())).thenReturn(admin);
 		
-		try {
-			auth.revokeAllTokens(t);
+		final UUID id = UUID.randomUUID();
+		when(rand.randomUUID()).thenReturn(id, (UUID) null);
+		when(clock.instant()).thenReturn(Instant.ofEpochMilli(20000), (Instant) null);
 		
-			verify(storage).deleteTokens();
+		try {
+			final Job job = auth.revokeAllTokens(t);
+			
+			final Job expected = Job.getBuilder(id, JobType.REVOKE_ALL_TOKENS,
+					admin.getUserName(), Instant.ofEpochMilli(20000)).build();
+			assertThat("incorrect job", job, is(expected));
+			verify(storage).setTokenRevocationCutoff(Instant.ofEpochMilli(20000));
+			verify(storage).createJob(expected);
 			
 			assertLogEventsCorrect(logEvents, new LogEvent(Level.INFO, String.format(
-					"Admin %s revoked all tokens system wide", admin.getUserName().getName()),
-					Authentication.class));
+					"Admin %s revoked all tokens system wide in job %s",
+					admin.getUserName().getName(), id), Authentication.class));
 		} catch (Throwable th) {
 			if (admin.isDisabled()) {
 				verify(storage).deleteTokens(admin.getUserName());
@@ -22,6 +22,30 @@ public class PasswordHashAndSaltTest {
 				is(new byte[] {11, 12}));
 	}
 	
+	@Test
+	public void constructDefaults() {
+		final PasswordHashAndSalt creds = new PasswordHashAndSalt(
+				new byte[] {1, 2, 3, 4, 5, 6, 7, 8, 9, 10},
+				new byte[] {11, 12});
+		assertThat("incorrect algorithm", creds.getAlgorithm(), is("PBKDF2WithHmacSHA256"));
+		assertThat("incorrect iterations", creds.getIterations(), is(20000));
+	}
+	
+	@Test
+	public void constructWithParams() {
+		final PasswordHashAndSalt creds = new PasswordHashAndSalt(
+				new byte[] {1, 2, 3, 4, 5, 6, 7, 8, 9, 10},
+				new byte[] {11, 12},
+				"PBKDF2WithHmacSHA512",
+				40000);
+		assertThat("incorrect hash", creds.getPasswordHash(),
+				is(new byte[] {1, 2, 3, 4, 5, 6, 7, 8, 9, 10}));
+		assertThat("incorrect salt", creds.getSalt(),
+				is(new byte[] {11, 12}));
+		assertThat("incorrect algorithm", creds.getAlgorithm(), is("PBKDF2WithHmacSHA512"));
+		assertThat("incorrect iterations", creds.getIterations(), is(40000));
+	}
+	
 	@Test
 	public void clear() {
 		final PasswordHashAndSalt creds = new PasswordHashAndSalt(
@@ -46,6 +70,30 @@ public class PasswordHashAndSaltTest {
 				new IllegalArgumentException("salt missing or too small"));
 	}
 
+	@Test
+	public void constructFailParams() {
+		failConstruct(new byte[10], new byte[2], null, 1,
+				new IllegalArgumentException("Missing argument: algorithm"));
+		failConstruct(new byte[10], new byte[2], "   \t  ", 1,
+				new IllegalArgumentException("Missing argument: algorithm"));
+		failConstruct(new byte[10], new byte[2], "alg", 0,
+				new IllegalArgumentException("iterations must be at least 1"));
+	}
+	
+	private void failConstruct(
+			final byte[] hash,
+			final byte[] salt,
+			final String algorithm,
+			final int iterations,
+			final Exception e) {
+		try {
+			new PasswordHashAndSalt(hash, salt, algorithm, iterations);
+			fail("expected exception");
+		} catch (Exception got) {
+			TestCommon.assertExceptionCorrect(got, e);
+		}
+	}
+
 	private void failConstruct(
 			final byte[] hash,
 			final byte[] salt,
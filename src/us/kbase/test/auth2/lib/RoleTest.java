@@ -118,5 +118,43 @@ public class RoleTest {
 		assertThat("incorrect isSatisfiedBy()", Role.DEV_TOKEN.isSatisfiedBy(
 				set(Role.SERV_TOKEN)), is(true));
 	}
+	
+	@Test
+	public void masks() throws Exception {
+		assertThat("incorrect mask", Role.ADMIN.getMask(), is(1));
+		assertThat("incorrect mask", Role.CREATE_ADMIN.getMask(), is(2));
+		assertThat("incorrect mask", Role.DEV_TOKEN.getMask(), is(4));
+		assertThat("incorrect mask", Role.ROOT.getMask(), is(8));
+		assertThat("incorrect mask", Role.SERV_TOKEN.getMask(), is(16));
+		
+		assertThat("incorrect mask", Role.getMask(Collections.emptySet()), is(0));
+		assertThat("incorrect mask", Role.getMask(set(Role.ADMIN, Role.ROOT)), is(9));
+		assertThat("incorrect mask", Role.getMask(set(Role.values())), is(31));
+		
+		assertThat("incorrect roles", Role.fromMask(0), is(Collections.emptySet()));
+		assertThat("incorrect roles", Role.fromMask(20), is(set(Role.DEV_TOKEN, Role.SERV_TOKEN)));
+		assertThat("incorrect roles", Role.fromMask(31), is(set(Role.values())));
+	}
+	
+	@Test
+	public void effectiveMask() throws Exception {
+		assertThat("incorrect mask", Role.getEffectiveMask(Collections.emptySet()), is(0));
+		assertThat("incorrect mask", Role.getEffectiveMask(set(Role.ADMIN)), is(21));
+		assertThat("incorrect mask", Role.getEffectiveMask(set(Role.SERV_TOKEN)), is(20));
+		assertThat("incorrect mask", Role.getEffectiveMask(set(Role.CREATE_ADMIN, Role.ROOT)),
+				is(10));
+		assertThat("incorrect mask", Role.getEffectiveMask(set(Role.DEV_TOKEN)), is(4));
+	}
+	
+	@Test
+	public void isSatisfiedByMask() throws Exception {
+		final int admin = Role.getEffectiveMask(set(Role.ADMIN));
+		assertThat("incorrect isSatisfiedBy()", Role.SERV_TOKEN.isSatisfiedBy(admin), is(true));
+		assertThat("incorrect isSatisfiedBy()", Role.DEV_TOKEN.isSatisfiedBy(admin), is(true));
+		assertThat("incorrect isSatisfiedBy()", Role.ADMIN.isSatisfiedBy(admin), is(true));
+		assertThat("incorrect isSatisfiedBy()", Role.CREATE_ADMIN.isSatisfiedBy(admin),
+				is(false));
+		assertThat("incorrect isSatisfiedBy()", Role.ROOT.isSatisfiedBy(0), is(false));
+	}
 
 }
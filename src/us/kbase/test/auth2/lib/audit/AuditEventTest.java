@@ -0,0 +1,117 @@
+package us.kbase.test.auth2.lib.audit;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+
+import java.util.UUID;
+
+import org.junit.Test;
+
+import com.google.common.base.Optional;
+
+import nl.jqno.equalsverifier.EqualsVerifier;
+import us.kbase.auth2.lib.UserName;
+import us.kbase.auth2.lib.audit.AuditEvent;
+import us.kbase.auth2.lib.audit.AuditEvent.Level;
+import us.kbase.test.auth2.TestCommon;
+
+public class AuditEventTest {
+	
+	private static final UUID ID = UUID.fromString("edc1dcbb-d370-4660-a639-01a72f0d578a");
+	
+	@Test
+	public void equals() throws Exception {
+		EqualsVerifier.forClass(AuditEvent.class).usingGetClass().verify();
+	}
+	
+	@Test
+	public void buildMinimal() throws Exception {
+		final AuditEvent e = AuditEvent.getBuilder(Level.INFO, "created root user").build();
+		
+		assertThat("incorrect level", e.getLevel(), is(Level.INFO));
+		assertThat("incorrect format", e.getFormat(), is("created root user"));
+		assertThat("incorrect args", e.getArguments(), is(new Object[0]));
+		assertThat("incorrect message", e.getMessage(), is("created root user"));
+		assertThat("incorrect operation", e.getOperation(), is(Optional.absent()));
+		assertThat("incorrect user", e.getUser(), is(Optional.absent()));
+		assertThat("incorrect token id", e.getTokenID(), is(Optional.absent()));
+	}
+	
+	@Test
+	public void buildMaximal() throws Exception {
+		final AuditEvent e = AuditEvent.getBuilder(Level.ERROR, "User {} revoked token {}",
+				"foo", ID)
+				.withNullableOperation("revoke token")
+				.withNullableUser(new UserName("foo"))
+				.withNullableTokenID(ID)
+				.build();
+		
+		assertThat("incorrect level", e.getLevel(), is(Level.ERROR));
+		assertThat("incorrect format", e.getFormat(), is("User {} revoked token {}"));
+		assertThat("incorrect args", e.getArguments(), is(new Object[] {"foo", ID}));
+		assertThat("incorrect message", e.getMessage(),
+				is("User foo revoked token edc1dcbb-d370-4660-a639-01a72f0d578a"));
+		assertThat("incorrect operation", e.getOperation(), is(Optional.of("revoke token")));
+		assertThat("incorrect user", e.getUser(), is(Optional.of(new UserName("foo"))));
+		assertThat("incorrect token id", e.getTokenID(), is(Optional.of(ID)));
+	}
+	
+	@Test
+	public void buildWithNulls() throws Exception {
+		final AuditEvent e = AuditEvent.getBuilder(Level.INFO, "foo")
+				.withNullableOperation("revoke token")
+				.withNullableUser(new UserName("foo"))
+				.withNullableTokenID(ID)
+				.withNullableOperation(null)
+				.withNullableUser(null)
+				.withNullableTokenID(null)
+				.build();
+		
+		assertThat("incorrect operation", e.getOperation(), is(Optional.absent()));
+		assertThat("incorrect user", e.getUser(), is(Optional.absent()));
+		assertThat("incorrect token id", e.getTokenID(), is(Optional.absent()));
+	}
+	
+	@Test
+	public void immutable() throws Exception {
+		final Object[] args = new Object[] {"foo"};
+		final AuditEvent e = AuditEvent.getBuilder(Level.INFO, "user {}", args).build();
+		args[0] = "bar";
+		assertThat("incorrect message", e.getMessage(), is("user foo"));
+		
+		e.getArguments()[0] = "bar";
+		assertThat("incorrect message", e.getMessage(), is("user foo"));
+	}
+	
+	@Test
+	public void getBuilderFail() throws Exception {
+		failGetBuilder(null, "foo", new Object[0], new NullPointerException("level"));
+		failGetBuilder(Level.INFO, null, new Object[0], new NullPointerException("format"));
+		failGetBuilder(Level.INFO, "foo", null, new NullPointerException("args"));
+	}
+	
+	private void failGetBuilder(
+			final Level level,
+			final String format,
+			final Object[] args,
+			final Exception expected) {
+		try {
+			AuditEvent.getBuilder(level, format, args);
+			fail("expected exception");
+		} catch (Exception got) {
+			TestCommon.assertExceptionCorrect(got, expected);
+		}
+	}
+	
+	@Test
+	public void withOperationFail() throws Exception {
+		try {
+			AuditEvent.getBuilder(Level.INFO, "foo").withNullableOperation("   \t  ");
+			fail("expected exception");
+		} catch (Exception got) {
+			TestCommon.assertExceptionCorrect(got,
+					new IllegalArgumentException("Missing argument: operation"));
+		}
+	}
+}
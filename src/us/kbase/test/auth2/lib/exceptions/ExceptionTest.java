@@ -22,6 +22,7 @@ import us.kbase.auth2.lib.exceptions.MissingParameterException;
 import us.kbase.auth2.lib.exceptions.NoDataException;
 import us.kbase.auth2.lib.exceptions.NoSuchIdentityException;
 import us.kbase.auth2.lib.exceptions.NoSuchIdentityProviderException;
+import us.kbase.auth2.lib.exceptions.NoSuchJobException;
 import us.kbase.auth2.lib.exceptions.NoSuchLocalUserException;
 import us.kbase.auth2.lib.exceptions.NoSuchRoleException;
 import us.kbase.auth2.lib.exceptions.NoSuchTokenException;
@@ -258,6 +259,15 @@ public class ExceptionTest {
 		assertThat("incorrect cause", ae.getCause(), is((Throwable) null));
 	}
 	
+	@Test
+	public void noSuchJob() throws Exception {
+		final ErrorType et = ErrorType.NO_SUCH_JOB;
+		final NoSuchJobException ae = new NoSuchJobException("foo");
+		assertThat("incorrect error code", ae.getErr(), is(et));
+		assertThat("incorrect message", ae.getMessage(), is(format(et, "foo")));
+		assertThat("incorrect cause", ae.getCause(), is((Throwable) null));
+	}
+	
 	@Test
 	public void noSuchRole() throws Exception {
 		final ErrorType et = ErrorType.NO_SUCH_ROLE;
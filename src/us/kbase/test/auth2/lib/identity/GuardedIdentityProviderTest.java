@@ -0,0 +1,265 @@
+package us.kbase.test.auth2.lib.identity;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.io.IOException;
+import java.net.SocketTimeoutException;
+import java.net.URL;
+import java.time.Clock;
+import java.time.Instant;
+import java.util.Collections;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.After;
+import org.junit.Test;
+
+import us.kbase.auth2.lib.exceptions.IdentityRetrievalException;
+import us.kbase.auth2.lib.identity.GuardedIdentityProvider;
+import us.kbase.auth2.lib.identity.GuardedIdentityProvider.CircuitState;
+import us.kbase.auth2.lib.identity.GuardedIdentityProvider.Status;
+import us.kbase.auth2.lib.identity.IdentityProvider;
+import us.kbase.auth2.lib.identity.RemoteIdentity;
+import us.kbase.auth2.lib.identity.RemoteIdentityDetails;
+import us.kbase.auth2.lib.identity.RemoteIdentityID;
+import us.kbase.test.auth2.TestCommon;
+
+public class GuardedIdentityProviderTest {
+
+	private static final Set<RemoteIdentity> IDS = Collections.singleton(new RemoteIdentity(
+			new RemoteIdentityID("Prov", "id"), new RemoteIdentityDetails("u", "f", "e")));
+
+	private static final IdentityRetrievalException DOWN = new IdentityRetrievalException(
+			"Request to Prov service timed out", new IOException(new SocketTimeoutException()));
+	private static final IdentityRetrievalException BAD_CODE = new IdentityRetrievalException(
+			"Prov service returned an error. HTTP code: 400. Error: invalid_grant");
+	private static final IdentityRetrievalException OPEN = new IdentityRetrievalException(
+			"The Prov identity provider is temporarily unavailable");
+	private static final IdentityRetrievalException FULL = new IdentityRetrievalException(
+			"Too many concurrent requests to the Prov identity provider");
+
+	private final AtomicReference<Instant> now = new AtomicReference<>(
+			Instant.ofEpochMilli(100000));
+	private final ExecutorService executor = Executors.newCachedThreadPool();
+
+	@After
+	public void tearDown() {
+		executor.shutdownNow();
+	}
+
+	private IdentityProvider provider() {
+		final IdentityProvider idp = mock(IdentityProvider.class);
+		when(idp.getProviderName()).thenReturn("Prov");
+		return idp;
+	}
+
+	private GuardedIdentityProvider guard(final IdentityProvider idp, final int maxConcurrent) {
+		final Clock clock = mock(Clock.class);
+		when(clock.instant()).thenAnswer(i -> now.get());
+		return new GuardedIdentityProvider(idp, 3, 10000, maxConcurrent, clock);
+	}
+
+	private void assertStatus(
+			final GuardedIdentityProvider g,
+			final CircuitState state,
+			final int failures,
+			final int inFlight,
+			final long rejectedOpen,
+			final long rejectedFull) {
+		final Status s = g.getStatus();
+		assertThat("incorrect state", s.getState(), is(state));
+		assertThat("incorrect failures", s.getConsecutiveFailures(), is(failures));
+		assertThat("incorrect in flight", s.getInFlight(), is(inFlight));
+		assertThat("incorrect max", s.getMaxConcurrent(), is(2));
+		assertThat("incorrect rejected open", s.getRejectedCircuitOpen(), is(rejectedOpen));
+		assertThat("incorrect rejected full", s.getRejectedBulkheadFull(), is(rejectedFull));
+	}
+
+	private void failGetIdentities(
+			final GuardedIdentityProvider g,
+			final String authcode,
+			final Exception expected) {
+		try {
+			g.getIdentities(authcode, false);
+			fail("expected exception");
+		} catch (Exception got) {
+			TestCommon.assertExceptionCorrect(got, expected);
+		}
+	}
+
+	@Test
+	public void delegate() throws Exception {
+		final IdentityProvider idp = provider();
+		when(idp.getLoginURL("state", true)).thenReturn(new URL("https://login.com"));
+		when(idp.getIdentities("code", true)).thenReturn(IDS);
+		final GuardedIdentityProvider g = guard(idp, 2);
+
+		assertThat("incorrect name", g.getProviderName(), is("Prov"));
+		assertThat("incorrect url", g.getLoginURL("state", true),
+				is(new URL("https://login.com")));
+		assertThat("incorrect ids", g.getIdentities("code", true), is(IDS));
+		assertStatus(g, CircuitState.CLOSED, 0, 0, 0, 0);
+	}
+
+	@Test
+	public void defaults() throws Exception {
+		final Status s = new GuardedIdentityProvider(provider()).getStatus();
+		assertThat("incorrect state", s.getState(), is(CircuitState.CLOSED));
+		assertThat("incorrect max", s.getMaxConcurrent(),
+				is(GuardedIdentityProvider.DEFAULT_MAX_CONCURRENT));
+	}
+
+	@Test
+	public void openAfterConsecutiveFailures() throws Exception {
+		final IdentityProvider idp = provider();
+		when(idp.getIdentities("down", false)).thenThrow(DOWN);
+		when(idp.getIdentities("bad", false)).thenThrow(BAD_CODE);
+		when(idp.getIdentities("err", false)).thenThrow(new IllegalStateException("whoops"));
+		when(idp.getIdentities("code", false)).thenReturn(IDS);
+		final GuardedIdentityProvider g = guard(idp, 2);
+
+		failGetIdentities(g, "down", DOWN);
+		failGetIdentities(g, "down", DOWN);
+		assertStatus(g, CircuitState.CLOSED, 2, 0, 0, 0);
+		// the provider responded, so resets the failure count
+		failGetIdentities(g, "bad", BAD_CODE);
+		assertStatus(g, CircuitState.CLOSED, 0, 0, 0, 0);
+		failGetIdentities(g, "down", DOWN);
+		failGetIdentities(g, "err", new IllegalStateException("whoops"));
+		assertStatus(g, CircuitState.CLOSED, 2, 0, 0, 0);
+		failGetIdentities(g, "down", DOWN);
+		assertStatus(g, CircuitState.OPEN, 3, 0, 0, 0);
+
+		// fail fast without contacting the provider
+		failGetIdentities(g, "code", OPEN);
+		now.set(now.get().plusMillis(9999));
+		failGetIdentities(g, "code", OPEN);
+		assertStatus(g, CircuitState.OPEN, 3, 0, 2, 0);
+		verify(idp, times(0)).getIdentities("code", false);
+		verify(idp, times(4)).getIdentities("down", false);
+	}
+
+	@Test
+	public void halfOpen() throws Exception {
+		final IdentityProvider idp = provider();
+		when(idp.getIdentities("down", false)).thenThrow(DOWN);
+		when(idp.getIdentities("code", false)).thenReturn(IDS);
+		final GuardedIdentityProvider g = guard(idp, 2);
+		for (int i = 0; i < 3; i++) {
+			failGetIdentities(g, "down", DOWN);
+		}
+		now.set(now.get().plusMillis(10000));
+		assertStatus(g, CircuitState.HALF_OPEN, 3, 0, 0, 0);
+
+		// trial request fails, so the circuit opens for another period
+		failGetIdentities(g, "down", DOWN);
+		assertStatus(g, CircuitState.OPEN, 4, 0, 0, 0);
+		now.set(now.get().plusMillis(9999));
+		failGetIdentities(g, "code", OPEN);
+
+		// trial request succeeds, so the circuit closes
+		now.set(now.get().plusMillis(1));
+		assertThat("incorrect ids", g.getIdentities("code", false), is(IDS));
+		assertStatus(g, CircuitState.CLOSED, 0, 0, 1, 0);
+		assertThat("incorrect ids", g.getIdentities("code", false), is(IDS));
+		verify(idp, times(4)).getIdentities("down", false);
+	}
+
+	@Test
+	public void halfOpenSingleTrial() throws Exception {
+		final IdentityProvider idp = provider();
+		final CountDownLatch started = new CountDownLatch(1);
+		final CountDownLatch proceed = new CountDownLatch(1);
+		when(idp.getIdentities("down", false)).thenThrow(DOWN);
+		when(idp.getIdentities("slow", false)).thenAnswer(i -> {
+			started.countDown();
+			proceed.await();
+			return IDS;
+		});
+		final GuardedIdentityProvider g = guard(idp, 2);
+		for (int i = 0; i < 3; i++) {
+			failGetIdentities(g, "down", DOWN);
+		}
+		now.set(now.get().plusMillis(10000));
+
+		final Future<Set<RemoteIdentity>> trial = executor.submit(
+				() -> g.getIdentities("slow", false));
+		assertThat("trial didn't start", started.await(10, TimeUnit.SECONDS), is(true));
+		// only the trial request is sent to the provider
+		failGetIdentities(g, "down", OPEN);
+		assertStatus(g, CircuitState.HALF_OPEN, 3, 1, 1, 0);
+		proceed.countDown();
+		assertThat("incorrect ids", trial.get(10, TimeUnit.SECONDS), is(IDS));
+		assertStatus(g, CircuitState.CLOSED, 0, 0, 1, 0);
+	}
+
+	@Test
+	public void bulkhead() throws Exception {
+		final IdentityProvider idp = provider();
+		final CountDownLatch started = new CountDownLatch(2);
+		final CountDownLatch proceed = new CountDownLatch(1);
+		when(idp.getIdentities("slow", false)).thenAnswer(i -> {
+			started.countDown();
+			proceed.await();
+			return IDS;
+		});
+		final GuardedIdentityProvider g = guard(idp, 2);
+
+		final Future<Set<RemoteIdentity>> f1 = executor.submit(
+				() -> g.getIdentities("slow", false));
+		final Future<Set<RemoteIdentity>> f2 = executor.submit(
+				() -> g.getIdentities("slow", false));
+		assertThat("requests didn't start", started.await(10, TimeUnit.SECONDS), is(true));
+		assertStatus(g, CircuitState.CLOSED, 0, 2, 0, 0);
+
+		failGetIdentities(g, "slow", FULL);
+		assertStatus(g, CircuitState.CLOSED, 0, 2, 0, 1);
+		proceed.countDown();
+		assertThat("incorrect ids", f1.get(10, TimeUnit.SECONDS), is(IDS));
+		assertThat("incorrect ids", f2.get(10, TimeUnit.SECONDS), is(IDS));
+		assertStatus(g, CircuitState.CLOSED, 0, 0, 0, 1);
+		assertThat("incorrect ids", g.getIdentities("slow", false), is(IDS));
+		verify(idp, times(3)).getIdentities("slow", false);
+	}
+
+	@Test
+	public void constructFail() throws Exception {
+		final IdentityProvider p = provider();
+		final Clock c = Clock.systemDefaultZone();
+		failConstruct(null, 1, 1, 1, c, new NullPointerException("provider"));
+		failConstruct(p, 1, 1, 1, null, new NullPointerException("clock"));
+		failConstruct(p, 0, 1, 1, c, new IllegalArgumentException(
+				"failureThreshold must be at least 1"));
+		failConstruct(p, 1, 0, 1, c, new IllegalArgumentException(
+				"openDurationMS must be at least 1"));
+		failConstruct(p, 1, 1, 0, c, new IllegalArgumentException(
+				"maxConcurrent must be at least 1"));
+	}
+
+	private void failConstruct(
+			final IdentityProvider provider,
+			final int failureThreshold,
+			final int openDurationMS,
+			final int maxConcurrent,
+			final Clock clock,
+			final Exception expected) {
+		try {
+			new GuardedIdentityProvider(
+					provider, failureThreshold, openDurationMS, maxConcurrent, clock);
+			fail("expected exception");
+		} catch (Exception got) {
+			TestCommon.assertExceptionCorrect(got, expected);
+		}
+	}
+}
@@ -39,6 +39,51 @@ public class IdentityProviderConfigTest {
 		assertThat("incorrect login URL", c.getLoginURL(), is(new URL("http://login.com")));
 		assertThat("incorrect custom config", c.getCustomConfiguation(),
 				is(ImmutableMap.of("foo", "bar", "baz", "bat")));
+		assertThat("incorrect connect timeout", c.getConnectTimeoutMillis(), is(10000));
+		assertThat("incorrect read timeout", c.getReadTimeoutMillis(), is(30000));
+	}
+	
+	@Test
+	public void goodInputWithTimeouts() throws Exception {
+		final IdentityProviderConfig c = new IdentityProviderConfig(
+				"MyProv",
+				new URL("http://login.com"),
+				new URL("http://api.com"),
+				"foo",
+				"bar",
+				new URL("https://loginredirect.com"),
+				new URL("https://linkredirect.com"),
+				Collections.emptyMap(),
+				1,
+				5000);
+		assertThat("incorrect connect timeout", c.getConnectTimeoutMillis(), is(1));
+		assertThat("incorrect read timeout", c.getReadTimeoutMillis(), is(5000));
+	}
+	
+	@Test
+	public void badTimeouts() throws Exception {
+		failCreateConfig(0, 1,
+				"Connect timeout for MyProv identity provider must be at least 1 ms");
+		failCreateConfig(-1, 1,
+				"Connect timeout for MyProv identity provider must be at least 1 ms");
+		failCreateConfig(1, 0, "Read timeout for MyProv identity provider must be at least 1 ms");
+		failCreateConfig(1, -1, "Read timeout for MyProv identity provider must be at least 1 ms");
+	}
+	
+	private void failCreateConfig(
+			final int connectTimeout,
+			final int readTimeout,
+			final String exception)
+			throws Exception {
+		try {
+			new IdentityProviderConfig("MyProv", new URL("http://login.com"),
+					new URL("http://api.com"), "foo", "bar", new URL("https://loginredirect.com"),
+					new URL("https://linkredirect.com"), Collections.emptyMap(), connectTimeout,
+					readTimeout);
+			fail("created bad id provider config");
+		} catch (IdentityProviderConfigurationException e) {
+			assertThat("incorrect exception message", e.getMessage(), is(exception));
+		}
 	}
 	
 	@Test
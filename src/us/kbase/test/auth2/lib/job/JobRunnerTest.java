@@ -0,0 +1,199 @@
+package us.kbase.test.auth2.lib.job;
+
+import static org.junit.Assert.fail;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.time.Instant;
+import java.util.UUID;
+
+import org.junit.Test;
+
+import com.google.common.base.Optional;
+
+import us.kbase.auth2.lib.PolicyID;
+import us.kbase.auth2.lib.UserName;
+import us.kbase.auth2.lib.exceptions.IllegalParameterException;
+import us.kbase.auth2.lib.job.Job;
+import us.kbase.auth2.lib.job.JobBatch;
+import us.kbase.auth2.lib.job.JobRunner;
+import us.kbase.auth2.lib.job.JobState;
+import us.kbase.auth2.lib.job.JobType;
+import us.kbase.auth2.lib.storage.AuthStorage;
+import us.kbase.test.auth2.TestCommon;
+
+public class JobRunnerTest {
+	
+	private static final UUID ID = UUID.randomUUID();
+	private static final Instant CREATED = Instant.ofEpochMilli(10000);
+	private static final UserName ADMIN;
+	static {
+		try {
+			ADMIN = new UserName("admin");
+		} catch (Exception e) {
+			throw new RuntimeException("Fix yer tests nub", e);
+		}
+	}
+	
+	private static Job.Builder job(final JobType type) {
+		return Job.getBuilder(ID, type, ADMIN, CREATED)
+				.withState(JobState.RUNNING, Instant.ofEpochMilli(20000));
+	}
+	
+	@Test
+	public void constructFail() throws Exception {
+		final AuthStorage storage = mock(AuthStorage.class);
+		failConstruct(null, 1, 0, new NullPointerException("storage"));
+		failConstruct(storage, 0, 0, new IllegalArgumentException(
+				"batchSize must be at least 1"));
+		failConstruct(storage, 1, -1, new IllegalArgumentException(
+				"batchDelayMS must be at least 0"));
+	}
+	
+	private void failConstruct(
+			final AuthStorage storage,
+			final int batchSize,
+			final long batchDelayMS,
+			final Exception expected) {
+		try {
+			new JobRunner(storage, batchSize, batchDelayMS);
+			fail("expected exception");
+		} catch (Exception got) {
+			TestCommon.assertExceptionCorrect(got, expected);
+		}
+	}
+	
+	@Test
+	public void noJobs() throws Exception {
+		final AuthStorage storage = mock(AuthStorage.class);
+		when(storage.claimJob(anyString(), any(Instant.class))).thenReturn(Optional.absent());
+		
+		try (final JobRunner runner = new JobRunner(storage, 2, 0)) {
+			runner.runJobs();
+		}
+		
+		verify(storage).claimJob(anyString(), any(Instant.class));
+		verify(storage, never()).finishJob(any(UUID.class), anyString(), any(JobState.class),
+				anyLong(), anyLong(), any());
+	}
+	
+	@Test
+	public void revokeAllTokensInBatches() throws Exception {
+		final AuthStorage storage = mock(AuthStorage.class);
+		when(storage.claimJob(anyString(), any(Instant.class))).thenReturn(
+				Optional.of(job(JobType.REVOKE_ALL_TOKENS).build()), Optional.absent());
+		when(storage.deleteTokens(CREATED, Optional.absent(), 2))
+				.thenReturn(new JobBatch(2, 2, Optional.of("cp1"), false));
+		when(storage.updateJob(eq(ID), anyString(), eq(2L), eq(2L), eq(Optional.of("cp1")),
+				any(Instant.class))).thenReturn(true);
+		when(storage.deleteTokens(CREATED, Optional.of("cp1"), 2))
+				.thenReturn(new JobBatch(2, 1, Optional.of("cp2"), true));
+		when(storage.finishJob(eq(ID), anyString(), eq(JobState.COMPLETE), eq(4L), eq(3L),
+				eq(Optional.absent()))).thenReturn(true);
+		
+		try (final JobRunner runner = new JobRunner(storage, 2, 0)) {
+			runner.runJobs();
+		}
+		
+		verify(storage).deleteTokens(CREATED, Optional.of("cp1"), 2);
+		verify(storage).finishJob(eq(ID), anyString(), eq(JobState.COMPLETE), eq(4L), eq(3L),
+				eq(Optional.absent()));
+	}
+	
+	@Test
+	public void resumeFromCheckpoint() throws Exception {
+		final AuthStorage storage = mock(AuthStorage.class);
+		when(storage.claimJob(anyString(), any(Instant.class))).thenReturn(
+				Optional.of(job(JobType.REMOVE_POLICY_ID).withTarget("pid")
+						.withProgress(5, 3, "cp").build()),
+				Optional.absent());
+		when(storage.removePolicyID(new PolicyID("pid"), Optional.of("cp"), 2))
+				.thenReturn(new JobBatch(1, 1, Optional.of("cp2"), true));
+		when(storage.finishJob(eq(ID), anyString(), eq(JobState.COMPLETE), eq(6L), eq(4L),
+				eq(Optional.absent()))).thenReturn(true);
+		
+		try (final JobRunner runner = new JobRunner(storage, 2, 0)) {
+			runner.runJobs();
+		}
+		
+		verify(storage).finishJob(eq(ID), anyString(), eq(JobState.COMPLETE), eq(6L), eq(4L),
+				eq(Optional.absent()));
+	}
+	
+	@Test
+	public void canceled() throws Exception {
+		final AuthStorage storage = mock(AuthStorage.class);
+		when(storage.claimJob(anyString(), any(Instant.class))).thenReturn(
+				Optional.of(job(JobType.FORCE_PASSWORD_RESET).build()), Optional.absent());
+		when(storage.forcePasswordReset(CREATED, Optional.absent(), 2))
+				.thenReturn(new JobBatch(2, 0, Optional.of("cp1"), false));
+		when(storage.updateJob(eq(ID), anyString(), eq(2L), eq(0L), eq(Optional.of("cp1")),
+				any(Instant.class))).thenReturn(false);
+		
+		try (final JobRunner runner = new JobRunner(storage, 2, 0)) {
+			runner.runJobs();
+		}
+		
+		verify(storage, never()).forcePasswordReset(CREATED, Optional.of("cp1"), 2);
+		verify(storage, never()).finishJob(any(UUID.class), anyString(), any(JobState.class),
+				anyLong(), anyLong(), any());
+	}
+	
+	@Test
+	public void failOnBatchError() throws Exception {
+		final AuthStorage storage = mock(AuthStorage.class);
+		when(storage.claimJob(anyString(), any(Instant.class))).thenReturn(
+				Optional.of(job(JobType.DELETE_CUSTOM_ROLE).withTarget("role").build()),
+				Optional.absent());
+		when(storage.deleteCustomRole("role", Optional.absent(), 2))
+				.thenThrow(new IllegalParameterException("bad role"));
+		
+		try (final JobRunner runner = new JobRunner(storage, 2, 0)) {
+			runner.runJobs();
+		}
+		
+		verify(storage).finishJob(eq(ID), anyString(), eq(JobState.FAILED), eq(0L), eq(0L),
+				eq(Optional.of("30001 Illegal input parameter: bad role")));
+	}
+	
+	@Test
+	public void failOnMissingTarget() throws Exception {
+		final AuthStorage storage = mock(AuthStorage.class);
+		when(storage.claimJob(anyString(), any(Instant.class))).thenReturn(
+				Optional.of(job(JobType.DELETE_CUSTOM_ROLE).build()), Optional.absent());
+		
+		try (final JobRunner runner = new JobRunner(storage, 2, 0)) {
+			runner.runJobs();
+		}
+		
+		verify(storage, never()).deleteCustomRole(anyString(), any(), anyInt());
+		verify(storage).finishJob(eq(ID), anyString(), eq(JobState.FAILED), eq(0L), eq(0L),
+				eq(Optional.of("Job has no target")));
+	}
+	
+	@Test
+	public void closedRunnerReleasesJob() throws Exception {
+		final AuthStorage storage = mock(AuthStorage.class);
+		final JobRunner runner = new JobRunner(storage, 2, 0);
+		when(storage.claimJob(anyString(), any(Instant.class))).thenReturn(
+				Optional.of(job(JobType.REVOKE_ALL_TOKENS).build()), Optional.absent());
+		when(storage.deleteTokens(CREATED, Optional.absent(), 2)).thenAnswer(inv -> {
+			runner.close();
+			return new JobBatch(2, 2, Optional.of("cp1"), false);
+		});
+		
+		runner.runJobs();
+		
+		verify(storage, never()).deleteTokens(CREATED, Optional.of("cp1"), 2);
+		verify(storage).updateJob(eq(ID), anyString(), eq(2L), eq(2L), eq(Optional.of("cp1")),
+				any(Instant.class));
+		verify(storage).claimJob(anyString(), any(Instant.class));
+	}
+}
@@ -0,0 +1,289 @@
+package us.kbase.test.auth2.lib.job;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+
+import java.time.Instant;
+import java.util.UUID;
+
+import org.junit.Test;
+
+import com.google.common.base.Optional;
+
+import nl.jqno.equalsverifier.EqualsVerifier;
+import us.kbase.auth2.lib.UserName;
+import us.kbase.auth2.lib.job.Job;
+import us.kbase.auth2.lib.job.JobBatch;
+import us.kbase.auth2.lib.job.JobState;
+import us.kbase.auth2.lib.job.JobType;
+import us.kbase.test.auth2.TestCommon;
+
+public class JobTest {
+	
+	private static final UUID ID = UUID.randomUUID();
+	private static final UserName ADMIN;
+	static {
+		try {
+			ADMIN = new UserName("admin");
+		} catch (Exception e) {
+			throw new RuntimeException("Fix yer tests nub", e);
+		}
+	}
+	
+	@Test
+	public void equals() throws Exception {
+		EqualsVerifier.forClass(Job.class).usingGetClass().verify();
+		EqualsVerifier.forClass(JobBatch.class).usingGetClass().verify();
+	}
+	
+	@Test
+	public void jobTypes() throws Exception {
+		assertThat("incorrect id", JobType.REVOKE_ALL_TOKENS.getID(), is("RevokeAllTokens"));
+		assertThat("incorrect desc", JobType.REVOKE_ALL_TOKENS.getDescription(),
+				is("Revoke all tokens"));
+		assertThat("incorrect id", JobType.FORCE_PASSWORD_RESET.getID(), is("ForcePwdReset"));
+		assertThat("incorrect desc", JobType.FORCE_PASSWORD_RESET.getDescription(),
+				is("Force password reset for all local users"));
+		assertThat("incorrect id", JobType.REMOVE_POLICY_ID.getID(), is("RemovePolicyID"));
+		assertThat("incorrect desc", JobType.REMOVE_POLICY_ID.getDescription(),
+				is("Remove policy ID"));
+		assertThat("incorrect id", JobType.DELETE_CUSTOM_ROLE.getID(), is("DeleteCustomRole"));
+		assertThat("incorrect desc", JobType.DELETE_CUSTOM_ROLE.getDescription(),
+				is("Delete custom role"));
+	}
+	
+	@Test
+	public void jobTypeGetType() throws Exception {
+		assertThat("incorrect type", JobType.getType("RevokeAllTokens"),
+				is(JobType.REVOKE_ALL_TOKENS));
+		assertThat("incorrect type", JobType.getType("ForcePwdReset"),
+				is(JobType.FORCE_PASSWORD_RESET));
+		assertThat("incorrect type", JobType.getType("RemovePolicyID"),
+				is(JobType.REMOVE_POLICY_ID));
+		assertThat("incorrect type", JobType.getType("DeleteCustomRole"),
+				is(JobType.DELETE_CUSTOM_ROLE));
+		try {
+			JobType.getType("foo");
+			fail("expected exception");
+		} catch (Exception got) {
+			TestCommon.assertExceptionCorrect(got,
+					new IllegalArgumentException("Invalid job type: foo"));
+		}
+	}
+	
+	@Test
+	public void jobStates() throws Exception {
+		assertThat("incorrect id", JobState.QUEUED.getID(), is("queued"));
+		assertThat("incorrect finished", JobState.QUEUED.isFinished(), is(false));
+		assertThat("incorrect id", JobState.RUNNING.getID(), is("running"));
+		assertThat("incorrect finished", JobState.RUNNING.isFinished(), is(false));
+		assertThat("incorrect id", JobState.COMPLETE.getID(), is("complete"));
+		assertThat("incorrect finished", JobState.COMPLETE.isFinished(), is(true));
+		assertThat("incorrect id", JobState.CANCELED.getID(), is("canceled"));
+		assertThat("incorrect finished", JobState.CANCELED.isFinished(), is(true));
+		assertThat("incorrect id", JobState.FAILED.getID(), is("failed"));
+		assertThat("incorrect finished", JobState.FAILED.isFinished(), is(true));
+	}
+	
+	@Test
+	public void jobStateGetState() throws Exception {
+		assertThat("incorrect state", JobState.getState("queued"), is(JobState.QUEUED));
+		assertThat("incorrect state", JobState.getState("running"), is(JobState.RUNNING));
+		assertThat("incorrect state", JobState.getState("complete"), is(JobState.COMPLETE));
+		assertThat("incorrect state", JobState.getState("canceled"), is(JobState.CANCELED));
+		assertThat("incorrect state", JobState.getState("failed"), is(JobState.FAILED));
+		try {
+			JobState.getState("foo");
+			fail("expected exception");
+		} catch (Exception got) {
+			TestCommon.assertExceptionCorrect(got,
+					new IllegalArgumentException("Invalid job state: foo"));
+		}
+	}
+	
+	@Test
+	public void buildMinimal() throws Exception {
+		final Job j = Job.getBuilder(ID, JobType.REVOKE_ALL_TOKENS, ADMIN,
+				Instant.ofEpochMilli(10000)).build();
+		
+		assertThat("incorrect id", j.getId(), is(ID));
+		assertThat("incorrect type", j.getType(), is(JobType.REVOKE_ALL_TOKENS));
+		assertThat("incorrect target", j.getTarget(), is(Optional.absent()));
+		assertThat("incorrect admin", j.getAdmin(), is(ADMIN));
+		assertThat("incorrect created", j.getCreated(), is(Instant.ofEpochMilli(10000)));
+		assertThat("incorrect state", j.getState(), is(JobState.QUEUED));
+		assertThat("incorrect updated", j.getUpdated(), is(Instant.ofEpochMilli(10000)));
+		assertThat("incorrect processed", j.getProcessed(), is(0L));
+		assertThat("incorrect modified", j.getModified(), is(0L));
+		assertThat("incorrect checkpoint", j.getCheckpoint(), is(Optional.absent()));
+		assertThat("incorrect error", j.getError(), is(Optional.absent()));
+	}
+	
+	@Test
+	public void buildMaximal() throws Exception {
+		final Job j = Job.getBuilder(ID, JobType.REMOVE_POLICY_ID, ADMIN,
+				Instant.ofEpochMilli(10000))
+				.withTarget("pid")
+				.withState(JobState.FAILED, Instant.ofEpochMilli(20000))
+				.withProgress(42, 17, "cp")
+				.withError("oops")
+				.build();
+		
+		assertThat("incorrect id", j.getId(), is(ID));
+		assertThat("incorrect type", j.getType(), is(JobType.REMOVE_POLICY_ID));
+		assertThat("incorrect target", j.getTarget(), is(Optional.of("pid")));
+		assertThat("incorrect admin", j.getAdmin(), is(ADMIN));
+		assertThat("incorrect created", j.getCreated(), is(Instant.ofEpochMilli(10000)));
+		assertThat("incorrect state", j.getState(), is(JobState.FAILED));
+		assertThat("incorrect updated", j.getUpdated(), is(Instant.ofEpochMilli(20000)));
+		assertThat("incorrect processed", j.getProcessed(), is(42L));
+		assertThat("incorrect modified", j.getModified(), is(17L));
+		assertThat("incorrect checkpoint", j.getCheckpoint(), is(Optional.of("cp")));
+		assertThat("incorrect error", j.getError(), is(Optional.of("oops")));
+	}
+	
+	@Test
+	public void buildNullCheckpoint() throws Exception {
+		final Job j = Job.getBuilder(ID, JobType.REVOKE_ALL_TOKENS, ADMIN,
+				Instant.ofEpochMilli(10000))
+				.withProgress(0, 0, null)
+				.build();
+		
+		assertThat("incorrect processed", j.getProcessed(), is(0L));
+		assertThat("incorrect checkpoint", j.getCheckpoint(), is(Optional.absent()));
+	}
+	
+	@Test
+	public void getBuilderFail() throws Exception {
+		final JobType t = JobType.REVOKE_ALL_TOKENS;
+		final Instant c = Instant.now();
+		failGetBuilder(null, t, ADMIN, c, new NullPointerException("id"));
+		failGetBuilder(ID, null, ADMIN, c, new NullPointerException("type"));
+		failGetBuilder(ID, t, null, c, new NullPointerException("admin"));
+		failGetBuilder(ID, t, ADMIN, null, new NullPointerException("created"));
+	}
+	
+	private void failGetBuilder(
+			final UUID id,
+			final JobType type,
+			final UserName admin,
+			final Instant created,
+			final Exception expected) {
+		try {
+			Job.getBuilder(id, type, admin, created);
+			fail("expected exception");
+		} catch (Exception got) {
+			TestCommon.assertExceptionCorrect(got, expected);
+		}
+	}
+	
+	@Test
+	public void withTargetFail() throws Exception {
+		failWithTarget(null);
+		failWithTarget("   \t   ");
+	}
+	
+	private void failWithTarget(final String target) {
+		try {
+			Job.getBuilder(ID, JobType.REMOVE_POLICY_ID, ADMIN, Instant.now())
+					.withTarget(target);
+			fail("expected exception");
+		} catch (Exception got) {
+			TestCommon.assertExceptionCorrect(got,
+					new IllegalArgumentException("Missing argument: target"));
+		}
+	}
+	
+	@Test
+	public void withStateFail() throws Exception {
+		failWithState(null, Instant.now(), new NullPointerException("state"));
+		failWithState(JobState.RUNNING, null, new NullPointerException("updated"));
+	}
+	
+	private void failWithState(
+			final JobState state,
+			final Instant updated,
+			final Exception expected) {
+		try {
+			Job.getBuilder(ID, JobType.REMOVE_POLICY_ID, ADMIN, Instant.now())
+					.withState(state, updated);
+			fail("expected exception");
+		} catch (Exception got) {
+			TestCommon.assertExceptionCorrect(got, expected);
+		}
+	}
+	
+	@Test
+	public void withProgressFail() throws Exception {
+		failWithProgress(-1, 0, "processed must be at least 0");
+		failWithProgress(1, -1, "modified must be between 0 and processed");
+		failWithProgress(1, 2, "modified must be between 0 and processed");
+	}
+	
+	private void failWithProgress(final long processed, final long modified, final String err) {
+		try {
+			Job.getBuilder(ID, JobType.REMOVE_POLICY_ID, ADMIN, Instant.now())
+					.withProgress(processed, modified, "cp");
+			fail("expected exception");
+		} catch (Exception got) {
+			TestCommon.assertExceptionCorrect(got, new IllegalArgumentException(err));
+		}
+	}
+	
+	@Test
+	public void withErrorFail() throws Exception {
+		failWithError(null);
+		failWithError("   \t   ");
+	}
+	
+	private void failWithError(final String error) {
+		try {
+			Job.getBuilder(ID, JobType.REMOVE_POLICY_ID, ADMIN, Instant.now())
+					.withError(error);
+			fail("expected exception");
+		} catch (Exception got) {
+			TestCommon.assertExceptionCorrect(got,
+					new IllegalArgumentException("Missing argument: error"));
+		}
+	}
+	
+	@Test
+	public void jobBatch() throws Exception {
+		final JobBatch b = new JobBatch(3, 2, Optional.of("cp"), true);
+		assertThat("incorrect processed", b.getProcessed(), is(3L));
+		assertThat("incorrect modified", b.getModified(), is(2L));
+		assertThat("incorrect checkpoint", b.getCheckpoint(), is(Optional.of("cp")));
+		assertThat("incorrect complete", b.isComplete(), is(true));
+		
+		final JobBatch b2 = new JobBatch(0, 0, Optional.absent(), false);
+		assertThat("incorrect processed", b2.getProcessed(), is(0L));
+		assertThat("incorrect modified", b2.getModified(), is(0L));
+		assertThat("incorrect checkpoint", b2.getCheckpoint(), is(Optional.absent()));
+		assertThat("incorrect complete", b2.isComplete(), is(false));
+	}
+	
+	@Test
+	public void jobBatchFail() throws Exception {
+		failJobBatch(-1, 0, Optional.absent(),
+				new IllegalArgumentException("processed must be at least 0"));
+		failJobBatch(1, -1, Optional.absent(),
+				new IllegalArgumentException("modified must be between 0 and processed"));
+		failJobBatch(1, 2, Optional.absent(),
+				new IllegalArgumentException("modified must be between 0 and processed"));
+		failJobBatch(1, 1, null, new NullPointerException("checkpoint"));
+	}
+	
+	private void failJobBatch(
+			final long processed,
+			final long modified,
+			final Optional<String> checkpoint,
+			final Exception expected) {
+		try {
+			new JobBatch(processed, modified, checkpoint, false);
+			fail("expected exception");
+		} catch (Exception got) {
+			TestCommon.assertExceptionCorrect(got, expected);
+		}
+	}
+}
@@ -4,6 +4,7 @@ import static org.hamcrest.CoreMatchers.is;
 import static org.junit.Assert.assertThat;
 import static org.junit.Assert.fail;
 
+import java.time.Instant;
 import java.util.Map;
 
 import org.junit.Test;
@@ -281,4 +282,64 @@ public class MongoStorageConfigTest extends MongoStorageTester {
 			TestCommon.assertExceptionCorrect(got, new NullPointerException("cfgSet"));
 		}
 	}
+	
+	@Test
+	public void getNoCutoffs() throws Exception {
+		assertThat("incorrect cutoff", storage.getTokenRevocationCutoff(), is(Optional.absent()));
+		assertThat("incorrect cutoff", storage.getPasswordResetCutoff(), is(Optional.absent()));
+	}
+	
+	@Test
+	public void setAndGetTokenRevocationCutoff() throws Exception {
+		storage.setTokenRevocationCutoff(Instant.ofEpochMilli(20000));
+		assertThat("incorrect cutoff", storage.getTokenRevocationCutoff(),
+				is(Optional.of(Instant.ofEpochMilli(20000))));
+		// an earlier cutoff, e.g. from a slower server, does not move the cutoff backwards
+		storage.setTokenRevocationCutoff(Instant.ofEpochMilli(10000));
+		assertThat("incorrect cutoff", storage.getTokenRevocationCutoff(),
+				is(Optional.of(Instant.ofEpochMilli(20000))));
+		storage.setTokenRevocationCutoff(Instant.ofEpochMilli(30000));
+		assertThat("incorrect cutoff", storage.getTokenRevocationCutoff(),
+				is(Optional.of(Instant.ofEpochMilli(30000))));
+		// the cutoffs are independent
+		assertThat("incorrect cutoff", storage.getPasswordResetCutoff(), is(Optional.absent()));
+	}
+	
+	@Test
+	public void setAndGetPasswordResetCutoff() throws Exception {
+		storage.setPasswordResetCutoff(Instant.ofEpochMilli(20000));
+		assertThat("incorrect cutoff", storage.getPasswordResetCutoff(),
+				is(Optional.of(Instant.ofEpochMilli(20000))));
+		storage.setPasswordResetCutoff(Instant.ofEpochMilli(10000));
+		assertThat("incorrect cutoff", storage.getPasswordResetCutoff(),
+				is(Optional.of(Instant.ofEpochMilli(20000))));
+		storage.setPasswordResetCutoff(Instant.ofEpochMilli(30000));
+		assertThat("incorrect cutoff", storage.getPasswordResetCutoff(),
+				is(Optional.of(Instant.ofEpochMilli(30000))));
+		assertThat("incorrect cutoff", storage.getTokenRevocationCutoff(), is(Optional.absent()));
+	}
+	
+	@Test
+	public void cutoffsDoNotAlterConfig() throws Exception {
+		storage.setTokenRevocationCutoff(Instant.ofEpochMilli(20000));
+		storage.setPasswordResetCutoff(Instant.ofEpochMilli(20000));
+		assertThat("incorrect config", storage.getConfig(new TestExternalConfigMapper()).getCfg(),
+				is(new AuthConfig(false, null, null)));
+	}
+	
+	@Test
+	public void setCutoffFail() throws Exception {
+		try {
+			storage.setTokenRevocationCutoff(null);
+			fail("expected exception");
+		} catch (Exception got) {
+			TestCommon.assertExceptionCorrect(got, new NullPointerException("cutoff"));
+		}
+		try {
+			storage.setPasswordResetCutoff(null);
+			fail("expected exception");
+		} catch (Exception got) {
+			TestCommon.assertExceptionCorrect(got, new NullPointerException("cutoff"));
+		}
+	}
 }
@@ -13,6 +13,8 @@ import java.util.Set;
 import org.bson.Document;
 import org.junit.Test;
 
+import com.google.common.base.Optional;
+
 import us.kbase.auth2.lib.CustomRole;
 import us.kbase.auth2.lib.DisplayName;
 import us.kbase.auth2.lib.UserName;
@@ -52,15 +54,6 @@ public class MongoStorageCustomRoleTest extends MongoStorageTester {
 				is(set(new CustomRole("foo1", "bar1"), new CustomRole("foo", "baz"))));
 	}
 	
-	@Test
-	public void deleteCustomRole() throws Exception {
-		storage.setCustomRole(new CustomRole("foo", "bar"));
-		storage.setCustomRole(new CustomRole("foo1", "bar1"));
-		storage.deleteCustomRole("foo");
-		assertThat("incorrect custom roles", storage.getCustomRoles(),
-				is(set(new CustomRole("foo1", "bar1"))));
-	}
-	
 	@Test
 	public void createRoleFail() throws Exception {
 		try {
@@ -83,14 +76,9 @@ public class MongoStorageCustomRoleTest extends MongoStorageTester {
 				"Illegal character in custom role id foo*bar: *"));
 	}
 	
-	@Test
-	public void deleteRoleFailNoSuchRole() {
-		failDeleteRole("foo", new NoSuchRoleException("foo"));
-	}
-	
 	private void failDeleteRole(final String roleId, final Exception e) {
 		try {
-			storage.deleteCustomRole(roleId);
+			storage.deleteCustomRole(roleId, Optional.absent(), 1);
 			fail("expected exception");
 		} catch (Exception got) {
 			TestCommon.assertExceptionCorrect(got, e);
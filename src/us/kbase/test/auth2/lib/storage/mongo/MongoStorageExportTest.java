@@ -0,0 +1,145 @@
+package us.kbase.test.auth2.lib.storage.mongo;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+
+import static us.kbase.test.auth2.TestCommon.set;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.UUID;
+
+import org.bson.Document;
+import org.junit.Test;
+
+import us.kbase.auth2.lib.CustomRole;
+import us.kbase.auth2.lib.DisplayName;
+import us.kbase.auth2.lib.PasswordHashAndSalt;
+import us.kbase.auth2.lib.PolicyID;
+import us.kbase.auth2.lib.Role;
+import us.kbase.auth2.lib.UserName;
+import us.kbase.auth2.lib.identity.RemoteIdentity;
+import us.kbase.auth2.lib.identity.RemoteIdentityDetails;
+import us.kbase.auth2.lib.identity.RemoteIdentityID;
+import us.kbase.auth2.lib.token.StoredToken;
+import us.kbase.auth2.lib.token.TokenName;
+import us.kbase.auth2.lib.token.TokenType;
+import us.kbase.auth2.lib.user.AuthUser;
+import us.kbase.auth2.lib.user.LocalUser;
+import us.kbase.auth2.lib.user.NewUser;
+import us.kbase.test.auth2.TestCommon;
+
+public class MongoStorageExportTest extends MongoStorageTester {
+	
+	private static final Instant NOW = Instant.ofEpochMilli(10000);
+	
+	private static final RemoteIdentity REMOTE1 = new RemoteIdentity(
+			new RemoteIdentityID("prov", "bar1"),
+			new RemoteIdentityDetails("user1", "full1", "email1"));
+	
+	private static final RemoteIdentity REMOTE2 = new RemoteIdentity(
+			new RemoteIdentityID("prov", "bar2"),
+			new RemoteIdentityDetails("user2", "full2", "email2"));
+	
+	@Test
+	public void exportNoUsers() throws Exception {
+		final List<AuthUser> users = new LinkedList<>();
+		storage.exportUsers(u -> users.add(u));
+		
+		assertThat("incorrect users", users, is(Collections.emptyList()));
+	}
+	
+	@Test
+	public void exportUsers() throws Exception {
+		final byte[] pwd = "foobarbaz1".getBytes(StandardCharsets.UTF_8);
+		final byte[] salt = "wo".getBytes(StandardCharsets.UTF_8);
+		storage.setCustomRole(new CustomRole("foo", "desc"));
+		storage.setCustomRole(new CustomRole("bar", "desc"));
+		storage.createUser(NewUser.getBuilder(new UserName("whoo"), new DisplayName("d1"), NOW,
+				REMOTE1)
+				.withPolicyID(new PolicyID("pid"), NOW)
+				.withLastLogin(Instant.ofEpochMilli(20000))
+				.withRole(Role.DEV_TOKEN)
+				.withCustomRole("foo")
+				.withCustomRole("bar")
+				.build());
+		storage.link(new UserName("whoo"), REMOTE2);
+		storage.createLocalUser(LocalUser.getLocalUserBuilder(
+				new UserName("abc"), new DisplayName("d2"), NOW).build(),
+				new PasswordHashAndSalt(pwd, salt));
+		storage.testModeCreateUser(new UserName("test"), new DisplayName("d3"), NOW,
+				Instant.now().plusSeconds(3600));
+		
+		// a role that was deleted without being removed from the users is ignored
+		db.getCollection("cust_roles").deleteOne(new Document("id", "bar"));
+		
+		final List<AuthUser> users = new LinkedList<>();
+		storage.exportUsers(u -> users.add(u));
+		
+		assertThat("incorrect users", users, is(Arrays.asList(
+				storage.getUser(new UserName("abc")),
+				storage.getUser(new UserName("whoo")))));
+		assertThat("incorrect custom roles", users.get(1).getCustomRoles(), is(set("foo")));
+	}
+	
+	@Test
+	public void exportTokens() throws Exception {
+		final UUID id1 = UUID.randomUUID();
+		final UUID id2 = UUID.randomUUID();
+		final StoredToken t1 = StoredToken.getBuilder(TokenType.DEV, id1, new UserName("u1"))
+				.withLifeTime(NOW, Instant.now().plusSeconds(3600))
+				.withTokenName(new TokenName("tok"))
+				.build();
+		final StoredToken t2 = StoredToken.getBuilder(TokenType.LOGIN, id2, new UserName("u2"))
+				.withLifeTime(NOW, Instant.now().plusSeconds(3600))
+				.build();
+		storage.storeToken(t1, "hash1");
+		storage.storeToken(t2, "hash2");
+		storage.testModeStoreToken(StoredToken.getBuilder(
+				TokenType.LOGIN, UUID.randomUUID(), new UserName("u3"))
+				.withLifeTime(NOW, Instant.now().plusSeconds(3600)).build(), "hash3");
+		
+		final List<StoredToken> tokens = new LinkedList<>();
+		storage.exportTokens(t -> tokens.add(t));
+		
+		// in insertion order
+		assertThat("incorrect tokens", tokens, is(Arrays.asList(t1, t2)));
+	}
+	
+	@Test
+	public void exportHandlerFail() throws Exception {
+		storage.storeToken(StoredToken.getBuilder(TokenType.LOGIN, UUID.randomUUID(),
+				new UserName("u1")).withLifeTime(NOW, Instant.now().plusSeconds(3600)).build(),
+				"hash1");
+		try {
+			storage.exportTokens(t -> {
+				throw new IOException("disk full");
+			});
+			fail("expected exception");
+		} catch (Exception got) {
+			TestCommon.assertExceptionCorrect(got, new IOException("disk full"));
+		}
+	}
+	
+	@Test
+	public void exportFailNull() throws Exception {
+		try {
+			storage.exportUsers(null);
+			fail("expected exception");
+		} catch (Exception got) {
+			TestCommon.assertExceptionCorrect(got, new NullPointerException("handler"));
+		}
+		try {
+			storage.exportTokens(null);
+			fail("expected exception");
+		} catch (Exception got) {
+			TestCommon.assertExceptionCorrect(got, new NullPointerException("handler"));
+		}
+	}
+}
@@ -0,0 +1,592 @@
+package us.kbase.test.auth2.lib.storage.mongo;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+import static org.mockito.Mockito.when;
+
+import static us.kbase.test.auth2.TestCommon.set;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.UUID;
+
+import org.junit.Test;
+
+import com.google.common.base.Optional;
+
+import us.kbase.auth2.lib.CustomRole;
+import us.kbase.auth2.lib.DisplayName;
+import us.kbase.auth2.lib.PasswordHashAndSalt;
+import us.kbase.auth2.lib.PolicyID;
+import us.kbase.auth2.lib.UserName;
+import us.kbase.auth2.lib.exceptions.NoSuchJobException;
+import us.kbase.auth2.lib.identity.RemoteIdentity;
+import us.kbase.auth2.lib.identity.RemoteIdentityDetails;
+import us.kbase.auth2.lib.identity.RemoteIdentityID;
+import us.kbase.auth2.lib.job.Job;
+import us.kbase.auth2.lib.job.JobBatch;
+import us.kbase.auth2.lib.job.JobState;
+import us.kbase.auth2.lib.job.JobType;
+import us.kbase.auth2.lib.token.StoredToken;
+import us.kbase.auth2.lib.token.TokenType;
+import us.kbase.auth2.lib.user.LocalUser;
+import us.kbase.auth2.lib.user.NewUser;
+import us.kbase.test.auth2.TestCommon;
+
+public class MongoStorageJobsTest extends MongoStorageTester {
+	
+	private static final UserName ADMIN;
+	static {
+		try {
+			ADMIN = new UserName("admin");
+		} catch (Exception e) {
+			throw new RuntimeException("Fix yer tests nub", e);
+		}
+	}
+	private static final UUID ID1 = UUID.randomUUID();
+	private static final UUID ID2 = UUID.randomUUID();
+	
+	private static final RemoteIdentity REMOTE1 = new RemoteIdentity(
+			new RemoteIdentityID("prov", "bar1"),
+			new RemoteIdentityDetails("user1", "full1", "email1"));
+	
+	private static final RemoteIdentity REMOTE2 = new RemoteIdentity(
+			new RemoteIdentityID("prov", "bar2"),
+			new RemoteIdentityDetails("user2", "full2", "email2"));
+	
+	private static final RemoteIdentity REMOTE3 = new RemoteIdentity(
+			new RemoteIdentityID("prov", "bar3"),
+			new RemoteIdentityDetails("user3", "full3", "email3"));
+	
+	private static Job.Builder job(final UUID id, final long created) {
+		return Job.getBuilder(id, JobType.REVOKE_ALL_TOKENS, ADMIN,
+				Instant.ofEpochMilli(created));
+	}
+	
+	@Test
+	public void createAndGetMinimal() throws Exception {
+		storage.createJob(job(ID1, 10000).build());
+		
+		assertThat("incorrect job", storage.getJob(ID1), is(job(ID1, 10000).build()));
+	}
+	
+	@Test
+	public void createAndGetMaximal() throws Exception {
+		final Job j = Job.getBuilder(ID1, JobType.REMOVE_POLICY_ID, ADMIN,
+				Instant.ofEpochMilli(10000))
+				.withTarget("pid")
+				.withState(JobState.FAILED, Instant.ofEpochMilli(20000))
+				.withProgress(42, 17, "somecheckpoint")
+				.withError("oops")
+				.build();
+		storage.createJob(j);
+		
+		assertThat("incorrect job", storage.getJob(ID1), is(j));
+	}
+	
+	@Test
+	public void createJobFailNull() throws Exception {
+		failCreateJob(null, new NullPointerException("job"));
+	}
+	
+	@Test
+	public void createJobFailDuplicate() throws Exception {
+		storage.createJob(job(ID1, 10000).build());
+		failCreateJob(job(ID1, 20000).build(), new IllegalArgumentException(
+				"Job ID " + ID1 + " already exists in the database"));
+	}
+	
+	private void failCreateJob(final Job job, final Exception expected) {
+		try {
+			storage.createJob(job);
+			fail("expected exception");
+		} catch (Exception got) {
+			TestCommon.assertExceptionCorrect(got, expected);
+		}
+	}
+	
+	@Test
+	public void getJobFail() throws Exception {
+		storage.createJob(job(ID1, 10000).build());
+		failGetJob(null, new NullPointerException("id"));
+		failGetJob(ID2, new NoSuchJobException(ID2.toString()));
+	}
+	
+	private void failGetJob(final UUID id, final Exception expected) {
+		try {
+			storage.getJob(id);
+			fail("expected exception");
+		} catch (Exception got) {
+			TestCommon.assertExceptionCorrect(got, expected);
+		}
+	}
+	
+	@Test
+	public void getJobs() throws Exception {
+		final UUID id3 = UUID.randomUUID();
+		storage.createJob(job(ID1, 20000).build());
+		storage.createJob(job(ID2, 10000).build());
+		storage.createJob(job(id3, 30000).build());
+		
+		assertThat("incorrect jobs", storage.getJobs(10), is(Arrays.asList(
+				job(id3, 30000).build(), job(ID1, 20000).build(), job(ID2, 10000).build())));
+		assertThat("incorrect jobs", storage.getJobs(2), is(Arrays.asList(
+				job(id3, 30000).build(), job(ID1, 20000).build())));
+	}
+	
+	@Test
+	public void getJobsEmpty() throws Exception {
+		assertThat("incorrect jobs", storage.getJobs(10), is(Collections.emptyList()));
+	}
+	
+	@Test
+	public void getJobsFailBadLimit() throws Exception {
+		try {
+			storage.getJobs(0);
+			fail("expected exception");
+		} catch (Exception got) {
+			TestCommon.assertExceptionCorrect(got,
+					new IllegalArgumentException("limit must be at least 1"));
+		}
+	}
+	
+	@Test
+	public void claimJobOldestFirst() throws Exception {
+		storage.createJob(job(ID1, 20000).build());
+		storage.createJob(job(ID2, 10000).build());
+		when(mockClock.instant()).thenReturn(Instant.ofEpochMilli(30000),
+				Instant.ofEpochMilli(40000), Instant.ofEpochMilli(50000), null);
+		
+		assertThat("incorrect job", storage.claimJob("owner1", Instant.ofEpochMilli(100000)),
+				is(Optional.of(job(ID2, 10000)
+						.withState(JobState.RUNNING, Instant.ofEpochMilli(30000)).build())));
+		assertThat("incorrect job", storage.claimJob("owner2", Instant.ofEpochMilli(100000)),
+				is(Optional.of(job(ID1, 20000)
+						.withState(JobState.RUNNING, Instant.ofEpochMilli(40000)).build())));
+		assertThat("incorrect job", storage.claimJob("owner3", Instant.ofEpochMilli(100000)),
+				is(Optional.absent()));
+	}
+	
+	@Test
+	public void claimJobExpiredLease() throws Exception {
+		storage.createJob(job(ID1, 10000).build());
+		when(mockClock.instant()).thenReturn(Instant.ofEpochMilli(20000),
+				Instant.ofEpochMilli(50000), Instant.ofEpochMilli(70000), null);
+		
+		storage.claimJob("owner1", Instant.ofEpochMilli(60000));
+		// lease not yet expired
+		assertThat("incorrect job", storage.claimJob("owner2", Instant.ofEpochMilli(100000)),
+				is(Optional.absent()));
+		assertThat("incorrect job", storage.claimJob("owner2", Instant.ofEpochMilli(100000)),
+				is(Optional.of(job(ID1, 10000)
+						.withState(JobState.RUNNING, Instant.ofEpochMilli(70000)).build())));
+	}
+	
+	@Test
+	public void claimJobIgnoreFinished() throws Exception {
+		storage.createJob(job(ID1, 10000)
+				.withState(JobState.COMPLETE, Instant.ofEpochMilli(20000)).build());
+		storage.createJob(job(ID2, 10000)
+				.withState(JobState.CANCELED, Instant.ofEpochMilli(20000)).build());
+		when(mockClock.instant()).thenReturn(Instant.ofEpochMilli(30000), null);
+		
+		assertThat("incorrect job", storage.claimJob("owner1", Instant.ofEpochMilli(100000)),
+				is(Optional.absent()));
+	}
+	
+	@Test
+	public void claimJobFail() throws Exception {
+		failClaimJob(null, Instant.now(), new IllegalArgumentException(
+				"Missing argument: owner"));
+		failClaimJob("   \t  ", Instant.now(), new IllegalArgumentException(
+				"Missing argument: owner"));
+		failClaimJob("foo", null, new NullPointerException("leaseExpires"));
+	}
+	
+	private void failClaimJob(
+			final String owner,
+			final Instant lease,
+			final Exception expected) {
+		try {
+			storage.claimJob(owner, lease);
+			fail("expected exception");
+		} catch (Exception got) {
+			TestCommon.assertExceptionCorrect(got, expected);
+		}
+	}
+	
+	@Test
+	public void updateAndFinishJob() throws Exception {
+		storage.createJob(job(ID1, 10000).build());
+		when(mockClock.instant()).thenReturn(Instant.ofEpochMilli(20000),
+				Instant.ofEpochMilli(30000), Instant.ofEpochMilli(40000), null);
+		storage.claimJob("owner1", Instant.ofEpochMilli(100000));
+		
+		assertThat("incorrect update", storage.updateJob(ID1, "owner1", 10, 4, Optional.of("cp"),
+				Instant.ofEpochMilli(200000)), is(true));
+		assertThat("incorrect job", storage.getJob(ID1), is(job(ID1, 10000)
+				.withState(JobState.RUNNING, Instant.ofEpochMilli(30000))
+				.withProgress(10, 4, "cp").build()));
+		
+		assertThat("incorrect finish", storage.finishJob(ID1, "owner1", JobState.COMPLETE, 15, 6,
+				Optional.absent()), is(true));
+		assertThat("incorrect job", storage.getJob(ID1), is(job(ID1, 10000)
+				.withState(JobState.COMPLETE, Instant.ofEpochMilli(40000))
+				.withProgress(15, 6, "cp").build()));
+	}
+	
+	@Test
+	public void finishJobWithError() throws Exception {
+		storage.createJob(job(ID1, 10000).build());
+		when(mockClock.instant()).thenReturn(Instant.ofEpochMilli(20000),
+				Instant.ofEpochMilli(30000), null);
+		storage.claimJob("owner1", Instant.ofEpochMilli(100000));
+		
+		assertThat("incorrect finish", storage.finishJob(ID1, "owner1", JobState.FAILED, 0, 0,
+				Optional.of("oops")), is(true));
+		assertThat("incorrect job", storage.getJob(ID1), is(job(ID1, 10000)
+				.withState(JobState.FAILED, Instant.ofEpochMilli(30000))
+				.withError("oops").build()));
+	}
+	
+	@Test
+	public void updateAndFinishJobWrongOwner() throws Exception {
+		storage.createJob(job(ID1, 10000).build());
+		when(mockClock.instant()).thenReturn(Instant.ofEpochMilli(20000),
+				Instant.ofEpochMilli(30000), Instant.ofEpochMilli(40000), null);
+		storage.claimJob("owner1", Instant.ofEpochMilli(100000));
+		
+		assertThat("incorrect update", storage.updateJob(ID1, "owner2", 10, 4, Optional.of("cp"),
+				Instant.ofEpochMilli(200000)), is(false));
+		assertThat("incorrect finish", storage.finishJob(ID1, "owner2", JobState.COMPLETE, 15, 6,
+				Optional.absent()), is(false));
+		assertThat("incorrect job", storage.getJob(ID1), is(job(ID1, 10000)
+				.withState(JobState.RUNNING, Instant.ofEpochMilli(20000)).build()));
+	}
+	
+	@Test
+	public void updateJobNotRunning() throws Exception {
+		storage.createJob(job(ID1, 10000).build());
+		when(mockClock.instant()).thenReturn(Instant.ofEpochMilli(20000), null);
+		
+		assertThat("incorrect update", storage.updateJob(ID1, "owner1", 10, 4, Optional.of("cp"),
+				Instant.ofEpochMilli(200000)), is(false));
+		assertThat("incorrect job", storage.getJob(ID1), is(job(ID1, 10000).build()));
+	}
+	
+	@Test
+	public void updateJobFail() throws Exception {
+		final Optional<String> cp = Optional.absent();
+		final Instant l = Instant.now();
+		failUpdateJob(null, "o", 1, 1, cp, l, new NullPointerException("id"));
+		failUpdateJob(ID1, null, 1, 1, cp, l, new IllegalArgumentException(
+				"Missing argument: owner"));
+		failUpdateJob(ID1, "o", -1, 0, cp, l, new IllegalArgumentException(
+				"processed must be at least 0"));
+		failUpdateJob(ID1, "o", 1, -1, cp, l, new IllegalArgumentException(
+				"modified must be between 0 and processed"));
+		failUpdateJob(ID1, "o", 1, 2, cp, l, new IllegalArgumentException(
+				"modified must be between 0 and processed"));
+		failUpdateJob(ID1, "o", 1, 1, null, l, new NullPointerException("checkpoint"));
+		failUpdateJob(ID1, "o", 1, 1, cp, null, new NullPointerException("leaseExpires"));
+	}
+	
+	private void failUpdateJob(
+			final UUID id,
+			final String owner,
+			final long processed,
+			final long modified,
+			final Optional<String> checkpoint,
+			final Instant lease,
+			final Exception expected) {
+		try {
+			storage.updateJob(id, owner, processed, modified, checkpoint, lease);
+			fail("expected exception");
+		} catch (Exception got) {
+			TestCommon.assertExceptionCorrect(got, expected);
+		}
+	}
+	
+	@Test
+	public void finishJobFail() throws Exception {
+		final Optional<String> e = Optional.absent();
+		final JobState c = JobState.COMPLETE;
+		failFinishJob(null, "o", c, 1, 1, e, new NullPointerException("id"));
+		failFinishJob(ID1, null, c, 1, 1, e, new IllegalArgumentException(
+				"Missing argument: owner"));
+		failFinishJob(ID1, "o", null, 1, 1, e, new NullPointerException("state"));
+		failFinishJob(ID1, "o", JobState.RUNNING, 1, 1, e, new IllegalArgumentException(
+				"Job state must be a final state"));
+		failFinishJob(ID1, "o", c, -1, 0, e, new IllegalArgumentException(
+				"processed must be at least 0"));
+		failFinishJob(ID1, "o", c, 1, 2, e, new IllegalArgumentException(
+				"modified must be between 0 and processed"));
+		failFinishJob(ID1, "o", c, 1, 1, null, new NullPointerException("error"));
+	}
+	
+	private void failFinishJob(
+			final UUID id,
+			final String owner,
+			final JobState state,
+			final long processed,
+			final long modified,
+			final Optional<String> error,
+			final Exception expected) {
+		try {
+			storage.finishJob(id, owner, state, processed, modified, error);
+			fail("expected exception");
+		} catch (Exception got) {
+			TestCommon.assertExceptionCorrect(got, expected);
+		}
+	}
+	
+	@Test
+	public void cancelQueuedJob() throws Exception {
+		storage.createJob(job(ID1, 10000).build());
+		when(mockClock.instant()).thenReturn(Instant.ofEpochMilli(20000),
+				Instant.ofEpochMilli(30000), null);
+		
+		assertThat("incorrect cancel", storage.cancelJob(ID1), is(true));
+		assertThat("incorrect job", storage.getJob(ID1), is(job(ID1, 10000)
+				.withState(JobState.CANCELED, Instant.ofEpochMilli(20000)).build()));
+		// already canceled
+		assertThat("incorrect cancel", storage.cancelJob(ID1), is(false));
+	}
+	
+	@Test
+	public void cancelRunningJob() throws Exception {
+		storage.createJob(job(ID1, 10000).build());
+		when(mockClock.instant()).thenReturn(Instant.ofEpochMilli(20000),
+				Instant.ofEpochMilli(30000), Instant.ofEpochMilli(40000),
+				Instant.ofEpochMilli(50000), null);
+		storage.claimJob("owner1", Instant.ofEpochMilli(100000));
+		
+		assertThat("incorrect cancel", storage.cancelJob(ID1), is(true));
+		// the runner can no longer update the job
+		assertThat("incorrect update", storage.updateJob(ID1, "owner1", 10, 4, Optional.of("cp"),
+				Instant.ofEpochMilli(200000)), is(false));
+		assertThat("incorrect job", storage.getJob(ID1), is(job(ID1, 10000)
+				.withState(JobState.CANCELED, Instant.ofEpochMilli(30000)).build()));
+		// canceled jobs can't be claimed
+		assertThat("incorrect job", storage.claimJob("owner2", Instant.ofEpochMilli(100000)),
+				is(Optional.absent()));
+	}
+	
+	@Test
+	public void cancelJobFail() throws Exception {
+		when(mockClock.instant()).thenReturn(Instant.ofEpochMilli(20000), null);
+		failCancelJob(null, new NullPointerException("id"));
+		failCancelJob(ID1, new NoSuchJobException(ID1.toString()));
+	}
+	
+	private void failCancelJob(final UUID id, final Exception expected) {
+		try {
+			storage.cancelJob(id);
+			fail("expected exception");
+		} catch (Exception got) {
+			TestCommon.assertExceptionCorrect(got, expected);
+		}
+	}
+	
+	private void storeToken(final UserName user, final long created, final String hash)
+			throws Exception {
+		storage.storeToken(StoredToken.getBuilder(TokenType.LOGIN, UUID.randomUUID(), user)
+				.withLifeTime(Instant.ofEpochMilli(created), Instant.ofEpochMilli(1000000))
+				.build(), hash);
+	}
+	
+	@Test
+	public void deleteTokensBatched() throws Exception {
+		final UserName u = new UserName("foo");
+		storeToken(u, 10000, "hash1");
+		storeToken(u, 20000, "hash2");
+		storeToken(u, 30000, "hash3");
+		storeToken(u, 40000, "hash4"); // created after the job
+		
+		final JobBatch b1 = storage.deleteTokens(
+				Instant.ofEpochMilli(30000), Optional.absent(), 2);
+		assertThat("incorrect processed", b1.getProcessed(), is(2L));
+		assertThat("incorrect modified", b1.getModified(), is(2L));
+		assertThat("incorrect complete", b1.isComplete(), is(false));
+		assertThat("incorrect token count", storage.getTokens(u).size(), is(2));
+		
+		final JobBatch b2 = storage.deleteTokens(
+				Instant.ofEpochMilli(30000), b1.getCheckpoint(), 2);
+		assertThat("incorrect processed", b2.getProcessed(), is(1L));
+		assertThat("incorrect modified", b2.getModified(), is(1L));
+		assertThat("incorrect complete", b2.isComplete(), is(true));
+		assertThat("incorrect token count", storage.getTokens(u).size(), is(1));
+		assertThat("incorrect token", storage.getTokens(u).iterator().next().getCreationDate(),
+				is(Instant.ofEpochMilli(40000)));
+	}
+	
+	@Test
+	public void deleteTokensNoTokens() throws Exception {
+		assertThat("incorrect batch", storage.deleteTokens(
+				Instant.ofEpochMilli(30000), Optional.absent(), 2),
+				is(new JobBatch(0, 0, Optional.absent(), true)));
+	}
+	
+	@Test
+	public void forcePasswordResetBatched() throws Exception {
+		final byte[] pwd = "foobarbaz1".getBytes(StandardCharsets.UTF_8);
+		final byte[] salt = "wo".getBytes(StandardCharsets.UTF_8);
+		storage.createLocalUser(LocalUser.getLocalUserBuilder(
+				new UserName("foo"), new DisplayName("d"), Instant.now())
+				.withLastReset(Instant.ofEpochMilli(9999)).build(),
+				new PasswordHashAndSalt(pwd, salt));
+		for (final String name: Arrays.asList("bar", "baz")) {
+			storage.createLocalUser(LocalUser.getLocalUserBuilder(
+					new UserName(name), new DisplayName("d"), Instant.now()).build(),
+					new PasswordHashAndSalt(pwd, salt));
+		}
+		// reset their password after the job was submitted
+		storage.createLocalUser(LocalUser.getLocalUserBuilder(
+				new UserName("bat"), new DisplayName("d"), Instant.now())
+				.withLastReset(Instant.ofEpochMilli(10000)).build(),
+				new PasswordHashAndSalt(pwd, salt));
+		storage.createUser(NewUser.getBuilder(
+				new UserName("std"), new DisplayName("d"), Instant.now(), REMOTE1).build());
+		
+		storage.forcePasswordReset(new UserName("bar"));
+		
+		final Instant cutoff = Instant.ofEpochMilli(10000);
+		final JobBatch b1 = storage.forcePasswordReset(cutoff, Optional.absent(), 2);
+		assertThat("incorrect processed", b1.getProcessed(), is(2L));
+		assertThat("incorrect complete", b1.isComplete(), is(false));
+		
+		final JobBatch b2 = storage.forcePasswordReset(cutoff, b1.getCheckpoint(), 2);
+		assertThat("incorrect processed", b2.getProcessed(), is(1L));
+		assertThat("incorrect complete", b2.isComplete(), is(true));
+		// bar already had to reset their password
+		assertThat("incorrect modified", b1.getModified() + b2.getModified(), is(2L));
+		
+		for (final String name: Arrays.asList("foo", "bar", "baz")) {
+			assertThat("expected forced password reset",
+					storage.getLocalUser(new UserName(name)).isPwdResetRequired(), is(true));
+		}
+		assertThat("expected no forced password reset",
+				storage.getLocalUser(new UserName("bat")).isPwdResetRequired(), is(false));
+		
+		// a second run matches the users but doesn't rewrite them
+		assertThat("incorrect batch", storage.forcePasswordReset(cutoff, Optional.absent(), 5),
+				is(new JobBatch(3, 0, b2.getCheckpoint(), true)));
+	}
+	
+	@Test
+	public void forcePasswordResetFailNull() throws Exception {
+		try {
+			storage.forcePasswordReset(null, Optional.absent(), 1);
+			fail("expected exception");
+		} catch (Exception got) {
+			TestCommon.assertExceptionCorrect(got, new NullPointerException("resetBefore"));
+		}
+	}
+	
+	@Test
+	public void removePolicyIDBatched() throws Exception {
+		final Instant now = Instant.ofEpochMilli(10000);
+		storage.createUser(NewUser.getBuilder(new UserName("u1"), new DisplayName("d"), now,
+				REMOTE1).withPolicyID(new PolicyID("foo"), now)
+				.withPolicyID(new PolicyID("bar"), now).build());
+		storage.createUser(NewUser.getBuilder(new UserName("u2"), new DisplayName("d"), now,
+				REMOTE2).withPolicyID(new PolicyID("bar"), now).build());
+		storage.createUser(NewUser.getBuilder(new UserName("u3"), new DisplayName("d"), now,
+				REMOTE3).withPolicyID(new PolicyID("foo"), now).build());
+		
+		final JobBatch b1 = storage.removePolicyID(new PolicyID("foo"), Optional.absent(), 1);
+		assertThat("incorrect processed", b1.getProcessed(), is(1L));
+		assertThat("incorrect modified", b1.getModified(), is(1L));
+		assertThat("incorrect complete", b1.isComplete(), is(false));
+		
+		final JobBatch b2 = storage.removePolicyID(new PolicyID("foo"), b1.getCheckpoint(), 1);
+		assertThat("incorrect processed", b2.getProcessed(), is(1L));
+		assertThat("incorrect modified", b2.getModified(), is(1L));
+		assertThat("incorrect complete", b2.isComplete(), is(false));
+		
+		final JobBatch b3 = storage.removePolicyID(new PolicyID("foo"), b2.getCheckpoint(), 1);
+		assertThat("incorrect batch", b3, is(new JobBatch(0, 0, b2.getCheckpoint(), true)));
+		
+		assertThat("incorrect policy ids",
+				storage.getUser(new UserName("u1")).getPolicyIDs().keySet(),
+				is(set(new PolicyID("bar"))));
+		assertThat("incorrect policy ids",
+				storage.getUser(new UserName("u2")).getPolicyIDs().keySet(),
+				is(set(new PolicyID("bar"))));
+		assertThat("incorrect policy ids",
+				storage.getUser(new UserName("u3")).getPolicyIDs().keySet(),
+				is(Collections.emptySet()));
+	}
+	
+	@Test
+	public void deleteCustomRoleBatched() throws Exception {
+		final Instant now = Instant.ofEpochMilli(10000);
+		storage.createUser(NewUser.getBuilder(
+				new UserName("u1"), new DisplayName("d"), now, REMOTE1).build());
+		storage.createUser(NewUser.getBuilder(
+				new UserName("u2"), new DisplayName("d"), now, REMOTE2).build());
+		storage.setCustomRole(new CustomRole("foo", "desc"));
+		storage.setCustomRole(new CustomRole("bar", "desc"));
+		storage.updateCustomRoles(new UserName("u1"), set("foo", "bar"), Collections.emptySet());
+		storage.updateCustomRoles(new UserName("u2"), set("foo"), Collections.emptySet());
+		
+		final JobBatch b1 = storage.deleteCustomRole("foo", Optional.absent(), 1);
+		assertThat("incorrect processed", b1.getProcessed(), is(1L));
+		assertThat("incorrect modified", b1.getModified(), is(1L));
+		assertThat("incorrect complete", b1.isComplete(), is(false));
+		// the role isn't deleted until all users are updated
+		assertThat("incorrect roles", storage.getCustomRoles(), is(set(
+				new CustomRole("foo", "desc"), new CustomRole("bar", "desc"))));
+		
+		final JobBatch b2 = storage.deleteCustomRole("foo", b1.getCheckpoint(), 2);
+		assertThat("incorrect processed", b2.getProcessed(), is(1L));
+		assertThat("incorrect modified", b2.getModified(), is(1L));
+		assertThat("incorrect complete", b2.isComplete(), is(true));
+		assertThat("incorrect roles", storage.getCustomRoles(), is(set(
+				new CustomRole("bar", "desc"))));
+		
+		assertThat("incorrect user roles",
+				storage.getUser(new UserName("u1")).getCustomRoles(), is(set("bar")));
+		assertThat("incorrect user roles",
+				storage.getUser(new UserName("u2")).getCustomRoles(),
+				is(Collections.emptySet()));
+	}
+	
+	@Test
+	public void deleteCustomRoleNoSuchRole() throws Exception {
+		assertThat("incorrect batch", storage.deleteCustomRole("foo", Optional.of("cp"), 2),
+				is(new JobBatch(0, 0, Optional.of("cp"), true)));
+	}
+	
+	@Test
+	public void batchFailBadLimit() throws Exception {
+		final Exception e = new IllegalArgumentException("limit must be at least 1");
+		try {
+			storage.deleteTokens(Instant.now(), Optional.absent(), 0);
+			fail("expected exception");
+		} catch (Exception got) {
+			TestCommon.assertExceptionCorrect(got, e);
+		}
+		try {
+			storage.forcePasswordReset(Instant.now(), Optional.absent(), 0);
+			fail("expected exception");
+		} catch (Exception got) {
+			TestCommon.assertExceptionCorrect(got, e);
+		}
+		try {
+			storage.removePolicyID(new PolicyID("foo"), Optional.absent(), 0);
+			fail("expected exception");
+		} catch (Exception got) {
+			TestCommon.assertExceptionCorrect(got, e);
+		}
+		try {
+			storage.deleteCustomRole("foo", Optional.absent(), 0);
+			fail("expected exception");
+		} catch (Exception got) {
+			TestCommon.assertExceptionCorrect(got, e);
+		}
+	}
+}
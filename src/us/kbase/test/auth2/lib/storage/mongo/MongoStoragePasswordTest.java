@@ -70,29 +70,6 @@ public class MongoStoragePasswordTest extends MongoStorageTester {
 		}
 	}
 	
-	@Test
-	public void resetAll() throws Exception {
-		final byte[] passwordHash = "foobarbaz1".getBytes(StandardCharsets.UTF_8);
-		final byte[] salt = "wo".getBytes(StandardCharsets.UTF_8);
-		storage.createLocalUser(LocalUser.getLocalUserBuilder(
-				new UserName("foo"), new DisplayName("bar"), NOW).build(),
-				new PasswordHashAndSalt(passwordHash, salt));
-		storage.createLocalUser(LocalUser.getLocalUserBuilder(
-				new UserName("foo2"), new DisplayName("bar"), NOW).build(),
-				new PasswordHashAndSalt(passwordHash, salt));
-		storage.createUser(NewUser.getBuilder(
-				new UserName("foo3"), new DisplayName("bar"), NOW, REMOTE).build());
-		
-		storage.forcePasswordReset();
-		final Document stduser = db.getCollection("users")
-				.find(new Document(Fields.USER_NAME, "foo3")).first();
-		assertThat("field set on std user", stduser.containsKey(Fields.USER_RESET_PWD), is(false));
-		assertThat("expected forced password reset",
-				storage.getLocalUser(new UserName("foo")).isPwdResetRequired(), is(true));
-		assertThat("expected forced password reset",
-				storage.getLocalUser(new UserName("foo2")).isPwdResetRequired(), is(true));
-	}
-	
 	@Test
 	public void changePassword() throws Exception {
 		final byte[] passwordHash = "foobarbaz1".getBytes(StandardCharsets.UTF_8);
@@ -191,5 +168,110 @@ public class MongoStoragePasswordTest extends MongoStorageTester {
 		}
 	}
 	
+	@Test
+	public void hashParametersRoundTrip() throws Exception {
+		final byte[] passwordHash = "foobarbaz1".getBytes(StandardCharsets.UTF_8);
+		final byte[] salt = "wo".getBytes(StandardCharsets.UTF_8);
+		storage.createLocalUser(LocalUser.getLocalUserBuilder(
+				new UserName("foo"), new DisplayName("bar"), NOW).build(),
+				new PasswordHashAndSalt(passwordHash, salt, "PBKDF2WithHmacSHA512", 30000));
+		
+		final PasswordHashAndSalt creds = storage.getPasswordHashAndSalt(new UserName("foo"));
+		assertThat("incorrect alg", creds.getAlgorithm(), is("PBKDF2WithHmacSHA512"));
+		assertThat("incorrect iterations", creds.getIterations(), is(30000));
+		
+		storage.changePassword(new UserName("foo"), new PasswordHashAndSalt(
+				passwordHash, salt, "PBKDF2WithHmacSHA256", 40000), false);
+		
+		final PasswordHashAndSalt creds2 = storage.getPasswordHashAndSalt(new UserName("foo"));
+		assertThat("incorrect alg", creds2.getAlgorithm(), is("PBKDF2WithHmacSHA256"));
+		assertThat("incorrect iterations", creds2.getIterations(), is(40000));
+	}
+	
+	@Test
+	public void hashParametersMissing() throws Exception {
+		// simulates a user created before the hash parameters were stored
+		final byte[] passwordHash = "foobarbaz1".getBytes(StandardCharsets.UTF_8);
+		final byte[] salt = "wo".getBytes(StandardCharsets.UTF_8);
+		storage.createLocalUser(LocalUser.getLocalUserBuilder(
+				new UserName("foo"), new DisplayName("bar"), NOW).build(),
+				new PasswordHashAndSalt(passwordHash, salt, "PBKDF2WithHmacSHA512", 30000));
+		db.getCollection("users").updateOne(new Document(Fields.USER_NAME, "foo"),
+				new Document("$unset", new Document(Fields.USER_PWD_ALGORITHM, "")
+						.append(Fields.USER_PWD_ITERATIONS, "")));
+		
+		final PasswordHashAndSalt creds = storage.getPasswordHashAndSalt(new UserName("foo"));
+		assertThat("incorrect alg", creds.getAlgorithm(), is("PBKDF2WithHmacSHA256"));
+		assertThat("incorrect iterations", creds.getIterations(), is(20000));
+	}
+	
+	@Test
+	public void updatePasswordHash() throws Exception {
+		final byte[] passwordHash = "foobarbaz1".getBytes(StandardCharsets.UTF_8);
+		final byte[] salt = "wo".getBytes(StandardCharsets.UTF_8);
+		storage.createLocalUser(LocalUser.getLocalUserBuilder(
+				new UserName("foo"), new DisplayName("bar"), NOW).build(),
+				new PasswordHashAndSalt(passwordHash, salt));
+		
+		storage.updatePasswordHash(new UserName("foo"), new PasswordHashAndSalt(
+				passwordHash, salt), new PasswordHashAndSalt(
+						"foobarbaz2".getBytes(StandardCharsets.UTF_8),
+						"wo2".getBytes(StandardCharsets.UTF_8), "PBKDF2WithHmacSHA256", 30000));
+		
+		final LocalUser updated = storage.getLocalUser(new UserName("foo"));
+		final PasswordHashAndSalt creds = storage.getPasswordHashAndSalt(new UserName("foo"));
+		assertThat("incorrect pasword",
+				new String(creds.getPasswordHash(), StandardCharsets.UTF_8), is("foobarbaz2"));
+		assertThat("incorrect salt", new String(creds.getSalt(), StandardCharsets.UTF_8),
+				is("wo2"));
+		assertThat("incorrect alg", creds.getAlgorithm(), is("PBKDF2WithHmacSHA256"));
+		assertThat("incorrect iterations", creds.getIterations(), is(30000));
+		assertThat("incorrect force reset", updated.isPwdResetRequired(), is(false));
+		assertThat("inccorect reset time", updated.getLastPwdReset(), is(Optional.absent()));
+	}
+	
+	@Test
+	public void updatePasswordHashNoopOnChangedHash() throws Exception {
+		final byte[] passwordHash = "foobarbaz1".getBytes(StandardCharsets.UTF_8);
+		final byte[] salt = "wo".getBytes(StandardCharsets.UTF_8);
+		storage.createLocalUser(LocalUser.getLocalUserBuilder(
+				new UserName("foo"), new DisplayName("bar"), NOW).build(),
+				new PasswordHashAndSalt(passwordHash, salt));
+		
+		storage.updatePasswordHash(new UserName("foo"), new PasswordHashAndSalt(
+				"foobarbaz3".getBytes(StandardCharsets.UTF_8), salt), new PasswordHashAndSalt(
+						"foobarbaz2".getBytes(StandardCharsets.UTF_8),
+						"wo2".getBytes(StandardCharsets.UTF_8), "PBKDF2WithHmacSHA256", 30000));
+		
+		final PasswordHashAndSalt creds = storage.getPasswordHashAndSalt(new UserName("foo"));
+		assertThat("incorrect pasword",
+				new String(creds.getPasswordHash(), StandardCharsets.UTF_8), is("foobarbaz1"));
+		assertThat("incorrect iterations", creds.getIterations(), is(20000));
+	}
+	
+	@Test
+	public void updatePasswordHashFailNulls() throws Exception {
+		final PasswordHashAndSalt creds = new PasswordHashAndSalt(
+				"foobarbaz1".getBytes(StandardCharsets.UTF_8),
+				"wo".getBytes(StandardCharsets.UTF_8));
+		failUpdatePasswordHash(null, creds, creds, new NullPointerException("name"));
+		failUpdatePasswordHash(new UserName("foo"), null, creds,
+				new NullPointerException("oldCreds"));
+		failUpdatePasswordHash(new UserName("foo"), creds, null,
+				new NullPointerException("newCreds"));
+	}
+	
+	private void failUpdatePasswordHash(
+			final UserName name,
+			final PasswordHashAndSalt oldCreds,
+			final PasswordHashAndSalt newCreds,
+			final Exception e) {
+		try {
+			storage.updatePasswordHash(name, oldCreds, newCreds);
+			fail("expected exception");
+		} catch (Exception got) {
+			TestCommon.assertExceptionCorrect(got, e);
+		}
+	}
 	
 }
@@ -0,0 +1,448 @@
+package us.kbase.test.auth2.lib.storage.mongo;
+
+import static us.kbase.test.auth2.TestCommon.set;
+
+import java.lang.reflect.Method;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.beust.jcommander.JCommander;
+import com.beust.jcommander.Parameter;
+import com.beust.jcommander.ParameterException;
+import com.google.common.base.Optional;
+
+import us.kbase.auth2.lib.CustomRole;
+import us.kbase.auth2.lib.DisplayName;
+import us.kbase.auth2.lib.PasswordHashAndSalt;
+import us.kbase.auth2.lib.PolicyID;
+import us.kbase.auth2.lib.Role;
+import us.kbase.auth2.lib.TemporarySessionData;
+import us.kbase.auth2.lib.UserName;
+import us.kbase.auth2.lib.UserSearchSpec;
+import us.kbase.auth2.lib.UserUpdate;
+import us.kbase.auth2.lib.config.CollectingExternalConfig.CollectingExternalConfigMapper;
+import us.kbase.auth2.lib.identity.RemoteIdentity;
+import us.kbase.auth2.lib.identity.RemoteIdentityDetails;
+import us.kbase.auth2.lib.identity.RemoteIdentityID;
+import us.kbase.auth2.lib.job.JobBatch;
+import us.kbase.auth2.lib.job.JobRunner;
+import us.kbase.auth2.lib.storage.mongo.MongoStorage;
+import us.kbase.auth2.lib.token.IncomingToken;
+import us.kbase.auth2.lib.token.StoredToken;
+import us.kbase.auth2.lib.token.TokenType;
+import us.kbase.auth2.lib.user.LocalUser;
+import us.kbase.auth2.lib.user.NewUser;
+import us.kbase.test.auth2.MongoStorageTestManager;
+import us.kbase.test.auth2.lib.storage.mongo.QueryPlans.QueryPlan;
+
+/** A performance suite for {@link MongoStorage}. Loads a production scale data set into a
+ * temporary MongoDB instance, times the storage operations, and records the query plan for each
+ * operation. Exits with a non-zero exit code if any of the operations on the hot request paths
+ * scan an entire collection.
+ *
+ * The MongoDB instance is configured via the test.cfg file as for the tests.
+ *
+ * The operations that affect every user or token, such as removing a policy ID, run once each
+ * after the other operations. They run in batches until complete, as for the background jobs.
+ *
+ * Run with --help for the options.
+ */
+public class MongoStoragePerformance {
+
+	private static final String DB_NAME = "storageperformance";
+	// every LOCAL_USER_INTERVAL th user is a local user, the rest have remote identities
+	private static final int LOCAL_USER_INTERVAL = 100;
+	// every ROLE_INTERVAL th user has roles, custom roles, and policy IDs
+	private static final int ROLE_INTERVAL = 10;
+	private static final String CUSTOM_ROLE = "perfrole";
+	private static final PolicyID POLICY_ID = getPolicyID("perfpolicy");
+	private static final int DISPLAY_NAME_LOOKUP_COUNT = 10;
+	private static final int SEARCH_LIMIT = 10000; // as in Authentication
+	private static final int BATCH_SIZE = JobRunner.DEFAULT_BATCH_SIZE;
+	private static final byte[] SALT = "saltsalt".getBytes();
+	private static final byte[] HASH = "hashhashhashhashhashhashhashhash".getBytes();
+
+	private static class Args {
+
+		@Parameter(names = {"-h", "--help"}, help = true, description = "Display help.")
+		private boolean help;
+
+		@Parameter(names = {"-u", "--users"}, description = "The number of users to load.")
+		private int users = 500000;
+
+		@Parameter(names = {"-k", "--tokens"}, description =
+				"The number of tokens to load, distributed evenly over the users.")
+		private int tokens = 1000000;
+
+		@Parameter(names = {"-i", "--iterations"},
+				description = "The number of times to run each operation.")
+		private int iterations = 1000;
+
+		@Parameter(names = {"-l", "--loaders"},
+				description = "The number of threads to use when loading data.")
+		private int loaders = 8;
+	}
+
+	private interface StorageCall {
+
+		void call(int iteration) throws Exception;
+	}
+
+	private interface BatchCall {
+
+		JobBatch call(Optional<String> after) throws Exception;
+	}
+
+	private static class Operation {
+
+		private final String name;
+		private final boolean hot;
+		private final boolean bulk;
+		private final StorageCall call;
+
+		private Operation(
+				final String name,
+				final boolean hot,
+				final boolean bulk,
+				final StorageCall call) {
+			this.name = name;
+			this.hot = hot;
+			this.bulk = bulk;
+			this.call = call;
+		}
+	}
+
+	private final Args args;
+	private final MongoStorageTestManager manager;
+	private final MongoStorage storage;
+	// token IDs for the store and delete token operations
+	private final UUID[] tokenIDs;
+
+	private MongoStoragePerformance(final Args args, final MongoStorageTestManager manager) {
+		this.args = args;
+		this.manager = manager;
+		this.storage = manager.storage;
+		tokenIDs = new UUID[args.iterations + 1];
+		for (int i = 0; i < tokenIDs.length; i++) {
+			tokenIDs[i] = UUID.randomUUID();
+		}
+	}
+
+	private static PolicyID getPolicyID(final String id) {
+		try {
+			return new PolicyID(id);
+		} catch (Exception e) {
+			throw new RuntimeException("this should be impossible", e);
+		}
+	}
+
+	private static UserName getUserName(final int user) throws Exception {
+		return new UserName("user" + user);
+	}
+
+	private static RemoteIdentity getRemote(final String id) {
+		return new RemoteIdentity(new RemoteIdentityID("prov", id),
+				new RemoteIdentityDetails("ruser" + id, "full" + id, "email" + id));
+	}
+
+	private static IncomingToken getToken(final String prefix, final int token) throws Exception {
+		return new IncomingToken(prefix + token);
+	}
+
+	private int randomUser() {
+		return ThreadLocalRandom.current().nextInt(args.users);
+	}
+
+	private int randomStandardUser() {
+		return toStandardUser(randomUser());
+	}
+
+	private int randomLocalUser() {
+		return ThreadLocalRandom.current().nextInt(args.users / LOCAL_USER_INTERVAL) *
+				LOCAL_USER_INTERVAL;
+	}
+
+	// maps an iteration to a standard user so that paired operations hit the same user
+	private int iterationUser(final int iteration) {
+		return toStandardUser((int) ((iteration * 7919L) % args.users));
+	}
+
+	private static int toStandardUser(final int user) {
+		if (user % LOCAL_USER_INTERVAL != 0) {
+			return user;
+		}
+		return user == 0 ? 1 : user - 1;
+	}
+
+	private void load() throws Exception {
+		final long start = System.nanoTime();
+		storage.setCustomRole(new CustomRole(CUSTOM_ROLE, "desc"));
+		final AtomicInteger nextUser = new AtomicInteger();
+		final AtomicInteger nextToken = new AtomicInteger();
+		final ExecutorService exe = Executors.newFixedThreadPool(args.loaders);
+		try {
+			final List<Future<Void>> futures = new LinkedList<>();
+			for (int t = 0; t < args.loaders; t++) {
+				futures.add(exe.submit(() -> {
+					for (int i = nextUser.getAndIncrement(); i < args.users;
+							i = nextUser.getAndIncrement()) {
+						loadUser(i);
+						report("users", i, start);
+					}
+					for (int i = nextToken.getAndIncrement(); i < args.tokens;
+							i = nextToken.getAndIncrement()) {
+						storage.storeToken(StoredToken.getBuilder(
+								TokenType.LOGIN, UUID.randomUUID(), getUserName(i % args.users))
+								.withLifeTime(Instant.now(), 30L * 24 * 3600 * 1000)
+								.build(),
+								getToken("token", i).getHashedToken().getTokenHash());
+						report("tokens", i, start);
+					}
+					return null;
+				}));
+			}
+			for (final Future<Void> f: futures) {
+				f.get();
+			}
+		} finally {
+			exe.shutdownNow();
+		}
+		System.out.println(String.format("Loaded %s users and %s tokens in %s s",
+				args.users, args.tokens, (System.nanoTime() - start) / 1000000000));
+	}
+
+	private void loadUser(final int i) throws Exception {
+		final UserName un = getUserName(i);
+		final DisplayName dn = new DisplayName("Perf User" + i);
+		if (i % LOCAL_USER_INTERVAL == 0) {
+			storage.createLocalUser(LocalUser.getLocalUserBuilder(un, dn, Instant.now()).build(),
+					new PasswordHashAndSalt(HASH.clone(), SALT.clone()));
+		} else {
+			storage.createUser(NewUser.getBuilder(un, dn, Instant.now(), getRemote("" + i))
+					.build());
+		}
+		if (i % ROLE_INTERVAL == 0) {
+			storage.updateRoles(un, set(Role.DEV_TOKEN), Collections.emptySet());
+			storage.updateCustomRoles(un, set(CUSTOM_ROLE), Collections.emptySet());
+			storage.addPolicyIDs(un, set(POLICY_ID));
+		}
+	}
+
+	private static void report(final String type, final int count, final long startNS) {
+		if (count > 0 && count % 100000 == 0) {
+			System.out.println(String.format("Loaded %s %s at %s s", count, type,
+					(System.nanoTime() - startNS) / 1000000000));
+		}
+	}
+
+	private List<Operation> getOperations() {
+		final List<Operation> ops = new LinkedList<>();
+		// hot request path operations
+		ops.add(hot("getToken", i -> storage.getToken(
+				getToken("token", ThreadLocalRandom.current().nextInt(args.tokens))
+				.getHashedToken())));
+		ops.add(hot("getTokens", i -> storage.getTokens(getUserName(randomUser()))));
+		ops.add(hot("getUser", i -> storage.getUser(getUserName(randomUser()))));
+		ops.add(hot("getUserRemoteIdentity", i -> storage.getUser(
+				getRemote("" + randomStandardUser()))));
+		ops.add(hot("getUserDisplayNames", i -> {
+			final Set<UserName> names = new HashSet<>();
+			for (int j = 0; j < DISPLAY_NAME_LOOKUP_COUNT; j++) {
+				names.add(getUserName(randomUser()));
+			}
+			storage.getUserDisplayNames(names);
+		}));
+		ops.add(hot("searchPrefix", i -> storage.getUserDisplayNames(UserSearchSpec.getBuilder()
+				.withSearchPrefix("user" + randomUser()).build(), SEARCH_LIMIT)));
+		ops.add(hot("searchPrefixDisplayName", i -> storage.getUserDisplayNames(
+				UserSearchSpec.getBuilder().withSearchPrefix("user" + randomUser())
+				.withSearchOnDisplayName(true).build(), SEARCH_LIMIT)));
+		ops.add(hot("searchRegex", i -> storage.getUserDisplayNames(
+				getRegexSearch(randomUser()), -1)));
+		ops.add(hot("searchRole", i -> storage.getUserDisplayNames(UserSearchSpec.getBuilder()
+				.withSearchOnRole(Role.DEV_TOKEN).build(), SEARCH_LIMIT)));
+		ops.add(hot("searchCustomRole", i -> storage.getUserDisplayNames(
+				UserSearchSpec.getBuilder().withSearchOnCustomRole(CUSTOM_ROLE).build(),
+				SEARCH_LIMIT)));
+		ops.add(hot("getLocalUser", i -> storage.getLocalUser(getUserName(randomLocalUser()))));
+		ops.add(hot("getPasswordHashAndSalt", i -> storage.getPasswordHashAndSalt(
+				getUserName(randomLocalUser()))));
+
+		// other single item operations
+		// the config and custom role collections are small and always read in their entirety
+		ops.add(op("getConfig", i -> storage.getConfig(new CollectingExternalConfigMapper())));
+		ops.add(op("getCustomRoles", i -> storage.getCustomRoles()));
+		ops.add(op("storeToken", i -> storage.storeToken(StoredToken.getBuilder(
+				TokenType.AGENT, tokenIDs[i], getUserName(iterationUser(i)))
+				.withLifeTime(Instant.now(), 3600000).build(),
+				getToken("perftoken", i).getHashedToken().getTokenHash())));
+		ops.add(op("deleteToken", i -> storage.deleteToken(
+				getUserName(iterationUser(i)), tokenIDs[i])));
+		ops.add(op("deleteTokensForUser", i -> storage.deleteTokens(
+				getUserName(randomUser()))));
+		ops.add(op("storeTemporarySessionData", i -> storage.storeTemporarySessionData(
+				TemporarySessionData.create(UUID.randomUUID(), Instant.now(), 600000)
+				.link(getUserName(iterationUser(i))),
+				getToken("temp", i).getHashedToken().getTokenHash())));
+		ops.add(op("getTemporarySessionData", i -> storage.getTemporarySessionData(
+				getToken("temp", i).getHashedToken())));
+		ops.add(op("deleteTemporarySessionData", i -> storage.deleteTemporarySessionData(
+				getToken("temp", i).getHashedToken())));
+		ops.add(op("deleteTemporarySessionDataForUser", i ->
+				storage.deleteTemporarySessionData(getUserName(randomUser()))));
+		ops.add(op("createUser", i -> storage.createUser(NewUser.getBuilder(
+				new UserName("newuser" + i), new DisplayName("New User" + i), Instant.now(),
+				getRemote("new" + i)).build())));
+		ops.add(op("link", i -> storage.link(getUserName(iterationUser(i)),
+				getRemote("link" + i))));
+		ops.add(op("unlink", i -> storage.unlink(getUserName(iterationUser(i)),
+				getRemote("link" + i).getRemoteID().getID())));
+		ops.add(op("updateUser", i -> storage.updateUser(getUserName(randomUser()),
+				UserUpdate.getBuilder().withDisplayName(new DisplayName("Updated" + i)).build())));
+		ops.add(op("setLastLogin", i -> storage.setLastLogin(
+				getUserName(randomUser()), Instant.now())));
+		ops.add(op("addPolicyIDs", i -> storage.addPolicyIDs(getUserName(randomUser()),
+				set(getPolicyID("perfpolicy" + (i % 10))))));
+		ops.add(op("updateRoles", i -> storage.updateRoles(getUserName(randomUser()),
+				set(Role.SERV_TOKEN), Collections.emptySet())));
+		ops.add(op("updateCustomRoles", i -> storage.updateCustomRoles(
+				getUserName(randomUser()), set(CUSTOM_ROLE), Collections.emptySet())));
+		ops.add(op("disableAccount", i -> storage.disableAccount(
+				getUserName(iterationUser(i)), UserName.ROOT, "perf")));
+		ops.add(op("enableAccount", i -> storage.enableAccount(
+				getUserName(iterationUser(i)), UserName.ROOT)));
+		ops.add(op("forcePasswordResetForUser", i -> storage.forcePasswordReset(
+				getUserName(randomLocalUser()))));
+		ops.add(op("changePassword", i -> storage.changePassword(
+				getUserName(randomLocalUser()),
+				new PasswordHashAndSalt(HASH.clone(), SALT.clone()), false)));
+
+		// operations on every user or token
+		ops.add(bulk("removePolicyID", i -> runBatches(
+				after -> storage.removePolicyID(POLICY_ID, after, BATCH_SIZE))));
+		ops.add(bulk("deleteCustomRole", i -> runBatches(
+				after -> storage.deleteCustomRole(CUSTOM_ROLE, after, BATCH_SIZE))));
+		ops.add(bulk("forcePasswordReset", i -> runBatches(
+				after -> storage.forcePasswordReset(Instant.now(), after, BATCH_SIZE))));
+		ops.add(bulk("deleteTokens", i -> runBatches(
+				after -> storage.deleteTokens(Instant.now(), after, BATCH_SIZE))));
+		return ops;
+	}
+
+	private static Operation hot(final String name, final StorageCall call) {
+		return new Operation(name, true, false, call);
+	}
+
+	private static Operation op(final String name, final StorageCall call) {
+		return new Operation(name, false, false, call);
+	}
+
+	private static Operation bulk(final String name, final StorageCall call) {
+		return new Operation(name, false, true, call);
+	}
+
+	// runs a job to completion, as the job runner does but without the delay between batches
+	private static void runBatches(final BatchCall call) throws Exception {
+		Optional<String> after = Optional.absent();
+		JobBatch batch;
+		do {
+			batch = call.call(after);
+			after = batch.getCheckpoint();
+		} while (!batch.isComplete());
+	}
+
+	private static UserSearchSpec getRegexSearch(final int user) throws Exception {
+		// as for user name suggestions in Authentication
+		final UserSearchSpec.Builder b = UserSearchSpec.getBuilder();
+		final Method m = UserSearchSpec.Builder.class.getDeclaredMethod(
+				"withSearchRegex", String.class);
+		m.setAccessible(true);
+		m.invoke(b, "^\\Quser" + user + "\\E\\d*$");
+		return b.withSearchOnUserName(true).withIncludeDisabled(true).build();
+	}
+
+	// returns the names of the hot operations with collection scans
+	private List<String> run() throws Exception {
+		System.out.println(String.format("%-34s %6s %8s %8s %8s %8s  %s",
+				"operation", "n", "mean ms", "p50 ms", "p99 ms", "max ms", "plans"));
+		final List<String> failed = new LinkedList<>();
+		for (final Operation o: getOperations()) {
+			final int iterations = o.bulk ? 1 : args.iterations;
+			final long[] latencies = new long[iterations];
+			for (int i = 0; i < iterations; i++) {
+				final long start = System.nanoTime();
+				o.call.call(i);
+				latencies[i] = System.nanoTime() - start;
+			}
+			// record the plans after timing so the profiler doesn't affect the timings. The last
+			// index is reserved for this call.
+			final List<QueryPlan> plans = o.bulk ? Collections.emptyList() :
+					QueryPlans.record(manager.db, () -> {
+						o.call.call(args.iterations);
+						return null;
+					});
+			if (o.hot && !QueryPlans.getCollectionScans(plans).isEmpty()) {
+				failed.add(o.name);
+			}
+			Arrays.sort(latencies);
+			System.out.println(String.format("%-34s %6s %8.2f %8.2f %8.2f %8.2f  %s",
+					o.name, iterations, Arrays.stream(latencies).average().getAsDouble() / 1e6,
+					percentileMS(latencies, 50), percentileMS(latencies, 99),
+					percentileMS(latencies, 100), plans));
+		}
+		return failed;
+	}
+
+	// nearest rank percentile
+	private static double percentileMS(final long[] sortedNS, final int percentile) {
+		final int rank = (int) Math.ceil(percentile / 100.0 * sortedNS.length);
+		return sortedNS[Math.max(0, rank - 1)] / 1e6;
+	}
+
+	public static void main(final String[] argv) throws Exception {
+		final Args a = new Args();
+		final JCommander jc = new JCommander(a);
+		jc.setProgramName(MongoStoragePerformance.class.getSimpleName());
+		try {
+			jc.parse(argv);
+			if (a.users < LOCAL_USER_INTERVAL || a.tokens < 1 || a.iterations < 1 ||
+					a.loaders < 1) {
+				throw new ParameterException(String.format(
+						"There must be at least %s users and at least 1 token, iteration, " +
+						"and loader", LOCAL_USER_INTERVAL));
+			}
+		} catch (ParameterException e) {
+			System.err.println(e.getMessage());
+			jc.usage();
+			System.exit(1);
+		}
+		if (a.help) {
+			jc.usage();
+			return;
+		}
+		final MongoStorageTestManager manager = new MongoStorageTestManager(DB_NAME);
+		final List<String> failed;
+		try {
+			final MongoStoragePerformance perf = new MongoStoragePerformance(a, manager);
+			perf.load();
+			failed = perf.run();
+		} finally {
+			manager.destroy();
+		}
+		if (!failed.isEmpty()) {
+			System.err.println("Collection scans on the hot request paths: " + failed);
+			System.exit(1);
+		}
+	}
+}
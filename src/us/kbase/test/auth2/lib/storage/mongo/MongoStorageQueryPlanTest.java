@@ -0,0 +1,176 @@
+package us.kbase.test.auth2.lib.storage.mongo;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+
+import static us.kbase.test.auth2.TestCommon.set;
+
+import java.lang.reflect.Method;
+import java.time.Instant;
+import java.util.Collections;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.Callable;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.google.common.base.Optional;
+
+import us.kbase.auth2.lib.CustomRole;
+import us.kbase.auth2.lib.DisplayName;
+import us.kbase.auth2.lib.PolicyID;
+import us.kbase.auth2.lib.Role;
+import us.kbase.auth2.lib.UserName;
+import us.kbase.auth2.lib.UserSearchSpec;
+import us.kbase.auth2.lib.UserSearchSpec.Builder;
+import us.kbase.auth2.lib.identity.RemoteIdentity;
+import us.kbase.auth2.lib.identity.RemoteIdentityDetails;
+import us.kbase.auth2.lib.identity.RemoteIdentityID;
+import us.kbase.auth2.lib.token.IncomingToken;
+import us.kbase.auth2.lib.token.StoredToken;
+import us.kbase.auth2.lib.token.TokenListSpec;
+import us.kbase.auth2.lib.token.TokenPage;
+import us.kbase.auth2.lib.token.TokenType;
+import us.kbase.auth2.lib.user.NewUser;
+import us.kbase.test.auth2.lib.storage.mongo.QueryPlans.QueryPlan;
+
+/* Checks that the queries on the hot request paths are backed by indexes. The query planner
+ * uses an index whenever one applies, regardless of the collection size, so a small data set
+ * is sufficient.
+ */
+public class MongoStorageQueryPlanTest extends MongoStorageTester {
+
+	private static final Instant NOW = Instant.now();
+	private static final int USERS = 100;
+	private static final int TOKENS_PER_USER = 3;
+	// as in Authentication
+	private static final int SEARCH_LIMIT = 10000;
+
+	private static RemoteIdentity getRemote(final int i) {
+		return new RemoteIdentity(new RemoteIdentityID("prov", "id" + i),
+				new RemoteIdentityDetails("user" + i, "full" + i, "email" + i));
+	}
+
+	private static IncomingToken getToken(final int user, final int token) throws Exception {
+		return new IncomingToken("token" + user + "_" + token);
+	}
+
+	@Before
+	public void loadData() throws Exception {
+		storage.setCustomRole(new CustomRole("crole", "desc"));
+		for (int i = 0; i < USERS; i++) {
+			final UserName un = new UserName("user" + i);
+			final NewUser.Builder nu = NewUser.getBuilder(
+					un, new DisplayName("Display Name" + i), NOW, getRemote(i));
+			if (i % 10 == 0) {
+				nu.withPolicyID(new PolicyID("pid"), NOW);
+			}
+			storage.createUser(nu.build());
+			for (int j = 0; j < TOKENS_PER_USER; j++) {
+				storage.storeToken(StoredToken.getBuilder(TokenType.LOGIN, UUID.randomUUID(), un)
+						.withLifeTime(NOW, NOW.plusSeconds(100000)).build(),
+						getToken(i, j).getHashedToken().getTokenHash());
+			}
+			if (i % 10 == 0) {
+				storage.updateRoles(un, set(Role.DEV_TOKEN), Collections.emptySet());
+				storage.updateCustomRoles(un, set("crole"), Collections.emptySet());
+			}
+		}
+	}
+
+	private void assertIndexed(final Callable<?> call) throws Exception {
+		final List<QueryPlan> plans = QueryPlans.record(db, call);
+		assertThat("no query plans recorded", plans.isEmpty(), is(false));
+		assertThat("incorrect collection scans", QueryPlans.getCollectionScans(plans),
+				is(Collections.emptyList()));
+	}
+
+	@Test
+	public void getToken() throws Exception {
+		assertIndexed(() -> storage.getToken(getToken(42, 1).getHashedToken()));
+	}
+
+	@Test
+	public void getTokens() throws Exception {
+		assertIndexed(() -> storage.getTokens(new UserName("user42")));
+	}
+
+	@Test
+	public void getTokensPaged() throws Exception {
+		final TokenPage p = storage.getTokens(new UserName("user42"),
+				TokenListSpec.getBuilder().withLimit(1).build());
+		assertIndexed(() -> storage.getTokens(new UserName("user42"), TokenListSpec.getBuilder()
+				.withNullableType(TokenType.LOGIN)
+				.withCursor(p.getNextCursor().get())
+				.build()));
+	}
+
+	@Test
+	public void getUser() throws Exception {
+		assertIndexed(() -> storage.getUser(new UserName("user42")));
+	}
+
+	@Test
+	public void getUserByRemoteIdentity() throws Exception {
+		assertIndexed(() -> storage.getUser(getRemote(42)));
+	}
+
+	@Test
+	public void getUserDisplayNames() throws Exception {
+		assertIndexed(() -> storage.getUserDisplayNames(set(
+				new UserName("user1"), new UserName("user42"), new UserName("user99"))));
+	}
+
+	@Test
+	public void searchPrefix() throws Exception {
+		assertIndexed(() -> storage.getUserDisplayNames(UserSearchSpec.getBuilder()
+				.withSearchPrefix("user4").build(), SEARCH_LIMIT));
+	}
+
+	@Test
+	public void searchPrefixUserName() throws Exception {
+		assertIndexed(() -> storage.getUserDisplayNames(UserSearchSpec.getBuilder()
+				.withSearchPrefix("user4").withSearchOnUserName(true).build(), SEARCH_LIMIT));
+	}
+
+	@Test
+	public void searchPrefixDisplayName() throws Exception {
+		assertIndexed(() -> storage.getUserDisplayNames(UserSearchSpec.getBuilder()
+				.withSearchPrefix("name4").withSearchOnDisplayName(true).build(),
+				SEARCH_LIMIT));
+	}
+
+	@Test
+	public void searchRegex() throws Exception {
+		// as for user name suggestions in Authentication
+		final Builder builder = UserSearchSpec.getBuilder();
+		final Method m = Builder.class.getDeclaredMethod("withSearchRegex", String.class);
+		m.setAccessible(true);
+		m.invoke(builder, "^\\Quser4\\E\\d*$");
+		builder.withSearchOnUserName(true).withIncludeDisabled(true);
+		assertIndexed(() -> storage.getUserDisplayNames(builder.build(), -1));
+	}
+
+	@Test
+	public void searchRole() throws Exception {
+		assertIndexed(() -> storage.getUserDisplayNames(UserSearchSpec.getBuilder()
+				.withSearchOnRole(Role.DEV_TOKEN).build(), SEARCH_LIMIT));
+	}
+
+	@Test
+	public void searchCustomRole() throws Exception {
+		assertIndexed(() -> storage.getUserDisplayNames(UserSearchSpec.getBuilder()
+				.withSearchOnCustomRole("crole").build(), SEARCH_LIMIT));
+	}
+
+	@Test
+	public void removePolicyIDBatch() throws Exception {
+		assertIndexed(() -> storage.removePolicyID(new PolicyID("pid"), Optional.absent(), 5));
+	}
+
+	@Test
+	public void deleteCustomRoleBatch() throws Exception {
+		assertIndexed(() -> storage.deleteCustomRole("crole", Optional.absent(), 5));
+	}
+}
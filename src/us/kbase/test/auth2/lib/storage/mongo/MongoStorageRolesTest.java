@@ -7,18 +7,22 @@ import static org.junit.Assert.fail;
 import static us.kbase.test.auth2.TestCommon.set;
 
 import java.time.Instant;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.Set;
 
 import org.junit.Test;
 
+import us.kbase.auth2.lib.CustomRole;
 import us.kbase.auth2.lib.DisplayName;
 import us.kbase.auth2.lib.Role;
 import us.kbase.auth2.lib.UserName;
+import us.kbase.auth2.lib.exceptions.NoSuchRoleException;
 import us.kbase.auth2.lib.exceptions.NoSuchUserException;
 import us.kbase.auth2.lib.identity.RemoteIdentityDetails;
 import us.kbase.auth2.lib.identity.RemoteIdentityID;
 import us.kbase.auth2.lib.identity.RemoteIdentity;
+import us.kbase.auth2.lib.user.AuthUser;
 import us.kbase.auth2.lib.user.NewUser;
 import us.kbase.test.auth2.TestCommon;
 
@@ -149,4 +153,131 @@ public class MongoStorageRolesTest extends MongoStorageTester {
 		}
 	}
 	
+	@Test
+	public void bulkUpdate() throws Exception {
+		storage.createUser(NewUser.getBuilder(
+				new UserName("foo"), new DisplayName("bar"), NOW, REMOTE).build());
+		storage.createUser(NewUser.getBuilder(
+				new UserName("foo2"), new DisplayName("bar"), NOW, new RemoteIdentity(
+						new RemoteIdentityID("prov", "bar2"),
+						new RemoteIdentityDetails("user2", "full2", "email2"))).build());
+		storage.setCustomRole(new CustomRole("a", "a desc"));
+		storage.setCustomRole(new CustomRole("b", "b desc"));
+		storage.setCustomRole(new CustomRole("c", "c desc"));
+		storage.updateRoles(new UserName("foo"), set(Role.SERV_TOKEN), Collections.emptySet());
+		storage.updateCustomRoles(new UserName("foo"), set("b"), Collections.emptySet());
+		
+		final Set<UserName> missing = storage.updateRoles(
+				set(new UserName("foo"), new UserName("foo2"), new UserName("whee")),
+				set(Role.DEV_TOKEN, Role.ADMIN), set(Role.SERV_TOKEN), set("a", "c"), set("b"));
+		
+		assertThat("incorrect missing users", missing, is(set(new UserName("whee"))));
+		for (final String name: Arrays.asList("foo", "foo2")) {
+			final AuthUser u = storage.getUser(new UserName(name));
+			assertThat("incorrect roles", u.getRoles(), is(set(Role.ADMIN, Role.DEV_TOKEN)));
+			assertThat("incorrect custom roles", u.getCustomRoles(), is(set("a", "c")));
+		}
+	}
+	
+	@Test
+	public void bulkUpdateFailAddAndRemoveSameRole() throws Exception {
+		storage.createUser(NewUser.getBuilder(
+				new UserName("foo"), new DisplayName("bar"), NOW, REMOTE).build());
+		storage.setCustomRole(new CustomRole("a", "a desc"));
+		final Set<UserName> u = set(new UserName("foo"));
+		final Set<String> c = Collections.emptySet();
+		
+		failBulkUpdateRoles(u, set(Role.DEV_TOKEN, Role.CREATE_ADMIN), set(Role.DEV_TOKEN), c, c,
+				new IllegalArgumentException("One or more roles is to be both removed and added"));
+		failBulkUpdateRoles(u, Collections.emptySet(), Collections.emptySet(), set("a"),
+				set("a"),
+				new IllegalArgumentException("One or more roles is to be both removed and added"));
+		
+		assertThat("incorrect roles", storage.getUser(new UserName("foo")).getRoles(),
+				is(Collections.emptySet()));
+		assertThat("incorrect custom roles", storage.getUser(new UserName("foo"))
+				.getCustomRoles(), is(Collections.emptySet()));
+	}
+	
+	@Test
+	public void bulkUpdateNoop() throws Exception {
+		storage.createUser(NewUser.getBuilder(
+				new UserName("foo"), new DisplayName("bar"), NOW, REMOTE).build());
+		storage.updateRoles(new UserName("foo"), set(Role.DEV_TOKEN), Collections.emptySet());
+		
+		assertThat("incorrect missing users", storage.updateRoles(
+				set(new UserName("foo"), new UserName("bar")), Collections.emptySet(),
+				Collections.emptySet(), Collections.emptySet(), Collections.emptySet()),
+				is(set(new UserName("bar"))));
+		assertThat("incorrect missing users", storage.updateRoles(Collections.emptySet(),
+				set(Role.ADMIN), Collections.emptySet(), Collections.emptySet(),
+				Collections.emptySet()), is(Collections.emptySet()));
+		
+		assertThat("incorrect roles", storage.getUser(new UserName("foo")).getRoles(),
+				is(set(Role.DEV_TOKEN)));
+	}
+	
+	@Test
+	public void bulkUpdateFailNulls() throws Exception {
+		final Set<UserName> u = set(new UserName("foo"));
+		final Set<Role> r = Collections.emptySet();
+		final Set<String> c = Collections.emptySet();
+		failBulkUpdateRoles(null, r, r, c, c, new NullPointerException("userNames"));
+		failBulkUpdateRoles(u, null, r, c, c, new NullPointerException("addRoles"));
+		failBulkUpdateRoles(u, r, null, c, c, new NullPointerException("removeRoles"));
+		failBulkUpdateRoles(u, r, r, null, c, new NullPointerException("addCustomRoles"));
+		failBulkUpdateRoles(u, r, r, c, null, new NullPointerException("removeCustomRoles"));
+		failBulkUpdateRoles(set(new UserName("foo"), null), r, r, c, c,
+				new NullPointerException("Null name in userNames"));
+		failBulkUpdateRoles(u, set(Role.ADMIN, null), r, c, c,
+				new NullPointerException("Null role in addRoles"));
+		failBulkUpdateRoles(u, r, set(Role.ADMIN, null), c, c,
+				new NullPointerException("Null role in removeRoles"));
+		failBulkUpdateRoles(u, r, r, set("a", null), c,
+				new NullPointerException("Null role in addCustomRoles"));
+		failBulkUpdateRoles(u, r, r, c, set("a", null),
+				new NullPointerException("Null role in removeCustomRoles"));
+	}
+	
+	@Test
+	public void bulkUpdateFailSetRoot() throws Exception {
+		final Set<UserName> u = set(new UserName("foo"));
+		final Set<String> c = Collections.emptySet();
+		failBulkUpdateRoles(u, set(Role.ROOT), Collections.emptySet(), c, c,
+				new IllegalArgumentException("Cannot change root role"));
+		failBulkUpdateRoles(u, Collections.emptySet(), set(Role.ROOT), c, c,
+				new IllegalArgumentException("Cannot change root role"));
+	}
+	
+	@Test
+	public void bulkUpdateFailNoSuchCustomRole() throws Exception {
+		storage.createUser(NewUser.getBuilder(
+				new UserName("foo"), new DisplayName("bar"), NOW, REMOTE).build());
+		storage.setCustomRole(new CustomRole("a", "a desc"));
+		
+		failBulkUpdateRoles(set(new UserName("foo")), set(Role.DEV_TOKEN),
+				Collections.emptySet(), set("a"), set("b"), new NoSuchRoleException("b"));
+		
+		// nothing is changed if a role doesn't exist
+		assertThat("incorrect roles", storage.getUser(new UserName("foo")).getRoles(),
+				is(Collections.emptySet()));
+		assertThat("incorrect custom roles", storage.getUser(new UserName("foo"))
+				.getCustomRoles(), is(Collections.emptySet()));
+	}
+	
+	private void failBulkUpdateRoles(
+			final Set<UserName> users,
+			final Set<Role> addRoles,
+			final Set<Role> removeRoles,
+			final Set<String> addCustomRoles,
+			final Set<String> removeCustomRoles,
+			final Exception e) {
+		try {
+			storage.updateRoles(users, addRoles, removeRoles, addCustomRoles, removeCustomRoles);
+			fail("expected exception");
+		} catch (Exception got) {
+			TestCommon.assertExceptionCorrect(got, e);
+		}
+	}
+	
 }	
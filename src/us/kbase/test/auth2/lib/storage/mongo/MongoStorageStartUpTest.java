@@ -49,6 +49,7 @@ public class MongoStorageStartUpTest extends MongoStorageTester {
 		assertThat("correct config key & value", (String)d.get("schema"), is("schema"));
 		assertThat("not in update", (Boolean)d.get("inupdate"), is(false));
 		assertThat("schema v1", (Integer)d.get("schemaver"), is(1));
+		assertThat("index fingerprint length", d.getString("idxfinger").length(), is(44));
 		
 		//check startup works with the config object in place
 		final MongoStorage ms = new MongoStorage(db);
@@ -57,6 +58,34 @@ public class MongoStorageStartUpTest extends MongoStorageTester {
 				is(set(new CustomRole("foo", "bar"))));
 	}
 	
+	@Test
+	public void startUpSkipsIndexesWithCurrentFingerprint() throws Exception {
+		final MongoDatabase db = mc.getDatabase("startUpSkipsIndexesWithCurrentFingerprint");
+		new MongoStorage(db);
+		final MongoCollection<Document> users = db.getCollection("users");
+		users.dropIndex("dispcan_1");
+		
+		// fingerprint matches, so the index should not be recreated
+		new MongoStorage(db);
+		assertThat("index recreated", getIndexNames(users).contains("dispcan_1"), is(false));
+		
+		// fingerprint doesn't match, so the indexes should be recreated
+		final MongoCollection<Document> config = db.getCollection("config");
+		final String fingerprint = config.find().first().getString("idxfinger");
+		config.updateOne(new Document("schema", "schema"),
+				new Document("$set", new Document("idxfinger", "foo")));
+		new MongoStorage(db);
+		assertThat("index not recreated", getIndexNames(users).contains("dispcan_1"), is(true));
+		assertThat("incorrect fingerprint", config.find().first().getString("idxfinger"),
+				is(fingerprint));
+	}
+	
+	private Set<String> getIndexNames(final MongoCollection<Document> col) {
+		final Set<String> names = new HashSet<>();
+		col.listIndexes().forEach((Consumer<Document>) d -> names.add(d.getString("name")));
+		return names;
+	}
+	
 	@Test
 	public void startUpWith2ConfigDocs() throws Exception {
 		final MongoDatabase db = mc.getDatabase("startUpWith2ConfigDocs");
@@ -138,6 +167,7 @@ public class MongoStorageStartUpTest extends MongoStorageTester {
 				"config_prov",
 				"cust_roles",
 				"test_cust_roles",
+				"jobs",
 				"tempdata",
 				"tokens",
 				"test_tokens",
@@ -260,6 +290,31 @@ public class MongoStorageStartUpTest extends MongoStorageTester {
 				)));
 	}
 	
+	@Test
+	public void indexesJobs() {
+		final Set<Document> indexes = new HashSet<>();
+		db.getCollection("jobs").listIndexes().forEach((Consumer<Document>) indexes::add);
+		assertThat("incorrect indexes", indexes, is(set(
+				new Document("v", indexVer)
+						.append("unique", true)
+						.append("key", new Document("id", 1))
+						.append("name", "id_1")
+						.append("ns", "test_mongostorage.jobs"),
+				new Document("v", indexVer)
+						.append("key", new Document("state", 1))
+						.append("name", "state_1")
+						.append("ns", "test_mongostorage.jobs"),
+				new Document("v", indexVer)
+						.append("key", new Document("create", 1))
+						.append("name", "create_1")
+						.append("ns", "test_mongostorage.jobs"),
+				new Document("v", indexVer)
+						.append("key", new Document("_id", 1))
+						.append("name", "_id_")
+						.append("ns", "test_mongostorage.jobs")
+				)));
+	}
+	
 	@Test
 	public void indexesTempData() {
 		final Set<Document> indexes = new HashSet<>();
@@ -312,8 +367,9 @@ public class MongoStorageStartUpTest extends MongoStorageTester {
 						.append("name", "_id_")
 						.append("ns", "test_mongostorage.tokens"),
 				new Document("v", indexVer)
-						.append("key", new Document("user", 1))
-						.append("name", "user_1")
+						.append("key", new Document("user", 1).append("create", 1)
+								.append("id", 1))
+						.append("name", "user_1_create_1_id_1")
 						.append("ns", "test_mongostorage.tokens"),
 				new Document("v", indexVer)
 						.append("unique", true)
@@ -364,6 +420,11 @@ public class MongoStorageStartUpTest extends MongoStorageTester {
 						.append("name", "custrls_1")
 						.append("ns", "test_mongostorage.users")
 						.append("sparse", true),
+				new Document("v", indexVer)
+						.append("key", new Document("policyids.id", 1))
+						.append("name", "policyids.id_1")
+						.append("ns", "test_mongostorage.users")
+						.append("sparse", true),
 				new Document("v", indexVer)
 						.append("key", new Document("dispcan", 1))
 						.append("name", "dispcan_1")
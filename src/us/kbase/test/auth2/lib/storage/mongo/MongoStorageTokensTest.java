@@ -8,19 +8,25 @@ import static us.kbase.test.auth2.TestCommon.set;
 
 import java.net.InetAddress;
 import java.time.Instant;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.UUID;
 
 import org.bson.Document;
 import org.junit.Test;
 
+import com.google.common.base.Optional;
+
 import us.kbase.auth2.lib.TokenCreationContext;
 import us.kbase.auth2.lib.UserName;
 import us.kbase.auth2.lib.exceptions.NoSuchTokenException;
 import us.kbase.auth2.lib.token.IncomingHashedToken;
 import us.kbase.auth2.lib.token.IncomingToken;
 import us.kbase.auth2.lib.token.StoredToken;
+import us.kbase.auth2.lib.token.TokenCursor;
+import us.kbase.auth2.lib.token.TokenListSpec;
 import us.kbase.auth2.lib.token.TokenName;
+import us.kbase.auth2.lib.token.TokenPage;
 import us.kbase.auth2.lib.token.TokenType;
 import us.kbase.test.auth2.TestCommon;
 
@@ -258,6 +264,126 @@ public class MongoStorageTokensTest extends MongoStorageTester {
 		}
 	}
 	
+	private StoredToken pagedToken(
+			final TokenType type,
+			final String id,
+			final String user,
+			final long created,
+			final String name)
+			throws Exception {
+		return StoredToken.getBuilder(type, UUID.fromString(id), new UserName(user))
+				.withLifeTime(Instant.ofEpochMilli(created), Instant.now().plusSeconds(3600))
+				.withNullableTokenName(name == null ? null : new TokenName(name))
+				.build();
+	}
+	
+	@Test
+	public void getTokensPaged() throws Exception {
+		final StoredToken t1 = pagedToken(TokenType.LOGIN,
+				"edc1dcbb-d370-4660-a639-01a72f0d578a", "bar", 10000, null);
+		// t2 and t3 have the same creation date, so are sorted by ID
+		final StoredToken t2 = pagedToken(TokenType.DEV,
+				"8351a73a-d4c7-4c00-9a7d-012ace5d9519", "bar", 20000, "n");
+		final StoredToken t3 = pagedToken(TokenType.DEV,
+				"653cc5ce-37e6-4e61-ac25-48831657f257", "bar", 20000, "m");
+		final StoredToken t4 = pagedToken(TokenType.SERV,
+				"cb5e637c-cfbb-44eb-b179-843f3279f775", "bar", 30000, "n");
+		final StoredToken other = pagedToken(TokenType.DEV,
+				"354c4f2d-a472-43aa-a4bd-84392b2d3407", "bar2", 25000, "n");
+		
+		int i = 1;
+		for (final StoredToken t: Arrays.asList(t3, other, t1, t4, t2)) {
+			storage.storeToken(t, "hash" + i++);
+		}
+		
+		assertThat("incorrect tokens", storage.getTokens(new UserName("bar"),
+				TokenListSpec.getBuilder().build()),
+				is(new TokenPage(Arrays.asList(t4, t2, t3, t1), Optional.absent())));
+		
+		final TokenPage p1 = storage.getTokens(new UserName("bar"),
+				TokenListSpec.getBuilder().withLimit(2).build());
+		assertThat("incorrect tokens", p1, is(new TokenPage(Arrays.asList(t4, t2),
+				Optional.of(new TokenCursor(Instant.ofEpochMilli(20000), t2.getId())))));
+		
+		final TokenPage p2 = storage.getTokens(new UserName("bar"),
+				TokenListSpec.getBuilder().withLimit(2).withCursor(p1.getNextCursor().get())
+				.build());
+		// the last token is on this page, but there's no way to know that without another query
+		assertThat("incorrect tokens", p2, is(new TokenPage(Arrays.asList(t3, t1),
+				Optional.of(new TokenCursor(Instant.ofEpochMilli(10000), t1.getId())))));
+		
+		final TokenPage p3 = storage.getTokens(new UserName("bar"),
+				TokenListSpec.getBuilder().withLimit(2).withCursor(p2.getNextCursor().get())
+				.build());
+		assertThat("incorrect tokens", p3,
+				is(new TokenPage(Collections.emptyList(), Optional.absent())));
+	}
+	
+	@Test
+	public void getTokensPagedFiltered() throws Exception {
+		final StoredToken t1 = pagedToken(TokenType.LOGIN,
+				"edc1dcbb-d370-4660-a639-01a72f0d578a", "bar", 10000, "n");
+		final StoredToken t2 = pagedToken(TokenType.DEV,
+				"8351a73a-d4c7-4c00-9a7d-012ace5d9519", "bar", 20000, "n");
+		final StoredToken t3 = pagedToken(TokenType.DEV,
+				"653cc5ce-37e6-4e61-ac25-48831657f257", "bar", 30000, "m");
+		final StoredToken t4 = pagedToken(TokenType.DEV,
+				"cb5e637c-cfbb-44eb-b179-843f3279f775", "bar", 40000, "n");
+		
+		int i = 1;
+		for (final StoredToken t: Arrays.asList(t1, t2, t3, t4)) {
+			storage.storeToken(t, "hash" + i++);
+		}
+		
+		assertThat("incorrect tokens", storage.getTokens(new UserName("bar"),
+				TokenListSpec.getBuilder().withNullableType(TokenType.DEV).build()),
+				is(new TokenPage(Arrays.asList(t4, t3, t2), Optional.absent())));
+		
+		assertThat("incorrect tokens", storage.getTokens(new UserName("bar"),
+				TokenListSpec.getBuilder().withNullableName(new TokenName("n")).build()),
+				is(new TokenPage(Arrays.asList(t4, t2, t1), Optional.absent())));
+		
+		assertThat("incorrect tokens", storage.getTokens(new UserName("bar"),
+				TokenListSpec.getBuilder().withNullableType(TokenType.DEV)
+						.withNullableName(new TokenName("n"))
+						.withLimit(1).build()),
+				is(new TokenPage(Arrays.asList(t4),
+						Optional.of(new TokenCursor(Instant.ofEpochMilli(40000), t4.getId())))));
+		
+		assertThat("incorrect tokens", storage.getTokens(new UserName("bar"),
+				TokenListSpec.getBuilder().withNullableType(TokenType.DEV)
+						.withNullableName(new TokenName("n"))
+						.withCursor(TokenCursor.after(t4)).build()),
+				is(new TokenPage(Arrays.asList(t2), Optional.absent())));
+		
+		assertThat("incorrect tokens", storage.getTokens(new UserName("bar"),
+				TokenListSpec.getBuilder().withNullableType(TokenType.SERV).build()),
+				is(new TokenPage(Collections.emptyList(), Optional.absent())));
+		
+		assertThat("incorrect tokens", storage.getTokens(new UserName("bar3"),
+				TokenListSpec.getBuilder().build()),
+				is(new TokenPage(Collections.emptyList(), Optional.absent())));
+	}
+	
+	@Test
+	public void getTokensPagedFail() throws Exception {
+		failGetTokensPaged(null, TokenListSpec.getBuilder().build(),
+				new NullPointerException("userName"));
+		failGetTokensPaged(new UserName("bar"), null, new NullPointerException("spec"));
+	}
+	
+	private void failGetTokensPaged(
+			final UserName name,
+			final TokenListSpec spec,
+			final Exception expected) {
+		try {
+			storage.getTokens(name, spec);
+			fail("expected exception");
+		} catch (Exception got) {
+			TestCommon.assertExceptionCorrect(got, expected);
+		}
+	}
+	
 	@Test
 	public void deleteToken() throws Exception {
 		final UUID id = UUID.randomUUID();
@@ -364,31 +490,4 @@ public class MongoStorageTokensTest extends MongoStorageTester {
 			assertThat("incorrect exception message", e.getMessage(), is("userName"));
 		}
 	}
-	
-	@Test
-	public void deleteTokens() throws Exception {
-		final Instant now = Instant.now();
-		
-		final StoredToken ht = StoredToken.getBuilder(
-				TokenType.LOGIN, UUID.randomUUID(), new UserName("bar"))
-				.withLifeTime(now, 100000).withTokenName(new TokenName("foo")).build();
-
-		final StoredToken ht2 = StoredToken.getBuilder(
-				TokenType.LOGIN, UUID.randomUUID(), new UserName("bar2"))
-				.withLifeTime(now, 100000).withTokenName(new TokenName("foo")).build();
-
-		final StoredToken ht3 = StoredToken.getBuilder(
-				TokenType.LOGIN, UUID.randomUUID(), new UserName("bar"))
-				.withLifeTime(now, 100000).build();
-		
-		storage.storeToken(ht, "1");
-		storage.storeToken(ht2, "2");
-		storage.storeToken(ht3, "3");
-		
-		storage.deleteTokens();
-		assertThat("tokens remaining", storage.getTokens(new UserName("bar")),
-				is(Collections.emptySet()));
-		assertThat("tokens remaining", storage.getTokens(new UserName("bar2")),
-				is(Collections.emptySet()));
-	}
 }
@@ -236,61 +236,10 @@ public class MongoStorageUpdateUserFieldsTest extends MongoStorageTester {
 		}
 	}
 	
-	@Test
-	public void removePolicyID() throws Exception {
-		final NewUser nu = NewUser.getBuilder(
-				new UserName("user1"), new DisplayName("bar1"), NOW, REMOTE1)
-				.withEmailAddress(new EmailAddress("e@g1.com"))
-				.withPolicyID(new PolicyID("foo"), Instant.now())
-				.withPolicyID(new PolicyID("bar"), Instant.ofEpochMilli(30000))
-				.build();
-		storage.createUser(nu);
-		final NewUser nu2 = NewUser.getBuilder(
-				new UserName("user2"), new DisplayName("bar1"), NOW, REMOTE2)
-				.withEmailAddress(new EmailAddress("e@g1.com"))
-				.withPolicyID(new PolicyID("foo"), Instant.now())
-				.withPolicyID(new PolicyID("baz"), Instant.ofEpochMilli(40000))
-				.build();
-		storage.createUser(nu2);
-		
-		storage.removePolicyID(new PolicyID("foo"));
-
-		assertThat("incorrect policyIDs", storage.getUser(new UserName("user1")).getPolicyIDs(),
-				is(ImmutableMap.of(new PolicyID("bar"), Instant.ofEpochMilli(30000))));
-		assertThat("incorrect policyIDs", storage.getUser(new UserName("user2")).getPolicyIDs(),
-				is(ImmutableMap.of(new PolicyID("baz"), Instant.ofEpochMilli(40000))));
-	}
-	
-	@Test
-	public void removeUnusedPolicyID() throws Exception {
-		final NewUser nu = NewUser.getBuilder(
-				new UserName("user1"), new DisplayName("bar1"), NOW, REMOTE1)
-				.withPolicyID(new PolicyID("foo"), Instant.ofEpochMilli(20000))
-				.withPolicyID(new PolicyID("bar"), Instant.ofEpochMilli(30000))
-				.build();
-		storage.createUser(nu);
-		final NewUser nu2 = NewUser.getBuilder(
-				new UserName("user2"), new DisplayName("bar1"), NOW, REMOTE2)
-				.withEmailAddress(new EmailAddress("e@g1.com"))
-				.withPolicyID(new PolicyID("foo"), Instant.ofEpochMilli(35000))
-				.withPolicyID(new PolicyID("baz"), Instant.ofEpochMilli(40000))
-				.build();
-		storage.createUser(nu2);
-		
-		storage.removePolicyID(new PolicyID("bat"));
-
-		assertThat("incorrect policyIDs", storage.getUser(new UserName("user1")).getPolicyIDs(),
-				is(ImmutableMap.of(new PolicyID("bar"), Instant.ofEpochMilli(30000),
-						new PolicyID("foo"), Instant.ofEpochMilli(20000))));
-		assertThat("incorrect policyIDs", storage.getUser(new UserName("user2")).getPolicyIDs(),
-				is(ImmutableMap.of(new PolicyID("baz"), Instant.ofEpochMilli(40000),
-						new PolicyID("foo"), Instant.ofEpochMilli(35000))));
-	}
-	
 	@Test
 	public void failRemovePolicyID() throws Exception {
 		try {
-			storage.removePolicyID(null);
+			storage.removePolicyID(null, Optional.absent(), 1);
 			fail("expected exception");
 		} catch (Exception got) {
 			TestCommon.assertExceptionCorrect(got, new NullPointerException("policyID"));
@@ -0,0 +1,119 @@
+package us.kbase.test.auth2.lib.storage.mongo;
+
+import java.util.LinkedList;
+import java.util.List;
+import java.util.concurrent.Callable;
+
+import org.bson.Document;
+
+import com.mongodb.client.MongoDatabase;
+
+/** Records the query plans MongoDB uses for the database operations that occur during a call to
+ * the storage system, via the database profiler.
+ *
+ * The plan summaries are the same as the winning plans reported by explain(), but are recorded
+ * for the queries the storage system actually issues rather than for copies of those queries,
+ * which could drift from the storage code.
+ */
+public class QueryPlans {
+
+	/** The plan summary for a query that scans the entire collection. */
+	public static final String COLLSCAN = "COLLSCAN";
+
+	private static final String PROFILE = "system.profile";
+
+	/** The query plan for a single database operation. */
+	public static class QueryPlan {
+
+		private final String collection;
+		private final String operation;
+		private final String summary;
+
+		private QueryPlan(final String collection, final String operation, final String summary) {
+			this.collection = collection;
+			this.operation = operation;
+			this.summary = summary;
+		}
+
+		/** Get the collection the operation ran against.
+		 * @return the collection.
+		 */
+		public String getCollection() {
+			return collection;
+		}
+
+		/** Get the type of the operation, e.g. query or update.
+		 * @return the operation type.
+		 */
+		public String getOperation() {
+			return operation;
+		}
+
+		/** Get the summary of the plan, e.g. IXSCAN { user: 1 } or COLLSCAN.
+		 * @return the plan summary.
+		 */
+		public String getSummary() {
+			return summary;
+		}
+
+		/** Returns true if the plan scans the entire collection.
+		 * @return true if the plan is a collection scan.
+		 */
+		public boolean isCollectionScan() {
+			return summary.contains(COLLSCAN);
+		}
+
+		@Override
+		public String toString() {
+			return collection + " " + operation + ": " + summary;
+		}
+	}
+
+	private QueryPlans() {}
+
+	/** Run a call against the storage system and record the query plans for the database
+	 * operations that occur during the call. Operations that have no query plan, such as
+	 * inserts, are not included.
+	 * @param db the database the storage system uses.
+	 * @param call the call to profile.
+	 * @return the query plans in the order the operations occurred.
+	 * @throws Exception if the call throws an exception.
+	 */
+	public static List<QueryPlan> record(final MongoDatabase db, final Callable<?> call)
+			throws Exception {
+		// the profile collection can only be dropped when profiling is off
+		db.runCommand(new Document("profile", 0));
+		db.getCollection(PROFILE).drop();
+		db.runCommand(new Document("profile", 2));
+		try {
+			call.call();
+		} finally {
+			db.runCommand(new Document("profile", 0));
+		}
+		final String prefix = db.getName() + ".";
+		final List<QueryPlan> plans = new LinkedList<>();
+		for (final Document d: db.getCollection(PROFILE).find().sort(new Document("ts", 1))) {
+			final String ns = d.getString("ns");
+			final String summary = d.getString("planSummary");
+			if (summary != null && ns != null && ns.startsWith(prefix)) {
+				plans.add(new QueryPlan(ns.substring(prefix.length()), d.getString("op"),
+						summary));
+			}
+		}
+		return plans;
+	}
+
+	/** Get the plans that scan an entire collection.
+	 * @param plans the query plans to check.
+	 * @return the plans that are collection scans.
+	 */
+	public static List<QueryPlan> getCollectionScans(final List<QueryPlan> plans) {
+		final List<QueryPlan> scans = new LinkedList<>();
+		for (final QueryPlan p: plans) {
+			if (p.isCollectionScan()) {
+				scans.add(p);
+			}
+		}
+		return scans;
+	}
+}
@@ -0,0 +1,223 @@
+package us.kbase.test.auth2.lib.token;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.UUID;
+
+import org.junit.Test;
+
+import com.google.common.base.Optional;
+
+import nl.jqno.equalsverifier.EqualsVerifier;
+import us.kbase.auth2.lib.UserName;
+import us.kbase.auth2.lib.exceptions.IllegalParameterException;
+import us.kbase.auth2.lib.token.StoredToken;
+import us.kbase.auth2.lib.token.TokenCursor;
+import us.kbase.auth2.lib.token.TokenListSpec;
+import us.kbase.auth2.lib.token.TokenName;
+import us.kbase.auth2.lib.token.TokenPage;
+import us.kbase.auth2.lib.token.TokenType;
+import us.kbase.test.auth2.TestCommon;
+
+public class TokenListTest {
+	
+	private static final UUID ID = UUID.fromString("edc1dcbb-d370-4660-a639-01a72f0d578a");
+	
+	@Test
+	public void equalsCursor() throws Exception {
+		EqualsVerifier.forClass(TokenCursor.class).usingGetClass().verify();
+	}
+	
+	@Test
+	public void equalsSpec() throws Exception {
+		EqualsVerifier.forClass(TokenListSpec.class).usingGetClass().verify();
+	}
+	
+	@Test
+	public void equalsPage() throws Exception {
+		EqualsVerifier.forClass(TokenPage.class).usingGetClass().verify();
+	}
+	
+	@Test
+	public void cursor() throws Exception {
+		final TokenCursor c = new TokenCursor(Instant.ofEpochMilli(10000), ID);
+		
+		assertThat("incorrect created", c.getCreated(), is(Instant.ofEpochMilli(10000)));
+		assertThat("incorrect id", c.getID(), is(ID));
+		assertThat("incorrect encoding", c.encode(), is("AAAAAAAAJxDtwdy703BGYKY5AacvDVeK"));
+		assertThat("incorrect decoding", TokenCursor.decode(c.encode()), is(c));
+		assertThat("incorrect decoding", TokenCursor.decode("  " + c.encode() + "\t"), is(c));
+		assertThat("incorrect toString", c.toString(), is(
+				"TokenCursor [created=1970-01-01T00:00:10Z, " +
+				"id=edc1dcbb-d370-4660-a639-01a72f0d578a]"));
+	}
+	
+	@Test
+	public void cursorAfter() throws Exception {
+		final StoredToken t = StoredToken.getBuilder(TokenType.DEV, ID, new UserName("u"))
+				.withLifeTime(Instant.ofEpochMilli(20000), Instant.ofEpochMilli(30000))
+				.build();
+		
+		assertThat("incorrect cursor", TokenCursor.after(t),
+				is(new TokenCursor(Instant.ofEpochMilli(20000), ID)));
+	}
+	
+	@Test
+	public void cursorFail() throws Exception {
+		try {
+			new TokenCursor(null, ID);
+			fail("expected exception");
+		} catch (Exception got) {
+			TestCommon.assertExceptionCorrect(got, new NullPointerException("created"));
+		}
+		try {
+			new TokenCursor(Instant.ofEpochMilli(1), null);
+			fail("expected exception");
+		} catch (Exception got) {
+			TestCommon.assertExceptionCorrect(got, new NullPointerException("id"));
+		}
+		try {
+			TokenCursor.after(null);
+			fail("expected exception");
+		} catch (Exception got) {
+			TestCommon.assertExceptionCorrect(got, new NullPointerException("token"));
+		}
+	}
+	
+	@Test
+	public void cursorDecodeFail() throws Exception {
+		failDecode(null, new NullPointerException("cursor"));
+		failDecode("AAAAAAAAJxDtwdy703BGYKY5AacvDVe*",
+				new IllegalParameterException("Invalid cursor: AAAAAAAAJxDtwdy703BGYKY5AacvDVe*"));
+		failDecode("AAAAAAAAJxDtwdy703BGYKY5AacvDV",
+				new IllegalParameterException("Invalid cursor: AAAAAAAAJxDtwdy703BGYKY5AacvDV"));
+		failDecode("", new IllegalParameterException("Invalid cursor: "));
+	}
+	
+	private void failDecode(final String cursor, final Exception expected) {
+		try {
+			TokenCursor.decode(cursor);
+			fail("expected exception");
+		} catch (Exception got) {
+			TestCommon.assertExceptionCorrect(got, expected);
+		}
+	}
+	
+	@Test
+	public void specDefault() throws Exception {
+		final TokenListSpec s = TokenListSpec.getBuilder().build();
+		
+		assertThat("incorrect type", s.getType(), is(Optional.absent()));
+		assertThat("incorrect name", s.getName(), is(Optional.absent()));
+		assertThat("incorrect limit", s.getLimit(), is(100));
+		assertThat("incorrect cursor", s.getCursor(), is(Optional.absent()));
+	}
+	
+	@Test
+	public void specMaximal() throws Exception {
+		final TokenCursor c = new TokenCursor(Instant.ofEpochMilli(10000), ID);
+		final TokenListSpec s = TokenListSpec.getBuilder()
+				.withNullableType(TokenType.SERV)
+				.withNullableName(new TokenName("foo"))
+				.withLimit(1000)
+				.withCursor(c)
+				.build();
+		
+		assertThat("incorrect type", s.getType(), is(Optional.of(TokenType.SERV)));
+		assertThat("incorrect name", s.getName(), is(Optional.of(new TokenName("foo"))));
+		assertThat("incorrect limit", s.getLimit(), is(1000));
+		assertThat("incorrect cursor", s.getCursor(), is(Optional.of(c)));
+	}
+	
+	@Test
+	public void specNulls() throws Exception {
+		final TokenListSpec s = TokenListSpec.getBuilder()
+				.withNullableType(TokenType.SERV)
+				.withNullableName(new TokenName("foo"))
+				.withNullableType(null)
+				.withNullableName(null)
+				.withLimit(1)
+				.build();
+		
+		assertThat("incorrect type", s.getType(), is(Optional.absent()));
+		assertThat("incorrect name", s.getName(), is(Optional.absent()));
+		assertThat("incorrect limit", s.getLimit(), is(1));
+		assertThat("incorrect cursor", s.getCursor(), is(Optional.absent()));
+	}
+	
+	@Test
+	public void specFail() throws Exception {
+		failLimit(0);
+		failLimit(1001);
+		failLimit(-1);
+		try {
+			TokenListSpec.getBuilder().withCursor(null);
+			fail("expected exception");
+		} catch (Exception got) {
+			TestCommon.assertExceptionCorrect(got, new NullPointerException("cursor"));
+		}
+	}
+	
+	private void failLimit(final int limit) {
+		try {
+			TokenListSpec.getBuilder().withLimit(limit);
+			fail("expected exception");
+		} catch (Exception got) {
+			TestCommon.assertExceptionCorrect(got, new IllegalParameterException(
+					"limit must be between 1 and 1000"));
+		}
+	}
+	
+	@Test
+	public void page() throws Exception {
+		final StoredToken t1 = StoredToken.getBuilder(TokenType.DEV, ID, new UserName("u"))
+				.withLifeTime(Instant.ofEpochMilli(20000), Instant.ofEpochMilli(30000))
+				.build();
+		final StoredToken t2 = StoredToken.getBuilder(
+				TokenType.LOGIN, UUID.randomUUID(), new UserName("u"))
+				.withLifeTime(Instant.ofEpochMilli(10000), Instant.ofEpochMilli(30000))
+				.build();
+		final List<StoredToken> tokens = new LinkedList<>(Arrays.asList(t1, t2));
+		final TokenPage p = new TokenPage(tokens, Optional.of(TokenCursor.after(t2)));
+		tokens.clear(); // test the page copies the list
+		
+		assertThat("incorrect tokens", p.getTokens(), is(Arrays.asList(t1, t2)));
+		assertThat("incorrect cursor", p.getNextCursor(),
+				is(Optional.of(new TokenCursor(Instant.ofEpochMilli(10000), t2.getId()))));
+		try { // test immutable
+			p.getTokens().add(t1);
+			fail("not immutable");
+		} catch (UnsupportedOperationException e) {}
+		
+		final TokenPage p2 = new TokenPage(Collections.emptyList(), Optional.absent());
+		assertThat("incorrect tokens", p2.getTokens(), is(Collections.emptyList()));
+		assertThat("incorrect cursor", p2.getNextCursor(), is(Optional.absent()));
+	}
+	
+	@Test
+	public void pageFail() throws Exception {
+		failPage(null, Optional.absent(), new NullPointerException("tokens"));
+		failPage(Collections.emptyList(), null, new NullPointerException("nextCursor"));
+		failPage(Arrays.asList((StoredToken) null), Optional.absent(),
+				new NullPointerException("One of the tokens in the incoming list is null"));
+	}
+	
+	private void failPage(
+			final List<StoredToken> tokens,
+			final Optional<TokenCursor> cursor,
+			final Exception expected) {
+		try {
+			new TokenPage(tokens, cursor);
+			fail("expected exception");
+		} catch (Exception got) {
+			TestCommon.assertExceptionCorrect(got, expected);
+		}
+	}
+}
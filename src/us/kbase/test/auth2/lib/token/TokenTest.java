@@ -7,10 +7,8 @@ import static org.junit.Assert.fail;
 import java.time.Instant;
 import java.util.Arrays;
 import java.util.Collections;
-import java.util.HashSet;
 import java.util.LinkedList;
 import java.util.List;
-import java.util.Set;
 import java.util.UUID;
 
 import org.junit.Test;
@@ -28,7 +26,10 @@ import us.kbase.auth2.lib.token.NewToken;
 import us.kbase.auth2.lib.token.StoredToken;
 import us.kbase.auth2.lib.token.StoredToken.OptionalsStep;
 import us.kbase.auth2.lib.token.TemporaryToken;
+import us.kbase.auth2.lib.token.TokenBoundResult;
+import us.kbase.auth2.lib.token.TokenCursor;
 import us.kbase.auth2.lib.token.TokenName;
+import us.kbase.auth2.lib.token.TokenPage;
 import us.kbase.auth2.lib.token.TokenSet;
 import us.kbase.auth2.lib.token.TokenType;
 import us.kbase.test.auth2.TestCommon;
@@ -65,6 +66,11 @@ public class TokenTest {
 		EqualsVerifier.forClass(TokenSet.class).usingGetClass().verify();
 	}
 	
+	@Test
+	public void equalsTokenBoundResult() {
+		EqualsVerifier.forClass(TokenBoundResult.class).usingGetClass().verify();
+	}
+	
 	@Test
 	public void tokenTypeGetType() throws Exception {
 		assertThat("failed to get login token type", TokenType.getType("Login"),
@@ -354,37 +360,38 @@ public class TokenTest {
 				.withLifeTime(Instant.ofEpochMilli(5000), 1000)
 				.withTokenName(new TokenName("n3")).build();
 		
-		final Set<StoredToken> tokens = new HashSet<>(Arrays.asList(ht1, ht2, ht3));
-		//test removing current token from incoming set
-		final TokenSet ts = new TokenSet(ht1, tokens);
-		tokens.clear(); // test makes copy of set rather than using same set
+		final TokenCursor cursor = new TokenCursor(Instant.ofEpochMilli(5000), id3);
+		//test removing current token from incoming page
+		final TokenSet ts = new TokenSet(ht1, new TokenPage(Arrays.asList(ht3, ht1, ht2),
+				Optional.of(cursor)));
 		assertThat("incorrect current token", ts.getCurrentToken(), is(ht1));
-		assertThat("incorrect token set", ts.getTokens(),
-				is(new HashSet<>(Arrays.asList(ht2, ht3))));
+		assertThat("incorrect token set", ts.getTokens(), is(Arrays.asList(ht3, ht2)));
+		assertThat("incorrect cursor", ts.getNextCursor(), is(Optional.of(cursor)));
 		try { // test immutable
 			ts.getTokens().add(ht1);
 			fail("not immutable");
 		} catch (UnsupportedOperationException e) {}
 		
-		final TokenSet ts2 = new TokenSet(ht2, Collections.emptySet());
+		final TokenSet ts2 = new TokenSet(ht2, new TokenPage(
+				Collections.emptyList(), Optional.absent()));
 		assertThat("incorrect current token", ts2.getCurrentToken(), is(ht2));
-		assertThat("incorrect token set", ts2.getTokens(), is(Collections.emptySet()));
+		assertThat("incorrect token set", ts2.getTokens(), is(Collections.emptyList()));
+		assertThat("incorrect cursor", ts2.getNextCursor(), is(Optional.absent()));
 		
-		failCreateTokenSet(null, Collections.emptySet(), new NullPointerException("current"));
-		failCreateTokenSet(ht1, null, new NullPointerException("tokens"));
+		failCreateTokenSet(null, new TokenPage(Collections.emptyList(), Optional.absent()),
+				new NullPointerException("current"));
+		failCreateTokenSet(ht1, null, new NullPointerException("page"));
 		final StoredToken htnewuser = StoredToken.getBuilder(TokenType.LOGIN, id1,
 					new UserName("u2"))
 				.withLifeTime(Instant.ofEpochMilli(1000), 1000)
 				.withTokenName(new TokenName("foo")).build();
-		failCreateTokenSet(ht1, new HashSet<>(Arrays.asList(ht2, htnewuser, ht3)),
+		failCreateTokenSet(ht1, new TokenPage(Arrays.asList(ht2, htnewuser, ht3),
+				Optional.absent()),
 				new IllegalArgumentException("Mixing tokens from different users is not allowed"));
-		failCreateTokenSet(ht1, new HashSet<>(Arrays.asList(ht2, null, ht3)),
-				new NullPointerException("One of the tokens in the incoming set is null"));
-		
 	}
 	
 	@Test
-	public void tokenSetIsSorted() throws Exception {
+	public void tokenSetKeepsPageOrder() throws Exception {
 		final UUID id1 = UUID.fromString("edc1dcbb-d370-4660-a639-01a72f0d578a");
 		final UUID id2 = UUID.fromString("8351a73a-d4c7-4c00-9a7d-012ace5d9519");
 		final UUID id3 = UUID.fromString("653cc5ce-37e6-4e61-ac25-48831657f257");
@@ -406,23 +413,51 @@ public class TokenTest {
 				.withLifeTime(Instant.ofEpochMilli(8000), 1000)
 				.withTokenName(new TokenName("n5")).build();
 
-		// test that unmodifiable sets don't break anything
-		final Set<StoredToken> tokens = Collections.unmodifiableSet(
-						new HashSet<>(Arrays.asList(ht2, ht3, ht4, ht5)));
-		final TokenSet ts = new TokenSet(ht1, tokens);
+		final TokenSet ts = new TokenSet(ht1, new TokenPage(
+				Arrays.asList(ht5, ht4, ht3, ht2), Optional.absent()));
 		final List<StoredToken> sorted = new LinkedList<>(ts.getTokens());
-		assertThat("tokens not sorted", sorted, is(Arrays.asList(ht5, ht3, ht2, ht4)));
+		assertThat("tokens not in page order", sorted, is(Arrays.asList(ht5, ht4, ht3, ht2)));
 	}
 	
 	private void failCreateTokenSet(
 			final StoredToken current,
-			final Set<StoredToken> tokens,
+			final TokenPage page,
 			final Exception exception) {
 		try {
-			new TokenSet(current, tokens);
+			new TokenSet(current, page);
 			fail("created bad token set");
 		} catch (Exception e) {
 			TestCommon.assertExceptionCorrect(e, exception);
 		}
 	}
+	
+	@Test
+	public void tokenBoundResult() throws Exception {
+		final TokenBoundResult<String> r = new TokenBoundResult<>(
+				"foo", Instant.ofEpochMilli(10000));
+		
+		assertThat("incorrect result", r.getResult(), is("foo"));
+		assertThat("incorrect expiry", r.getTokenExpirationDate(),
+				is(Instant.ofEpochMilli(10000)));
+	}
+	
+	@Test
+	public void tokenBoundResultFail() throws Exception {
+		failCreateTokenBoundResult(null, Instant.ofEpochMilli(10000),
+				new NullPointerException("result"));
+		failCreateTokenBoundResult("foo", null,
+				new NullPointerException("tokenExpirationDate"));
+	}
+	
+	private void failCreateTokenBoundResult(
+			final String result,
+			final Instant expires,
+			final Exception exception) {
+		try {
+			new TokenBoundResult<>(result, expires);
+			fail("created bad token bound result");
+		} catch (Exception e) {
+			TestCommon.assertExceptionCorrect(e, exception);
+		}
+	}
 }
@@ -40,7 +40,7 @@ public class AuthUserTest {
 	@Test
 	public void equals() {
 		EqualsVerifier.forClass(AuthUser.class).usingGetClass()
-				.withIgnoredFields("canGrantRoles").verify();
+				.withIgnoredFields("canGrantRoles", "effectiveRoleMask").verify();
 	}
 	
 	@Test
@@ -241,6 +241,29 @@ public class AuthUserTest {
 		
 		assertThat("incorrect canGrant", u.getGrantableRoles(),
 				is(set(Role.DEV_TOKEN, Role.SERV_TOKEN)));
+		
+		final int mask = u.getEffectiveRoleMask();
+		assertThat("incorrect effective roles", Role.fromMask(mask),
+				is(set(Role.ADMIN, Role.DEV_TOKEN, Role.SERV_TOKEN)));
+		assertThat("incorrect satisfied", Role.SERV_TOKEN.isSatisfiedBy(mask), is(true));
+		assertThat("incorrect satisfied", Role.CREATE_ADMIN.isSatisfiedBy(mask), is(false));
+	}
+	
+	@Test
+	public void effectiveRoleMask() throws Exception {
+		final AuthUser u = AuthUser.getBuilder(new UserName("whoo"), new DisplayName("bar3"), NOW)
+				.build();
+		assertThat("incorrect mask", u.getEffectiveRoleMask(), is(0));
+		
+		final AuthUser u2 = AuthUser.getBuilder(new UserName("whoo"), new DisplayName("bar3"), NOW)
+				.withRole(Role.SERV_TOKEN)
+				.build();
+		assertThat("incorrect mask", u2.getEffectiveRoleMask(),
+				is(Role.SERV_TOKEN.getMask() | Role.DEV_TOKEN.getMask()));
+		
+		final AuthUser root = AuthUser.getBuilder(UserName.ROOT, new DisplayName("bar3"), NOW)
+				.build();
+		assertThat("incorrect mask", root.getEffectiveRoleMask(), is(Role.ROOT.getMask()));
 	}
 	
 	@Test
@@ -495,4 +518,46 @@ public class AuthUserTest {
 		
 				
 	}
+	
+	private AuthUser buildPooledUser(final String name) throws Exception {
+		// new strings, as when a user is read from the database
+		return AuthUser.getBuilder(new UserName(new String("foo")),
+				new DisplayName(name), NOW)
+				.withRole(Role.ADMIN)
+				.withRole(Role.DEV_TOKEN)
+				.withCustomRole(new String("whoo"))
+				.withCustomRole(new String("baz"))
+				.withPolicyID(new PolicyID(new String("pid")), NOW)
+				.build();
+	}
+	
+	@Test
+	public void pooledValues() throws Exception {
+		final AuthUser u1 = buildPooledUser("bar");
+		final AuthUser u2 = buildPooledUser("bat");
+		
+		assertThat("user name not pooled", u1.getUserName() == u2.getUserName(), is(true));
+		assertThat("roles not pooled", u1.getRoles() == u2.getRoles(), is(true));
+		assertThat("grantable roles not pooled",
+				u1.getGrantableRoles() == u2.getGrantableRoles(), is(true));
+		assertThat("custom roles not pooled", u1.getCustomRoles() == u2.getCustomRoles(),
+				is(true));
+		assertThat("policy ID not pooled", u1.getPolicyIDs().keySet().iterator().next() ==
+				u2.getPolicyIDs().keySet().iterator().next(), is(true));
+		
+		final AuthUser u3 = AuthUser.getBuilder(new UserName("foo"), new DisplayName("bar"), NOW)
+				.withRole(Role.DEV_TOKEN)
+				.withCustomRole("whoo")
+				.build();
+		
+		assertThat("incorrect roles", u3.getRoles(), is(set(Role.DEV_TOKEN)));
+		assertThat("incorrect grantable roles", u3.getGrantableRoles(),
+				is(Collections.emptySet()));
+		assertThat("incorrect custom roles", u3.getCustomRoles(), is(set("whoo")));
+		assertThat("incorrect custom roles", u1.getCustomRoles(), is(set("baz", "whoo")));
+		assertThat("custom role not pooled",
+				u3.getCustomRoles().iterator().next() == u1.getCustomRoles().stream()
+						.filter(r -> r.equals("whoo")).findFirst().get(),
+				is(true));
+	}
 }
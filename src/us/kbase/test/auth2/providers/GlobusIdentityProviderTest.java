@@ -700,6 +700,31 @@ public class GlobusIdentityProviderTest {
 		assertThat("incorrect ident set", rids, is(expected));
 	}
 	
+	@Test
+	public void getIdentityWithManySecondariesInParallel() throws Exception {
+		// 25 secondaries are fetched in 3 chunks
+		try (final GlobusStandInServer server = new GlobusStandInServer(25, 500)) {
+			final IdentityProvider idp = new GlobusIdentityProvider(server.getConfig());
+			
+			final Set<RemoteIdentity> rids = idp.getIdentities("authcode", false);
+			
+			final Set<RemoteIdentity> expected = new HashSet<>();
+			expected.add(new RemoteIdentity(new RemoteIdentityID(GLOBUS, "primary"),
+					new RemoteIdentityDetails("user_primary", "Primary User", null)));
+			for (int i = 0; i < 25; i++) {
+				final String id = "secondary" + i;
+				expected.add(new RemoteIdentity(new RemoteIdentityID(GLOBUS, id),
+						new RemoteIdentityDetails("user_" + id, "Name " + id,
+								id + "@example.com")));
+			}
+			assertThat("incorrect ident set", rids, is(expected));
+			assertThat("incorrect identity request count", server.getIdentityRequestCount(),
+					is(3));
+			assertThat("identity requests not concurrent",
+					server.getMaxConcurrentIdentityRequests() > 1, is(true));
+		}
+	}
+	
 	private Map<String, Object> map(final Object... entries) {
 		if (entries.length % 2 != 0) {
 			throw new IllegalArgumentException();
@@ -0,0 +1,214 @@
+package us.kbase.test.auth2.providers;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URL;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.common.collect.ImmutableMap;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import us.kbase.auth2.lib.identity.IdentityProvider;
+import us.kbase.auth2.lib.identity.IdentityProviderConfig;
+import us.kbase.auth2.providers.GlobusIdentityProviderFactory;
+import us.kbase.auth2.providers.GlobusIdentityProviderFactory.GlobusIdentityProvider;
+
+/** A local stand in for the Globus Auth API, sufficient for a {@link GlobusIdentityProvider}
+ * to complete a login. Each request is delayed by a fixed latency to simulate the network and
+ * Globus processing time, so the latency of a login callback can be measured without network
+ * access.
+ *
+ * The primary identity is linked to a configurable number of secondary identities.
+ *
+ * Run the main method to benchmark the login callback.
+ */
+public class GlobusStandInServer implements AutoCloseable {
+
+	private static final ObjectMapper MAPPER = new ObjectMapper();
+
+	/** The client ID expected by the stand in. */
+	public static final String CLIENT_ID = "standinclient";
+
+	private final HttpServer server;
+	private final ExecutorService executor = Executors.newCachedThreadPool();
+	private final int secondaries;
+	private final long latencyMS;
+	private final AtomicInteger identityRequests = new AtomicInteger();
+	private final AtomicInteger inFlightIdentityRequests = new AtomicInteger();
+	private final AtomicInteger maxInFlightIdentityRequests = new AtomicInteger();
+
+	/** Start a stand in server on a free port.
+	 * @param secondaries the number of secondary identities linked to the primary identity.
+	 * @param latencyMS the delay to add to each request.
+	 * @throws IOException if the server could not be started.
+	 */
+	public GlobusStandInServer(final int secondaries, final long latencyMS) throws IOException {
+		this.secondaries = secondaries;
+		this.latencyMS = latencyMS;
+		server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+		server.setExecutor(executor);
+		server.createContext("/v2/oauth2/token", ex -> handle(ex, () -> token(ex)));
+		server.createContext("/v2/api/identities", ex -> {
+			identityRequests.incrementAndGet();
+			final int inflight = inFlightIdentityRequests.incrementAndGet();
+			maxInFlightIdentityRequests.accumulateAndGet(inflight, Math::max);
+			try {
+				handle(ex, () -> identities(ex));
+			} finally {
+				inFlightIdentityRequests.decrementAndGet();
+			}
+		});
+		server.start();
+	}
+
+	public int getPort() {
+		return server.getAddress().getPort();
+	}
+
+	public int getIdentityRequestCount() {
+		return identityRequests.get();
+	}
+
+	public int getMaxConcurrentIdentityRequests() {
+		return maxInFlightIdentityRequests.get();
+	}
+
+	/** Get a configuration for a Globus identity provider that uses this server.
+	 * @return the configuration.
+	 * @throws Exception if the configuration could not be created.
+	 */
+	public IdentityProviderConfig getConfig() throws Exception {
+		return new IdentityProviderConfig(
+				GlobusIdentityProviderFactory.class.getName(),
+				new URL("https://login.com"),
+				new URL("http://localhost:" + getPort()),
+				CLIENT_ID,
+				"standinsecret",
+				new URL("https://loginredir.com"),
+				new URL("https://linkredir.com"),
+				Collections.emptyMap());
+	}
+
+	private interface Handler {
+		Object handle() throws IOException;
+	}
+
+	private void handle(final HttpExchange ex, final Handler handler) throws IOException {
+		try {
+			Thread.sleep(latencyMS);
+			final byte[] body = MAPPER.writeValueAsBytes(handler.handle());
+			ex.getResponseHeaders().add("Content-Type", "application/json");
+			ex.sendResponseHeaders(200, body.length);
+			try (final OutputStream os = ex.getResponseBody()) {
+				os.write(body);
+			}
+		} catch (InterruptedException e) {
+			ex.sendResponseHeaders(500, -1);
+		} finally {
+			ex.close();
+		}
+	}
+
+	private Object token(final HttpExchange ex) throws IOException {
+		final Map<String, String> form = readForm(ex.getRequestBody());
+		if (ex.getRequestURI().getPath().endsWith("/introspect")) {
+			final List<String> ids = new LinkedList<>();
+			ids.add("primary");
+			for (int i = 0; i < secondaries; i++) {
+				ids.add("secondary" + i);
+			}
+			return ImmutableMap.of(
+					"aud", Arrays.asList(CLIENT_ID),
+					"sub", "primary",
+					"username", "user_primary",
+					"name", "Primary User",
+					"identities_set", ids);
+		}
+		return ImmutableMap.of("access_token", "token_" + form.get("code"));
+	}
+
+	private Object identities(final HttpExchange ex) {
+		final String ids = decode(ex.getRequestURI().getRawQuery()).replaceFirst("^ids=", "");
+		final List<Map<String, String>> idents = new ArrayList<>();
+		for (final String id: ids.split(",")) {
+			final Map<String, String> ident = new HashMap<>();
+			ident.put("id", id);
+			ident.put("username", "user_" + id);
+			ident.put("name", "Name " + id);
+			ident.put("email", id + "@example.com");
+			idents.add(ident);
+		}
+		return ImmutableMap.of("identities", idents);
+	}
+
+	private static Map<String, String> readForm(final InputStream is) throws IOException {
+		final StringBuilder sb = new StringBuilder();
+		final byte[] buf = new byte[1024];
+		int read;
+		while ((read = is.read(buf)) > 0) {
+			sb.append(new String(buf, 0, read, StandardCharsets.UTF_8));
+		}
+		final Map<String, String> ret = new HashMap<>();
+		for (final String pair: sb.toString().split("&")) {
+			final String[] kv = pair.split("=", 2);
+			ret.put(decode(kv[0]), kv.length > 1 ? decode(kv[1]) : "");
+		}
+		return ret;
+	}
+
+	private static String decode(final String s) {
+		try {
+			return URLDecoder.decode(s, "UTF-8");
+		} catch (IOException e) {
+			throw new RuntimeException("This should be impossible", e);
+		}
+	}
+
+	@Override
+	public void close() {
+		server.stop(0);
+		executor.shutdownNow();
+	}
+
+	/** Benchmark the Globus login callback against the stand in server.
+	 * @param args the number of secondary identities, the per request latency in ms, and the
+	 * number of logins to perform. Defaults to 25, 50, and 20.
+	 * @throws Exception if the benchmark fails.
+	 */
+	public static void main(final String[] args) throws Exception {
+		final int secondaries = args.length > 0 ? Integer.parseInt(args[0]) : 25;
+		final long latency = args.length > 1 ? Long.parseLong(args[1]) : 50;
+		final int logins = args.length > 2 ? Integer.parseInt(args[2]) : 20;
+		try (final GlobusStandInServer s = new GlobusStandInServer(secondaries, latency)) {
+			final IdentityProvider idp = new GlobusIdentityProvider(s.getConfig());
+			idp.getIdentities("warmup", false);
+			final long[] times = new long[logins];
+			for (int i = 0; i < logins; i++) {
+				final long start = System.nanoTime();
+				idp.getIdentities("code" + i, false);
+				times[i] = (System.nanoTime() - start) / 1000000;
+			}
+			Arrays.sort(times);
+			System.out.println(String.format(
+					"%s logins, %s secondary identities, %s ms per request: " +
+					"min %s ms, median %s ms, max %s ms, max concurrent identity requests %s",
+					logins, secondaries, latency, times[0], times[logins / 2],
+					times[logins - 1], s.getMaxConcurrentIdentityRequests()));
+		}
+	}
+}
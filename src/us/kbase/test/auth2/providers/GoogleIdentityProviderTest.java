@@ -7,7 +7,6 @@ import static org.junit.Assert.fail;
 import java.net.MalformedURLException;
 import java.net.URISyntaxException;
 import java.net.URL;
-import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashMap;
@@ -63,9 +62,11 @@ public class GoogleIdentityProviderTest {
 	}
 	
 	private static ClientAndServer mockClientAndServer;
+	private static JWTSigner signer;
 	
 	@BeforeClass
-	public static void setUpClass() {
+	public static void setUpClass() throws Exception {
+		signer = new JWTSigner("key1");
 		// comment out these lines to see mockserver logs.
 		((ch.qos.logback.classic.Logger) org.slf4j.LoggerFactory
 				.getLogger(org.slf4j.Logger.ROOT_LOGGER_NAME))
@@ -114,12 +115,12 @@ public class GoogleIdentityProviderTest {
 		assertThat("incorrect provider name", gip.getProviderName(), is("Google"));
 		assertThat("incorrect login url", gip.getLoginURL("foo3", false),
 				is(new URL("https://glogin.com/o/oauth2/v2/auth?" +
-						"scope=https%3A%2F%2Fwww.googleapis.com%2Fauth%2Fplus.me+profile+email" +
+						"scope=openid+profile+email" +
 						"&state=foo3&redirect_uri=https%3A%2F%2Fgloginredir.com" +
 						"&response_type=code&client_id=gfoo&prompt=select_account")));
 		assertThat("incorrect link url", gip.getLoginURL("foo4", true),
 				is(new URL("https://glogin.com/o/oauth2/v2/auth?" +
-						"scope=https%3A%2F%2Fwww.googleapis.com%2Fauth%2Fplus.me+profile+email" +
+						"scope=openid+profile+email" +
 						"&state=foo4&redirect_uri=https%3A%2F%2Fglinkredir.com" +
 						"&response_type=code&client_id=gfoo&prompt=select_account")));
 	}
@@ -131,12 +132,12 @@ public class GoogleIdentityProviderTest {
 		assertThat("incorrect provider name", gip.getProviderName(), is("Google"));
 		assertThat("incorrect login url", gip.getLoginURL("foo5", false),
 				is(new URL("https://glogin.com/o/oauth2/v2/auth?" +
-						"scope=https%3A%2F%2Fwww.googleapis.com%2Fauth%2Fplus.me+profile+email" +
+						"scope=openid+profile+email" +
 						"&state=foo5&redirect_uri=https%3A%2F%2Fgloginredir.com" +
 						"&response_type=code&client_id=gfoo&prompt=select_account")));
 		assertThat("incorrect link url", gip.getLoginURL("foo6", true),
 				is(new URL("https://glogin.com/o/oauth2/v2/auth?" +
-						"scope=https%3A%2F%2Fwww.googleapis.com%2Fauth%2Fplus.me+profile+email" +
+						"scope=openid+profile+email" +
 						"&state=foo6&redirect_uri=https%3A%2F%2Fglinkredir.com" +
 						"&response_type=code&client_id=gfoo&prompt=select_account")));
 		
@@ -209,7 +210,7 @@ public class GoogleIdentityProviderTest {
 		final IdentityProvider idp = new GoogleIdentityProvider(testIDConfig);
 		final String redir = testIDConfig.getLoginRedirectURL().toString();
 		final IdentityRetrievalException e =
-				new IdentityRetrievalException("No access token was returned by Google");
+				new IdentityRetrievalException("No ID token was returned by Google");
 		setUpCallAuthToken("authcode6", null, redir,
 				testIDConfig.getClientID(), testIDConfig.getClientSecret());
 		failGetIdentities(idp, "authcode6", false, e);
@@ -263,6 +264,19 @@ public class GoogleIdentityProviderTest {
 				"Error: whee!. Error description: whoo!"));
 	}
 	
+	private Map<String, Object> claims(
+			final String aud,
+			final String sub,
+			final String name,
+			final String email) {
+		final Map<String, Object> ret = map("iss", "https://accounts.google.com",
+				"aud", aud, "exp", System.currentTimeMillis() / 1000 + 3600);
+		ret.put("sub", sub);
+		ret.put("name", name);
+		ret.put("email", email);
+		return ret;
+	}
+	
 	@Test
 	public void returnsBadIdentity() throws Exception {
 		final IdentityProviderConfig cfg = getTestIDConfig();
@@ -271,99 +285,74 @@ public class GoogleIdentityProviderTest {
 		final String cliid = cfg.getClientID();
 		final String clisec = cfg.getClientSecret();
 		final String authCode = "foo11";
+		setUpKeys(200, JWTSigner.jwks(signer));
 		
-		setUpCallAuthToken(authCode, "token1", redir, cliid, clisec);
-		setupCallID("token1", APP_JSON, 200, MAPPER.writeValueAsString(
-				map("id", "id7", "displayName", null, "emails", null)));
+		final Map<String, Object> claims = claims(cliid, "id7", null, null);
+		claims.remove("email");
+		setUpCallAuthToken(authCode, signer.sign(claims), redir, cliid, clisec);
 		failGetIdentities(idp, authCode, false, new IdentityRetrievalException(
 				"No username included in response from Google"));
 		
-		setUpCallAuthToken(authCode, "token1", redir, cliid, clisec);
-		setupCallID("token1", APP_JSON, 200, MAPPER.writeValueAsString(
-				map("id", "id7", "displayName", null, "emails", new ArrayList<String>())));
+		setUpCallAuthToken(authCode, signer.sign(claims(cliid, "id7", null, null)), redir, cliid,
+				clisec);
 		failGetIdentities(idp, authCode, false, new IdentityRetrievalException(
 				"No username included in response from Google"));
 		
-		setUpCallAuthToken(authCode, "token1", redir, cliid, clisec);
-		setupCallID("token1", APP_JSON, 200, MAPPER.writeValueAsString(
-				map("id", "id7", "displayName", null,
-						"emails", Arrays.asList(map("value", null)))));
+		setUpCallAuthToken(authCode, signer.sign(claims(cliid, "id7", null, " \t \n  ")), redir,
+				cliid, clisec);
 		failGetIdentities(idp, authCode, false, new IdentityRetrievalException(
 				"No username included in response from Google"));
 		
-		setUpCallAuthToken(authCode, "token1", redir, cliid, clisec);
-		setupCallID("token1", APP_JSON, 200, MAPPER.writeValueAsString(
-				map("id", "id7", "displayName", null,
-						"emails", Arrays.asList(map("value", " \t \n  ")))));
+		setUpCallAuthToken(authCode, signer.sign(claims(cliid, null, null, "e")), redir,
+				cliid, clisec);
 		failGetIdentities(idp, authCode, false, new IdentityRetrievalException(
-				"No username included in response from Google"));
+				"No user ID included in response from Google"));
 	}
 	
 	@Test
-	public void returnsBadResponseIdentity() throws Exception {
+	public void returnsBadIDToken() throws Exception {
 		final IdentityProviderConfig cfg = getTestIDConfig();
-		final IdentityProvider idp = new GoogleIdentityProvider(cfg);
 		final String redir = cfg.getLoginRedirectURL().toString();
 		final String cliid = cfg.getClientID();
 		final String clisec = cfg.getClientSecret();
 		final String authCode = "foo";
-		final String authtoken = "bartoken";
-		
-		setUpCallAuthToken(authCode, authtoken, redir, cliid, clisec);
-		setupCallID(authtoken, APP_JSON, 200, "bleah");
-		failGetIdentities(idp, authCode, false, new IdentityRetrievalException(
-				"Unable to parse response from Google service."));
+		final String token = signer.sign(claims(cliid, "id1", "dispname1", "email1"));
 		
-		setUpCallAuthToken(authCode, authtoken, redir, cliid, clisec);
-		setupCallID(authtoken, "text/html", 200, MAPPER.writeValueAsString(
-				map("id", "id1", "displayName", "dispname1", "emails", Arrays.asList(
-						map("value", "email1")))));
-		failGetIdentities(idp, authCode, false, new IdentityRetrievalException(
-				"Unable to parse response from Google service."));
-		
-		setUpCallAuthToken(authCode, authtoken, redir, cliid, clisec);
-		setupCallID(authtoken, APP_JSON, 500, STRING1000);
-		failGetIdentities(idp, authCode, false, new IdentityRetrievalException(
-				"Got unexpected HTTP code and unparseable " +
-				"response from Google service: 500. Response: " + STRING1000));
+		setUpKeys(500, "{}");
+		setUpCallAuthToken(authCode, token, redir, cliid, clisec);
+		failGetIdentities(new GoogleIdentityProvider(cfg), authCode, false,
+				new IdentityRetrievalException("Got unexpected HTTP code retrieving signing " +
+						"keys from Google service: 500."));
+		mockClientAndServer.reset();
 		
-		setUpCallAuthToken(authCode, authtoken, redir, cliid, clisec);
-		setupCallID(authtoken, APP_JSON, 500, STRING1001);
-		failGetIdentities(idp, authCode, false, new IdentityRetrievalException(
-				"Got unexpected HTTP code and unparseable " +
-				"response from Google service: 500. Truncated response: " + STRING1000));
+		setUpKeys(200, JWTSigner.jwks(signer));
+		final IdentityProvider idp = new GoogleIdentityProvider(cfg);
 		
-		setUpCallAuthToken(authCode, authtoken, redir, cliid, clisec);
-		setupCallID(authtoken, APP_JSON, 500, null);
+		setUpCallAuthToken(authCode, "foo.bar", redir, cliid, clisec);
 		failGetIdentities(idp, authCode, false, new IdentityRetrievalException(
-				"Got unexpected HTTP code with no response " +
-				"body from Google service: 500."));
+				"Malformed ID token from Google service"));
 		
-		setUpCallAuthToken(authCode, authtoken, redir, cliid, clisec);
-		setupCallID(authtoken, APP_JSON, 500, "{}");
+		setUpCallAuthToken(authCode, new JWTSigner(signer.getKeyID()).sign(
+				claims(cliid, "id1", "dispname1", "email1")), redir, cliid, clisec);
 		failGetIdentities(idp, authCode, false, new IdentityRetrievalException(
-				"Got unexpected HTTP code with no error in " +
-				"the response body from Google service: 500."));
+				"Invalid ID token signature from Google service"));
 		
-		setUpCallAuthToken(authCode, authtoken, redir, cliid, clisec);
-		setupCallID(authtoken, APP_JSON, 401, MAPPER.writeValueAsString(
-				map("error", null)));
+		setUpCallAuthToken(authCode, new JWTSigner("otherkey").sign(
+				claims(cliid, "id1", "dispname1", "email1")), redir, cliid, clisec);
 		failGetIdentities(idp, authCode, false, new IdentityRetrievalException(
-				"Got unexpected HTTP code with null error in the response body from Google " +
-				"service: 401."));
+				"Unknown signing key ID from Google service: otherkey"));
 		
-		setUpCallAuthToken(authCode, authtoken, redir, cliid, clisec);
-		setupCallID(authtoken, APP_JSON, 404, MAPPER.writeValueAsString(
-				map("error", new HashMap<String, String>())));
+		setUpCallAuthToken(authCode, signer.sign(
+				claims("someclient", "id1", "dispname1", "email1")), redir, cliid, clisec);
 		failGetIdentities(idp, authCode, false, new IdentityRetrievalException(
-				"Got unexpected HTTP code with null error in the response body from Google " +
-						"service: 404."));
+				"ID token from Google service was not issued to this client"));
 		
-		setUpCallAuthToken(authCode, authtoken, redir, cliid, clisec);
-		setupCallID(authtoken, APP_JSON, 400, MAPPER.writeValueAsString(
-				map("error", map("message", "foobar"))));
+		final Map<String, Object> claims = claims(cliid, "id1", "dispname1", "email1");
+		claims.put("iss", "https://accounts.evilgoogle.com");
+		setUpCallAuthToken(authCode, signer.sign(claims), redir, cliid, clisec);
 		failGetIdentities(idp, authCode, false, new IdentityRetrievalException(
-				"Google service returned an error. HTTP code: 400. Error: foobar"));
+				"ID token from Google service has an unexpected issuer: " +
+				"https://accounts.evilgoogle.com"));
 	}
 	
 	@Test
@@ -371,12 +360,10 @@ public class GoogleIdentityProviderTest {
 		final String authCode = "authcode2";
 		final IdentityProviderConfig idconfig = getTestIDConfig();
 		final IdentityProvider idp = new GoogleIdentityProvider(idconfig);
+		setUpKeys(200, JWTSigner.jwks(signer));
 		
-		setUpCallAuthToken(authCode, "footoken3", "https://gloginredir.com",
-				idconfig.getClientID(), idconfig.getClientSecret());
-		setupCallID("footoken3", APP_JSON, 200, MAPPER.writeValueAsString(
-				map("id", "id7", "displayName", null, "emails", Arrays.asList(
-						map("value", "email3")))));
+		setUpCallAuthToken(authCode, signer.sign(claims("gfoo", "id7", null, "email3")),
+				"https://gloginredir.com", idconfig.getClientID(), idconfig.getClientSecret());
 		final Set<RemoteIdentity> rids = idp.getIdentities(authCode, false);
 		assertThat("incorrect number of idents", rids.size(), is(1));
 		final Set<RemoteIdentity> expected = new HashSet<>();
@@ -398,12 +385,14 @@ public class GoogleIdentityProviderTest {
 				new URL("https://glinkredir2.com"),
 				Collections.emptyMap());
 		final IdentityProvider idp = new GoogleIdentityProvider(idconfig);
+		final JWTSigner key2 = new JWTSigner("key2");
+		setUpKeys(200, JWTSigner.jwks(signer, key2));
 		
-		setUpCallAuthToken(authCode, "footoken2", "https://glinkredir2.com",
+		final Map<String, Object> claims = claims("someclient", "id1", "dispname1", "email1");
+		claims.put("aud", Arrays.asList("someclient"));
+		claims.put("iss", "accounts.google.com");
+		setUpCallAuthToken(authCode, key2.sign(claims), "https://glinkredir2.com",
 				idconfig.getClientID(), idconfig.getClientSecret());
-		setupCallID("footoken2", APP_JSON, 200, MAPPER.writeValueAsString(
-				map("id", "id1", "displayName", "dispname1", "emails", Arrays.asList(
-						map("value", "email1")))));
 		final Set<RemoteIdentity> rids = idp.getIdentities(authCode, true);
 		assertThat("incorrect number of idents", rids.size(), is(1));
 		final Set<RemoteIdentity> expected = new HashSet<>();
@@ -414,7 +403,7 @@ public class GoogleIdentityProviderTest {
 	
 	private void setUpCallAuthToken(
 			final String authCode,
-			final String authtoken,
+			final String idToken,
 			final String redirect,
 			final String clientID,
 			final String clientSecret)
@@ -436,7 +425,8 @@ public class GoogleIdentityProviderTest {
 				new HttpResponse()
 					.withStatusCode(200)
 					.withHeader(CONTENT_TYPE, APP_JSON)
-					.withBody(MAPPER.writeValueAsString(map("access_token", authtoken)))
+					.withBody(MAPPER.writeValueAsString(
+							map("access_token", "accesstoken", "id_token", idToken)))
 			);
 	}
 	
@@ -472,22 +462,17 @@ public class GoogleIdentityProviderTest {
 			).respond(resp);
 	}
 	
-	private void setupCallID(
-			final String token,
-			final String contentType,
-			final int respCode,
-			final String body) {
+	private void setUpKeys(final int respCode, final String body) {
 		mockClientAndServer.when(
 					new HttpRequest()
 						.withMethod("GET")
-						.withPath("/plus/v1/people/me")
+						.withPath("/oauth2/v3/certs")
 						.withHeader(ACCEPT, APP_JSON)
-						.withHeader("Authorization", "Bearer " + token),
-					Times.exactly(1)
 				).respond(
 					new HttpResponse()
 						.withStatusCode(respCode)
-						.withHeader(new Header(CONTENT_TYPE, contentType))
+						.withHeader(new Header(CONTENT_TYPE, APP_JSON))
+						.withHeader(new Header("Cache-Control", "public, max-age=20000"))
 						.withBody(body)
 				);
 	}
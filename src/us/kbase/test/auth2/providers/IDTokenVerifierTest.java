@@ -0,0 +1,354 @@
+package us.kbase.test.auth2.providers;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.net.URI;
+import java.net.URL;
+import java.time.Clock;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+import org.junit.After;
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.mockserver.integration.ClientAndServer;
+import org.mockserver.matchers.Times;
+import org.mockserver.model.HttpRequest;
+import org.mockserver.model.HttpResponse;
+
+import com.google.common.collect.ImmutableMap;
+
+import us.kbase.auth2.lib.exceptions.IdentityRetrievalException;
+import us.kbase.auth2.lib.identity.IdentityProviderConfig;
+import us.kbase.auth2.providers.IDTokenVerifier;
+import us.kbase.auth2.providers.JWKSCache;
+import us.kbase.auth2.providers.ProviderClient;
+import us.kbase.test.auth2.TestCommon;
+
+public class IDTokenVerifierTest {
+
+	private static final Set<String> ISS = new HashSet<>(Arrays.asList("iss1", "iss2"));
+	private static final Instant NOW = Instant.ofEpochSecond(1500000000);
+
+	private static ClientAndServer mockClientAndServer;
+	private static JWTSigner key1;
+	private static JWTSigner key2;
+
+	@BeforeClass
+	public static void setUpClass() throws Exception {
+		((ch.qos.logback.classic.Logger) org.slf4j.LoggerFactory
+				.getLogger(org.slf4j.Logger.ROOT_LOGGER_NAME))
+				.setLevel(ch.qos.logback.classic.Level.OFF);
+		mockClientAndServer = ClientAndServer.startClientAndServer(TestCommon.findFreePort());
+		key1 = new JWTSigner("k1");
+		key2 = new JWTSigner("k2");
+	}
+
+	@AfterClass
+	public static void tearDownClass() {
+		if (mockClientAndServer != null) {
+			mockClientAndServer.stop();
+		}
+	}
+
+	@After
+	public void tearDownTest() {
+		mockClientAndServer.reset();
+	}
+
+	private static ProviderClient client() throws Exception {
+		return new ProviderClient("Prov", new IdentityProviderConfig(
+				"fake",
+				new URL("https://login.com"),
+				new URL("https://api.com"),
+				"foo",
+				"bar",
+				new URL("https://loginredir.com"),
+				new URL("https://linkredir.com"),
+				Collections.emptyMap()));
+	}
+
+	private static URI uri() {
+		return URI.create("http://localhost:" + mockClientAndServer.getPort() + "/certs");
+	}
+
+	private static void setUpKeys(final String cacheControl, final JWTSigner... signers)
+			throws Exception {
+		setUpKeys(200, cacheControl, JWTSigner.jwks(signers));
+	}
+
+	private static void setUpKeys(final int code, final String cacheControl, final String body) {
+		final HttpResponse resp = new HttpResponse()
+				.withStatusCode(code)
+				.withHeader("Content-Type", "application/json")
+				.withBody(body);
+		if (cacheControl != null) {
+			resp.withHeader("Cache-Control", cacheControl);
+		}
+		mockClientAndServer.when(
+				new HttpRequest().withMethod("GET").withPath("/certs"),
+				Times.exactly(1))
+			.respond(resp);
+	}
+
+	private static Map<String, Object> claims(final Object aud, final long exp) {
+		final Map<String, Object> ret = new HashMap<>();
+		ret.put("iss", "iss2");
+		ret.put("aud", aud);
+		ret.put("sub", "user");
+		ret.put("exp", exp);
+		return ret;
+	}
+
+	private static Map<String, Object> claims() {
+		return claims("aud", NOW.getEpochSecond() + 3600);
+	}
+
+	private static Clock clock(final Instant... instants) {
+		final Clock c = mock(Clock.class);
+		if (instants.length == 1) {
+			when(c.instant()).thenReturn(instants[0]);
+		} else {
+			when(c.instant()).thenReturn(instants[0],
+					Arrays.copyOfRange(instants, 1, instants.length));
+		}
+		return c;
+	}
+
+	private static IDTokenVerifier verifier(final Clock cacheClock, final Clock clock)
+			throws Exception {
+		return new IDTokenVerifier("Prov", new JWKSCache(client(), uri(), cacheClock), ISS,
+				"aud", clock);
+	}
+
+	@Test
+	public void verify() throws Exception {
+		setUpKeys("public, max-age=100, must-revalidate", key1, key2);
+		final IDTokenVerifier v = verifier(clock(NOW), clock(NOW));
+
+		final Map<String, Object> got = v.verify(key1.sign(claims()));
+		assertThat("incorrect claims", got, is(ImmutableMap.of(
+				"iss", "iss2", "aud", "aud", "sub", "user", "exp", 1500003600)));
+		// keys are cached, so no more requests to the server
+		assertThat("incorrect sub", v.verify(key2.sign(claims())).get("sub"), is("user"));
+		assertThat("incorrect sub", v.verify(key1.sign(claims(
+				Arrays.asList("foo", "aud"), NOW.getEpochSecond() + 10))).get("sub"),
+				is("user"));
+	}
+
+	@Test
+	public void verifyWithinClockSkew() throws Exception {
+		setUpKeys(null, key1);
+		final IDTokenVerifier v = verifier(clock(NOW), clock(NOW));
+		assertThat("incorrect sub", v.verify(key1.sign(claims(
+				"aud", NOW.getEpochSecond() - IDTokenVerifier.ALLOWED_CLOCK_SKEW_SEC)))
+				.get("sub"), is("user"));
+	}
+
+	@Test
+	public void keysExpire() throws Exception {
+		setUpKeys("max-age=100", key1);
+		setUpKeys("max-age=100", key2);
+		final IDTokenVerifier v = verifier(
+				clock(NOW, NOW.plusSeconds(99), NOW.plusSeconds(100)), clock(NOW));
+
+		v.verify(key1.sign(claims()));
+		v.verify(key1.sign(claims()));
+		// the key set has expired and been replaced, so key 1 is no longer valid
+		failVerify(v, key1.sign(claims()), new IdentityRetrievalException(
+				"Unknown signing key ID from Prov service: k1"));
+	}
+
+	@Test
+	public void keysNotCached() throws Exception {
+		setUpKeys("no-cache", key1);
+		setUpKeys("no-store", key1);
+		final IDTokenVerifier v = verifier(clock(NOW), clock(NOW));
+		v.verify(key1.sign(claims()));
+		v.verify(key1.sign(claims()));
+		failVerify(v, key1.sign(claims()), new IdentityRetrievalException(
+				"Got unexpected HTTP code retrieving signing keys from Prov service: 404."));
+	}
+
+	@Test
+	public void keyRotation() throws Exception {
+		setUpKeys("max-age=10000", key1);
+		setUpKeys("max-age=10000", key2);
+		final Instant refetch = NOW.plusSeconds(JWKSCache.MIN_REFETCH_INTERVAL_SEC);
+		final IDTokenVerifier v = verifier(clock(NOW, NOW.plusSeconds(1), NOW.plusSeconds(1),
+				refetch, refetch, refetch), clock(NOW));
+
+		v.verify(key1.sign(claims()));
+		// unknown key, but the keys were fetched too recently to fetch again
+		failVerify(v, key2.sign(claims()), new IdentityRetrievalException(
+				"Unknown signing key ID from Prov service: k2"));
+		// the provider rotated its keys
+		v.verify(key2.sign(claims()));
+		failVerify(v, key1.sign(claims()), new IdentityRetrievalException(
+				"Unknown signing key ID from Prov service: k1"));
+	}
+
+	@Test
+	public void badKeys() throws Exception {
+		final IDTokenVerifier v = verifier(clock(NOW), clock(NOW));
+		final String token = key1.sign(claims());
+		final IdentityRetrievalException parse = new IdentityRetrievalException(
+				"Unable to parse signing keys from Prov service.");
+
+		setUpKeys(500, null, "{}");
+		failVerify(v, token, new IdentityRetrievalException(
+				"Got unexpected HTTP code retrieving signing keys from Prov service: 500."));
+		setUpKeys(200, null, "not json");
+		failVerify(v, token, parse);
+		setUpKeys(200, null, "{\"keys\": {}}");
+		failVerify(v, token, parse);
+		setUpKeys(200, null, "{\"keys\": [\"foo\"]}");
+		failVerify(v, token, parse);
+		setUpKeys(200, null, "{\"keys\": [{\"kty\": \"RSA\", \"kid\": \"k1\", \"e\": \"AQAB\"}]}");
+		failVerify(v, token, parse);
+		setUpKeys(200, null,
+				"{\"keys\": [{\"kty\": \"RSA\", \"kid\": \"k1\", \"n\": \"*\", \"e\": \"AQAB\"}]}");
+		failVerify(v, token, parse);
+		// keys that aren't RSA signing keys are ignored
+		setUpKeys(200, null, "{\"keys\": [{\"kty\": \"EC\", \"kid\": \"k1\"}, " +
+				"{\"kty\": \"RSA\", \"kid\": \"k1\", \"use\": \"enc\"}]}");
+		failVerify(v, token, new IdentityRetrievalException(
+				"Unknown signing key ID from Prov service: k1"));
+	}
+
+	@Test
+	public void badTokens() throws Exception {
+		setUpKeys(null, key1);
+		final IDTokenVerifier v = verifier(clock(NOW), clock(NOW));
+		final IdentityRetrievalException malformed = new IdentityRetrievalException(
+				"Malformed ID token from Prov service");
+		final String[] good = key1.sign(claims()).split("\\.");
+
+		failVerify(v, "foo", malformed);
+		failVerify(v, good[0] + "." + good[1], malformed);
+		failVerify(v, good[0] + "." + good[1] + "." + good[2] + ".", malformed);
+		failVerify(v, "*." + good[1] + "." + good[2], malformed);
+		failVerify(v, good[0] + ".W10." + good[2], malformed); // json array
+		failVerify(v, good[0] + "." + good[1] + ".*", malformed);
+		failVerify(v, key1.sign(ImmutableMap.of("alg", "RS256"), claims()), malformed);
+		failVerify(v, key1.sign(ImmutableMap.of("alg", "none", "kid", "k1"), claims()),
+				new IdentityRetrievalException(
+						"Unsupported ID token signing algorithm from Prov service: none"));
+		// signed by a different key with the same ID
+		failVerify(v, new JWTSigner("k1").sign(claims()), new IdentityRetrievalException(
+				"Invalid ID token signature from Prov service"));
+		// payload swapped after signing
+		failVerify(v, good[0] + "." + key1.sign(claims("aud", 1)).split("\\.")[1] + "." +
+				good[2], new IdentityRetrievalException(
+						"Invalid ID token signature from Prov service"));
+	}
+
+	@Test
+	public void badClaims() throws Exception {
+		setUpKeys(null, key1);
+		final IDTokenVerifier v = verifier(clock(NOW), clock(NOW));
+
+		final Map<String, Object> c = claims();
+		c.put("iss", "iss3");
+		failVerify(v, key1.sign(c), new IdentityRetrievalException(
+				"ID token from Prov service has an unexpected issuer: iss3"));
+		c.remove("iss");
+		failVerify(v, key1.sign(c), new IdentityRetrievalException(
+				"ID token from Prov service has an unexpected issuer: null"));
+
+		final IdentityRetrievalException aud = new IdentityRetrievalException(
+				"ID token from Prov service was not issued to this client");
+		failVerify(v, key1.sign(claims("aud1", NOW.getEpochSecond())), aud);
+		failVerify(v, key1.sign(claims(Arrays.asList("aud1"), NOW.getEpochSecond())), aud);
+		failVerify(v, key1.sign(claims(null, NOW.getEpochSecond())), aud);
+
+		failVerify(v, key1.sign(claims("aud", NOW.getEpochSecond() -
+				IDTokenVerifier.ALLOWED_CLOCK_SKEW_SEC - 1)), new IdentityRetrievalException(
+						"ID token from Prov service has expired"));
+		final Map<String, Object> c2 = claims();
+		c2.put("exp", "1600000000");
+		failVerify(v, key1.sign(c2), new IdentityRetrievalException(
+				"Malformed ID token from Prov service"));
+	}
+
+	private void failVerify(
+			final IDTokenVerifier v,
+			final String token,
+			final Exception expected) {
+		try {
+			v.verify(token);
+			fail("expected exception");
+		} catch (Exception got) {
+			TestCommon.assertExceptionCorrect(got, expected);
+		}
+	}
+
+	@Test
+	public void constructFail() throws Exception {
+		final JWKSCache k = new JWKSCache(client(), uri());
+		final Clock c = Clock.systemDefaultZone();
+		failConstruct(null, k, ISS, "a", c, new IllegalArgumentException(
+				"Missing argument: providerName"));
+		failConstruct("  \t ", k, ISS, "a", c, new IllegalArgumentException(
+				"Missing argument: providerName"));
+		failConstruct("p", null, ISS, "a", c, new NullPointerException("keys"));
+		failConstruct("p", k, null, "a", c, new NullPointerException("issuers"));
+		failConstruct("p", k, Collections.emptySet(), "a", c, new IllegalArgumentException(
+				"At least one issuer is required"));
+		failConstruct("p", k, ISS, null, c, new IllegalArgumentException(
+				"Missing argument: audience"));
+		failConstruct("p", k, ISS, "a", null, new NullPointerException("clock"));
+
+		failConstruct(null, uri(), c, new NullPointerException("client"));
+		failConstruct(client(), null, c, new NullPointerException("jwksURI"));
+		failConstruct(client(), uri(), null, new NullPointerException("clock"));
+	}
+
+	private void failConstruct(
+			final String name,
+			final JWKSCache keys,
+			final Set<String> issuers,
+			final String audience,
+			final Clock clock,
+			final Exception expected) {
+		try {
+			new IDTokenVerifier(name, keys, issuers, audience, clock);
+			fail("expected exception");
+		} catch (Exception got) {
+			TestCommon.assertExceptionCorrect(got, expected);
+		}
+	}
+
+	private void failConstruct(
+			final ProviderClient client,
+			final URI jwksURI,
+			final Clock clock,
+			final Exception expected) {
+		try {
+			new JWKSCache(client, jwksURI, clock);
+			fail("expected exception");
+		} catch (Exception got) {
+			TestCommon.assertExceptionCorrect(got, expected);
+		}
+	}
+
+	@Test
+	public void getKeyFail() throws Exception {
+		try {
+			new JWKSCache(client(), uri()).getKey(null);
+			fail("expected exception");
+		} catch (Exception got) {
+			TestCommon.assertExceptionCorrect(got, new NullPointerException("keyID"));
+		}
+	}
+}
@@ -0,0 +1,105 @@
+package us.kbase.test.auth2.providers;
+
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.security.Signature;
+import java.security.interfaces.RSAPublicKey;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.common.collect.ImmutableMap;
+
+/** Creates RS256 signed JSON Web Tokens and the JSON Web Key Set needed to verify them, for
+ * standing in for an OpenID Connect identity provider in tests.
+ */
+public class JWTSigner {
+
+	private static final ObjectMapper MAPPER = new ObjectMapper();
+
+	private final String keyID;
+	private final KeyPair keyPair;
+
+	/** Create a signer with a new RSA key pair.
+	 * @param keyID the ID of the key.
+	 * @throws Exception if the key pair could not be created.
+	 */
+	public JWTSigner(final String keyID) throws Exception {
+		this.keyID = keyID;
+		final KeyPairGenerator kpg = KeyPairGenerator.getInstance("RSA");
+		kpg.initialize(2048);
+		keyPair = kpg.generateKeyPair();
+	}
+
+	public String getKeyID() {
+		return keyID;
+	}
+
+	/** Get the public key of this signer as a JSON Web Key.
+	 * @return the key.
+	 */
+	public Map<String, Object> getJWK() {
+		final RSAPublicKey pub = (RSAPublicKey) keyPair.getPublic();
+		final Map<String, Object> ret = new HashMap<>();
+		ret.put("kty", "RSA");
+		ret.put("alg", "RS256");
+		ret.put("use", "sig");
+		ret.put("kid", keyID);
+		ret.put("n", encode(unsigned(pub.getModulus())));
+		ret.put("e", encode(unsigned(pub.getPublicExponent())));
+		return ret;
+	}
+
+	/** Get a JSON Web Key Set containing the public keys of the signers.
+	 * @param signers the signers.
+	 * @return the key set as a JSON string.
+	 * @throws Exception if the key set could not be serialized.
+	 */
+	public static String jwks(final JWTSigner... signers) throws Exception {
+		final List<Map<String, Object>> keys = new LinkedList<>();
+		for (final JWTSigner s: signers) {
+			keys.add(s.getJWK());
+		}
+		return MAPPER.writeValueAsString(ImmutableMap.of("keys", keys));
+	}
+
+	/** Sign a set of claims with the RS256 algorithm.
+	 * @param claims the claims.
+	 * @return the signed token.
+	 * @throws Exception if the token could not be signed.
+	 */
+	public String sign(final Map<String, ?> claims) throws Exception {
+		return sign(ImmutableMap.of("alg", "RS256", "typ", "JWT", "kid", keyID), claims);
+	}
+
+	/** Sign a set of claims with the RS256 algorithm and an arbitrary header.
+	 * @param header the header.
+	 * @param claims the claims.
+	 * @return the signed token.
+	 * @throws Exception if the token could not be signed.
+	 */
+	public String sign(final Map<String, ?> header, final Map<String, ?> claims)
+			throws Exception {
+		final String content = encode(MAPPER.writeValueAsBytes(header)) + "." +
+				encode(MAPPER.writeValueAsBytes(claims));
+		final Signature s = Signature.getInstance("SHA256withRSA");
+		s.initSign(keyPair.getPrivate());
+		s.update(content.getBytes(StandardCharsets.US_ASCII));
+		return content + "." + encode(s.sign());
+	}
+
+	private static String encode(final byte[] b) {
+		return Base64.getUrlEncoder().withoutPadding().encodeToString(b);
+	}
+
+	private static byte[] unsigned(final BigInteger i) {
+		final byte[] b = i.toByteArray();
+		return b[0] == 0 ? Arrays.copyOfRange(b, 1, b.length) : b;
+	}
+}
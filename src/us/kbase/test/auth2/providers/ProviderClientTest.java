@@ -0,0 +1,265 @@
+package us.kbase.test.auth2.providers;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+
+import java.net.URI;
+import java.net.URL;
+import java.util.Collections;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import javax.ws.rs.client.Entity;
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.MultivaluedHashMap;
+import javax.ws.rs.core.Response;
+
+import org.junit.After;
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.mockserver.integration.ClientAndServer;
+import org.mockserver.matchers.Times;
+import org.mockserver.model.Delay;
+import org.mockserver.model.Header;
+import org.mockserver.model.HttpRequest;
+import org.mockserver.model.HttpResponse;
+
+import com.google.common.collect.ImmutableMap;
+
+import us.kbase.auth2.lib.exceptions.IdentityRetrievalException;
+import us.kbase.auth2.lib.identity.IdentityProviderConfig;
+import us.kbase.auth2.providers.ProviderClient;
+import us.kbase.auth2.providers.ProviderMetrics.Outcome;
+import us.kbase.test.auth2.TestCommon;
+
+public class ProviderClientTest {
+
+	private static ClientAndServer mockClientAndServer;
+
+	@BeforeClass
+	public static void setUpClass() {
+		((ch.qos.logback.classic.Logger) org.slf4j.LoggerFactory
+				.getLogger(org.slf4j.Logger.ROOT_LOGGER_NAME))
+				.setLevel(ch.qos.logback.classic.Level.OFF);
+		mockClientAndServer = ClientAndServer.startClientAndServer(TestCommon.findFreePort());
+	}
+
+	@AfterClass
+	public static void tearDownClass() {
+		if (mockClientAndServer != null) {
+			mockClientAndServer.stop();
+		}
+	}
+
+	@After
+	public void tearDownTest() {
+		mockClientAndServer.reset();
+	}
+
+	private static IdentityProviderConfig cfg(final int connectTimeout, final int readTimeout)
+			throws Exception {
+		return new IdentityProviderConfig(
+				"fake",
+				new URL("https://login.com"),
+				new URL("https://api.com"),
+				"foo",
+				"bar",
+				new URL("https://loginredir.com"),
+				new URL("https://linkredir.com"),
+				Collections.emptyMap(),
+				connectTimeout,
+				readTimeout);
+	}
+
+	private static URI uri(final String path) {
+		return URI.create("http://localhost:" + mockClientAndServer.getPort() + path);
+	}
+
+	private static Map<Outcome, Long> counts(
+			final long success,
+			final long httpError,
+			final long timeout,
+			final long connError) {
+		return ImmutableMap.of(Outcome.SUCCESS, success, Outcome.HTTP_ERROR, httpError,
+				Outcome.TIMEOUT, timeout, Outcome.CONNECTION_ERROR, connError);
+	}
+
+	@Test
+	public void getAndPost() throws Exception {
+		mockClientAndServer.when(
+				new HttpRequest()
+						.withMethod("GET")
+						.withPath("/get")
+						.withHeader("Authorization", "Bearer tok"),
+				Times.exactly(1))
+			.respond(new HttpResponse()
+					.withStatusCode(200)
+					.withHeader(new Header("Content-Type", "application/json"))
+					.withBody("{\"foo\": \"bar\"}"));
+		mockClientAndServer.when(new HttpRequest().withMethod("POST").withPath("/post"))
+			.respond(new HttpResponse().withStatusCode(401).withBody("nope"));
+
+		final ProviderClient pc = new ProviderClient("getpost", cfg(1000, 1000));
+		assertThat("incorrect name", pc.getProviderName(), is("getpost"));
+
+		Response r = pc.get(uri("/get"), MediaType.APPLICATION_JSON_TYPE,
+				ImmutableMap.of("Authorization", "Bearer tok"));
+		try {
+			assertThat("incorrect status", r.getStatus(), is(200));
+			assertThat("incorrect body", r.readEntity(String.class), is("{\"foo\": \"bar\"}"));
+		} finally {
+			r.close();
+		}
+		r = pc.post(uri("/post"), MediaType.APPLICATION_JSON_TYPE, Collections.emptyMap(),
+				Entity.form(new MultivaluedHashMap<>()));
+		try {
+			assertThat("incorrect status", r.getStatus(), is(401));
+		} finally {
+			r.close();
+		}
+		final SortedMap<Outcome, Long> got = ProviderClient.getMetrics()
+				.getRequestCounts("getpost");
+		assertThat("incorrect counts", got, is(counts(1, 1, 0, 0)));
+	}
+
+	@Test
+	public void readTimeout() throws Exception {
+		mockClientAndServer.when(new HttpRequest().withMethod("GET").withPath("/slow"))
+			.respond(new HttpResponse()
+					.withStatusCode(200)
+					.withDelay(new Delay(TimeUnit.MILLISECONDS, 3000)));
+
+		final ProviderClient pc = new ProviderClient("slowprov", cfg(1000, 200));
+		final long start = System.nanoTime();
+		try {
+			pc.get(uri("/slow"), MediaType.APPLICATION_JSON_TYPE, Collections.emptyMap());
+			fail("expected exception");
+		} catch (Exception got) {
+			TestCommon.assertExceptionCorrect(got, new IdentityRetrievalException(
+					"Request to slowprov service timed out"));
+		}
+		final long elapsedMS = (System.nanoTime() - start) / 1000000;
+		assertThat("timeout not applied: " + elapsedMS, elapsedMS < 2500, is(true));
+		assertThat("incorrect counts", ProviderClient.getMetrics().getRequestCounts("slowprov"),
+				is(counts(0, 0, 1, 0)));
+	}
+
+	@Test
+	public void connectionError() throws Exception {
+		final int port = TestCommon.findFreePort();
+		final ProviderClient pc = new ProviderClient("deadprov", cfg(1000, 1000));
+		try {
+			pc.get(URI.create("http://localhost:" + port + "/foo"),
+					MediaType.APPLICATION_JSON_TYPE, Collections.emptyMap());
+			fail("expected exception");
+		} catch (Exception got) {
+			TestCommon.assertExceptionMessageContains(got,
+					"Unable to contact deadprov service: ");
+			assertThat("incorrect exception class", got instanceof IdentityRetrievalException,
+					is(true));
+		}
+		assertThat("incorrect counts", ProviderClient.getMetrics().getRequestCounts("deadprov"),
+				is(counts(0, 0, 0, 1)));
+		final String text = ProviderClient.getMetrics().toPrometheusText();
+		assertThat("missing metric", text.contains(
+				"auth_identity_provider_requests_total{provider=\"deadprov\"," +
+				"outcome=\"connection_error\"} 1\n"), is(true));
+		assertThat("missing metric", text.contains(
+				"auth_identity_provider_request_duration_seconds_count{provider=\"deadprov\"} 1\n"),
+				is(true));
+	}
+
+	@Test
+	public void getAsync() throws Exception {
+		mockClientAndServer.when(new HttpRequest().withMethod("GET").withPath("/async"))
+			.respond(new HttpResponse().withStatusCode(200).withBody("whee"));
+		final ProviderClient pc = new ProviderClient("asyncprov", cfg(1000, 1000));
+		final Response r = pc.getAsync(uri("/async"), MediaType.TEXT_PLAIN_TYPE,
+				Collections.emptyMap()).get(10, TimeUnit.SECONDS);
+		try {
+			assertThat("incorrect status", r.getStatus(), is(200));
+			assertThat("incorrect body", r.readEntity(String.class), is("whee"));
+		} finally {
+			r.close();
+		}
+		
+		final CompletableFuture<Response> f = pc.getAsync(
+				URI.create("http://localhost:" + TestCommon.findFreePort() + "/foo"),
+				MediaType.TEXT_PLAIN_TYPE, Collections.emptyMap());
+		try {
+			f.get(10, TimeUnit.SECONDS);
+			fail("expected exception");
+		} catch (ExecutionException got) {
+			TestCommon.assertExceptionMessageContains((Exception) got.getCause(),
+					"Unable to contact asyncprov service: ");
+			assertThat("incorrect exception class",
+					got.getCause() instanceof IdentityRetrievalException, is(true));
+		}
+		assertThat("incorrect counts", ProviderClient.getMetrics().getRequestCounts("asyncprov"),
+				is(counts(1, 0, 0, 1)));
+	}
+
+	@Test
+	public void constructFail() throws Exception {
+		failConstruct(null, cfg(1, 1), new IllegalArgumentException(
+				"Missing argument: providerName"));
+		failConstruct("  \t ", cfg(1, 1), new IllegalArgumentException(
+				"Missing argument: providerName"));
+		failConstruct("p", null, new NullPointerException("cfg"));
+	}
+
+	private void failConstruct(
+			final String name,
+			final IdentityProviderConfig cfg,
+			final Exception expected) {
+		try {
+			new ProviderClient(name, cfg);
+			fail("expected exception");
+		} catch (Exception got) {
+			TestCommon.assertExceptionCorrect(got, expected);
+		}
+	}
+
+	@Test
+	public void requestFail() throws Exception {
+		final ProviderClient pc = new ProviderClient("p", cfg(1, 1));
+		final URI u = uri("/foo");
+		final MediaType m = MediaType.APPLICATION_JSON_TYPE;
+		final Map<String, String> h = Collections.emptyMap();
+		final Entity<String> e = Entity.text("foo");
+		failGet(pc, null, m, h, new NullPointerException("target"));
+		failGet(pc, u, null, h, new NullPointerException("accept"));
+		failGet(pc, u, m, null, new NullPointerException("headers"));
+		try {
+			pc.post(u, m, h, null);
+			fail("expected exception");
+		} catch (Exception got) {
+			TestCommon.assertExceptionCorrect(got, new NullPointerException("entity"));
+		}
+		try {
+			pc.post(null, m, h, e);
+			fail("expected exception");
+		} catch (Exception got) {
+			TestCommon.assertExceptionCorrect(got, new NullPointerException("target"));
+		}
+	}
+
+	private void failGet(
+			final ProviderClient pc,
+			final URI target,
+			final MediaType accept,
+			final Map<String, String> headers,
+			final Exception expected) {
+		try {
+			pc.get(target, accept, headers);
+			fail("expected exception");
+		} catch (Exception got) {
+			TestCommon.assertExceptionCorrect(got, expected);
+		}
+	}
+}
@@ -0,0 +1,159 @@
+package us.kbase.test.auth2.service;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static us.kbase.test.auth2.lib.AuthenticationTester.assertLogEventsCorrect;
+
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import com.google.common.collect.ImmutableMap;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import us.kbase.auth2.lib.Authentication;
+import us.kbase.auth2.lib.UserName;
+import us.kbase.auth2.lib.audit.AuditEvent;
+import us.kbase.auth2.lib.audit.SLF4JAuditLogger;
+import us.kbase.auth2.service.AccessLogger;
+import us.kbase.auth2.service.AccessLogger.AccessLogEvent;
+import us.kbase.auth2.service.LoggingFilter;
+import us.kbase.auth2.service.SLF4JAutoLogger;
+import us.kbase.auth2.service.logging.AsyncLogWriter.OverflowPolicy;
+import us.kbase.test.auth2.lib.AuthenticationTester;
+import us.kbase.test.auth2.lib.AuthenticationTester.LogEvent;
+
+public class AccessLoggerTest {
+	
+	private static final UUID ID = UUID.fromString("edc1dcbb-d370-4660-a639-01a72f0d578a");
+	
+	private static List<ILoggingEvent> logEvents;
+	
+	@BeforeClass
+	public static void beforeClass() {
+		logEvents = AuthenticationTester.setUpSLF4JTestLoggerAppender();
+	}
+	
+	@Before
+	public void before() {
+		logEvents.clear();
+	}
+	
+	private AuditEvent getEvent() throws Exception {
+		return AuditEvent.getBuilder(AuditEvent.Level.INFO, "User {} revoked token {}", "foo", ID)
+				.withNullableOperation("revoke token " + ID)
+				.withNullableUser(new UserName("foo"))
+				.withNullableTokenID(ID)
+				.build();
+	}
+	
+	private void assertAuditEventCorrect() {
+		assertLogEventsCorrect(logEvents, new LogEvent(Level.INFO,
+				"User foo revoked token " + ID, Authentication.class));
+		assertThat("incorrect audit fields", logEvents.get(0).getMDCPropertyMap(),
+				is(ImmutableMap.of(
+						SLF4JAuditLogger.MDC_OPERATION, "revoke token " + ID,
+						SLF4JAuditLogger.MDC_USER, "foo",
+						SLF4JAuditLogger.MDC_TOKEN_ID, ID.toString())));
+	}
+	
+	@Test
+	public void auditEventSync() throws Exception {
+		final SLF4JAutoLogger autoLogger = mock(SLF4JAutoLogger.class);
+		final AccessLogger logger = new AccessLogger(autoLogger, false, OverflowPolicy.BLOCK);
+		
+		logger.log(getEvent());
+		logger.close();
+		
+		assertAuditEventCorrect();
+		// the call info is already set in the request thread
+		verify(autoLogger, never()).setCallInfo(any(), any(), any());
+	}
+	
+	@Test
+	public void auditEventAsync() throws Exception {
+		final SLF4JAutoLogger autoLogger = mock(SLF4JAutoLogger.class);
+		final AccessLogger logger = new AccessLogger(autoLogger, true, OverflowPolicy.BLOCK);
+		when(autoLogger.getMethod()).thenReturn("DELETE");
+		when(autoLogger.getCallID()).thenReturn("1234");
+		when(autoLogger.getIPAddress()).thenReturn("1.2.3.4");
+		
+		logger.log(getEvent());
+		logger.close();
+		
+		assertAuditEventCorrect();
+		assertThat("incorrect thread", logEvents.get(0).getThreadName(), is("AccessLogWriter"));
+		verify(autoLogger).setCallInfo("DELETE", "1234", "1.2.3.4");
+	}
+	
+	@Test
+	public void auditEventAsyncAfterClose() throws Exception {
+		final SLF4JAutoLogger autoLogger = mock(SLF4JAutoLogger.class);
+		final AccessLogger logger = new AccessLogger(autoLogger, true, OverflowPolicy.DROP);
+		logger.close();
+		
+		logger.log(getEvent());
+		
+		assertAuditEventCorrect();
+		assertThat("incorrect thread", logEvents.get(0).getThreadName(),
+				is(Thread.currentThread().getName()));
+		verify(autoLogger, never()).setCallInfo(any(), any(), any());
+	}
+	
+	@Test
+	public void auditEventsNeverDropped() throws Exception {
+		final SLF4JAutoLogger autoLogger = mock(SLF4JAutoLogger.class);
+		final CountDownLatch inWriter = new CountDownLatch(1);
+		final CountDownLatch release = new CountDownLatch(1);
+		// the writer thread sets the call info before writing each event, so stall it there
+		doAnswer(inv -> {
+			inWriter.countDown();
+			release.await();
+			return null;
+		}).when(autoLogger).setCallInfo(any(), any(), any());
+		final AccessLogger logger = new AccessLogger(autoLogger, true, OverflowPolicy.DROP);
+		final AccessLogEvent access = new AccessLogEvent(
+				"1234", "1.2.3.4", "GET", "/me", 200, "agent", 1000000, null);
+		final AuditEvent audit = getEvent();
+		
+		logger.log(access);
+		assertThat("writer not called", inWriter.await(10, TimeUnit.SECONDS), is(true));
+		// fill the buffer. Access events that don't fit are dropped
+		for (int i = 0; i < 10000; i++) {
+			logger.log(access);
+		}
+		final Thread requests = new Thread(() -> {
+			for (int i = 0; i < 100; i++) {
+				logger.log(audit);
+			}
+		});
+		requests.start();
+		requests.join(200);
+		assertThat("audit events should wait for space in the buffer", requests.isAlive(),
+				is(true));
+		release.countDown();
+		requests.join(10000);
+		logger.close();
+		
+		assertThat("incorrect audit event count", countEvents(Authentication.class), is(100L));
+		assertThat("incorrect access event count", countEvents(LoggingFilter.class),
+				is(8193L));
+	}
+	
+	private long countEvents(final Class<?> logger) {
+		return logEvents.stream().filter(e -> e.getLoggerName().equals(logger.getName()))
+				.count();
+	}
+}
@@ -0,0 +1,124 @@
+package us.kbase.test.auth2.service;
+
+import java.lang.reflect.Proxy;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.ws.rs.container.AsyncResponse;
+
+import us.kbase.auth2.service.AsyncRequestExecutor;
+import us.kbase.auth2.service.SLF4JAutoLogger;
+import us.kbase.auth2.service.VirtualThreads;
+
+/** Compares the throughput of the {@link AsyncRequestExecutor} on platform and virtual threads
+ * for requests that block, as requests do when waiting on MongoDB.
+ *
+ * Usage: AsyncRequestExecutorBenchmark [requests [blocking time ms [threads]]]
+ *
+ * The virtual thread run is skipped if virtual threads are not available in the running JVM.
+ */
+public class AsyncRequestExecutorBenchmark {
+
+	private static final SLF4JAutoLogger NULL_LOGGER = new SLF4JAutoLogger() {
+
+		@Override
+		public void setCallInfo(final String method, final String id, final String ipAddress) {
+			// do nothing
+		}
+
+		@Override
+		public String getCallID() {
+			return null;
+		}
+
+		@Override
+		public String getMethod() {
+			return null;
+		}
+
+		@Override
+		public String getIPAddress() {
+			return null;
+		}
+	};
+
+	public static void main(final String[] args) throws Exception {
+		final int requests = args.length > 0 ? Integer.parseInt(args[0]) : 20000;
+		final int blockMS = args.length > 1 ? Integer.parseInt(args[1]) : 20;
+		final int threads = args.length > 2 ? Integer.parseInt(args[2]) :
+				AsyncRequestExecutor.DEFAULT_THREADS;
+		System.out.println(String.format("%s requests, each blocking for %s ms, %s threads",
+				requests, blockMS, threads));
+		// warm up
+		run(requests / 10, blockMS, threads, false);
+		report("platform", run(requests, blockMS, threads, false), requests);
+		if (VirtualThreads.isAvailable()) {
+			run(requests / 10, blockMS, threads, true);
+			report("virtual", run(requests, blockMS, threads, true), requests);
+		} else {
+			System.out.println("Virtual threads are not available in Java " +
+					System.getProperty("java.version"));
+		}
+	}
+
+	private static void report(final String mode, final Result r, final int requests) {
+		System.out.println(String.format(
+				"%-8s: %8.0f requests/s, %s of %s requests rejected, %s ms",
+				mode, (requests - r.rejected) * 1000.0 / r.elapsedMS, r.rejected, requests,
+				r.elapsedMS));
+	}
+
+	private static class Result {
+
+		private final long elapsedMS;
+		private final long rejected;
+
+		private Result(final long elapsedMS, final long rejected) {
+			this.elapsedMS = elapsedMS;
+			this.rejected = rejected;
+		}
+	}
+
+	private static Result run(
+			final int requests,
+			final int blockMS,
+			final int threads,
+			final boolean virtualThreads)
+			throws Exception {
+		final CountDownLatch done = new CountDownLatch(requests);
+		final LongAdder rejected = new LongAdder();
+		final HttpServletRequest request = (HttpServletRequest) Proxy.newProxyInstance(
+				HttpServletRequest.class.getClassLoader(),
+				new Class<?>[] {HttpServletRequest.class},
+				(proxy, method, margs) -> method.getName().equals("getMethod") ? "GET" : null);
+		final AsyncResponse response = (AsyncResponse) Proxy.newProxyInstance(
+				AsyncResponse.class.getClassLoader(),
+				new Class<?>[] {AsyncResponse.class},
+				(proxy, method, margs) -> {
+					if (method.getName().equals("resume")) {
+						if (margs[0] instanceof Throwable) {
+							rejected.increment();
+						}
+						done.countDown();
+					}
+					return method.getReturnType().equals(boolean.class) ? true : null;
+				});
+		// allow all the requests to be in progress at once so that only throughput is measured
+		try (final AsyncRequestExecutor executor = new AsyncRequestExecutor(
+				NULL_LOGGER, threads, requests, 600, virtualThreads)) {
+			final long start = System.nanoTime();
+			for (int i = 0; i < requests; i++) {
+				executor.execute(request, response, () -> {
+					Thread.sleep(blockMS);
+					return "done";
+				});
+			}
+			if (!done.await(10, TimeUnit.MINUTES)) {
+				throw new IllegalStateException("Requests didn't complete");
+			}
+			return new Result((System.nanoTime() - start) / 1000000, rejected.sum());
+		}
+	}
+}
@@ -0,0 +1,223 @@
+package us.kbase.test.auth2.service;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+import static org.junit.Assume.assumeTrue;
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.ws.rs.ServiceUnavailableException;
+import javax.ws.rs.container.AsyncResponse;
+import javax.ws.rs.container.TimeoutHandler;
+
+import org.junit.After;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+
+import us.kbase.auth2.lib.exceptions.InvalidTokenException;
+import us.kbase.auth2.service.AsyncRequestExecutor;
+import us.kbase.auth2.service.SLF4JAutoLogger;
+import us.kbase.auth2.service.VirtualThreads;
+import us.kbase.test.auth2.TestCommon;
+
+public class AsyncRequestExecutorTest {
+
+	private final SLF4JAutoLogger logger = mock(SLF4JAutoLogger.class);
+	private AsyncRequestExecutor executor;
+
+	@After
+	public void tearDown() {
+		if (executor != null) {
+			executor.close();
+		}
+	}
+
+	private HttpServletRequest request() {
+		final HttpServletRequest req = mock(HttpServletRequest.class);
+		when(req.getMethod()).thenReturn("GET");
+		when(req.getAttribute("us.kbase.auth2.logging.callid")).thenReturn("callid");
+		when(req.getAttribute("us.kbase.auth2.logging.ip")).thenReturn("127.0.0.1");
+		return req;
+	}
+
+	private Throwable getResumeException(final AsyncResponse response) {
+		final ArgumentCaptor<Throwable> captor = ArgumentCaptor.forClass(Throwable.class);
+		verify(response, timeout(5000)).resume(captor.capture());
+		return captor.getValue();
+	}
+
+	@Test
+	public void execute() throws Exception {
+		executor = new AsyncRequestExecutor(logger);
+		final AsyncResponse response = mock(AsyncResponse.class);
+		final Thread caller = Thread.currentThread();
+		executor.execute(request(), response, () -> Thread.currentThread() == caller);
+
+		verify(response, timeout(5000)).resume((Object) false);
+		verify(response).setTimeout(AsyncRequestExecutor.DEFAULT_TIMEOUT_SEC, TimeUnit.SECONDS);
+		verify(logger).setCallInfo("GET", "callid", "127.0.0.1");
+	}
+
+	@Test
+	public void executeFail() throws Exception {
+		executor = new AsyncRequestExecutor(logger, 1, 1, 1, false);
+		final AsyncResponse response = mock(AsyncResponse.class);
+		executor.execute(request(), response, () -> {
+			throw new InvalidTokenException();
+		});
+
+		TestCommon.assertExceptionCorrect(getResumeException(response),
+				new InvalidTokenException());
+	}
+
+	@Test
+	public void queueFull() throws Exception {
+		executor = new AsyncRequestExecutor(logger, 1, 1, 1, false);
+		final CountDownLatch started = new CountDownLatch(1);
+		final CountDownLatch proceed = new CountDownLatch(1);
+		final AsyncResponse r1 = mock(AsyncResponse.class);
+		final AsyncResponse r2 = mock(AsyncResponse.class);
+		final AsyncResponse r3 = mock(AsyncResponse.class);
+		executor.execute(request(), r1, () -> {
+			started.countDown();
+			proceed.await();
+			return "r1";
+		});
+		assertThat("request didn't start", started.await(5, TimeUnit.SECONDS), is(true));
+		executor.execute(request(), r2, () -> "r2"); // queued
+		executor.execute(request(), r3, () -> "r3");
+
+		TestCommon.assertExceptionCorrect(getResumeException(r3),
+				new ServiceUnavailableException("The server is too busy to handle the request"));
+		proceed.countDown();
+		verify(r1, timeout(5000)).resume((Object) "r1");
+		verify(r2, timeout(5000)).resume((Object) "r2");
+	}
+
+	@Test
+	public void virtualThreads() throws Exception {
+		assumeTrue("virtual threads are not available", VirtualThreads.isAvailable());
+		executor = new AsyncRequestExecutor(logger, 1, 1, 1, true);
+		final CountDownLatch started = new CountDownLatch(2);
+		final CountDownLatch proceed = new CountDownLatch(1);
+		final AsyncResponse r1 = mock(AsyncResponse.class);
+		final AsyncResponse r2 = mock(AsyncResponse.class);
+		final AsyncResponse r3 = mock(AsyncResponse.class);
+		final AsyncResponse r4 = mock(AsyncResponse.class);
+		final Callable<String> block = () -> {
+			started.countDown();
+			proceed.await();
+			return Thread.currentThread().getName();
+		};
+		executor.execute(request(), r1, block);
+		executor.execute(request(), r2, block);
+		// both requests run concurrently, so the limit is threads + queue size
+		assertThat("requests didn't start", started.await(5, TimeUnit.SECONDS), is(true));
+		executor.execute(request(), r3, () -> "r3");
+
+		TestCommon.assertExceptionCorrect(getResumeException(r3),
+				new ServiceUnavailableException("The server is too busy to handle the request"));
+		proceed.countDown();
+		final ArgumentCaptor<Object> captor = ArgumentCaptor.forClass(Object.class);
+		verify(r1, timeout(5000)).resume(captor.capture());
+		assertThat("incorrect thread name", ((String) captor.getValue()).startsWith(
+				"AsyncRequest-"), is(true));
+		verify(r2, timeout(5000)).resume(any(Object.class));
+		// permits are released
+		executor.execute(request(), r4, () -> "r4");
+		verify(r4, timeout(5000)).resume((Object) "r4");
+	}
+
+	@Test
+	public void virtualThreadsUnavailable() throws Exception {
+		assumeTrue("virtual threads are available", !VirtualThreads.isAvailable());
+		failConstruct(logger, 1, 1, 1, true, new UnsupportedOperationException(
+				"Virtual threads require Java 21 or later. The running Java version is " +
+				System.getProperty("java.version")));
+	}
+
+	@Test
+	public void timeoutHandler() throws Exception {
+		executor = new AsyncRequestExecutor(logger, 1, 1, 30, false);
+		final AsyncResponse response = mock(AsyncResponse.class);
+		executor.execute(request(), response, () -> "foo");
+
+		verify(response).setTimeout(30, TimeUnit.SECONDS);
+		final ArgumentCaptor<TimeoutHandler> captor =
+				ArgumentCaptor.forClass(TimeoutHandler.class);
+		verify(response).setTimeoutHandler(captor.capture());
+		final AsyncResponse timedOut = mock(AsyncResponse.class);
+		captor.getValue().handleTimeout(timedOut);
+		TestCommon.assertExceptionCorrect(getResumeException(timedOut),
+				new ServiceUnavailableException("The request timed out"));
+	}
+
+	@Test
+	public void closed() throws Exception {
+		executor = new AsyncRequestExecutor(logger);
+		executor.close();
+		final AsyncResponse response = mock(AsyncResponse.class);
+		executor.execute(request(), response, () -> "foo");
+
+		TestCommon.assertExceptionCorrect(getResumeException(response),
+				new ServiceUnavailableException("The server is too busy to handle the request"));
+	}
+
+	@Test
+	public void executeBadArgs() throws Exception {
+		executor = new AsyncRequestExecutor(logger);
+		final HttpServletRequest req = request();
+		final AsyncResponse resp = mock(AsyncResponse.class);
+		failExecute(null, resp, () -> "foo", new NullPointerException("request"));
+		failExecute(req, null, () -> "foo", new NullPointerException("response"));
+		failExecute(req, resp, null, new NullPointerException("processor"));
+	}
+
+	private void failExecute(
+			final HttpServletRequest req,
+			final AsyncResponse resp,
+			final Callable<?> processor,
+			final Exception expected) {
+		try {
+			executor.execute(req, resp, processor);
+			fail("expected exception");
+		} catch (Exception got) {
+			TestCommon.assertExceptionCorrect(got, expected);
+		}
+	}
+
+	@Test
+	public void constructFail() throws Exception {
+		failConstruct(null, 1, 1, 1, false, new NullPointerException("logger"));
+		failConstruct(logger, 0, 1, 1, false,
+				new IllegalArgumentException("threads must be at least 1"));
+		failConstruct(logger, 1, 0, 1, false,
+				new IllegalArgumentException("queueSize must be at least 1"));
+		failConstruct(logger, 1, 1, 0, false,
+				new IllegalArgumentException("timeoutSec must be at least 1"));
+	}
+
+	private void failConstruct(
+			final SLF4JAutoLogger logger,
+			final int threads,
+			final int queueSize,
+			final int timeoutSec,
+			final boolean virtualThreads,
+			final Exception expected) {
+		try {
+			new AsyncRequestExecutor(logger, threads, queueSize, timeoutSec, virtualThreads);
+			fail("expected exception");
+		} catch (Exception got) {
+			TestCommon.assertExceptionCorrect(got, expected);
+		}
+	}
+}
@@ -0,0 +1,374 @@
+package us.kbase.test.auth2.service;
+
+import java.net.URI;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+
+import javax.ws.rs.client.Client;
+import javax.ws.rs.client.ClientBuilder;
+import javax.ws.rs.client.Entity;
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.Response;
+import javax.ws.rs.core.UriBuilder;
+
+import com.beust.jcommander.JCommander;
+import com.beust.jcommander.Parameter;
+import com.beust.jcommander.ParameterException;
+import com.google.common.collect.ImmutableMap;
+
+import us.kbase.auth2.kbase.KBaseAuthConfig;
+import us.kbase.auth2.lib.DisplayName;
+import us.kbase.auth2.lib.PasswordHashAndSalt;
+import us.kbase.auth2.lib.UserName;
+import us.kbase.auth2.lib.token.IncomingToken;
+import us.kbase.auth2.lib.token.StoredToken;
+import us.kbase.auth2.lib.token.TokenType;
+import us.kbase.auth2.lib.user.LocalUser;
+import us.kbase.test.auth2.MongoStorageTestManager;
+import us.kbase.test.auth2.StandaloneAuthServer;
+import us.kbase.test.auth2.StandaloneAuthServer.ServerThread;
+import us.kbase.test.auth2.TestCommon;
+
+/** An end to end HTTP load test. Starts a {@link StandaloneAuthServer} against a temporary
+ * MongoDB instance, seeds users and tokens, and then drives a mix of requests against the server
+ * from a pool of client threads. Reports throughput, latency percentiles, and error rates per
+ * operation.
+ *
+ * The MongoDB instance is configured via the test.cfg file as for the tests.
+ *
+ * Run with --help for the options.
+ */
+public class LoadTest {
+
+	private static final String DB_NAME = "loadtest";
+	private static final String COOKIE_NAME = "login-cookie";
+	private static final String USER_PREFIX = "loaduser";
+	private static final int DISPLAY_NAME_LOOKUP_COUNT = 10;
+
+	private static class Args {
+
+		@Parameter(names = {"-h", "--help"}, help = true, description = "Display help.")
+		private boolean help;
+
+		@Parameter(names = {"-u", "--users"}, description = "The number of users to seed.")
+		private int users = 1000;
+
+		@Parameter(names = {"-k", "--tokens"}, description =
+				"The number of login tokens to seed, distributed evenly over the users.")
+		private int tokens = 5000;
+
+		@Parameter(names = {"-t", "--threads"}, description = "The number of client threads.")
+		private int threads = 20;
+
+		@Parameter(names = {"-d", "--duration"},
+				description = "The duration of the measured run in seconds.")
+		private int duration = 60;
+
+		@Parameter(names = {"-w", "--warmup"}, description =
+				"The duration of the warm up run in seconds. Results are not recorded.")
+		private int warmup = 10;
+
+		@Parameter(names = {"-m", "--mix"}, description =
+				"The relative weights of the operations as a comma separated list of " +
+				"operation=weight. Operations are introspect, me, displaynames, search, and " +
+				"createtoken.")
+		private String mix = "introspect=50,me=20,displaynames=15,search=10,createtoken=5";
+	}
+
+	private enum Operation {
+		INTROSPECT("introspect"),
+		ME("me"),
+		DISPLAYNAMES("displaynames"),
+		SEARCH("search"),
+		CREATETOKEN("createtoken");
+
+		private final String name;
+
+		private Operation(final String name) {
+			this.name = name;
+		}
+
+		private static Operation getOperation(final String name) {
+			for (final Operation o: values()) {
+				if (o.name.equals(name)) {
+					return o;
+				}
+			}
+			throw new ParameterException("Unknown operation: " + name);
+		}
+	}
+
+	private static class Results {
+
+		private final Map<Operation, List<Long>> latenciesNS = new EnumMap<>(Operation.class);
+		private final Map<Operation, Long> errors = new EnumMap<>(Operation.class);
+
+		private Results() {
+			for (final Operation o: Operation.values()) {
+				latenciesNS.put(o, new ArrayList<>());
+				errors.put(o, 0L);
+			}
+		}
+
+		private void record(final Operation o, final long latencyNS, final boolean error) {
+			latenciesNS.get(o).add(latencyNS);
+			if (error) {
+				errors.put(o, errors.get(o) + 1);
+			}
+		}
+
+		private void add(final Results other) {
+			for (final Operation o: Operation.values()) {
+				latenciesNS.get(o).addAll(other.latenciesNS.get(o));
+				errors.put(o, errors.get(o) + other.errors.get(o));
+			}
+		}
+	}
+
+	private final Args args;
+	private final URI host;
+	private final Client client = ClientBuilder.newClient();
+	private final List<IncomingToken> tokens = new ArrayList<>();
+	private final Operation[] mix;
+
+	private LoadTest(final Args args, final URI host) {
+		this.args = args;
+		this.host = host;
+		this.mix = parseMix(args.mix);
+	}
+
+	// returns an array containing each operation weight times, so a uniform random index picks
+	// operations according to their weights
+	private static Operation[] parseMix(final String mix) {
+		final List<Operation> ops = new LinkedList<>();
+		for (final String opAndWeight: mix.split(",")) {
+			final String[] split = opAndWeight.trim().split("=");
+			if (split.length != 2) {
+				throw new ParameterException("Illegal operation mix entry: " + opAndWeight);
+			}
+			final Operation o = Operation.getOperation(split[0].trim());
+			final int weight;
+			try {
+				weight = Integer.parseInt(split[1].trim());
+			} catch (NumberFormatException e) {
+				throw new ParameterException("Illegal weight for operation " + o.name);
+			}
+			ops.addAll(Collections.nCopies(weight, o));
+		}
+		if (ops.isEmpty()) {
+			throw new ParameterException("The operation mix is empty");
+		}
+		return ops.toArray(new Operation[ops.size()]);
+	}
+
+	private static UserName getUserName(final int user) throws Exception {
+		return new UserName(USER_PREFIX + user);
+	}
+
+	private void seed(final MongoStorageTestManager manager) throws Exception {
+		final long start = System.nanoTime();
+		// the password is never used, so don't bother with a real hash
+		final byte[] salt = "saltsalt".getBytes();
+		final byte[] hash = Base64.getDecoder().decode(
+				"yfzvxxMCbKQgoa0e38AmGNZxPJ+lT8PNXPgiR8QkFM0=");
+		final Instant now = Instant.now();
+		for (int i = 0; i < args.users; i++) {
+			manager.storage.createLocalUser(LocalUser.getLocalUserBuilder(
+					getUserName(i), new DisplayName("Load User " + i), now).build(),
+					new PasswordHashAndSalt(hash.clone(), salt.clone()));
+		}
+		for (int i = 0; i < args.tokens; i++) {
+			final IncomingToken t = new IncomingToken(UUID.randomUUID().toString());
+			manager.storage.storeToken(StoredToken.getBuilder(
+					TokenType.LOGIN, UUID.randomUUID(), getUserName(i % args.users))
+					.withLifeTime(now, now.plusSeconds(30 * 24 * 3600))
+					.build(),
+					t.getHashedToken().getTokenHash());
+			tokens.add(t);
+		}
+		System.out.println(String.format("Seeded %s users and %s tokens in %s ms",
+				args.users, args.tokens, (System.nanoTime() - start) / 1000000));
+	}
+
+	private Response call(final Operation o, final String token) {
+		final ThreadLocalRandom rand = ThreadLocalRandom.current();
+		final UriBuilder ub = UriBuilder.fromUri(host);
+		switch (o) {
+			case INTROSPECT:
+				return get(ub.path("/api/V2/token"), token);
+			case ME:
+				return get(ub.path("/api/V2/me"), token);
+			case DISPLAYNAMES:
+				final List<String> users = new LinkedList<>();
+				for (int i = 0; i < DISPLAY_NAME_LOOKUP_COUNT; i++) {
+					users.add(USER_PREFIX + rand.nextInt(args.users));
+				}
+				return get(ub.path("/api/V2/users").queryParam("list", String.join(",", users)),
+						token);
+			case SEARCH:
+				// matches roughly 1% of the users
+				final String prefix = USER_PREFIX + rand.nextInt(1, 10) + rand.nextInt(10);
+				return get(ub.path("/api/V2/users/search/" + prefix)
+						.queryParam("fields", "username"), token);
+			case CREATETOKEN:
+				return client.target(ub.path("/api/V2/token").build()).request()
+						.header("authorization", token)
+						.post(Entity.json(ImmutableMap.of("name", "loadtest")));
+			default:
+				throw new RuntimeException("Unknown operation: " + o);
+		}
+	}
+
+	private Response get(final UriBuilder ub, final String token) {
+		return client.target(ub.build()).request(MediaType.APPLICATION_JSON)
+				.header("authorization", token).get();
+	}
+
+	private Results runWorker(final long endNS) {
+		final Results results = new Results();
+		final ThreadLocalRandom rand = ThreadLocalRandom.current();
+		while (System.nanoTime() < endNS) {
+			final Operation o = mix[rand.nextInt(mix.length)];
+			final String token = tokens.get(rand.nextInt(tokens.size())).getToken();
+			final long start = System.nanoTime();
+			boolean error;
+			try {
+				final Response r = call(o, token);
+				// read the entity to include the transfer time in the latency
+				r.readEntity(String.class);
+				error = r.getStatus() >= 300;
+			} catch (RuntimeException e) {
+				error = true;
+			}
+			results.record(o, System.nanoTime() - start, error);
+		}
+		return results;
+	}
+
+	private Results run(final int durationSec) throws Exception {
+		final ExecutorService exe = Executors.newFixedThreadPool(args.threads);
+		try {
+			final long endNS = System.nanoTime() + durationSec * 1000000000L;
+			final List<Future<Results>> futures = new LinkedList<>();
+			for (int i = 0; i < args.threads; i++) {
+				futures.add(exe.submit(() -> runWorker(endNS)));
+			}
+			final Results results = new Results();
+			for (final Future<Results> f: futures) {
+				results.add(f.get());
+			}
+			return results;
+		} finally {
+			exe.shutdownNow();
+		}
+	}
+
+	private static void report(final Results results, final int durationSec) {
+		System.out.println(String.format("%-13s %9s %9s %7s %8s %8s %8s %8s",
+				"operation", "requests", "req/s", "error%", "p50 ms", "p90 ms", "p99 ms",
+				"max ms"));
+		final List<Long> all = new ArrayList<>();
+		long errors = 0;
+		for (final Operation o: Operation.values()) {
+			final List<Long> lat = results.latenciesNS.get(o);
+			if (!lat.isEmpty()) {
+				all.addAll(lat);
+				errors += results.errors.get(o);
+				reportLine(o.name, lat, results.errors.get(o), durationSec);
+			}
+		}
+		reportLine("total", all, errors, durationSec);
+	}
+
+	private static void reportLine(
+			final String name,
+			final List<Long> latenciesNS,
+			final long errors,
+			final int durationSec) {
+		final long[] lat = latenciesNS.stream().mapToLong(l -> l).toArray();
+		Arrays.sort(lat);
+		System.out.println(String.format("%-13s %9s %9.1f %7.2f %8.2f %8.2f %8.2f %8.2f",
+				name, lat.length, lat.length / (double) durationSec,
+				lat.length == 0 ? 0 : errors * 100.0 / lat.length,
+				percentileMS(lat, 50), percentileMS(lat, 90), percentileMS(lat, 99),
+				percentileMS(lat, 100)));
+	}
+
+	// nearest rank percentile
+	private static double percentileMS(final long[] sortedNS, final int percentile) {
+		if (sortedNS.length == 0) {
+			return 0;
+		}
+		final int rank = (int) Math.ceil(percentile / 100.0 * sortedNS.length);
+		return sortedNS[Math.max(0, rank - 1)] / 1000000.0;
+	}
+
+	public static void main(final String[] argv) throws Exception {
+		final Args a = new Args();
+		final JCommander jc = new JCommander(a);
+		jc.setProgramName(LoadTest.class.getSimpleName());
+		try {
+			jc.parse(argv);
+			if (a.users < 1 || a.tokens < 1 || a.threads < 1 || a.duration < 1 ||
+					a.warmup < 0) {
+				throw new ParameterException("The users, tokens, threads, and duration must be " +
+						"at least 1 and the warmup must be at least 0");
+			}
+			parseMix(a.mix);
+		} catch (ParameterException e) {
+			System.err.println(e.getMessage());
+			jc.usage();
+			System.exit(1);
+		}
+		if (a.help) {
+			jc.usage();
+			return;
+		}
+		TestCommon.stfuLoggers();
+		final MongoStorageTestManager manager = new MongoStorageTestManager(DB_NAME);
+		StandaloneAuthServer server = null;
+		try {
+			final Path cfgfile = ServiceTestUtils.generateTempConfigFile(
+					manager, DB_NAME, COOKIE_NAME);
+			TestCommon.getenv().put("KB_DEPLOYMENT_CONFIG", cfgfile.toString());
+			server = new StandaloneAuthServer(KBaseAuthConfig.class.getName());
+			new ServerThread(server).start();
+			System.out.println("Main thread waiting for server to start up");
+			while (server.getPort() == null) {
+				Thread.sleep(1000);
+			}
+			final URI host = new URI("http://localhost:" + server.getPort());
+			ServiceTestUtils.enableLogin(host.toString(),
+					ServiceTestUtils.getAdminToken(manager));
+
+			final LoadTest lt = new LoadTest(a, host);
+			lt.seed(manager);
+			System.out.println(String.format("Running with %s threads, operation mix %s",
+					a.threads, a.mix));
+			if (a.warmup > 0) {
+				System.out.println(String.format("Warming up for %s s", a.warmup));
+				lt.run(a.warmup);
+			}
+			System.out.println(String.format("Measuring for %s s", a.duration));
+			report(lt.run(a.duration), a.duration);
+		} finally {
+			if (server != null) {
+				server.stop();
+			}
+			manager.destroy();
+		}
+	}
+}
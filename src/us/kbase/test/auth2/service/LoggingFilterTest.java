@@ -11,10 +11,13 @@ import static us.kbase.test.auth2.TestCommon.set;
 import java.net.URI;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.util.Arrays;
 import java.util.Iterator;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Set;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
 
 import javax.ws.rs.client.Client;
 import javax.ws.rs.client.ClientBuilder;
@@ -42,6 +45,7 @@ import us.kbase.auth2.lib.token.IncomingToken;
 import us.kbase.auth2.service.AuthStartupConfig;
 import us.kbase.auth2.service.LoggingFilter;
 import us.kbase.auth2.service.SLF4JAutoLogger;
+import us.kbase.auth2.service.logging.AsyncLogWriter.OverflowPolicy;
 import us.kbase.common.test.RegexMatcher;
 import us.kbase.test.auth2.MongoStorageTestManager;
 import us.kbase.test.auth2.StandaloneAuthServer;
@@ -62,6 +66,8 @@ public class LoggingFilterTest {
 	
 	private static List<ILoggingEvent> logEvents = new LinkedList<>();
 	
+	private static final String LATENCY = "{latency}";
+	
 	private static SLF4JAutoLogger autologgermock = mock(SLF4JAutoLogger.class);
 	
 	public static class LoggingFilterTestConfig implements AuthStartupConfig {
@@ -112,6 +118,42 @@ public class LoggingFilterTest {
 		public Path getPathToTemplateDirectory() {
 			return Paths.get("templates");
 		}
+		
+		@Override
+		public Optional<Integer> getPasswordHashIterations() {
+			return Optional.absent();
+		}
+		
+		@Override
+		public Optional<Integer> getPasswordHashCalibrationTargetMillis() {
+			return Optional.absent();
+		}
+		
+		@Override
+		public boolean isUserAgentParserBuiltInBackground() {
+			return true;
+		}
+		
+		@Override
+		public boolean isAsyncLoggingEnabled() {
+			// the tests check the log events immediately after the response
+			return false;
+		}
+		
+		@Override
+		public OverflowPolicy getAsyncLoggingOverflowPolicy() {
+			return OverflowPolicy.DROP;
+		}
+
+		@Override
+		public boolean isTemplateReloadEnabled() {
+			return false;
+		}
+
+		@Override
+		public boolean isVirtualThreadsEnabled() {
+			return false;
+		}
 	}
 	
 	@BeforeClass
@@ -215,7 +257,7 @@ public class LoggingFilterTest {
 		assertThat("incorrect status code", res.getStatus(), is(200));
 		ans.check("GET", "127.0.0.1");
 		
-		checkInfoEvents(String.format("GET %s/customroles 200 a user agent", host));
+		checkInfoEvents(String.format("GET %s/customroles 200 {latency}ms a user agent", host));
 	}
 	
 	private void checkInfoEvents(final String... messages) {
@@ -226,7 +268,11 @@ public class LoggingFilterTest {
 			final ILoggingEvent got = i.next();
 			assertThat("incorrect log level", got.getLevel(), is(Level.INFO));
 			assertThat("incorrect caller", got.getLoggerName(), is(LoggingFilter.class.getName()));
-			assertThat("incorrect message", got.getFormattedMessage(), is(msg));
+			// latency varies, so just check it's a number
+			final String regex = Arrays.stream(msg.split(Pattern.quote(LATENCY), -1))
+					.map(Pattern::quote).collect(Collectors.joining("\\d+"));
+			assertThat("incorrect message", got.getFormattedMessage(),
+					RegexMatcher.matches(regex));
 		}
 	}
 	
@@ -248,7 +294,7 @@ public class LoggingFilterTest {
 		ans.check("GET", "127.0.0.2");
 		
 		checkInfoEvents("X-Forwarded-For: 127.0.0.2, 127.0.0.3, Remote IP: 127.0.0.1",
-				String.format("GET %s/ 200 an user agent", host));
+				String.format("GET %s/ 200 {latency}ms an user agent", host));
 	}
 	
 	@Test
@@ -269,7 +315,7 @@ public class LoggingFilterTest {
 		ans.check("GET", "127.0.0.4");
 		
 		checkInfoEvents("X-Real-IP: 127.0.0.4, Remote IP: 127.0.0.1",
-				String.format("GET %s/ 200 the user specific agent", host));
+				String.format("GET %s/ 200 {latency}ms the user specific agent", host));
 	}
 
 	@Test
@@ -292,7 +338,7 @@ public class LoggingFilterTest {
 		
 		checkInfoEvents("X-Forwarded-For: 127.0.0.2,     127.0.0.3, " +
 				"X-Real-IP: 127.0.0.4, Remote IP: 127.0.0.1",
-				String.format("GET %s/ 200 the user agent", host));
+				String.format("GET %s/ 200 {latency}ms the user agent", host));
 	}
 	
 	@Test
@@ -311,7 +357,7 @@ public class LoggingFilterTest {
 		assertThat("incorrect status code", res.getStatus(), is(200));
 		ans.check("GET", "127.0.0.1");
 		
-		checkInfoEvents(
-				String.format("GET %s/ 200 always a user agent, never your user agent", host));
+		checkInfoEvents(String.format(
+				"GET %s/ 200 {latency}ms always a user agent, never your user agent", host));
 	}
 }
@@ -0,0 +1,299 @@
+package us.kbase.test.auth2.service;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.not;
+import static org.hamcrest.CoreMatchers.sameInstance;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import org.junit.Test;
+
+import com.google.common.base.Optional;
+
+import nl.basjes.parse.useragent.UserAgent;
+import nl.basjes.parse.useragent.UserAgentAnalyzer;
+import us.kbase.auth2.lib.TokenCreationContext;
+import us.kbase.auth2.lib.TokenCreationContext.Builder;
+import us.kbase.auth2.service.UserAgentParser;
+import us.kbase.test.auth2.TestCommon;
+
+public class UserAgentParserTest {
+
+	private static final TokenCreationContext EMPTY = TokenCreationContext.getBuilder().build();
+
+	// returns an analyzer that parses the user agent string s into agent "agent s", agent
+	// version 1.0, OS os, and OS version 2.0. The device is unparseable.
+	private static UserAgentAnalyzer analyzer(final String... userAgents) {
+		final UserAgentAnalyzer uaa = mock(UserAgentAnalyzer.class);
+		for (final String userAgent: userAgents) {
+			final UserAgent ua = userAgent(userAgent);
+			when(uaa.parse(userAgent)).thenReturn(ua);
+		}
+		return uaa;
+	}
+
+	private static UserAgent userAgent(final String userAgent) {
+		final UserAgent ua = mock(UserAgent.class);
+		when(ua.getValue(UserAgent.AGENT_NAME)).thenReturn(
+				userAgent == null ? "Unknown" : "agent " + userAgent);
+		when(ua.getValue(UserAgent.AGENT_VERSION)).thenReturn("1.0");
+		when(ua.getValue(UserAgent.OPERATING_SYSTEM_NAME)).thenReturn("os");
+		when(ua.getValue(UserAgent.OPERATING_SYSTEM_VERSION)).thenReturn("2.0");
+		when(ua.getValue(UserAgent.DEVICE_NAME)).thenReturn("??");
+		return ua;
+	}
+
+	private static TokenCreationContext expected(final String agent) {
+		return TokenCreationContext.getBuilder()
+				.withNullableAgent(agent, "1.0")
+				.withNullableOS("os", "2.0")
+				.build();
+	}
+
+	private static Supplier<UserAgentAnalyzer> factory(
+			final List<UserAgentAnalyzer> analyzers,
+			final String... userAgents) {
+		return () -> {
+			final UserAgentAnalyzer uaa = analyzer(userAgents);
+			analyzers.add(uaa);
+			return uaa;
+		};
+	}
+
+	@Test
+	public void cacheHit() throws Exception {
+		final List<UserAgentAnalyzer> analyzers = new LinkedList<>();
+		final UserAgentParser p = new UserAgentParser(10, 1, false, factory(analyzers, "foo"));
+		assertThat("incorrect ready", p.isReady(), is(true));
+
+		final Builder b1 = p.getTokenContextFromUserAgent("foo");
+		final Builder b2 = p.getTokenContextFromUserAgent("foo");
+
+		assertThat("same builder", b1, not(sameInstance(b2)));
+		assertThat("incorrect context", b1.build(), is(expected("agent foo")));
+		// modifying a builder must not affect the cached result
+		b1.withNullableDevice("device");
+		assertThat("incorrect context", b2.build(), is(expected("agent foo")));
+		assertThat("incorrect context", p.getTokenContextFromUserAgent("foo").build(),
+				is(expected("agent foo")));
+
+		assertThat("incorrect analyzer count", analyzers.size(), is(1));
+		verify(analyzers.get(0)).parse("foo");
+	}
+
+	@Test
+	public void cacheMiss() throws Exception {
+		final List<UserAgentAnalyzer> analyzers = new LinkedList<>();
+		final UserAgentParser p = new UserAgentParser(
+				10, 1, false, factory(analyzers, "foo", "bar"));
+
+		assertThat("incorrect context", p.getTokenContextFromUserAgent("foo").build(),
+				is(expected("agent foo")));
+		assertThat("incorrect context", p.getTokenContextFromUserAgent("bar").build(),
+				is(expected("agent bar")));
+
+		verify(analyzers.get(0)).parse("foo");
+		verify(analyzers.get(0)).parse("bar");
+	}
+
+	@Test
+	public void nullUserAgent() throws Exception {
+		final List<UserAgentAnalyzer> analyzers = new LinkedList<>();
+		final UserAgentParser p = new UserAgentParser(
+				10, 1, false, factory(analyzers, (String) null));
+
+		// null user agents aren't cached
+		final TokenCreationContext expected = TokenCreationContext.getBuilder()
+				.withNullableOS("os", "2.0").build();
+		assertThat("incorrect context", p.getTokenContextFromUserAgent(null).build(),
+				is(expected));
+		assertThat("incorrect context", p.getTokenContextFromUserAgent(null).build(),
+				is(expected));
+
+		verify(analyzers.get(0), times(2)).parse((String) null);
+	}
+
+	@Test
+	public void emptyUserAgent() throws Exception {
+		final List<UserAgentAnalyzer> analyzers = new LinkedList<>();
+		final UserAgentParser p = new UserAgentParser(10, 1, false, factory(analyzers, ""));
+
+		assertThat("incorrect context", p.getTokenContextFromUserAgent("").build(),
+				is(expected("agent ")));
+		assertThat("incorrect context", p.getTokenContextFromUserAgent("").build(),
+				is(expected("agent ")));
+
+		verify(analyzers.get(0)).parse("");
+	}
+
+	@Test
+	public void cacheSize0() throws Exception {
+		final List<UserAgentAnalyzer> analyzers = new LinkedList<>();
+		final UserAgentParser p = new UserAgentParser(0, 1, false, factory(analyzers, "foo"));
+
+		assertThat("incorrect context", p.getTokenContextFromUserAgent("foo").build(),
+				is(expected("agent foo")));
+		assertThat("incorrect context", p.getTokenContextFromUserAgent("foo").build(),
+				is(expected("agent foo")));
+
+		verify(analyzers.get(0), times(2)).parse("foo");
+	}
+
+	@Test
+	public void notReady() throws Exception {
+		final CountDownLatch build = new CountDownLatch(1);
+		final UserAgentParser p = new UserAgentParser(10, 1, true, () -> {
+			try {
+				build.await();
+			} catch (InterruptedException e) {
+				throw new RuntimeException(e);
+			}
+			return analyzer("foo");
+		});
+
+		assertThat("incorrect ready", p.isReady(), is(false));
+		assertThat("incorrect context", p.getTokenContextFromUserAgent("foo").build(),
+				is(EMPTY));
+
+		build.countDown();
+		final long timeout = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+		while (!p.isReady() && System.nanoTime() < timeout) {
+			Thread.sleep(10);
+		}
+		assertThat("incorrect ready", p.isReady(), is(true));
+		// the empty result is not cached
+		assertThat("incorrect context", p.getTokenContextFromUserAgent("foo").build(),
+				is(expected("agent foo")));
+	}
+
+	@Test
+	public void buildFail() throws Exception {
+		final UserAgentParser p = new UserAgentParser(10, 1, false, () -> {
+			throw new IllegalStateException("whoops");
+		});
+
+		assertThat("incorrect ready", p.isReady(), is(false));
+		assertThat("incorrect context", p.getTokenContextFromUserAgent("foo").build(),
+				is(EMPTY));
+	}
+
+	@Test
+	public void concurrentMisses() throws Exception {
+		// more threads than analyzers. Threads must wait for an analyzer rather than sharing one
+		final int threads = 8;
+		final AtomicInteger inParse = new AtomicInteger();
+		final AtomicInteger maxInParse = new AtomicInteger();
+		final CountDownLatch poolInUse = new CountDownLatch(2);
+		final CountDownLatch release = new CountDownLatch(1);
+		// build the user agents up front, since stubbing mocks in an answer is error prone
+		final Map<String, UserAgent> agents = new HashMap<>();
+		for (int i = 0; i < threads; i++) {
+			agents.put("ua" + i, userAgent("ua" + i));
+		}
+		final List<UserAgentAnalyzer> analyzers = new LinkedList<>();
+		final UserAgentParser p = new UserAgentParser(10, 2, false, () -> {
+			final UserAgentAnalyzer uaa = mock(UserAgentAnalyzer.class);
+			when(uaa.parse(anyString())).thenAnswer(inv -> {
+				maxInParse.accumulateAndGet(inParse.incrementAndGet(), Math::max);
+				poolInUse.countDown();
+				release.await();
+				inParse.decrementAndGet();
+				return agents.get(inv.getArgument(0));
+			});
+			analyzers.add(uaa);
+			return uaa;
+		});
+
+		final ExecutorService exe = Executors.newFixedThreadPool(threads);
+		try {
+			final List<Future<TokenCreationContext>> results = new ArrayList<>();
+			for (int i = 0; i < threads; i++) {
+				final String ua = "ua" + i;
+				results.add(exe.submit(() -> p.getTokenContextFromUserAgent(ua).build()));
+			}
+			assertThat("analyzers not in use", poolInUse.await(5, TimeUnit.SECONDS), is(true));
+			Thread.sleep(200); // give any threads that might share an analyzer time to do so
+			assertThat("incorrect parses in progress", inParse.get(), is(2));
+			release.countDown();
+
+			for (int i = 0; i < threads; i++) {
+				assertThat("incorrect context", results.get(i).get(5, TimeUnit.SECONDS),
+						is(expected("agent ua" + i)));
+			}
+			assertThat("incorrect max parses", maxInParse.get(), is(2));
+		} finally {
+			release.countDown();
+			exe.shutdownNow();
+		}
+		assertThat("incorrect analyzer count", analyzers.size(), is(2));
+	}
+
+	@Test
+	public void parseRealUserAgent() throws Exception {
+		// slow - builds a real analyzer
+		final UserAgentParser p = new UserAgentParser(10, 1, false);
+		assertThat("incorrect ready", p.isReady(), is(true));
+
+		final TokenCreationContext tcc = p.getTokenContextFromUserAgent(
+				"Mozilla/5.0 (X11; Linux x86_64) AppleWebKit/537.36 (KHTML, like Gecko) " +
+				"Chrome/59.0.3071.115 Safari/537.36").build();
+		assertThat("incorrect agent", tcc.getAgent(), is(Optional.of("Chrome")));
+		assertThat("incorrect agent version", tcc.getAgentVersion(),
+				is(Optional.of("59.0.3071.115")));
+		assertThat("incorrect os", tcc.getOS(), is(Optional.of("Linux")));
+	}
+
+	@Test
+	public void constructFail() throws Exception {
+		failConstruct(-1, 1, () -> analyzer("foo"),
+				new IllegalArgumentException("cacheSize must be at least 0"));
+		failConstruct(0, 0, () -> analyzer("foo"),
+				new IllegalArgumentException("analyzerPoolSize must be at least 1"));
+		failConstruct(0, 1, null, new NullPointerException("analyzerFactory"));
+		try {
+			new UserAgentParser(-1, 1, false);
+			fail("expected exception");
+		} catch (Exception got) {
+			TestCommon.assertExceptionCorrect(got,
+					new IllegalArgumentException("cacheSize must be at least 0"));
+		}
+		try {
+			new UserAgentParser(1, 0, false);
+			fail("expected exception");
+		} catch (Exception got) {
+			TestCommon.assertExceptionCorrect(got,
+					new IllegalArgumentException("analyzerPoolSize must be at least 1"));
+		}
+	}
+
+	private void failConstruct(
+			final int cacheSize,
+			final int analyzerPoolSize,
+			final Supplier<UserAgentAnalyzer> factory,
+			final Exception expected) {
+		try {
+			new UserAgentParser(cacheSize, analyzerPoolSize, false, factory);
+			fail("expected exception");
+		} catch (Exception got) {
+			TestCommon.assertExceptionCorrect(got, expected);
+		}
+	}
+}
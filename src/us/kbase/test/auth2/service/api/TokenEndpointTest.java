@@ -16,6 +16,7 @@ import javax.ws.rs.client.ClientBuilder;
 import javax.ws.rs.client.Entity;
 import javax.ws.rs.client.WebTarget;
 import javax.ws.rs.client.Invocation.Builder;
+import javax.ws.rs.core.EntityTag;
 import javax.ws.rs.core.Form;
 import javax.ws.rs.core.MediaType;
 import javax.ws.rs.core.Response;
@@ -176,6 +177,50 @@ public class TokenEndpointTest {
 				.build();
 		
 		assertThat("incorrect token", response, is(expected));
+		assertThat("incorrect cache control", res.getHeaderString("cache-control"),
+				is("private, max-age=300"));
+		assertThat("incorrect vary", res.getHeaderString("vary"), is("Authorization"));
+		assertThat("incorrect etag", res.getEntityTag().isWeak(), is(true));
+	}
+	
+	@Test
+	public void getTokenNotModified() throws Exception {
+		final IncomingToken it = new IncomingToken("foobarbaz");
+		// expires in ~2 minutes, so the cache time is bounded by the expiry time
+		manager.storage.storeToken(StoredToken.getBuilder(
+				TokenType.LOGIN, UUID.randomUUID(), new UserName("foo"))
+				.withLifeTime(Instant.ofEpochMilli(10000), Instant.now().plusSeconds(121))
+				.build(), it.getHashedToken().getTokenHash());
+		
+		final URI target = UriBuilder.fromUri(host).path("/api/V2/token").build();
+		
+		final Response res = CLI.target(target).request()
+				.header("authorization", it.getToken()).get();
+		
+		assertThat("incorrect response code", res.getStatus(), is(200));
+		final String cc = res.getHeaderString("cache-control");
+		assertThat("incorrect cache control " + cc,
+				cc.equals("private, max-age=120") || cc.equals("private, max-age=119"), is(true));
+		final EntityTag etag = res.getEntityTag();
+		res.close();
+		
+		final Response res2 = CLI.target(target).request()
+				.header("authorization", it.getToken())
+				.header("if-none-match", etag.toString())
+				.get();
+		
+		assertThat("incorrect response code", res2.getStatus(), is(304));
+		assertThat("incorrect etag", res2.getEntityTag(), is(etag));
+		assertThat("incorrect body", res2.hasEntity(), is(false));
+		
+		final Response res3 = CLI.target(target).request()
+				.header("authorization", it.getToken())
+				.header("if-none-match", "W/\"someothertag\"")
+				.get();
+		
+		assertThat("incorrect response code", res3.getStatus(), is(200));
+		assertThat("incorrect etag", res3.getEntityTag(), is(etag));
+		res3.close();
 	}
 	
 	@Test
@@ -21,6 +21,7 @@ import javax.ws.rs.client.ClientBuilder;
 import javax.ws.rs.client.Entity;
 import javax.ws.rs.client.WebTarget;
 import javax.ws.rs.client.Invocation.Builder;
+import javax.ws.rs.core.EntityTag;
 import javax.ws.rs.core.MediaType;
 import javax.ws.rs.core.Response;
 import javax.ws.rs.core.UriBuilder;
@@ -42,6 +43,7 @@ import us.kbase.auth2.lib.PasswordHashAndSalt;
 import us.kbase.auth2.lib.PolicyID;
 import us.kbase.auth2.lib.Role;
 import us.kbase.auth2.lib.UserName;
+import us.kbase.auth2.lib.UserUpdate;
 import us.kbase.auth2.lib.exceptions.AuthException;
 import us.kbase.auth2.lib.exceptions.ErrorType;
 import us.kbase.auth2.lib.exceptions.IllegalParameterException;
@@ -255,6 +257,126 @@ public class UserEndpointTest {
 		assertThat("incorrect user structure", response, is(expected));
 	}
 	
+	@Test
+	public void getMeNotModified() throws Exception {
+		manager.storage.createLocalUser(LocalUser.getLocalUserBuilder(new UserName("foobar"),
+				new DisplayName("bleah"), Instant.ofEpochMilli(20000)).build(),
+				new PasswordHashAndSalt("foobarbazbing".getBytes(), "aa".getBytes()));
+		final IncomingToken token = new IncomingToken("whee");
+		manager.storage.storeToken(StoredToken.getBuilder(TokenType.LOGIN, UUID.randomUUID(),
+				new UserName("foobar")).withLifeTime(Instant.ofEpochMilli(10000),
+						Instant.ofEpochMilli(1000000000000000L)).build(),
+				token.getHashedToken().getTokenHash());
+		
+		final URI target = UriBuilder.fromUri(host).path("/api/V2/me").build();
+		
+		final Response res = CLI.target(target).request()
+				.header("authorization", token.getToken()).get();
+		
+		assertThat("incorrect response code", res.getStatus(), is(200));
+		assertThat("incorrect cache control", res.getHeaderString("cache-control"),
+				is("private, max-age=300"));
+		assertThat("incorrect vary", res.getHeaderString("vary"), is("Authorization"));
+		final EntityTag etag = res.getEntityTag();
+		res.close();
+		
+		final Response res2 = CLI.target(target).request()
+				.header("authorization", token.getToken())
+				.header("if-none-match", etag.toString())
+				.get();
+		
+		assertThat("incorrect response code", res2.getStatus(), is(304));
+		assertThat("incorrect etag", res2.getEntityTag(), is(etag));
+		
+		// the user changed, so the etag no longer matches
+		manager.storage.updateUser(new UserName("foobar"), UserUpdate.getBuilder()
+				.withDisplayName(new DisplayName("whoo")).build());
+		
+		final Response res3 = CLI.target(target).request()
+				.header("authorization", token.getToken())
+				.header("if-none-match", etag.toString())
+				.get();
+		
+		assertThat("incorrect response code", res3.getStatus(), is(200));
+		assertThat("etag unchanged", res3.getEntityTag().equals(etag), is(false));
+		@SuppressWarnings("unchecked")
+		final Map<String, Object> response = res3.readEntity(Map.class);
+		assertThat("incorrect display name", response.get("display"), is("whoo"));
+	}
+	
+	@Test
+	public void getMeCacheTimeBoundedByTokenExpiry() throws Exception {
+		manager.storage.createLocalUser(LocalUser.getLocalUserBuilder(new UserName("foobar"),
+				new DisplayName("bleah"), Instant.ofEpochMilli(20000)).build(),
+				new PasswordHashAndSalt("foobarbazbing".getBytes(), "aa".getBytes()));
+		final IncomingToken token = new IncomingToken("whee");
+		// expires in ~2 minutes, so the cache time is bounded by the expiry time
+		manager.storage.storeToken(StoredToken.getBuilder(TokenType.LOGIN, UUID.randomUUID(),
+				new UserName("foobar")).withLifeTime(Instant.ofEpochMilli(10000),
+						Instant.now().plusSeconds(121)).build(),
+				token.getHashedToken().getTokenHash());
+		
+		final URI target = UriBuilder.fromUri(host).path("/api/V2/me").build();
+		
+		final Response res = CLI.target(target).request()
+				.header("authorization", token.getToken()).get();
+		
+		assertThat("incorrect response code", res.getStatus(), is(200));
+		final String cc = res.getHeaderString("cache-control");
+		assertThat("incorrect cache control " + cc,
+				cc.equals("private, max-age=120") || cc.equals("private, max-age=119"), is(true));
+		res.close();
+	}
+	
+	@Test
+	public void getUserListCacheTimeBoundedByTokenExpiry() throws Exception {
+		final IncomingToken token = new IncomingToken("whee");
+		// expires in ~2 minutes, so the cache time is bounded by the expiry time
+		manager.storage.storeToken(StoredToken.getBuilder(TokenType.LOGIN, UUID.randomUUID(),
+				new UserName("foobar")).withLifeTime(Instant.ofEpochMilli(10000),
+						Instant.now().plusSeconds(121)).build(),
+				token.getHashedToken().getTokenHash());
+		
+		final URI target = UriBuilder.fromUri(host).path("/api/V2/users")
+				.queryParam("list", "baz")
+				.build();
+		
+		final Response res = CLI.target(target).request()
+				.header("authorization", token.getToken()).get();
+		
+		assertThat("incorrect response code", res.getStatus(), is(200));
+		final String cc = res.getHeaderString("cache-control");
+		assertThat("incorrect cache control " + cc,
+				cc.equals("private, max-age=120") || cc.equals("private, max-age=119"), is(true));
+		res.close();
+	}
+	
+	@Test
+	public void getUserListNotModified() throws Exception {
+		final IncomingToken token = setUpUsersForTesting();
+
+		final URI target = UriBuilder.fromUri(host).path("/api/V2/users")
+				.queryParam("list", "baz, mua")
+				.build();
+		
+		final Response res = CLI.target(target).request()
+				.header("authorization", token.getToken()).get();
+		
+		assertThat("incorrect response code", res.getStatus(), is(200));
+		assertThat("incorrect cache control", res.getHeaderString("cache-control"),
+				is("private, max-age=300"));
+		final EntityTag etag = res.getEntityTag();
+		res.close();
+		
+		final Response res2 = CLI.target(target).request()
+				.header("authorization", token.getToken())
+				.header("if-none-match", etag.toString())
+				.get();
+		
+		assertThat("incorrect response code", res2.getStatus(), is(304));
+		assertThat("incorrect etag", res2.getEntityTag(), is(etag));
+	}
+	
 	@Test
 	public void getMeFailNoToken() throws Exception {
 		final URI target = UriBuilder.fromUri(host).path("/api/V2/me").build();
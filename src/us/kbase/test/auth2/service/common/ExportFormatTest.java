@@ -0,0 +1,158 @@
+package us.kbase.test.auth2.service.common;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+
+import java.net.InetAddress;
+import java.time.Instant;
+import java.util.UUID;
+
+import org.junit.Test;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import us.kbase.auth2.lib.DisplayName;
+import us.kbase.auth2.lib.EmailAddress;
+import us.kbase.auth2.lib.PolicyID;
+import us.kbase.auth2.lib.Role;
+import us.kbase.auth2.lib.TokenCreationContext;
+import us.kbase.auth2.lib.UserDisabledState;
+import us.kbase.auth2.lib.UserName;
+import us.kbase.auth2.lib.identity.RemoteIdentity;
+import us.kbase.auth2.lib.identity.RemoteIdentityDetails;
+import us.kbase.auth2.lib.identity.RemoteIdentityID;
+import us.kbase.auth2.lib.token.StoredToken;
+import us.kbase.auth2.lib.token.TokenName;
+import us.kbase.auth2.lib.token.TokenType;
+import us.kbase.auth2.lib.user.AuthUser;
+import us.kbase.auth2.lib.user.LocalUser;
+import us.kbase.auth2.service.common.ExportFormat;
+import us.kbase.test.auth2.TestCommon;
+
+public class ExportFormatTest {
+	
+	private static final ObjectMapper MAPPER = new ObjectMapper();
+	
+	private static final RemoteIdentity REMOTE1 = new RemoteIdentity(
+			new RemoteIdentityID("prov2", "a"),
+			new RemoteIdentityDetails("user1", "full1", "email1"));
+	
+	private static final RemoteIdentity REMOTE2 = new RemoteIdentity(
+			new RemoteIdentityID("prov1", "b"),
+			new RemoteIdentityDetails("user2", null, null));
+	
+	private static final RemoteIdentity REMOTE3 = new RemoteIdentity(
+			new RemoteIdentityID("prov1", "a"),
+			new RemoteIdentityDetails("user3", "full3", "email3"));
+	
+	@Test
+	public void userMinimal() throws Exception {
+		final LocalUser u = LocalUser.getLocalUserBuilder(
+				new UserName("foo"), new DisplayName("bar"), Instant.ofEpochMilli(10000))
+				.build();
+		
+		assertThat("incorrect user", MAPPER.writeValueAsString(ExportFormat.toMap(u)), is(
+				"{\"user\":\"foo\",\"display\":\"bar\",\"email\":null,\"local\":true," +
+				"\"created\":10000,\"lastlogin\":null,\"disabled\":false," +
+				"\"disabledreason\":null,\"enabletoggledby\":null,\"enabletoggledate\":null," +
+				"\"roles\":[],\"customroles\":[],\"policyids\":[],\"idents\":[]}"));
+	}
+	
+	@Test
+	public void userMaximal() throws Exception {
+		final AuthUser u = AuthUser.getBuilder(
+				new UserName("foo"), new DisplayName("bar"), Instant.ofEpochMilli(10000))
+				.withIdentity(REMOTE1)
+				.withIdentity(REMOTE2)
+				.withIdentity(REMOTE3)
+				.withEmailAddress(new EmailAddress("f@g.com"))
+				.withRole(Role.SERV_TOKEN)
+				.withRole(Role.ADMIN)
+				.withCustomRole("whee")
+				.withCustomRole("baz")
+				.withPolicyID(new PolicyID("pid2"), Instant.ofEpochMilli(20000))
+				.withPolicyID(new PolicyID("pid1"), Instant.ofEpochMilli(30000))
+				.withLastLogin(Instant.ofEpochMilli(40000))
+				.withUserDisabledState(new UserDisabledState(
+						"naughty", new UserName("admin"), Instant.ofEpochMilli(50000)))
+				.build();
+		
+		assertThat("incorrect user", MAPPER.writeValueAsString(ExportFormat.toMap(u)), is(
+				"{\"user\":\"foo\",\"display\":\"bar\",\"email\":\"f@g.com\"," +
+				"\"local\":false,\"created\":10000,\"lastlogin\":40000,\"disabled\":true," +
+				"\"disabledreason\":\"naughty\",\"enabletoggledby\":\"admin\"," +
+				"\"enabletoggledate\":50000,\"roles\":[\"Admin\",\"ServToken\"]," +
+				"\"customroles\":[\"baz\",\"whee\"]," +
+				"\"policyids\":[{\"id\":\"pid1\",\"agreedon\":30000}," +
+				"{\"id\":\"pid2\",\"agreedon\":20000}]," +
+				"\"idents\":[" + ident(REMOTE3) + "," + ident(REMOTE2) + "," + ident(REMOTE1) +
+				"]}"));
+	}
+	
+	private String ident(final RemoteIdentity ri) {
+		final RemoteIdentityDetails d = ri.getDetails();
+		return String.format("{\"id\":\"%s\",\"provider\":\"%s\",\"provid\":\"%s\"," +
+				"\"provusername\":\"%s\",\"provfullname\":%s,\"provemail\":%s}",
+				ri.getRemoteID().getID(), ri.getRemoteID().getProviderName(),
+				ri.getRemoteID().getProviderIdentityId(), d.getUsername(),
+				quote(d.getFullname()), quote(d.getEmail()));
+	}
+	
+	private String quote(final String s) {
+		return s == null ? "null" : "\"" + s + "\"";
+	}
+	
+	@Test
+	public void tokenMinimal() throws Exception {
+		final UUID id = UUID.randomUUID();
+		final StoredToken t = StoredToken.getBuilder(TokenType.LOGIN, id, new UserName("foo"))
+				.withLifeTime(Instant.ofEpochMilli(10000), Instant.ofEpochMilli(20000))
+				.build();
+		
+		assertThat("incorrect token", MAPPER.writeValueAsString(ExportFormat.toMap(t)), is(
+				"{\"id\":\"" + id + "\",\"type\":\"Login\",\"user\":\"foo\",\"name\":null," +
+				"\"created\":10000,\"expires\":20000,\"ip\":null,\"agent\":null," +
+				"\"agentver\":null,\"os\":null,\"osver\":null,\"device\":null," +
+				"\"customcontext\":{}}"));
+	}
+	
+	@Test
+	public void tokenMaximal() throws Exception {
+		final UUID id = UUID.randomUUID();
+		final StoredToken t = StoredToken.getBuilder(TokenType.DEV, id, new UserName("foo"))
+				.withLifeTime(Instant.ofEpochMilli(10000), Instant.ofEpochMilli(20000))
+				.withTokenName(new TokenName("tok"))
+				.withContext(TokenCreationContext.getBuilder()
+						.withIpAddress(InetAddress.getByName("1.2.3.4"))
+						.withNullableAgent("ag", "1.0")
+						.withNullableOS("os", "2.0")
+						.withNullableDevice("dev")
+						.withCustomContext("z", "y")
+						.withCustomContext("a", "b")
+						.build())
+				.build();
+		
+		assertThat("incorrect token", MAPPER.writeValueAsString(ExportFormat.toMap(t)), is(
+				"{\"id\":\"" + id + "\",\"type\":\"Dev\",\"user\":\"foo\"," +
+				"\"name\":\"tok\",\"created\":10000,\"expires\":20000,\"ip\":\"1.2.3.4\"," +
+				"\"agent\":\"ag\",\"agentver\":\"1.0\",\"os\":\"os\",\"osver\":\"2.0\"," +
+				"\"device\":\"dev\",\"customcontext\":{\"a\":\"b\",\"z\":\"y\"}}"));
+	}
+	
+	@Test
+	public void failNull() throws Exception {
+		try {
+			ExportFormat.toMap((AuthUser) null);
+			fail("expected exception");
+		} catch (Exception got) {
+			TestCommon.assertExceptionCorrect(got, new NullPointerException("user"));
+		}
+		try {
+			ExportFormat.toMap((StoredToken) null);
+			fail("expected exception");
+		} catch (Exception got) {
+			TestCommon.assertExceptionCorrect(got, new NullPointerException("token"));
+		}
+	}
+}
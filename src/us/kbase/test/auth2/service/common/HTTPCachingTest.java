@@ -0,0 +1,180 @@
+package us.kbase.test.auth2.service.common;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.not;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+
+import javax.ws.rs.core.EntityTag;
+import javax.ws.rs.core.Response;
+
+import org.junit.Test;
+
+import com.google.common.collect.ImmutableMap;
+
+import us.kbase.auth2.service.common.HTTPCaching;
+import us.kbase.test.auth2.TestCommon;
+
+public class HTTPCachingTest {
+
+	@Test
+	public void entityTagStable() throws Exception {
+		final Map<String, Object> m1 = new LinkedHashMap<>();
+		m1.put("a", 1);
+		m1.put("b", Arrays.asList("x", "y"));
+		m1.put("c", new LinkedHashSet<>(Arrays.asList("p", "q")));
+		final Map<String, Object> m2 = new LinkedHashMap<>();
+		m2.put("c", new LinkedHashSet<>(Arrays.asList("q", "p")));
+		m2.put("b", Arrays.asList("x", "y"));
+		m2.put("a", 1);
+
+		final EntityTag t = HTTPCaching.getEntityTag(m1);
+		assertThat("incorrect weak", t.isWeak(), is(true));
+		assertThat("incorrect length", t.getValue().length(), is(32));
+		assertThat("tags differ", HTTPCaching.getEntityTag(m2), is(t));
+	}
+
+	@Test
+	public void entityTagDiffers() throws Exception {
+		final EntityTag t = HTTPCaching.getEntityTag("ab", "c");
+		assertThat("tags match", HTTPCaching.getEntityTag("a", "bc"), is(not(t)));
+		assertThat("tags match", HTTPCaching.getEntityTag("abc"), is(not(t)));
+
+		final EntityTag l = HTTPCaching.getEntityTag(Arrays.asList("x", "y"));
+		assertThat("tags match", HTTPCaching.getEntityTag(Arrays.asList("y", "x")), is(not(l)));
+		assertThat("tags match", HTTPCaching.getEntityTag(ImmutableMap.of("a", "b")),
+				is(not(HTTPCaching.getEntityTag(ImmutableMap.of("a", "c")))));
+		assertThat("tags match", HTTPCaching.getEntityTag((Object) null),
+				is(not(HTTPCaching.getEntityTag("null"))));
+	}
+
+	@Test
+	public void entityTagFail() throws Exception {
+		try {
+			HTTPCaching.getEntityTag((Object[]) null);
+			fail("expected exception");
+		} catch (Exception got) {
+			TestCommon.assertExceptionCorrect(got, new NullPointerException("values"));
+		}
+	}
+
+	@Test
+	public void matches() throws Exception {
+		final EntityTag t = new EntityTag("abc", true);
+		assertThat("incorrect match", HTTPCaching.matches(null, t), is(false));
+		assertThat("incorrect match", HTTPCaching.matches("", t), is(false));
+		assertThat("incorrect match", HTTPCaching.matches("abc", t), is(false));
+		assertThat("incorrect match", HTTPCaching.matches("\"abd\"", t), is(false));
+		assertThat("incorrect match", HTTPCaching.matches("\"abc\"", t), is(true));
+		assertThat("incorrect match", HTTPCaching.matches("W/\"abc\"", t), is(true));
+		assertThat("incorrect match", HTTPCaching.matches(" * ", t), is(true));
+		assertThat("incorrect match", HTTPCaching.matches("\"x\", W/\"abc\" ,\"y\"", t),
+				is(true));
+		assertThat("incorrect match", HTTPCaching.matches("\"x\", W/\"y\"", t), is(false));
+	}
+
+	@Test
+	public void matchesFail() throws Exception {
+		try {
+			HTTPCaching.matches("\"abc\"", null);
+			fail("expected exception");
+		} catch (Exception got) {
+			TestCommon.assertExceptionCorrect(got, new NullPointerException("etag"));
+		}
+	}
+
+	@Test
+	public void response() throws Exception {
+		final EntityTag t = new EntityTag("abc", true);
+		final Map<String, String> body = ImmutableMap.of("foo", "bar");
+		final Response r = HTTPCaching.getResponse("W/\"xyz\"", t, 300999, body);
+
+		assertThat("incorrect status", r.getStatus(), is(200));
+		assertThat("incorrect entity", r.getEntity(), is(body));
+		assertThat("incorrect etag", r.getEntityTag(), is(t));
+		assertThat("incorrect cache control", r.getHeaderString("Cache-Control"),
+				is("private, max-age=300"));
+		assertThat("incorrect vary", r.getHeaderString("Vary"), is("Authorization"));
+	}
+
+	@Test
+	public void responseNotModified() throws Exception {
+		final EntityTag t = new EntityTag("abc", true);
+		final Response r = HTTPCaching.getResponse("W/\"abc\"", t, 300999,
+				Collections.emptyMap());
+
+		assertThat("incorrect status", r.getStatus(), is(304));
+		assertThat("incorrect entity", r.getEntity(), is(nullValue()));
+		assertThat("incorrect etag", r.getEntityTag(), is(t));
+		assertThat("incorrect cache control", r.getHeaderString("Cache-Control"),
+				is("private, max-age=300"));
+		assertThat("incorrect vary", r.getHeaderString("Vary"), is("Authorization"));
+	}
+
+	@Test
+	public void responseNegativeMaxAge() throws Exception {
+		final Set<String> body = Collections.emptySet();
+		final Response r = HTTPCaching.getResponse(null, new EntityTag("abc", true), -1, body);
+
+		assertThat("incorrect status", r.getStatus(), is(200));
+		assertThat("incorrect cache control", r.getHeaderString("Cache-Control"),
+				is("private, max-age=0"));
+	}
+
+	@Test
+	public void responseFail() throws Exception {
+		try {
+			HTTPCaching.getResponse(null, new EntityTag("abc", true), 1, null);
+			fail("expected exception");
+		} catch (Exception got) {
+			TestCommon.assertExceptionCorrect(got, new NullPointerException("entity"));
+		}
+		try {
+			HTTPCaching.getResponse(null, null, 1, "foo");
+			fail("expected exception");
+		} catch (Exception got) {
+			TestCommon.assertExceptionCorrect(got, new NullPointerException("etag"));
+		}
+	}
+
+	@Test
+	public void maxAgeCacheTime() throws Exception {
+		final long maxAge = HTTPCaching.getMaxAge(300000, Instant.now().plusSeconds(3600));
+
+		assertThat("incorrect max age", maxAge, is(300000L));
+	}
+
+	@Test
+	public void maxAgeTokenExpiry() throws Exception {
+		final long maxAge = HTTPCaching.getMaxAge(300000, Instant.now().plusSeconds(120));
+
+		assertThat("incorrect max age " + maxAge, maxAge > 119000 && maxAge <= 120000, is(true));
+	}
+
+	@Test
+	public void maxAgeTokenExpired() throws Exception {
+		final long maxAge = HTTPCaching.getMaxAge(300000, Instant.now().minusSeconds(10));
+
+		assertThat("incorrect max age " + maxAge, maxAge < 0, is(true));
+	}
+
+	@Test
+	public void maxAgeFail() throws Exception {
+		try {
+			HTTPCaching.getMaxAge(300000, null);
+			fail("expected exception");
+		} catch (Exception got) {
+			TestCommon.assertExceptionCorrect(got,
+					new NullPointerException("tokenExpirationDate"));
+		}
+	}
+}
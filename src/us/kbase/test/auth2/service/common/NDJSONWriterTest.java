@@ -0,0 +1,186 @@
+package us.kbase.test.auth2.service.common;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.zip.GZIPInputStream;
+
+import org.apache.commons.io.IOUtils;
+import org.junit.Test;
+
+import com.google.common.collect.ImmutableMap;
+
+import us.kbase.auth2.service.common.NDJSONWriter;
+import us.kbase.test.auth2.TestCommon;
+
+public class NDJSONWriterTest {
+	
+	private static final Function<String, Map<String, Object>> CONVERTER =
+			s -> ImmutableMap.of("val", s, "len", s.length());
+	
+	@Test
+	public void writeEmpty() throws Exception {
+		final ByteArrayOutputStream out = new ByteArrayOutputStream();
+		final NDJSONWriter<String> w = new NDJSONWriter<>(out, false, CONVERTER);
+		w.close();
+		
+		assertThat("incorrect count", w.getCount(), is(0L));
+		assertThat("incorrect output", out.toByteArray().length, is(0));
+	}
+	
+	@Test
+	public void write() throws Exception {
+		final ByteArrayOutputStream out = new ByteArrayOutputStream();
+		try (final NDJSONWriter<String> w = new NDJSONWriter<>(out, false, CONVERTER)) {
+			w.export("foo");
+			w.export("ba\nr");
+			assertThat("incorrect count", w.getCount(), is(2L));
+			w.finish();
+		}
+		
+		assertThat("incorrect output", new String(out.toByteArray(), StandardCharsets.UTF_8),
+				is("{\"val\":\"foo\",\"len\":3}\n{\"val\":\"ba\\nr\",\"len\":4}\n" +
+						"{\"exportstatus\":\"complete\",\"exportcount\":2}\n"));
+	}
+	
+	@Test
+	public void writeFail() throws Exception {
+		final ByteArrayOutputStream out = new ByteArrayOutputStream();
+		try (final NDJSONWriter<String> w = new NDJSONWriter<>(out, false, CONVERTER)) {
+			w.export("foo");
+			w.fail("cursor died");
+		}
+		
+		assertThat("incorrect output", new String(out.toByteArray(), StandardCharsets.UTF_8),
+				is("{\"val\":\"foo\",\"len\":3}\n" +
+						"{\"exportstatus\":\"failed\",\"exportcount\":1," +
+						"\"exporterror\":\"cursor died\"}\n"));
+	}
+	
+	@Test
+	public void writeFailNullError() throws Exception {
+		final ByteArrayOutputStream out = new ByteArrayOutputStream();
+		try (final NDJSONWriter<String> w = new NDJSONWriter<>(out, false, CONVERTER)) {
+			w.fail(null);
+		}
+		
+		assertThat("incorrect output", new String(out.toByteArray(), StandardCharsets.UTF_8),
+				is("{\"exportstatus\":\"failed\",\"exportcount\":0," +
+						"\"exporterror\":\"Unknown error\"}\n"));
+	}
+	
+	@Test
+	public void writeTruncated() throws Exception {
+		// no status record is written if the export is neither finished nor failed
+		final ByteArrayOutputStream out = new ByteArrayOutputStream();
+		try (final NDJSONWriter<String> w = new NDJSONWriter<>(out, false, CONVERTER)) {
+			w.export("foo");
+		}
+		
+		assertThat("incorrect output", new String(out.toByteArray(), StandardCharsets.UTF_8),
+				is("{\"val\":\"foo\",\"len\":3}\n"));
+	}
+	
+	@Test
+	public void writeGzip() throws Exception {
+		final ByteArrayOutputStream out = new ByteArrayOutputStream();
+		try (final NDJSONWriter<String> w = new NDJSONWriter<>(out, true, CONVERTER)) {
+			w.export("foo");
+			w.export("whee");
+			assertThat("incorrect count", w.getCount(), is(2L));
+			w.finish();
+		}
+		
+		final String got = IOUtils.toString(new GZIPInputStream(
+				new ByteArrayInputStream(out.toByteArray())), StandardCharsets.UTF_8);
+		assertThat("incorrect output", got,
+				is("{\"val\":\"foo\",\"len\":3}\n{\"val\":\"whee\",\"len\":4}\n" +
+						"{\"exportstatus\":\"complete\",\"exportcount\":2}\n"));
+	}
+	
+	@Test
+	public void closeClosesStream() throws Exception {
+		final boolean[] closed = {false};
+		final OutputStream out = new ByteArrayOutputStream() {
+			@Override
+			public void close() throws IOException {
+				closed[0] = true;
+			}
+		};
+		new NDJSONWriter<>(out, false, CONVERTER).close();
+		
+		assertThat("stream not closed", closed[0], is(true));
+	}
+	
+	@Test
+	public void constructFail() throws Exception {
+		failConstruct(null, CONVERTER, new NullPointerException("out"));
+		failConstruct(new ByteArrayOutputStream(), null, new NullPointerException("converter"));
+	}
+	
+	private void failConstruct(
+			final OutputStream out,
+			final Function<String, Map<String, Object>> converter,
+			final Exception expected) {
+		try {
+			new NDJSONWriter<>(out, false, converter);
+			fail("expected exception");
+		} catch (Exception got) {
+			TestCommon.assertExceptionCorrect(got, expected);
+		}
+	}
+	
+	@Test
+	public void exportFailNull() throws Exception {
+		final ByteArrayOutputStream out = new ByteArrayOutputStream();
+		try (final NDJSONWriter<String> w = new NDJSONWriter<>(out, false, CONVERTER)) {
+			try {
+				w.export(null);
+				fail("expected exception");
+			} catch (Exception got) {
+				TestCommon.assertExceptionCorrect(got, new NullPointerException("record"));
+			}
+			assertThat("incorrect count", w.getCount(), is(0L));
+		}
+	}
+	
+	@Test
+	public void writeFailFinished() throws Exception {
+		final ByteArrayOutputStream out = new ByteArrayOutputStream();
+		try (final NDJSONWriter<String> w = new NDJSONWriter<>(out, false, CONVERTER)) {
+			w.finish();
+			failWrite(() -> w.export("foo"));
+			failWrite(() -> w.finish());
+			failWrite(() -> w.fail("foo"));
+			assertThat("incorrect count", w.getCount(), is(0L));
+		}
+		try (final NDJSONWriter<String> w = new NDJSONWriter<>(out, false, CONVERTER)) {
+			w.fail("foo");
+			failWrite(() -> w.export("foo"));
+			failWrite(() -> w.finish());
+			failWrite(() -> w.fail("foo"));
+		}
+	}
+	
+	private interface Write {
+		void write() throws Exception;
+	}
+	
+	private void failWrite(final Write write) {
+		try {
+			write.write();
+			fail("expected exception");
+		} catch (Exception got) {
+			TestCommon.assertExceptionCorrect(got,
+					new IllegalStateException("The export is finished"));
+		}
+	}
+}
@@ -293,6 +293,37 @@ public class ServiceCommonTest {
 		getTokenContextTestIPHeaders(false, "127.0.0.7", null, "  \t   ", "127.0.0.7");
 	}
 	
+	@Test
+	public void getIpAddress() throws Exception {
+		getIpAddress(false, "127.0.0.2, 127.0.0.3", "127.0.0.4", "127.0.0.2");
+		getIpAddress(false, "  \t   ", "127.0.0.4", "127.0.0.4");
+		getIpAddress(false, null, "  \t   ", "127.0.0.7");
+		getIpAddress(true, "127.0.0.2", "127.0.0.4", "127.0.0.7");
+	}
+	
+	private void getIpAddress(
+			final boolean ignoreIpHeaders,
+			final String xff,
+			final String xrealip,
+			final String expected) {
+		final HttpServletRequest req = mock(HttpServletRequest.class);
+		when(req.getRemoteAddr()).thenReturn("127.0.0.7");
+		when(req.getHeader("X-Forwarded-For")).thenReturn(xff);
+		when(req.getHeader("X-Real-IP")).thenReturn(xrealip);
+		assertThat("incorrect ip", ServiceCommon.getIpAddress(req, ignoreIpHeaders),
+				is(expected));
+	}
+	
+	@Test
+	public void getIpAddressFail() throws Exception {
+		try {
+			ServiceCommon.getIpAddress(null, false);
+			fail("expected exception");
+		} catch (Exception got) {
+			TestCommon.assertExceptionCorrect(got, new NullPointerException("request"));
+		}
+	}
+	
 	private void getTokenContextTestIPHeaders(
 			final boolean ignoreIpHeaders,
 			final String ip,
@@ -353,7 +384,7 @@ public class ServiceCommonTest {
 		when(auth.getExternalConfig(isA(AuthExternalConfig.AuthExternalConfigMapper.class)))
 				.thenReturn(new AuthExternalConfig<>(ConfigItem.emptyState(),
 						ConfigItem.emptyState(), ConfigItem.emptyState(), ConfigItem.emptyState(),
-						ConfigItem.state(false), ConfigItem.state(false)));
+						ConfigItem.state(false), ConfigItem.state(false), ConfigItem.emptyState()));
 		assertThat("incorrect ignore IPs setting", ServiceCommon.isIgnoreIPsInHeaders(auth),
 				is(false));
 	}
@@ -0,0 +1,197 @@
+package us.kbase.test.auth2.service.logging;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+import us.kbase.auth2.service.logging.AsyncLogWriter;
+import us.kbase.auth2.service.logging.AsyncLogWriter.BatchWriter;
+import us.kbase.auth2.service.logging.AsyncLogWriter.OverflowPolicy;
+import us.kbase.test.auth2.TestCommon;
+
+public class AsyncLogWriterTest {
+
+	@Test
+	public void writeInOrderAndClose() throws Exception {
+		final List<Integer> got = Collections.synchronizedList(new ArrayList<>());
+		final AsyncLogWriter<Integer> w = new AsyncLogWriter<>(
+				16, 4, OverflowPolicy.BLOCK, events -> got.addAll(events), "testwriter");
+		final List<Integer> expected = new ArrayList<>();
+		for (int i = 0; i < 1000; i++) {
+			w.log(i);
+			expected.add(i);
+		}
+		w.close();
+		assertThat("incorrect events", got, is(expected));
+		assertThat("incorrect written", w.getWrittenCount(), is(1000L));
+		assertThat("incorrect dropped", w.getDroppedCount(), is(0L));
+
+		w.log(1000);
+		assertThat("incorrect dropped", w.getDroppedCount(), is(1L));
+	}
+
+	@Test
+	public void dropOnOverflow() throws Exception {
+		final CountDownLatch inWriter = new CountDownLatch(1);
+		final CountDownLatch release = new CountDownLatch(1);
+		final List<Integer> got = Collections.synchronizedList(new ArrayList<>());
+		final AsyncLogWriter<Integer> w = new AsyncLogWriter<>(
+				4, 1, OverflowPolicy.DROP,
+				events -> {
+					inWriter.countDown();
+					try {
+						release.await();
+					} catch (InterruptedException e) {
+						throw new RuntimeException(e);
+					}
+					got.addAll(events);
+				},
+				"testwriter");
+		w.log(0);
+		assertThat("writer not called", inWriter.await(10, TimeUnit.SECONDS), is(true));
+		// writer thread is stuck holding event 0, so the buffer fills after 4 more events
+		for (int i = 1; i < 8; i++) {
+			w.log(i);
+		}
+		assertThat("incorrect dropped", w.getDroppedCount(), is(3L));
+		release.countDown();
+		w.close();
+		assertThat("incorrect events", got, is(Arrays.asList(0, 1, 2, 3, 4)));
+		assertThat("incorrect written", w.getWrittenCount(), is(5L));
+	}
+
+	@Test
+	public void blockOverridesDropPolicy() throws Exception {
+		final CountDownLatch inWriter = new CountDownLatch(1);
+		final CountDownLatch release = new CountDownLatch(1);
+		final List<Integer> got = Collections.synchronizedList(new ArrayList<>());
+		final AsyncLogWriter<Integer> w = new AsyncLogWriter<>(
+				4, 1, OverflowPolicy.DROP,
+				events -> {
+					inWriter.countDown();
+					try {
+						release.await();
+					} catch (InterruptedException e) {
+						throw new RuntimeException(e);
+					}
+					got.addAll(events);
+				},
+				"testwriter");
+		w.log(0);
+		assertThat("writer not called", inWriter.await(10, TimeUnit.SECONDS), is(true));
+		for (int i = 1; i < 5; i++) {
+			assertThat("incorrect logged", w.log(i, OverflowPolicy.DROP), is(true));
+		}
+		assertThat("incorrect logged", w.log(5, OverflowPolicy.DROP), is(false));
+		assertThat("incorrect dropped", w.getDroppedCount(), is(1L));
+		
+		final List<Boolean> logged = Collections.synchronizedList(new ArrayList<>());
+		final Thread blocked = new Thread(() -> {
+			for (int i = 6; i < 10; i++) {
+				logged.add(w.log(i, OverflowPolicy.BLOCK));
+			}
+		});
+		blocked.start();
+		blocked.join(200);
+		assertThat("thread should be waiting on the full buffer", blocked.isAlive(), is(true));
+		release.countDown();
+		blocked.join(10000);
+		w.close();
+		assertThat("incorrect logged", logged, is(Arrays.asList(true, true, true, true)));
+		assertThat("incorrect events", got, is(Arrays.asList(0, 1, 2, 3, 4, 6, 7, 8, 9)));
+		assertThat("incorrect dropped", w.getDroppedCount(), is(1L));
+	}
+	
+	@Test
+	public void logWithPolicyAfterClose() throws Exception {
+		final AsyncLogWriter<Integer> w = new AsyncLogWriter<>(
+				4, 1, OverflowPolicy.DROP, events -> {}, "testwriter");
+		w.close();
+		assertThat("incorrect logged", w.log(1, OverflowPolicy.BLOCK), is(false));
+		assertThat("incorrect dropped", w.getDroppedCount(), is(1L));
+	}
+
+	@Test
+	public void writerException() throws Exception {
+		final List<Integer> got = Collections.synchronizedList(new ArrayList<>());
+		final AsyncLogWriter<Integer> w = new AsyncLogWriter<>(
+				4, 1, OverflowPolicy.BLOCK,
+				events -> {
+					if (events.get(0) == 1) {
+						throw new IllegalStateException("whoops");
+					}
+					got.addAll(events);
+				},
+				"testwriter");
+		for (int i = 0; i < 3; i++) {
+			w.log(i);
+		}
+		w.close();
+		assertThat("incorrect events", got, is(Arrays.asList(0, 2)));
+	}
+
+	@Test
+	public void logFail() throws Exception {
+		final AsyncLogWriter<Integer> w = new AsyncLogWriter<>(
+				4, 1, OverflowPolicy.BLOCK, events -> {}, "testwriter");
+		try {
+			w.log(null);
+			fail("expected exception");
+		} catch (Exception got) {
+			TestCommon.assertExceptionCorrect(got, new NullPointerException("event"));
+		}
+		try {
+			w.log(null, OverflowPolicy.BLOCK);
+			fail("expected exception");
+		} catch (Exception got) {
+			TestCommon.assertExceptionCorrect(got, new NullPointerException("event"));
+		}
+		try {
+			w.log(1, null);
+			fail("expected exception");
+		} catch (Exception got) {
+			TestCommon.assertExceptionCorrect(got, new NullPointerException("overflowPolicy"));
+		} finally {
+			w.close();
+		}
+	}
+
+	@Test
+	public void constructFail() throws Exception {
+		final BatchWriter<Integer> bw = events -> {};
+		failConstruct(3, 1, OverflowPolicy.DROP, bw, "n",
+				new IllegalArgumentException("capacity must be a power of 2 and at least 2"));
+		failConstruct(4, 0, OverflowPolicy.DROP, bw, "n",
+				new IllegalArgumentException("batchSize must be at least 1"));
+		failConstruct(4, 1, null, bw, "n", new NullPointerException("overflowPolicy"));
+		failConstruct(4, 1, OverflowPolicy.DROP, null, "n", new NullPointerException("writer"));
+		failConstruct(4, 1, OverflowPolicy.DROP, bw, null,
+				new IllegalArgumentException("Missing argument: threadName"));
+		failConstruct(4, 1, OverflowPolicy.DROP, bw, "   ",
+				new IllegalArgumentException("Missing argument: threadName"));
+	}
+
+	private void failConstruct(
+			final int capacity,
+			final int batchSize,
+			final OverflowPolicy policy,
+			final BatchWriter<Integer> writer,
+			final String threadName,
+			final Exception expected) {
+		try {
+			new AsyncLogWriter<>(capacity, batchSize, policy, writer, threadName);
+			fail("expected exception");
+		} catch (Exception got) {
+			TestCommon.assertExceptionCorrect(got, expected);
+		}
+	}
+}
@@ -0,0 +1,49 @@
+package us.kbase.test.auth2.service.logging;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+
+import org.junit.Test;
+
+import us.kbase.auth2.service.logging.CallIDGenerator;
+import us.kbase.test.auth2.TestCommon;
+
+public class CallIDGeneratorTest {
+
+	@Test
+	public void sequence() throws Exception {
+		final CallIDGenerator g = new CallIDGenerator(42);
+		assertThat("incorrect id", g.next(), is("0000000000000042"));
+		assertThat("incorrect id", g.next(), is("0000000000000043"));
+	}
+
+	@Test
+	public void wrap() throws Exception {
+		final CallIDGenerator g = new CallIDGenerator(9999999999999999L);
+		assertThat("incorrect id", g.next(), is("9999999999999999"));
+		assertThat("incorrect id", g.next(), is("0000000000000000"));
+	}
+
+	@Test
+	public void random() throws Exception {
+		final String id = new CallIDGenerator().next();
+		assertThat("incorrect id " + id, id.matches("^\\d{16}$"), is(true));
+	}
+
+	@Test
+	public void constructFail() throws Exception {
+		failConstruct(-1);
+		failConstruct(10000000000000000L);
+	}
+
+	private void failConstruct(final long start) {
+		try {
+			new CallIDGenerator(start);
+			fail("expected exception");
+		} catch (Exception got) {
+			TestCommon.assertExceptionCorrect(got, new IllegalArgumentException(
+					"start must be between 0 and 9999999999999999"));
+		}
+	}
+}
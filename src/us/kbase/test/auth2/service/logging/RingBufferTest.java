@@ -0,0 +1,133 @@
+package us.kbase.test.auth2.service.logging;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+
+import us.kbase.auth2.service.logging.RingBuffer;
+import us.kbase.test.auth2.TestCommon;
+
+public class RingBufferTest {
+
+	@Test
+	public void offerAndPoll() throws Exception {
+		final RingBuffer<String> rb = new RingBuffer<>(4);
+		assertThat("incorrect capacity", rb.getCapacity(), is(4));
+		assertThat("incorrect size", rb.size(), is(0));
+		assertThat("incorrect poll", rb.poll(), nullValue());
+
+		for (final String s: Arrays.asList("a", "b", "c", "d")) {
+			assertThat("incorrect offer", rb.offer(s), is(true));
+		}
+		assertThat("incorrect size", rb.size(), is(4));
+		assertThat("incorrect offer", rb.offer("e"), is(false));
+
+		assertThat("incorrect poll", rb.poll(), is("a"));
+		assertThat("incorrect offer", rb.offer("e"), is(true));
+		assertThat("incorrect offer", rb.offer("f"), is(false));
+
+		final List<String> got = new LinkedList<>();
+		assertThat("incorrect drain count", rb.drainTo(got, 3), is(3));
+		assertThat("incorrect drain", got, is(Arrays.asList("b", "c", "d")));
+		assertThat("incorrect drain count", rb.drainTo(got, 3), is(1));
+		assertThat("incorrect drain", got, is(Arrays.asList("b", "c", "d", "e")));
+		assertThat("incorrect size", rb.size(), is(0));
+		assertThat("incorrect poll", rb.poll(), nullValue());
+	}
+
+	@Test
+	public void wrapAround() throws Exception {
+		final RingBuffer<Integer> rb = new RingBuffer<>(2);
+		for (int i = 0; i < 1000; i++) {
+			assertThat("incorrect offer", rb.offer(i), is(true));
+			assertThat("incorrect poll", rb.poll(), is(i));
+		}
+	}
+
+	@Test
+	public void concurrentProducersAndConsumers() throws Exception {
+		final RingBuffer<Integer> rb = new RingBuffer<>(64);
+		final int producers = 4;
+		final int perProducer = 10000;
+		final ExecutorService exe = Executors.newFixedThreadPool(producers + 2);
+		try {
+			for (int p = 0; p < producers; p++) {
+				final int base = p * perProducer;
+				exe.submit(() -> {
+					for (int i = 0; i < perProducer; i++) {
+						while (!rb.offer(base + i)) {
+							Thread.yield();
+						}
+					}
+				});
+			}
+			final int total = producers * perProducer;
+			final AtomicInteger consumed = new AtomicInteger();
+			final List<Future<List<Integer>>> consumers = new ArrayList<>();
+			for (int c = 0; c < 2; c++) {
+				consumers.add(exe.submit(() -> {
+					final List<Integer> got = new ArrayList<>();
+					while (consumed.get() < total) {
+						final Integer i = rb.poll();
+						if (i == null) {
+							Thread.yield();
+						} else {
+							got.add(i);
+							consumed.incrementAndGet();
+						}
+					}
+					return got;
+				}));
+			}
+			final Set<Integer> all = new HashSet<>();
+			int count = 0;
+			for (final Future<List<Integer>> f: consumers) {
+				final List<Integer> got = f.get(30, TimeUnit.SECONDS);
+				count += got.size();
+				all.addAll(got);
+			}
+			assertThat("incorrect item count", count, is(total));
+			assertThat("duplicate items", all.size(), is(producers * perProducer));
+		} finally {
+			exe.shutdownNow();
+		}
+	}
+
+	@Test
+	public void constructFail() throws Exception {
+		for (final int cap: new int[] {-2, 0, 1, 3, 6, 100}) {
+			try {
+				new RingBuffer<>(cap);
+				fail("expected exception");
+			} catch (Exception got) {
+				TestCommon.assertExceptionCorrect(got, new IllegalArgumentException(
+						"capacity must be a power of 2 and at least 2"));
+			}
+		}
+	}
+
+	@Test
+	public void offerFail() throws Exception {
+		try {
+			new RingBuffer<>(2).offer(null);
+			fail("expected exception");
+		} catch (Exception got) {
+			TestCommon.assertExceptionCorrect(got, new NullPointerException("item"));
+		}
+	}
+}
@@ -0,0 +1,228 @@
+package us.kbase.test.auth2.service.metrics;
+
+import static org.hamcrest.CoreMatchers.containsString;
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.io.IOException;
+import java.time.Clock;
+import java.util.Collections;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.ws.rs.container.AsyncResponse;
+
+import org.junit.Test;
+
+import us.kbase.auth2.lib.exceptions.IdentityRetrievalException;
+import us.kbase.auth2.lib.identity.GuardedIdentityProvider;
+import us.kbase.auth2.lib.identity.GuardedIdentityProvider.Status;
+import us.kbase.auth2.lib.identity.IdentityProvider;
+import us.kbase.auth2.service.api.Token;
+import us.kbase.auth2.service.metrics.MetricsFilter;
+import us.kbase.auth2.service.metrics.MetricsRegistry;
+import us.kbase.test.auth2.TestCommon;
+
+public class MetricsRegistryTest {
+
+	private static SortedMap<String, Long> counts(
+			final long c1xx,
+			final long c2xx,
+			final long c3xx,
+			final long c4xx,
+			final long c5xx) {
+		final SortedMap<String, Long> ret = new TreeMap<>();
+		ret.put("1xx", c1xx);
+		ret.put("2xx", c2xx);
+		ret.put("3xx", c3xx);
+		ret.put("4xx", c4xx);
+		ret.put("5xx", c5xx);
+		return ret;
+	}
+
+	@Test
+	public void empty() throws Exception {
+		final MetricsRegistry m = new MetricsRegistry();
+		assertThat("incorrect in flight", m.getInFlight("foo"), is(0L));
+		assertThat("incorrect counts", m.getRequestCounts("foo"),
+				is(Collections.emptySortedMap()));
+		assertThat("incorrect text", m.toPrometheusText(), is(
+				"# HELP auth_http_requests_total Completed HTTP requests by resource method " +
+						"and status code class.\n" +
+				"# TYPE auth_http_requests_total counter\n" +
+				"# HELP auth_http_request_duration_seconds HTTP request latency by resource " +
+						"method.\n" +
+				"# TYPE auth_http_request_duration_seconds histogram\n" +
+				"# HELP auth_http_requests_in_flight HTTP requests currently in flight by " +
+						"resource method.\n" +
+				"# TYPE auth_http_requests_in_flight gauge\n"));
+	}
+
+	@Test
+	public void inFlight() throws Exception {
+		final MetricsRegistry m = new MetricsRegistry();
+		m.requestStarted("api.Me.me");
+		m.requestStarted("api.Me.me");
+		m.requestStarted("ui.Me.me");
+		assertThat("incorrect in flight", m.getInFlight("api.Me.me"), is(2L));
+		assertThat("incorrect in flight", m.getInFlight("ui.Me.me"), is(1L));
+
+		m.requestCompleted("api.Me.me", 200, 1000);
+		assertThat("incorrect in flight", m.getInFlight("api.Me.me"), is(1L));
+		assertThat("incorrect text", m.toPrometheusText(), containsString(
+				"auth_http_requests_in_flight{resource=\"api.Me.me\"} 1\n" +
+				"auth_http_requests_in_flight{resource=\"ui.Me.me\"} 1\n"));
+	}
+
+	@Test
+	public void statusClasses() throws Exception {
+		final MetricsRegistry m = new MetricsRegistry();
+		for (final int status: new int[] {100, 200, 204, 302, 400, 401, 404, 500, 99, 600}) {
+			m.requestStarted("api.Me.me");
+			m.requestCompleted("api.Me.me", status, 1000);
+		}
+		assertThat("incorrect counts", m.getRequestCounts("api.Me.me"), is(counts(1, 2, 1, 3, 1)));
+		assertThat("incorrect text", m.toPrometheusText(), containsString(
+				"auth_http_requests_total{resource=\"api.Me.me\",status=\"1xx\"} 1\n" +
+				"auth_http_requests_total{resource=\"api.Me.me\",status=\"2xx\"} 2\n" +
+				"auth_http_requests_total{resource=\"api.Me.me\",status=\"3xx\"} 1\n" +
+				"auth_http_requests_total{resource=\"api.Me.me\",status=\"4xx\"} 3\n" +
+				"auth_http_requests_total{resource=\"api.Me.me\",status=\"5xx\"} 1\n"));
+	}
+
+	@Test
+	public void histogram() throws Exception {
+		final MetricsRegistry m = new MetricsRegistry();
+		// 5ms is in the 0.005 bucket, 5ms + 1ns is not
+		for (final long latency: new long[] {-1, 5000000, 5000001, 300000000, 20000000000L}) {
+			m.requestStarted("ui.Me.me");
+			m.requestCompleted("ui.Me.me", 200, latency);
+		}
+		final String res = "auth_http_request_duration_seconds_%s{resource=\"ui.Me.me\"%s} %s\n";
+		final String b = "bucket";
+		assertThat("incorrect text", m.toPrometheusText(), containsString(
+				String.format(res, b, ",le=\"0.005\"", 2) +
+				String.format(res, b, ",le=\"0.01\"", 3) +
+				String.format(res, b, ",le=\"0.025\"", 3) +
+				String.format(res, b, ",le=\"0.05\"", 3) +
+				String.format(res, b, ",le=\"0.1\"", 3) +
+				String.format(res, b, ",le=\"0.25\"", 3) +
+				String.format(res, b, ",le=\"0.5\"", 4) +
+				String.format(res, b, ",le=\"1.0\"", 4) +
+				String.format(res, b, ",le=\"2.5\"", 4) +
+				String.format(res, b, ",le=\"5.0\"", 4) +
+				String.format(res, b, ",le=\"10.0\"", 4) +
+				String.format(res, b, ",le=\"+Inf\"", 5) +
+				String.format(res, "sum", "", "20.310000001") +
+				String.format(res, "count", "", 5)));
+	}
+
+	@Test
+	public void escapeLabel() throws Exception {
+		final MetricsRegistry m = new MetricsRegistry();
+		m.requestStarted("a\"b\\c\nd");
+		assertThat("incorrect text", m.toPrometheusText(), containsString(
+				"auth_http_requests_in_flight{resource=\"a\\\"b\\\\c\\nd\"} 1\n"));
+	}
+
+	@Test
+	public void failBadResource() throws Exception {
+		failBadResource(null, new IllegalArgumentException("Missing argument: resource"));
+		failBadResource("  \t  ", new IllegalArgumentException("Missing argument: resource"));
+	}
+
+	private void failBadResource(final String resource, final Exception expected) {
+		try {
+			new MetricsRegistry().requestStarted(resource);
+			fail("expected exception");
+		} catch (Exception got) {
+			TestCommon.assertExceptionCorrect(got, expected);
+		}
+		try {
+			new MetricsRegistry().requestCompleted(resource, 200, 1);
+			fail("expected exception");
+		} catch (Exception got) {
+			TestCommon.assertExceptionCorrect(got, expected);
+		}
+	}
+
+	@Test
+	public void resourceName() throws Exception {
+		assertThat("incorrect name", MetricsFilter.getResourceName(
+				Token.class, Token.class.getMethod("viewToken",
+						String.class, String.class, HttpServletRequest.class, AsyncResponse.class)),
+				is("api.Token.viewToken"));
+		assertThat("incorrect name", MetricsFilter.getResourceName(
+				String.class, String.class.getMethod("length")),
+				is("java.lang.String.length"));
+	}
+
+	@Test
+	public void identityProviderStatus() throws Exception {
+		final IdentityProvider idp = mock(IdentityProvider.class);
+		when(idp.getProviderName()).thenReturn("Prov");
+		when(idp.getIdentities("code", false)).thenThrow(new IdentityRetrievalException(
+				"down", new IOException("connection refused")));
+		final GuardedIdentityProvider g = new GuardedIdentityProvider(
+				idp, 1, 100000, 4, Clock.systemDefaultZone());
+		try {
+			g.getIdentities("code", false);
+			fail("expected exception");
+		} catch (IdentityRetrievalException e) {
+			// expected
+		}
+		try {
+			g.getIdentities("code", false);
+			fail("expected exception");
+		} catch (IdentityRetrievalException e) {
+			// expected
+		}
+		final Map<String, Status> status = new TreeMap<>();
+		status.put("Prov", g.getStatus());
+		status.put("Prov2", new GuardedIdentityProvider(idp).getStatus());
+
+		assertThat("incorrect text", MetricsRegistry.toPrometheusText(status), is(
+				"# HELP auth_identity_provider_circuit_state Identity provider circuit breaker " +
+						"state. 1 for the current state, 0 otherwise.\n" +
+				"# TYPE auth_identity_provider_circuit_state gauge\n" +
+				"auth_identity_provider_circuit_state{provider=\"Prov\",state=\"closed\"} 0\n" +
+				"auth_identity_provider_circuit_state{provider=\"Prov\",state=\"open\"} 1\n" +
+				"auth_identity_provider_circuit_state{provider=\"Prov\",state=\"half_open\"} 0\n" +
+				"auth_identity_provider_circuit_state{provider=\"Prov2\",state=\"closed\"} 1\n" +
+				"auth_identity_provider_circuit_state{provider=\"Prov2\",state=\"open\"} 0\n" +
+				"auth_identity_provider_circuit_state{provider=\"Prov2\",state=\"half_open\"} " +
+						"0\n" +
+				"# HELP auth_identity_provider_consecutive_failures Consecutive failed requests " +
+						"by identity provider.\n" +
+				"# TYPE auth_identity_provider_consecutive_failures gauge\n" +
+				"auth_identity_provider_consecutive_failures{provider=\"Prov\"} 1\n" +
+				"auth_identity_provider_consecutive_failures{provider=\"Prov2\"} 0\n" +
+				"# HELP auth_identity_provider_requests_in_flight Identity provider requests " +
+						"currently in flight by provider.\n" +
+				"# TYPE auth_identity_provider_requests_in_flight gauge\n" +
+				"auth_identity_provider_requests_in_flight{provider=\"Prov\"} 0\n" +
+				"auth_identity_provider_requests_in_flight{provider=\"Prov2\"} 0\n" +
+				"# HELP auth_identity_provider_max_concurrent_requests The maximum number of " +
+						"concurrent requests by identity provider.\n" +
+				"# TYPE auth_identity_provider_max_concurrent_requests gauge\n" +
+				"auth_identity_provider_max_concurrent_requests{provider=\"Prov\"} 4\n" +
+				"auth_identity_provider_max_concurrent_requests{provider=\"Prov2\"} 20\n" +
+				"# HELP auth_identity_provider_rejected_requests_total Identity provider " +
+						"requests rejected without contacting the provider by provider and " +
+						"reason.\n" +
+				"# TYPE auth_identity_provider_rejected_requests_total counter\n" +
+				"auth_identity_provider_rejected_requests_total{provider=\"Prov\"," +
+						"reason=\"circuit_open\"} 1\n" +
+				"auth_identity_provider_rejected_requests_total{provider=\"Prov\"," +
+						"reason=\"concurrency_limit\"} 0\n" +
+				"auth_identity_provider_rejected_requests_total{provider=\"Prov2\"," +
+						"reason=\"circuit_open\"} 0\n" +
+				"auth_identity_provider_rejected_requests_total{provider=\"Prov2\"," +
+						"reason=\"concurrency_limit\"} 0\n"));
+	}
+}
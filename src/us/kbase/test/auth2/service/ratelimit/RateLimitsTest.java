@@ -0,0 +1,138 @@
+package us.kbase.test.auth2.service.ratelimit;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.junit.Test;
+
+import com.google.common.base.Optional;
+import com.google.common.collect.ImmutableMap;
+
+import nl.jqno.equalsverifier.EqualsVerifier;
+import us.kbase.auth2.lib.exceptions.IllegalParameterException;
+import us.kbase.auth2.service.ratelimit.RateLimit;
+import us.kbase.auth2.service.ratelimit.RateLimits;
+import us.kbase.test.auth2.TestCommon;
+
+public class RateLimitsTest {
+
+	@Test
+	public void equals() {
+		EqualsVerifier.forClass(RateLimit.class).usingGetClass().verify();
+		EqualsVerifier.forClass(RateLimits.class).usingGetClass().verify();
+	}
+
+	@Test
+	public void rateLimit() {
+		final RateLimit l = new RateLimit(20, 60);
+		assertThat("incorrect requests", l.getRequests(), is(20));
+		assertThat("incorrect period", l.getPeriodSec(), is(60));
+		assertThat("incorrect string", l.toString(), is("20/60"));
+	}
+
+	@Test
+	public void rateLimitFail() {
+		failRateLimit(0, 1, new IllegalArgumentException("requests must be at least 1"));
+		failRateLimit(1, 0, new IllegalArgumentException("periodSec must be at least 1"));
+	}
+
+	private void failRateLimit(final int requests, final int period, final Exception expected) {
+		try {
+			new RateLimit(requests, period);
+			fail("expected exception");
+		} catch (Exception got) {
+			TestCommon.assertExceptionCorrect(got, expected);
+		}
+	}
+
+	@Test
+	public void parse() throws Exception {
+		final RateLimits l = RateLimits.parse(
+				" api.Token.viewToken = 300/60 ,, api.LegacyKBase.kbaseLogin=20/1,");
+		assertThat("incorrect limits", l.getLimits(), is(ImmutableMap.of(
+				"api.LegacyKBase.kbaseLogin", new RateLimit(20, 1),
+				"api.Token.viewToken", new RateLimit(300, 60))));
+		assertThat("incorrect limit", l.getLimit("api.Token.viewToken"),
+				is(Optional.of(new RateLimit(300, 60))));
+		assertThat("incorrect limit", l.getLimit("api.Token.createToken"),
+				is(Optional.absent()));
+		assertThat("incorrect empty", l.isEmpty(), is(false));
+		assertThat("incorrect spec", l.toSpec(),
+				is("api.LegacyKBase.kbaseLogin=20/1, api.Token.viewToken=300/60"));
+		assertThat("incorrect round trip", RateLimits.parse(l.toSpec()), is(l));
+	}
+
+	@Test
+	public void parseEmpty() throws Exception {
+		final RateLimits l = RateLimits.parse("  , ");
+		assertThat("incorrect limits", l, is(RateLimits.NONE));
+		assertThat("incorrect empty", l.isEmpty(), is(true));
+		assertThat("incorrect spec", l.toSpec(), is(""));
+	}
+
+	@Test
+	public void parseFail() {
+		failParse(null, new NullPointerException("spec"));
+		failParse("api.Token.viewToken", new IllegalParameterException(
+				"Illegal rate limit: api.Token.viewToken"));
+		failParse("api.Token.viewToken=1", new IllegalParameterException(
+				"Illegal rate limit: api.Token.viewToken=1"));
+		failParse("api.Token.viewToken=a/1", new IllegalParameterException(
+				"Illegal rate limit: api.Token.viewToken=a/1"));
+		failParse("api.Token.viewToken=1/1/1", new IllegalParameterException(
+				"Illegal rate limit: api.Token.viewToken=1/1/1"));
+		failParse("api.Token.viewToken=1/1234567890", new IllegalParameterException(
+				"Illegal rate limit: api.Token.viewToken=1/1234567890"));
+		failParse("api/Token=1/1", new IllegalParameterException(
+				"Illegal rate limit: api/Token=1/1"));
+		failParse("api.Token.viewToken=0/60", new IllegalParameterException(
+				"Illegal rate limit: api.Token.viewToken=0/60: requests must be at least 1"));
+		failParse("a=1/1, a=2/2", new IllegalParameterException(
+				"Duplicate rate limit for endpoint a"));
+	}
+
+	private void failParse(final String spec, final Exception expected) {
+		try {
+			RateLimits.parse(spec);
+			fail("expected exception");
+		} catch (Exception got) {
+			TestCommon.assertExceptionCorrect(got, expected);
+		}
+	}
+
+	@Test
+	public void constructFail() {
+		final Map<String, RateLimit> nullkey = new HashMap<>();
+		nullkey.put(null, new RateLimit(1, 1));
+		final Map<String, RateLimit> nullval = new HashMap<>();
+		nullval.put("a", null);
+		failConstruct(null, new NullPointerException("limits"));
+		failConstruct(nullkey, new NullPointerException("endpoint name"));
+		failConstruct(nullval, new NullPointerException("rate limit for endpoint a"));
+	}
+
+	private void failConstruct(final Map<String, RateLimit> limits, final Exception expected) {
+		try {
+			new RateLimits(limits);
+			fail("expected exception");
+		} catch (Exception got) {
+			TestCommon.assertExceptionCorrect(got, expected);
+		}
+	}
+
+	@Test
+	public void immutable() throws Exception {
+		try {
+			RateLimits.parse("a=1/1").getLimits().put("b", new RateLimit(1, 1));
+			fail("expected exception");
+		} catch (UnsupportedOperationException e) {
+			// test passed
+		}
+		assertThat("incorrect empty", new RateLimits(Collections.emptyMap()).isEmpty(), is(true));
+	}
+}
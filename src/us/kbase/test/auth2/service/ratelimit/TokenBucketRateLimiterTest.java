@@ -0,0 +1,162 @@
+package us.kbase.test.auth2.service.ratelimit;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.time.Clock;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.Test;
+
+import us.kbase.auth2.service.ratelimit.RateLimit;
+import us.kbase.auth2.service.ratelimit.TokenBucketRateLimiter;
+import us.kbase.test.auth2.TestCommon;
+
+public class TokenBucketRateLimiterTest {
+
+	private final AtomicLong now = new AtomicLong(1000000);
+
+	private TokenBucketRateLimiter limiter(final int maxBuckets) {
+		final Clock clock = mock(Clock.class);
+		when(clock.millis()).thenAnswer(i -> now.get());
+		return new TokenBucketRateLimiter(maxBuckets, clock);
+	}
+
+	@Test
+	public void burstThenRefill() {
+		final TokenBucketRateLimiter l = limiter(100);
+		final RateLimit limit = new RateLimit(4, 2); // one token per 500ms
+		for (int i = 0; i < 4; i++) {
+			assertThat("incorrect wait " + i, l.acquire("k", limit), is(0L));
+		}
+		assertThat("incorrect wait", l.acquire("k", limit), is(500L));
+		now.addAndGet(200);
+		assertThat("incorrect wait", l.acquire("k", limit), is(300L));
+		now.addAndGet(300);
+		assertThat("incorrect wait", l.acquire("k", limit), is(0L));
+		assertThat("incorrect wait", l.acquire("k", limit), is(500L));
+
+		// a full bucket doesn't accumulate more than the limit
+		now.addAndGet(60000);
+		for (int i = 0; i < 4; i++) {
+			assertThat("incorrect wait " + i, l.acquire("k", limit), is(0L));
+		}
+		assertThat("incorrect wait", l.acquire("k", limit), is(500L));
+	}
+
+	@Test
+	public void keysAreIndependent() {
+		final TokenBucketRateLimiter l = limiter(100);
+		final RateLimit limit = new RateLimit(1, 1);
+		assertThat("incorrect wait", l.acquire("k1", limit), is(0L));
+		assertThat("incorrect wait", l.acquire("k1", limit), is(1000L));
+		assertThat("incorrect wait", l.acquire("k2", limit), is(0L));
+		assertThat("incorrect size", l.size(), is(2));
+	}
+
+	@Test
+	public void rejectedRequestsDontConsumeTokens() {
+		final TokenBucketRateLimiter l = limiter(100);
+		final RateLimit limit = new RateLimit(1, 1);
+		assertThat("incorrect wait", l.acquire("k", limit), is(0L));
+		for (int i = 0; i < 10; i++) {
+			l.acquire("k", limit);
+		}
+		now.addAndGet(1000);
+		assertThat("incorrect wait", l.acquire("k", limit), is(0L));
+	}
+
+	@Test
+	public void sweep() {
+		final TokenBucketRateLimiter l = limiter(2);
+		final RateLimit limit = new RateLimit(1, 10);
+		l.acquire("k1", limit);
+		l.acquire("k2", limit);
+		now.addAndGet(10000); // k1 and k2 are full
+		l.acquire("k3", limit); // over the threshold, so full buckets are removed
+		assertThat("incorrect size", l.size(), is(1));
+		assertThat("incorrect wait", l.acquire("k3", limit), is(10000L));
+		l.acquire("k4", limit);
+		assertThat("incorrect size", l.size(), is(2));
+		// buckets in use are not removed
+		l.acquire("k5", limit);
+		assertThat("incorrect size", l.size(), is(3));
+		assertThat("incorrect wait", l.acquire("k3", limit), is(10000L));
+	}
+
+	@Test
+	public void concurrent() throws Exception {
+		final TokenBucketRateLimiter l = new TokenBucketRateLimiter();
+		final RateLimit limit = new RateLimit(1000, 3600);
+		final ExecutorService ex = Executors.newFixedThreadPool(8);
+		try {
+			final List<Future<Integer>> res = new ArrayList<>();
+			for (int t = 0; t < 8; t++) {
+				res.add(ex.submit(() -> {
+					int allowed = 0;
+					for (int i = 0; i < 500; i++) {
+						if (l.acquire("k", limit) == 0) {
+							allowed++;
+						}
+					}
+					return allowed;
+				}));
+			}
+			int allowed = 0;
+			for (final Future<Integer> f: res) {
+				allowed += f.get();
+			}
+			// 3.6 s per token, so no more than one token could have been added during the test
+			assertThat("incorrect allowed", allowed == 1000 || allowed == 1001, is(true));
+		} finally {
+			ex.shutdownNow();
+		}
+	}
+
+	@Test
+	public void acquireFail() {
+		final TokenBucketRateLimiter l = limiter(100);
+		failAcquire(l, null, new RateLimit(1, 1),
+				new IllegalArgumentException("Missing argument: key"));
+		failAcquire(l, "  \t ", new RateLimit(1, 1),
+				new IllegalArgumentException("Missing argument: key"));
+		failAcquire(l, "k", null, new NullPointerException("limit"));
+	}
+
+	private void failAcquire(
+			final TokenBucketRateLimiter l,
+			final String key,
+			final RateLimit limit,
+			final Exception expected) {
+		try {
+			l.acquire(key, limit);
+			fail("expected exception");
+		} catch (Exception got) {
+			TestCommon.assertExceptionCorrect(got, expected);
+		}
+	}
+
+	@Test
+	public void constructFail() {
+		failConstruct(0, Clock.systemDefaultZone(),
+				new IllegalArgumentException("maxBuckets must be at least 1"));
+		failConstruct(1, null, new NullPointerException("clock"));
+	}
+
+	private void failConstruct(final int maxBuckets, final Clock clock, final Exception expected) {
+		try {
+			new TokenBucketRateLimiter(maxBuckets, clock);
+			fail("expected exception");
+		} catch (Exception got) {
+			TestCommon.assertExceptionCorrect(got, expected);
+		}
+	}
+}
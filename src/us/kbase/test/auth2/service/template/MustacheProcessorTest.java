@@ -0,0 +1,146 @@
+package us.kbase.test.auth2.service.template;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.google.common.collect.ImmutableMap;
+
+import us.kbase.auth2.service.template.mustache.MustacheProcessor;
+import us.kbase.test.auth2.TestCommon;
+
+public class MustacheProcessorTest {
+
+	private static final Map<String, Object> MODEL = ImmutableMap.of("name", "whee");
+
+	private Path dir;
+
+	@Before
+	public void setUp() throws Exception {
+		dir = Files.createTempDirectory(TestCommon.getTempDir(), "mustache_test");
+	}
+
+	@After
+	public void tearDown() throws Exception {
+		if (dir != null && TestCommon.isDeleteTempFiles()) {
+			FileUtils.deleteQuietly(dir.toFile());
+		}
+	}
+
+	private void write(final String template, final String contents) throws IOException {
+		Files.write(dir.resolve(template + ".mustache"), contents.getBytes(StandardCharsets.UTF_8));
+	}
+
+	@Test
+	public void processWithPartial() throws Exception {
+		write("t1", "hi {{name}} {{> t2}}");
+		write("t2", "and {{name}}");
+		Files.write(dir.resolve("notatemplate.txt"), "foo".getBytes(StandardCharsets.UTF_8));
+
+		try (final MustacheProcessor mp = new MustacheProcessor(dir, false)) {
+			assertThat("incorrect render", mp.process("t1", MODEL), is("hi whee and whee"));
+			assertThat("incorrect render", mp.process("t2", MODEL), is("and whee"));
+			// check the buffer is reset between renders
+			assertThat("incorrect render", mp.process("t2", ImmutableMap.of("name", "x")),
+					is("and x"));
+		}
+	}
+
+	@Test
+	public void noReloadWithoutWatch() throws Exception {
+		write("t1", "hi {{name}}");
+		try (final MustacheProcessor mp = new MustacheProcessor(dir, false)) {
+			write("t1", "bye {{name}}");
+			write("t3", "new");
+			Thread.sleep(500);
+			assertThat("incorrect render", mp.process("t1", MODEL), is("hi whee"));
+			failProcess(mp, "t3", new IllegalArgumentException("No such template: t3"));
+		}
+	}
+
+	@Test
+	public void reloadWithWatch() throws Exception {
+		write("t1", "hi {{name}}");
+		try (final MustacheProcessor mp = new MustacheProcessor(dir, true)) {
+			write("t1", "bye {{name}}");
+			write("t3", "new");
+			waitForRender(mp, "t3", "new");
+			assertThat("incorrect render", mp.process("t1", MODEL), is("bye whee"));
+
+			Files.delete(dir.resolve("t3.mustache"));
+			final long end = System.currentTimeMillis() + 20000;
+			while (true) {
+				try {
+					mp.process("t3", MODEL);
+				} catch (IllegalArgumentException e) {
+					break;
+				}
+				if (System.currentTimeMillis() > end) {
+					fail("template was not removed");
+				}
+				Thread.sleep(50);
+			}
+		}
+	}
+
+	private void waitForRender(
+			final MustacheProcessor mp,
+			final String template,
+			final String expected)
+			throws Exception {
+		// the watch service may poll on some platforms, so allow plenty of time
+		final long end = System.currentTimeMillis() + 20000;
+		while (System.currentTimeMillis() < end) {
+			try {
+				if (mp.process(template, MODEL).equals(expected)) {
+					return;
+				}
+			} catch (IllegalArgumentException e) {
+				// not loaded yet
+			}
+			Thread.sleep(50);
+		}
+		fail("template was not reloaded");
+	}
+
+	@Test
+	public void constructFail() throws Exception {
+		try {
+			new MustacheProcessor(null, false);
+			fail("expected exception");
+		} catch (Exception got) {
+			TestCommon.assertExceptionCorrect(got, new NullPointerException("templateDir"));
+		}
+	}
+
+	@Test
+	public void processFailNoTemplate() throws Exception {
+		write("t1", "hi {{name}}");
+		try (final MustacheProcessor mp = new MustacheProcessor(dir, false)) {
+			failProcess(mp, "t2", new IllegalArgumentException("No such template: t2"));
+		}
+	}
+
+	private void failProcess(
+			final MustacheProcessor mp,
+			final String template,
+			final Exception expected) {
+		try {
+			mp.process(template, MODEL);
+			fail("expected exception");
+		} catch (Exception got) {
+			TestCommon.assertExceptionCorrect(got, expected);
+		}
+	}
+}
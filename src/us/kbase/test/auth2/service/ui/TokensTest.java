@@ -13,11 +13,13 @@ import java.nio.file.Path;
 import java.time.Instant;
 import java.util.Arrays;
 import java.util.Collections;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.UUID;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
+import java.util.stream.Collectors;
 
 import javax.ws.rs.client.Client;
 import javax.ws.rs.client.ClientBuilder;
@@ -43,6 +45,7 @@ import us.kbase.auth2.lib.PasswordHashAndSalt;
 import us.kbase.auth2.lib.Role;
 import us.kbase.auth2.lib.TokenCreationContext;
 import us.kbase.auth2.lib.UserName;
+import us.kbase.auth2.lib.exceptions.AuthException;
 import us.kbase.auth2.lib.exceptions.IllegalParameterException;
 import us.kbase.auth2.lib.exceptions.InvalidTokenException;
 import us.kbase.auth2.lib.exceptions.MissingParameterException;
@@ -50,6 +53,7 @@ import us.kbase.auth2.lib.exceptions.NoSuchTokenException;
 import us.kbase.auth2.lib.exceptions.NoTokenProvidedException;
 import us.kbase.auth2.lib.token.IncomingToken;
 import us.kbase.auth2.lib.token.StoredToken;
+import us.kbase.auth2.lib.token.TokenCursor;
 import us.kbase.auth2.lib.token.TokenName;
 import us.kbase.auth2.lib.token.TokenType;
 import us.kbase.auth2.lib.user.LocalUser;
@@ -163,6 +167,8 @@ public class TokensTest {
 						.with("ip", null)
 						.build())
 				.with("tokens", Collections.emptyList())
+				.with("nextcursor", null)
+				.with("nexturl", null)
 				.with("revokeurl", "tokens/revoke/")
 				.with("createurl", "tokens")
 				.with("revokeallurl", "tokens/revokeall")
@@ -295,6 +301,8 @@ public class TokensTest {
 								.with("device", "dev2")
 								.with("ip", null)
 								.build()))
+				.with("nextcursor", null)
+				.with("nexturl", null)
 				.with("revokeurl", "revoke/")
 				.with("createurl", "")
 				.with("revokeallurl", "revokeall")
@@ -336,6 +344,131 @@ public class TokensTest {
 		failRequestJSON(req2.get(), 401, "Unauthorized", new InvalidTokenException());
 	}
 	
+	@Test
+	public void getTokensPaged() throws Exception {
+		final String id = "edc1dcbb-d370-4660-a639-01a72f0d578a";
+		final String id2 = "8351a73a-d4c7-4c00-9a7d-012ace5d9519";
+		final String id3 = "653cc5ce-37e6-4e61-ac25-48831657f257";
+		final String id4 = "cb5e637c-cfbb-44eb-b179-843f3279f775";
+		
+		manager.storage.createLocalUser(LocalUser.getLocalUserBuilder(
+				new UserName("whoo"), new DisplayName("d"), Instant.ofEpochMilli(10000)).build(),
+				new PasswordHashAndSalt("fobarbazbing".getBytes(), "aa".getBytes()));
+		
+		final IncomingToken token = new IncomingToken("whoop");
+		manager.storage.storeToken(StoredToken.getBuilder(
+				TokenType.LOGIN, UUID.fromString(id), new UserName("whoo"))
+				.withLifeTime(Instant.ofEpochMilli(10000), 1000000000000000L)
+				.build(),
+				token.getHashedToken().getTokenHash());
+		storeDevToken(id2, 20000, "n", "somehash2");
+		storeDevToken(id3, 30000, "m", "somehash3");
+		storeDevToken(id4, 40000, "n", "somehash4");
+		
+		final Map<String, Object> page1 = getTokensJSON(token, ImmutableMap.of("limit", "2"));
+		final String cursor = new TokenCursor(Instant.ofEpochMilli(30000), UUID.fromString(id3))
+				.encode();
+		assertThat("incorrect tokens", getTokenIDs(page1), is(Arrays.asList(id4, id3)));
+		assertThat("incorrect cursor", page1.get("nextcursor"), is(cursor));
+		assertThat("incorrect next url", page1.get("nexturl"), is("?limit=2&cursor=" + cursor));
+		
+		// the current token is in the last page but is not returned in the list
+		final Map<String, Object> page2 = getTokensJSON(token,
+				ImmutableMap.of("limit", "2", "cursor", cursor));
+		assertThat("incorrect tokens", getTokenIDs(page2), is(Arrays.asList(id2)));
+		assertThat("incorrect cursor", page2.get("nextcursor"), is((Object) null));
+		assertThat("incorrect next url", page2.get("nexturl"), is((Object) null));
+		
+		final Map<String, Object> filtered = getTokensJSON(token,
+				ImmutableMap.of("type", "Dev", "name", "n"));
+		assertThat("incorrect tokens", getTokenIDs(filtered), is(Arrays.asList(id4, id2)));
+		assertThat("incorrect cursor", filtered.get("nextcursor"), is((Object) null));
+		
+		final Map<String, Object> none = getTokensJSON(token, ImmutableMap.of("type", "Serv"));
+		assertThat("incorrect tokens", getTokenIDs(none), is(Collections.emptyList()));
+	}
+	
+	private void storeDevToken(
+			final String id,
+			final long created,
+			final String name,
+			final String hash)
+			throws Exception {
+		manager.storage.storeToken(StoredToken.getBuilder(
+				TokenType.DEV, UUID.fromString(id), new UserName("whoo"))
+				.withLifeTime(Instant.ofEpochMilli(created), 1000000000000000L)
+				.withTokenName(new TokenName(name))
+				.build(),
+				hash);
+	}
+	
+	private Map<String, Object> getTokensJSON(
+			final IncomingToken token,
+			final Map<String, String> queryParams) {
+		final UriBuilder ub = UriBuilder.fromUri(host).path("/tokens");
+		for (final String key: queryParams.keySet()) {
+			ub.queryParam(key, queryParams.get(key));
+		}
+		final Response res = CLI.target(ub.build()).request()
+				.header("accept", MediaType.APPLICATION_JSON)
+				.header("authorization", token.getToken())
+				.get();
+		assertThat("incorrect response code", res.getStatus(), is(200));
+		@SuppressWarnings("unchecked")
+		final Map<String, Object> json = res.readEntity(Map.class);
+		return json;
+	}
+	
+	private List<String> getTokenIDs(final Map<String, Object> json) {
+		@SuppressWarnings("unchecked")
+		final List<Map<String, Object>> tokens = (List<Map<String, Object>>) json.get("tokens");
+		return tokens.stream().map(t -> (String) t.get("id")).collect(Collectors.toList());
+	}
+	
+	@Test
+	public void getTokensFailBadParams() throws Exception {
+		manager.storage.createLocalUser(LocalUser.getLocalUserBuilder(
+				new UserName("whoo"), new DisplayName("d"), Instant.ofEpochMilli(10000)).build(),
+				new PasswordHashAndSalt("fobarbazbing".getBytes(), "aa".getBytes()));
+		
+		final IncomingToken token = new IncomingToken("whoop");
+		manager.storage.storeToken(StoredToken.getBuilder(
+				TokenType.LOGIN, UUID.randomUUID(), new UserName("whoo"))
+				.withLifeTime(Instant.ofEpochMilli(10000), 1000000000000000L)
+				.build(),
+				token.getHashedToken().getTokenHash());
+		
+		failGetTokens(token, "limit", "0",
+				new IllegalParameterException("limit must be between 1 and 1000"));
+		failGetTokens(token, "limit", "1001",
+				new IllegalParameterException("limit must be between 1 and 1000"));
+		failGetTokens(token, "limit", "foo",
+				new IllegalParameterException("limit must be an integer"));
+		failGetTokens(token, "type", "Foo",
+				new IllegalParameterException("Invalid token type: Foo"));
+		failGetTokens(token, "cursor", "bad",
+				new IllegalParameterException("Invalid cursor: bad"));
+	}
+	
+	private void failGetTokens(
+			final IncomingToken token,
+			final String param,
+			final String value,
+			final AuthException expected)
+			throws Exception {
+		final URI target = UriBuilder.fromUri(host).path("/tokens").queryParam(param, value)
+				.build();
+		final WebTarget wt = CLI.target(target);
+		
+		failRequestHTML(wt.request().cookie(COOKIE_NAME, token.getToken()).get(),
+				400, "Bad Request", expected);
+		
+		failRequestJSON(wt.request()
+				.header("accept", MediaType.APPLICATION_JSON)
+				.header("authorization", token.getToken()).get(),
+				400, "Bad Request", expected);
+	}
+	
 	@Test
 	public void createTokenMinimalInput() throws Exception {
 		manager.storage.createLocalUser(LocalUser.getLocalUserBuilder(
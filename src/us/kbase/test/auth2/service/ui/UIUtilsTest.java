@@ -604,7 +604,7 @@ public class UIUtilsTest {
 		when(auth.getExternalConfig(isA(AuthExternalConfig.AuthExternalConfigMapper.class)))
 				.thenReturn(new AuthExternalConfig<>(ConfigItem.state(new URL("http://whee/whoo")),
 						ConfigItem.emptyState(), ConfigItem.emptyState(), ConfigItem.emptyState(),
-						ConfigItem.state(false), ConfigItem.state(false)));
+						ConfigItem.state(false), ConfigItem.state(false), ConfigItem.emptyState()));
 		
 		final URI ret = UIUtils.getExternalConfigURI(auth, e -> e.getAllowedLoginRedirectPrefix(),
 				"/foo");
@@ -619,7 +619,7 @@ public class UIUtilsTest {
 				.thenReturn(new AuthExternalConfig<>(ConfigItem.emptyState(),
 						ConfigItem.state(new URL("http://whee/whoo")),
 						ConfigItem.emptyState(), ConfigItem.emptyState(),
-						ConfigItem.state(false), ConfigItem.state(false)));
+						ConfigItem.state(false), ConfigItem.state(false), ConfigItem.emptyState()));
 		
 		final URI ret = UIUtils.getExternalConfigURI(auth, e -> e.getAllowedLoginRedirectPrefix(),
 				"https://foo");